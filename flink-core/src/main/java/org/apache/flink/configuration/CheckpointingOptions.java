@@ -22,6 +22,8 @@ import org.apache.flink.annotation.docs.Documentation;
 import org.apache.flink.configuration.description.Description;
 import org.apache.flink.configuration.description.TextElement;
 
+import java.time.Duration;
+
 /** A collection of all configuration options that relate to checkpoints and savepoints. */
 public class CheckpointingOptions {
 
@@ -135,9 +137,23 @@ public class CheckpointingOptions {
                                     .linebreak()
                                     .text(
                                             "The list of recognized shortcut names currently includes"
-                                                    + " 'memory' only.")
+                                                    + " 'memory' and 'filesystem'.")
                                     .build());
 
+    /** The interval to materialize the state of the backend delegated by the changelog. */
+    public static final ConfigOption<Duration> PERIODIC_MATERIALIZATION_INTERVAL =
+            ConfigOptions.key("state.backend.changelog.periodic-materialize.interval")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(10))
+                    .withDescription(
+                            "The interval to materialize the state of the state backend delegated "
+                                    + "by the state changelog, i.e. to snapshot it in the "
+                                    + "background and truncate the changelog up to the snapshot. "
+                                    + "Shorter intervals bound the changes replayed on recovery, "
+                                    + "but upload the complete state more often. A materialization "
+                                    + "is started by the first checkpoint after the interval "
+                                    + "elapsed.");
+
     /** The maximum number of completed checkpoints to retain. */
     @Documentation.Section(Documentation.Sections.COMMON_STATE_BACKENDS)
     public static final ConfigOption<Integer> MAX_RETAINED_CHECKPOINTS =
@@ -190,6 +206,25 @@ public class CheckpointingOptions {
                                     + "deactivated. Local recovery currently only covers keyed state backends. Currently, MemoryStateBackend and "
                                     + "HashMapStateBackend do not support local recovery and ignore this option.");
 
+    /**
+     * Whether the TaskManager keeps the last local snapshots of heap keyed state backends in memory
+     * for local recovery.
+     */
+    @Documentation.Section(Documentation.Sections.COMMON_STATE_BACKENDS)
+    public static final ConfigOption<Boolean> LOCAL_RECOVERY_KEEP_HEAP_STATE_IN_MEMORY =
+            ConfigOptions.key("state.backend.local-recovery.keep-heap-state-in-memory")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the TaskManager keeps the local snapshots of heap keyed state backends in "
+                                    + "memory, in addition to the local state files. A task which is restored "
+                                    + "into the same slot from such a snapshot takes over its state objects "
+                                    + "instead of deserializing the local state files. The retained snapshots "
+                                    + "are copy-on-write views of the state, state which is modified after a "
+                                    + "checkpoint is copied until the checkpoint is subsumed. This option "
+                                    + "requires local recovery and a HashMapStateBackend with asynchronous "
+                                    + "snapshots.");
+
     /**
      * The config parameter defining the root directories for storing file-based state for local
      * recovery.
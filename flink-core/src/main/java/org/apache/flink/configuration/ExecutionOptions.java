@@ -69,6 +69,21 @@ public class ExecutionOptions {
                                                             + "throughput"))
                                     .build());
 
+    public static final ConfigOption<Boolean> PACKED_TIMERS =
+            ConfigOptions.key("execution.packed-timers.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "A flag to keep the timers of keyed operators packed in off-heap memory "
+                                    + "instead of one object per timer in the state backend, which "
+                                    + "reduces the memory footprint and garbage collection pressure "
+                                    + "of jobs with many timers. The memory is accounted as task "
+                                    + "off-heap memory, so tasks fail to start if "
+                                    + "'taskmanager.memory.task.off-heap.size' is not configured. The timers are written synchronously to raw "
+                                    + "keyed state on checkpoints, so operators which write their own "
+                                    + "raw keyed state cannot use packed timers. NOTE: It takes effect "
+                                    + "only in the STREAMING runtime mode.");
+
     @Documentation.ExcludeFromDocumentation(
             "This is an expert option, that we do not want to expose in" + " the documentation")
     public static final ConfigOption<Boolean> SORT_INPUTS =
@@ -21,6 +21,8 @@ package org.apache.flink.configuration;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.docs.Documentation;
 
+import java.time.Duration;
+
 import static org.apache.flink.configuration.ConfigOptions.key;
 
 /** The set of configuration options relating to network stack. */
@@ -84,6 +86,24 @@ public class NettyShuffleEnvironmentOptions {
                                     + "is more effective for IO bounded scenario when compression "
                                     + "ratio is high.");
 
+    /**
+     * Boolean flag indicating whether the buffers of pipelined result partitions will be compressed
+     * before they are sent over the network.
+     */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Boolean> PIPELINED_SHUFFLE_COMPRESSION_ENABLED =
+            key("taskmanager.network.pipelined-shuffle.compression.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Boolean flag indicating whether the shuffle data of pipelined result "
+                                    + "partitions will be compressed before it is sent to remote "
+                                    + "task managers. Data is compressed per buffer by the network "
+                                    + "threads, and the compression is paused for channels whose "
+                                    + "data does not compress well. This trades CPU for network "
+                                    + "bandwidth. Consumers decompress the data regardless of "
+                                    + "their own setting.");
+
     /** The codec to be used when compressing shuffle data. */
     @Documentation.ExcludeFromDocumentation("Currently, LZ4 is the only legal option.")
     public static final ConfigOption<String> SHUFFLE_COMPRESSION_CODEC =
@@ -241,6 +261,21 @@ public class NettyShuffleEnvironmentOptions {
                                     // this raw value must be changed correspondingly
                                     "taskmanager.memory.framework.off-heap.batch-shuffle.size"));
 
+    /** Maximum number of concurrent data reads of sort-merge blocking shuffle on a single disk. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_SORT_SHUFFLE_MAX_CONCURRENT_READS_PER_DISK =
+            key("taskmanager.network.sort-shuffle.max-concurrent-reads-per-disk")
+                    .intType()
+                    .defaultValue(Integer.MAX_VALUE)
+                    .withDescription(
+                            "Maximum number of concurrent data reads of sort-merge blocking shuffle"
+                                    + " on a single disk of the TaskManager, where each temporary "
+                                    + "directory is treated as a separate disk. The pending reads "
+                                    + "of a disk are served in order of file and file offset, so "
+                                    + "a small value, for example 1 or 2, reduces the random disk "
+                                    + "seeks of spinning disks. The default value does not limit "
+                                    + "the concurrency, which fits SSDs.");
+
     /** Number of max buffers can be used for each output subparition. */
     @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
     public static final ConfigOption<Integer> NETWORK_MAX_BUFFERS_PER_CHANNEL =
@@ -276,6 +311,82 @@ public class NettyShuffleEnvironmentOptions {
                                     + " by configured memory limits, but some resource frameworks like yarn would track this memory usage and kill the container once"
                                     + " memory exceeding some threshold. Also note that this option is experimental and might be changed future.");
 
+    // ------------------------------------------------------------------------
+    //  Buffer Debloating Options
+    // ------------------------------------------------------------------------
+
+    /** Boolean flag indicating whether the buffer size is adapted to the throughput of a gate. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Boolean> NETWORK_BUFFER_DEBLOAT_ENABLED =
+            key("taskmanager.network.memory.buffer-debloat.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Boolean flag indicating whether the input gates periodically adapt the "
+                                    + "size of the network buffers announced to their producers, "
+                                    + "so that the in-flight data of a gate can be consumed within "
+                                    + "the configured target time. This reduces the amount of "
+                                    + "in-flight data under back pressure, which speeds up the "
+                                    + "checkpoint alignment and the persisting of in-flight data "
+                                    + "for unaligned checkpoints.");
+
+    /** The time which the in-flight data of an input gate should take to be consumed. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_TARGET =
+            key("taskmanager.network.memory.buffer-debloat.target")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(1))
+                    .withDescription(
+                            "The target time which the in-flight data of an input gate should take to"
+                                    + " be consumed at the currently measured throughput. The "
+                                    + "buffer size is chosen such that the buffers in use by the "
+                                    + "gate hold about this much data.");
+
+    /** The period between two recalculations of the buffer size. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_PERIOD =
+            key("taskmanager.network.memory.buffer-debloat.period")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(200))
+                    .withDescription(
+                            "The period between two recalculations of the buffer size. A shorter "
+                                    + "period reacts faster to changes of the throughput at the "
+                                    + "cost of more overhead.");
+
+    /** The number of throughput measurements over which the buffer size is averaged. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_BUFFER_DEBLOAT_SAMPLES =
+            key("taskmanager.network.memory.buffer-debloat.samples")
+                    .intType()
+                    .defaultValue(20)
+                    .withDescription(
+                            "The number of recalculations over which the calculated buffer size is "
+                                    + "smoothed by an exponential moving average. More samples make"
+                                    + " the buffer size more stable, but slower to react to changes"
+                                    + " of the throughput.");
+
+    /** The minimal relative change of the buffer size which is announced to the producers. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES =
+            key("taskmanager.network.memory.buffer-debloat.threshold-percentages")
+                    .intType()
+                    .defaultValue(25)
+                    .withDescription(
+                            "The minimal difference in percent between the new and the last "
+                                    + "announced buffer size, for the new size to be announced to "
+                                    + "the producers. This avoids sending new sizes for small "
+                                    + "fluctuations of the throughput.");
+
+    /** The minimal buffer size which is announced to the producers. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<MemorySize> NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE =
+            key("taskmanager.network.memory.buffer-debloat.min-buffer-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("256b"))
+                    .withDescription(
+                            "The minimal size of the network buffers announced to the producers. "
+                                    + "The maximal size is the configured memory segment size.");
+
     // ------------------------------------------------------------------------
     //  Netty Options
     // ------------------------------------------------------------------------
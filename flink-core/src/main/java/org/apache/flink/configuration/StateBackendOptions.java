@@ -62,6 +62,40 @@ public class StateBackendOptions {
                                     .text("Recognized shortcut names are 'hashmap' and 'rocksdb'.")
                                     .build());
 
+    /**
+     * Whether the 'hashmap' state backend keeps value, reducing and aggregating state in serialized
+     * form in off-heap managed memory.
+     */
+    public static final ConfigOption<Boolean> HASHMAP_OFF_HEAP_ENABLED =
+            ConfigOptions.key("state.backend.hashmap.off-heap.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the 'hashmap' state backend keeps value, reducing and aggregating "
+                                    + "state in serialized form in off-heap managed memory instead of "
+                                    + "as objects on the JVM heap. This reduces the garbage collection "
+                                    + "pressure of jobs with many small states, at the cost of "
+                                    + "de/serializing the state on every access. List and map state "
+                                    + "are always kept on the JVM heap.");
+
+    /**
+     * The maximum number of delta files which an incremental checkpoint of the 'hashmap' state
+     * backend refers to in addition to its full base.
+     */
+    public static final ConfigOption<Integer> HASHMAP_INCREMENTAL_MAX_DELTA_FILES =
+            ConfigOptions.key("state.backend.hashmap.incremental.max-delta-files")
+                    .intType()
+                    .defaultValue(10)
+                    .withDescription(
+                            "The maximum number of delta files which an incremental checkpoint of "
+                                    + "the 'hashmap' state backend refers to in addition to its full "
+                                    + "base. An incremental checkpoint only writes the key groups "
+                                    + "whose state changed since the last completed checkpoint into "
+                                    + "a new delta file. If it would refer to more delta files, it "
+                                    + "writes all key groups into a new full base instead, so that "
+                                    + "outdated state in old files can be discarded. Incremental "
+                                    + "checkpoints are enabled via 'state.backend.incremental'.");
+
     @Documentation.Section(Documentation.Sections.STATE_BACKEND_LATENCY_TRACKING)
     public static final ConfigOption<Boolean> LATENCY_TRACK_ENABLED =
             ConfigOptions.key("state.backend.latency-track.keyed-state-enabled")
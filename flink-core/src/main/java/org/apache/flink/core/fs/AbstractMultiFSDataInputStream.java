@@ -92,6 +92,33 @@ public abstract class AbstractMultiFSDataInputStream extends FSDataInputStream {
 		return val;
 	}
 
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (null == delegate) {
+			return -1;
+		}
+
+		if (len == 0) {
+			return 0;
+		}
+
+		int numBytes = delegate.read(b, off, len);
+
+		if (-1 == numBytes) {
+			IOUtils.closeQuietly(delegate);
+			if (totalPos < totalAvailable) {
+				delegate = getSeekedStreamForOffset(totalPos);
+			} else {
+				delegate = null;
+			}
+			return read(b, off, len);
+		}
+
+		totalPos += numBytes;
+		return numBytes;
+	}
+
 	@Override
 	public void close() throws IOException {
 		IOUtils.closeQuietly(delegate);
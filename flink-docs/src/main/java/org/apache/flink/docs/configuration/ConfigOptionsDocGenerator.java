@@ -67,6 +67,8 @@ public class ConfigOptionsDocGenerator {
                 new OptionsClassLocation("flink-core", "org.apache.flink.configuration"),
                 new OptionsClassLocation("flink-runtime", "org.apache.flink.runtime.shuffle"),
                 new OptionsClassLocation("flink-runtime", "org.apache.flink.runtime.jobgraph"),
+                new OptionsClassLocation(
+                        "flink-runtime", "org.apache.flink.runtime.state.changelog.fs"),
                 new OptionsClassLocation(
                         "flink-streaming-java", "org.apache.flink.streaming.api.environment"),
                 new OptionsClassLocation("flink-yarn", "org.apache.flink.yarn.configuration"),
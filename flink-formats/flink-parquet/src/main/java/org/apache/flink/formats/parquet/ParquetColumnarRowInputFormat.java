@@ -20,6 +20,7 @@ package org.apache.flink.formats.parquet;
 
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.connector.file.src.FileSourceSplit;
+import org.apache.flink.connector.file.src.util.CheckpointedPosition;
 import org.apache.flink.connector.file.src.util.Pool;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.formats.parquet.utils.SerializableConfiguration;
@@ -29,6 +30,8 @@ import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.data.vector.ColumnVector;
 import org.apache.flink.table.data.vector.VectorizedColumnBatch;
 import org.apache.flink.table.data.vector.writable.WritableColumnVector;
+import org.apache.flink.table.filesystem.ColumnarBatchFilter;
+import org.apache.flink.table.filesystem.ColumnarBatchFilters;
 import org.apache.flink.table.filesystem.ColumnarRowIterator;
 import org.apache.flink.table.filesystem.PartitionFieldExtractor;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
@@ -36,6 +39,8 @@ import org.apache.flink.table.types.logical.RowType;
 
 import org.apache.hadoop.conf.Configuration;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,6 +49,9 @@ import static org.apache.flink.formats.parquet.vector.ParquetSplitReaderUtil.cre
 /**
  * A {@link ParquetVectorizedInputFormat} to provide {@link RowData} iterator. Using {@link
  * ColumnarRowData} to provide a row view of column batch.
+ *
+ * <p>An optional {@link ColumnarBatchFilter} is evaluated on the column vectors of every batch,
+ * only the rows which pass the filter are provided.
  */
 public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
         extends ParquetVectorizedInputFormat<RowData, SplitT> {
@@ -52,6 +60,8 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
 
     private final RowType producedType;
 
+    @Nullable private final ColumnarBatchFilter filter;
+
     /** Constructor to create parquet format without extra fields. */
     public ParquetColumnarRowInputFormat(
             Configuration hadoopConfig,
@@ -84,6 +94,35 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
             int batchSize,
             boolean isUtcTimestamp,
             boolean isCaseSensitive) {
+        this(
+                hadoopConfig,
+                projectedType,
+                producedType,
+                batchFactory,
+                batchSize,
+                isUtcTimestamp,
+                isCaseSensitive,
+                null);
+    }
+
+    /**
+     * Constructor to create parquet format with extra fields created by {@link ColumnBatchFactory}
+     * and a filter on the produced rows.
+     *
+     * @param projectedType the projected row type for parquet format, excludes extra fields.
+     * @param producedType the produced row type for this input format, includes extra fields.
+     * @param batchFactory factory for creating column batch, can cram in extra fields.
+     * @param filter the filter on the column vectors of the produced rows, or null.
+     */
+    public ParquetColumnarRowInputFormat(
+            Configuration hadoopConfig,
+            RowType projectedType,
+            RowType producedType,
+            ColumnBatchFactory<SplitT> batchFactory,
+            int batchSize,
+            boolean isUtcTimestamp,
+            boolean isCaseSensitive,
+            @Nullable ColumnarBatchFilter filter) {
         super(
                 new SerializableConfiguration(hadoopConfig),
                 projectedType,
@@ -92,6 +131,7 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
                 isUtcTimestamp,
                 isCaseSensitive);
         this.producedType = producedType;
+        this.filter = filter;
     }
 
     @Override
@@ -108,7 +148,7 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
             WritableColumnVector[] writableVectors,
             VectorizedColumnBatch columnarBatch,
             Pool.Recycler<ParquetReaderBatch<RowData>> recycler) {
-        return new ColumnarRowReaderBatch(writableVectors, columnarBatch, recycler);
+        return new ColumnarRowReaderBatch(writableVectors, columnarBatch, recycler, filter);
     }
 
     @Override
@@ -120,18 +160,39 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
 
         private final ColumnarRowIterator result;
 
+        @Nullable private final ColumnarBatchFilter filter;
+
+        /** The selection vector of the filter, null if there is no filter. */
+        @Nullable private int[] selected;
+
         private ColumnarRowReaderBatch(
                 WritableColumnVector[] writableVectors,
                 VectorizedColumnBatch columnarBatch,
-                Pool.Recycler<ParquetReaderBatch<RowData>> recycler) {
+                Pool.Recycler<ParquetReaderBatch<RowData>> recycler,
+                @Nullable ColumnarBatchFilter filter) {
             super(writableVectors, columnarBatch, recycler);
             this.result =
                     new ColumnarRowIterator(new ColumnarRowData(columnarBatch), this::recycle);
+            this.filter = filter;
         }
 
         @Override
         public RecordIterator<RowData> convertAndGetIterator(long rowsReturned) {
-            result.set(columnarBatch.getNumRows(), rowsReturned);
+            int numRows = columnarBatch.getNumRows();
+            if (filter == null) {
+                result.set(numRows, rowsReturned);
+            } else {
+                if (selected == null || selected.length < numRows) {
+                    selected = new int[numRows];
+                }
+                int numSelected =
+                        filter.filter(
+                                columnarBatch,
+                                selected,
+                                ColumnarBatchFilters.selectAll(selected, numRows));
+                result.setSelected(
+                        selected, numSelected, CheckpointedPosition.NO_OFFSET, rowsReturned);
+            }
             return result;
         }
     }
@@ -149,6 +210,31 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
                     int batchSize,
                     boolean isUtcTimestamp,
                     boolean isCaseSensitive) {
+        return createPartitionedFormat(
+                hadoopConfig,
+                producedRowType,
+                partitionKeys,
+                extractor,
+                batchSize,
+                isUtcTimestamp,
+                isCaseSensitive,
+                null);
+    }
+
+    /**
+     * Create a partitioned {@link ParquetColumnarRowInputFormat} which only provides the rows
+     * passing the given filter, the partition columns can be generated by {@link Path}.
+     */
+    public static <SplitT extends FileSourceSplit>
+            ParquetColumnarRowInputFormat<SplitT> createPartitionedFormat(
+                    Configuration hadoopConfig,
+                    RowType producedRowType,
+                    List<String> partitionKeys,
+                    PartitionFieldExtractor<SplitT> extractor,
+                    int batchSize,
+                    boolean isUtcTimestamp,
+                    boolean isCaseSensitive,
+                    @Nullable ColumnarBatchFilter filter) {
         RowType projectedRowType =
                 new RowType(
                         producedRowType.getFields().stream()
@@ -182,6 +268,7 @@ public class ParquetColumnarRowInputFormat<SplitT extends FileSourceSplit>
                 factory,
                 batchSize,
                 isUtcTimestamp,
-                isCaseSensitive);
+                isCaseSensitive,
+                filter);
     }
 }
@@ -31,9 +31,11 @@ import org.apache.flink.table.connector.sink.DynamicTableSink;
 import org.apache.flink.table.connector.source.DynamicTableSource;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.data.vector.VectorizedColumnBatch;
+import org.apache.flink.table.expressions.ResolvedExpression;
 import org.apache.flink.table.factories.BulkReaderFormatFactory;
 import org.apache.flink.table.factories.BulkWriterFormatFactory;
 import org.apache.flink.table.factories.DynamicTableFactory;
+import org.apache.flink.table.filesystem.ColumnarBatchFilters;
 import org.apache.flink.table.filesystem.FileSystemConnectorOptions;
 import org.apache.flink.table.filesystem.PartitionFieldExtractor;
 import org.apache.flink.table.types.DataType;
@@ -42,6 +44,7 @@ import org.apache.flink.table.types.logical.RowType;
 import org.apache.hadoop.conf.Configuration;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -65,6 +68,9 @@ public class ParquetFileFormatFactory implements BulkReaderFormatFactory, BulkWr
     public BulkDecodingFormat<RowData> createDecodingFormat(
             DynamicTableFactory.Context context, ReadableConfig formatOptions) {
         return new BulkDecodingFormat<RowData>() {
+
+            private List<ResolvedExpression> filters;
+
             @Override
             public BulkFormat<RowData, FileSourceSplit> createRuntimeDecoder(
                     DynamicTableSource.Context sourceContext, DataType producedDataType) {
@@ -82,13 +88,24 @@ public class ParquetFileFormatFactory implements BulkReaderFormatFactory, BulkWr
                         PartitionFieldExtractor.forFileSystem(defaultPartName),
                         VectorizedColumnBatch.DEFAULT_SIZE,
                         formatOptions.get(UTC_TIMEZONE),
-                        true);
+                        true,
+                        filters == null
+                                ? null
+                                : ColumnarBatchFilters.create(
+                                                filters,
+                                                (RowType) producedDataType.getLogicalType())
+                                        .orElse(null));
             }
 
             @Override
             public ChangelogMode getChangelogMode() {
                 return ChangelogMode.insertOnly();
             }
+
+            @Override
+            public void applyFilters(List<ResolvedExpression> filters) {
+                this.filters = filters;
+            }
         };
     }
 
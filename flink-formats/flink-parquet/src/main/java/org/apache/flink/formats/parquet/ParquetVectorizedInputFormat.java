@@ -332,18 +332,12 @@ public abstract class ParquetVectorizedInputFormat<T, SplitT extends FileSourceS
         public RecordIterator<T> readBatch() throws IOException {
             final ParquetReaderBatch<T> batch = getCachedEntry();
 
-            final long rowsReturnedBefore = rowsReturned;
             if (!nextBatch(batch)) {
                 batch.recycle();
                 return null;
             }
 
-            final RecordIterator<T> records = batch.convertAndGetIterator(rowsReturnedBefore);
-
-            // this may leave an exhausted iterator, which is a valid result for this method
-            // and is not interpreted as end-of-input or anything
-            skipRecord(records);
-            return records;
+            return batch.convertAndGetIterator(rowsReturned - batch.columnarBatch.getNumRows());
         }
 
         /** Advances to the next batch of rows. Returns false if there are no more. */
@@ -352,21 +346,39 @@ public abstract class ParquetVectorizedInputFormat<T, SplitT extends FileSourceS
                 v.reset();
             }
             batch.columnarBatch.setNumRows(0);
-            if (rowsReturned >= totalRowCount) {
-                return false;
-            }
-            if (rowsReturned == totalCountLoadedSoFar) {
-                readNextRowGroup();
+            while (true) {
+                if (rowsReturned >= totalRowCount) {
+                    return false;
+                }
+                if (rowsReturned == totalCountLoadedSoFar) {
+                    readNextRowGroup();
+                }
+
+                int num = (int) Math.min(batchSize, totalCountLoadedSoFar - rowsReturned);
+                if (recordsToSkip > 0) {
+                    // skip the rows before the restored position by reading them into the batch,
+                    // the batch may not return all of its rows, e.g. if they are filtered
+                    num = (int) Math.min(num, recordsToSkip);
+                    readToVectors(batch, num);
+                    for (WritableColumnVector v : batch.writableVectors) {
+                        v.reset();
+                    }
+                    recordsToSkip -= num;
+                    continue;
+                }
+
+                readToVectors(batch, num);
+                batch.columnarBatch.setNumRows(num);
+                return true;
             }
+        }
 
-            int num = (int) Math.min(batchSize, totalCountLoadedSoFar - rowsReturned);
+        private void readToVectors(ParquetReaderBatch<T> batch, int num) throws IOException {
             for (int i = 0; i < columnReaders.length; ++i) {
                 //noinspection unchecked
                 columnReaders[i].readToVector(num, batch.writableVectors[i]);
             }
             rowsReturned += num;
-            batch.columnarBatch.setNumRows(num);
-            return true;
         }
 
         private void readNextRowGroup() throws IOException {
@@ -421,12 +433,6 @@ public abstract class ParquetVectorizedInputFormat<T, SplitT extends FileSourceS
             }
         }
 
-        private void skipRecord(RecordIterator<T> records) {
-            while (recordsToSkip > 0 && records.next() != null) {
-                recordsToSkip--;
-            }
-        }
-
         @Override
         public void close() throws IOException {
             if (reader != null) {
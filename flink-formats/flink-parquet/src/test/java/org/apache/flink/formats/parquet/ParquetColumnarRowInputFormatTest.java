@@ -22,9 +22,17 @@ import org.apache.flink.connector.file.src.FileSourceSplit;
 import org.apache.flink.connector.file.src.reader.BulkFormat;
 import org.apache.flink.connector.file.src.util.CheckpointedPosition;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.formats.parquet.vector.ColumnBatchFactory;
+import org.apache.flink.table.api.DataTypes;
 import org.apache.flink.table.data.DecimalData;
 import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.filesystem.ColumnarBatchFilters;
 import org.apache.flink.table.filesystem.PartitionFieldExtractor;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
 import org.apache.flink.table.runtime.functions.SqlDateTimeUtils;
 import org.apache.flink.table.types.logical.BigIntType;
 import org.apache.flink.table.types.logical.BooleanType;
@@ -61,6 +69,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Random;
@@ -253,6 +262,71 @@ public class ParquetColumnarRowInputFormatTest {
                 });
     }
 
+    @Test
+    public void testFilter() throws IOException {
+        int number = 1000;
+        List<Row> records = new ArrayList<>(number);
+        for (int i = 0; i < number; i++) {
+            Integer v = i;
+            records.add(newRow(v));
+        }
+
+        Path testPath =
+                createTempParquetFile(
+                        TEMPORARY_FOLDER.newFolder(), PARQUET_SCHEMA, records, rowGroupSize);
+
+        // f4 < 100 OR f4 >= 700
+        FieldReferenceExpression f4 = new FieldReferenceExpression("f4", DataTypes.INT(), 0, 0);
+        ResolvedExpression filter =
+                new CallExpression(
+                        BuiltInFunctionDefinitions.OR,
+                        Arrays.asList(
+                                new CallExpression(
+                                        BuiltInFunctionDefinitions.LESS_THAN,
+                                        Arrays.asList(f4, new ValueLiteralExpression(100)),
+                                        DataTypes.BOOLEAN()),
+                                new CallExpression(
+                                        BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL,
+                                        Arrays.asList(f4, new ValueLiteralExpression(700)),
+                                        DataTypes.BOOLEAN())),
+                        DataTypes.BOOLEAN());
+        RowType rowType = RowType.of(new LogicalType[] {new IntType()}, new String[] {"f4"});
+        ParquetColumnarRowInputFormat<FileSourceSplit> format =
+                new ParquetColumnarRowInputFormat<>(
+                        new Configuration(),
+                        rowType,
+                        rowType,
+                        ColumnBatchFactory.withoutExtraFields(),
+                        500,
+                        false,
+                        true,
+                        ColumnarBatchFilters.create(Collections.singletonList(filter), rowType)
+                                .get());
+
+        // the restored positions count the rows which have been filtered
+        for (int seekToRow : new int[] {0, 50, 300, 800}) {
+            List<Integer> expected =
+                    IntStream.range(seekToRow, number)
+                            .filter(i -> i < 100 || i >= 700)
+                            .boxed()
+                            .collect(Collectors.toList());
+            List<Integer> actual = new ArrayList<>();
+            forEachRemaining(
+                    format.restoreReader(
+                            EMPTY_CONF,
+                            new FileSourceSplit(
+                                    "id",
+                                    testPath,
+                                    0,
+                                    Long.MAX_VALUE,
+                                    new String[0],
+                                    new CheckpointedPosition(
+                                            CheckpointedPosition.NO_OFFSET, seekToRow))),
+                    row -> actual.add(row.getInt(0)));
+            assertEquals(expected, actual);
+        }
+    }
+
     @Test
     public void testPartitionValues() throws IOException {
         // prepare parquet file
@@ -0,0 +1,122 @@
+################################################################################
+#  Licensed to the Apache Software Foundation (ASF) under one
+#  or more contributor license agreements.  See the NOTICE file
+#  distributed with this work for additional information
+#  regarding copyright ownership.  The ASF licenses this file
+#  to you under the Apache License, Version 2.0 (the
+#  "License"); you may not use this file except in compliance
+#  with the License.  You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+# limitations under the License.
+################################################################################
+"""
+Exchanges arrow batches with the Java operators through memory-mapped files, see
+org.apache.flink.streaming.api.runners.python.beam.ArrowSharedMemoryChannel for the layout of
+the files and of the descriptors which are sent instead of the batches.
+"""
+import mmap
+import struct
+import threading
+from typing import Optional
+
+MAGIC = 0x46534D31
+
+# magic, generation, offset, length, followed by the path of the file
+_INPUT_DESCRIPTOR_HEADER = struct.Struct('>iiqi')
+
+# magic, offset, length
+_OUTPUT_DESCRIPTOR = struct.Struct('>iqi')
+
+# the channel of the current thread, which processes one bundle at a time, and the channel of its
+# last input batch to write the output batches to
+_current = threading.local()
+
+
+class SharedMemoryChannel(object):
+    """
+    A memory-mapped file of a Java operator. The first half holds the input batches and the second
+    half the output batches.
+    """
+
+    def __init__(self, path: str):
+        self.path = path
+        with open(path, 'r+b') as f:
+            self._mmap = mmap.mmap(f.fileno(), 0)
+        self._size = len(self._mmap)
+        self._output_region_offset = self._size // 2
+        self._generation = None
+        self._output_position = self._output_region_offset
+
+    def read_input(self, generation: int, offset: int, length: int) -> bytes:
+        if generation != self._generation:
+            # the Java operator has read all output batches of the previous generation
+            self._generation = generation
+            self._output_position = self._output_region_offset
+        return self._mmap[offset:offset + length]
+
+    def write_output(self, data) -> Optional[bytes]:
+        length = len(data)
+        if length > self._size - self._output_position:
+            return None
+        offset = self._output_position
+        self._mmap[offset:offset + length] = data
+        self._output_position += length
+        return _OUTPUT_DESCRIPTOR.pack(MAGIC, offset, length)
+
+    def close(self):
+        self._mmap.close()
+
+
+def read_input(data: bytes) -> bytes:
+    """
+    Returns the input batch of the given data, which is either a descriptor of a batch in shared
+    memory or the batch itself.
+    """
+    if (len(data) <= _INPUT_DESCRIPTOR_HEADER.size
+            or _INPUT_DESCRIPTOR_HEADER.unpack_from(data)[0] != MAGIC):
+        _current.output_channel = None
+        return data
+    _, generation, offset, length = _INPUT_DESCRIPTOR_HEADER.unpack_from(data)
+    path = bytes(data[_INPUT_DESCRIPTOR_HEADER.size:]).decode('utf-8')
+    channel = getattr(_current, 'channel', None)
+    if channel is None or channel.path != path:
+        # closes the channel of a previous bundle which was not finished
+        close_channel()
+        channel = SharedMemoryChannel(path)
+        _current.channel = channel
+    _current.output_channel = channel
+    return channel.read_input(generation, offset, length)
+
+
+def write_output(data) -> Optional[bytes]:
+    """
+    Writes the output batch to the shared memory of the last input batch of the current thread and
+    returns its descriptor. Returns None if the input batch was not in shared memory or if the
+    output batch does not fit into it.
+    """
+    channel = getattr(_current, 'output_channel', None)
+    if channel is None:
+        return None
+    return channel.write_output(data)
+
+
+def has_output_channel() -> bool:
+    return getattr(_current, 'output_channel', None) is not None
+
+
+def close_channel():
+    """
+    Closes the channel of the current thread. Called when a bundle is finished, the channel is
+    opened again by the first input batch in shared memory of the next bundle.
+    """
+    channel = getattr(_current, 'channel', None)
+    _current.channel = None
+    _current.output_channel = None
+    if channel is not None:
+        channel.close()
@@ -25,6 +25,7 @@ from apache_beam.utils.windowed_value cimport WindowedValue
 from pyflink.fn_execution.coder_impl_fast cimport LengthPrefixBaseCoderImpl
 from pyflink.fn_execution.beam.beam_stream cimport BeamInputStream, BeamOutputStream
 from pyflink.fn_execution.beam.beam_coder_impl_fast cimport InputStreamWrapper, BeamCoderImpl
+from pyflink.fn_execution import arrow_shared_memory
 from pyflink.fn_execution.table.operations import BundleOperation
 
 cdef class FunctionOperation(Operation):
@@ -57,6 +58,7 @@ cdef class FunctionOperation(Operation):
         with self.scoped_finish_state:
             super(FunctionOperation, self).finish()
             self.operation.finish()
+            arrow_shared_memory.close_channel()
 
     cpdef teardown(self):
         with self.scoped_finish_state:
@@ -20,6 +20,7 @@ from abc import abstractmethod
 from apache_beam.runners.worker.operations import Operation
 from apache_beam.utils.windowed_value import WindowedValue
 
+from pyflink.fn_execution import arrow_shared_memory
 from pyflink.fn_execution.table.operations import BundleOperation
 
 
@@ -49,6 +50,7 @@ class FunctionOperation(Operation):
         with self.scoped_finish_state:
             super(FunctionOperation, self).finish()
             self.operation.finish()
+            arrow_shared_memory.close_channel()
 
     def needs_finalization(self):
         return False
@@ -25,6 +25,7 @@ import pyarrow as pa
 
 from pyflink.common import Row, RowKind
 from pyflink.datastream.window import TimeWindow, CountWindow
+from pyflink.fn_execution import arrow_shared_memory
 from pyflink.fn_execution.ResettableIO import ResettableIO
 from pyflink.fn_execution.flink_fn_execution_pb2 import CoderParam
 from pyflink.fn_execution.stream_slow import InputStream, OutputStream
@@ -276,10 +277,17 @@ class ArrowCoderImpl(FieldCoderImpl):
         self._batch_reader = ArrowCoderImpl._load_from_stream(self._resettable_io)
 
     def encode_to_stream(self, cols, out_stream):
-        self._resettable_io.set_output_stream(out_stream)
-        batch_writer = pa.RecordBatchStreamWriter(self._resettable_io, self._schema)
-        batch_writer.write_batch(
-            pandas_to_arrow(self._schema, self._timezone, self._field_types, cols))
+        batch = pandas_to_arrow(self._schema, self._timezone, self._field_types, cols)
+        if arrow_shared_memory.has_output_channel():
+            sink = pa.BufferOutputStream()
+            pa.RecordBatchStreamWriter(sink, self._schema).write_batch(batch)
+            buffer = sink.getvalue()
+            descriptor = arrow_shared_memory.write_output(buffer)
+            out_stream.write(descriptor if descriptor is not None else buffer.to_pybytes())
+        else:
+            self._resettable_io.set_output_stream(out_stream)
+            batch_writer = pa.RecordBatchStreamWriter(self._resettable_io, self._schema)
+            batch_writer.write_batch(batch)
 
     def decode_from_stream(self, in_stream, length=0):
         return self.decode_one_batch_from_stream(in_stream, length)
@@ -291,7 +299,7 @@ class ArrowCoderImpl(FieldCoderImpl):
             yield reader.read_next_batch()
 
     def decode_one_batch_from_stream(self, in_stream: InputStream, size: int) -> List:
-        self._resettable_io.set_input_bytes(in_stream.read(size))
+        self._resettable_io.set_input_bytes(arrow_shared_memory.read_input(in_stream.read(size)))
         # there is only one arrow batch in the underlying input stream
         return arrow_to_pandas(self._timezone, self._field_types, [next(self._batch_reader)])
 
@@ -0,0 +1,124 @@
+################################################################################
+#  Licensed to the Apache Software Foundation (ASF) under one
+#  or more contributor license agreements.  See the NOTICE file
+#  distributed with this work for additional information
+#  regarding copyright ownership.  The ASF licenses this file
+#  to you under the Apache License, Version 2.0 (the
+#  "License"); you may not use this file except in compliance
+#  with the License.  You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+# limitations under the License.
+################################################################################
+import logging
+import os
+import struct
+import tempfile
+import unittest
+
+from pyflink.fn_execution import arrow_shared_memory
+from pyflink.testing.test_case_utils import PyFlinkTestCase
+
+
+class ArrowSharedMemoryTests(PyFlinkTestCase):
+
+    SIZE = 1024
+
+    def setUp(self):
+        fd, self.path = tempfile.mkstemp()
+        with os.fdopen(fd, 'wb') as f:
+            f.write(b'\x00' * self.SIZE)
+
+    def tearDown(self):
+        arrow_shared_memory.close_channel()
+        os.remove(self.path)
+
+    def input_descriptor(self, generation, offset, data):
+        with open(self.path, 'r+b') as f:
+            f.seek(offset)
+            f.write(data)
+        return struct.pack('>iiqi', arrow_shared_memory.MAGIC, generation, offset, len(data)) \
+            + self.path.encode('utf-8')
+
+    def test_inline_batches(self):
+        self.assertEqual(b'batch', arrow_shared_memory.read_input(b'batch'))
+        self.assertFalse(arrow_shared_memory.has_output_channel())
+        self.assertIsNone(arrow_shared_memory.write_output(b'result'))
+
+    def test_read_input_and_write_output(self):
+        descriptor = self.input_descriptor(0, 10, b'input')
+        self.assertEqual(b'input', arrow_shared_memory.read_input(descriptor))
+        self.assertTrue(arrow_shared_memory.has_output_channel())
+
+        self.assert_output(self.SIZE // 2, b'first')
+        self.assert_output(self.SIZE // 2 + 5, b'second')
+        # the output batch does not fit into the output region
+        self.assertIsNone(arrow_shared_memory.write_output(b'\x01' * (self.SIZE // 2)))
+
+        # the output region is reused in the next generation
+        arrow_shared_memory.read_input(self.input_descriptor(1, 0, b'input'))
+        self.assert_output(self.SIZE // 2, b'third')
+
+        # batches which are sent inline are not followed by output batches in shared memory
+        arrow_shared_memory.read_input(b'batch')
+        self.assertIsNone(arrow_shared_memory.write_output(b'result'))
+
+    def test_close_channel(self):
+        arrow_shared_memory.read_input(self.input_descriptor(0, 0, b'input'))
+        channel = arrow_shared_memory._current.channel
+
+        arrow_shared_memory.close_channel()
+        self.assertTrue(channel._mmap.closed)
+        self.assertFalse(arrow_shared_memory.has_output_channel())
+        self.assertIsNone(arrow_shared_memory.write_output(b'result'))
+
+        # the next bundle opens the channel again
+        self.assertEqual(b'input', arrow_shared_memory.read_input(
+            self.input_descriptor(1, 0, b'input')))
+        self.assert_output(self.SIZE // 2, b'first')
+
+    def test_channel_is_kept_for_inline_batches(self):
+        arrow_shared_memory.read_input(self.input_descriptor(0, 0, b'input'))
+        channel = arrow_shared_memory._current.channel
+
+        arrow_shared_memory.read_input(b'batch')
+        self.assertFalse(arrow_shared_memory.has_output_channel())
+        self.assertFalse(channel._mmap.closed)
+
+        arrow_shared_memory.close_channel()
+        self.assertTrue(channel._mmap.closed)
+
+    def test_channel_of_another_file_closes_previous_channel(self):
+        arrow_shared_memory.read_input(self.input_descriptor(0, 0, b'input'))
+        channel = arrow_shared_memory._current.channel
+
+        fd, other_path = tempfile.mkstemp()
+        try:
+            with os.fdopen(fd, 'wb') as f:
+                f.write(b'\x00' * self.SIZE)
+            descriptor = struct.pack('>iiqi', arrow_shared_memory.MAGIC, 0, 0, 0) \
+                + other_path.encode('utf-8')
+            arrow_shared_memory.read_input(descriptor)
+            self.assertTrue(channel._mmap.closed)
+            self.assertEqual(other_path, arrow_shared_memory._current.channel.path)
+        finally:
+            arrow_shared_memory.close_channel()
+            os.remove(other_path)
+
+    def assert_output(self, offset, data):
+        descriptor = arrow_shared_memory.write_output(data)
+        self.assertEqual(
+            (arrow_shared_memory.MAGIC, offset, len(data)), struct.unpack('>iqi', descriptor))
+        with open(self.path, 'rb') as f:
+            f.seek(offset)
+            self.assertEqual(data, f.read(len(data)))
+
+
+if __name__ == '__main__':
+    logging.getLogger().setLevel(logging.INFO)
+    unittest.main()
@@ -44,6 +44,9 @@ public class PythonConfig implements Serializable {
     /** Max number of elements to include in an arrow batch. */
     private final int maxArrowBatchSize;
 
+    /** Size of the memory-mapped file to exchange arrow batches, 0 if disabled. */
+    private final long arrowSharedMemorySize;
+
     /**
      * The python files uploaded by pyflink.table.TableEnvironment#add_python_file() or command line
      * option "-pyfs". The key is the file key in distribute cache and the value is the
@@ -91,6 +94,7 @@ public class PythonConfig implements Serializable {
         maxBundleSize = config.get(PythonOptions.MAX_BUNDLE_SIZE);
         maxBundleTimeMills = config.get(PythonOptions.MAX_BUNDLE_TIME_MILLS);
         maxArrowBatchSize = config.get(PythonOptions.MAX_ARROW_BATCH_SIZE);
+        arrowSharedMemorySize = config.get(PythonOptions.ARROW_SHARED_MEMORY_SIZE).getBytes();
         pythonFilesInfo =
                 config.getOptional(PythonDependencyUtils.PYTHON_FILES).orElse(new HashMap<>());
         pythonRequirementsFileInfo =
@@ -120,6 +124,10 @@ public class PythonConfig implements Serializable {
         return maxArrowBatchSize;
     }
 
+    public long getArrowSharedMemorySize() {
+        return arrowSharedMemorySize;
+    }
+
     public Map<String, String> getPythonFilesInfo() {
         return pythonFilesInfo;
     }
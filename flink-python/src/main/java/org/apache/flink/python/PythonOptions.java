@@ -22,6 +22,7 @@ import org.apache.flink.annotation.Experimental;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.configuration.ConfigOption;
 import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.configuration.description.Description;
 
@@ -57,6 +58,19 @@ public class PythonOptions {
                                     + "user-defined function execution. The arrow batch size should not exceed the "
                                     + "bundle size. Otherwise, the bundle size will be used as the arrow batch size.");
 
+    /** The size of the memory-mapped file to exchange arrow batches with the Python worker. */
+    @Experimental
+    public static final ConfigOption<MemorySize> ARROW_SHARED_MEMORY_SIZE =
+            ConfigOptions.key("python.fn-execution.arrow.shared-memory.size")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "The size of the memory-mapped file which is used by each Python operator "
+                                    + "to exchange arrow batches with the Python worker, e.g. for Pandas user-defined "
+                                    + "functions. Half of the file holds the input batches and half of it the output batches "
+                                    + "of a bundle, batches which do not fit are sent through the data channel. The file "
+                                    + "is created in /dev/shm if it exists. The value 0 disables the shared memory.");
+
     /** The configuration to enable or disable metric for Python execution. */
     public static final ConfigOption<Boolean> PYTHON_METRIC_ENABLED =
             ConfigOptions.key("python.metric.enabled")
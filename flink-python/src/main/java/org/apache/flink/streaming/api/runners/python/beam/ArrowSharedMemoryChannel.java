@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.runners.python.beam;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Exchanges the arrow batches of a {@link BeamPythonFunctionRunner} with the Python worker through
+ * a memory-mapped file instead of the Beam data channel.
+ *
+ * <p>The first half of the file holds the input batches and the second half the output batches.
+ * Only small descriptors of the batches are sent through the Beam data channel, so the order of the
+ * elements, the flow control and the bundle semantics are the same as without shared memory. A
+ * batch which does not fit into the remaining part of its region is sent through the Beam data
+ * channel as before.
+ *
+ * <p>The regions are reused after each finished bundle, when the Python worker has read all input
+ * batches and the runner has read all output batches. The input descriptors carry the generation of
+ * the regions, so that the Python worker knows when it can overwrite the output region again.
+ *
+ * <p>The layout of an input descriptor is: magic (int), generation (int), offset (long), length
+ * (int), path of the file (UTF-8). The layout of an output descriptor is: magic (int), offset
+ * (long), length (int). Arrow streams start with a continuation marker or a metadata length, so
+ * they are never mistaken for a descriptor.
+ */
+@Internal
+final class ArrowSharedMemoryChannel implements AutoCloseable {
+
+    /** The magic number of the descriptors, "FSM1" in ASCII. */
+    static final int MAGIC = 0x46534D31;
+
+    static final int OUTPUT_DESCRIPTOR_SIZE = 16;
+
+    /** The directory of memory backed files on Linux. */
+    private static final File SHARED_MEMORY_DIRECTORY = new File("/dev/shm");
+
+    private final File file;
+
+    private final byte[] pathBytes;
+
+    private final MappedByteBuffer buffer;
+
+    private final int outputRegionOffset;
+
+    /** The position in the input region to write the next batch to. */
+    private int inputPosition;
+
+    /** The generation of the regions, incremented whenever the regions are reused. */
+    private int generation;
+
+    private ArrowSharedMemoryChannel(File file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.pathBytes = file.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+        this.buffer = buffer;
+        this.outputRegionOffset = buffer.capacity() / 2;
+        this.inputPosition = 0;
+        this.generation = 0;
+    }
+
+    /**
+     * Creates a channel backed by a new file of the given size in the shared memory directory, or
+     * in the given directory if there is no shared memory directory.
+     */
+    static ArrowSharedMemoryChannel create(int size, File fallbackDirectory) throws IOException {
+        Preconditions.checkArgument(size > 0, "The size of the shared memory must be positive.");
+        File directory =
+                SHARED_MEMORY_DIRECTORY.isDirectory() && SHARED_MEMORY_DIRECTORY.canWrite()
+                        ? SHARED_MEMORY_DIRECTORY
+                        : fallbackDirectory;
+        File file =
+                Files.createTempFile(directory.toPath(), "flink-python-arrow-", ".shm").toFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new ArrowSharedMemoryChannel(file, buffer);
+        } catch (Throwable t) {
+            Files.deleteIfExists(file.toPath());
+            throw t;
+        }
+    }
+
+    /**
+     * Writes the input batch into the input region and returns its descriptor, or returns the batch
+     * itself if it does not fit into the input region.
+     */
+    byte[] writeInput(byte[] batch) {
+        if (batch.length > outputRegionOffset - inputPosition) {
+            return batch;
+        }
+        ByteBuffer region = buffer.duplicate();
+        region.position(inputPosition);
+        region.put(batch);
+
+        ByteBuffer descriptor = ByteBuffer.allocate(20 + pathBytes.length);
+        descriptor.putInt(MAGIC);
+        descriptor.putInt(generation);
+        descriptor.putLong(inputPosition);
+        descriptor.putInt(batch.length);
+        descriptor.put(pathBytes);
+
+        inputPosition += batch.length;
+        return descriptor.array();
+    }
+
+    /**
+     * Returns the output batch of the given element, which is either a descriptor of a batch in the
+     * output region or the batch itself. May be called concurrently to {@link #writeInput}.
+     */
+    byte[] readOutput(byte[] element) {
+        if (element.length != OUTPUT_DESCRIPTOR_SIZE
+                || ByteBuffer.wrap(element).getInt() != MAGIC) {
+            return element;
+        }
+        ByteBuffer descriptor = ByteBuffer.wrap(element, 4, OUTPUT_DESCRIPTOR_SIZE - 4);
+        long offset = descriptor.getLong();
+        int length = descriptor.getInt();
+        Preconditions.checkState(
+                offset >= outputRegionOffset && offset + length <= buffer.capacity(),
+                "Invalid output batch at offset %s with length %s.",
+                offset,
+                length);
+
+        byte[] batch = new byte[length];
+        ByteBuffer region = buffer.duplicate();
+        region.position((int) offset);
+        region.get(batch);
+        return batch;
+    }
+
+    /**
+     * Makes the regions reusable. Must only be called when the Python worker has read all input
+     * batches and all output batches have been read.
+     */
+    void reset() {
+        inputPosition = 0;
+        generation++;
+    }
+
+    @VisibleForTesting
+    File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+}
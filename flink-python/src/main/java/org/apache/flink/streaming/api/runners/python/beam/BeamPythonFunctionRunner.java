@@ -33,6 +33,7 @@ import org.apache.flink.python.metric.FlinkMetricContainer;
 import org.apache.flink.runtime.memory.MemoryManager;
 import org.apache.flink.runtime.memory.OpaqueMemoryResource;
 import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.util.MathUtils;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.function.LongFunctionWithException;
 
@@ -72,6 +73,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
@@ -171,6 +173,9 @@ public abstract class BeamPythonFunctionRunner implements PythonFunctionRunner {
     /** The shared resource among Python operators of the same slot. */
     private transient OpaqueMemoryResource<PythonSharedResources> sharedResources;
 
+    /** Exchanges the arrow batches through shared memory, null if disabled. */
+    @Nullable private transient ArrowSharedMemoryChannel sharedMemoryChannel;
+
     public BeamPythonFunctionRunner(
             String taskName,
             PythonEnvironmentManager environmentManager,
@@ -211,6 +216,17 @@ public abstract class BeamPythonFunctionRunner implements PythonFunctionRunner {
         // The creation of stageBundleFactory depends on the initialized environment manager.
         environmentManager.open();
 
+        if (config.getArrowSharedMemorySize() > 0
+                && inputDataType == FlinkFnApi.CoderParam.DataType.ARROW) {
+            sharedMemoryChannel =
+                    ArrowSharedMemoryChannel.create(
+                            MathUtils.checkedDownCast(config.getArrowSharedMemorySize()),
+                            new File(System.getProperty("java.io.tmpdir")));
+            LOG.info(
+                    "Exchanging arrow batches with the Python worker through {}.",
+                    sharedMemoryChannel.getFile());
+        }
+
         PortablePipelineOptions portableOptions =
                 PipelineOptionsFactory.as(PortablePipelineOptions.class);
 
@@ -284,11 +300,19 @@ public abstract class BeamPythonFunctionRunner implements PythonFunctionRunner {
         } finally {
             sharedResources = null;
         }
+
+        if (sharedMemoryChannel != null) {
+            sharedMemoryChannel.close();
+            sharedMemoryChannel = null;
+        }
     }
 
     @Override
     public void process(byte[] data) throws Exception {
         checkInvokeStartBundle();
+        if (sharedMemoryChannel != null) {
+            data = sharedMemoryChannel.writeInput(data);
+        }
         mainInputReceiver.accept(WindowedValue.valueInGlobalWindow(data));
     }
 
@@ -332,6 +356,10 @@ public abstract class BeamPythonFunctionRunner implements PythonFunctionRunner {
         if (bundleStarted) {
             try {
                 finishBundle();
+                if (sharedMemoryChannel != null) {
+                    // all input and output batches of the bundle have been read
+                    sharedMemoryChannel.reset();
+                }
             } finally {
                 bundleStarted = false;
             }
@@ -500,7 +528,13 @@ public abstract class BeamPythonFunctionRunner implements PythonFunctionRunner {
             @SuppressWarnings("unchecked")
             @Override
             public FnDataReceiver<WindowedValue<byte[]>> create(String pCollectionId) {
-                return input -> resultBuffer.add(input.getValue());
+                return input -> {
+                    byte[] value = input.getValue();
+                    if (sharedMemoryChannel != null) {
+                        value = sharedMemoryChannel.readOutput(value);
+                    }
+                    resultBuffer.add(value);
+                };
             }
         };
     }
@@ -19,6 +19,7 @@
 package org.apache.flink.python;
 
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.python.util.PythonDependencyUtils;
 
 import org.junit.Test;
@@ -45,6 +46,7 @@ public class PythonConfigTest {
         assertThat(
                 pythonConfig.getMaxArrowBatchSize(),
                 is(equalTo(PythonOptions.MAX_ARROW_BATCH_SIZE.defaultValue())));
+        assertThat(pythonConfig.getArrowSharedMemorySize(), is(equalTo(0L)));
         assertThat(pythonConfig.getPythonFilesInfo().isEmpty(), is(true));
         assertThat(pythonConfig.getPythonRequirementsFileInfo().isPresent(), is(false));
         assertThat(pythonConfig.getPythonRequirementsCacheDirInfo().isPresent(), is(false));
@@ -79,6 +81,14 @@ public class PythonConfigTest {
         assertThat(pythonConfig.getMaxArrowBatchSize(), is(equalTo(10)));
     }
 
+    @Test
+    public void testArrowSharedMemorySize() {
+        Configuration config = new Configuration();
+        config.set(PythonOptions.ARROW_SHARED_MEMORY_SIZE, MemorySize.ofMebiBytes(1));
+        PythonConfig pythonConfig = new PythonConfig(config);
+        assertThat(pythonConfig.getArrowSharedMemorySize(), is(equalTo(1024 * 1024L)));
+    }
+
     @Test
     public void testPythonFilesInfo() {
         Configuration config = new Configuration();
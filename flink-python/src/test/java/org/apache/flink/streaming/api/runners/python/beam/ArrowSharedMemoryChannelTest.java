@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.runners.python.beam;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/** Tests for {@link ArrowSharedMemoryChannel}. */
+public class ArrowSharedMemoryChannelTest {
+
+    private static final int SIZE = 1024;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteInput() throws Exception {
+        try (ArrowSharedMemoryChannel channel =
+                ArrowSharedMemoryChannel.create(SIZE, temporaryFolder.getRoot())) {
+            byte[] first = batch(100, (byte) 1);
+            byte[] second = batch(200, (byte) 2);
+
+            assertInputDescriptor(channel, channel.writeInput(first), 0, 0, first);
+            assertInputDescriptor(channel, channel.writeInput(second), 0, 100, second);
+            // the batch does not fit into the input region
+            byte[] third = batch(SIZE / 2 - 299, (byte) 3);
+            assertSame(third, channel.writeInput(third));
+
+            // the input region is reused after the bundle
+            channel.reset();
+            assertInputDescriptor(channel, channel.writeInput(third), 1, 0, third);
+        }
+    }
+
+    @Test
+    public void testReadOutput() throws Exception {
+        try (ArrowSharedMemoryChannel channel =
+                ArrowSharedMemoryChannel.create(SIZE, temporaryFolder.getRoot())) {
+            // written by the Python worker
+            byte[] output = batch(50, (byte) 4);
+            try (RandomAccessFile file = new RandomAccessFile(channel.getFile(), "rw")) {
+                file.seek(SIZE / 2 + 10);
+                file.write(output);
+            }
+
+            ByteBuffer descriptor =
+                    ByteBuffer.allocate(ArrowSharedMemoryChannel.OUTPUT_DESCRIPTOR_SIZE);
+            descriptor.putInt(ArrowSharedMemoryChannel.MAGIC);
+            descriptor.putLong(SIZE / 2 + 10);
+            descriptor.putInt(output.length);
+            assertArrayEquals(output, channel.readOutput(descriptor.array()));
+
+            // batches which are sent through the data channel are returned as they are
+            byte[] inline = batch(ArrowSharedMemoryChannel.OUTPUT_DESCRIPTOR_SIZE, (byte) 5);
+            assertSame(inline, channel.readOutput(inline));
+        }
+    }
+
+    @Test
+    public void testFileIsDeletedOnClose() throws Exception {
+        ArrowSharedMemoryChannel channel =
+                ArrowSharedMemoryChannel.create(SIZE, temporaryFolder.getRoot());
+        channel.close();
+        assertFalse(channel.getFile().exists());
+    }
+
+    private static void assertInputDescriptor(
+            ArrowSharedMemoryChannel channel,
+            byte[] descriptor,
+            int generation,
+            long offset,
+            byte[] batch)
+            throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(descriptor);
+        assertEquals(ArrowSharedMemoryChannel.MAGIC, buffer.getInt());
+        assertEquals(generation, buffer.getInt());
+        assertEquals(offset, buffer.getLong());
+        assertEquals(batch.length, buffer.getInt());
+        byte[] path = new byte[buffer.remaining()];
+        buffer.get(path);
+        assertEquals(channel.getFile().getAbsolutePath(), new String(path, StandardCharsets.UTF_8));
+
+        byte[] written = new byte[batch.length];
+        try (RandomAccessFile file = new RandomAccessFile(channel.getFile(), "r")) {
+            file.seek(offset);
+            file.readFully(written);
+        }
+        assertArrayEquals(batch, written);
+    }
+
+    private static byte[] batch(int length, byte value) {
+        byte[] batch = new byte[length];
+        for (int i = 0; i < length; i++) {
+            batch[i] = value;
+        }
+        return batch;
+    }
+}
@@ -175,6 +175,9 @@ public class CheckpointCoordinator {
 
     private final long alignedCheckpointTimeout;
 
+    /** Whether the metadata of completed checkpoints is written in the sharded format. */
+    private final boolean shardedMetadata;
+
     /** Actor that receives status updates from the execution graph this coordinator works for. */
     private JobStatusListener jobStatusListener;
 
@@ -315,6 +318,7 @@ public class CheckpointCoordinator {
         this.isExactlyOnceMode = chkConfig.isExactlyOnce();
         this.unalignedCheckpointsEnabled = chkConfig.isUnalignedCheckpointsEnabled();
         this.alignedCheckpointTimeout = chkConfig.getAlignedCheckpointTimeout();
+        this.shardedMetadata = chkConfig.isShardedMetadataEnabled();
         this.checkpointIdOfIgnoredInFlightData = chkConfig.getCheckpointIdOfIgnoredInFlightData();
 
         this.recentPendingCheckpoints = new ArrayDeque<>(NUM_GHOST_CHECKPOINT_IDS);
@@ -1190,6 +1194,7 @@ public class CheckpointCoordinator {
                                 checkpointsCleaner,
                                 this::scheduleTriggerRequest,
                                 executor,
+                                shardedMetadata,
                                 getStatsCallback(pendingCheckpoint));
 
                 failureManager.handleCheckpointSuccess(pendingCheckpoint.getCheckpointId());
@@ -1750,7 +1755,12 @@ public class CheckpointCoordinator {
         // Load the savepoint as a checkpoint into the system
         CompletedCheckpoint savepoint =
                 Checkpoints.loadAndValidateCheckpoint(
-                        job, tasks, checkpointLocation, userClassLoader, allowNonRestored);
+                        job,
+                        tasks,
+                        checkpointLocation,
+                        userClassLoader,
+                        allowNonRestored,
+                        executor);
 
         completedCheckpointStore.addCheckpoint(
                 savepoint, checkpointsCleaner, this::scheduleTriggerRequest);
@@ -25,6 +25,7 @@ import org.apache.flink.runtime.checkpoint.metadata.CheckpointMetadata;
 import org.apache.flink.runtime.checkpoint.metadata.MetadataSerializer;
 import org.apache.flink.runtime.checkpoint.metadata.MetadataSerializers;
 import org.apache.flink.runtime.checkpoint.metadata.MetadataV3Serializer;
+import org.apache.flink.runtime.checkpoint.metadata.MetadataV4Serializer;
 import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
@@ -38,6 +39,7 @@ import org.apache.flink.runtime.state.hashmap.HashMapStateBackend;
 import org.apache.flink.runtime.state.storage.JobManagerCheckpointStorage;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.FlinkException;
+import org.apache.flink.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +54,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -85,6 +88,12 @@ public class Checkpoints {
     public static void storeCheckpointMetadata(
             CheckpointMetadata checkpointMetadata, DataOutputStream out) throws IOException {
 
+        if (!MetadataV3Serializer.canSerialize(checkpointMetadata)) {
+            // chunked state handles are only part of format version 4
+            storeCheckpointMetadata(checkpointMetadata, out, Executors.directExecutor());
+            return;
+        }
+
         // write generic header
         out.writeInt(HEADER_MAGIC_NUMBER);
 
@@ -92,6 +101,30 @@ public class Checkpoints {
         MetadataV3Serializer.serialize(checkpointMetadata, out);
     }
 
+    /**
+     * Writes the checkpoint metadata in the sharded format version 4, using the given executor to
+     * serialize the states of the subtasks in parallel. Flink versions before 1.14 cannot read this
+     * format.
+     */
+    public static void storeCheckpointMetadata(
+            CheckpointMetadata checkpointMetadata, OutputStream out, Executor executor)
+            throws IOException {
+
+        DataOutputStream dos = new DataOutputStream(out);
+        storeCheckpointMetadata(checkpointMetadata, dos, executor);
+    }
+
+    public static void storeCheckpointMetadata(
+            CheckpointMetadata checkpointMetadata, DataOutputStream out, Executor executor)
+            throws IOException {
+
+        // write generic header
+        out.writeInt(HEADER_MAGIC_NUMBER);
+
+        out.writeInt(MetadataV4Serializer.VERSION);
+        MetadataV4Serializer.serialize(checkpointMetadata, out, executor);
+    }
+
     // ------------------------------------------------------------------------
     //  Reading and validating checkpoint metadata
     // ------------------------------------------------------------------------
@@ -99,15 +132,26 @@ public class Checkpoints {
     public static CheckpointMetadata loadCheckpointMetadata(
             DataInputStream in, ClassLoader classLoader, String externalPointer)
             throws IOException {
+        return loadCheckpointMetadata(in, classLoader, externalPointer, Executors.directExecutor());
+    }
+
+    /**
+     * Reads the checkpoint metadata, using the given executor to deserialize the states of the
+     * subtasks in parallel if the format version supports it.
+     */
+    public static CheckpointMetadata loadCheckpointMetadata(
+            DataInputStream in, ClassLoader classLoader, String externalPointer, Executor executor)
+            throws IOException {
         checkNotNull(in, "input stream");
         checkNotNull(classLoader, "classLoader");
+        checkNotNull(executor, "executor");
 
         final int magicNumber = in.readInt();
 
         if (magicNumber == HEADER_MAGIC_NUMBER) {
             final int version = in.readInt();
             final MetadataSerializer serializer = MetadataSerializers.getSerializer(version);
-            return serializer.deserialize(in, classLoader, externalPointer);
+            return serializer.deserialize(in, classLoader, externalPointer, executor);
         } else {
             throw new IOException(
                     "Unexpected magic number. This can have multiple reasons: "
@@ -124,6 +168,23 @@ public class Checkpoints {
             ClassLoader classLoader,
             boolean allowNonRestoredState)
             throws IOException {
+        return loadAndValidateCheckpoint(
+                jobId,
+                tasks,
+                location,
+                classLoader,
+                allowNonRestoredState,
+                Executors.directExecutor());
+    }
+
+    public static CompletedCheckpoint loadAndValidateCheckpoint(
+            JobID jobId,
+            Map<JobVertexID, ExecutionJobVertex> tasks,
+            CompletedCheckpointStorageLocation location,
+            ClassLoader classLoader,
+            boolean allowNonRestoredState,
+            Executor executor)
+            throws IOException {
 
         checkNotNull(jobId, "jobId");
         checkNotNull(tasks, "tasks");
@@ -137,7 +198,8 @@ public class Checkpoints {
         final CheckpointMetadata checkpointMetadata;
         try (InputStream in = metadataHandle.openInputStream()) {
             DataInputStream dis = new DataInputStream(in);
-            checkpointMetadata = loadCheckpointMetadata(dis, classLoader, checkpointPointer);
+            checkpointMetadata =
+                    loadCheckpointMetadata(dis, classLoader, checkpointPointer, executor);
         }
 
         // generate mapping from operator to task
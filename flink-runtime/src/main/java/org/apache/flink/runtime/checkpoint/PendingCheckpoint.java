@@ -302,6 +302,7 @@ public class PendingCheckpoint implements Checkpoint {
             CheckpointsCleaner checkpointsCleaner,
             Runnable postCleanup,
             Executor executor,
+            boolean shardedMetadata,
             @Nullable PendingCheckpointStats statsCallback)
             throws IOException {
 
@@ -322,7 +323,11 @@ public class PendingCheckpoint implements Checkpoint {
 
                 try (CheckpointMetadataOutputStream out =
                         targetLocation.createMetadataOutputStream()) {
-                    Checkpoints.storeCheckpointMetadata(savepoint, out);
+                    if (shardedMetadata) {
+                        Checkpoints.storeCheckpointMetadata(savepoint, out, executor);
+                    } else {
+                        Checkpoints.storeCheckpointMetadata(savepoint, out);
+                    }
                     finalizedLocation = out.closeAndFinalizeCheckpoint();
                 }
 
@@ -22,6 +22,7 @@ import org.apache.flink.core.io.Versioned;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /**
  * Deserializer for checkpoint metadata. Different deserializers exist to deserialize from different
@@ -43,4 +44,24 @@ public interface MetadataSerializer extends Versioned {
     CheckpointMetadata deserialize(
             DataInputStream dis, ClassLoader userCodeClassLoader, String externalPointer)
             throws IOException;
+
+    /**
+     * Deserializes a savepoint from an input stream, using the given executor for formats which can
+     * be deserialized in parallel.
+     *
+     * @param dis Input stream to deserialize savepoint from
+     * @param userCodeClassLoader the user code class loader
+     * @param externalPointer the external pointer of the given checkpoint
+     * @param executor the executor to deserialize parts of the savepoint in parallel
+     * @return The deserialized savepoint
+     * @throws IOException Serialization failures are forwarded
+     */
+    default CheckpointMetadata deserialize(
+            DataInputStream dis,
+            ClassLoader userCodeClassLoader,
+            String externalPointer,
+            Executor executor)
+            throws IOException {
+        return deserialize(dis, userCodeClassLoader, externalPointer);
+    }
 }
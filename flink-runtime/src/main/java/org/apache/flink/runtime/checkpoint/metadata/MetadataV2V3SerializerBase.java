@@ -32,6 +32,7 @@ import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsSavepointStateHandle;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.MultiStreamStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.OperatorStreamStateHandle;
 import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
@@ -104,6 +105,8 @@ public abstract class MetadataV2V3SerializerBase {
     private static final byte CHANGELOG_HANDLE = 8;
     private static final byte CHANGELOG_BYTE_INCREMENT_HANDLE = 9;
     private static final byte CHANGELOG_FILE_INCREMENT_HANDLE = 10;
+    /** Only written by format version 4, see {@link MetadataV4Serializer}. */
+    private static final byte MULTI_STREAM_STATE_HANDLE = 11;
 
     // ------------------------------------------------------------------------
     //  (De)serialization entry points
@@ -115,11 +118,7 @@ public abstract class MetadataV2V3SerializerBase {
         dos.writeLong(checkpointMetadata.getCheckpointId());
 
         // second: master state
-        final Collection<MasterState> masterStates = checkpointMetadata.getMasterStates();
-        dos.writeInt(masterStates.size());
-        for (MasterState ms : masterStates) {
-            serializeMasterState(ms, dos);
-        }
+        serializeMasterStates(checkpointMetadata.getMasterStates(), dos);
 
         // third: operator states
         Collection<OperatorState> operatorStates = checkpointMetadata.getOperatorStates();
@@ -143,19 +142,7 @@ public abstract class MetadataV2V3SerializerBase {
         }
 
         // second: master state
-        final List<MasterState> masterStates;
-        final int numMasterStates = dis.readInt();
-
-        if (numMasterStates == 0) {
-            masterStates = Collections.emptyList();
-        } else if (numMasterStates > 0) {
-            masterStates = new ArrayList<>(numMasterStates);
-            for (int i = 0; i < numMasterStates; i++) {
-                masterStates.add(deserializeMasterState(dis));
-            }
-        } else {
-            throw new IOException("invalid number of master states: " + numMasterStates);
-        }
+        final List<MasterState> masterStates = deserializeMasterStates(dis);
 
         // third: operator states
         final int numTaskStates = dis.readInt();
@@ -172,6 +159,30 @@ public abstract class MetadataV2V3SerializerBase {
     //  master state (de)serialization methods
     // ------------------------------------------------------------------------
 
+    protected void serializeMasterStates(Collection<MasterState> masterStates, DataOutputStream dos)
+            throws IOException {
+        dos.writeInt(masterStates.size());
+        for (MasterState ms : masterStates) {
+            serializeMasterState(ms, dos);
+        }
+    }
+
+    protected List<MasterState> deserializeMasterStates(DataInputStream dis) throws IOException {
+        final int numMasterStates = dis.readInt();
+
+        if (numMasterStates == 0) {
+            return Collections.emptyList();
+        } else if (numMasterStates > 0) {
+            final List<MasterState> masterStates = new ArrayList<>(numMasterStates);
+            for (int i = 0; i < numMasterStates; i++) {
+                masterStates.add(deserializeMasterState(dis));
+            }
+            return masterStates;
+        } else {
+            throw new IOException("invalid number of master states: " + numMasterStates);
+        }
+    }
+
     protected void serializeMasterState(MasterState state, DataOutputStream dos)
             throws IOException {
         // magic number for error detection
@@ -601,6 +612,14 @@ public abstract class MetadataV2V3SerializerBase {
                 dos.writeLong(keyGroupsStateHandle.getOffsetForKeyGroup(keyGroup));
             }
             serializeStreamStateHandle(keyGroupsStateHandle.getDelegateStateHandle(), dos);
+        } else if (stateHandle instanceof MultiStreamStateHandle) {
+            dos.writeByte(MULTI_STREAM_STATE_HANDLE);
+            List<StreamStateHandle> stateHandles =
+                    ((MultiStreamStateHandle) stateHandle).getStateHandles();
+            dos.writeInt(stateHandles.size());
+            for (StreamStateHandle handle : stateHandles) {
+                serializeStreamStateHandle(handle, dos);
+            }
         } else {
             throw new IOException(
                     "Unknown implementation of StreamStateHandle: " + stateHandle.getClass());
@@ -647,12 +666,93 @@ public abstract class MetadataV2V3SerializerBase {
                     new KeyGroupRangeOffsets(keyGroupRange, offsets);
             StreamStateHandle stateHandle = deserializeStreamStateHandle(dis, context);
             return new KeyGroupsStateHandle(keyGroupRangeOffsets, stateHandle);
+        } else if (MULTI_STREAM_STATE_HANDLE == type) {
+            int numHandles = dis.readInt();
+            List<StreamStateHandle> stateHandles = new ArrayList<>(numHandles);
+            for (int i = 0; i < numHandles; i++) {
+                stateHandles.add(deserializeStreamStateHandle(dis, context));
+            }
+            return new MultiStreamStateHandle(stateHandles);
         } else {
             throw new IOException("Unknown implementation of StreamStateHandle, code: " + type);
         }
     }
 
     @Nullable
+    /**
+     * Returns whether the metadata contains a {@link MultiStreamStateHandle}. Such handles are not
+     * part of format version 3, see {@link MetadataV4Serializer}.
+     */
+    static boolean containsMultiStreamStateHandle(CheckpointMetadata checkpointMetadata) {
+        for (OperatorState operatorState : checkpointMetadata.getOperatorStates()) {
+            if (isMultiStreamStateHandle(operatorState.getCoordinatorState())) {
+                return true;
+            }
+            for (OperatorSubtaskState subtaskState : operatorState.getStates()) {
+                for (KeyedStateHandle handle : subtaskState.getManagedKeyedState()) {
+                    if (containsMultiStreamStateHandle(handle)) {
+                        return true;
+                    }
+                }
+                for (KeyedStateHandle handle : subtaskState.getRawKeyedState()) {
+                    if (containsMultiStreamStateHandle(handle)) {
+                        return true;
+                    }
+                }
+                for (OperatorStateHandle handle : subtaskState.getManagedOperatorState()) {
+                    if (isMultiStreamStateHandle(handle.getDelegateStateHandle())) {
+                        return true;
+                    }
+                }
+                for (OperatorStateHandle handle : subtaskState.getRawOperatorState()) {
+                    if (isMultiStreamStateHandle(handle.getDelegateStateHandle())) {
+                        return true;
+                    }
+                }
+                for (InputChannelStateHandle handle : subtaskState.getInputChannelState()) {
+                    if (isMultiStreamStateHandle(handle.getDelegate())) {
+                        return true;
+                    }
+                }
+                for (ResultSubpartitionStateHandle handle :
+                        subtaskState.getResultSubpartitionState()) {
+                    if (isMultiStreamStateHandle(handle.getDelegate())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsMultiStreamStateHandle(@Nullable KeyedStateHandle handle) {
+        if (handle instanceof KeyGroupsStateHandle) {
+            return isMultiStreamStateHandle((KeyGroupsStateHandle) handle);
+        } else if (handle instanceof IncrementalRemoteKeyedStateHandle) {
+            IncrementalRemoteKeyedStateHandle incrementalHandle =
+                    (IncrementalRemoteKeyedStateHandle) handle;
+            return isMultiStreamStateHandle(incrementalHandle.getMetaStateHandle())
+                    || incrementalHandle.getSharedState().values().stream()
+                            .anyMatch(MetadataV2V3SerializerBase::isMultiStreamStateHandle)
+                    || incrementalHandle.getPrivateState().values().stream()
+                            .anyMatch(MetadataV2V3SerializerBase::isMultiStreamStateHandle);
+        } else if (handle instanceof ChangelogStateBackendHandle) {
+            return ((ChangelogStateBackendHandle) handle)
+                    .getMaterializedStateHandles().stream()
+                            .anyMatch(MetadataV2V3SerializerBase::containsMultiStreamStateHandle);
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean isMultiStreamStateHandle(@Nullable StreamStateHandle handle) {
+        if (handle instanceof KeyGroupsStateHandle) {
+            return isMultiStreamStateHandle(
+                    ((KeyGroupsStateHandle) handle).getDelegateStateHandle());
+        }
+        return handle instanceof MultiStreamStateHandle;
+    }
+
     static ByteStreamStateHandle deserializeAndCheckByteStreamStateHandle(
             DataInputStream dis, @Nullable DeserializationContext context) throws IOException {
 
@@ -761,7 +861,7 @@ public abstract class MetadataV2V3SerializerBase {
 
         private final String externalPointer;
 
-        private Path cachedExclusiveDirPath;
+        private volatile Path cachedExclusiveDirPath;
 
         DeserializationContext(String externalPointer) {
             this.externalPointer = externalPointer;
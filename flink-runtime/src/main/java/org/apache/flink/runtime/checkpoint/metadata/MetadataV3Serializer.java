@@ -64,8 +64,8 @@ public class MetadataV3Serializer extends MetadataV2V3SerializerBase implements
     private final ChannelStateHandleSerializer channelStateHandleSerializer =
             new ChannelStateHandleSerializer();
 
-    /** Singleton, not meant to be instantiated. */
-    private MetadataV3Serializer() {}
+    /** Singleton, only instantiated by itself and by the {@link MetadataV4Serializer}. */
+    MetadataV3Serializer() {}
 
     @Override
     public int getVersion() {
@@ -81,6 +81,15 @@ public class MetadataV3Serializer extends MetadataV2V3SerializerBase implements
         INSTANCE.serializeMetadata(checkpointMetadata, dos);
     }
 
+    /**
+     * Returns whether the metadata can be written in this format version. {@link
+     * org.apache.flink.runtime.state.MultiStreamStateHandle MultiStreamStateHandles} require format
+     * version 4.
+     */
+    public static boolean canSerialize(CheckpointMetadata checkpointMetadata) {
+        return !containsMultiStreamStateHandle(checkpointMetadata);
+    }
+
     @Override
     public CheckpointMetadata deserialize(
             DataInputStream dis, ClassLoader classLoader, String externalPointer)
@@ -92,6 +101,20 @@ public class MetadataV3Serializer extends MetadataV2V3SerializerBase implements
     //  version-specific serialization formats
     // ------------------------------------------------------------------------
 
+    @Override
+    protected void serializeMetadata(CheckpointMetadata checkpointMetadata, DataOutputStream dos)
+            throws IOException {
+        if (!canSerialize(checkpointMetadata)) {
+            throw new IOException(
+                    "The checkpoint metadata contains state handles which are not part of format version "
+                            + VERSION
+                            + ". Please write it in format version "
+                            + MetadataV4Serializer.VERSION
+                            + '.');
+        }
+        super.serializeMetadata(checkpointMetadata, dos);
+    }
+
     @Override
     protected void serializeOperatorState(OperatorState operatorState, DataOutputStream dos)
             throws IOException {
@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.metadata;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.checkpoint.FullyFinishedOperatorState;
+import org.apache.flink.runtime.checkpoint.MasterState;
+import org.apache.flink.runtime.checkpoint.OperatorState;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.concurrent.Executors;
+import org.apache.flink.util.function.FunctionWithException;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * (De)serializer for checkpoint metadata format version 4.
+ *
+ * <p>Compared to format version 3, the subtask states of every operator are written in shards of up
+ * to {@link #SUBTASK_STATES_PER_SHARD} subtask states, each prefixed with its length. The shards
+ * are serialized and deserialized in parallel, which reduces the time to write and load the
+ * metadata of jobs with many operators or a high parallelism. Only a bounded number of shards is
+ * held in memory at once. The subtask states themselves have the layout of version 3.
+ *
+ * <p>The format is only written if the sharded metadata is enabled for the job, or if the metadata
+ * contains {@link org.apache.flink.runtime.state.MultiStreamStateHandle MultiStreamStateHandles},
+ * because older Flink versions cannot read it.
+ *
+ * <pre>
+ *  Operator state:
+ *  +-------------+-------------+-----------------+-------------------+--------------+------------+--------+
+ *  | operator ID | parallelism | max parallelism | coordinator state | num subtasks | num shards | shards |
+ *  +-------------+-------------+-----------------+-------------------+--------------+------------+--------+
+ *
+ *  Shard:
+ *  +-----------+--------------------+--------------------------------+
+ *  | num bytes | num subtask states | (subtask index, subtask state)* |
+ *  +-----------+--------------------+--------------------------------+
+ * </pre>
+ *
+ * <p>See {@link MetadataV2V3SerializerBase} for a description of the remaining format layout.
+ */
+@Internal
+public class MetadataV4Serializer extends MetadataV3Serializer {
+
+    /** The metadata format version. */
+    public static final int VERSION = 4;
+
+    /** The singleton instance of the serializer. */
+    public static final MetadataV4Serializer INSTANCE = new MetadataV4Serializer();
+
+    /** The maximum number of subtask states in a shard. */
+    @VisibleForTesting static final int SUBTASK_STATES_PER_SHARD = 64;
+
+    /** The maximum number of threads of the executor which (de)serialize shards concurrently. */
+    private static final int MAX_PARALLEL_SHARDS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The maximum number of shards which are held in memory at once while (de)serializing the
+     * metadata. This bounds the memory to buffer the serialized shards, independent of the size of
+     * the metadata.
+     */
+    private static final int MAX_SHARDS_IN_FLIGHT = 4 * MAX_PARALLEL_SHARDS;
+
+    /** Singleton, not meant to be instantiated. */
+    private MetadataV4Serializer() {}
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    // ------------------------------------------------------------------------
+    //  (De)serialization entry points
+    // ------------------------------------------------------------------------
+
+    public static void serialize(CheckpointMetadata checkpointMetadata, DataOutputStream dos)
+            throws IOException {
+        serialize(checkpointMetadata, dos, Executors.directExecutor());
+    }
+
+    /**
+     * Serializes the checkpoint metadata, using the given executor to serialize the shards of
+     * subtask states in parallel.
+     */
+    public static void serialize(
+            CheckpointMetadata checkpointMetadata, DataOutputStream dos, Executor executor)
+            throws IOException {
+        serialize(checkpointMetadata, dos, executor, MAX_SHARDS_IN_FLIGHT);
+    }
+
+    @VisibleForTesting
+    static void serialize(
+            CheckpointMetadata checkpointMetadata,
+            DataOutputStream dos,
+            Executor executor,
+            int maxShardsInFlight)
+            throws IOException {
+        INSTANCE.serializeMetadata(checkpointMetadata, dos, executor, maxShardsInFlight);
+    }
+
+    @Override
+    public CheckpointMetadata deserialize(
+            DataInputStream dis, ClassLoader classLoader, String externalPointer)
+            throws IOException {
+        return deserialize(dis, classLoader, externalPointer, Executors.directExecutor());
+    }
+
+    @Override
+    public CheckpointMetadata deserialize(
+            DataInputStream dis, ClassLoader classLoader, String externalPointer, Executor executor)
+            throws IOException {
+        return deserializeMetadata(dis, externalPointer, executor, MAX_SHARDS_IN_FLIGHT);
+    }
+
+    @VisibleForTesting
+    CheckpointMetadata deserialize(
+            DataInputStream dis,
+            @Nullable String externalPointer,
+            Executor executor,
+            int maxShardsInFlight)
+            throws IOException {
+        return deserializeMetadata(dis, externalPointer, executor, maxShardsInFlight);
+    }
+
+    // ------------------------------------------------------------------------
+    //  version-specific serialization formats
+    // ------------------------------------------------------------------------
+
+    @Override
+    protected void serializeMetadata(CheckpointMetadata checkpointMetadata, DataOutputStream dos)
+            throws IOException {
+        serializeMetadata(
+                checkpointMetadata, dos, Executors.directExecutor(), MAX_SHARDS_IN_FLIGHT);
+    }
+
+    private void serializeMetadata(
+            CheckpointMetadata checkpointMetadata,
+            DataOutputStream dos,
+            Executor executor,
+            int maxShardsInFlight)
+            throws IOException {
+        // first: checkpoint ID
+        dos.writeLong(checkpointMetadata.getCheckpointId());
+
+        // second: master state
+        serializeMasterStates(checkpointMetadata.getMasterStates(), dos);
+
+        // third: operator states
+        final Collection<OperatorState> operatorStates = checkpointMetadata.getOperatorStates();
+        dos.writeInt(operatorStates.size());
+
+        // the shards of consecutive operators are serialized in parallel in batches of at most
+        // maxShardsInFlight shards, so that only a batch is held in memory before it is written
+        final List<OperatorState> batchOperatorStates = new ArrayList<>();
+        final List<List<Map.Entry<Integer, OperatorSubtaskState>>> batchShards = new ArrayList<>();
+        for (OperatorState operatorState : operatorStates) {
+            final List<List<Map.Entry<Integer, OperatorSubtaskState>>> shards =
+                    createShards(operatorState);
+
+            if (batchShards.size() + shards.size() > maxShardsInFlight) {
+                serializeOperatorStates(batchOperatorStates, batchShards, dos, executor);
+                batchOperatorStates.clear();
+                batchShards.clear();
+            }
+
+            if (shards.size() > maxShardsInFlight) {
+                serializeOperatorStateHeader(operatorState, shards.size(), dos);
+                for (int i = 0; i < shards.size(); i += maxShardsInFlight) {
+                    final List<List<Map.Entry<Integer, OperatorSubtaskState>>> batch =
+                            shards.subList(i, Math.min(shards.size(), i + maxShardsInFlight));
+                    for (byte[] serializedShard :
+                            processShards(batch, this::serializeShard, executor)) {
+                        writeShard(serializedShard, dos);
+                    }
+                }
+            } else {
+                batchOperatorStates.add(operatorState);
+                batchShards.addAll(shards);
+            }
+        }
+        serializeOperatorStates(batchOperatorStates, batchShards, dos, executor);
+    }
+
+    private void serializeOperatorStates(
+            List<OperatorState> operatorStates,
+            List<List<Map.Entry<Integer, OperatorSubtaskState>>> shards,
+            DataOutputStream dos,
+            Executor executor)
+            throws IOException {
+        final Iterator<byte[]> serializedShards =
+                processShards(shards, this::serializeShard, executor).iterator();
+        for (OperatorState operatorState : operatorStates) {
+            final int numShards = getNumShards(operatorState);
+            serializeOperatorStateHeader(operatorState, numShards, dos);
+            for (int i = 0; i < numShards; i++) {
+                writeShard(serializedShards.next(), dos);
+            }
+        }
+    }
+
+    private void serializeOperatorStateHeader(
+            OperatorState operatorState, int numShards, DataOutputStream dos) throws IOException {
+        // Operator ID
+        dos.writeLong(operatorState.getOperatorID().getLowerPart());
+        dos.writeLong(operatorState.getOperatorID().getUpperPart());
+
+        // Parallelism
+        dos.writeInt(operatorState.getParallelism());
+        dos.writeInt(operatorState.getMaxParallelism());
+
+        // Coordinator state
+        serializeStreamStateHandle(operatorState.getCoordinatorState(), dos);
+
+        // Sub task states
+        dos.writeInt(
+                operatorState.isFullyFinished() ? -1 : operatorState.getSubtaskStates().size());
+        dos.writeInt(numShards);
+    }
+
+    private static void writeShard(byte[] serializedShard, DataOutputStream dos)
+            throws IOException {
+        dos.writeInt(serializedShard.length);
+        dos.write(serializedShard);
+    }
+
+    private static List<List<Map.Entry<Integer, OperatorSubtaskState>>> createShards(
+            OperatorState operatorState) {
+        final List<List<Map.Entry<Integer, OperatorSubtaskState>>> shards = new ArrayList<>();
+        if (!operatorState.isFullyFinished()) {
+            List<Map.Entry<Integer, OperatorSubtaskState>> shard = new ArrayList<>();
+            for (Map.Entry<Integer, OperatorSubtaskState> entry :
+                    operatorState.getSubtaskStates().entrySet()) {
+                if (shard.size() == SUBTASK_STATES_PER_SHARD) {
+                    shards.add(shard);
+                    shard = new ArrayList<>();
+                }
+                shard.add(entry);
+            }
+            if (!shard.isEmpty()) {
+                shards.add(shard);
+            }
+        }
+        return shards;
+    }
+
+    private static int getNumShards(OperatorState operatorState) {
+        if (operatorState.isFullyFinished()) {
+            return 0;
+        }
+        final int numSubtaskStates = operatorState.getSubtaskStates().size();
+        return (numSubtaskStates + SUBTASK_STATES_PER_SHARD - 1) / SUBTASK_STATES_PER_SHARD;
+    }
+
+    private CheckpointMetadata deserializeMetadata(
+            DataInputStream dis,
+            @Nullable String externalPointer,
+            Executor executor,
+            int maxShardsInFlight)
+            throws IOException {
+
+        final DeserializationContext context =
+                externalPointer == null ? null : new DeserializationContext(externalPointer);
+
+        // first: checkpoint ID
+        final long checkpointId = dis.readLong();
+        if (checkpointId < 0) {
+            throw new IOException("invalid checkpoint ID: " + checkpointId);
+        }
+
+        // second: master state
+        final List<MasterState> masterStates = deserializeMasterStates(dis);
+
+        // third: operator states, whose shards are read in batches of at most maxShardsInFlight
+        // shards, which are deserialized in parallel
+        final int numTaskStates = dis.readInt();
+        final List<OperatorState> operatorStates = new ArrayList<>(numTaskStates);
+        final List<Integer> numSubtaskStatesPerOperator = new ArrayList<>(numTaskStates);
+        final List<OperatorState> batchOperatorStates = new ArrayList<>();
+        final List<byte[]> batchShards = new ArrayList<>();
+
+        for (int i = 0; i < numTaskStates; i++) {
+            final OperatorID operatorId = new OperatorID(dis.readLong(), dis.readLong());
+            final int parallelism = dis.readInt();
+            final int maxParallelism = dis.readInt();
+
+            final ByteStreamStateHandle coordinatorState =
+                    deserializeAndCheckByteStreamStateHandle(dis, context);
+
+            final int numSubtaskStates = dis.readInt();
+            final int numShards = dis.readInt();
+
+            final OperatorState operatorState;
+            if (numSubtaskStates < 0) {
+                checkState(
+                        coordinatorState == null && numShards == 0,
+                        "Coordinator State and sub task states should be null for fully finished operator state");
+                operatorState =
+                        new FullyFinishedOperatorState(operatorId, parallelism, maxParallelism);
+            } else {
+                operatorState = new OperatorState(operatorId, parallelism, maxParallelism);
+                operatorState.setCoordinatorState(coordinatorState);
+            }
+
+            for (int j = 0; j < numShards; j++) {
+                final byte[] serializedShard = new byte[dis.readInt()];
+                dis.readFully(serializedShard);
+                batchShards.add(serializedShard);
+                batchOperatorStates.add(operatorState);
+
+                if (batchShards.size() == maxShardsInFlight) {
+                    deserializeShards(batchOperatorStates, batchShards, context, executor);
+                    batchOperatorStates.clear();
+                    batchShards.clear();
+                }
+            }
+
+            operatorStates.add(operatorState);
+            numSubtaskStatesPerOperator.add(numSubtaskStates);
+        }
+        deserializeShards(batchOperatorStates, batchShards, context, executor);
+
+        for (int i = 0; i < numTaskStates; i++) {
+            final OperatorState operatorState = operatorStates.get(i);
+            final int numSubtaskStates = numSubtaskStatesPerOperator.get(i);
+            if (numSubtaskStates >= 0 && numSubtaskStates != operatorState.getStates().size()) {
+                throw new IOException(
+                        "Expected "
+                                + numSubtaskStates
+                                + " sub task states of operator "
+                                + operatorState.getOperatorID()
+                                + " but found "
+                                + operatorState.getStates().size());
+            }
+        }
+
+        return new CheckpointMetadata(checkpointId, operatorStates, masterStates);
+    }
+
+    /** Deserializes the shards in parallel and adds them to the operator state of each shard. */
+    private void deserializeShards(
+            List<OperatorState> shardOperatorStates,
+            List<byte[]> serializedShards,
+            @Nullable DeserializationContext context,
+            Executor executor)
+            throws IOException {
+        final List<List<Tuple2<Integer, OperatorSubtaskState>>> shards =
+                processShards(
+                        serializedShards,
+                        serializedShard -> deserializeShard(serializedShard, context),
+                        executor);
+        for (int i = 0; i < shards.size(); i++) {
+            final OperatorState operatorState = shardOperatorStates.get(i);
+            for (Tuple2<Integer, OperatorSubtaskState> subtaskState : shards.get(i)) {
+                operatorState.putState(subtaskState.f0, subtaskState.f1);
+            }
+        }
+    }
+
+    private byte[] serializeShard(List<Map.Entry<Integer, OperatorSubtaskState>> shard)
+            throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(baos);
+
+        out.writeInt(shard.size());
+        for (Map.Entry<Integer, OperatorSubtaskState> entry : shard) {
+            out.writeInt(entry.getKey());
+            serializeSubtaskState(entry.getValue(), out);
+        }
+
+        out.close();
+        return baos.toByteArray();
+    }
+
+    private List<Tuple2<Integer, OperatorSubtaskState>> deserializeShard(
+            byte[] serializedShard, @Nullable DeserializationContext context) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(serializedShard));
+
+        final int numSubtaskStates = in.readInt();
+        final List<Tuple2<Integer, OperatorSubtaskState>> subtaskStates =
+                new ArrayList<>(numSubtaskStates);
+        for (int i = 0; i < numSubtaskStates; i++) {
+            final int subtaskIndex = in.readInt();
+            subtaskStates.add(Tuple2.of(subtaskIndex, deserializeSubtaskState(in, context)));
+        }
+
+        // check that the data is not corrupt
+        if (in.read() != -1) {
+            throw new IOException("found trailing bytes in sub task states");
+        }
+
+        return subtaskStates;
+    }
+
+    // ------------------------------------------------------------------------
+    //  utilities
+    // ------------------------------------------------------------------------
+
+    /**
+     * Applies the function to all shards in parallel and returns the results in the order of the
+     * shards. The calling thread processes shards as well, and only waits for the shards which
+     * other threads already started. It is therefore safe to call this from a thread of the given
+     * executor, even if all other threads of the executor are busy.
+     */
+    private static <S, R> List<R> processShards(
+            List<S> shards, FunctionWithException<S, R, IOException> function, Executor executor)
+            throws IOException {
+        checkNotNull(executor);
+
+        final int numShards = shards.size();
+        final Object[] results = new Object[numShards];
+        final AtomicInteger nextShard = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch processedShards = new CountDownLatch(numShards);
+
+        final Runnable worker =
+                () -> {
+                    int shard;
+                    while ((shard = nextShard.getAndIncrement()) < numShards) {
+                        try {
+                            if (failure.get() == null) {
+                                results[shard] = function.apply(shards.get(shard));
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            processedShards.countDown();
+                        }
+                    }
+                };
+
+        final int numHelpers = Math.min(numShards, MAX_PARALLEL_SHARDS) - 1;
+        for (int i = 0; i < numHelpers && nextShard.get() < numShards; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // the calling thread processes the remaining shards
+                break;
+            }
+        }
+        worker.run();
+
+        try {
+            processedShards.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the shards to be processed.", e);
+        }
+
+        final Throwable t = failure.get();
+        if (t != null) {
+            ExceptionUtils.rethrowIOException(t);
+        }
+
+        final List<R> resultList = new ArrayList<>(numShards);
+        for (Object result : results) {
+            @SuppressWarnings("unchecked")
+            final R typedResult = (R) result;
+            resultList.add(typedResult);
+        }
+        return resultList;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.disk;
+
+import org.apache.flink.annotation.VisibleForTesting;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * TaskManager-wide scheduler of the data reading of batch shuffle. It is shared by all result
+ * partitions of the TaskManager and limits the number of concurrent reads of every disk, where the
+ * parent directory of a shuffle file identifies the disk of the file.
+ *
+ * <p>The pending {@link ReadTask}s of a disk are served like an elevator in order of file path and
+ * file offset: the next task is the one following the last started task in this order, wrapping
+ * around to the smallest one at the end. Together with the offset ordered reading of every single
+ * task, this turns the reads of many concurrently consumed shuffle files into mostly sequential
+ * disk access without starving any of the files. Tasks which are not {@link ReadTask}s are executed
+ * directly.
+ */
+public class BatchShuffleReadIOScheduler implements Executor {
+
+    /** A data reading task of a single shuffle file. */
+    public interface ReadTask extends Runnable {
+
+        /** Path of the file to read, or null if the file is unknown. */
+        @Nullable
+        Path getFilePath();
+
+        /** The smallest file offset the task is going to read. */
+        long getNextReadOffset();
+    }
+
+    /** Lock used to synchronize multi-thread access to thread-unsafe fields. */
+    private final Object lock = new Object();
+
+    /** Executor to run the data reading tasks. */
+    private final Executor ioExecutor;
+
+    /** Maximum number of data reading tasks running concurrently for a single disk. */
+    private final int maxConcurrentReadsPerDisk;
+
+    /** Scheduling state of all disks, indexed by the directory of the files. */
+    @GuardedBy("lock")
+    private final Map<Path, DiskQueue> diskQueues = new HashMap<>();
+
+    /** Sequence number of the next submitted task, used to order tasks of equal positions. */
+    @GuardedBy("lock")
+    private long nextSequenceNumber;
+
+    /** Number of tasks waiting for running. */
+    @GuardedBy("lock")
+    private int numPendingReads;
+
+    /** Number of tasks currently running. */
+    @GuardedBy("lock")
+    private int numRunningReads;
+
+    public BatchShuffleReadIOScheduler(Executor ioExecutor, int maxConcurrentReadsPerDisk) {
+        checkArgument(
+                maxConcurrentReadsPerDisk > 0,
+                "The maximum number of concurrent reads per disk must be positive.");
+
+        this.ioExecutor = checkNotNull(ioExecutor);
+        this.maxConcurrentReadsPerDisk = maxConcurrentReadsPerDisk;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Path filePath = task instanceof ReadTask ? ((ReadTask) task).getFilePath() : null;
+        if (filePath == null || filePath.getParent() == null) {
+            ioExecutor.execute(task);
+            return;
+        }
+
+        // the position is taken before locking, the task may be guarded by a lock of its own
+        String file = filePath.toString();
+        long offset = ((ReadTask) task).getNextReadOffset();
+        Path disk = filePath.getParent();
+
+        PendingRead readToStart;
+        synchronized (lock) {
+            DiskQueue diskQueue = diskQueues.computeIfAbsent(disk, DiskQueue::new);
+            diskQueue.pendingReads.add(
+                    new PendingRead(task, file, offset, nextSequenceNumber++, diskQueue));
+            ++numPendingReads;
+
+            readToStart = pollNextRead(diskQueue);
+        }
+        startRead(readToStart);
+    }
+
+    @GuardedBy("lock")
+    @Nullable
+    private PendingRead pollNextRead(DiskQueue diskQueue) {
+        assert Thread.holdsLock(lock);
+
+        if (diskQueue.numRunningReads >= maxConcurrentReadsPerDisk
+                || diskQueue.pendingReads.isEmpty()) {
+            if (diskQueue.numRunningReads == 0) {
+                diskQueues.remove(diskQueue.disk);
+            }
+            return null;
+        }
+
+        PendingRead nextRead =
+                diskQueue.lastStartedRead == null
+                        ? null
+                        : diskQueue.pendingReads.higher(diskQueue.lastStartedRead);
+        if (nextRead == null) {
+            nextRead = diskQueue.pendingReads.first();
+        }
+
+        diskQueue.pendingReads.remove(nextRead);
+        diskQueue.lastStartedRead = nextRead;
+        ++diskQueue.numRunningReads;
+        --numPendingReads;
+        ++numRunningReads;
+        return nextRead;
+    }
+
+    private void startRead(@Nullable PendingRead read) {
+        if (read == null) {
+            return;
+        }
+
+        try {
+            ioExecutor.execute(() -> runRead(read));
+        } catch (Throwable throwable) {
+            onReadFinished(read);
+            throw throwable;
+        }
+    }
+
+    private void runRead(PendingRead read) {
+        try {
+            read.task.run();
+        } finally {
+            onReadFinished(read);
+        }
+    }
+
+    private void onReadFinished(PendingRead read) {
+        PendingRead readToStart;
+        synchronized (lock) {
+            --read.diskQueue.numRunningReads;
+            --numRunningReads;
+
+            readToStart = pollNextRead(read.diskQueue);
+        }
+        startRead(readToStart);
+    }
+
+    /** Returns the number of data reading tasks waiting for a free read slot of their disk. */
+    public int getNumPendingReads() {
+        synchronized (lock) {
+            return numPendingReads;
+        }
+    }
+
+    /** Returns the number of data reading tasks currently running. */
+    public int getNumRunningReads() {
+        synchronized (lock) {
+            return numRunningReads;
+        }
+    }
+
+    @VisibleForTesting
+    int getNumActiveDisks() {
+        synchronized (lock) {
+            return diskQueues.size();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** Scheduling state of a single disk. */
+    private static final class DiskQueue {
+
+        private final Path disk;
+
+        /** Pending tasks in order of file path and file offset. */
+        private final TreeSet<PendingRead> pendingReads = new TreeSet<>();
+
+        /** The last started task, which is the current position of the elevator. */
+        @Nullable private PendingRead lastStartedRead;
+
+        private int numRunningReads;
+
+        private DiskQueue(Path disk) {
+            this.disk = disk;
+        }
+    }
+
+    /** A submitted data reading task together with the file position it is going to read. */
+    private static final class PendingRead implements Comparable<PendingRead> {
+
+        private final Runnable task;
+
+        private final String file;
+
+        private final long offset;
+
+        private final long sequenceNumber;
+
+        private final DiskQueue diskQueue;
+
+        private PendingRead(
+                Runnable task, String file, long offset, long sequenceNumber, DiskQueue diskQueue) {
+            this.task = task;
+            this.file = file;
+            this.offset = offset;
+            this.sequenceNumber = sequenceNumber;
+            this.diskQueue = diskQueue;
+        }
+
+        @Override
+        public int compareTo(PendingRead that) {
+            int result = file.compareTo(that.file);
+            if (result == 0) {
+                result = Long.compare(offset, that.offset);
+            }
+            if (result == 0) {
+                result = Long.compare(sequenceNumber, that.sequenceNumber);
+            }
+            return result;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadIOScheduler;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -143,7 +144,13 @@ public class NettyShuffleServiceFactory
                                         4 * Hardware.getNumberCPUCores())),
                         new ExecutorThreadFactory("blocking-shuffle-io"));
 
-        registerShuffleMetrics(metricGroup, networkBufferPool);
+        // the reads of all result partitions are scheduled per disk in order of file offset to
+        // avoid random disk seeks caused by many concurrently consumed shuffle files
+        BatchShuffleReadIOScheduler batchShuffleReadIOScheduler =
+                new BatchShuffleReadIOScheduler(
+                        batchShuffleReadIOExecutor, config.sortShuffleMaxConcurrentReadsPerDisk());
+
+        registerShuffleMetrics(metricGroup, networkBufferPool, batchShuffleReadIOScheduler);
 
         ResultPartitionFactory resultPartitionFactory =
                 new ResultPartitionFactory(
@@ -151,7 +158,7 @@ public class NettyShuffleServiceFactory
                         fileChannelManager,
                         networkBufferPool,
                         batchShuffleReadBufferPool,
-                        batchShuffleReadIOExecutor,
+                        batchShuffleReadIOScheduler,
                         config.getBlockingSubpartitionType(),
                         config.networkBuffersPerChannel(),
                         config.floatingNetworkBuffersPerGate(),
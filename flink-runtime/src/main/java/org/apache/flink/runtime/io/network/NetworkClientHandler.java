@@ -61,4 +61,12 @@ public interface NetworkClientHandler extends ChannelHandler {
      * @param inputChannel The input channel to resume data consumption.
      */
     void acknowledgeAllRecordsProcessed(RemoteInputChannel inputChannel);
+
+    /**
+     * Notifies the producer of the given input channel about the new buffer size.
+     *
+     * @param inputChannel The input channel who announces the new buffer size.
+     * @param bufferSize The new buffer size in bytes.
+     */
+    void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize);
 }
@@ -59,6 +59,13 @@ public interface NetworkSequenceViewReader {
     /** Acknowledges all the user records are processed. */
     void acknowledgeAllRecordsProcessed();
 
+    /**
+     * Notifies the subpartition about the size of new buffers which the consumer can accept.
+     *
+     * @param newBufferSize the new buffer size in bytes.
+     */
+    void notifyNewBufferSize(int newBufferSize);
+
     /**
      * Checks whether this reader is available or not and returns the backlog at the same time.
      *
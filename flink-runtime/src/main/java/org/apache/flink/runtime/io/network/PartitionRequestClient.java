@@ -63,6 +63,14 @@ public interface PartitionRequestClient {
      */
     void acknowledgeAllRecordsProcessed(RemoteInputChannel inputChannel);
 
+    /**
+     * Notifies the producer of one remote input channel about the new buffer size.
+     *
+     * @param inputChannel The remote input channel who announces the new buffer size.
+     * @param bufferSize The new buffer size in bytes.
+     */
+    void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize);
+
     /**
      * Sends a task event backwards to an intermediate result partition.
      *
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.api.writer;
 
 import org.apache.flink.core.io.IOReadableWritable;
+import org.apache.flink.core.memory.DataOutputSerializer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -38,6 +39,14 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable>
 
     private final ChannelSelector<T> channelSelector;
 
+    /** Serializers for the records of a batch, lazily created per channel. */
+    private final DataOutputSerializer[] batchSerializers;
+
+    /** The channels which received records of the current batch, in the order of first use. */
+    private final int[] batchChannels;
+
+    private int numberOfBatchChannels;
+
     ChannelSelectorRecordWriter(
             ResultPartitionWriter writer,
             ChannelSelector<T> channelSelector,
@@ -47,6 +56,9 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable>
 
         this.channelSelector = checkNotNull(channelSelector);
         this.channelSelector.setup(numberOfChannels);
+
+        this.batchSerializers = new DataOutputSerializer[numberOfChannels];
+        this.batchChannels = new int[numberOfChannels];
     }
 
     @Override
@@ -54,6 +66,42 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable>
         emit(record, channelSelector.selectChannel(record));
     }
 
+    @Override
+    public void emit(Iterable<T> records) throws IOException {
+        checkErroneous();
+
+        try {
+            for (T record : records) {
+                int targetSubpartition = channelSelector.selectChannel(record);
+                DataOutputSerializer batchSerializer = batchSerializers[targetSubpartition];
+                if (batchSerializer == null) {
+                    batchSerializer = new DataOutputSerializer(128);
+                    batchSerializers[targetSubpartition] = batchSerializer;
+                }
+                if (batchSerializer.length() == 0) {
+                    batchChannels[numberOfBatchChannels++] = targetSubpartition;
+                }
+                appendRecord(batchSerializer, record);
+            }
+
+            for (int i = 0; i < numberOfBatchChannels; i++) {
+                int targetSubpartition = batchChannels[i];
+                targetPartition.emitRecords(
+                        batchSerializers[targetSubpartition].wrapAsByteBuffer(),
+                        targetSubpartition);
+
+                if (flushAlways) {
+                    targetPartition.flush(targetSubpartition);
+                }
+            }
+        } finally {
+            for (int i = 0; i < numberOfBatchChannels; i++) {
+                batchSerializers[batchChannels[i]].clear();
+            }
+            numberOfBatchChannels = 0;
+        }
+    }
+
     @Override
     public void broadcastEmit(T record) throws IOException {
         checkErroneous();
@@ -135,6 +135,26 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
         return serializer.wrapAsByteBuffer();
     }
 
+    /**
+     * Appends the given record with its length prefix to the serializer, behind the records which
+     * were already appended. The content of the serializer can be passed to {@link
+     * ResultPartitionWriter#emitRecords(ByteBuffer, int)} to write all records at once.
+     */
+    @VisibleForTesting
+    public static void appendRecord(DataOutputSerializer serializer, IOReadableWritable record)
+            throws IOException {
+        int start = serializer.length();
+
+        // reserve space for the length
+        serializer.writeInt(0);
+
+        // write data
+        record.write(serializer);
+
+        // write length
+        serializer.writeIntUnsafe(serializer.length() - start - 4, start);
+    }
+
     public void flushAll() {
         targetPartition.flushAll();
     }
@@ -152,6 +172,18 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
     /** This is used to send regular records. */
     public abstract void emit(T record) throws IOException;
 
+    /**
+     * This is used to send a batch of regular records. It has the same effect as calling {@link
+     * #emit(IOReadableWritable)} for each record, but implementations may serialize the records of
+     * one channel together and copy them into the network buffers in one go, which is cheaper for
+     * small records.
+     */
+    public void emit(Iterable<T> records) throws IOException {
+        for (T record : records) {
+            emit(record);
+        }
+    }
+
     /** This is used to send LatencyMarks to a random target channel. */
     public void randomEmit(T record) throws IOException {
         checkErroneous();
@@ -54,6 +54,22 @@ public interface ResultPartitionWriter extends AutoCloseable, AvailabilityProvid
     /** Writes the given serialized record to the target subpartition. */
     void emitRecord(ByteBuffer record, int targetSubpartition) throws IOException;
 
+    /**
+     * Writes the given serialized records to the target subpartition. The records are consecutive
+     * in the buffer, each one prefixed with its length as written by {@link
+     * RecordWriter#appendRecord}. The default implementation emits the records one by one,
+     * implementations can override it to copy all records at once.
+     */
+    default void emitRecords(ByteBuffer records, int targetSubpartition) throws IOException {
+        while (records.hasRemaining()) {
+            int recordSize = Integer.BYTES + records.getInt(records.position());
+            ByteBuffer record = records.slice();
+            record.limit(recordSize);
+            emitRecord(record, targetSubpartition);
+            records.position(records.position() + recordSize);
+        }
+    }
+
     /**
      * Writes the given serialized record to all subpartitions. One can also achieve the same effect
      * by emitting the same record to all subpartitions one by one, however, this method can have
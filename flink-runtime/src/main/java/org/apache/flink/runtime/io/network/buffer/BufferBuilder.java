@@ -42,9 +42,13 @@ public class BufferBuilder implements AutoCloseable {
 
     private boolean bufferConsumerCreated = false;
 
+    /** The number of bytes which can be written at most, which may be less than the segment. */
+    private int maxCapacity;
+
     public BufferBuilder(MemorySegment memorySegment, BufferRecycler recycler) {
         this.memorySegment = checkNotNull(memorySegment);
         this.buffer = new NetworkBuffer(memorySegment, recycler);
+        this.maxCapacity = buffer.getMaxCapacity();
     }
 
     /**
@@ -142,7 +146,18 @@ public class BufferBuilder implements AutoCloseable {
     }
 
     public int getMaxCapacity() {
-        return buffer.getMaxCapacity();
+        return maxCapacity;
+    }
+
+    /**
+     * Limits the number of bytes which can be written to this builder to the given size, but never
+     * below the bytes which were already written or above the size of the memory segment.
+     *
+     * @param newSize the desired maximum capacity of this builder.
+     */
+    public void trim(int newSize) {
+        maxCapacity =
+                Math.min(Math.max(newSize, positionMarker.getCached()), buffer.getMaxCapacity());
     }
 
     @Override
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.metrics;
 
 import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadIOScheduler;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
@@ -53,6 +54,9 @@ public class NettyShuffleMetricFactory {
     private static final String METRIC_USED_MEMORY_SEGMENT = "UsedMemorySegments";
     private static final String METRIC_USED_MEMORY = "UsedMemory";
 
+    private static final String METRIC_PENDING_BATCH_SHUFFLE_READS = "PendingBatchShuffleReads";
+    private static final String METRIC_RUNNING_BATCH_SHUFFLE_READS = "RunningBatchShuffleReads";
+
     // task level metric group structure: Shuffle.Netty.<Input|Output>.Buffers
 
     private static final String METRIC_GROUP_SHUFFLE = "Shuffle";
@@ -76,13 +80,16 @@ public class NettyShuffleMetricFactory {
     private NettyShuffleMetricFactory() {}
 
     public static void registerShuffleMetrics(
-            MetricGroup metricGroup, NetworkBufferPool networkBufferPool) {
+            MetricGroup metricGroup,
+            NetworkBufferPool networkBufferPool,
+            BatchShuffleReadIOScheduler batchShuffleReadIOScheduler) {
         checkNotNull(metricGroup);
         checkNotNull(networkBufferPool);
+        checkNotNull(batchShuffleReadIOScheduler);
 
         //noinspection deprecation
         internalRegisterDeprecatedNetworkMetrics(metricGroup, networkBufferPool);
-        internalRegisterShuffleMetrics(metricGroup, networkBufferPool);
+        internalRegisterShuffleMetrics(metricGroup, networkBufferPool, batchShuffleReadIOScheduler);
     }
 
     @Deprecated
@@ -98,7 +105,9 @@ public class NettyShuffleMetricFactory {
     }
 
     private static void internalRegisterShuffleMetrics(
-            MetricGroup parentMetricGroup, NetworkBufferPool networkBufferPool) {
+            MetricGroup parentMetricGroup,
+            NetworkBufferPool networkBufferPool,
+            BatchShuffleReadIOScheduler batchShuffleReadIOScheduler) {
         MetricGroup shuffleGroup = parentMetricGroup.addGroup(METRIC_GROUP_SHUFFLE);
         MetricGroup networkGroup = shuffleGroup.addGroup(METRIC_GROUP_NETTY);
 
@@ -114,6 +123,13 @@ public class NettyShuffleMetricFactory {
         networkGroup.gauge(
                 METRIC_USED_MEMORY_SEGMENT, networkBufferPool::getNumberOfUsedMemorySegments);
         networkGroup.gauge(METRIC_USED_MEMORY, networkBufferPool::getUsedMemory);
+
+        networkGroup.gauge(
+                METRIC_PENDING_BATCH_SHUFFLE_READS,
+                batchShuffleReadIOScheduler::getNumPendingReads);
+        networkGroup.gauge(
+                METRIC_RUNNING_BATCH_SHUFFLE_READS,
+                batchShuffleReadIOScheduler::getNumRunningReads);
     }
 
     public static MetricGroup createShuffleIOOwnerMetricGroup(MetricGroup parentGroup) {
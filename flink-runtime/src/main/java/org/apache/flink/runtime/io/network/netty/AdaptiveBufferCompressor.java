@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+
+import java.util.ArrayDeque;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Compresses the buffers of one pipelined subpartition before they are sent over the network, as
+ * long as the compression pays off.
+ *
+ * <p>If a buffer does not shrink below {@link #MAX_COMPRESSION_RATIO} of its size, the following
+ * buffers of the subpartition are sent uncompressed, and compression is probed again afterwards.
+ * The number of skipped buffers doubles with each failed probe, so subpartitions with
+ * incompressible data only spend little CPU on compression.
+ *
+ * <p>The compressed data is copied into a separate buffer, because the memory of the original
+ * buffer may be shared with other subpartitions or still be written by the producer. The memory
+ * segments of these buffers are pooled: a segment returns to the pool when its buffer was sent and
+ * recycled, and the pool keeps up to {@link #MAX_POOLED_SEGMENTS} segments.
+ *
+ * <p>This class is not thread-safe, it must only be used by the event loop thread of the channel.
+ * Only the compressed buffers may be recycled by other threads.
+ */
+class AdaptiveBufferCompressor {
+
+    /** The maximum ratio of compressed to original size for the compression to pay off. */
+    @VisibleForTesting static final double MAX_COMPRESSION_RATIO = 0.8;
+
+    @VisibleForTesting static final int MIN_BUFFERS_TO_SKIP = 16;
+
+    @VisibleForTesting static final int MAX_BUFFERS_TO_SKIP = 4096;
+
+    /** The maximum number of segments of recycled compressed buffers which are kept for reuse. */
+    @VisibleForTesting static final int MAX_POOLED_SEGMENTS = 8;
+
+    /** The compressor, which is shared by all subpartitions of the channel. */
+    private final BufferCompressor bufferCompressor;
+
+    /** The number of buffers to send uncompressed before compression is probed again. */
+    private int numBuffersToSkip;
+
+    /** The number of buffers to skip after the next probe which does not pay off. */
+    private int nextNumBuffersToSkip;
+
+    /** The segments of recycled compressed buffers, guarded by itself. */
+    private final ArrayDeque<MemorySegment> pooledSegments = new ArrayDeque<>();
+
+    /** Returns the segments of the compressed buffers to the pool. */
+    private final BufferRecycler segmentRecycler = this::recycleSegment;
+
+    AdaptiveBufferCompressor(BufferCompressor bufferCompressor) {
+        this.bufferCompressor = checkNotNull(bufferCompressor);
+        this.numBuffersToSkip = 0;
+        this.nextNumBuffersToSkip = MIN_BUFFERS_TO_SKIP;
+    }
+
+    /**
+     * Returns the compressed buffer and recycles the given one, or returns the given buffer if it
+     * can not be compressed or compression is currently paused.
+     */
+    Buffer compressIfBeneficial(Buffer buffer) {
+        if (!buffer.isBuffer()
+                || buffer.isCompressed()
+                || buffer.readableBytes() == 0
+                || buffer.getReaderIndex() != 0) {
+            return buffer;
+        }
+
+        if (numBuffersToSkip > 0) {
+            numBuffersToSkip--;
+            return buffer;
+        }
+
+        Buffer compressedBuffer = bufferCompressor.compressToIntermediateBuffer(buffer);
+        if (compressedBuffer == buffer) {
+            // not compressible at all
+            pauseCompression();
+            return buffer;
+        }
+
+        try {
+            int compressedSize = compressedBuffer.readableBytes();
+            if (compressedSize > MAX_COMPRESSION_RATIO * buffer.readableBytes()) {
+                pauseCompression();
+            } else {
+                nextNumBuffersToSkip = MIN_BUFFERS_TO_SKIP;
+            }
+
+            // the compressed data is smaller than the original buffer, so a segment with the
+            // capacity of the original buffer can hold it
+            MemorySegment segment = requestSegment(buffer.getMaxCapacity());
+            segment.put(0, compressedBuffer.getNioBufferReadable(), compressedSize);
+            Buffer result =
+                    new NetworkBuffer(
+                            segment, segmentRecycler, buffer.getDataType(), true, compressedSize);
+            buffer.recycleBuffer();
+            return result;
+        } finally {
+            compressedBuffer.recycleBuffer();
+        }
+    }
+
+    private MemorySegment requestSegment(int minSize) {
+        MemorySegment segment;
+        synchronized (pooledSegments) {
+            segment = pooledSegments.poll();
+        }
+        if (segment == null || segment.size() < minSize) {
+            segment = MemorySegmentFactory.allocateUnpooledSegment(minSize);
+        }
+        return segment;
+    }
+
+    private void recycleSegment(MemorySegment segment) {
+        synchronized (pooledSegments) {
+            if (pooledSegments.size() < MAX_POOLED_SEGMENTS) {
+                pooledSegments.add(segment);
+            }
+        }
+    }
+
+    private void pauseCompression() {
+        numBuffersToSkip = nextNumBuffersToSkip;
+        nextNumBuffersToSkip = Math.min(2 * nextNumBuffersToSkip, MAX_BUFFERS_TO_SKIP);
+    }
+
+    @VisibleForTesting
+    int getNumBuffersToSkip() {
+        return numBuffersToSkip;
+    }
+}
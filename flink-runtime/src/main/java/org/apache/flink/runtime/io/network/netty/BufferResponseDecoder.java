@@ -18,6 +18,9 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
 
@@ -33,6 +36,12 @@ class BufferResponseDecoder extends NettyMessageDecoder {
     /** The Buffer allocator. */
     private final NetworkBufferAllocator allocator;
 
+    /**
+     * The decompressor for compressed data buffers, null if they are passed on compressed. The
+     * decompressed data is copied back into the received buffer.
+     */
+    @Nullable private final BufferDecompressor bufferDecompressor;
+
     /** The accumulation buffer of message header. */
     private ByteBuf messageHeaderBuffer;
 
@@ -46,7 +55,13 @@ class BufferResponseDecoder extends NettyMessageDecoder {
     private int decodedDataBufferSize;
 
     BufferResponseDecoder(NetworkBufferAllocator allocator) {
+        this(allocator, null);
+    }
+
+    BufferResponseDecoder(
+            NetworkBufferAllocator allocator, @Nullable BufferDecompressor bufferDecompressor) {
         this.allocator = checkNotNull(allocator);
+        this.bufferDecompressor = bufferDecompressor;
     }
 
     @Override
@@ -78,7 +93,7 @@ class BufferResponseDecoder extends NettyMessageDecoder {
             }
 
             if (decodedDataBufferSize == bufferResponse.bufferSize) {
-                BufferResponse result = bufferResponse;
+                BufferResponse result = decompressIfNeeded(bufferResponse);
                 clearState();
                 return DecodingResult.fullMessage(result);
             }
@@ -99,6 +114,25 @@ class BufferResponseDecoder extends NettyMessageDecoder {
         }
     }
 
+    private BufferResponse decompressIfNeeded(BufferResponse response) {
+        Buffer buffer = response.getBuffer();
+        if (bufferDecompressor == null || buffer == null || !buffer.isCompressed()) {
+            return response;
+        }
+
+        Buffer decompressedBuffer = bufferDecompressor.decompressToIntermediateBuffer(buffer);
+        try {
+            buffer.setSize(0);
+            buffer.asByteBuf().writeBytes(decompressedBuffer.getNioBufferReadable());
+            buffer.setCompressed(false);
+        } finally {
+            decompressedBuffer.recycleBuffer();
+        }
+
+        return new BufferResponse(
+                buffer, response.sequenceNumber, response.receiverId, response.backlog);
+    }
+
     private void clearState() {
         bufferResponse = null;
         decodedDataBufferSize = 0;
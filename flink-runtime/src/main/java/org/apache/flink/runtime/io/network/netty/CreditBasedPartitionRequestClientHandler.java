@@ -22,6 +22,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AckAllUserRecordsProcessed;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ResumeConsumption;
 import org.apache.flink.runtime.io.network.netty.exception.LocalTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
@@ -152,6 +153,17 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
                         });
     }
 
+    @Override
+    public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+        ctx.executor()
+                .execute(
+                        () ->
+                                ctx.pipeline()
+                                        .fireUserEventTriggered(
+                                                new NewBufferSizeMessage(
+                                                        inputChannel, bufferSize)));
+    }
+
     // ------------------------------------------------------------------------
     // Network events
     // ------------------------------------------------------------------------
@@ -481,4 +493,19 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
             return new AckAllUserRecordsProcessed(inputChannel.getInputChannelId());
         }
     }
+
+    private static class NewBufferSizeMessage extends ClientOutboundMessage {
+
+        private final int bufferSize;
+
+        NewBufferSizeMessage(RemoteInputChannel inputChannel, int bufferSize) {
+            super(checkNotNull(inputChannel));
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        Object buildMessage() {
+            return new NewBufferSize(bufferSize, inputChannel.getInputChannelId());
+        }
+    }
 }
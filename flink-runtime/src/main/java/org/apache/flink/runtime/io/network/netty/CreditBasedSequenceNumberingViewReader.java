@@ -21,7 +21,9 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
+import org.apache.flink.runtime.io.network.partition.PipelinedSubpartitionView;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
@@ -55,6 +57,9 @@ class CreditBasedSequenceNumberingViewReader
 
     private volatile ResultSubpartitionView subpartitionView;
 
+    /** Compresses the buffers sent to the consumer, null if they are sent as they are. */
+    @Nullable private AdaptiveBufferCompressor bufferCompressor;
+
     /**
      * The status indicating whether this reader is already enqueued in the pipeline for
      * transferring data or not.
@@ -93,6 +98,15 @@ class CreditBasedSequenceNumberingViewReader
                 this.subpartitionView =
                         partitionProvider.createSubpartitionView(
                                 resultPartitionId, subPartitionIndex, this);
+
+                // the buffers of blocking partitions are compressed by the partition if
+                // configured, and may be file regions which are sent without copying
+                BufferCompressor pipelinedBufferCompressor =
+                        requestQueue.getPipelinedBufferCompressor();
+                if (pipelinedBufferCompressor != null
+                        && subpartitionView instanceof PipelinedSubpartitionView) {
+                    this.bufferCompressor = new AdaptiveBufferCompressor(pipelinedBufferCompressor);
+                }
             } else {
                 throw new IllegalStateException("Subpartition already requested");
             }
@@ -121,6 +135,11 @@ class CreditBasedSequenceNumberingViewReader
         subpartitionView.acknowledgeAllRecordsProcessed();
     }
 
+    @Override
+    public void notifyNewBufferSize(int newBufferSize) {
+        subpartitionView.notifyNewBufferSize(newBufferSize);
+    }
+
     @Override
     public void setRegisteredAsAvailable(boolean isRegisteredAvailable) {
         this.isRegisteredAsAvailable = isRegisteredAvailable;
@@ -192,8 +211,12 @@ class CreditBasedSequenceNumberingViewReader
             }
 
             final Buffer.DataType nextDataType = getNextDataType(next);
+            final Buffer buffer =
+                    bufferCompressor != null
+                            ? bufferCompressor.compressIfBeneficial(next.buffer())
+                            : next.buffer();
             return new BufferAndAvailability(
-                    next.buffer(), nextDataType, next.buffersInBacklog(), next.getSequenceNumber());
+                    buffer, nextDataType, next.buffersInBacklog(), next.getSequenceNumber());
         } else {
             return null;
         }
@@ -152,6 +152,19 @@ public class NettyConfig {
         return getSSLEnabled() ? SSLUtils.createInternalServerSSLEngineFactory(config) : null;
     }
 
+    public int getMemorySegmentSize() {
+        return memorySegmentSize;
+    }
+
+    public boolean isPipelinedShuffleCompressionEnabled() {
+        return config.getBoolean(
+                NettyShuffleEnvironmentOptions.PIPELINED_SHUFFLE_COMPRESSION_ENABLED);
+    }
+
+    public String getCompressionCodec() {
+        return config.getString(NettyShuffleEnvironmentOptions.SHUFFLE_COMPRESSION_CODEC);
+    }
+
     public boolean getSSLEnabled() {
         return config.getBoolean(NettyShuffleEnvironmentOptions.DATA_SSL_ENABLED)
                 && SecurityOptions.isInternalSSLEnabled(config);
@@ -54,7 +54,11 @@ public class NettyConnectionManager implements ConnectionManager {
 
         this.nettyProtocol =
                 new NettyProtocol(
-                        checkNotNull(partitionProvider), checkNotNull(taskEventPublisher));
+                        checkNotNull(partitionProvider),
+                        checkNotNull(taskEventPublisher),
+                        nettyConfig.getCompressionCodec(),
+                        nettyConfig.getMemorySegmentSize(),
+                        nettyConfig.isPipelinedShuffleCompressionEnabled());
     }
 
     @Override
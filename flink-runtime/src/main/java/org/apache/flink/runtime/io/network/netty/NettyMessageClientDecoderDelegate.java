@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.util.IOUtils;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
@@ -28,6 +29,8 @@ import org.apache.flink.shaded.netty4.io.netty.channel.ChannelInboundHandlerAdap
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.FRAME_HEADER_LENGTH;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.MAGIC_NUMBER;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -63,9 +66,16 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
     private NettyMessageDecoder currentDecoder;
 
     NettyMessageClientDecoderDelegate(NetworkClientHandler networkClientHandler) {
+        this(networkClientHandler, null);
+    }
+
+    NettyMessageClientDecoderDelegate(
+            NetworkClientHandler networkClientHandler,
+            @Nullable BufferDecompressor bufferDecompressor) {
         this.bufferResponseDecoder =
                 new BufferResponseDecoder(
-                        new NetworkBufferAllocator(checkNotNull(networkClientHandler)));
+                        new NetworkBufferAllocator(checkNotNull(networkClientHandler)),
+                        bufferDecompressor);
         this.nonBufferResponseDecoder = new NonBufferResponseDecoder();
     }
 
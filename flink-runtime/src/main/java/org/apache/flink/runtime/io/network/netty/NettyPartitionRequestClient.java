@@ -208,6 +208,11 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
         clientHandler.acknowledgeAllRecordsProcessed(inputChannel);
     }
 
+    @Override
+    public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+        clientHandler.notifyNewBufferSize(inputChannel, bufferSize);
+    }
+
     @Override
     public void close(RemoteInputChannel inputChannel) throws IOException {
 
@@ -20,10 +20,16 @@ package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
 
+import javax.annotation.Nullable;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
 /** Defines the server and client channel handlers, i.e. the protocol, used by netty. */
 public class NettyProtocol {
 
@@ -33,10 +39,35 @@ public class NettyProtocol {
     private final ResultPartitionProvider partitionProvider;
     private final TaskEventPublisher taskEventPublisher;
 
+    /**
+     * The codec of the compressed buffers, null if buffers are neither compressed nor decompressed
+     * by the channel handlers.
+     */
+    @Nullable private final String compressionCodec;
+
+    private final int networkBufferSize;
+
+    /** Whether the buffers of pipelined partitions are compressed before they are sent. */
+    private final boolean compressPipelinedShuffle;
+
     NettyProtocol(
             ResultPartitionProvider partitionProvider, TaskEventPublisher taskEventPublisher) {
+        this(partitionProvider, taskEventPublisher, null, -1, false);
+    }
+
+    NettyProtocol(
+            ResultPartitionProvider partitionProvider,
+            TaskEventPublisher taskEventPublisher,
+            @Nullable String compressionCodec,
+            int networkBufferSize,
+            boolean compressPipelinedShuffle) {
+        checkArgument(compressionCodec == null || networkBufferSize > 0);
+        checkArgument(!compressPipelinedShuffle || compressionCodec != null);
         this.partitionProvider = partitionProvider;
         this.taskEventPublisher = taskEventPublisher;
+        this.compressionCodec = compressionCodec;
+        this.networkBufferSize = networkBufferSize;
+        this.compressPipelinedShuffle = compressPipelinedShuffle;
     }
 
     /**
@@ -73,7 +104,13 @@ public class NettyProtocol {
      * @return channel handlers
      */
     public ChannelHandler[] getServerChannelHandlers() {
-        PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue();
+        // the handlers of a channel are only called by its event loop thread, so the compressor
+        // of the pipelined subpartitions can be shared by all readers of the channel
+        PartitionRequestQueue queueOfPartitionQueues =
+                new PartitionRequestQueue(
+                        compressPipelinedShuffle
+                                ? new BufferCompressor(networkBufferSize, compressionCodec)
+                                : null);
         PartitionRequestServerHandler serverHandler =
                 new PartitionRequestServerHandler(
                         partitionProvider, taskEventPublisher, queueOfPartitionQueues);
@@ -121,9 +158,16 @@ public class NettyProtocol {
     public ChannelHandler[] getClientChannelHandlers() {
         NetworkClientHandler networkClientHandler = new CreditBasedPartitionRequestClientHandler();
 
+        // the producers might compress their pipelined partitions independently of the local
+        // configuration, so the client always decompresses. Uncompressed buffers are passed on as
+        // they are, compressed buffers of blocking partitions reach the input gates decompressed.
         return new ChannelHandler[] {
             messageEncoder,
-            new NettyMessageClientDecoderDelegate(networkClientHandler),
+            new NettyMessageClientDecoderDelegate(
+                    networkClientHandler,
+                    compressionCodec != null
+                            ? new BufferDecompressor(networkBufferSize, compressionCodec)
+                            : null),
             networkClientHandler
         };
     }
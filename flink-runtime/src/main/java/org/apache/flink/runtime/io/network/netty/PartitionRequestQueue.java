@@ -21,6 +21,7 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
 import org.apache.flink.runtime.io.network.partition.ProducerFailedException;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
@@ -65,10 +66,21 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
     private final ConcurrentMap<InputChannelID, NetworkSequenceViewReader> allReaders =
             new ConcurrentHashMap<>();
 
+    /** The compressor for the buffers of pipelined subpartitions, null if disabled. */
+    @Nullable private final BufferCompressor pipelinedBufferCompressor;
+
     private boolean fatalError;
 
     private ChannelHandlerContext ctx;
 
+    PartitionRequestQueue() {
+        this(null);
+    }
+
+    PartitionRequestQueue(@Nullable BufferCompressor pipelinedBufferCompressor) {
+        this.pipelinedBufferCompressor = pipelinedBufferCompressor;
+    }
+
     @Override
     public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
         if (this.ctx == null) {
@@ -136,6 +148,11 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
         return availableReaders;
     }
 
+    @Nullable
+    BufferCompressor getPipelinedBufferCompressor() {
+        return pipelinedBufferCompressor;
+    }
+
     public void notifyReaderCreated(final NetworkSequenceViewReader reader) {
         allReaders.put(reader.getReceiverId(), reader);
     }
@@ -191,6 +208,19 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
         }
     }
 
+    void notifyNewBufferSize(InputChannelID receiverId, int newBufferSize) {
+        if (fatalError) {
+            return;
+        }
+
+        // The consumer announces the buffer size to all of its channels, some of which may not
+        // have requested their subpartition yet. The size is simply dropped for those channels.
+        NetworkSequenceViewReader reader = allReaders.get(receiverId);
+        if (reader != null) {
+            reader.notifyNewBufferSize(newBufferSize);
+        }
+    }
+
     /**
      * Announces remaining backlog to the consumer after the available data notification or data
      * consumption resumption.
@@ -155,6 +155,40 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         // partial buffer, full record
     }
 
+    @Override
+    public void emitRecords(ByteBuffer records, int targetSubpartition) throws IOException {
+        // start of the first record which was not completely written yet
+        int nextRecordStart = records.position();
+        BufferBuilder buffer = appendUnicastDataForNewRecord(records, targetSubpartition);
+
+        while (records.hasRemaining()) {
+            // full buffer, partial records
+            nextRecordStart = skipCompleteRecords(records, nextRecordStart);
+            finishUnicastBufferBuilder(targetSubpartition);
+            buffer =
+                    appendUnicastDataForRecordsContinuation(
+                            records, nextRecordStart - records.position(), targetSubpartition);
+        }
+
+        if (buffer.isFull()) {
+            // full buffer, full records
+            finishUnicastBufferBuilder(targetSubpartition);
+        }
+
+        // partial buffer, full records
+    }
+
+    /**
+     * Returns the start of the first record of the given length prefixed records which reaches
+     * beyond the current position, beginning the search at the given record start.
+     */
+    private static int skipCompleteRecords(ByteBuffer records, int recordStart) {
+        while (recordStart < records.position()) {
+            recordStart += Integer.BYTES + records.getInt(recordStart);
+        }
+        return recordStart;
+    }
+
     @Override
     public void broadcastRecord(ByteBuffer record) throws IOException {
         BufferBuilder buffer = appendBroadcastDataForNewRecord(record);
@@ -269,6 +303,23 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         return buffer;
     }
 
+    private BufferBuilder appendUnicastDataForRecordsContinuation(
+            final ByteBuffer remainingRecordsBytes,
+            final int remainingPartialRecordBytes,
+            final int targetSubpartition)
+            throws IOException {
+        final BufferBuilder buffer = requestNewUnicastBufferBuilder(targetSubpartition);
+        // !! Same as for a single record, the data has to be appended before the consumer is
+        // created. Only the rest of the record which was cut off counts as partial record, the
+        // following records of the batch start within this buffer.
+        final int writtenBytes = buffer.appendAndCommit(remainingRecordsBytes);
+        subpartitions[targetSubpartition].add(
+                buffer.createBufferConsumerFromBeginning(),
+                Math.min(remainingPartialRecordBytes, writtenBytes));
+
+        return buffer;
+    }
+
     private BufferBuilder appendBroadcastDataForNewRecord(final ByteBuffer record)
             throws IOException {
         BufferBuilder buffer = broadcastBufferBuilder;
@@ -312,6 +363,7 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         checkInProduceState();
         ensureUnicastMode();
         final BufferBuilder bufferBuilder = requestNewBufferBuilderFromPool(targetSubpartition);
+        bufferBuilder.trim(subpartitions[targetSubpartition].getBufferSize());
         unicastBufferBuilders[targetSubpartition] = bufferBuilder;
 
         return bufferBuilder;
@@ -322,10 +374,20 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         ensureBroadcastMode();
 
         final BufferBuilder bufferBuilder = requestNewBufferBuilderFromPool(0);
+        bufferBuilder.trim(getMinBufferSizeOfSubpartitions());
         broadcastBufferBuilder = bufferBuilder;
         return bufferBuilder;
     }
 
+    /** The broadcast buffers are shared by all subpartitions, so they fit the smallest size. */
+    private int getMinBufferSizeOfSubpartitions() {
+        int minBufferSize = Integer.MAX_VALUE;
+        for (ResultSubpartition subpartition : subpartitions) {
+            minBufferSize = Math.min(minBufferSize, subpartition.getBufferSize());
+        }
+        return minBufferSize;
+    }
+
     private BufferBuilder requestNewBufferBuilderFromPool(int targetSubpartition)
             throws IOException {
         BufferBuilder bufferBuilder = bufferPool.requestBufferBuilder(targetSubpartition);
@@ -41,8 +41,11 @@ class PartitionedFileReader {
     /** Used to read index entry from index file. */
     private final ByteBuffer indexEntryBuf;
 
-    /** Target {@link PartitionedFile} to read. */
-    private final PartitionedFile partitionedFile;
+    /**
+     * Target {@link PartitionedFile} to read. It is replaced by files containing more regions while
+     * the data of a {@link ResultPartitionType#HYBRID} partition is still being produced.
+     */
+    private volatile PartitionedFile partitionedFile;
 
     /** Target subpartition to read. */
     private final int targetSubpartition;
@@ -81,6 +84,7 @@ class PartitionedFileReader {
     }
 
     private void moveToNextReadableRegion() throws IOException {
+        PartitionedFile partitionedFile = this.partitionedFile;
         while (currentRegionRemainingBuffers <= 0
                 && nextRegionToRead < partitionedFile.getNumRegions()) {
             partitionedFile.getIndexEntry(
@@ -119,6 +123,24 @@ class PartitionedFileReader {
         return currentRegionRemainingBuffers > 0;
     }
 
+    /**
+     * Updates the target {@link PartitionedFile} to a file of the same data which contains all
+     * regions of the current file and possibly more.
+     */
+    void updatePartitionedFile(PartitionedFile newPartitionedFile) {
+        checkArgument(
+                newPartitionedFile.getDataFilePath().equals(partitionedFile.getDataFilePath())
+                        && newPartitionedFile.getNumRegions() >= partitionedFile.getNumRegions(),
+                "Illegal partitioned file update.");
+
+        partitionedFile = newPartitionedFile;
+    }
+
+    /** Whether there are regions in the target {@link PartitionedFile} not visited yet. */
+    boolean hasUnvisitedRegions() {
+        return nextRegionToRead < partitionedFile.getNumRegions();
+    }
+
     /** Gets read priority of this file reader. Smaller value indicates higher priority. */
     long getPriority() {
         return nextOffsetToRead;
@@ -77,6 +77,12 @@ public class PartitionedFileWriter implements AutoCloseable {
     /** Whether all index entries are cached in the index buffer or not. */
     private boolean allIndexEntriesCached = true;
 
+    /**
+     * Number of bytes of the index buffer which are already persisted to the index file by {@link
+     * #getFinishedRegions()} but not yet by flushing the index buffer.
+     */
+    private int numIndexBytesPersisted;
+
     /** Number of bytes written to the target {@link PartitionedFile}. */
     private long totalBytesWritten;
 
@@ -160,6 +166,7 @@ public class PartitionedFileWriter implements AutoCloseable {
             if (!extendIndexBufferIfPossible()) {
                 flushIndexBuffer();
                 indexBuffer.clear();
+                numIndexBytesPersisted = 0;
                 allIndexEntriesCached = false;
             }
         }
@@ -195,6 +202,23 @@ public class PartitionedFileWriter implements AutoCloseable {
         }
     }
 
+    /**
+     * Writes the index entries cached in the index buffer to the index file without clearing the
+     * index buffer. The positional write does not move the file position, so the cached entries are
+     * written to the same position again when the index buffer is flushed.
+     */
+    private void persistIndexBuffer() throws IOException {
+        ByteBuffer toPersist = indexBuffer.duplicate();
+        toPersist.flip();
+        toPersist.position(numIndexBytesPersisted);
+
+        long position = indexFileChannel.position() + numIndexBytesPersisted;
+        while (toPersist.hasRemaining()) {
+            position += indexFileChannel.write(toPersist, position);
+        }
+        numIndexBytesPersisted = indexBuffer.position();
+    }
+
     private void flushIndexBuffer() throws IOException {
         indexBuffer.flip();
         if (indexBuffer.limit() > 0) {
@@ -287,6 +311,33 @@ public class PartitionedFileWriter implements AutoCloseable {
         return header.remaining() + buffer.readableBytes();
     }
 
+    /**
+     * Finishes the current data region and returns a {@link PartitionedFile} containing all data
+     * regions written so far. The returned file can be read while this writer continues writing new
+     * regions, which is used by {@link ResultPartitionType#HYBRID} partitions.
+     *
+     * <p>Note: The caller is responsible for releasing the failed {@link PartitionedFile} if any
+     * exception occurs.
+     */
+    public PartitionedFile getFinishedRegions() throws IOException {
+        checkState(!isFinished, "File writer is already finished.");
+        checkState(!isClosed, "File writer is already closed.");
+
+        writeRegionIndex();
+        persistIndexBuffer();
+
+        // the index entries are read from the index file, because the cache is still updated
+        return new PartitionedFile(
+                numRegions,
+                numSubpartitions,
+                dataFilePath,
+                indexFilePath,
+                totalBytesWritten,
+                indexFileChannel.position() + numIndexBytesPersisted,
+                numBuffers,
+                null);
+    }
+
     /**
      * Finishes writing the {@link PartitionedFile} which closes the file channel and returns the
      * corresponding {@link PartitionedFile}.
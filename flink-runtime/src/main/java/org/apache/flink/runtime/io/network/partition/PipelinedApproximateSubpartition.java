@@ -103,6 +103,12 @@ public class PipelinedApproximateSubpartition extends PipelinedSubpartition {
         }
     }
 
+    @Override
+    public void bufferSize(int newBufferSize) {
+        // The cleanup of partial records relies on buffers of the full segment size, so the size
+        // requested by the consumer is ignored.
+    }
+
     @Override
     public void finishReadRecoveredState(boolean notifyAndBlockOnCompletion) throws IOException {
         // The Approximate Local Recovery can not work with unaligned checkpoint for now, so no need
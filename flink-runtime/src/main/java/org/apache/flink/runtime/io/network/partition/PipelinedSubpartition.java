@@ -108,6 +108,9 @@ public class PipelinedSubpartition extends ResultSubpartition
     /** Writes in-flight data. */
     private ChannelStateWriter channelStateWriter;
 
+    /** The desired size of new buffers, which is announced by the consumer. */
+    private volatile int bufferSize = Integer.MAX_VALUE;
+
     /**
      * Whether this subpartition is blocked (e.g. by exactly once checkpoint) and is waiting for
      * resumption.
@@ -474,6 +477,17 @@ public class PipelinedSubpartition extends ResultSubpartition
                 hasReadView);
     }
 
+    @Override
+    public void bufferSize(int newBufferSize) {
+        checkArgument(newBufferSize > 0, "Buffer size must be positive.");
+        this.bufferSize = newBufferSize;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
     @Override
     public int unsynchronizedGetNumberOfQueuedBuffers() {
         // since we do not synchronize, the size may actually be lower than 0!
@@ -99,6 +99,11 @@ public class PipelinedSubpartitionView implements ResultSubpartitionView {
         return parent.unsynchronizedGetNumberOfQueuedBuffers();
     }
 
+    @Override
+    public void notifyNewBufferSize(int newBufferSize) {
+        parent.bufferSize(newBufferSize);
+    }
+
     @Override
     public String toString() {
         return String.format(
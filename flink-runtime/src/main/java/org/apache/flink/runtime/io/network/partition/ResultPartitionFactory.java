@@ -38,7 +38,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 
 /** Factory for {@link ResultPartition} to use in {@link NettyShuffleEnvironment}. */
 public class ResultPartitionFactory {
@@ -53,7 +53,7 @@ public class ResultPartitionFactory {
 
     private final BatchShuffleReadBufferPool batchShuffleReadBufferPool;
 
-    private final ExecutorService batchShuffleReadIOExecutor;
+    private final Executor batchShuffleReadIOExecutor;
 
     private final BoundedBlockingSubpartitionType blockingSubpartitionType;
 
@@ -80,7 +80,7 @@ public class ResultPartitionFactory {
             FileChannelManager channelManager,
             BufferPoolFactory bufferPoolFactory,
             BatchShuffleReadBufferPool batchShuffleReadBufferPool,
-            ExecutorService batchShuffleReadIOExecutor,
+            Executor batchShuffleReadIOExecutor,
             BoundedBlockingSubpartitionType blockingSubpartitionType,
             int configuredNetworkBuffersPerChannel,
             int floatingNetworkBuffersPerGate,
@@ -169,8 +169,11 @@ public class ResultPartitionFactory {
 
             partition = pipelinedPartition;
         } else if (type == ResultPartitionType.BLOCKING
-                || type == ResultPartitionType.BLOCKING_PERSISTENT) {
-            if (numberOfSubpartitions >= sortShuffleMinParallelism) {
+                || type == ResultPartitionType.BLOCKING_PERSISTENT
+                || type == ResultPartitionType.HYBRID) {
+            // hybrid partitions rely on the data regions of the sort-merge partition being
+            // readable before the partition is finished
+            if (type.isHybrid() || numberOfSubpartitions >= sortShuffleMinParallelism) {
                 partition =
                         new SortMergeResultPartition(
                                 taskNameWithSubtaskAndId,
@@ -32,7 +32,7 @@ public enum ResultPartitionType {
      * {@link #PIPELINED} partitions), but only released through the scheduler, when it determines
      * that the partition is no longer needed.
      */
-    BLOCKING(false, false, false, false, true),
+    BLOCKING(false, false, false, false, true, false),
 
     /**
      * BLOCKING_PERSISTENT partitions are similar to {@link #BLOCKING} partitions, but have a
@@ -45,7 +45,7 @@ public enum ResultPartitionType {
      * scenarios, like when the TaskManager exits or when the TaskManager looses connection to
      * JobManager / ResourceManager for too long.
      */
-    BLOCKING_PERSISTENT(false, false, false, true, true),
+    BLOCKING_PERSISTENT(false, false, false, true, true, false),
 
     /**
      * A pipelined streaming data exchange. This is applicable to both bounded and unbounded
@@ -57,7 +57,7 @@ public enum ResultPartitionType {
      * <p>This result partition type may keep an arbitrary amount of data in-flight, in contrast to
      * the {@link #PIPELINED_BOUNDED} variant.
      */
-    PIPELINED(true, true, false, false, false),
+    PIPELINED(true, true, false, false, false, false),
 
     /**
      * Pipelined partitions with a bounded (local) buffer pool.
@@ -70,7 +70,7 @@ public enum ResultPartitionType {
      * <p>For batch jobs, it will be best to keep this unlimited ({@link #PIPELINED}) since there
      * are no checkpoint barriers.
      */
-    PIPELINED_BOUNDED(true, true, true, false, false),
+    PIPELINED_BOUNDED(true, true, true, false, false, false),
 
     /**
      * Pipelined partitions with a bounded (local) buffer pool to support downstream task to
@@ -81,7 +81,20 @@ public enum ResultPartitionType {
      * in that {@link #PIPELINED_APPROXIMATE} partition can be reconnected after down stream task
      * fails.
      */
-    PIPELINED_APPROXIMATE(true, true, true, false, true);
+    PIPELINED_APPROXIMATE(true, true, true, false, true, false),
+
+    /**
+     * Hybrid partitions are {@link #BLOCKING} partitions whose data can already be consumed while
+     * the partition is still being produced.
+     *
+     * <p>The data is spilled region by region, and the regions spilled so far can be read by the
+     * consumers before the producer finishes. Because the producer does not depend on the
+     * consumers, a hybrid data exchange is a boundary between pipelined regions like a blocking
+     * one, but the consumers can be scheduled as soon as the producers are running. This allows
+     * stages of batch jobs to overlap if there are free slots, without requiring all of them to be
+     * scheduled at once.
+     */
+    HYBRID(false, false, false, false, true, true);
 
     /** Can the partition be consumed while being produced? */
     private final boolean isPipelined;
@@ -107,18 +120,23 @@ public enum ResultPartitionType {
      */
     private final boolean isReconnectable;
 
+    /** Can the data of this blocking partition be consumed while the partition is produced? */
+    private final boolean isHybrid;
+
     /** Specifies the behaviour of an intermediate result partition at runtime. */
     ResultPartitionType(
             boolean isPipelined,
             boolean hasBackPressure,
             boolean isBounded,
             boolean isPersistent,
-            boolean isReconnectable) {
+            boolean isReconnectable,
+            boolean isHybrid) {
         this.isPipelined = isPipelined;
         this.hasBackPressure = hasBackPressure;
         this.isBounded = isBounded;
         this.isPersistent = isPersistent;
         this.isReconnectable = isReconnectable;
+        this.isHybrid = isHybrid;
     }
 
     public boolean hasBackPressure() {
@@ -137,6 +155,16 @@ public enum ResultPartitionType {
         return isReconnectable;
     }
 
+    /**
+     * Whether this is a blocking partition which can be consumed while being produced.
+     *
+     * @return <tt>true</tt> if the consumers can read the data produced so far before the partition
+     *     is finished
+     */
+    public boolean isHybrid() {
+        return isHybrid;
+    }
+
     /**
      * Whether this partition uses a limited number of (network) buffers or not.
      *
@@ -97,6 +97,19 @@ public abstract class ResultSubpartition {
 
     public abstract boolean isReleased();
 
+    /**
+     * Sets the size of new buffers of this subpartition, as requested by the consumer. Buffers of
+     * subpartitions which do not support this always use the full memory segment.
+     *
+     * @param newBufferSize the new buffer size in bytes.
+     */
+    public void bufferSize(int newBufferSize) {}
+
+    /** Gets the desired size of new buffers of this subpartition. */
+    public int getBufferSize() {
+        return Integer.MAX_VALUE;
+    }
+
     /** Gets the number of non-event buffers in this subpartition. */
     abstract int getBuffersInBacklogUnsafe();
 
@@ -61,6 +61,14 @@ public interface ResultSubpartitionView {
 
     int unsynchronizedGetNumberOfQueuedBuffers();
 
+    /**
+     * Notifies the producer of the desired size of new buffers, which the consumer announced to
+     * limit the amount of in-flight data. Views which do not support this ignore the notification.
+     *
+     * @param newBufferSize the new buffer size in bytes.
+     */
+    default void notifyNewBufferSize(int newBufferSize) {}
+
     /**
      * Availability of the {@link ResultSubpartitionView} and the backlog in the corresponding
      * {@link ResultSubpartition}.
@@ -60,6 +60,9 @@ import static org.apache.flink.util.Preconditions.checkState;
  * {@link PartitionedFile} in subpartition index order sequentially. Large records that can not be
  * appended to an empty {@link SortBuffer} will be spilled to the result {@link PartitionedFile}
  * separately.
+ *
+ * <p>For {@link ResultPartitionType#HYBRID} partitions, each spilled data region becomes readable
+ * immediately, so the consumers can read the data while this partition is still being produced.
  */
 @NotThreadSafe
 public class SortMergeResultPartition extends ResultPartition {
@@ -76,6 +79,14 @@ public class SortMergeResultPartition extends ResultPartition {
     @GuardedBy("lock")
     private PartitionedFile resultFile;
 
+    /**
+     * {@link PartitionedFile} of the data regions spilled so far, which can be read by the
+     * consumers of a {@link ResultPartitionType#HYBRID} partition before the result file is
+     * finished.
+     */
+    @GuardedBy("lock")
+    private PartitionedFile spilledRegionsFile;
+
     /** Buffers cut from the network buffer pool for data writing. */
     @GuardedBy("lock")
     private final List<MemorySegment> writeSegments = new ArrayList<>();
@@ -138,13 +149,20 @@ public class SortMergeResultPartition extends ResultPartition {
         // input balance of the downstream tasks
         this.subpartitionOrder = getRandomSubpartitionOrder(numSubpartitions);
         this.readScheduler =
-                new SortMergeResultPartitionReadScheduler(readBufferPool, readIOExecutor, lock);
+                new SortMergeResultPartitionReadScheduler(
+                        readBufferPool, readIOExecutor, lock, partitionType.isHybrid());
 
         PartitionedFileWriter fileWriter = null;
         try {
             // allocate at most 4M heap memory for caching of index entries
             fileWriter = new PartitionedFileWriter(numSubpartitions, 4194304, resultFileBasePath);
+            if (partitionType.isHybrid()) {
+                spilledRegionsFile = fileWriter.getFinishedRegions();
+            }
         } catch (Throwable throwable) {
+            if (fileWriter != null) {
+                fileWriter.releaseQuietly();
+            }
             ExceptionUtils.rethrow(throwable);
         }
         this.fileWriter = fileWriter;
@@ -325,6 +343,7 @@ public class SortMergeResultPartition extends ResultPartition {
             }
 
             fileWriter.writeBuffers(toWrite);
+            mayNotifySpilledRegions();
         }
 
         releaseSortBuffer(sortBuffer);
@@ -390,6 +409,20 @@ public class SortMergeResultPartition extends ResultPartition {
         }
 
         fileWriter.writeBuffers(toWrite);
+        mayNotifySpilledRegions();
+    }
+
+    /** Makes the spilled data regions of a hybrid partition readable for the consumers. */
+    private void mayNotifySpilledRegions() throws IOException {
+        if (!partitionType.isHybrid()) {
+            return;
+        }
+
+        PartitionedFile spilledRegions = fileWriter.getFinishedRegions();
+        synchronized (lock) {
+            spilledRegionsFile = spilledRegions;
+            readScheduler.updateResultFile(spilledRegions, false);
+        }
     }
 
     @Override
@@ -404,6 +437,9 @@ public class SortMergeResultPartition extends ResultPartition {
             checkState(!isReleased(), "Result partition is already released.");
 
             resultFile = fileWriter.finish();
+            if (partitionType.isHybrid()) {
+                readScheduler.updateResultFile(resultFile, true);
+            }
             LOG.info("New partitioned file produced: {}.", resultFile);
         }
 
@@ -440,10 +476,14 @@ public class SortMergeResultPartition extends ResultPartition {
         synchronized (lock) {
             checkElementIndex(subpartitionIndex, numSubpartitions, "Subpartition not found.");
             checkState(!isReleased(), "Partition released.");
-            checkState(isFinished(), "Trying to read unfinished blocking partition.");
+            checkState(
+                    isFinished() || partitionType.isHybrid(),
+                    "Trying to read unfinished blocking partition.");
 
+            // consumers of a hybrid partition can read the spilled regions before it is finished
+            PartitionedFile fileToRead = resultFile != null ? resultFile : spilledRegionsFile;
             return readScheduler.crateSubpartitionReader(
-                    availabilityListener, subpartitionIndex, resultFile);
+                    availabilityListener, subpartitionIndex, fileToRead);
         }
     }
 
@@ -23,6 +23,7 @@ import org.apache.flink.api.common.time.Deadline;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadIOScheduler.ReadTask;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
 import org.apache.flink.util.FatalExitExceptionHandler;
 import org.apache.flink.util.IOUtils;
@@ -30,6 +31,7 @@ import org.apache.flink.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
@@ -57,9 +59,11 @@ import static org.apache.flink.util.Preconditions.checkState;
  * Data reader for {@link SortMergeResultPartition} which can read data for all downstream tasks
  * consuming the corresponding {@link SortMergeResultPartition}. It always tries to read shuffle
  * data in order of file offset, which maximums the sequential read so can improve the blocking
- * shuffle performance.
+ * shuffle performance. When running on a {@link
+ * org.apache.flink.runtime.io.disk.BatchShuffleReadIOScheduler}, the reading tasks of all result
+ * partitions on the same disk are additionally ordered by file and file offset.
  */
-class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler {
+class SortMergeResultPartitionReadScheduler implements ReadTask, BufferRecycler {
 
     private static final Logger LOG =
             LoggerFactory.getLogger(SortMergeResultPartitionReadScheduler.class);
@@ -96,6 +100,21 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
     @GuardedBy("lock")
     private final Set<SortMergeSubpartitionReader> allReaders = new HashSet<>();
 
+    /**
+     * Readers which have read all data written so far of a result file which is still being
+     * produced. They are not scheduled until new data regions are written.
+     */
+    @GuardedBy("lock")
+    private final Set<SortMergeSubpartitionReader> waitingReaders = new HashSet<>();
+
+    /** Whether new data regions may still be written to the result file or not. */
+    @GuardedBy("lock")
+    private boolean isResultFileGrowing;
+
+    /** Path of the data file which is read by all subpartitions. */
+    @GuardedBy("lock")
+    private Path dataFilePath;
+
     /** File channel shared by all subpartitions to read data from. */
     @GuardedBy("lock")
     private FileChannel dataFileChannel;
@@ -121,7 +140,20 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
 
     SortMergeResultPartitionReadScheduler(
             BatchShuffleReadBufferPool bufferPool, Executor ioExecutor, Object lock) {
+        this(bufferPool, ioExecutor, lock, false);
+    }
+
+    /**
+     * Creates a read scheduler. If the result file is growing, the readers can be created before
+     * the result file is finished, and {@link #updateResultFile} must be called for new regions.
+     */
+    SortMergeResultPartitionReadScheduler(
+            BatchShuffleReadBufferPool bufferPool,
+            Executor ioExecutor,
+            Object lock,
+            boolean isResultFileGrowing) {
         this.lock = checkNotNull(lock);
+        this.isResultFileGrowing = isResultFileGrowing;
         this.bufferPool = checkNotNull(bufferPool);
         this.ioExecutor = checkNotNull(ioExecutor);
         // one partition reader can consume at most 32M (the expected buffers per request is 8M)
@@ -231,16 +263,25 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
             int numBuffersRead, Set<SortMergeSubpartitionReader> finishedReaders) {
         synchronized (lock) {
             for (SortMergeSubpartitionReader reader : finishedReaders) {
+                // the result file may have been updated while the reader was reading
+                if (reader.hasUnreadRegions()) {
+                    continue;
+                }
+
                 allReaders.remove(reader);
+                if (isResultFileGrowing) {
+                    waitingReaders.add(reader);
+                }
             }
             finishedReaders.clear();
 
             for (SortMergeSubpartitionReader reader : failedReaders) {
                 allReaders.remove(reader);
+                waitingReaders.remove(reader);
             }
             failedReaders.clear();
 
-            if (allReaders.isEmpty()) {
+            if (hasNoReaders()) {
                 closeFileChannels();
             }
 
@@ -254,11 +295,17 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
     private void mayNotifyReleased() {
         assert Thread.holdsLock(lock);
 
-        if (isReleased && allReaders.isEmpty()) {
+        if (isReleased && hasNoReaders()) {
             releaseFuture.complete(null);
         }
     }
 
+    private boolean hasNoReaders() {
+        assert Thread.holdsLock(lock);
+
+        return allReaders.isEmpty() && waitingReaders.isEmpty();
+    }
+
     private Queue<SortMergeSubpartitionReader> getAvailableReaders() {
         synchronized (lock) {
             if (isReleased) {
@@ -294,7 +341,41 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
         synchronized (lock) {
             if (allReaders.contains(subpartitionReader)) {
                 failedReaders.add(subpartitionReader);
+            } else if (waitingReaders.remove(subpartitionReader)) {
+                // waiting readers are not accessed by the IO thread so can be removed directly
+                if (hasNoReaders()) {
+                    closeFileChannels();
+                }
+                mayNotifyReleased();
+            }
+        }
+    }
+
+    /**
+     * Notifies that new data regions have been written to the result file and reschedules the
+     * readers waiting for data.
+     *
+     * @param resultFile The result file containing all data regions written so far.
+     * @param isFinished Whether the result file is finished and no more regions will be written.
+     */
+    void updateResultFile(PartitionedFile resultFile, boolean isFinished) {
+        synchronized (lock) {
+            checkState(isResultFileGrowing, "Result file is already finished.");
+            isResultFileGrowing = !isFinished;
+            if (isReleased) {
+                return;
             }
+
+            for (SortMergeSubpartitionReader reader : allReaders) {
+                reader.updateResultFile(resultFile);
+            }
+            for (SortMergeSubpartitionReader reader : waitingReaders) {
+                reader.updateResultFile(resultFile);
+            }
+            allReaders.addAll(waitingReaders);
+            waitingReaders.clear();
+
+            mayTriggerReading();
         }
     }
 
@@ -303,13 +384,13 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
         assert Thread.holdsLock(lock);
 
         try {
-            if (allReaders.isEmpty()) {
+            if (hasNoReaders()) {
                 openFileChannels(resultFile);
             }
             return new PartitionedFileReader(
                     resultFile, targetSubpartition, dataFileChannel, indexFileChannel);
         } catch (Throwable throwable) {
-            if (allReaders.isEmpty()) {
+            if (hasNoReaders()) {
                 closeFileChannels();
             }
             throw throwable;
@@ -320,7 +401,8 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
         assert Thread.holdsLock(lock);
 
         closeFileChannels();
-        dataFileChannel = openFileChannel(resultFile.getDataFilePath());
+        dataFilePath = resultFile.getDataFilePath();
+        dataFileChannel = openFileChannel(dataFilePath);
         indexFileChannel = openFileChannel(resultFile.getIndexFilePath());
     }
 
@@ -328,10 +410,34 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
         assert Thread.holdsLock(lock);
 
         IOUtils.closeAllQuietly(dataFileChannel, indexFileChannel);
+        dataFilePath = null;
         dataFileChannel = null;
         indexFileChannel = null;
     }
 
+    @Nullable
+    @Override
+    public Path getFilePath() {
+        synchronized (lock) {
+            return dataFilePath;
+        }
+    }
+
+    /**
+     * Returns the smallest file offset to be read by all pending readers. The offsets are updated
+     * by the IO thread, so the returned value is only a hint for scheduling.
+     */
+    @Override
+    public long getNextReadOffset() {
+        synchronized (lock) {
+            long nextReadOffset = Long.MAX_VALUE;
+            for (SortMergeSubpartitionReader reader : allReaders) {
+                nextReadOffset = Math.min(nextReadOffset, reader.getNextReadOffset());
+            }
+            return nextReadOffset;
+        }
+    }
+
     @Override
     public void recycle(MemorySegment segment) {
         synchronized (lock) {
@@ -368,6 +474,7 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
 
             failedReaders.addAll(allReaders);
             pendingReaders = new ArrayList<>(allReaders);
+            pendingReaders.addAll(waitingReaders);
             mayNotifyReleased();
         }
 
@@ -388,6 +495,13 @@ class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler
         }
     }
 
+    @VisibleForTesting
+    int getNumWaitingReaders() {
+        synchronized (lock) {
+            return waitingReaders.size();
+        }
+    }
+
     @VisibleForTesting
     FileChannel getDataFileChannel() {
         synchronized (lock) {
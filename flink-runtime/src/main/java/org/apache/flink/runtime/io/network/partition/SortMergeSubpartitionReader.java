@@ -137,6 +137,24 @@ class SortMergeSubpartitionReader
         return fileReader.hasRemaining();
     }
 
+    /** Updates the result file to read from while the data is still being produced. */
+    void updateResultFile(PartitionedFile resultFile) {
+        fileReader.updatePartitionedFile(resultFile);
+    }
+
+    /**
+     * Whether the result file contains regions which have not been read yet. This method is called
+     * by the IO thread of {@link SortMergeResultPartitionReadScheduler}.
+     */
+    boolean hasUnreadRegions() {
+        return fileReader.hasUnvisitedRegions();
+    }
+
+    /** The file offset of the data to be read next by this reader. */
+    long getNextReadOffset() {
+        return fileReader.getPriority();
+    }
+
     CompletableFuture<?> getReleaseFuture() {
         return releaseFuture;
     }
@@ -32,6 +32,12 @@ public abstract class IndexedInputGate extends InputGate implements Checkpointab
     /** Returns the list of channels that have not received EndOfPartitionEvent. */
     public abstract List<InputChannelInfo> getUnfinishedChannels();
 
+    /**
+     * Recalculates the size of the buffers from the measured throughput and announces it to the
+     * producers if it changed. Gates which do not support buffer debloating ignore this call.
+     */
+    public void triggerDebloating() {}
+
     @Override
     public void checkpointStarted(CheckpointBarrier barrier) throws CheckpointException {
         for (int index = 0, numChannels = getNumberOfInputChannels();
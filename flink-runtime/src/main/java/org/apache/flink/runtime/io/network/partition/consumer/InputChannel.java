@@ -136,6 +136,22 @@ public abstract class InputChannel {
      */
     public abstract void acknowledgeAllRecordsProcessed() throws IOException;
 
+    /**
+     * Announces the desired size of new buffers to the producer of this channel. Channels which are
+     * not connected to a producer yet ignore the announcement.
+     *
+     * @param newBufferSize the new buffer size in bytes.
+     */
+    public void announceBufferSize(int newBufferSize) {}
+
+    /**
+     * Returns the number of buffers which are queued in this channel or announced as backlog by the
+     * producer, i.e. the buffers which hold the in-flight data of this channel.
+     */
+    public int getBuffersInUseCount() {
+        return 0;
+    }
+
     /**
      * Notifies the owning {@link SingleInputGate} that this channel became non-empty.
      *
@@ -294,6 +294,19 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
         subpartitionView.acknowledgeAllRecordsProcessed();
     }
 
+    @Override
+    public void announceBufferSize(int newBufferSize) {
+        ResultSubpartitionView view = subpartitionView;
+        if (view != null && !isReleased) {
+            view.notifyNewBufferSize(newBufferSize);
+        }
+    }
+
+    @Override
+    public int getBuffersInUseCount() {
+        return unsynchronizedGetNumberOfQueuedBuffers();
+    }
+
     // ------------------------------------------------------------------------
     // Task events
     // ------------------------------------------------------------------------
@@ -381,6 +381,20 @@ public class RemoteInputChannel extends InputChannel {
         partitionRequestClient.acknowledgeAllRecordsProcessed(this);
     }
 
+    @Override
+    public void announceBufferSize(int newBufferSize) {
+        PartitionRequestClient client = partitionRequestClient;
+        if (client != null && !isReleased.get()) {
+            client.notifyNewBufferSize(this, newBufferSize);
+        }
+    }
+
+    @Override
+    public int getBuffersInUseCount() {
+        return unsynchronizedGetNumberOfQueuedBuffers()
+                + Math.max(0, getNumberOfRequiredBuffers() - initialCredit);
+    }
+
     private void onBlockingUpstream() {
         if (initialCredit == 0) {
             // release the allocated floating buffers so that they can be used by other channels if
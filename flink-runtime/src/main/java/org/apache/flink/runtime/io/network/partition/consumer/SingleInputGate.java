@@ -42,7 +42,10 @@ import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
 import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import org.slf4j.Logger;
@@ -197,6 +200,12 @@ public class SingleInputGate extends IndexedInputGate {
      */
     private final MemorySegment unpooledSegment;
 
+    /** Measures the throughput of this gate, which determines the size of new buffers. */
+    private final ThroughputCalculator throughputCalculator;
+
+    /** Calculates the size of new buffers, or {@code null} if buffer debloating is disabled. */
+    @Nullable private final BufferDebloater bufferDebloater;
+
     public SingleInputGate(
             String owningTaskName,
             int gateIndex,
@@ -209,6 +218,36 @@ public class SingleInputGate extends IndexedInputGate {
             @Nullable BufferDecompressor bufferDecompressor,
             MemorySegmentProvider memorySegmentProvider,
             int segmentSize) {
+        this(
+                owningTaskName,
+                gateIndex,
+                consumedResultId,
+                consumedPartitionType,
+                consumedSubpartitionIndex,
+                numberOfInputChannels,
+                partitionProducerStateProvider,
+                bufferPoolFactory,
+                bufferDecompressor,
+                memorySegmentProvider,
+                segmentSize,
+                new ThroughputCalculator(SystemClock.getInstance()),
+                null);
+    }
+
+    public SingleInputGate(
+            String owningTaskName,
+            int gateIndex,
+            IntermediateDataSetID consumedResultId,
+            final ResultPartitionType consumedPartitionType,
+            int consumedSubpartitionIndex,
+            int numberOfInputChannels,
+            PartitionProducerStateProvider partitionProducerStateProvider,
+            SupplierWithException<BufferPool, IOException> bufferPoolFactory,
+            @Nullable BufferDecompressor bufferDecompressor,
+            MemorySegmentProvider memorySegmentProvider,
+            int segmentSize,
+            ThroughputCalculator throughputCalculator,
+            @Nullable BufferDebloater bufferDebloater) {
 
         this.owningTaskName = checkNotNull(owningTaskName);
         Preconditions.checkArgument(0 <= gateIndex, "The gate index must be positive.");
@@ -239,6 +278,9 @@ public class SingleInputGate extends IndexedInputGate {
         this.closeFuture = new CompletableFuture<>();
 
         this.unpooledSegment = MemorySegmentFactory.allocateUnpooledSegment(segmentSize);
+
+        this.throughputCalculator = checkNotNull(throughputCalculator);
+        this.bufferDebloater = bufferDebloater;
     }
 
     protected PrioritizedDeque<InputChannel> getInputChannelsWithData() {
@@ -603,6 +645,35 @@ public class SingleInputGate extends IndexedInputGate {
         return hasReceivedAllEndOfPartitionEvents;
     }
 
+    @Override
+    public void triggerDebloating() {
+        if (bufferDebloater == null || isFinished() || closeFuture.isDone()) {
+            return;
+        }
+
+        long throughput = throughputCalculator.calculateThroughput();
+        bufferDebloater
+                .recalculateBufferSize(throughput, getBuffersInUseCount())
+                .ifPresent(this::announceBufferSize);
+    }
+
+    /** Announces the given size of new buffers to the producers of all channels. */
+    public void announceBufferSize(int newBufferSize) {
+        for (InputChannel channel : channels) {
+            if (!channel.isReleased()) {
+                channel.announceBufferSize(newBufferSize);
+            }
+        }
+    }
+
+    private int getBuffersInUseCount() {
+        int buffersInUse = 0;
+        for (InputChannel channel : channels) {
+            buffersInUse += channel.getBuffersInUseCount();
+        }
+        return buffersInUse;
+    }
+
     @Override
     public String toString() {
         return "SingleInputGate{"
@@ -641,10 +712,13 @@ public class SingleInputGate extends IndexedInputGate {
         Optional<InputWithData<InputChannel, BufferAndAvailability>> next =
                 waitAndGetNextData(blocking);
         if (!next.isPresent()) {
+            // the time waiting for data does not count towards the throughput
+            throughputCalculator.pauseMeasurement();
             return Optional.empty();
         }
 
         InputWithData<InputChannel, BufferAndAvailability> inputWithData = next.get();
+        throughputCalculator.incomingDataSize(inputWithData.data.buffer().getSize());
         return Optional.of(
                 transformToBufferOrEvent(
                         inputWithData.data.buffer(),
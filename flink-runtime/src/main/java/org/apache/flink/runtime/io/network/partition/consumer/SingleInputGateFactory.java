@@ -36,6 +36,10 @@ import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.NettyShuffleUtils;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
+import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -76,6 +80,8 @@ public class SingleInputGateFactory {
 
     private final int networkBufferSize;
 
+    private final BufferDebloatConfiguration debloatConfiguration;
+
     public SingleInputGateFactory(
             @Nonnull ResourceID taskExecutorResourceId,
             @Nonnull NettyShuffleEnvironmentConfiguration networkConfig,
@@ -94,6 +100,7 @@ public class SingleInputGateFactory {
                 networkConfig.isBlockingShuffleCompressionEnabled();
         this.compressionCodec = networkConfig.getCompressionCodec();
         this.networkBufferSize = networkConfig.networkBufferSize();
+        this.debloatConfiguration = networkConfig.getDebloatConfiguration();
         this.connectionManager = connectionManager;
         this.partitionManager = partitionManager;
         this.taskEventPublisher = taskEventPublisher;
@@ -115,6 +122,12 @@ public class SingleInputGateFactory {
             bufferDecompressor = new BufferDecompressor(networkBufferSize, compressionCodec);
         }
 
+        // only the subpartitions of pipelined partitions adapt the size of their buffers
+        BufferDebloater bufferDebloater = null;
+        if (debloatConfiguration.isEnabled() && igdd.getConsumedPartitionType().isPipelined()) {
+            bufferDebloater = new BufferDebloater(debloatConfiguration);
+        }
+
         SingleInputGate inputGate =
                 new SingleInputGate(
                         owningTaskName,
@@ -127,7 +140,9 @@ public class SingleInputGateFactory {
                         bufferPoolFactory,
                         bufferDecompressor,
                         networkBufferPool,
-                        networkBufferSize);
+                        networkBufferSize,
+                        new ThroughputCalculator(SystemClock.getInstance()),
+                        bufferDebloater);
 
         createInputChannels(owningTaskName, igdd, inputGate, metrics);
         return inputGate;
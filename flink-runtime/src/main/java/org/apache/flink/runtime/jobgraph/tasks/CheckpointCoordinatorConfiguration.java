@@ -66,6 +66,9 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
 
     private final long checkpointIdOfIgnoredInFlightData;
 
+    /** Whether the metadata is written in the sharded format version 4. */
+    private final boolean isShardedMetadataEnabled;
+
     /** @deprecated use {@link #builder()}. */
     @Deprecated
     @VisibleForTesting
@@ -91,7 +94,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
                 tolerableCpFailureNumber,
                 isUnalignedCheckpoint,
                 0,
-                checkpointIdOfIgnoredInFlightData);
+                checkpointIdOfIgnoredInFlightData,
+                false);
     }
 
     private CheckpointCoordinatorConfiguration(
@@ -105,7 +109,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
             int tolerableCpFailureNumber,
             boolean isUnalignedCheckpointsEnabled,
             long alignedCheckpointTimeout,
-            long checkpointIdOfIgnoredInFlightData) {
+            long checkpointIdOfIgnoredInFlightData,
+            boolean isShardedMetadataEnabled) {
 
         // sanity checks
         if (checkpointInterval < MINIMAL_CHECKPOINT_TIME
@@ -130,6 +135,7 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
         this.isUnalignedCheckpointsEnabled = isUnalignedCheckpointsEnabled;
         this.alignedCheckpointTimeout = alignedCheckpointTimeout;
         this.checkpointIdOfIgnoredInFlightData = checkpointIdOfIgnoredInFlightData;
+        this.isShardedMetadataEnabled = isShardedMetadataEnabled;
     }
 
     public long getCheckpointInterval() {
@@ -176,6 +182,10 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
         return checkpointIdOfIgnoredInFlightData;
     }
 
+    public boolean isShardedMetadataEnabled() {
+        return isShardedMetadataEnabled;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -195,7 +205,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
                 && checkpointRetentionPolicy == that.checkpointRetentionPolicy
                 && isPreferCheckpointForRecovery == that.isPreferCheckpointForRecovery
                 && tolerableCheckpointFailureNumber == that.tolerableCheckpointFailureNumber
-                && checkpointIdOfIgnoredInFlightData == that.checkpointIdOfIgnoredInFlightData;
+                && checkpointIdOfIgnoredInFlightData == that.checkpointIdOfIgnoredInFlightData
+                && isShardedMetadataEnabled == that.isShardedMetadataEnabled;
     }
 
     @Override
@@ -211,7 +222,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
                 alignedCheckpointTimeout,
                 isPreferCheckpointForRecovery,
                 tolerableCheckpointFailureNumber,
-                checkpointIdOfIgnoredInFlightData);
+                checkpointIdOfIgnoredInFlightData,
+                isShardedMetadataEnabled);
     }
 
     @Override
@@ -239,6 +251,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
                 + tolerableCheckpointFailureNumber
                 + ", checkpointIdOfIgnoredInFlightData="
                 + checkpointIdOfIgnoredInFlightData
+                + ", isShardedMetadataEnabled="
+                + isShardedMetadataEnabled
                 + '}';
     }
 
@@ -260,6 +274,7 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
         private boolean isUnalignedCheckpointsEnabled;
         private long alignedCheckpointTimeout = 0;
         private long checkpointIdOfIgnoredInFlightData;
+        private boolean isShardedMetadataEnabled;
 
         public CheckpointCoordinatorConfiguration build() {
             return new CheckpointCoordinatorConfiguration(
@@ -273,7 +288,8 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
                     tolerableCheckpointFailureNumber,
                     isUnalignedCheckpointsEnabled,
                     alignedCheckpointTimeout,
-                    checkpointIdOfIgnoredInFlightData);
+                    checkpointIdOfIgnoredInFlightData,
+                    isShardedMetadataEnabled);
         }
 
         public CheckpointCoordinatorConfigurationBuilder setCheckpointInterval(
@@ -340,5 +356,11 @@ public class CheckpointCoordinatorConfiguration implements Serializable {
             this.checkpointIdOfIgnoredInFlightData = checkpointIdOfIgnoredInFlightData;
             return this;
         }
+
+        public CheckpointCoordinatorConfigurationBuilder setShardedMetadataEnabled(
+                boolean shardedMetadataEnabled) {
+            isShardedMetadataEnabled = shardedMetadataEnabled;
+            return this;
+        }
     }
 }
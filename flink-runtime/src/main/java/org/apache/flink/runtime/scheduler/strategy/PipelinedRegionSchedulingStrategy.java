@@ -210,23 +210,45 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
                                                     .stream())
                             .collect(Collectors.toSet());
 
-            // for POINTWISE consumers of a BLOCKING partition, it's possible that some of the
-            // consumers are not affected by the restarting of sibling vertices so they are still in
-            // SCHEDULED/DEPLOYING/RUNNING/FINISHED. We should skip rescheduling these vertices.
-            final Set<SchedulingPipelinedRegion> consumerRegions =
-                    finishedConsumedPartitionGroups.stream()
+            maybeScheduleConsumerRegions(finishedConsumedPartitionGroups);
+        } else if (executionState == ExecutionState.RUNNING) {
+            // the consumers of hybrid partitions can already read data of running producers
+            final Set<ConsumedPartitionGroup> hybridConsumedPartitionGroups =
+                    IterableUtils.toStream(
+                                    schedulingTopology
+                                            .getVertex(executionVertexId)
+                                            .getProducedResults())
+                            .filter(partition -> partition.getResultType().isHybrid())
                             .flatMap(
-                                    partitionGroup ->
-                                            partitionGroupConsumerRegions.get(partitionGroup)
+                                    partition ->
+                                            correlatedResultPartitionGroups
+                                                    .getOrDefault(
+                                                            partition.getResultId(),
+                                                            Collections.emptySet())
                                                     .stream())
-                            .distinct()
-                            .filter(this::areRegionVerticesAllInCreatedState)
                             .collect(Collectors.toSet());
 
-            maybeScheduleRegions(consumerRegions);
+            maybeScheduleConsumerRegions(hybridConsumedPartitionGroups);
         }
     }
 
+    private void maybeScheduleConsumerRegions(
+            final Set<ConsumedPartitionGroup> consumedPartitionGroups) {
+        // for POINTWISE consumers of a BLOCKING partition, it's possible that some of the
+        // consumers are not affected by the restarting of sibling vertices so they are still in
+        // SCHEDULED/DEPLOYING/RUNNING/FINISHED. We should skip rescheduling these vertices.
+        final Set<SchedulingPipelinedRegion> consumerRegions =
+                consumedPartitionGroups.stream()
+                        .flatMap(
+                                partitionGroup ->
+                                        partitionGroupConsumerRegions.get(partitionGroup).stream())
+                        .distinct()
+                        .filter(this::areRegionVerticesAllInCreatedState)
+                        .collect(Collectors.toSet());
+
+        maybeScheduleRegions(consumerRegions);
+    }
+
     @Override
     public void onPartitionConsumable(final IntermediateResultPartitionID resultPartitionId) {}
 
@@ -280,8 +302,7 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
     private boolean isConsumedPartitionGroupConsumable(
             final ConsumedPartitionGroup consumedPartitionGroup) {
         for (IntermediateResultPartitionID partitionId : consumedPartitionGroup) {
-            if (schedulingTopology.getResultPartition(partitionId).getState()
-                    != ResultPartitionState.CONSUMABLE) {
+            if (!isConsumedPartitionConsumable(partitionId)) {
                 return false;
             }
         }
@@ -293,14 +314,29 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
             final SchedulingPipelinedRegion pipelinedRegion) {
         for (IntermediateResultPartitionID partitionId : consumedPartitionGroup) {
             if (isExternalConsumedPartition(partitionId, pipelinedRegion)
-                    && schedulingTopology.getResultPartition(partitionId).getState()
-                            != ResultPartitionState.CONSUMABLE) {
+                    && !isConsumedPartitionConsumable(partitionId)) {
                 return false;
             }
         }
         return true;
     }
 
+    private boolean isConsumedPartitionConsumable(final IntermediateResultPartitionID partitionId) {
+        final SchedulingResultPartition partition =
+                schedulingTopology.getResultPartition(partitionId);
+        if (partition.getState() == ResultPartitionState.CONSUMABLE) {
+            return true;
+        }
+
+        // a hybrid partition can be consumed while its producer is running
+        if (partition.getResultType().isHybrid()) {
+            final ExecutionState producerState = partition.getProducer().getState();
+            return producerState == ExecutionState.RUNNING
+                    || producerState == ExecutionState.FINISHED;
+        }
+        return false;
+    }
+
     private boolean areRegionVerticesAllInCreatedState(final SchedulingPipelinedRegion region) {
         for (SchedulingExecutionVertex vertex : region.getVertices()) {
             if (vertex.getState() != ExecutionState.CREATED) {
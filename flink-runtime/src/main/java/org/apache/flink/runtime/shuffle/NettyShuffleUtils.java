@@ -64,7 +64,9 @@ public class NettyShuffleUtils {
             final int numSubpartitions,
             final ResultPartitionType type) {
         int min =
-                type.isBlocking() && numSubpartitions >= sortShuffleMinParallelism
+                type.isBlocking()
+                                && (type.isHybrid()
+                                        || numSubpartitions >= sortShuffleMinParallelism)
                         ? sortShuffleMinBuffers
                         : numSubpartitions + 1;
         int max =
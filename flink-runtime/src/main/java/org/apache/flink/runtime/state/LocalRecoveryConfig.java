@@ -33,17 +33,36 @@ public class LocalRecoveryConfig {
     /** Encapsulates the root directories and the subtask-specific path. */
     @Nonnull private final LocalRecoveryDirectoryProvider localStateDirectories;
 
+    /** Whether the local snapshots of heap keyed state backends are also kept in memory. */
+    private final boolean keepHeapStateInMemory;
+
     public LocalRecoveryConfig(
             boolean localRecoveryEnabled,
             @Nonnull LocalRecoveryDirectoryProvider directoryProvider) {
+        this(localRecoveryEnabled, directoryProvider, false);
+    }
+
+    public LocalRecoveryConfig(
+            boolean localRecoveryEnabled,
+            @Nonnull LocalRecoveryDirectoryProvider directoryProvider,
+            boolean keepHeapStateInMemory) {
         this.localRecoveryEnabled = localRecoveryEnabled;
         this.localStateDirectories = directoryProvider;
+        this.keepHeapStateInMemory = keepHeapStateInMemory;
     }
 
     public boolean isLocalRecoveryEnabled() {
         return localRecoveryEnabled;
     }
 
+    /**
+     * Returns whether heap keyed state backends keep their local snapshots in memory, so that a
+     * task which is restored in the same slot can take over the state objects.
+     */
+    public boolean isHeapStateKeptInMemory() {
+        return localRecoveryEnabled && keepHeapStateInMemory;
+    }
+
     @Nonnull
     public LocalRecoveryDirectoryProvider getLocalStateDirectoryProvider() {
         return localStateDirectories;
@@ -54,6 +73,8 @@ public class LocalRecoveryConfig {
         return "LocalRecoveryConfig{"
                 + "localRecoveryMode="
                 + localRecoveryEnabled
+                + ", keepHeapStateInMemory="
+                + keepHeapStateInMemory
                 + ", localStateDirectories="
                 + localStateDirectories
                 + '}';
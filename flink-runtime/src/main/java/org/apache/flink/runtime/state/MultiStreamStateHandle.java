@@ -25,6 +25,7 @@ import org.apache.flink.util.Preconditions;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 
 /**
@@ -62,6 +63,15 @@ public class MultiStreamStateHandle implements StreamStateHandle {
 		return stateSize;
 	}
 
+	@Override
+	public Optional<byte[]> asBytesIfInMemory() {
+		return Optional.empty();
+	}
+
+	public List<StreamStateHandle> getStateHandles() {
+		return stateHandles;
+	}
+
 	@Override
 	public String toString() {
 		return "MultiStreamStateHandle{" +
@@ -58,6 +58,9 @@ public class TaskExecutorLocalStateStoresManager {
     /** The configured mode for local recovery on this task manager. */
     private final boolean localRecoveryEnabled;
 
+    /** Whether the local snapshots of heap keyed state backends are also kept in memory. */
+    private final boolean keepHeapStateInMemory;
+
     /** This is the root directory for all local state of this task manager / executor. */
     private final File[] localStateRootDirectories;
 
@@ -77,9 +80,19 @@ public class TaskExecutorLocalStateStoresManager {
             @Nonnull File[] localStateRootDirectories,
             @Nonnull Executor discardExecutor)
             throws IOException {
+        this(localRecoveryEnabled, false, localStateRootDirectories, discardExecutor);
+    }
+
+    public TaskExecutorLocalStateStoresManager(
+            boolean localRecoveryEnabled,
+            boolean keepHeapStateInMemory,
+            @Nonnull File[] localStateRootDirectories,
+            @Nonnull Executor discardExecutor)
+            throws IOException {
 
         this.taskStateStoresByAllocationID = new HashMap<>();
         this.localRecoveryEnabled = localRecoveryEnabled;
+        this.keepHeapStateInMemory = keepHeapStateInMemory;
         this.localStateRootDirectories = localStateRootDirectories;
         this.discardExecutor = discardExecutor;
         this.lock = new Object();
@@ -146,7 +159,8 @@ public class TaskExecutorLocalStateStoresManager {
                                 allocationBaseDirectories, jobId, jobVertexID, subtaskIndex);
 
                 LocalRecoveryConfig localRecoveryConfig =
-                        new LocalRecoveryConfig(localRecoveryEnabled, directoryProvider);
+                        new LocalRecoveryConfig(
+                                localRecoveryEnabled, directoryProvider, keepHeapStateInMemory);
 
                 taskLocalStateStore =
                         localRecoveryConfig.isLocalRecoveryEnabled()
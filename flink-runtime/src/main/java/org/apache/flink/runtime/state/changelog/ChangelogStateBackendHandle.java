@@ -18,10 +18,14 @@
 package org.apache.flink.runtime.state.changelog;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.util.ExceptionUtils;
 
 import org.apache.flink.shaded.guava18.com.google.common.io.Closer;
@@ -29,7 +33,9 @@ import org.apache.flink.shaded.guava18.com.google.common.io.Closer;
 import javax.annotation.Nullable;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -41,6 +47,10 @@ import static org.apache.flink.util.Preconditions.checkArgument;
  * references materialized state (e.g. SST files), while delta part references state changes that
  * were not not materialized at the time of the snapshot. Both are potentially empty lists as there
  * can be no state or multiple states (e.g. after rescaling).
+ *
+ * <p>The materialized state is used by all checkpoints until the next materialization. Its files
+ * are therefore registered in the {@link SharedStateRegistry} by every checkpoint, like the files
+ * of the state changes, and discarded once no checkpoint uses them anymore.
  */
 @Internal
 public interface ChangelogStateBackendHandle extends KeyedStateHandle {
@@ -54,6 +64,8 @@ public interface ChangelogStateBackendHandle extends KeyedStateHandle {
         private final List<ChangelogStateHandle> nonMaterialized;
         private final KeyGroupRange keyGroupRange;
 
+        private transient SharedStateRegistry stateRegistry;
+
         public ChangelogStateBackendHandleImpl(
                 List<KeyedStateHandle> materialized,
                 List<ChangelogStateHandle> nonMaterialized,
@@ -66,14 +78,26 @@ public interface ChangelogStateBackendHandle extends KeyedStateHandle {
 
         @Override
         public void registerSharedStates(SharedStateRegistry stateRegistry) {
-            stateRegistry.registerAll(materialized);
+            this.stateRegistry = stateRegistry;
+            for (KeyedStateHandle handle : materialized) {
+                registerMaterializedState(handle, stateRegistry);
+            }
             stateRegistry.registerAll(nonMaterialized);
         }
 
         @Override
         public void discardState() throws Exception {
             try (Closer closer = Closer.create()) {
-                materialized.forEach(h -> closer.register(asCloseable(h)));
+                for (KeyedStateHandle handle : materialized) {
+                    if (!isShared(handle)) {
+                        closer.register(asCloseable(handle));
+                    } else if (stateRegistry != null) {
+                        closer.register(() -> unregisterMaterializedState(handle, stateRegistry));
+                    }
+                    // otherwise, the materialized state was never registered, e.g. because the
+                    // checkpoint was aborted, and might be used by other checkpoints. It is
+                    // discarded by the backend once all checkpoints using it were aborted.
+                }
                 nonMaterialized.forEach(h -> closer.register(asCloseable(h)));
             }
         }
@@ -130,6 +154,77 @@ public interface ChangelogStateBackendHandle extends KeyedStateHandle {
                     keyGroupRange, materialized.size(), nonMaterialized.size());
         }
 
+        /**
+         * Returns whether the materialized state may be used by several checkpoints. Such state is
+         * registered in the {@link SharedStateRegistry} by every checkpoint which uses it, file by
+         * file, so that each file is discarded once no checkpoint uses it anymore.
+         */
+        private static boolean isShared(KeyedStateHandle handle) {
+            return handle instanceof KeyGroupsStateHandle
+                    || handle instanceof IncrementalRemoteKeyedStateHandle;
+        }
+
+        private static void registerMaterializedState(
+                KeyedStateHandle handle, SharedStateRegistry stateRegistry) {
+            if (handle instanceof KeyGroupsStateHandle) {
+                StreamStateHandle delegate =
+                        ((KeyGroupsStateHandle) handle).getDelegateStateHandle();
+                stateRegistry.registerReference(
+                        ChangelogStateHandleStreamImpl.getKey(delegate), delegate);
+            } else if (handle instanceof IncrementalRemoteKeyedStateHandle) {
+                IncrementalRemoteKeyedStateHandle incremental =
+                        (IncrementalRemoteKeyedStateHandle) handle;
+                // unlike IncrementalRemoteKeyedStateHandle#registerSharedStates, this may be
+                // called by every checkpoint using the same handle, and also counts the
+                // references to the meta data and the private state
+                for (Map.Entry<StateHandleID, StreamStateHandle> entry :
+                        incremental.getSharedState().entrySet()) {
+                    // replaces placeholders with the registered state handles
+                    entry.setValue(
+                            stateRegistry
+                                    .registerReference(
+                                            incremental.createSharedStateRegistryKeyFromFileName(
+                                                    entry.getKey()),
+                                            entry.getValue())
+                                    .getReference());
+                }
+                for (StreamStateHandle exclusive : getExclusiveState(incremental)) {
+                    stateRegistry.registerReference(
+                            ChangelogStateHandleStreamImpl.getKey(exclusive), exclusive);
+                }
+            } else {
+                handle.registerSharedStates(stateRegistry);
+            }
+        }
+
+        private static void unregisterMaterializedState(
+                KeyedStateHandle handle, SharedStateRegistry stateRegistry) {
+            if (handle instanceof KeyGroupsStateHandle) {
+                stateRegistry.unregisterReference(
+                        ChangelogStateHandleStreamImpl.getKey(
+                                ((KeyGroupsStateHandle) handle).getDelegateStateHandle()));
+            } else {
+                IncrementalRemoteKeyedStateHandle incremental =
+                        (IncrementalRemoteKeyedStateHandle) handle;
+                for (StateHandleID id : incremental.getSharedState().keySet()) {
+                    stateRegistry.unregisterReference(
+                            incremental.createSharedStateRegistryKeyFromFileName(id));
+                }
+                for (StreamStateHandle exclusive : getExclusiveState(incremental)) {
+                    stateRegistry.unregisterReference(
+                            ChangelogStateHandleStreamImpl.getKey(exclusive));
+                }
+            }
+        }
+
+        /** The meta data and private state of a materialization, which only it refers to. */
+        private static List<StreamStateHandle> getExclusiveState(
+                IncrementalRemoteKeyedStateHandle handle) {
+            List<StreamStateHandle> exclusive = new ArrayList<>(handle.getPrivateState().values());
+            exclusive.add(handle.getMetaStateHandle());
+            return exclusive;
+        }
+
         private static Closeable asCloseable(KeyedStateHandle h) {
             return () -> {
                 try {
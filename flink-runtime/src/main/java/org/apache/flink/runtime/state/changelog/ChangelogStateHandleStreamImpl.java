@@ -101,7 +101,7 @@ public final class ChangelogStateHandleStreamImpl implements ChangelogStateHandl
         return size;
     }
 
-    private static SharedStateRegistryKey getKey(StreamStateHandle stateHandle) {
+    static SharedStateRegistryKey getKey(StreamStateHandle stateHandle) {
         // StateHandle key used in SharedStateRegistry should only be based on the file name
         // and not on backend UUID or keygroup (multiple handles can refer to the same file and
         // making keys unique will effectively disable sharing)
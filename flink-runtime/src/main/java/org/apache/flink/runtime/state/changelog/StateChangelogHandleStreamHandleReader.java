@@ -45,8 +45,8 @@ public class StateChangelogHandleStreamHandleReader
 
     /** Reads a stream of state changes starting from a specified offset. */
     public interface StateChangeIterator {
-        // todo: add implementation (FLINK-21353)
-        CloseableIterator<StateChange> read(StreamStateHandle handle, long offset);
+        CloseableIterator<StateChange> read(StreamStateHandle handle, long offset)
+                throws IOException;
     }
 
     private final StateChangeIterator changeIterator;
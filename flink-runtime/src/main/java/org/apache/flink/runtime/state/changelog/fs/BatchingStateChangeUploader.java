@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.util.ExecutorUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link StateChangeUploader} which collects the upload tasks of all the writers of a {@link
+ * FsStateChangelogStorage} and uploads them together with the delegate uploader, once the persist
+ * delay has passed since the first collected task or once the collected tasks reach the size
+ * threshold. Failed uploads are retried after the retry delay until the maximum number of attempts
+ * is reached, after which the tasks fail.
+ *
+ * <p>The uploads are executed one after the other by the scheduler, so that the files are written
+ * by a single thread per TaskManager and job.
+ */
+@ThreadSafe
+final class BatchingStateChangeUploader implements StateChangeUploader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingStateChangeUploader.class);
+
+    private final StateChangeUploader delegate;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long persistDelayMs;
+
+    private final long sizeThresholdBytes;
+
+    private final int maxAttempts;
+
+    private final long retryDelayMs;
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private final List<UploadTask> scheduled = new ArrayList<>();
+
+    @GuardedBy("lock")
+    private long scheduledBytes;
+
+    /** The scheduled upload of the collected tasks, null if no upload is scheduled. */
+    @GuardedBy("lock")
+    @Nullable
+    private ScheduledFuture<?> scheduledFuture;
+
+    /** The batches of failed tasks which wait for their next attempt. */
+    @GuardedBy("lock")
+    private final List<List<UploadTask>> retrying = new ArrayList<>();
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    BatchingStateChangeUploader(
+            StateChangeUploader delegate,
+            ScheduledExecutorService scheduler,
+            long persistDelayMs,
+            long sizeThresholdBytes,
+            int maxAttempts,
+            long retryDelayMs) {
+        checkArgument(persistDelayMs >= 0 && retryDelayMs >= 0);
+        checkArgument(maxAttempts > 0, "The maximum number of attempts must be positive.");
+        this.delegate = checkNotNull(delegate);
+        this.scheduler = checkNotNull(scheduler);
+        this.persistDelayMs = persistDelayMs;
+        this.sizeThresholdBytes = sizeThresholdBytes;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    @Override
+    public void upload(Collection<UploadTask> tasks) {
+        synchronized (lock) {
+            checkState(!closed, "The uploader is closed.");
+            for (UploadTask task : tasks) {
+                scheduled.add(task);
+                scheduledBytes += task.getSize();
+            }
+            if (scheduledBytes >= sizeThresholdBytes || persistDelayMs == 0) {
+                if (scheduledFuture != null) {
+                    scheduledFuture.cancel(false);
+                }
+                scheduledFuture = null;
+                scheduler.execute(this::drainAndUpload);
+            } else if (scheduledFuture == null) {
+                scheduledFuture =
+                        scheduler.schedule(
+                                this::drainAndUpload, persistDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void drainAndUpload() {
+        List<UploadTask> tasks;
+        synchronized (lock) {
+            if (scheduled.isEmpty()) {
+                return;
+            }
+            tasks = new ArrayList<>(scheduled);
+            scheduled.clear();
+            scheduledBytes = 0;
+            scheduledFuture = null;
+        }
+        uploadWithRetries(tasks, 1);
+    }
+
+    private void uploadWithRetries(List<UploadTask> tasks, int attempt) {
+        try {
+            delegate.upload(tasks);
+        } catch (Throwable t) {
+            synchronized (lock) {
+                if (attempt < maxAttempts && !closed) {
+                    LOG.info(
+                            "Failed to upload {} tasks in attempt {}, retrying in {} ms.",
+                            tasks.size(),
+                            attempt,
+                            retryDelayMs,
+                            t);
+                    retrying.add(tasks);
+                    scheduler.schedule(
+                            () -> retry(tasks, attempt + 1), retryDelayMs, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            LOG.warn("Failed to upload {} tasks in {} attempts.", tasks.size(), attempt, t);
+            tasks.forEach(task -> task.fail(t));
+        }
+    }
+
+    private void retry(List<UploadTask> tasks, int attempt) {
+        synchronized (lock) {
+            if (!retrying.remove(tasks)) {
+                // already failed on close
+                return;
+            }
+        }
+        uploadWithRetries(tasks, attempt);
+    }
+
+    @Override
+    public void close() throws Exception {
+        List<UploadTask> tasks;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            tasks = new ArrayList<>(scheduled);
+            scheduled.clear();
+            // the retries might be cancelled by the shutdown of the scheduler
+            retrying.forEach(tasks::addAll);
+            retrying.clear();
+        }
+        ExecutorUtils.gracefulShutdown(1, TimeUnit.SECONDS, scheduler);
+        IllegalStateException error = new IllegalStateException("The uploader is closed.");
+        tasks.forEach(task -> task.fail(error));
+        delegate.close();
+    }
+}
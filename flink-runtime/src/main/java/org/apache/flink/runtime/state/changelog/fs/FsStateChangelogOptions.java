@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.annotation.Experimental;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+import java.time.Duration;
+
+/** {@link ConfigOption}s for {@link FsStateChangelogStorage}. */
+@Experimental
+public class FsStateChangelogOptions {
+
+    private FsStateChangelogOptions() {}
+
+    public static final ConfigOption<String> BASE_PATH =
+            ConfigOptions.key("dstl.dfs.base-path")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription(
+                            "The base path of the files with the state changes of the filesystem "
+                                    + "state changelog storage.");
+
+    public static final ConfigOption<Duration> PERSIST_DELAY =
+            ConfigOptions.key("dstl.dfs.batch.persist-delay")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(10))
+                    .withDescription(
+                            "The delay before the state changes of all the state backends of a "
+                                    + "TaskManager which requested to persist them are uploaded "
+                                    + "together in one file. A longer delay leads to fewer and larger "
+                                    + "files, but increases the duration of checkpoints.");
+
+    public static final ConfigOption<MemorySize> PERSIST_SIZE_THRESHOLD =
+            ConfigOptions.key("dstl.dfs.batch.persist-size-threshold")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("10mb"))
+                    .withDescription(
+                            "The size of the state changes requested to be persisted at which they "
+                                    + "are uploaded without waiting for the persist delay.");
+
+    public static final ConfigOption<MemorySize> PREEMPTIVE_PERSIST_THRESHOLD =
+            ConfigOptions.key("dstl.dfs.preemptive-persist-threshold")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("5mb"))
+                    .withDescription(
+                            "The size of the not yet persisted state changes of a state backend at "
+                                    + "which they are uploaded before the next checkpoint, so that "
+                                    + "checkpoints only have to upload the most recent changes.");
+
+    public static final ConfigOption<Integer> UPLOAD_MAX_ATTEMPTS =
+            ConfigOptions.key("dstl.dfs.upload.max-attempts")
+                    .intType()
+                    .defaultValue(3)
+                    .withDescription(
+                            "The maximum number of attempts to upload a file with state changes, "
+                                    + "including the first one.");
+
+    public static final ConfigOption<Duration> UPLOAD_RETRY_DELAY =
+            ConfigOptions.key("dstl.dfs.upload.retry-delay")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(500))
+                    .withDescription(
+                            "The delay before a failed upload of a file with state changes is "
+                                    + "attempted again.");
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.annotation.Experimental;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleReader;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamHandleReader;
+import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.BASE_PATH;
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.PERSIST_DELAY;
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.PERSIST_SIZE_THRESHOLD;
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.PREEMPTIVE_PERSIST_THRESHOLD;
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.UPLOAD_MAX_ATTEMPTS;
+import static org.apache.flink.runtime.state.changelog.fs.FsStateChangelogOptions.UPLOAD_RETRY_DELAY;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link StateChangelogStorage} which uploads the state changes to files of a (distributed)
+ * {@link org.apache.flink.core.fs.FileSystem}. The storage is shared by all the state backends of a
+ * job in a TaskManager, the changes which they request to persist at about the same time are
+ * uploaded together in one file.
+ */
+@Experimental
+public class FsStateChangelogStorage
+        implements StateChangelogStorage<ChangelogStateHandleStreamImpl> {
+
+    private final StateChangeUploader uploader;
+
+    private final long preEmptivePersistThresholdInBytes;
+
+    public FsStateChangelogStorage(Configuration config) throws IOException {
+        this(createUploader(config), config.get(PREEMPTIVE_PERSIST_THRESHOLD).getBytes());
+    }
+
+    @VisibleForTesting
+    FsStateChangelogStorage(StateChangeUploader uploader, long preEmptivePersistThresholdInBytes) {
+        this.uploader = checkNotNull(uploader);
+        this.preEmptivePersistThresholdInBytes = preEmptivePersistThresholdInBytes;
+    }
+
+    @Override
+    public FsStateChangelogWriter createWriter(String operatorID, KeyGroupRange keyGroupRange) {
+        return new FsStateChangelogWriter(
+                UUID.randomUUID(), keyGroupRange, uploader, preEmptivePersistThresholdInBytes);
+    }
+
+    @Override
+    public StateChangelogHandleReader<ChangelogStateHandleStreamImpl> createReader() {
+        return new StateChangelogHandleStreamHandleReader(new StateChangeFormat());
+    }
+
+    @Override
+    public void close() throws Exception {
+        uploader.close();
+    }
+
+    private static StateChangeUploader createUploader(Configuration config) throws IOException {
+        String basePath =
+                config.getOptional(BASE_PATH)
+                        .orElseThrow(
+                                () ->
+                                        new IllegalConfigurationException(
+                                                "The base path of the filesystem state changelog "
+                                                        + "storage is not configured, please set "
+                                                        + BASE_PATH.key()
+                                                        + "."));
+        Path path = new Path(basePath);
+        return new BatchingStateChangeUploader(
+                new StateChangeFsUploader(path, path.getFileSystem()),
+                Executors.newSingleThreadScheduledExecutor(
+                        new ExecutorThreadFactory("ChangelogUploadScheduler")),
+                config.get(PERSIST_DELAY).toMillis(),
+                config.get(PERSIST_SIZE_THRESHOLD).getBytes(),
+                config.get(UPLOAD_MAX_ATTEMPTS),
+                config.get(UPLOAD_RETRY_DELAY).toMillis());
+    }
+}
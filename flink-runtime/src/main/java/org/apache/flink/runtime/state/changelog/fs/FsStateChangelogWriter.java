@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogWriter;
+import org.apache.flink.runtime.state.changelog.fs.StateChangeUploader.UploadTask;
+import org.apache.flink.util.concurrent.FutureUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link StateChangelogWriter} which uploads the appended changes with a {@link
+ * StateChangeUploader}. The changes appended between two calls of {@link
+ * #lastAppendedSequenceNumber()} form a {@link StateChangeSet} with its own sequence number.
+ *
+ * <p>Change sets are uploaded on {@link #persist(SequenceNumber)}, or pre-emptively once the size
+ * of the changes which are not uploaded exceeds a threshold, which spreads the uploads over the
+ * checkpoint interval. Uploaded change sets are re-used by later checkpoints until they are
+ * truncated, failed uploads are retried by the next {@link #persist(SequenceNumber)}.
+ *
+ * <p>The writer is only accessed by the task thread, the upload results are completed by the
+ * uploader.
+ */
+@NotThreadSafe
+class FsStateChangelogWriter implements StateChangelogWriter<ChangelogStateHandleStreamImpl> {
+    private static final Logger LOG = LoggerFactory.getLogger(FsStateChangelogWriter.class);
+    private static final SequenceNumber INITIAL_SQN = SequenceNumber.of(0L);
+
+    private final UUID logId;
+    private final KeyGroupRange keyGroupRange;
+    private final StateChangeUploader uploader;
+    private final long preEmptivePersistThresholdInBytes;
+
+    /** The changes appended since the last rollover, they have {@link #activeSequenceNumber}. */
+    private List<StateChange> activeChangeSet = new ArrayList<>();
+
+    private long activeChangeSetSize;
+    private SequenceNumber activeSequenceNumber = INITIAL_SQN.next();
+
+    /** The sequence number of the last rolled over change set. */
+    private SequenceNumber lastRolledOver = INITIAL_SQN;
+
+    /** The change sets which were rolled over but are not uploaded yet. */
+    private final NavigableMap<SequenceNumber, StateChangeSet> notUploaded = new TreeMap<>();
+
+    private long notUploadedSize;
+
+    /** The change sets which are uploaded or being uploaded. */
+    private final NavigableMap<SequenceNumber, UploadAttempt> uploaded = new TreeMap<>();
+
+    private boolean closed;
+
+    FsStateChangelogWriter(
+            UUID logId,
+            KeyGroupRange keyGroupRange,
+            StateChangeUploader uploader,
+            long preEmptivePersistThresholdInBytes) {
+        this.logId = checkNotNull(logId);
+        this.keyGroupRange = checkNotNull(keyGroupRange);
+        this.uploader = checkNotNull(uploader);
+        this.preEmptivePersistThresholdInBytes = preEmptivePersistThresholdInBytes;
+    }
+
+    @Override
+    public void append(int keyGroup, byte[] value) {
+        checkState(!closed, "LogWriter is closed");
+        LOG.trace("append to {}: keyGroup={} {} bytes", logId, keyGroup, value.length);
+        activeChangeSet.add(new StateChange(keyGroup, value));
+        activeChangeSetSize += value.length;
+        if (activeChangeSetSize + notUploadedSize >= preEmptivePersistThresholdInBytes) {
+            LOG.debug(
+                    "pre-emptively upload {} bytes of {}",
+                    activeChangeSetSize + notUploadedSize,
+                    logId);
+            rollover();
+            try {
+                uploadNotUploaded();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public SequenceNumber initialSequenceNumber() {
+        return INITIAL_SQN;
+    }
+
+    @Override
+    public SequenceNumber lastAppendedSequenceNumber() {
+        // changes appended after this call must get a higher sequence number than the returned
+        // one, so that they can be told apart from the changes up to the returned one
+        rollover();
+        return lastRolledOver;
+    }
+
+    @Override
+    public CompletableFuture<ChangelogStateHandleStreamImpl> persist(SequenceNumber from)
+            throws IOException {
+        checkState(!closed, "LogWriter is closed");
+        checkNotNull(from);
+        LOG.debug("persist {} from {}", logId, from);
+        rollover();
+        retryFailedUploads(from);
+        uploadNotUploaded();
+
+        List<CompletableFuture<UploadResult>> results = new ArrayList<>();
+        for (UploadAttempt attempt : uploaded.tailMap(from, true).values()) {
+            results.add(attempt.result);
+        }
+        return FutureUtils.combineAll(results)
+                .thenApply(
+                        uploadResults -> {
+                            List<Tuple3<StreamStateHandle, Long, Long>> sorted =
+                                    new ArrayList<>(uploadResults.size());
+                            for (UploadResult result : uploadResults) {
+                                sorted.add(
+                                        Tuple3.of(
+                                                result.getStreamStateHandle(),
+                                                result.getOffset(),
+                                                result.getSize()));
+                            }
+                            return new ChangelogStateHandleStreamImpl(sorted, keyGroupRange);
+                        });
+    }
+
+    @Override
+    public void truncate(SequenceNumber to) {
+        checkNotNull(to);
+        LOG.debug("truncate {} to {}", logId, to);
+        NavigableMap<SequenceNumber, StateChangeSet> truncated = notUploaded.headMap(to, false);
+        for (StateChangeSet changeSet : truncated.values()) {
+            notUploadedSize -= changeSet.getSize();
+        }
+        truncated.clear();
+        uploaded.headMap(to, false).clear();
+    }
+
+    @Override
+    public void confirm(SequenceNumber from, SequenceNumber to) {
+        // the uploaded files are owned by the checkpoints once they are confirmed, the shared
+        // state registry discards them when no checkpoint references them anymore
+    }
+
+    @Override
+    public void reset(SequenceNumber from, SequenceNumber to) {
+        // successful uploads are re-used by the next checkpoint and failed uploads are retried
+        // by the next persist, so there is nothing to reset
+    }
+
+    @Override
+    public void close() {
+        checkState(!closed);
+        closed = true;
+        activeChangeSet = Collections.emptyList();
+        notUploaded.clear();
+        uploaded.clear();
+    }
+
+    /**
+     * Closes the active change set, if it has changes, and starts the next sequence number. The
+     * sequence number does not change without changes, so that idle writers keep reporting the same
+     * {@link #lastAppendedSequenceNumber()}.
+     */
+    private void rollover() {
+        if (activeChangeSet.isEmpty()) {
+            return;
+        }
+        notUploaded.put(
+                activeSequenceNumber,
+                new StateChangeSet(activeSequenceNumber, activeChangeSet, activeChangeSetSize));
+        notUploadedSize += activeChangeSetSize;
+        activeChangeSet = new ArrayList<>();
+        activeChangeSetSize = 0;
+        lastRolledOver = activeSequenceNumber;
+        activeSequenceNumber = activeSequenceNumber.next();
+    }
+
+    private void uploadNotUploaded() throws IOException {
+        if (notUploaded.isEmpty()) {
+            return;
+        }
+        List<StateChangeSet> changeSets = new ArrayList<>(notUploaded.values());
+        UploadTask task = new UploadTask(changeSets);
+        for (int i = 0; i < changeSets.size(); i++) {
+            int index = i;
+            StateChangeSet changeSet = changeSets.get(i);
+            uploaded.put(
+                    changeSet.getSequenceNumber(),
+                    new UploadAttempt(
+                            changeSet, task.getResult().thenApply(results -> results.get(index))));
+        }
+        notUploaded.clear();
+        notUploadedSize = 0;
+        uploader.upload(Collections.singletonList(task));
+    }
+
+    /**
+     * Moves the change sets whose upload failed back to the not uploaded ones and releases the
+     * changes of the successfully uploaded ones.
+     */
+    private void retryFailedUploads(SequenceNumber from) {
+        Iterator<Map.Entry<SequenceNumber, UploadAttempt>> iterator =
+                uploaded.tailMap(from, true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            UploadAttempt attempt = iterator.next().getValue();
+            if (attempt.changeSet == null || !attempt.result.isDone()) {
+                continue;
+            }
+            if (attempt.result.isCompletedExceptionally()) {
+                LOG.info(
+                        "retry the failed upload of {} from {}",
+                        attempt.changeSet.getSequenceNumber(),
+                        logId);
+                notUploaded.put(attempt.changeSet.getSequenceNumber(), attempt.changeSet);
+                notUploadedSize += attempt.changeSet.getSize();
+                iterator.remove();
+            } else {
+                attempt.changeSet = null;
+            }
+        }
+    }
+
+    /** The upload of a change set, which keeps the changes until the upload succeeded. */
+    private static final class UploadAttempt {
+
+        @Nullable private StateChangeSet changeSet;
+
+        private final CompletableFuture<UploadResult> result;
+
+        private UploadAttempt(StateChangeSet changeSet, CompletableFuture<UploadResult> result) {
+            this.changeSet = changeSet;
+            this.result = result;
+        }
+    }
+}
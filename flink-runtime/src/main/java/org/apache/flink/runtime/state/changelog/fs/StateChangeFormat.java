@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamHandleReader;
+import org.apache.flink.util.CloseableIterator;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The format of the files with {@link StateChangeSet state change sets}. A change set is written as
+ * the number of its changes followed by the key group, the length and the bytes of each change, so
+ * that the changes are read in the order in which they were appended.
+ */
+final class StateChangeFormat
+        implements StateChangelogHandleStreamHandleReader.StateChangeIterator {
+
+    /**
+     * Writes the change sets to the stream and returns their offsets relative to the current
+     * position of the stream, in the order of the change sets.
+     */
+    List<Long> write(OutputStream os, Collection<StateChangeSet> changeSets) throws IOException {
+        DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(os);
+        List<Long> offsets = new ArrayList<>(changeSets.size());
+        long offset = 0;
+        for (StateChangeSet changeSet : changeSets) {
+            offsets.add(offset);
+            List<StateChange> changes = changeSet.getChanges();
+            out.writeInt(changes.size());
+            offset += Integer.BYTES;
+            for (StateChange change : changes) {
+                out.writeInt(change.getKeyGroup());
+                out.writeInt(change.getChange().length);
+                out.write(change.getChange());
+                offset += 2 * Integer.BYTES + change.getChange().length;
+            }
+        }
+        out.flush();
+        return offsets;
+    }
+
+    @Override
+    public CloseableIterator<StateChange> read(StreamStateHandle handle, long offset)
+            throws IOException {
+        FSDataInputStream stream = handle.openInputStream();
+        try {
+            stream.seek(offset);
+            DataInputViewStreamWrapper in =
+                    new DataInputViewStreamWrapper(new BufferedInputStream(stream));
+            int numChanges = in.readInt();
+            return new CloseableIterator<StateChange>() {
+                private int numRead = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return numRead < numChanges;
+                }
+
+                @Override
+                public StateChange next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        int keyGroup = in.readInt();
+                        byte[] change = new byte[in.readInt()];
+                        in.readFully(change);
+                        numRead++;
+                        return new StateChange(keyGroup, change);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void close() throws Exception {
+                    in.close();
+                }
+            };
+        } catch (Throwable t) {
+            stream.close();
+            throw t;
+        }
+    }
+}
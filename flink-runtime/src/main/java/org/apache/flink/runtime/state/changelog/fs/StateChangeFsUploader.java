@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A synchronous {@link StateChangeUploader} which writes the change sets of all given tasks into a
+ * single new file under the base path.
+ */
+final class StateChangeFsUploader implements StateChangeUploader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateChangeFsUploader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path basePath;
+
+    private final FileSystem fileSystem;
+
+    private final StateChangeFormat format;
+
+    StateChangeFsUploader(Path basePath, FileSystem fileSystem) {
+        this.basePath = checkNotNull(basePath);
+        this.fileSystem = checkNotNull(fileSystem);
+        this.format = new StateChangeFormat();
+    }
+
+    @Override
+    public void upload(Collection<UploadTask> tasks) throws IOException {
+        List<StateChangeSet> changeSets = new ArrayList<>();
+        for (UploadTask task : tasks) {
+            changeSets.addAll(task.getChangeSets());
+        }
+
+        Path path = new Path(basePath, UUID.randomUUID().toString());
+        List<Long> offsets;
+        long size;
+        try (FSDataOutputStream stream =
+                fileSystem.create(path, FileSystem.WriteMode.NO_OVERWRITE)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(stream, BUFFER_SIZE);
+            offsets = format.write(buffered, changeSets);
+            buffered.flush();
+            size = stream.getPos();
+        } catch (IOException e) {
+            try {
+                fileSystem.delete(path, false);
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+        LOG.debug("Uploaded {} change sets of {} bytes to {}.", changeSets.size(), size, path);
+
+        FileStateHandle handle = new FileStateHandle(path, size);
+        int index = 0;
+        for (UploadTask task : tasks) {
+            List<UploadResult> results = new ArrayList<>(task.getChangeSets().size());
+            for (StateChangeSet changeSet : task.getChangeSets()) {
+                results.add(new UploadResult(handle, offsets.get(index++), changeSet.getSize()));
+            }
+            task.complete(results);
+        }
+    }
+
+    @Override
+    public void close() {}
+}
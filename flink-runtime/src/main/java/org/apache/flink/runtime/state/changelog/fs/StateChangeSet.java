@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/** The state changes of a {@link FsStateChangelogWriter} with the same {@link SequenceNumber}. */
+final class StateChangeSet {
+
+    private final SequenceNumber sequenceNumber;
+
+    private final List<StateChange> changes;
+
+    private final long size;
+
+    StateChangeSet(SequenceNumber sequenceNumber, List<StateChange> changes, long size) {
+        this.sequenceNumber = checkNotNull(sequenceNumber);
+        this.changes = checkNotNull(changes);
+        this.size = size;
+    }
+
+    SequenceNumber getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    List<StateChange> getChanges() {
+        return changes;
+    }
+
+    /** Returns the size of the changes in bytes. */
+    long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sqn=%s, changes=%d, size=%d", sequenceNumber, changes.size(), size);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/** Uploads {@link StateChangeSet state changes} to durable storage. */
+interface StateChangeUploader extends AutoCloseable {
+
+    /**
+     * Uploads the change sets of the given tasks and completes the tasks. Implementations may
+     * upload the tasks asynchronously.
+     */
+    void upload(Collection<UploadTask> tasks) throws IOException;
+
+    /** The change sets of a {@link FsStateChangelogWriter} to upload. */
+    final class UploadTask {
+
+        private final List<StateChangeSet> changeSets;
+
+        /** The results of the upload, in the order of the change sets. */
+        private final CompletableFuture<List<UploadResult>> result = new CompletableFuture<>();
+
+        UploadTask(List<StateChangeSet> changeSets) {
+            this.changeSets = checkNotNull(changeSets);
+        }
+
+        List<StateChangeSet> getChangeSets() {
+            return changeSets;
+        }
+
+        CompletableFuture<List<UploadResult>> getResult() {
+            return result;
+        }
+
+        long getSize() {
+            long size = 0;
+            for (StateChangeSet changeSet : changeSets) {
+                size += changeSet.getSize();
+            }
+            return size;
+        }
+
+        void complete(List<UploadResult> results) {
+            result.complete(new ArrayList<>(results));
+        }
+
+        void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/** The location of an uploaded {@link StateChangeSet}. */
+final class UploadResult {
+
+    private final StreamStateHandle streamStateHandle;
+
+    private final long offset;
+
+    private final long size;
+
+    UploadResult(StreamStateHandle streamStateHandle, long offset, long size) {
+        this.streamStateHandle = checkNotNull(streamStateHandle);
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /** Returns the handle of the file, which may be shared by many uploaded change sets. */
+    StreamStateHandle getStreamStateHandle() {
+        return streamStateHandle;
+    }
+
+    /** Returns the offset of the change set in the file. */
+    long getOffset() {
+        return offset;
+    }
+
+    /** Returns the size of the changes in bytes. */
+    long getSize() {
+        return size;
+    }
+}
@@ -21,8 +21,10 @@ package org.apache.flink.runtime.state.hashmap;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.configuration.StateBackendOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.execution.Environment;
@@ -40,8 +42,13 @@ import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.TaskStateManager;
 import org.apache.flink.runtime.state.heap.HeapKeyedStateBackendBuilder;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.OffHeapStateMemoryPool;
 import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.TernaryBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 
@@ -69,12 +76,40 @@ import java.util.Collection;
  * application without a default savepoint directory, it will pick up a default savepoint directory
  * specified in the Flink configuration of the running job/cluster. That behavior is implemented via
  * the {@link #configure(ReadableConfig, ClassLoader)} method.
+ *
+ * <h1>Off-heap State</h1>
+ *
+ * <p>If enabled via {@link #setOffHeapStateEnabled(boolean)} or {@link
+ * StateBackendOptions#HASHMAP_OFF_HEAP_ENABLED}, value, reducing and aggregating state is kept in
+ * serialized form in the managed memory of the TaskManagers instead of as objects on the JVM heap.
+ *
+ * <h1>Incremental Checkpoints</h1>
+ *
+ * <p>If enabled via {@link #setIncrementalCheckpointsEnabled(boolean)} or {@link
+ * CheckpointingOptions#INCREMENTAL_CHECKPOINTS}, checkpoints only write the state of the key groups
+ * which changed since the last completed checkpoint, and refer to the unchanged state in the files
+ * of previous checkpoints. Once a checkpoint would refer to more than {@link
+ * StateBackendOptions#HASHMAP_INCREMENTAL_MAX_DELTA_FILES} delta files, it writes the complete
+ * state into a new base instead. Incremental checkpoints require asynchronous snapshots of on-heap
+ * state.
  */
 @PublicEvolving
 public class HashMapStateBackend extends AbstractStateBackend implements ConfigurableStateBackend {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOG = LoggerFactory.getLogger(HashMapStateBackend.class);
+
+    /** Whether value, reducing and aggregating state is kept in off-heap managed memory. */
+    private TernaryBoolean offHeapStateEnabled = TernaryBoolean.UNDEFINED;
+
+    /** Whether checkpoints only write the state which changed since the last checkpoint. */
+    private TernaryBoolean incrementalCheckpointsEnabled = TernaryBoolean.UNDEFINED;
+
+    /** The maximum number of delta files which an incremental checkpoint refers to. */
+    private int maxIncrementalDeltaFiles =
+            StateBackendOptions.HASHMAP_INCREMENTAL_MAX_DELTA_FILES.defaultValue();
+
     // -----------------------------------------------------------------------
 
     /** Creates a new state backend. */
@@ -83,6 +118,23 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
     private HashMapStateBackend(HashMapStateBackend original, ReadableConfig config) {
         // configure latency tracking
         latencyTrackingConfigBuilder = original.latencyTrackingConfigBuilder.configure(config);
+
+        // configure off-heap state
+        offHeapStateEnabled =
+                original.offHeapStateEnabled.resolveUndefined(
+                        config.get(StateBackendOptions.HASHMAP_OFF_HEAP_ENABLED));
+
+        // configure incremental checkpoints
+        incrementalCheckpointsEnabled =
+                original.incrementalCheckpointsEnabled.resolveUndefined(
+                        config.get(CheckpointingOptions.INCREMENTAL_CHECKPOINTS));
+        maxIncrementalDeltaFiles =
+                config.get(StateBackendOptions.HASHMAP_INCREMENTAL_MAX_DELTA_FILES);
+        if (maxIncrementalDeltaFiles < 0) {
+            throw new IllegalConfigurationException(
+                    "The option '%s' must not be negative.",
+                    StateBackendOptions.HASHMAP_INCREMENTAL_MAX_DELTA_FILES.key());
+        }
     }
 
     @Override
@@ -91,6 +143,53 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
         return new HashMapStateBackend(this, config);
     }
 
+    // -----------------------------------------------------------------------
+    //  Off-heap state
+    // -----------------------------------------------------------------------
+
+    /**
+     * Sets whether value, reducing and aggregating state is kept in serialized form in the managed
+     * memory of the TaskManagers instead of as objects on the JVM heap. List and map state is
+     * always kept on the JVM heap.
+     */
+    public void setOffHeapStateEnabled(boolean offHeapStateEnabled) {
+        this.offHeapStateEnabled = TernaryBoolean.fromBoolean(offHeapStateEnabled);
+    }
+
+    /** Gets whether value, reducing and aggregating state is kept in off-heap managed memory. */
+    public boolean isOffHeapStateEnabled() {
+        return offHeapStateEnabled.getOrDefault(
+                StateBackendOptions.HASHMAP_OFF_HEAP_ENABLED.defaultValue());
+    }
+
+    // -----------------------------------------------------------------------
+    //  Incremental checkpoints
+    // -----------------------------------------------------------------------
+
+    /**
+     * Sets whether checkpoints only write the state of the key groups which changed since the last
+     * completed checkpoint, instead of the complete state.
+     */
+    public void setIncrementalCheckpointsEnabled(boolean incrementalCheckpointsEnabled) {
+        this.incrementalCheckpointsEnabled =
+                TernaryBoolean.fromBoolean(incrementalCheckpointsEnabled);
+    }
+
+    /** Gets whether checkpoints only write the state which changed since the last checkpoint. */
+    public boolean isIncrementalCheckpointsEnabled() {
+        return incrementalCheckpointsEnabled.getOrDefault(
+                CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
+    }
+
+    @Override
+    public boolean useManagedMemory() {
+        return isOffHeapStateEnabled();
+    }
+
+    // -----------------------------------------------------------------------
+    //  State holding data structures
+    // -----------------------------------------------------------------------
+
     @Override
     public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
             Environment env,
@@ -106,6 +205,37 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
             CloseableRegistry cancelStreamRegistry)
             throws IOException {
 
+        return createKeyedStateBackend(
+                env,
+                jobID,
+                operatorIdentifier,
+                keySerializer,
+                numberOfKeyGroups,
+                keyGroupRange,
+                kvStateRegistry,
+                ttlTimeProvider,
+                metricGroup,
+                stateHandles,
+                cancelStreamRegistry,
+                1.0);
+    }
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry,
+            double managedMemoryFraction)
+            throws IOException {
+
         TaskStateManager taskStateManager = env.getTaskStateManager();
         LocalRecoveryConfig localRecoveryConfig = taskStateManager.createLocalRecoveryConfig();
         HeapPriorityQueueSetFactory priorityQueueSetFactory =
@@ -113,7 +243,8 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
 
         LatencyTrackingStateConfig latencyTrackingStateConfig =
                 latencyTrackingConfigBuilder.setMetricGroup(metricGroup).build();
-        return new HeapKeyedStateBackendBuilder<>(
+        HeapKeyedStateBackendBuilder<K> builder =
+                new HeapKeyedStateBackendBuilder<>(
                         kvStateRegistry,
                         keySerializer,
                         env.getUserCodeClassLoader().asClassLoader(),
@@ -127,8 +258,25 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
                         localRecoveryConfig,
                         priorityQueueSetFactory,
                         true,
-                        cancelStreamRegistry)
-                .build();
+                        cancelStreamRegistry);
+        builder.setIncrementalCheckpoints(
+                isIncrementalCheckpointsEnabled(), maxIncrementalDeltaFiles);
+
+        if (isOffHeapStateEnabled()) {
+            long memoryBudget = env.getMemoryManager().computeMemorySize(managedMemoryFraction);
+            if (memoryBudget >= env.getMemoryManager().getPageSize()) {
+                builder.setOffHeapStateMemoryPool(
+                        new OffHeapStateMemoryPool(env.getMemoryManager(), memoryBudget));
+            } else {
+                LOG.warn(
+                        "Off-heap state is enabled, but the managed memory of {} bytes for "
+                                + "operator {} is smaller than one memory page. Keeping the state "
+                                + "on the JVM heap.",
+                        memoryBudget,
+                        operatorIdentifier);
+            }
+        }
+        return builder.build();
     }
 
     @Override
@@ -136,6 +136,9 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
     /** The serializer of the state. */
     protected final TypeSerializer<S> stateSerializer;
 
+    /** Whether state objects may be modified in place after they were returned by a get. */
+    private final boolean mutableState;
+
     /**
      * An empty map shared by all zero-capacity maps (typically from default constructor). It is
      * never written to, and replaced on first put. Its size is set to half the minimum, so that the
@@ -179,6 +182,12 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
     /** The highest version of this map that is still required by any unreleased snapshot. */
     private int highestRequiredSnapshotVersion;
 
+    /**
+     * The version of this map in which it was last modified. The map is unchanged since a snapshot
+     * iff this is smaller than the version of the snapshot.
+     */
+    private int lastModifiedVersion;
+
     /**
      * The last namespace that was actually inserted. This is a small optimization to reduce
      * duplicate namespace objects.
@@ -217,6 +226,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
     @SuppressWarnings("unchecked")
     private CopyOnWriteStateMap(int capacity, TypeSerializer<S> stateSerializer) {
         this.stateSerializer = Preconditions.checkNotNull(stateSerializer);
+        this.mutableState = !stateSerializer.isImmutableType();
 
         // initialized maps to EMPTY_TABLE.
         this.primaryTable = (StateMapEntry<K, N, S>[]) EMPTY_TABLE;
@@ -229,6 +239,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         this.rehashIndex = 0;
         this.stateMapVersion = 0;
         this.highestRequiredSnapshotVersion = 0;
+        this.lastModifiedVersion = 0;
         this.snapshotVersions = new TreeSet<>();
 
         if (capacity < 0) {
@@ -286,6 +297,10 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
                     e.stateVersion = stateMapVersion;
                     e.state = getStateSerializer().copy(e.state);
                 }
+                if (mutableState) {
+                    // the caller may modify the returned state in place
+                    lastModifiedVersion = stateMapVersion;
+                }
 
                 return e.state;
             }
@@ -384,6 +399,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
     /** Helper method that is the basis for operations that add mappings. */
     private StateMapEntry<K, N, S> putEntry(K key, N namespace) {
 
+        lastModifiedVersion = stateMapVersion;
         final int hash = computeHashForOperationAndDoIncrementalRehash(key, namespace);
         final StateMapEntry<K, N, S>[] tab = selectActiveTable(hash);
         int index = hash & (tab.length - 1);
@@ -427,6 +443,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
                     prev.next = e.next;
                 }
                 ++modCount;
+                lastModifiedVersion = stateMapVersion;
                 if (tab == primaryTable) {
                     --primaryTableSize;
                 } else {
@@ -537,6 +554,16 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return stateMapVersion;
     }
 
+    /** Returns the version of this map in which it was last modified. */
+    int getLastModifiedVersion() {
+        return lastModifiedVersion;
+    }
+
+    /** Marks this map as modified, e.g. because the serializers of its state were changed. */
+    void markModified() {
+        lastModifiedVersion = stateMapVersion;
+    }
+
     /**
      * Allocate a table of the given capacity and set the threshold accordingly.
      *
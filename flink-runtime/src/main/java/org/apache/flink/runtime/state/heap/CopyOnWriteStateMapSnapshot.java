@@ -60,6 +60,12 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
      */
     private final int snapshotVersion;
 
+    /**
+     * Version of the {@link CopyOnWriteStateMap} in which it was last modified before this snapshot
+     * was created.
+     */
+    private final int lastModifiedVersion;
+
     /**
      * The state map entries, as by the time this snapshot was created. Objects in this array may or
      * may not be deep copies of the current entries in the {@link CopyOnWriteStateMap} that created
@@ -85,6 +91,7 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
 
         this.snapshotData = owningStateMap.snapshotMapArrays();
         this.snapshotVersion = owningStateMap.getStateMapVersion();
+        this.lastModifiedVersion = owningStateMap.getLastModifiedVersion();
         this.numberOfEntriesInSnapshotData = owningStateMap.size();
         this.released = false;
     }
@@ -110,6 +117,22 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
         return snapshotVersion;
     }
 
+    CopyOnWriteStateMap<K, N, S> getOwningStateMap() {
+        return owningStateMap;
+    }
+
+    /**
+     * Returns whether the state of this snapshot equals the state of an earlier snapshot of the
+     * given {@link CopyOnWriteStateMap}, i.e. whether the map owns this snapshot and was not
+     * modified since the earlier snapshot was created.
+     *
+     * @param stateMap the map of the earlier snapshot.
+     * @param earlierSnapshotVersion the version of the earlier snapshot.
+     */
+    boolean isUnchangedSince(CopyOnWriteStateMap<?, ?, ?> stateMap, int earlierSnapshotVersion) {
+        return owningStateMap == stateMap && lastModifiedVersion < earlierSnapshotVersion;
+    }
+
     @Override
     public SnapshotIterator<K, N, S> getIterator(
             @Nonnull TypeSerializer<K> keySerializer,
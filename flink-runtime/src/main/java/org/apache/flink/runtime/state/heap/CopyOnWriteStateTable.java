@@ -55,6 +55,15 @@ public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
         return new CopyOnWriteStateMap<>(getStateSerializer());
     }
 
+    @Override
+    public void setMetaInfo(RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo) {
+        super.setMetaInfo(metaInfo);
+        // incremental snapshots must not reuse state which was written with the previous meta info
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            ((CopyOnWriteStateMap<K, N, S>) stateMap).markModified();
+        }
+    }
+
     // Snapshotting
     // ----------------------------------------------------------------------------------------------------
 
@@ -68,8 +68,7 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
     }
 
     @Override
-    protected StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>> getStateMapSnapshotForKeyGroup(
-            int keyGroup) {
+    protected CopyOnWriteStateMapSnapshot<K, N, S> getStateMapSnapshotForKeyGroup(int keyGroup) {
         int indexOffset = keyGroup - keyGroupOffset;
         CopyOnWriteStateMapSnapshot<K, N, S> stateMapSnapshot = null;
         if (indexOffset >= 0 && indexOffset < stateMapSnapshots.size()) {
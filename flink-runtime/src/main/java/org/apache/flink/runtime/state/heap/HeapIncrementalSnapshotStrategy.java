@@ -0,0 +1,498 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.CheckpointListener;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateSerializerProvider;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * A strategy for incremental checkpoints of a {@link HeapKeyedStateBackend} with {@link
+ * CopyOnWriteStateTable CopyOnWriteStateTables}.
+ *
+ * <p>The state of each state and key group is written as a separate block. A checkpoint writes the
+ * blocks which changed since the last completed checkpoint into a new shared delta file, and refers
+ * to the unchanged blocks in the files of previous checkpoints. Whether a block changed is tracked
+ * by the versions of the {@link CopyOnWriteStateMap CopyOnWriteStateMaps}. The private meta data
+ * file of a checkpoint contains the meta info of the states and the position of every block. The
+ * files are registered in the {@link SharedStateRegistry} through an {@link
+ * IncrementalRemoteKeyedStateHandle}, which discards a file once no retained checkpoint refers to
+ * it. When a checkpoint would refer to more than the configured number of delta files, it writes
+ * all blocks into a new full base instead.
+ *
+ * <p>Priority queue state is written into every delta file. Savepoints and snapshots of backends
+ * with other state tables are written in full by the {@link HeapSnapshotStrategy}, and incremental
+ * checkpoints do not keep task-local state for local recovery.
+ */
+class HeapIncrementalSnapshotStrategy<K> extends HeapSnapshotStrategy<K>
+        implements CheckpointListener {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(HeapIncrementalSnapshotStrategy.class);
+
+    /** The magic number which starts the meta data file of an incremental snapshot. */
+    static final long META_DATA_MAGIC_NUMBER = 0x48656170496E6372L;
+
+    /** The unique identifier of this backend, which scopes its files in the registry. */
+    private final UUID backendUID;
+
+    /** The maximum number of delta files which a checkpoint refers to besides its full base. */
+    private final int maxDeltaFiles;
+
+    /** The blocks of the uploaded checkpoints which may become the base of a later checkpoint. */
+    @GuardedBy("uploadedBlocks")
+    private final SortedMap<Long, Map<StateUID, UploadedBlock[]>> uploadedBlocks;
+
+    /** The id of the last completed checkpoint, whose blocks are the base of the next one. */
+    @GuardedBy("uploadedBlocks")
+    private long lastCompletedCheckpointId;
+
+    HeapIncrementalSnapshotStrategy(
+            Map<String, StateTable<K, ?, ?>> registeredKVStates,
+            Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates,
+            StreamCompressionDecorator keyGroupCompressionDecorator,
+            LocalRecoveryConfig localRecoveryConfig,
+            KeyGroupRange keyGroupRange,
+            StateSerializerProvider<K> keySerializerProvider,
+            int totalKeyGroups,
+            ClassLoader userCodeClassLoader,
+            UUID backendUID,
+            int maxDeltaFiles) {
+        super(
+                registeredKVStates,
+                registeredPQStates,
+                keyGroupCompressionDecorator,
+                localRecoveryConfig,
+                keyGroupRange,
+                keySerializerProvider,
+                totalKeyGroups,
+                userCodeClassLoader);
+        this.backendUID = backendUID;
+        this.maxDeltaFiles = maxDeltaFiles;
+        this.uploadedBlocks = new TreeMap<>();
+        this.lastCompletedCheckpointId = -1L;
+    }
+
+    @Override
+    public HeapSnapshotResources<K> syncPrepareResources(long checkpointId) {
+        // incremental checkpoints do not keep a task-local snapshot in memory
+        return createSnapshotResources();
+    }
+
+    @Override
+    public SnapshotResultSupplier<KeyedStateHandle> asyncSnapshot(
+            HeapSnapshotResources<K> syncPartResource,
+            long checkpointId,
+            long timestamp,
+            @Nonnull CheckpointStreamFactory streamFactory,
+            @Nonnull CheckpointOptions checkpointOptions) {
+
+        if (syncPartResource.getMetaInfoSnapshots().isEmpty()
+                || checkpointOptions.getCheckpointType().isSavepoint()
+                || !isCopyOnWrite(syncPartResource)) {
+            return super.asyncSnapshot(
+                    syncPartResource, checkpointId, timestamp, streamFactory, checkpointOptions);
+        }
+
+        final long baseCheckpointId;
+        final Map<StateUID, UploadedBlock[]> baseBlocks;
+
+        // use the last completed checkpoint as the comparison base
+        synchronized (uploadedBlocks) {
+            baseCheckpointId = lastCompletedCheckpointId;
+            baseBlocks =
+                    uploadedBlocks.getOrDefault(lastCompletedCheckpointId, Collections.emptyMap());
+        }
+        LOG.trace(
+                "Taking incremental snapshot for checkpoint {} based on last completed checkpoint {}.",
+                checkpointId,
+                baseCheckpointId);
+
+        return snapshotCloseableRegistry ->
+                writeSnapshot(
+                        syncPartResource,
+                        baseBlocks,
+                        checkpointId,
+                        streamFactory,
+                        snapshotCloseableRegistry);
+    }
+
+    private static boolean isCopyOnWrite(HeapSnapshotResources<?> snapshotResources) {
+        for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                snapshotResources.getCowStateStableSnapshots().entrySet()) {
+            if (stateSnapshot.getKey().getStateType()
+                            == StateMetaInfoSnapshot.BackendStateType.KEY_VALUE
+                    && !(stateSnapshot.getValue() instanceof CopyOnWriteStateTableSnapshot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SnapshotResult<KeyedStateHandle> writeSnapshot(
+            HeapSnapshotResources<K> snapshotResources,
+            Map<StateUID, UploadedBlock[]> baseBlocks,
+            long checkpointId,
+            CheckpointStreamFactory streamFactory,
+            CloseableRegistry snapshotCloseableRegistry)
+            throws Exception {
+
+        final Map<StateUID, StateSnapshot> stateSnapshots =
+                snapshotResources.getCowStateStableSnapshots();
+        final StateUID[] stateUidsById = new StateUID[snapshotResources.getStateNamesToId().size()];
+        for (Map.Entry<StateUID, Integer> stateId :
+                snapshotResources.getStateNamesToId().entrySet()) {
+            stateUidsById[stateId.getValue()] = stateId.getKey();
+        }
+
+        Map<StateUID, UploadedBlock[]> blocks = findUnchangedBlocks(stateSnapshots, baseBlocks);
+        int numReferencedFiles = collectFiles(blocks).size();
+        if (numReferencedFiles > maxDeltaFiles) {
+            LOG.debug(
+                    "Writing a full base for checkpoint {}, because the unchanged state is spread "
+                            + "over {} files.",
+                    checkpointId,
+                    numReferencedFiles);
+            blocks = new HashMap<>();
+        }
+
+        final StateHandleID deltaFileId = new StateHandleID("chk-" + checkpointId);
+        StreamStateHandle deltaFileHandle = null;
+        try {
+            deltaFileHandle =
+                    writeChangedBlocks(
+                            stateSnapshots,
+                            stateUidsById,
+                            blocks,
+                            deltaFileId,
+                            streamFactory,
+                            snapshotCloseableRegistry);
+
+            final Map<StateHandleID, Integer> fileIndices = collectFiles(blocks);
+            final StreamStateHandle metaStateHandle =
+                    writeMetaData(
+                            snapshotResources,
+                            stateUidsById,
+                            blocks,
+                            fileIndices,
+                            streamFactory,
+                            snapshotCloseableRegistry);
+
+            final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+            for (StateHandleID fileId : fileIndices.keySet()) {
+                // files of previous checkpoints are already registered in the registry
+                sharedState.put(
+                        fileId,
+                        fileId.equals(deltaFileId)
+                                ? deltaFileHandle
+                                : new PlaceholderStreamStateHandle());
+            }
+
+            synchronized (uploadedBlocks) {
+                uploadedBlocks.put(checkpointId, blocks);
+            }
+
+            return SnapshotResult.of(
+                    new IncrementalRemoteKeyedStateHandle(
+                            backendUID,
+                            keyGroupRange,
+                            checkpointId,
+                            sharedState,
+                            Collections.emptyMap(),
+                            metaStateHandle));
+        } catch (Exception e) {
+            if (deltaFileHandle != null) {
+                try {
+                    deltaFileHandle.discardState();
+                } catch (Exception discardException) {
+                    e.addSuppressed(discardException);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the blocks of the base checkpoint whose state did not change since then, per state
+     * and key group position.
+     */
+    private Map<StateUID, UploadedBlock[]> findUnchangedBlocks(
+            Map<StateUID, StateSnapshot> stateSnapshots,
+            Map<StateUID, UploadedBlock[]> baseBlocks) {
+
+        final Map<StateUID, UploadedBlock[]> unchangedBlocks = new HashMap<>();
+        for (Map.Entry<StateUID, UploadedBlock[]> stateBlocks : baseBlocks.entrySet()) {
+            StateSnapshot stateSnapshot = stateSnapshots.get(stateBlocks.getKey());
+            if (!(stateSnapshot instanceof CopyOnWriteStateTableSnapshot)) {
+                continue;
+            }
+            CopyOnWriteStateTableSnapshot<?, ?, ?> tableSnapshot =
+                    (CopyOnWriteStateTableSnapshot<?, ?, ?>) stateSnapshot;
+
+            UploadedBlock[] blocks = new UploadedBlock[keyGroupRange.getNumberOfKeyGroups()];
+            for (int keyGroupPos = 0; keyGroupPos < blocks.length; ++keyGroupPos) {
+                UploadedBlock baseBlock = stateBlocks.getValue()[keyGroupPos];
+                CopyOnWriteStateMapSnapshot<?, ?, ?> stateMapSnapshot =
+                        tableSnapshot.getStateMapSnapshotForKeyGroup(
+                                keyGroupRange.getKeyGroupId(keyGroupPos));
+                if (baseBlock != null
+                        && baseBlock.stateMap != null
+                        && stateMapSnapshot.isUnchangedSince(
+                                baseBlock.stateMap, baseBlock.snapshotVersion)) {
+                    blocks[keyGroupPos] =
+                            new UploadedBlock(
+                                    baseBlock.fileId,
+                                    baseBlock.offset,
+                                    baseBlock.stateMap,
+                                    stateMapSnapshot.getSnapshotVersion());
+                }
+            }
+            unchangedBlocks.put(stateBlocks.getKey(), blocks);
+        }
+        return unchangedBlocks;
+    }
+
+    /**
+     * Writes all blocks which are missing in the given blocks into a new delta file, and adds them.
+     *
+     * @return the handle of the delta file, or null if no block was written.
+     */
+    @Nullable
+    private StreamStateHandle writeChangedBlocks(
+            Map<StateUID, StateSnapshot> stateSnapshots,
+            StateUID[] stateUidsById,
+            Map<StateUID, UploadedBlock[]> blocks,
+            StateHandleID deltaFileId,
+            CheckpointStreamFactory streamFactory,
+            CloseableRegistry snapshotCloseableRegistry)
+            throws IOException {
+
+        CheckpointStreamFactory.CheckpointStateOutputStream deltaStream = null;
+
+        for (int keyGroupPos = 0;
+                keyGroupPos < keyGroupRange.getNumberOfKeyGroups();
+                ++keyGroupPos) {
+            int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
+
+            for (StateUID stateUid : stateUidsById) {
+                StateSnapshot stateSnapshot = stateSnapshots.get(stateUid);
+                if (stateSnapshot == null) {
+                    continue;
+                }
+                UploadedBlock[] stateBlocks =
+                        blocks.computeIfAbsent(
+                                stateUid,
+                                ignored -> new UploadedBlock[keyGroupRange.getNumberOfKeyGroups()]);
+                if (stateBlocks[keyGroupPos] != null) {
+                    continue;
+                }
+
+                if (deltaStream == null) {
+                    deltaStream =
+                            streamFactory.createCheckpointStateOutputStream(
+                                    CheckpointedStateScope.SHARED);
+                    snapshotCloseableRegistry.registerCloseable(deltaStream);
+                }
+
+                // the version must be taken before writing, which releases the map snapshot
+                CopyOnWriteStateMapSnapshot<?, ?, ?> stateMapSnapshot =
+                        stateSnapshot instanceof CopyOnWriteStateTableSnapshot
+                                ? ((CopyOnWriteStateTableSnapshot<?, ?, ?>) stateSnapshot)
+                                        .getStateMapSnapshotForKeyGroup(keyGroupId)
+                                : null;
+                stateBlocks[keyGroupPos] =
+                        new UploadedBlock(
+                                deltaFileId,
+                                deltaStream.getPos(),
+                                stateMapSnapshot != null
+                                        ? stateMapSnapshot.getOwningStateMap()
+                                        : null,
+                                stateMapSnapshot != null
+                                        ? stateMapSnapshot.getSnapshotVersion()
+                                        : 0);
+
+                try (OutputStream kgCompressionOut =
+                        keyGroupCompressionDecorator.decorateWithCompression(deltaStream)) {
+                    stateSnapshot
+                            .getKeyGroupWriter()
+                            .writeStateInKeyGroup(
+                                    new DataOutputViewStreamWrapper(kgCompressionOut), keyGroupId);
+                } // this will just close the outer compression stream
+            }
+        }
+
+        if (deltaStream == null) {
+            return null;
+        } else if (snapshotCloseableRegistry.unregisterCloseable(deltaStream)) {
+            return deltaStream.closeAndGetHandle();
+        } else {
+            throw new IOException("Stream already unregistered.");
+        }
+    }
+
+    /**
+     * Writes the meta data file, which contains the meta info of the states followed by the files
+     * and, for every key group and state, the file index and offset of its block.
+     */
+    private StreamStateHandle writeMetaData(
+            HeapSnapshotResources<K> snapshotResources,
+            StateUID[] stateUidsById,
+            Map<StateUID, UploadedBlock[]> blocks,
+            Map<StateHandleID, Integer> fileIndices,
+            CheckpointStreamFactory streamFactory,
+            CloseableRegistry snapshotCloseableRegistry)
+            throws IOException {
+
+        final KeyedBackendSerializationProxy<K> serializationProxy =
+                new KeyedBackendSerializationProxy<>(
+                        snapshotResources.getKeySerializer(),
+                        snapshotResources.getMetaInfoSnapshots(),
+                        !Objects.equals(
+                                UncompressedStreamCompressionDecorator.INSTANCE,
+                                keyGroupCompressionDecorator));
+
+        final CheckpointStreamFactory.CheckpointStateOutputStream metaStream =
+                streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        snapshotCloseableRegistry.registerCloseable(metaStream);
+
+        final DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(metaStream);
+        outView.writeLong(META_DATA_MAGIC_NUMBER);
+        serializationProxy.write(outView);
+
+        outView.writeInt(fileIndices.size());
+        for (StateHandleID fileId : fileIndices.keySet()) {
+            outView.writeUTF(fileId.getKeyString());
+        }
+
+        for (int keyGroupPos = 0;
+                keyGroupPos < keyGroupRange.getNumberOfKeyGroups();
+                ++keyGroupPos) {
+            outView.writeInt(keyGroupRange.getKeyGroupId(keyGroupPos));
+            for (int stateId = 0; stateId < stateUidsById.length; ++stateId) {
+                UploadedBlock[] stateBlocks = blocks.get(stateUidsById[stateId]);
+                if (stateBlocks == null) {
+                    continue;
+                }
+                UploadedBlock block = stateBlocks[keyGroupPos];
+                outView.writeShort(stateId);
+                outView.writeInt(fileIndices.get(block.fileId));
+                outView.writeLong(block.offset);
+            }
+        }
+
+        if (snapshotCloseableRegistry.unregisterCloseable(metaStream)) {
+            return metaStream.closeAndGetHandle();
+        } else {
+            throw new IOException("Stream already unregistered.");
+        }
+    }
+
+    /** Returns the files of the given blocks, mapped to their index in order of appearance. */
+    private static Map<StateHandleID, Integer> collectFiles(Map<StateUID, UploadedBlock[]> blocks) {
+        final Map<StateHandleID, Integer> fileIndices = new LinkedHashMap<>();
+        for (UploadedBlock[] stateBlocks : blocks.values()) {
+            for (UploadedBlock block : stateBlocks) {
+                if (block != null) {
+                    fileIndices.putIfAbsent(block.fileId, fileIndices.size());
+                }
+            }
+        }
+        return fileIndices;
+    }
+
+    @Override
+    public void notifyCheckpointComplete(long completedCheckpointId) {
+        synchronized (uploadedBlocks) {
+            if (completedCheckpointId > lastCompletedCheckpointId) {
+                uploadedBlocks
+                        .keySet()
+                        .removeIf(checkpointId -> checkpointId < completedCheckpointId);
+                lastCompletedCheckpointId = completedCheckpointId;
+            }
+        }
+    }
+
+    @Override
+    public void notifyCheckpointAborted(long abortedCheckpointId) {
+        synchronized (uploadedBlocks) {
+            uploadedBlocks.keySet().remove(abortedCheckpointId);
+        }
+    }
+
+    /** The position of the state of one state and key group in the file of a checkpoint. */
+    private static final class UploadedBlock {
+
+        private final StateHandleID fileId;
+
+        private final long offset;
+
+        /** The map whose state the block contains, or null if the block is never reused. */
+        @Nullable private final CopyOnWriteStateMap<?, ?, ?> stateMap;
+
+        /** The version of the snapshot of the map whose state the block contains. */
+        private final int snapshotVersion;
+
+        private UploadedBlock(
+                StateHandleID fileId,
+                long offset,
+                @Nullable CopyOnWriteStateMap<?, ?, ?> stateMap,
+                int snapshotVersion) {
+            this.fileId = fileId;
+            this.offset = offset;
+            this.stateMap = stateMap;
+            this.snapshotVersion = snapshotVersion;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.CheckpointListener;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.State;
@@ -217,6 +218,9 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
             }
 
             stateTable.setMetaInfo(restoredKvMetaInfo);
+            if (stateCompatibility.isCompatibleAfterMigration()) {
+                stateTable.migrateStateSerializer(previousStateSerializer);
+            }
         } else {
             RegisteredKeyValueStateBackendMetaInfo<N, V> newMetaInfo =
                     new RegisteredKeyValueStateBackendMetaInfo<>(
@@ -333,13 +337,17 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
     }
 
     @Override
-    public void notifyCheckpointComplete(long checkpointId) {
-        // Nothing to do
+    public void notifyCheckpointComplete(long checkpointId) throws Exception {
+        if (checkpointStrategy instanceof CheckpointListener) {
+            ((CheckpointListener) checkpointStrategy).notifyCheckpointComplete(checkpointId);
+        }
     }
 
     @Override
-    public void notifyCheckpointAborted(long checkpointId) {
-        // nothing to do
+    public void notifyCheckpointAborted(long checkpointId) throws Exception {
+        if (checkpointStrategy instanceof CheckpointListener) {
+            ((CheckpointListener) checkpointStrategy).notifyCheckpointAborted(checkpointId);
+        }
     }
 
     @Override
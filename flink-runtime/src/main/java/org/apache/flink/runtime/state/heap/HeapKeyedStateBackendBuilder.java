@@ -32,12 +32,20 @@ import org.apache.flink.runtime.state.SavepointKeyedStateHandle;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.apache.flink.runtime.state.SnapshotExecutionType.ASYNCHRONOUS;
 import static org.apache.flink.runtime.state.SnapshotExecutionType.SYNCHRONOUS;
@@ -55,6 +63,16 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
     private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
     /** Whether asynchronous snapshot is enabled. */
     private final boolean asynchronousSnapshots;
+    /** The pool of off-heap memory for value-like states, or null to keep all state on heap. */
+    @Nullable private OffHeapStateMemoryPool offHeapStateMemoryPool;
+    /** The factory for the state tables, or null to use the default tables. */
+    @Nullable private StateTableFactory<K> customStateTableFactory;
+    /** Whether checkpoints only write the state which changed since the last checkpoint. */
+    private boolean incrementalCheckpoints;
+    /** The maximum number of delta files which an incremental checkpoint refers to. */
+    private int maxIncrementalDeltaFiles;
+    /** Resources which are closed when the backend is disposed. */
+    private final List<Closeable> backendResources = new ArrayList<>();
 
     public HeapKeyedStateBackendBuilder(
             TaskKvStateRegistry kvStateRegistry,
@@ -88,6 +106,54 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
         this.asynchronousSnapshots = asynchronousSnapshots;
     }
 
+    /**
+     * Sets the pool of off-heap memory in which value, reducing and aggregating states are kept in
+     * serialized form. The pool is closed when the backend is disposed.
+     */
+    public HeapKeyedStateBackendBuilder<K> setOffHeapStateMemoryPool(
+            @Nullable OffHeapStateMemoryPool offHeapStateMemoryPool) {
+        this.offHeapStateMemoryPool = offHeapStateMemoryPool;
+        return this;
+    }
+
+    /**
+     * Sets the factory for the state tables of the backend. By default, {@link
+     * CopyOnWriteStateTable CopyOnWriteStateTables} are used for asynchronous snapshots and {@link
+     * NestedMapsStateTable NestedMapsStateTables} for synchronous snapshots.
+     */
+    public HeapKeyedStateBackendBuilder<K> setStateTableFactory(
+            @Nullable StateTableFactory<K> stateTableFactory) {
+        this.customStateTableFactory = stateTableFactory;
+        return this;
+    }
+
+    /**
+     * Sets whether checkpoints only write the state of the key groups which changed since the last
+     * completed checkpoint. This requires {@link CopyOnWriteStateTable CopyOnWriteStateTables},
+     * otherwise checkpoints are always written in full.
+     *
+     * @param incrementalCheckpoints whether checkpoints are incremental.
+     * @param maxDeltaFiles the maximum number of delta files which a checkpoint refers to in
+     *     addition to its full base, before it writes a new full base.
+     */
+    public HeapKeyedStateBackendBuilder<K> setIncrementalCheckpoints(
+            boolean incrementalCheckpoints, int maxDeltaFiles) {
+        Preconditions.checkArgument(
+                maxDeltaFiles >= 0, "The maximum number of delta files must not be negative.");
+        this.incrementalCheckpoints = incrementalCheckpoints;
+        this.maxIncrementalDeltaFiles = maxDeltaFiles;
+        return this;
+    }
+
+    /**
+     * Registers a resource which is closed when the backend is disposed, or when building the
+     * backend fails.
+     */
+    public HeapKeyedStateBackendBuilder<K> registerBackendResource(Closeable resource) {
+        this.backendResources.add(Preconditions.checkNotNull(resource));
+        return this;
+    }
+
     @Override
     public HeapKeyedStateBackend<K> build() throws BackendBuildingException {
         // Map of registered Key/Value states
@@ -101,14 +167,35 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
         InternalKeyContext<K> keyContext =
                 new InternalKeyContextImpl<>(keyGroupRange, numberOfKeyGroups);
 
-        final StateTableFactory<K> stateTableFactory;
-        if (asynchronousSnapshots) {
+        StateTableFactory<K> stateTableFactory;
+        if (customStateTableFactory != null) {
+            stateTableFactory = customStateTableFactory;
+        } else if (asynchronousSnapshots) {
             stateTableFactory = CopyOnWriteStateTable::new;
         } else {
             stateTableFactory = NestedMapsStateTable::new;
         }
+        if (offHeapStateMemoryPool != null) {
+            stateTableFactory =
+                    new OffHeapStateTableFactory<>(offHeapStateMemoryPool, stateTableFactory);
+            backendResources.add(offHeapStateMemoryPool);
+        }
+        for (Closeable resource : backendResources) {
+            try {
+                cancelStreamRegistryForBackend.registerCloseable(resource);
+            } catch (IOException e) {
+                IOUtils.closeAllQuietly(backendResources);
+                throw new BackendBuildingException(
+                        "Failed to register the resources of the heap backend", e);
+            }
+        }
 
-        restoreState(registeredKVStates, registeredPQStates, keyContext, stateTableFactory);
+        try {
+            restoreState(registeredKVStates, registeredPQStates, keyContext, stateTableFactory);
+        } catch (BackendBuildingException e) {
+            IOUtils.closeQuietly(cancelStreamRegistryForBackend);
+            throw e;
+        }
         return new HeapKeyedStateBackend<>(
                 kvStateRegistry,
                 keySerializerProvider.currentSchemaSerializer(),
@@ -181,6 +268,19 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
     private HeapSnapshotStrategy<K> initSnapshotStrategy(
             Map<String, StateTable<K, ?, ?>> registeredKVStates,
             Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates) {
+        if (incrementalCheckpoints) {
+            return new HeapIncrementalSnapshotStrategy<>(
+                    registeredKVStates,
+                    registeredPQStates,
+                    keyGroupCompressionDecorator,
+                    localRecoveryConfig,
+                    keyGroupRange,
+                    keySerializerProvider,
+                    numberOfKeyGroups,
+                    userCodeClassLoader,
+                    UUID.randomUUID(),
+                    maxIncrementalDeltaFiles);
+        }
         return new HeapSnapshotStrategy<>(
                 registeredKVStates,
                 registeredPQStates,
@@ -188,6 +288,7 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
                 localRecoveryConfig,
                 keyGroupRange,
                 keySerializerProvider,
-                numberOfKeyGroups);
+                numberOfKeyGroups,
+                userCodeClassLoader);
     }
 }
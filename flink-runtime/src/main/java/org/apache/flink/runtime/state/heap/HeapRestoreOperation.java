@@ -20,10 +20,13 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.TypeSerializerSchemaCompatibility;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.IterableStateSnapshot;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
@@ -31,10 +34,14 @@ import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.RestoreOperation;
 import org.apache.flink.runtime.state.SnappyStreamCompressionDecorator;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateSerializerProvider;
+import org.apache.flink.runtime.state.StateSnapshot;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.util.Preconditions;
@@ -45,10 +52,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -114,13 +124,39 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                 continue;
             }
 
+            if (keyedStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+                LOG.info("Starting to restore from state handle: {}.", keyedStateHandle);
+                restoreIncrementalStateHandle(
+                        (IncrementalRemoteKeyedStateHandle) keyedStateHandle,
+                        !keySerializerRestored);
+                keySerializerRestored = true;
+                LOG.info("Finished restoring from state handle: {}.", keyedStateHandle);
+                continue;
+            }
+
             if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
                 throw unexpectedStateHandleException(
-                        KeyGroupsStateHandle.class, keyedStateHandle.getClass());
+                        new Class[] {
+                            KeyGroupsStateHandle.class, IncrementalRemoteKeyedStateHandle.class
+                        },
+                        keyedStateHandle.getClass());
             }
 
             LOG.info("Starting to restore from state handle: {}.", keyedStateHandle);
             KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
+
+            HeapSnapshotResources<K> inMemorySnapshot = takeInMemorySnapshot(keyGroupsStateHandle);
+            if (inMemorySnapshot != null) {
+                try {
+                    restoreInMemorySnapshot(inMemorySnapshot, !keySerializerRestored);
+                    keySerializerRestored = true;
+                } finally {
+                    inMemorySnapshot.release();
+                }
+                LOG.info("Finished restoring from in-memory snapshot of {}.", keyedStateHandle);
+                continue;
+            }
+
             FSDataInputStream fsDataInputStream = keyGroupsStateHandle.openInputStream();
             cancelStreamRegistry.registerCloseable(fsDataInputStream);
 
@@ -134,25 +170,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                 serializationProxy.read(inView);
 
                 if (!keySerializerRestored) {
-                    // fetch current serializer now because if it is incompatible, we can't access
-                    // it anymore to improve the error message
-                    TypeSerializer<K> currentSerializer =
-                            keySerializerProvider.currentSchemaSerializer();
-                    // check for key serializer compatibility; this also reconfigures the
-                    // key serializer to be compatible, if it is required and is possible
-                    TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
-                            keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
-                                    serializationProxy.getKeySerializerSnapshot());
-                    if (keySerializerSchemaCompat.isCompatibleAfterMigration()
-                            || keySerializerSchemaCompat.isIncompatible()) {
-                        throw new StateMigrationException(
-                                "The new key serializer ("
-                                        + currentSerializer
-                                        + ") must be compatible with the previous key serializer ("
-                                        + keySerializerProvider.previousSchemaSerializer()
-                                        + ").");
-                    }
-
+                    restoreKeySerializer(serializationProxy.getKeySerializerSnapshot());
                     keySerializerRestored = true;
                 }
 
@@ -181,6 +199,194 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
         return null;
     }
 
+    private void restoreKeySerializer(TypeSerializerSnapshot<K> keySerializerSnapshot)
+            throws StateMigrationException {
+        // fetch current serializer now because if it is incompatible, we can't access
+        // it anymore to improve the error message
+        TypeSerializer<K> currentSerializer = keySerializerProvider.currentSchemaSerializer();
+        // check for key serializer compatibility; this also reconfigures the
+        // key serializer to be compatible, if it is required and is possible
+        TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
+                keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
+                        keySerializerSnapshot);
+        if (keySerializerSchemaCompat.isCompatibleAfterMigration()
+                || keySerializerSchemaCompat.isIncompatible()) {
+            throw new StateMigrationException(
+                    "The new key serializer ("
+                            + currentSerializer
+                            + ") must be compatible with the previous key serializer ("
+                            + keySerializerProvider.previousSchemaSerializer()
+                            + ").");
+        }
+    }
+
+    /**
+     * Takes over the snapshot which a task-local state handle retained in memory, if it was taken
+     * with the same class loader and covers exactly the key groups of this backend.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private HeapSnapshotResources<K> takeInMemorySnapshot(KeyGroupsStateHandle stateHandle) {
+        if (!(stateHandle instanceof InMemoryKeyGroupsStateHandle)
+                || !keyGroupRange.equals(stateHandle.getKeyGroupRange())) {
+            return null;
+        }
+        return (HeapSnapshotResources<K>)
+                ((InMemoryKeyGroupsStateHandle) stateHandle).takeSnapshot(userCodeClassLoader);
+    }
+
+    /**
+     * Restores the state tables and priority queues from the state objects of a snapshot, which
+     * avoids serializing and deserializing them.
+     */
+    @SuppressWarnings("unchecked")
+    private void restoreInMemorySnapshot(
+            HeapSnapshotResources<K> snapshot, boolean restoreKeySerializer) throws Exception {
+        if (restoreKeySerializer) {
+            restoreKeySerializer(snapshot.getKeySerializer().snapshotConfiguration());
+        }
+
+        heapMetaInfoRestoreOperation.createOrCheckStateForMetaInfo(
+                snapshot.getMetaInfoSnapshots(), registeredKVStates, registeredPQStates);
+
+        for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                snapshot.getCowStateStableSnapshots().entrySet()) {
+            StateUID stateUid = stateSnapshot.getKey();
+            switch (stateUid.getStateType()) {
+                case KEY_VALUE:
+                    restoreStateTable(
+                            registeredKVStates.get(stateUid.getStateName()),
+                            (IterableStateSnapshot) stateSnapshot.getValue());
+                    break;
+                case PRIORITY_QUEUE:
+                    restorePriorityQueue(
+                            registeredPQStates.get(stateUid.getStateName()),
+                            (HeapPriorityQueueStateSnapshot) stateSnapshot.getValue());
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Unexpected state type: " + stateUid.getStateType() + ".");
+            }
+        }
+    }
+
+    private <N, S> void restoreStateTable(
+            StateTable<K, N, S> stateTable, IterableStateSnapshot<K, N, S> snapshot) {
+        for (int keyGroup : keyGroupRange) {
+            Iterator<StateEntry<K, N, S>> entries = snapshot.getIterator(keyGroup);
+            while (entries.hasNext()) {
+                StateEntry<K, N, S> entry = entries.next();
+                stateTable.put(entry.getKey(), keyGroup, entry.getNamespace(), entry.getState());
+            }
+        }
+    }
+
+    private <T extends HeapPriorityQueueElement> void restorePriorityQueue(
+            HeapPriorityQueueSnapshotRestoreWrapper<T> priorityQueue,
+            HeapPriorityQueueStateSnapshot<T> snapshot) {
+        HeapPriorityQueueSet<T> queue = priorityQueue.getPriorityQueue();
+        for (int keyGroup : keyGroupRange) {
+            Iterator<T> elements = snapshot.getIteratorForKeyGroup(keyGroup);
+            while (elements.hasNext()) {
+                queue.add(elements.next());
+            }
+        }
+    }
+
+    /**
+     * Restores an incremental snapshot written by the {@link HeapIncrementalSnapshotStrategy}. The
+     * blocks of the key groups of this backend are read from the shared files, in the order of
+     * their key groups.
+     */
+    private void restoreIncrementalStateHandle(
+            IncrementalRemoteKeyedStateHandle stateHandle, boolean restoreKeySerializer)
+            throws Exception {
+
+        final List<FSDataInputStream> openedStreams = new ArrayList<>();
+        try {
+            FSDataInputStream metaInputStream = stateHandle.getMetaStateHandle().openInputStream();
+            openedStreams.add(metaInputStream);
+            cancelStreamRegistry.registerCloseable(metaInputStream);
+            DataInputViewStreamWrapper metaInView = new DataInputViewStreamWrapper(metaInputStream);
+
+            if (metaInView.readLong() != HeapIncrementalSnapshotStrategy.META_DATA_MAGIC_NUMBER) {
+                throw new IOException(
+                        "The state handle "
+                                + stateHandle
+                                + " is no incremental snapshot of a heap backend. This can mostly "
+                                + "happen when a different StateBackend from the one that was used "
+                                + "for taking a checkpoint is used when restoring.");
+            }
+
+            KeyedBackendSerializationProxy<K> serializationProxy =
+                    new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+            serializationProxy.read(metaInView);
+
+            if (restoreKeySerializer) {
+                restoreKeySerializer(serializationProxy.getKeySerializerSnapshot());
+            }
+
+            List<StateMetaInfoSnapshot> restoredMetaInfos =
+                    serializationProxy.getStateMetaInfoSnapshots();
+            final Map<Integer, StateMetaInfoSnapshot> kvStatesById =
+                    this.heapMetaInfoRestoreOperation.createOrCheckStateForMetaInfo(
+                            restoredMetaInfos, registeredKVStates, registeredPQStates);
+
+            final StreamStateHandle[] files = new StreamStateHandle[metaInView.readInt()];
+            for (int i = 0; i < files.length; i++) {
+                StateHandleID fileId = new StateHandleID(metaInView.readUTF());
+                files[i] =
+                        Preconditions.checkNotNull(
+                                stateHandle.getSharedState().get(fileId),
+                                "Missing shared state file %s.",
+                                fileId);
+            }
+            final FSDataInputStream[] fileInputStreams = new FSDataInputStream[files.length];
+
+            final StreamCompressionDecorator streamCompressionDecorator =
+                    serializationProxy.isUsingKeyGroupCompression()
+                            ? SnappyStreamCompressionDecorator.INSTANCE
+                            : UncompressedStreamCompressionDecorator.INSTANCE;
+
+            for (int i = 0; i < stateHandle.getKeyGroupRange().getNumberOfKeyGroups(); i++) {
+                int keyGroupIndex = metaInView.readInt();
+                boolean restoreKeyGroup = keyGroupRange.contains(keyGroupIndex);
+
+                for (int j = 0; j < restoredMetaInfos.size(); j++) {
+                    int kvStateId = metaInView.readShort();
+                    int fileIndex = metaInView.readInt();
+                    long offset = metaInView.readLong();
+                    if (!restoreKeyGroup) {
+                        continue;
+                    }
+
+                    if (fileInputStreams[fileIndex] == null) {
+                        fileInputStreams[fileIndex] = files[fileIndex].openInputStream();
+                        openedStreams.add(fileInputStreams[fileIndex]);
+                        cancelStreamRegistry.registerCloseable(fileInputStreams[fileIndex]);
+                    }
+                    FSDataInputStream fileInputStream = fileInputStreams[fileIndex];
+                    fileInputStream.seek(offset);
+
+                    try (InputStream kgCompressionInStream =
+                            streamCompressionDecorator.decorateWithCompression(fileInputStream)) {
+                        getRegisteredState(kvStatesById.get(kvStateId))
+                                .keyGroupReader(serializationProxy.getReadVersion())
+                                .readMappingsInKeyGroup(
+                                        new DataInputViewStreamWrapper(kgCompressionInStream),
+                                        keyGroupIndex);
+                    }
+                }
+            }
+        } finally {
+            for (FSDataInputStream openedStream : openedStreams) {
+                if (cancelStreamRegistry.unregisterCloseable(openedStream)) {
+                    IOUtils.closeQuietly(openedStream);
+                }
+            }
+        }
+    }
+
     private void readStateHandleStateData(
             FSDataInputStream fsDataInputStream,
             DataInputViewStreamWrapper inView,
@@ -236,26 +442,26 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
         for (int i = 0; i < numStates; i++) {
 
             final int kvStateId = inView.readShort();
-            final StateMetaInfoSnapshot stateMetaInfoSnapshot = kvStatesById.get(kvStateId);
-            final StateSnapshotRestore registeredState;
-
-            switch (stateMetaInfoSnapshot.getBackendStateType()) {
-                case KEY_VALUE:
-                    registeredState = registeredKVStates.get(stateMetaInfoSnapshot.getName());
-                    break;
-                case PRIORITY_QUEUE:
-                    registeredState = registeredPQStates.get(stateMetaInfoSnapshot.getName());
-                    break;
-                default:
-                    throw new IllegalStateException(
-                            "Unexpected state type: "
-                                    + stateMetaInfoSnapshot.getBackendStateType()
-                                    + ".");
-            }
+            final StateSnapshotRestore registeredState =
+                    getRegisteredState(kvStatesById.get(kvStateId));
 
             StateSnapshotKeyGroupReader keyGroupReader =
                     registeredState.keyGroupReader(readVersion);
             keyGroupReader.readMappingsInKeyGroup(inView, keyGroupIndex);
         }
     }
+
+    private StateSnapshotRestore getRegisteredState(StateMetaInfoSnapshot stateMetaInfoSnapshot) {
+        switch (stateMetaInfoSnapshot.getBackendStateType()) {
+            case KEY_VALUE:
+                return registeredKVStates.get(stateMetaInfoSnapshot.getName());
+            case PRIORITY_QUEUE:
+                return registeredPQStates.get(stateMetaInfoSnapshot.getName());
+            default:
+                throw new IllegalStateException(
+                        "Unexpected state type: "
+                                + stateMetaInfoSnapshot.getBackendStateType()
+                                + ".");
+        }
+    }
 }
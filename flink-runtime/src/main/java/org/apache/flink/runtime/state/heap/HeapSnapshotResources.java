@@ -29,6 +29,9 @@ import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,6 +53,14 @@ final class HeapSnapshotResources<K> implements FullSnapshotResources<K> {
     private final TypeSerializer<K> keySerializer;
     private final int totalKeyGroups;
 
+    /**
+     * An independent snapshot of the same state which outlives these resources, see {@link
+     * #retainSnapshot(HeapSnapshotResources)}.
+     */
+    @Nullable
+    @GuardedBy("this")
+    private HeapSnapshotResources<K> retainedSnapshot;
+
     private HeapSnapshotResources(
             List<StateMetaInfoSnapshot> metaInfoSnapshots,
             Map<StateUID, StateSnapshot> cowStateStableSnapshots,
@@ -144,11 +155,34 @@ final class HeapSnapshotResources<K> implements FullSnapshotResources<K> {
         }
     }
 
+    /**
+     * Attaches an independent snapshot of the same state, which is released together with these
+     * resources unless it is taken over by {@link #takeRetainedSnapshot()}.
+     */
+    synchronized void retainSnapshot(HeapSnapshotResources<K> snapshot) {
+        Preconditions.checkState(retainedSnapshot == null, "A snapshot is already retained.");
+        retainedSnapshot = snapshot;
+    }
+
+    /**
+     * Takes over the retained snapshot, if any. The caller becomes responsible for releasing it.
+     */
+    @Nullable
+    synchronized HeapSnapshotResources<K> takeRetainedSnapshot() {
+        HeapSnapshotResources<K> snapshot = retainedSnapshot;
+        retainedSnapshot = null;
+        return snapshot;
+    }
+
     @Override
     public void release() {
         for (StateSnapshot stateSnapshot : cowStateStableSnapshots.values()) {
             stateSnapshot.release();
         }
+        HeapSnapshotResources<K> snapshot = takeRetainedSnapshot();
+        if (snapshot != null) {
+            snapshot.release();
+        }
     }
 
     public List<StateMetaInfoSnapshot> getMetaInfoSnapshots() {
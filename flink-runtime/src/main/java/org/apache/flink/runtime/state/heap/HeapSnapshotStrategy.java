@@ -58,11 +58,12 @@ class HeapSnapshotStrategy<K>
 
     private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
     private final Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates;
-    private final StreamCompressionDecorator keyGroupCompressionDecorator;
+    protected final StreamCompressionDecorator keyGroupCompressionDecorator;
     private final LocalRecoveryConfig localRecoveryConfig;
-    private final KeyGroupRange keyGroupRange;
+    protected final KeyGroupRange keyGroupRange;
     private final StateSerializerProvider<K> keySerializerProvider;
     private final int totalKeyGroups;
+    private final ClassLoader userCodeClassLoader;
 
     HeapSnapshotStrategy(
             Map<String, StateTable<K, ?, ?>> registeredKVStates,
@@ -71,7 +72,8 @@ class HeapSnapshotStrategy<K>
             LocalRecoveryConfig localRecoveryConfig,
             KeyGroupRange keyGroupRange,
             StateSerializerProvider<K> keySerializerProvider,
-            int totalKeyGroups) {
+            int totalKeyGroups,
+            ClassLoader userCodeClassLoader) {
         this.registeredKVStates = registeredKVStates;
         this.registeredPQStates = registeredPQStates;
         this.keyGroupCompressionDecorator = keyGroupCompressionDecorator;
@@ -79,10 +81,21 @@ class HeapSnapshotStrategy<K>
         this.keyGroupRange = keyGroupRange;
         this.keySerializerProvider = keySerializerProvider;
         this.totalKeyGroups = totalKeyGroups;
+        this.userCodeClassLoader = userCodeClassLoader;
     }
 
     @Override
     public HeapSnapshotResources<K> syncPrepareResources(long checkpointId) {
+        HeapSnapshotResources<K> snapshotResources = createSnapshotResources();
+        if (localRecoveryConfig.isHeapStateKeptInMemory() && isCopyOnWrite()) {
+            // the snapshot which is written is released after writing, the task-local state
+            // keeps a second one which stays consistent until it is released
+            snapshotResources.retainSnapshot(createSnapshotResources());
+        }
+        return snapshotResources;
+    }
+
+    protected HeapSnapshotResources<K> createSnapshotResources() {
         return HeapSnapshotResources.create(
                 registeredKVStates,
                 registeredPQStates,
@@ -92,6 +105,16 @@ class HeapSnapshotStrategy<K>
                 totalKeyGroups);
     }
 
+    /** Only copy-on-write snapshots stay consistent while the state tables are modified. */
+    private boolean isCopyOnWrite() {
+        for (StateTable<K, ?, ?> stateTable : registeredKVStates.values()) {
+            if (!(stateTable instanceof CopyOnWriteStateTable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public SnapshotResultSupplier<KeyedStateHandle> asyncSnapshot(
             HeapSnapshotResources<K> syncPartResource,
@@ -175,6 +198,20 @@ class HeapSnapshotStrategy<K>
                         new KeyGroupRangeOffsets(keyGroupRange, keyGroupRangeOffsets);
                 SnapshotResult<StreamStateHandle> result =
                         streamWithResultProvider.closeAndFinalizeCheckpointStreamResult();
+                HeapSnapshotResources<K> retainedSnapshot = syncPartResource.takeRetainedSnapshot();
+                if (retainedSnapshot != null
+                        && result.getJobManagerOwnedSnapshot() != null
+                        && result.getTaskLocalSnapshot() != null) {
+                    return SnapshotResult.withLocalState(
+                            new KeyGroupsStateHandle(kgOffs, result.getJobManagerOwnedSnapshot()),
+                            new InMemoryKeyGroupsStateHandle(
+                                    kgOffs,
+                                    result.getTaskLocalSnapshot(),
+                                    userCodeClassLoader,
+                                    retainedSnapshot));
+                } else if (retainedSnapshot != null) {
+                    retainedSnapshot.release();
+                }
                 return toKeyedStateHandleSnapshotResult(result, kgOffs, KeyGroupsStateHandle::new);
             } else {
                 throw new IOException("Stream already unregistered.");
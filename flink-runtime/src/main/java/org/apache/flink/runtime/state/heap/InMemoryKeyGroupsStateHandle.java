@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A task-local {@link KeyGroupsStateHandle} of a {@link HeapKeyedStateBackend} snapshot which also
+ * retains the snapshot of the state tables in memory. A backend which is restored from this handle
+ * in the same TaskManager takes over the state objects of the snapshot instead of reading the
+ * stream, see {@link HeapRestoreOperation}.
+ *
+ * <p>The snapshot can only be taken over once, because the restored backend modifies the state
+ * objects. Later restores read the stream. The snapshot is released when the handle is discarded.
+ */
+class InMemoryKeyGroupsStateHandle extends KeyGroupsStateHandle {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The class loader of the state objects in the snapshot. */
+    private final transient ClassLoader userCodeClassLoader;
+
+    private final transient AtomicReference<HeapSnapshotResources<?>> snapshot;
+
+    InMemoryKeyGroupsStateHandle(
+            KeyGroupRangeOffsets groupRangeOffsets,
+            StreamStateHandle streamStateHandle,
+            ClassLoader userCodeClassLoader,
+            HeapSnapshotResources<?> snapshot) {
+        super(groupRangeOffsets, streamStateHandle);
+        this.userCodeClassLoader = userCodeClassLoader;
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    /**
+     * Takes over the snapshot if it is still retained and its state objects were loaded by the
+     * given class loader. The caller becomes responsible for releasing it.
+     */
+    @Nullable
+    HeapSnapshotResources<?> takeSnapshot(ClassLoader classLoader) {
+        if (snapshot == null || classLoader != userCodeClassLoader) {
+            return null;
+        }
+        return snapshot.getAndSet(null);
+    }
+
+    @Override
+    public void discardState() throws Exception {
+        if (snapshot != null) {
+            HeapSnapshotResources<?> retained = snapshot.getAndSet(null);
+            if (retained != null) {
+                retained.release();
+            }
+        }
+        super.discardState();
+    }
+}
@@ -0,0 +1,866 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.disk.RandomAccessInputView;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementation of a state map which keeps keys, namespaces and states in serialized form in
+ * off-heap {@link MemorySegment MemorySegments}. This map does not support null values for key or
+ * namespace.
+ *
+ * <p>The map consists of two parts. Records are appended to a log of memory pages which are taken
+ * from the {@link OffHeapStateMemoryPool} of the owning table. Each record has the following
+ * layout: {@code [composite key length (int)] [key length (int)] [state length (int)] [serialized
+ * key] [serialized namespace] [serialized state]}. A record header never spans two pages, while the
+ * bytes of the record may. The index is an open addressing hash table with linear probing which is
+ * built only from two primitive arrays, one for the record pointers and one for the hash codes of
+ * the serialized composite keys. There is no Java object per entry, so the map adds almost nothing
+ * to the work of the garbage collector.
+ *
+ * <p>Records are never modified in place. An update appends a new record and retires the old one,
+ * which gives copy-on-write semantics for snapshots for free: a {@link OffHeapStateMapSnapshot}
+ * only copies the record pointers and the list of pages. Retired records are reclaimed by
+ * compacting the log when more than half of it is garbage. Pages of a compacted log are only given
+ * back to the pool once all snapshots of the map were released.
+ *
+ * <p>Because states are deserialized on every access, modifications of state objects are only
+ * visible after they were written back through {@link #put(Object, Object, Object)} or {@link
+ * #transform(Object, Object, Object, StateTransformationFunction)}. This is the same contract as
+ * for the RocksDB state backend, so this map is only used for state types whose implementations
+ * always write back their state.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of value.
+ */
+public class OffHeapStateMap<K, N, S> extends StateMap<K, N, S> {
+
+    /** Marks an unused slot of the index. */
+    private static final long EMPTY_POINTER = -1L;
+
+    /** Shared, empty index of maps that have no entries yet. */
+    private static final long[] EMPTY_POINTERS = new long[0];
+
+    private static final int[] EMPTY_HASH_CODES = new int[0];
+
+    /** Capacity of the index when the first entry is inserted. Must be a power of two. */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /** Max capacity of the index. Must be a power of two. */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** Number of bytes of the header of each record. */
+    static final int RECORD_HEADER_SIZE = 12;
+
+    static final int COMPOSITE_KEY_LENGTH_OFFSET = 0;
+
+    static final int KEY_LENGTH_OFFSET = 4;
+
+    static final int STATE_LENGTH_OFFSET = 8;
+
+    /** State length of records with a null state. */
+    private static final int NULL_STATE_LENGTH = -1;
+
+    /** The table that owns this map and provides the memory pool and serializers. */
+    private final OffHeapStateTable<K, N, S> owningTable;
+
+    /** The pages of the record log. */
+    private ArrayList<MemorySegment> pages;
+
+    /** Input view over the pages of the record log. Only set when there is at least one page. */
+    @Nullable private RandomAccessInputView pagesInputView;
+
+    /** Position in the record log where the next record is appended. */
+    private long appendPosition;
+
+    /** Number of bytes of all records that are reachable from the index. */
+    private long liveBytes;
+
+    /** Pointers of the records. {@link #EMPTY_POINTER} marks an unused slot. */
+    private long[] pointers;
+
+    /** Hash codes of the serialized composite keys of the records in the slots. */
+    private int[] hashCodes;
+
+    /** The number of entries in this map. */
+    private int size;
+
+    /** The number of entries at which the index is grown. */
+    private int threshold;
+
+    /** Incremented on every structural modification, to fail fast on concurrent modification. */
+    private int modCount;
+
+    /** Serialized key and namespace of the last lookup. */
+    private final DataOutputSerializer compositeKeyBuffer;
+
+    /** Length of the serialized key at the beginning of {@link #compositeKeyBuffer}. */
+    private int keyLength;
+
+    /** Hash code of the composite key in {@link #compositeKeyBuffer}. */
+    private int compositeKeyHash;
+
+    /** A segment that wraps the current buffer of {@link #compositeKeyBuffer}. */
+    private MemorySegment compositeKeySegment;
+
+    /** Serialized state of the last write. */
+    private final DataOutputSerializer stateBuffer;
+
+    /** Whether the state of the last write is null. */
+    private boolean stateIsNull;
+
+    /** Buffer for the header of a record. */
+    private final byte[] headerBuffer;
+
+    /** A segment that wraps {@link #headerBuffer}. */
+    private final MemorySegment headerSegment;
+
+    /** Guards the bookkeeping of snapshots, which are released by the asynchronous part. */
+    private final Object snapshotLock;
+
+    /** The number of snapshots of this map that were not yet released. */
+    @GuardedBy("snapshotLock")
+    private int numberOfActiveSnapshots;
+
+    /** Pages that can be given back to the pool once all snapshots were released. */
+    @GuardedBy("snapshotLock")
+    private final List<MemorySegment> pagesPendingRelease;
+
+    OffHeapStateMap(OffHeapStateTable<K, N, S> owningTable) {
+        this.owningTable = Preconditions.checkNotNull(owningTable);
+        this.pages = new ArrayList<>();
+        this.pagesInputView = null;
+        this.appendPosition = 0L;
+        this.liveBytes = 0L;
+        this.pointers = EMPTY_POINTERS;
+        this.hashCodes = EMPTY_HASH_CODES;
+        this.size = 0;
+        this.threshold = 0;
+        this.modCount = 0;
+        this.compositeKeyBuffer = new DataOutputSerializer(64);
+        this.compositeKeySegment = MemorySegmentFactory.wrap(compositeKeyBuffer.getSharedBuffer());
+        this.stateBuffer = new DataOutputSerializer(64);
+        this.stateIsNull = true;
+        this.headerBuffer = new byte[RECORD_HEADER_SIZE];
+        this.headerSegment = MemorySegmentFactory.wrap(headerBuffer);
+        this.snapshotLock = new Object();
+        this.numberOfActiveSnapshots = 0;
+        this.pagesPendingRelease = new ArrayList<>();
+    }
+
+    // Public API from StateMap ------------------------------------------------------------------
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public S get(K key, N namespace) {
+        int slot = findSlot(key, namespace);
+        return slot >= 0 ? readState(pointers[slot]) : null;
+    }
+
+    @Override
+    public boolean containsKey(K key, N namespace) {
+        return findSlot(key, namespace) >= 0;
+    }
+
+    @Override
+    public void put(K key, N namespace, S state) {
+        ensureCapacityForInsert();
+        int slot = findSlot(key, namespace);
+        serializeState(state);
+        writeRecord(slot);
+    }
+
+    @Override
+    public S putAndGetOld(K key, N namespace, S state) {
+        ensureCapacityForInsert();
+        int slot = findSlot(key, namespace);
+        S oldState = slot >= 0 ? readState(pointers[slot]) : null;
+        serializeState(state);
+        writeRecord(slot);
+        return oldState;
+    }
+
+    @Override
+    public void remove(K key, N namespace) {
+        int slot = findSlot(key, namespace);
+        if (slot >= 0) {
+            removeSlot(slot);
+        }
+    }
+
+    @Override
+    public S removeAndGetOld(K key, N namespace) {
+        int slot = findSlot(key, namespace);
+        if (slot < 0) {
+            return null;
+        }
+        S oldState = readState(pointers[slot]);
+        removeSlot(slot);
+        return oldState;
+    }
+
+    @Override
+    public <T> void transform(
+            K key, N namespace, T value, StateTransformationFunction<S, T> transformation)
+            throws Exception {
+        ensureCapacityForInsert();
+        int slot = findSlot(key, namespace);
+        S oldState = slot >= 0 ? readState(pointers[slot]) : null;
+        serializeState(transformation.apply(oldState, value));
+        writeRecord(slot);
+    }
+
+    @Override
+    public Iterator<StateEntry<K, N, S>> iterator() {
+        return new StateEntryIterator();
+    }
+
+    @Override
+    public Stream<K> getKeys(N namespace) {
+        return StreamSupport.stream(spliterator(), false)
+                .filter(entry -> entry.getNamespace().equals(namespace))
+                .map(StateEntry::getKey);
+    }
+
+    @Override
+    public InternalKvState.StateIncrementalVisitor<K, N, S> getStateIncrementalVisitor(
+            int recommendedMaxNumberOfReturnedRecords) {
+        return new StateIncrementalVisitorImpl(recommendedMaxNumberOfReturnedRecords);
+    }
+
+    @Override
+    public int sizeOfNamespace(Object namespace) {
+        int count = 0;
+        for (StateEntry<K, N, S> entry : this) {
+            if (entry.getNamespace().equals(namespace)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Snapshotting ------------------------------------------------------------------------------
+
+    /**
+     * Creates a snapshot of this {@link OffHeapStateMap}, to be written in checkpointing. Users
+     * should call {@link #releaseSnapshot(StateMapSnapshot)} after using the returned object.
+     *
+     * @return a snapshot from this {@link OffHeapStateMap}, for checkpointing.
+     */
+    @Nonnull
+    @Override
+    public OffHeapStateMapSnapshot<K, N, S> stateSnapshot() {
+        long[] snapshotPointers = new long[size];
+        int count = 0;
+        for (long pointer : pointers) {
+            if (pointer != EMPTY_POINTER) {
+                snapshotPointers[count++] = pointer;
+            }
+        }
+
+        synchronized (snapshotLock) {
+            numberOfActiveSnapshots++;
+        }
+        return new OffHeapStateMapSnapshot<>(
+                this, snapshotPointers, new ArrayList<>(pages), getPageSize());
+    }
+
+    /**
+     * Releases a snapshot for this {@link OffHeapStateMap}. This method should be called once a
+     * snapshot is no more needed, so that the pages of compacted record logs can be reused.
+     *
+     * @param snapshotToRelease the snapshot to release, which was previously created by this state
+     *     map.
+     */
+    @Override
+    public void releaseSnapshot(
+            StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>> snapshotToRelease) {
+
+        OffHeapStateMapSnapshot<K, N, S> offHeapStateMapSnapshot =
+                (OffHeapStateMapSnapshot<K, N, S>) snapshotToRelease;
+
+        Preconditions.checkArgument(
+                offHeapStateMapSnapshot.isOwner(this),
+                "Cannot release snapshot which is owned by a different state map.");
+
+        synchronized (snapshotLock) {
+            Preconditions.checkState(numberOfActiveSnapshots > 0, "No snapshot to release.");
+            numberOfActiveSnapshots--;
+            if (numberOfActiveSnapshots == 0 && !pagesPendingRelease.isEmpty()) {
+                owningTable.getMemoryPool().returnPages(pagesPendingRelease);
+                pagesPendingRelease.clear();
+            }
+        }
+    }
+
+    /**
+     * Re-encodes all states, which were written with the given previous serializer, with the
+     * current state serializer of the owning table.
+     */
+    void migrateStateSerializer(TypeSerializer<S> previousStateSerializer) {
+        for (int slot = 0; slot < pointers.length; slot++) {
+            long pointer = pointers[slot];
+            if (pointer == EMPTY_POINTER) {
+                continue;
+            }
+            S state = readState(pointer, previousStateSerializer);
+            loadCompositeKey(pointer);
+            serializeState(state);
+            writeRecord(slot);
+        }
+    }
+
+    // Index -------------------------------------------------------------------------------------
+
+    /**
+     * Serializes the given key and namespace into the composite key buffer and looks them up in the
+     * index.
+     *
+     * @return the slot of the matching record, or {@code -(slot + 1)} of the empty slot where a
+     *     record for the composite key would be inserted. If the index is not allocated yet, this
+     *     is {@code -1}.
+     */
+    private int findSlot(K key, N namespace) {
+        serializeCompositeKey(key, namespace);
+        return findSlotForCompositeKey();
+    }
+
+    private int findSlotForCompositeKey() {
+        if (pointers.length == 0) {
+            return -1;
+        }
+
+        final int mask = pointers.length - 1;
+        final int compositeKeyLength = compositeKeyBuffer.length();
+        int slot = compositeKeyHash & mask;
+        long pointer;
+        while ((pointer = pointers[slot]) != EMPTY_POINTER) {
+            if (hashCodes[slot] == compositeKeyHash
+                    && compositeKeyEquals(pointer, compositeKeyLength)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    private void ensureCapacityForInsert() {
+        if (pointers.length == 0) {
+            allocateIndex(MINIMUM_CAPACITY);
+        } else if (size >= threshold && pointers.length < MAXIMUM_CAPACITY) {
+            long[] oldPointers = pointers;
+            int[] oldHashCodes = hashCodes;
+            allocateIndex(oldPointers.length << 1);
+
+            final int mask = pointers.length - 1;
+            for (int i = 0; i < oldPointers.length; i++) {
+                if (oldPointers[i] != EMPTY_POINTER) {
+                    int slot = oldHashCodes[i] & mask;
+                    while (pointers[slot] != EMPTY_POINTER) {
+                        slot = (slot + 1) & mask;
+                    }
+                    pointers[slot] = oldPointers[i];
+                    hashCodes[slot] = oldHashCodes[i];
+                }
+            }
+        }
+    }
+
+    private void allocateIndex(int capacity) {
+        pointers = new long[capacity];
+        Arrays.fill(pointers, EMPTY_POINTER);
+        hashCodes = new int[capacity];
+        // load factor of 0.75
+        threshold = (capacity >> 1) + (capacity >> 2);
+        modCount++;
+    }
+
+    /**
+     * Removes the record in the given slot from the index. Records that follow in the same probe
+     * sequence are shifted back, so that the index never needs tombstones.
+     */
+    private void removeSlot(int slot) {
+        retireRecord(pointers[slot]);
+
+        final int mask = pointers.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (pointers[next] != EMPTY_POINTER) {
+            int home = hashCodes[next] & mask;
+            // the record can fill the hole if the hole is on the probe path from its home slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                pointers[hole] = pointers[next];
+                hashCodes[hole] = hashCodes[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        pointers[hole] = EMPTY_POINTER;
+        size--;
+        modCount++;
+
+        if (size == 0) {
+            releaseAllPages();
+        } else {
+            compactIfNecessary();
+        }
+    }
+
+    // Records -----------------------------------------------------------------------------------
+
+    private void serializeCompositeKey(K key, N namespace) {
+        compositeKeyBuffer.clear();
+        try {
+            owningTable.getKeySerializer().serialize(key, compositeKeyBuffer);
+            keyLength = compositeKeyBuffer.length();
+            owningTable.getNamespaceSerializer().serialize(namespace, compositeKeyBuffer);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Failed to serialize key and namespace.", e);
+        }
+        updateCompositeKeyHash();
+    }
+
+    /** Loads the composite key of the record at the given pointer into the composite key buffer. */
+    private void loadCompositeKey(long pointer) {
+        MemorySegment headerPage = pageOf(pointer);
+        int headerOffset = offsetOf(pointer);
+        int compositeKeyLength = headerPage.getInt(headerOffset + COMPOSITE_KEY_LENGTH_OFFSET);
+
+        compositeKeyBuffer.clear();
+        try {
+            pagesInputView.setReadPosition(pointer + RECORD_HEADER_SIZE);
+            compositeKeyBuffer.write(pagesInputView, compositeKeyLength);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Failed to read key and namespace.", e);
+        }
+        keyLength = headerPage.getInt(headerOffset + KEY_LENGTH_OFFSET);
+        updateCompositeKeyHash();
+    }
+
+    private void updateCompositeKeyHash() {
+        byte[] bytes = compositeKeyBuffer.getSharedBuffer();
+        int length = compositeKeyBuffer.length();
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        compositeKeyHash = MathUtils.murmurHash(hash);
+
+        if (compositeKeySegment.getArray() != bytes) {
+            compositeKeySegment = MemorySegmentFactory.wrap(bytes);
+        }
+    }
+
+    private boolean compositeKeyEquals(long pointer, int compositeKeyLength) {
+        MemorySegment page = pageOf(pointer);
+        int offset = offsetOf(pointer);
+        if (page.getInt(offset + COMPOSITE_KEY_LENGTH_OFFSET) != compositeKeyLength) {
+            return false;
+        }
+
+        final int pageSize = getPageSize();
+        int pageIndex = (int) (pointer >>> getPageSizeBits());
+        offset += RECORD_HEADER_SIZE;
+        int compared = 0;
+        while (compared < compositeKeyLength) {
+            if (offset == pageSize) {
+                page = pages.get(++pageIndex);
+                offset = 0;
+            }
+            int length = Math.min(compositeKeyLength - compared, pageSize - offset);
+            if (!page.equalTo(compositeKeySegment, offset, compared, length)) {
+                return false;
+            }
+            compared += length;
+            offset += length;
+        }
+        return true;
+    }
+
+    private void serializeState(@Nullable S state) {
+        stateBuffer.clear();
+        stateIsNull = state == null;
+        if (!stateIsNull) {
+            try {
+                owningTable.getStateSerializer().serialize(state, stateBuffer);
+            } catch (IOException e) {
+                throw new FlinkRuntimeException("Failed to serialize state.", e);
+            }
+        }
+    }
+
+    @Nullable
+    private S readState(long pointer) {
+        return readState(pointer, owningTable.getStateSerializer());
+    }
+
+    @Nullable
+    private S readState(long pointer, TypeSerializer<S> stateSerializer) {
+        MemorySegment page = pageOf(pointer);
+        int offset = offsetOf(pointer);
+        int stateLength = page.getInt(offset + STATE_LENGTH_OFFSET);
+        if (stateLength == NULL_STATE_LENGTH) {
+            return null;
+        }
+        int compositeKeyLength = page.getInt(offset + COMPOSITE_KEY_LENGTH_OFFSET);
+        try {
+            if (stateLength == 0) {
+                // the state may end exactly at the end of the last page
+                return stateSerializer.deserialize(new DataInputDeserializer());
+            }
+            pagesInputView.setReadPosition(pointer + RECORD_HEADER_SIZE + compositeKeyLength);
+            return stateSerializer.deserialize(pagesInputView);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Failed to deserialize state.", e);
+        }
+    }
+
+    /**
+     * Appends a record with the content of the composite key buffer and the state buffer, and
+     * points the given slot to it.
+     *
+     * @param slot the slot as returned by {@link #findSlot(Object, Object)}.
+     */
+    private void writeRecord(int slot) {
+        long pointer = appendRecord();
+        if (slot >= 0) {
+            retireRecord(pointers[slot]);
+            pointers[slot] = pointer;
+        } else {
+            slot = -(slot + 1);
+            pointers[slot] = pointer;
+            hashCodes[slot] = compositeKeyHash;
+            size++;
+            modCount++;
+        }
+        compactIfNecessary();
+    }
+
+    private long appendRecord() {
+        final int compositeKeyLength = compositeKeyBuffer.length();
+        final int stateLength = stateBuffer.length();
+        final int pageSize = getPageSize();
+
+        // record headers never span two pages
+        int offsetInPage = (int) (appendPosition & (pageSize - 1));
+        if (pageSize - offsetInPage < RECORD_HEADER_SIZE) {
+            appendPosition += pageSize - offsetInPage;
+        }
+
+        long pointer = appendPosition;
+        headerSegment.putInt(COMPOSITE_KEY_LENGTH_OFFSET, compositeKeyLength);
+        headerSegment.putInt(KEY_LENGTH_OFFSET, keyLength);
+        headerSegment.putInt(STATE_LENGTH_OFFSET, stateIsNull ? NULL_STATE_LENGTH : stateLength);
+
+        appendBytes(headerBuffer, RECORD_HEADER_SIZE);
+        appendBytes(compositeKeyBuffer.getSharedBuffer(), compositeKeyLength);
+        appendBytes(stateBuffer.getSharedBuffer(), stateLength);
+
+        liveBytes += RECORD_HEADER_SIZE + compositeKeyLength + stateLength;
+        return pointer;
+    }
+
+    private void appendBytes(byte[] bytes, int length) {
+        final int pageSize = getPageSize();
+        final int pageSizeBits = getPageSizeBits();
+        int written = 0;
+        while (written < length) {
+            int pageIndex = (int) (appendPosition >>> pageSizeBits);
+            if (pageIndex == pages.size()) {
+                addPage();
+            }
+            int offset = (int) (appendPosition & (pageSize - 1));
+            int bytesToWrite = Math.min(length - written, pageSize - offset);
+            pages.get(pageIndex).put(offset, bytes, written, bytesToWrite);
+            written += bytesToWrite;
+            appendPosition += bytesToWrite;
+        }
+    }
+
+    private void addPage() {
+        pages.add(owningTable.getMemoryPool().nextPage());
+        if (pagesInputView == null) {
+            pagesInputView = new RandomAccessInputView(pages, getPageSize());
+        }
+    }
+
+    private void retireRecord(long pointer) {
+        liveBytes -= getRecordLength(pageOf(pointer), offsetOf(pointer));
+    }
+
+    static int getRecordLength(MemorySegment page, int offset) {
+        int stateLength = page.getInt(offset + STATE_LENGTH_OFFSET);
+        return RECORD_HEADER_SIZE
+                + page.getInt(offset + COMPOSITE_KEY_LENGTH_OFFSET)
+                + Math.max(stateLength, 0);
+    }
+
+    // Compaction --------------------------------------------------------------------------------
+
+    /** Compacts the record log if more than half of it, and at least one page, is garbage. */
+    private void compactIfNecessary() {
+        long garbageBytes = appendPosition - liveBytes;
+        if (garbageBytes > liveBytes && garbageBytes > getPageSize()) {
+            compact();
+        }
+    }
+
+    /** Copies all live records to new pages and releases the old pages. */
+    private void compact() {
+        final ArrayList<MemorySegment> oldPages = pages;
+        final RandomAccessInputView oldPagesInputView = pagesInputView;
+
+        pages = new ArrayList<>(Math.max(1, (int) (liveBytes / getPageSize()) + 1));
+        pagesInputView = null;
+        appendPosition = 0L;
+        liveBytes = 0L;
+
+        byte[] recordBuffer = new byte[0];
+        for (int slot = 0; slot < pointers.length; slot++) {
+            long pointer = pointers[slot];
+            if (pointer == EMPTY_POINTER) {
+                continue;
+            }
+
+            MemorySegment oldPage = oldPages.get((int) (pointer >>> getPageSizeBits()));
+            int recordLength = getRecordLength(oldPage, offsetOf(pointer));
+            if (recordBuffer.length < recordLength) {
+                recordBuffer = new byte[Math.max(recordLength, recordBuffer.length << 1)];
+            }
+            try {
+                oldPagesInputView.setReadPosition(pointer);
+                oldPagesInputView.readFully(recordBuffer, 0, recordLength);
+            } catch (IOException e) {
+                throw new FlinkRuntimeException("Failed to compact the off-heap state map.", e);
+            }
+
+            int offsetInPage = (int) (appendPosition & (getPageSize() - 1));
+            if (getPageSize() - offsetInPage < RECORD_HEADER_SIZE) {
+                appendPosition += getPageSize() - offsetInPage;
+            }
+            pointers[slot] = appendPosition;
+            appendBytes(recordBuffer, recordLength);
+            liveBytes += recordLength;
+        }
+
+        releasePages(oldPages);
+    }
+
+    private void releaseAllPages() {
+        ArrayList<MemorySegment> oldPages = pages;
+        pages = new ArrayList<>();
+        pagesInputView = null;
+        appendPosition = 0L;
+        liveBytes = 0L;
+        releasePages(oldPages);
+    }
+
+    private void releasePages(List<MemorySegment> pagesToRelease) {
+        synchronized (snapshotLock) {
+            if (numberOfActiveSnapshots == 0) {
+                owningTable.getMemoryPool().returnPages(pagesToRelease);
+            } else {
+                pagesPendingRelease.addAll(pagesToRelease);
+            }
+        }
+    }
+
+    // Helpers -----------------------------------------------------------------------------------
+
+    private MemorySegment pageOf(long pointer) {
+        return pages.get((int) (pointer >>> getPageSizeBits()));
+    }
+
+    private int offsetOf(long pointer) {
+        return (int) (pointer & (getPageSize() - 1));
+    }
+
+    private int getPageSize() {
+        return owningTable.getMemoryPool().getPageSize();
+    }
+
+    private int getPageSizeBits() {
+        return owningTable.getMemoryPool().getPageSizeBits();
+    }
+
+    private StateEntry<K, N, S> readEntry(long pointer) {
+        MemorySegment page = pageOf(pointer);
+        int offset = offsetOf(pointer);
+        boolean nullState = page.getInt(offset + STATE_LENGTH_OFFSET) == NULL_STATE_LENGTH;
+        try {
+            pagesInputView.setReadPosition(pointer + RECORD_HEADER_SIZE);
+            K key = owningTable.getKeySerializer().deserialize(pagesInputView);
+            N namespace = owningTable.getNamespaceSerializer().deserialize(pagesInputView);
+            S state =
+                    nullState ? null : owningTable.getStateSerializer().deserialize(pagesInputView);
+            return new StateEntry.SimpleStateEntry<>(key, namespace, state);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Failed to deserialize state entry.", e);
+        }
+    }
+
+    @VisibleForTesting
+    int getNumberOfPages() {
+        return pages.size();
+    }
+
+    @VisibleForTesting
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    @VisibleForTesting
+    int getNumberOfActiveSnapshots() {
+        synchronized (snapshotLock) {
+            return numberOfActiveSnapshots;
+        }
+    }
+
+    // Iteration ---------------------------------------------------------------------------------
+
+    /**
+     * Iterator over state entries in an {@link OffHeapStateMap} which does not tolerate concurrent
+     * modifications. Entries are deserialized on access.
+     */
+    class StateEntryIterator implements Iterator<StateEntry<K, N, S>> {
+
+        private final int expectedModCount;
+        private int nextSlot;
+
+        StateEntryIterator() {
+            this.expectedModCount = modCount;
+            this.nextSlot = 0;
+            advanceToNextEntry();
+        }
+
+        private void advanceToNextEntry() {
+            while (nextSlot < pointers.length && pointers[nextSlot] == EMPTY_POINTER) {
+                nextSlot++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < pointers.length;
+        }
+
+        @Override
+        public StateEntry<K, N, S> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            StateEntry<K, N, S> entry = readEntry(pointers[nextSlot++]);
+            advanceToNextEntry();
+            return entry;
+        }
+    }
+
+    /**
+     * Incremental visitor over state entries in an {@link OffHeapStateMap}. Entries that are moved
+     * between slots by concurrent modifications may be skipped or returned twice.
+     */
+    class StateIncrementalVisitorImpl implements InternalKvState.StateIncrementalVisitor<K, N, S> {
+
+        private final int recommendedMaxNumberOfReturnedRecords;
+        private final Collection<StateEntry<K, N, S>> entriesToReturn = new ArrayList<>(5);
+        private long[] visitedPointers;
+        private int nextSlot;
+
+        StateIncrementalVisitorImpl(int recommendedMaxNumberOfReturnedRecords) {
+            this.recommendedMaxNumberOfReturnedRecords = recommendedMaxNumberOfReturnedRecords;
+            this.visitedPointers = pointers;
+            this.nextSlot = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (visitedPointers != pointers) {
+                // the index was grown, start again to not miss any entries
+                visitedPointers = pointers;
+                nextSlot = 0;
+            }
+            while (nextSlot < pointers.length && pointers[nextSlot] == EMPTY_POINTER) {
+                nextSlot++;
+            }
+            return nextSlot < pointers.length;
+        }
+
+        @Override
+        public Collection<StateEntry<K, N, S>> nextEntries() {
+            if (!hasNext()) {
+                return null;
+            }
+
+            entriesToReturn.clear();
+            while (nextSlot < pointers.length
+                    && entriesToReturn.size() < recommendedMaxNumberOfReturnedRecords) {
+                long pointer = pointers[nextSlot++];
+                if (pointer != EMPTY_POINTER) {
+                    entriesToReturn.add(readEntry(pointer));
+                }
+            }
+            return entriesToReturn;
+        }
+
+        @Override
+        public void remove(StateEntry<K, N, S> stateEntry) {
+            OffHeapStateMap.this.remove(stateEntry.getKey(), stateEntry.getNamespace());
+        }
+
+        @Override
+        public void update(StateEntry<K, N, S> stateEntry, S newValue) {
+            OffHeapStateMap.this.put(stateEntry.getKey(), stateEntry.getNamespace(), newValue);
+        }
+    }
+}
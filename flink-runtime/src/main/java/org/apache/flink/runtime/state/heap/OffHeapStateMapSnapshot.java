@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.RandomAccessInputView;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents the snapshot of an {@link OffHeapStateMap}.
+ *
+ * <p>The snapshot holds a copy of the record pointers and a copy of the list of pages of the map at
+ * the time the snapshot was created. Because the {@link OffHeapStateMap} never modifies records in
+ * place and keeps the pages of compacted record logs until all snapshots were released, the records
+ * referenced by this snapshot stay unchanged until {@link #release()} is called.
+ *
+ * <p>Entries that are not transformed are written by copying their serialized bytes, without
+ * deserializing them.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+public class OffHeapStateMapSnapshot<K, N, S>
+        extends StateMapSnapshot<K, N, S, OffHeapStateMap<K, N, S>> {
+
+    /** Pointers to the records of all entries in this snapshot. */
+    @Nonnull private final long[] snapshotPointers;
+
+    /** The pages of the record log of the map when the snapshot was created. */
+    @Nonnull private final ArrayList<MemorySegment> snapshotPages;
+
+    private final int pageSize;
+
+    private final int pageSizeBits;
+
+    /** Whether this snapshot has been released. */
+    private boolean released;
+
+    OffHeapStateMapSnapshot(
+            OffHeapStateMap<K, N, S> owningStateMap,
+            @Nonnull long[] snapshotPointers,
+            @Nonnull ArrayList<MemorySegment> snapshotPages,
+            int pageSize) {
+        super(owningStateMap);
+        this.snapshotPointers = snapshotPointers;
+        this.snapshotPages = snapshotPages;
+        this.pageSize = pageSize;
+        this.pageSizeBits = MathUtils.log2strict(pageSize);
+        this.released = false;
+    }
+
+    @Override
+    public void release() {
+        if (!released) {
+            owningStateMap.releaseSnapshot(this);
+            released = true;
+        }
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /** Returns the number of entries in this snapshot. */
+    int size() {
+        return snapshotPointers.length;
+    }
+
+    @Override
+    public Iterator<StateEntry<K, N, S>> getIterator(
+            @Nonnull TypeSerializer<K> keySerializer,
+            @Nonnull TypeSerializer<N> namespaceSerializer,
+            @Nonnull TypeSerializer<S> stateSerializer,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+
+        Iterator<StateEntry<K, N, S>> iterator =
+                new SnapshotIterator(keySerializer, namespaceSerializer, stateSerializer);
+        return stateSnapshotTransformer == null
+                ? iterator
+                : transformEntries(iterator, stateSnapshotTransformer).iterator();
+    }
+
+    @Override
+    public void writeState(
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<S> stateSerializer,
+            @Nonnull DataOutputView dov,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer)
+            throws IOException {
+
+        if (stateSnapshotTransformer != null) {
+            List<StateEntry<K, N, S>> entries =
+                    transformEntries(
+                            new SnapshotIterator(
+                                    keySerializer, namespaceSerializer, stateSerializer),
+                            stateSnapshotTransformer);
+            dov.writeInt(entries.size());
+            for (StateEntry<K, N, S> entry : entries) {
+                namespaceSerializer.serialize(entry.getNamespace(), dov);
+                keySerializer.serialize(entry.getKey(), dov);
+                stateSerializer.serialize(entry.getState(), dov);
+            }
+            return;
+        }
+
+        // the serialized bytes of the records have the same format as the serializers of the
+        // state table, so we can copy them in the order (namespace, key, state) of the snapshot
+        dov.writeInt(snapshotPointers.length);
+        for (long pointer : snapshotPointers) {
+            MemorySegment page = snapshotPages.get((int) (pointer >>> pageSizeBits));
+            int offset = (int) (pointer & (pageSize - 1));
+            int compositeKeyLength =
+                    page.getInt(offset + OffHeapStateMap.COMPOSITE_KEY_LENGTH_OFFSET);
+            int keyLength = page.getInt(offset + OffHeapStateMap.KEY_LENGTH_OFFSET);
+            int stateLength = page.getInt(offset + OffHeapStateMap.STATE_LENGTH_OFFSET);
+
+            long keyPosition = pointer + OffHeapStateMap.RECORD_HEADER_SIZE;
+            copyBytes(keyPosition + keyLength, compositeKeyLength - keyLength, dov);
+            copyBytes(keyPosition, keyLength, dov);
+            if (stateLength < 0) {
+                stateSerializer.serialize(null, dov);
+            } else {
+                copyBytes(keyPosition + compositeKeyLength, stateLength, dov);
+            }
+        }
+    }
+
+    private void copyBytes(long position, int length, DataOutputView dov) throws IOException {
+        int pageIndex = (int) (position >>> pageSizeBits);
+        int offset = (int) (position & (pageSize - 1));
+        while (length > 0) {
+            if (offset == pageSize) {
+                pageIndex++;
+                offset = 0;
+            }
+            int bytesToCopy = Math.min(length, pageSize - offset);
+            snapshotPages.get(pageIndex).get(dov, offset, bytesToCopy);
+            offset += bytesToCopy;
+            length -= bytesToCopy;
+        }
+    }
+
+    private List<StateEntry<K, N, S>> transformEntries(
+            Iterator<StateEntry<K, N, S>> iterator,
+            @Nonnull StateSnapshotTransformer<S> stateSnapshotTransformer) {
+        List<StateEntry<K, N, S>> transformedEntries = new ArrayList<>(snapshotPointers.length);
+        while (iterator.hasNext()) {
+            StateEntry<K, N, S> entry = iterator.next().filterOrTransform(stateSnapshotTransformer);
+            if (entry != null) {
+                transformedEntries.add(entry);
+            }
+        }
+        return transformedEntries;
+    }
+
+    /** Iterator which deserializes the entries of an {@link OffHeapStateMapSnapshot}. */
+    private class SnapshotIterator implements Iterator<StateEntry<K, N, S>> {
+
+        private final TypeSerializer<K> keySerializer;
+        private final TypeSerializer<N> namespaceSerializer;
+        private final TypeSerializer<S> stateSerializer;
+        private final RandomAccessInputView inputView;
+        private int nextIndex;
+
+        SnapshotIterator(
+                TypeSerializer<K> keySerializer,
+                TypeSerializer<N> namespaceSerializer,
+                TypeSerializer<S> stateSerializer) {
+            this.keySerializer = keySerializer;
+            this.namespaceSerializer = namespaceSerializer;
+            this.stateSerializer = stateSerializer;
+            this.inputView =
+                    snapshotPages.isEmpty()
+                            ? null
+                            : new RandomAccessInputView(snapshotPages, pageSize);
+            this.nextIndex = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < snapshotPointers.length;
+        }
+
+        @Override
+        public StateEntry<K, N, S> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            long pointer = snapshotPointers[nextIndex++];
+            MemorySegment page = snapshotPages.get((int) (pointer >>> pageSizeBits));
+            int stateLength =
+                    page.getInt(
+                            (int) (pointer & (pageSize - 1)) + OffHeapStateMap.STATE_LENGTH_OFFSET);
+            try {
+                inputView.setReadPosition(pointer + OffHeapStateMap.RECORD_HEADER_SIZE);
+                K key = keySerializer.deserialize(inputView);
+                N namespace = namespaceSerializer.deserialize(inputView);
+                S state = stateLength < 0 ? null : stateSerializer.deserialize(inputView);
+                return new StateEntry.SimpleStateEntry<>(key, namespace, state);
+            } catch (IOException e) {
+                throw new FlinkRuntimeException("Failed to deserialize state entry.", e);
+            }
+        }
+    }
+}
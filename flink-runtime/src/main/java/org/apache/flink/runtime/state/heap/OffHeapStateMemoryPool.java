@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.memory.MemoryAllocationException;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+/**
+ * A pool of off-heap memory pages for the {@link OffHeapStateMap OffHeapStateMaps} of one {@link
+ * HeapKeyedStateBackend}. Pages are lazily taken from the managed memory of the {@link
+ * MemoryManager}, up to the given budget, and are recycled within the pool when state maps give
+ * them back. All pages are returned to the {@link MemoryManager} when the pool is closed.
+ *
+ * <p>Pages may be returned by the thread that runs an asynchronous snapshot, so all methods of this
+ * class are thread-safe.
+ */
+public class OffHeapStateMemoryPool implements Closeable {
+
+    /** The memory manager from which pages are allocated. */
+    private final MemoryManager memoryManager;
+
+    /** The number of bits of the page offsets, as the page size is a power of two. */
+    private final int pageSizeBits;
+
+    /** The maximum number of pages this pool may take from the memory manager. */
+    private final int maxNumberOfPages;
+
+    /** Pages that were allocated from the memory manager and are currently unused. */
+    @GuardedBy("this")
+    private final ArrayDeque<MemorySegment> freePages;
+
+    /** The number of pages that were allocated from the memory manager. */
+    @GuardedBy("this")
+    private int numberOfAllocatedPages;
+
+    @GuardedBy("this")
+    private boolean closed;
+
+    public OffHeapStateMemoryPool(MemoryManager memoryManager, long memoryBudget) {
+        Preconditions.checkArgument(memoryBudget > 0, "The memory budget must be positive.");
+        this.memoryManager = Preconditions.checkNotNull(memoryManager);
+        this.pageSizeBits = MathUtils.log2strict(memoryManager.getPageSize());
+        this.maxNumberOfPages =
+                (int) Math.min(Integer.MAX_VALUE, memoryBudget / memoryManager.getPageSize());
+        Preconditions.checkArgument(
+                maxNumberOfPages > 0,
+                "The memory budget of %s bytes is smaller than one page of %s bytes.",
+                memoryBudget,
+                memoryManager.getPageSize());
+        this.freePages = new ArrayDeque<>();
+        this.numberOfAllocatedPages = 0;
+        this.closed = false;
+    }
+
+    /** Returns the size of the pages handed out by this pool. */
+    public int getPageSize() {
+        return memoryManager.getPageSize();
+    }
+
+    /** Returns the number of bits of the offsets within a page. */
+    int getPageSizeBits() {
+        return pageSizeBits;
+    }
+
+    /**
+     * Returns an unused page. A new page is allocated from the memory manager if no recycled page
+     * is available.
+     *
+     * @throws FlinkRuntimeException if the memory budget of this pool is exhausted.
+     */
+    synchronized MemorySegment nextPage() {
+        Preconditions.checkState(!closed, "The off-heap state memory pool is already closed.");
+
+        MemorySegment page = freePages.poll();
+        if (page != null) {
+            return page;
+        }
+
+        if (numberOfAllocatedPages >= maxNumberOfPages) {
+            throw new FlinkRuntimeException(
+                    String.format(
+                            "The off-heap keyed state exceeds its managed memory budget of %d pages "
+                                    + "of %d bytes. Please increase the managed memory of the "
+                                    + "TaskManagers or store the state on the JVM heap.",
+                            maxNumberOfPages, getPageSize()));
+        }
+
+        try {
+            page = memoryManager.allocatePages(this, 1).get(0);
+        } catch (MemoryAllocationException e) {
+            throw new FlinkRuntimeException(
+                    "Could not allocate managed memory for the off-heap keyed state.", e);
+        }
+        numberOfAllocatedPages++;
+        return page;
+    }
+
+    /** Gives back pages which were previously obtained through {@link #nextPage()}. */
+    synchronized void returnPages(Collection<MemorySegment> pages) {
+        if (closed) {
+            // all pages were already given back to the memory manager
+            return;
+        }
+        freePages.addAll(pages);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            freePages.clear();
+            memoryManager.releaseAll(this);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfAllocatedPages() {
+        return numberOfAllocatedPages;
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfFreePages() {
+        return freePages.size();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This implementation of {@link StateTable} uses {@link OffHeapStateMap}, which keeps all entries
+ * serialized in off-heap memory from an {@link OffHeapStateMemoryPool}. This implementation
+ * supports asynchronous snapshots.
+ *
+ * <p>Only state types whose implementations write back every modification of a state object can use
+ * this table, see {@link #isSupportedStateType(StateDescriptor.Type)}.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+public class OffHeapStateTable<K, N, S> extends StateTable<K, N, S> {
+
+    /** The pool of the memory pages for the state maps. */
+    private final OffHeapStateMemoryPool memoryPool;
+
+    /**
+     * Constructs a new {@code OffHeapStateTable}.
+     *
+     * @param keyContext the key context.
+     * @param metaInfo the meta information, including the type serializer for state copy-on-write.
+     * @param keySerializer the serializer of the key.
+     * @param memoryPool the pool of the memory pages for the state maps.
+     */
+    OffHeapStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer,
+            OffHeapStateMemoryPool memoryPool) {
+        super(keyContext, metaInfo, keySerializer);
+        this.memoryPool = Preconditions.checkNotNull(memoryPool);
+    }
+
+    /**
+     * Returns whether the state of the given type can be kept in an {@link OffHeapStateTable}. List
+     * and map states modify the state objects returned from the table in place, so they are kept on
+     * the heap.
+     */
+    static boolean isSupportedStateType(StateDescriptor.Type stateType) {
+        switch (stateType) {
+            case VALUE:
+            case REDUCING:
+            case AGGREGATING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    protected OffHeapStateMap<K, N, S> createStateMap() {
+        // the memory pool is not yet set when this is called from the constructor of the base
+        // class, so the maps access it lazily through this table
+        return new OffHeapStateMap<>(this);
+    }
+
+    OffHeapStateMemoryPool getMemoryPool() {
+        return memoryPool;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void migrateStateSerializer(TypeSerializer<S> previousStateSerializer) {
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            ((OffHeapStateMap<K, N, S>) stateMap).migrateStateSerializer(previousStateSerializer);
+        }
+    }
+
+    // Snapshotting
+    // ----------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a snapshot of this {@link OffHeapStateTable}, to be written in checkpointing.
+     *
+     * @return a snapshot from this {@link OffHeapStateTable}, for checkpointing.
+     */
+    @Nonnull
+    @Override
+    public OffHeapStateTableSnapshot<K, N, S> stateSnapshot() {
+        return new OffHeapStateTableSnapshot<>(
+                this,
+                getKeySerializer().duplicate(),
+                getNamespaceSerializer().duplicate(),
+                getStateSerializer().duplicate(),
+                getMetaInfo()
+                        .getStateSnapshotTransformFactory()
+                        .createForDeserializedState()
+                        .orElse(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    List<OffHeapStateMapSnapshot<K, N, S>> getStateMapSnapshotList() {
+        List<OffHeapStateMapSnapshot<K, N, S>> snapshotList =
+                new ArrayList<>(keyGroupedStateMaps.length);
+        for (int i = 0; i < keyGroupedStateMaps.length; i++) {
+            OffHeapStateMap<K, N, S> stateMap = (OffHeapStateMap<K, N, S>) keyGroupedStateMaps[i];
+            snapshotList.add(stateMap.stateSnapshot());
+        }
+        return snapshotList;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * A {@link StateTableFactory} which creates {@link OffHeapStateTable OffHeapStateTables} for all
+ * supported state types, and falls back to another factory for the remaining state types.
+ *
+ * @param <K> The type of key on which a state backend is keyed
+ */
+class OffHeapStateTableFactory<K> implements StateTableFactory<K> {
+
+    private final OffHeapStateMemoryPool memoryPool;
+
+    private final StateTableFactory<K> onHeapStateTableFactory;
+
+    OffHeapStateTableFactory(
+            OffHeapStateMemoryPool memoryPool, StateTableFactory<K> onHeapStateTableFactory) {
+        this.memoryPool = Preconditions.checkNotNull(memoryPool);
+        this.onHeapStateTableFactory = Preconditions.checkNotNull(onHeapStateTableFactory);
+    }
+
+    @Override
+    public <N, V> StateTable<K, N, V> newStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, V> keyValueStateMetaInfo,
+            TypeSerializer<K> keySerializer) {
+        if (OffHeapStateTable.isSupportedStateType(keyValueStateMetaInfo.getStateType())) {
+            return new OffHeapStateTable<>(
+                    keyContext, keyValueStateMetaInfo, keySerializer, memoryPool);
+        } else {
+            return onHeapStateTableFactory.newStateTable(
+                    keyContext, keyValueStateMetaInfo, keySerializer);
+        }
+    }
+}
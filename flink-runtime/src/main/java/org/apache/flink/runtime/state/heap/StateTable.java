@@ -347,6 +347,15 @@ public abstract class StateTable<K, N, S>
         this.metaInfo = metaInfo;
     }
 
+    /**
+     * Notifies this table that its state serializer was replaced by a serializer that is only
+     * compatible after migration. Tables which keep state objects on the heap do not need to do
+     * anything, while tables which keep state in serialized form have to re-encode it.
+     *
+     * @param previousStateSerializer the serializer which was used before the migration.
+     */
+    public void migrateStateSerializer(TypeSerializer<S> previousStateSerializer) {}
+
     // Snapshot / Restore -------------------------------------------------------------------------
 
     public void put(K key, int keyGroup, N namespace, S state) {
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.taskexecutor;
 
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.CoreOptions;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.blob.PermanentBlobService;
@@ -329,6 +330,11 @@ public class TaskManagerServices {
         final TaskExecutorLocalStateStoresManager taskStateManager =
                 new TaskExecutorLocalStateStoresManager(
                         taskManagerServicesConfiguration.isLocalRecoveryEnabled(),
+                        taskManagerServicesConfiguration
+                                .getConfiguration()
+                                .getBoolean(
+                                        CheckpointingOptions
+                                                .LOCAL_RECOVERY_KEEP_HEAP_STATE_IN_MEMORY),
                         stateRootDirectoryFiles,
                         ioExecutor);
 
@@ -133,6 +133,13 @@ public class ConsumableNotifyingResultPartitionWriterDecorator {
             notifyPipelinedConsumers();
         }
 
+        @Override
+        public void emitRecords(ByteBuffer records, int targetSubpartition) throws IOException {
+            partitionWriter.emitRecords(records, targetSubpartition);
+
+            notifyPipelinedConsumers();
+        }
+
         @Override
         public void broadcastRecord(ByteBuffer record) throws IOException {
             partitionWriter.broadcastRecord(record);
@@ -85,6 +85,11 @@ public class InputGateWithMetrics extends IndexedInputGate {
         return inputGate.getUnfinishedChannels();
     }
 
+    @Override
+    public void triggerDebloating() {
+        inputGate.triggerDebloating();
+    }
+
     @Override
     public boolean isFinished() {
         return inputGate.isFinished();
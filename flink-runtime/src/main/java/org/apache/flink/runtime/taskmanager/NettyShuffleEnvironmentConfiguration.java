@@ -25,6 +25,7 @@ import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.ConfigurationParserUtils;
 import org.apache.flink.util.Preconditions;
 
@@ -68,6 +69,9 @@ public class NettyShuffleEnvironmentConfiguration {
 
     private final int sortShuffleMinParallelism;
 
+    /** Maximum number of concurrent sort-merge shuffle data reads of a single disk. */
+    private final int sortShuffleMaxConcurrentReadsPerDisk;
+
     /** Size of direct memory to be allocated for blocking shuffle data read. */
     private final long batchShuffleReadMemoryBytes;
 
@@ -87,6 +91,8 @@ public class NettyShuffleEnvironmentConfiguration {
 
     private final int maxBuffersPerChannel;
 
+    private final BufferDebloatConfiguration debloatConfiguration;
+
     public NettyShuffleEnvironmentConfiguration(
             int numNetworkBuffers,
             int networkBufferSize,
@@ -104,7 +110,9 @@ public class NettyShuffleEnvironmentConfiguration {
             int maxBuffersPerChannel,
             long batchShuffleReadMemoryBytes,
             int sortShuffleMinBuffers,
-            int sortShuffleMinParallelism) {
+            int sortShuffleMinParallelism,
+            int sortShuffleMaxConcurrentReadsPerDisk,
+            BufferDebloatConfiguration debloatConfiguration) {
 
         this.numNetworkBuffers = numNetworkBuffers;
         this.networkBufferSize = networkBufferSize;
@@ -123,6 +131,8 @@ public class NettyShuffleEnvironmentConfiguration {
         this.batchShuffleReadMemoryBytes = batchShuffleReadMemoryBytes;
         this.sortShuffleMinBuffers = sortShuffleMinBuffers;
         this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+        this.sortShuffleMaxConcurrentReadsPerDisk = sortShuffleMaxConcurrentReadsPerDisk;
+        this.debloatConfiguration = Preconditions.checkNotNull(debloatConfiguration);
     }
 
     // ------------------------------------------------------------------------
@@ -163,6 +173,10 @@ public class NettyShuffleEnvironmentConfiguration {
         return sortShuffleMinParallelism;
     }
 
+    public int sortShuffleMaxConcurrentReadsPerDisk() {
+        return sortShuffleMaxConcurrentReadsPerDisk;
+    }
+
     public Duration getRequestSegmentsTimeout() {
         return requestSegmentsTimeout;
     }
@@ -199,6 +213,10 @@ public class NettyShuffleEnvironmentConfiguration {
         return maxBuffersPerChannel;
     }
 
+    public BufferDebloatConfiguration getDebloatConfiguration() {
+        return debloatConfiguration;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -259,6 +277,10 @@ public class NettyShuffleEnvironmentConfiguration {
         int sortShuffleMinParallelism =
                 configuration.getInteger(
                         NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_MIN_PARALLELISM);
+        int sortShuffleMaxConcurrentReadsPerDisk =
+                configuration.get(
+                        NettyShuffleEnvironmentOptions
+                                .NETWORK_SORT_SHUFFLE_MAX_CONCURRENT_READS_PER_DISK);
 
         boolean isNetworkDetailedMetrics =
                 configuration.getBoolean(NettyShuffleEnvironmentOptions.NETWORK_DETAILED_METRICS);
@@ -297,7 +319,9 @@ public class NettyShuffleEnvironmentConfiguration {
                 maxBuffersPerChannel,
                 batchShuffleReadMemoryBytes,
                 sortShuffleMinBuffers,
-                sortShuffleMinParallelism);
+                sortShuffleMinParallelism,
+                sortShuffleMaxConcurrentReadsPerDisk,
+                BufferDebloatConfiguration.fromConfiguration(configuration));
     }
 
     /**
@@ -434,6 +458,8 @@ public class NettyShuffleEnvironmentConfiguration {
         result = 31 * result + Objects.hashCode(batchShuffleReadMemoryBytes);
         result = 31 * result + sortShuffleMinBuffers;
         result = 31 * result + sortShuffleMinParallelism;
+        result = 31 * result + sortShuffleMaxConcurrentReadsPerDisk;
+        result = 31 * result + debloatConfiguration.hashCode();
         return result;
     }
 
@@ -456,6 +482,8 @@ public class NettyShuffleEnvironmentConfiguration {
                     && this.batchShuffleReadMemoryBytes == that.batchShuffleReadMemoryBytes
                     && this.sortShuffleMinBuffers == that.sortShuffleMinBuffers
                     && this.sortShuffleMinParallelism == that.sortShuffleMinParallelism
+                    && this.sortShuffleMaxConcurrentReadsPerDisk
+                            == that.sortShuffleMaxConcurrentReadsPerDisk
                     && this.requestSegmentsTimeout.equals(that.requestSegmentsTimeout)
                     && (nettyConfig != null
                             ? nettyConfig.equals(that.nettyConfig)
@@ -464,7 +492,8 @@ public class NettyShuffleEnvironmentConfiguration {
                     && this.blockingShuffleCompressionEnabled
                             == that.blockingShuffleCompressionEnabled
                     && this.maxBuffersPerChannel == that.maxBuffersPerChannel
-                    && Objects.equals(this.compressionCodec, that.compressionCodec);
+                    && Objects.equals(this.compressionCodec, that.compressionCodec)
+                    && this.debloatConfiguration.equals(that.debloatConfiguration);
         }
     }
 
@@ -501,6 +530,10 @@ public class NettyShuffleEnvironmentConfiguration {
                 + sortShuffleMinBuffers
                 + ", sortShuffleMinParallelism="
                 + sortShuffleMinParallelism
+                + ", sortShuffleMaxConcurrentReadsPerDisk="
+                + sortShuffleMaxConcurrentReadsPerDisk
+                + ", debloatConfiguration="
+                + debloatConfiguration
                 + '}';
     }
 }
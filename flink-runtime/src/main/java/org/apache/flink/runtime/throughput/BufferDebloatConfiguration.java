@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.runtime.util.ConfigurationParserUtils;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/** Configuration for the adaption of the buffer size to the throughput of an input gate. */
+public final class BufferDebloatConfiguration {
+
+    private final boolean enabled;
+
+    private final Duration targetTotalTime;
+
+    private final Duration period;
+
+    private final int numberOfSamples;
+
+    private final int thresholdPercentages;
+
+    private final int minBufferSize;
+
+    private final int maxBufferSize;
+
+    public BufferDebloatConfiguration(
+            boolean enabled,
+            Duration targetTotalTime,
+            Duration period,
+            int numberOfSamples,
+            int thresholdPercentages,
+            int minBufferSize,
+            int maxBufferSize) {
+        checkArgument(!targetTotalTime.isNegative(), "Target total time must not be negative.");
+        checkArgument(!period.isNegative() && !period.isZero(), "Debloat period must be positive.");
+        checkArgument(numberOfSamples > 0, "Number of samples must be positive.");
+        checkArgument(
+                thresholdPercentages >= 0 && thresholdPercentages < 100,
+                "Threshold percentages must be in [0, 100).");
+        checkArgument(
+                minBufferSize > 0 && minBufferSize <= maxBufferSize,
+                "Min buffer size %s must be positive and not larger than the max buffer size %s.",
+                minBufferSize,
+                maxBufferSize);
+
+        this.enabled = enabled;
+        this.targetTotalTime = checkNotNull(targetTotalTime);
+        this.period = checkNotNull(period);
+        this.numberOfSamples = numberOfSamples;
+        this.thresholdPercentages = thresholdPercentages;
+        this.minBufferSize = minBufferSize;
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The time which the in-flight data of an input gate should take to be consumed. */
+    public Duration getTargetTotalTime() {
+        return targetTotalTime;
+    }
+
+    /** The period between two recalculations of the buffer size. */
+    public Duration getPeriod() {
+        return period;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    public int getThresholdPercentages() {
+        return thresholdPercentages;
+    }
+
+    public int getMinBufferSize() {
+        return minBufferSize;
+    }
+
+    /** The max buffer size, which is the size of the memory segments. */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    public static BufferDebloatConfiguration fromConfiguration(Configuration configuration) {
+        int maxBufferSize = ConfigurationParserUtils.getPageSize(configuration);
+        int minBufferSize =
+                (int)
+                        Math.min(
+                                configuration
+                                        .get(
+                                                NettyShuffleEnvironmentOptions
+                                                        .NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE)
+                                        .getBytes(),
+                                maxBufferSize);
+
+        return new BufferDebloatConfiguration(
+                configuration.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED),
+                configuration.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET),
+                configuration.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD),
+                configuration.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_SAMPLES),
+                configuration.get(
+                        NettyShuffleEnvironmentOptions
+                                .NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES),
+                minBufferSize,
+                maxBufferSize);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BufferDebloatConfiguration that = (BufferDebloatConfiguration) o;
+        return enabled == that.enabled
+                && numberOfSamples == that.numberOfSamples
+                && thresholdPercentages == that.thresholdPercentages
+                && minBufferSize == that.minBufferSize
+                && maxBufferSize == that.maxBufferSize
+                && targetTotalTime.equals(that.targetTotalTime)
+                && period.equals(that.period);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                enabled,
+                targetTotalTime,
+                period,
+                numberOfSamples,
+                thresholdPercentages,
+                minBufferSize,
+                maxBufferSize);
+    }
+
+    @Override
+    public String toString() {
+        return "BufferDebloatConfiguration{"
+                + "enabled="
+                + enabled
+                + ", targetTotalTime="
+                + targetTotalTime
+                + ", period="
+                + period
+                + ", numberOfSamples="
+                + numberOfSamples
+                + ", thresholdPercentages="
+                + thresholdPercentages
+                + ", minBufferSize="
+                + minBufferSize
+                + ", maxBufferSize="
+                + maxBufferSize
+                + '}';
+    }
+}
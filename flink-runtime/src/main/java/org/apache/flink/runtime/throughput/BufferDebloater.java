@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import java.util.OptionalInt;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Calculates the size of the buffers of an input gate, such that the in-flight data of the gate can
+ * be consumed within the target time at the measured throughput.
+ *
+ * <p>The calculated sizes are smoothed by an exponential moving average, and a new size is only
+ * announced if it differs from the last announced size by at least the configured threshold.
+ */
+public class BufferDebloater {
+
+    private final long targetTotalTimeMillis;
+
+    private final int minBufferSize;
+
+    private final int maxBufferSize;
+
+    private final int thresholdPercentages;
+
+    /** The weight of a new sample in the exponential moving average. */
+    private final double smoothingFactor;
+
+    private double smoothedBufferSize;
+
+    private int lastAnnouncedBufferSize;
+
+    public BufferDebloater(BufferDebloatConfiguration configuration) {
+        this(
+                configuration.getTargetTotalTime().toMillis(),
+                configuration.getMinBufferSize(),
+                configuration.getMaxBufferSize(),
+                configuration.getThresholdPercentages(),
+                configuration.getNumberOfSamples());
+    }
+
+    BufferDebloater(
+            long targetTotalTimeMillis,
+            int minBufferSize,
+            int maxBufferSize,
+            int thresholdPercentages,
+            int numberOfSamples) {
+        checkArgument(minBufferSize > 0 && minBufferSize <= maxBufferSize);
+        checkArgument(numberOfSamples > 0);
+
+        this.targetTotalTimeMillis = targetTotalTimeMillis;
+        this.minBufferSize = minBufferSize;
+        this.maxBufferSize = maxBufferSize;
+        this.thresholdPercentages = thresholdPercentages;
+        this.smoothingFactor = 2.0 / (numberOfSamples + 1);
+        // the producers start with full buffers
+        this.smoothedBufferSize = maxBufferSize;
+        this.lastAnnouncedBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Recalculates the buffer size for the given throughput and number of buffers in use.
+     *
+     * @param currentThroughput the throughput of the gate in bytes per second.
+     * @param buffersInUse the number of buffers which hold the in-flight data of the gate.
+     * @return the new buffer size, or an empty result if the size should not be announced.
+     */
+    public OptionalInt recalculateBufferSize(long currentThroughput, int buffersInUse) {
+        long desiredTotalSize = currentThroughput * targetTotalTimeMillis / 1000;
+        long desiredBufferSize =
+                Math.max(
+                        minBufferSize,
+                        Math.min(maxBufferSize, desiredTotalSize / Math.max(1, buffersInUse)));
+
+        smoothedBufferSize += smoothingFactor * (desiredBufferSize - smoothedBufferSize);
+        int newBufferSize =
+                (int)
+                        Math.max(
+                                minBufferSize,
+                                Math.min(maxBufferSize, Math.round(smoothedBufferSize)));
+
+        if (newBufferSize == lastAnnouncedBufferSize) {
+            return OptionalInt.empty();
+        }
+        // always announce the bounds, otherwise they may never be reached because of the threshold
+        boolean isBound = newBufferSize == minBufferSize || newBufferSize == maxBufferSize;
+        long difference = Math.abs((long) newBufferSize - lastAnnouncedBufferSize);
+        if (!isBound && difference * 100 < (long) lastAnnouncedBufferSize * thresholdPercentages) {
+            return OptionalInt.empty();
+        }
+
+        lastAnnouncedBufferSize = newBufferSize;
+        return OptionalInt.of(newBufferSize);
+    }
+
+    public int getLastAnnouncedBufferSize() {
+        return lastAnnouncedBufferSize;
+    }
+}
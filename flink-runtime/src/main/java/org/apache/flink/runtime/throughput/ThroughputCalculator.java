@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.util.clock.Clock;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Calculates the throughput of a consumer in bytes per second.
+ *
+ * <p>The time in which the consumer waits for data is excluded from the measurement, so that the
+ * throughput reflects how fast the consumer can process data rather than how fast the data arrives.
+ *
+ * <p>This class is not thread-safe, it must only be used by the task thread.
+ */
+public class ThroughputCalculator {
+
+    private static final long NOT_TRACKED = -1;
+
+    private final Clock clock;
+
+    /** The throughput of the last calculation, which is used while nothing was measured. */
+    private long currentThroughput;
+
+    private long currentAccumulatedDataSize;
+
+    private long currentMeasurementTime;
+
+    /** The start time of the running measurement or {@link #NOT_TRACKED} if it is paused. */
+    private long measurementStartTime = NOT_TRACKED;
+
+    public ThroughputCalculator(Clock clock) {
+        this.clock = checkNotNull(clock);
+    }
+
+    /** Accounts the given amount of received data and resumes the measurement if needed. */
+    public void incomingDataSize(long receivedDataSize) {
+        resumeMeasurement();
+        currentAccumulatedDataSize += receivedDataSize;
+    }
+
+    /** Excludes the time until the next call of {@link #resumeMeasurement()} from measurement. */
+    public void pauseMeasurement() {
+        if (measurementStartTime != NOT_TRACKED) {
+            currentMeasurementTime += clock.relativeTimeMillis() - measurementStartTime;
+            measurementStartTime = NOT_TRACKED;
+        }
+    }
+
+    /** Continues the measurement of the time after it was paused. */
+    public void resumeMeasurement() {
+        if (measurementStartTime == NOT_TRACKED) {
+            measurementStartTime = clock.relativeTimeMillis();
+        }
+    }
+
+    /**
+     * Calculates the throughput since the last calculation and starts a new measurement.
+     *
+     * @return the throughput in bytes per second, or the last calculated throughput if no time was
+     *     measured since the last calculation.
+     */
+    public long calculateThroughput() {
+        if (measurementStartTime != NOT_TRACKED) {
+            long now = clock.relativeTimeMillis();
+            currentMeasurementTime += now - measurementStartTime;
+            measurementStartTime = now;
+        }
+
+        if (currentMeasurementTime > 0) {
+            currentThroughput = currentAccumulatedDataSize * 1000 / currentMeasurementTime;
+        }
+
+        currentAccumulatedDataSize = 0;
+        currentMeasurementTime = 0;
+        return currentThroughput;
+    }
+}
@@ -196,7 +196,7 @@ public class PendingCheckpointTest {
         pending.acknowledgeTask(ATTEMPT_ID, null, new CheckpointMetrics(), null);
         assertTrue(pending.areTasksFullyAcknowledged());
         pending.finalizeCheckpoint(
-                new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), null);
+                new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), false, null);
         assertTrue(future.isDone());
 
         // Finalize (missing ACKs)
@@ -206,7 +206,7 @@ public class PendingCheckpointTest {
         assertFalse(future.isDone());
         try {
             pending.finalizeCheckpoint(
-                    new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), null);
+                    new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), false, null);
             fail("Did not throw expected Exception");
         } catch (IllegalStateException ignored) {
             // Expected
@@ -283,7 +283,11 @@ public class PendingCheckpointTest {
                     .reportSubtaskStats(nullable(JobVertexID.class), any(SubtaskStateStats.class));
 
             pending.finalizeCheckpoint(
-                    new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), callback);
+                    new CheckpointsCleaner(),
+                    () -> {},
+                    Executors.directExecutor(),
+                    false,
+                    callback);
             verify(callback, times(1)).reportCompletedCheckpoint(any(String.class));
         }
 
@@ -603,7 +607,11 @@ public class PendingCheckpointTest {
 
         CompletedCheckpoint completedCheckpoint =
                 pendingCheckpoint.finalizeCheckpoint(
-                        new CheckpointsCleaner(), () -> {}, Executors.directExecutor(), null);
+                        new CheckpointsCleaner(),
+                        () -> {},
+                        Executors.directExecutor(),
+                        false,
+                        null);
         assertThat(completedCheckpoint.getOperatorStates().size(), is(2));
         OperatorState finishedOperatorState =
                 completedCheckpoint.getOperatorStates().get(finishedOperatorID);
@@ -27,10 +27,15 @@ import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.checkpoint.MasterState;
 import org.apache.flink.runtime.checkpoint.OperatorState;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.MultiStreamStateHandle;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.util.IOUtils;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -42,6 +47,7 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -50,7 +56,9 @@ import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /** Various tests for the version 3 format serializer of a checkpoint. */
 public class MetadataV3SerializerTest {
@@ -273,4 +281,63 @@ public class MetadataV3SerializerTest {
             }
         }
     }
+
+    @Test
+    public void testSerializeMultiStreamStateHandle() throws IOException {
+        byte[] data = {1, 2, 3, 4, 5, 6};
+        MultiStreamStateHandle original =
+                new MultiStreamStateHandle(
+                        Arrays.asList(
+                                new ByteStreamStateHandle("first", new byte[] {1, 2, 3, 4}),
+                                new ByteStreamStateHandle("second", new byte[] {5, 6})));
+        try (ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos()) {
+            MetadataV2V3SerializerBase.serializeStreamStateHandle(
+                    original, new DataOutputStream(out));
+            try (ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray())) {
+                StreamStateHandle handle =
+                        MetadataV2V3SerializerBase.deserializeStreamStateHandle(
+                                new DataInputStream(in), null);
+                assertTrue(handle instanceof MultiStreamStateHandle);
+                assertEquals(2, ((MultiStreamStateHandle) handle).getStateHandles().size());
+                assertEquals(data.length, handle.getStateSize());
+                byte[] deserialized = new byte[data.length];
+                try (FSDataInputStream dataStream = handle.openInputStream()) {
+                    IOUtils.readFully(dataStream, deserialized, 0, deserialized.length);
+                    assertArrayEquals(data, deserialized);
+                    assertEquals(-1, dataStream.read());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultiStreamStateHandleIsNotWrittenInVersion3() throws IOException {
+        CheckpointMetadata metadata = createMetadataWithMultiStreamStateHandle();
+        assertFalse(MetadataV3Serializer.canSerialize(metadata));
+        try {
+            MetadataV3Serializer.serialize(
+                    metadata, new DataOutputStream(new ByteArrayOutputStreamWithPos()));
+            fail("Version 3 must not contain chunked state handles.");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    static CheckpointMetadata createMetadataWithMultiStreamStateHandle() {
+        MultiStreamStateHandle handle =
+                new MultiStreamStateHandle(
+                        Arrays.asList(
+                                new ByteStreamStateHandle("first", new byte[] {1, 2, 3, 4}),
+                                new ByteStreamStateHandle("second", new byte[] {5, 6})));
+        OperatorState operatorState = new OperatorState(new OperatorID(), 1, 128);
+        operatorState.putState(
+                0,
+                OperatorSubtaskState.builder()
+                        .setManagedKeyedState(
+                                new KeyGroupsStateHandle(
+                                        new KeyGroupRangeOffsets(KeyGroupRange.of(0, 0)), handle))
+                        .build());
+        return new CheckpointMetadata(
+                1L, Collections.singletonList(operatorState), Collections.emptyList());
+    }
 }
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.metadata;
+
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.Checkpoints;
+import org.apache.flink.runtime.checkpoint.MasterState;
+import org.apache.flink.runtime.checkpoint.OperatorState;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.MultiStreamStateHandle;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the version 4 format serializer of a checkpoint. */
+public class MetadataV4SerializerTest {
+
+    private static ExecutorService executorService;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createExecutor() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownExecutor() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testCheckpointWithNoState() throws Exception {
+        testCheckpointSerialization(
+                42L, Collections.emptyList(), Collections.emptyList(), null, executorService);
+    }
+
+    @Test
+    public void testCheckpointWithMasterAndTaskStateForCheckpoint() throws Exception {
+        testCheckpointWithMasterAndTaskState(null);
+    }
+
+    @Test
+    public void testCheckpointWithMasterAndTaskStateForSavepoint() throws Exception {
+        testCheckpointWithMasterAndTaskState(temporaryFolder.newFolder().toURI().toString());
+    }
+
+    private void testCheckpointWithMasterAndTaskState(String basePath) throws Exception {
+        final Random rnd = new Random();
+
+        for (int i = 0; i < 20; ++i) {
+            final long checkpointId = rnd.nextLong() & 0x7fffffffffffffffL;
+
+            final int numTasks = rnd.nextInt(20) + 1;
+            final int numFinished = rnd.nextInt(numTasks);
+            // up to the max parallelism of the operator states, which is 128
+            final int numSubtasks = rnd.nextInt(128) + 1;
+            final Collection<OperatorState> taskStates =
+                    CheckpointTestUtils.createOperatorStates(
+                            rnd, basePath, numTasks, numFinished, numSubtasks);
+
+            final Collection<MasterState> masterStates =
+                    CheckpointTestUtils.createRandomMasterStates(rnd, rnd.nextInt(5));
+
+            testCheckpointSerialization(
+                    checkpointId, taskStates, masterStates, basePath, executorService);
+        }
+    }
+
+    @Test
+    public void testShardsAreProcessedIfTheExecutorRejectsTasks() throws Exception {
+        final Random rnd = new Random();
+        final Collection<OperatorState> taskStates =
+                CheckpointTestUtils.createOperatorStates(
+                        rnd, null, 3, 0, MetadataV4Serializer.SUBTASK_STATES_PER_SHARD + 1);
+
+        testCheckpointSerialization(
+                7L,
+                taskStates,
+                Collections.emptyList(),
+                null,
+                runnable -> {
+                    throw new RejectedExecutionException();
+                });
+    }
+
+    @Test
+    public void testShardsAreProcessedIfTheExecutorIsBusy() throws Exception {
+        final Random rnd = new Random();
+        final Collection<OperatorState> taskStates =
+                CheckpointTestUtils.createOperatorStates(
+                        rnd, null, 3, 0, MetadataV4Serializer.SUBTASK_STATES_PER_SHARD + 1);
+
+        // the tasks are never run, as if all threads of the executor were blocked
+        testCheckpointSerialization(7L, taskStates, Collections.emptyList(), null, runnable -> {});
+    }
+
+    @Test
+    public void testStoredCheckpointMetadataUsesVersion4() throws Exception {
+        final Random rnd = new Random();
+        final Collection<OperatorState> taskStates =
+                CheckpointTestUtils.createOperatorStates(rnd, null, 5, 1, 100);
+        final CheckpointMetadata metadata =
+                new CheckpointMetadata(11L, taskStates, Collections.emptyList());
+
+        final ByteArrayOutputStreamWithPos baos = new ByteArrayOutputStreamWithPos();
+        Checkpoints.storeCheckpointMetadata(metadata, baos, executorService);
+
+        final DataInputStream in =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(baos.toByteArray()));
+        assertEquals(Checkpoints.HEADER_MAGIC_NUMBER, in.readInt());
+        assertEquals(MetadataV4Serializer.VERSION, in.readInt());
+
+        final CheckpointMetadata deserialized =
+                Checkpoints.loadCheckpointMetadata(
+                        new DataInputViewStreamWrapper(
+                                new ByteArrayInputStreamWithPos(baos.toByteArray())),
+                        getClass().getClassLoader(),
+                        null,
+                        executorService);
+        assertEquals(11L, deserialized.getCheckpointId());
+        assertEquals(taskStates, deserialized.getOperatorStates());
+    }
+
+    @Test
+    public void testStoredCheckpointMetadataUsesVersion3ByDefault() throws Exception {
+        final Random rnd = new Random();
+        final Collection<OperatorState> taskStates =
+                CheckpointTestUtils.createOperatorStates(rnd, null, 5, 1, 100);
+        final CheckpointMetadata metadata =
+                new CheckpointMetadata(11L, taskStates, Collections.emptyList());
+
+        final ByteArrayOutputStreamWithPos baos = new ByteArrayOutputStreamWithPos();
+        Checkpoints.storeCheckpointMetadata(metadata, baos);
+
+        final DataInputStream in =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(baos.toByteArray()));
+        assertEquals(Checkpoints.HEADER_MAGIC_NUMBER, in.readInt());
+        assertEquals(MetadataV3Serializer.VERSION, in.readInt());
+    }
+
+    @Test
+    public void testStoredCheckpointMetadataUsesVersion4ForMultiStreamStateHandles()
+            throws Exception {
+        final CheckpointMetadata metadata =
+                MetadataV3SerializerTest.createMetadataWithMultiStreamStateHandle();
+
+        final ByteArrayOutputStreamWithPos baos = new ByteArrayOutputStreamWithPos();
+        Checkpoints.storeCheckpointMetadata(metadata, baos);
+
+        final DataInputStream in =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(baos.toByteArray()));
+        assertEquals(Checkpoints.HEADER_MAGIC_NUMBER, in.readInt());
+        assertEquals(MetadataV4Serializer.VERSION, in.readInt());
+
+        final DataInputStream restoredIn =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(baos.toByteArray()));
+        final CheckpointMetadata restored =
+                Checkpoints.loadCheckpointMetadata(
+                        restoredIn, getClass().getClassLoader(), "pointer");
+        final OperatorSubtaskState subtaskState =
+                restored.getOperatorStates().iterator().next().getState(0);
+        final KeyedStateHandle keyedStateHandle =
+                subtaskState.getManagedKeyedState().iterator().next();
+        assertTrue(
+                ((KeyGroupsStateHandle) keyedStateHandle).getDelegateStateHandle()
+                        instanceof MultiStreamStateHandle);
+    }
+
+    private void testCheckpointSerialization(
+            long checkpointId,
+            Collection<OperatorState> operatorStates,
+            Collection<MasterState> masterStates,
+            @Nullable String basePath,
+            Executor executor)
+            throws IOException {
+
+        ByteArrayOutputStreamWithPos baos = new ByteArrayOutputStreamWithPos();
+        DataOutputStream out = new DataOutputViewStreamWrapper(baos);
+
+        CheckpointMetadata metadata =
+                new CheckpointMetadata(checkpointId, operatorStates, masterStates);
+        MetadataV4Serializer.serialize(metadata, out, executor);
+        out.close();
+
+        // relative state handles are resolved against the "_metadata" file, see
+        // MetadataV3SerializerTest
+        if (basePath != null) {
+            final Path metaPath = new Path(basePath, "_metadata");
+            FileSystem.getLocalFileSystem()
+                    .create(metaPath, FileSystem.WriteMode.OVERWRITE)
+                    .close();
+        }
+
+        byte[] bytes = baos.toByteArray();
+
+        // the format does not depend on the executor
+        ByteArrayOutputStreamWithPos sequentialBaos = new ByteArrayOutputStreamWithPos();
+        MetadataV4Serializer.serialize(
+                metadata, new DataOutputViewStreamWrapper(sequentialBaos), Runnable::run);
+        assertArrayEquals(bytes, sequentialBaos.toByteArray());
+
+        // nor on the number of shards which are held in memory at once
+        for (int maxShardsInFlight = 1; maxShardsInFlight <= 2; maxShardsInFlight++) {
+            ByteArrayOutputStreamWithPos boundedBaos = new ByteArrayOutputStreamWithPos();
+            MetadataV4Serializer.serialize(
+                    metadata,
+                    new DataOutputViewStreamWrapper(boundedBaos),
+                    executor,
+                    maxShardsInFlight);
+            assertArrayEquals(bytes, boundedBaos.toByteArray());
+
+            assertDeserializedEquals(
+                    metadata,
+                    MetadataV4Serializer.INSTANCE.deserialize(
+                            new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(bytes)),
+                            basePath,
+                            executor,
+                            maxShardsInFlight));
+        }
+
+        DataInputStream in = new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(bytes));
+        assertDeserializedEquals(
+                metadata,
+                MetadataV4Serializer.INSTANCE.deserialize(
+                        in, getClass().getClassLoader(), basePath, executor));
+    }
+
+    private static void assertDeserializedEquals(
+            CheckpointMetadata metadata, CheckpointMetadata deserialized) {
+        final Collection<OperatorState> operatorStates = metadata.getOperatorStates();
+        final Collection<MasterState> masterStates = metadata.getMasterStates();
+        assertEquals(metadata.getCheckpointId(), deserialized.getCheckpointId());
+        assertEquals(operatorStates, deserialized.getOperatorStates());
+        assertEquals(
+                operatorStates.stream()
+                        .map(OperatorState::isFullyFinished)
+                        .collect(Collectors.toList()),
+                deserialized.getOperatorStates().stream()
+                        .map(OperatorState::isFullyFinished)
+                        .collect(Collectors.toList()));
+
+        assertEquals(masterStates.size(), deserialized.getMasterStates().size());
+        for (Iterator<MasterState> a = masterStates.iterator(),
+                        b = deserialized.getMasterStates().iterator();
+                a.hasNext(); ) {
+            CheckpointTestUtils.assertMasterStateEquality(a.next(), b.next());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.disk;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link BatchShuffleReadIOScheduler}. */
+public class BatchShuffleReadIOSchedulerTest extends TestLogger {
+
+    private static final Path DISK_1 = Paths.get("/disk1");
+
+    private static final Path DISK_2 = Paths.get("/disk2");
+
+    private final Queue<Runnable> submittedTasks = new ArrayDeque<>();
+
+    private final List<String> finishedReads = new ArrayList<>();
+
+    @Test
+    public void testReadsOfDiskAreServedInFileOffsetOrder() {
+        BatchShuffleReadIOScheduler scheduler =
+                new BatchShuffleReadIOScheduler(submittedTasks::add, 1);
+
+        scheduler.execute(new TestingReadTask("b", DISK_1.resolve("b"), 0));
+        scheduler.execute(new TestingReadTask("c", DISK_1.resolve("c"), 0));
+        scheduler.execute(new TestingReadTask("b2", DISK_1.resolve("b"), 200));
+        scheduler.execute(new TestingReadTask("a", DISK_1.resolve("a"), 0));
+        scheduler.execute(new TestingReadTask("b1", DISK_1.resolve("b"), 100));
+
+        assertEquals(1, scheduler.getNumRunningReads());
+        assertEquals(4, scheduler.getNumPendingReads());
+
+        runAllTasks();
+
+        // the elevator continues after the first started read and wraps around at the end
+        assertEquals(Arrays.asList("b", "b1", "b2", "c", "a"), finishedReads);
+        assertEquals(0, scheduler.getNumRunningReads());
+        assertEquals(0, scheduler.getNumPendingReads());
+        assertEquals(0, scheduler.getNumActiveDisks());
+    }
+
+    @Test
+    public void testReadsOfDifferentDisksRunConcurrently() {
+        BatchShuffleReadIOScheduler scheduler =
+                new BatchShuffleReadIOScheduler(submittedTasks::add, 1);
+
+        scheduler.execute(new TestingReadTask("a", DISK_1.resolve("a"), 0));
+        scheduler.execute(new TestingReadTask("b", DISK_1.resolve("b"), 0));
+        scheduler.execute(new TestingReadTask("c", DISK_2.resolve("c"), 0));
+
+        assertEquals(2, submittedTasks.size());
+        assertEquals(2, scheduler.getNumRunningReads());
+        assertEquals(1, scheduler.getNumPendingReads());
+        assertEquals(2, scheduler.getNumActiveDisks());
+
+        runAllTasks();
+
+        assertEquals(Arrays.asList("a", "c", "b"), finishedReads);
+        assertEquals(0, scheduler.getNumActiveDisks());
+    }
+
+    @Test
+    public void testConcurrentReadsOfDiskAreLimited() {
+        BatchShuffleReadIOScheduler scheduler =
+                new BatchShuffleReadIOScheduler(submittedTasks::add, 2);
+
+        for (int i = 0; i < 5; ++i) {
+            scheduler.execute(new TestingReadTask("" + i, DISK_1.resolve("a"), i));
+        }
+        assertEquals(2, submittedTasks.size());
+        assertEquals(3, scheduler.getNumPendingReads());
+
+        submittedTasks.poll().run();
+        assertEquals(2, submittedTasks.size());
+        assertEquals(2, scheduler.getNumPendingReads());
+
+        runAllTasks();
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), finishedReads);
+    }
+
+    @Test
+    public void testReadsResubmittedWhileRunningAreQueued() {
+        BatchShuffleReadIOScheduler scheduler =
+                new BatchShuffleReadIOScheduler(submittedTasks::add, 1);
+
+        scheduler.execute(
+                new TestingReadTask("a", DISK_1.resolve("a"), 0) {
+                    @Override
+                    public void run() {
+                        super.run();
+                        scheduler.execute(new TestingReadTask("a1", DISK_1.resolve("a"), 100));
+                    }
+                });
+        scheduler.execute(new TestingReadTask("b", DISK_1.resolve("b"), 0));
+
+        runAllTasks();
+        assertEquals(Arrays.asList("a", "a1", "b"), finishedReads);
+    }
+
+    @Test
+    public void testTasksWithoutFileAreExecutedDirectly() {
+        BatchShuffleReadIOScheduler scheduler =
+                new BatchShuffleReadIOScheduler(submittedTasks::add, 1);
+
+        scheduler.execute(new TestingReadTask("a", DISK_1.resolve("a"), 0));
+        scheduler.execute(new TestingReadTask("b", null, 0));
+        scheduler.execute(() -> finishedReads.add("c"));
+
+        assertEquals(3, submittedTasks.size());
+        assertEquals(1, scheduler.getNumRunningReads());
+        assertEquals(0, scheduler.getNumPendingReads());
+    }
+
+    private void runAllTasks() {
+        Runnable task;
+        while ((task = submittedTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private class TestingReadTask implements BatchShuffleReadIOScheduler.ReadTask {
+
+        private final String name;
+
+        private final Path filePath;
+
+        private final long offset;
+
+        private TestingReadTask(String name, Path filePath, long offset) {
+            this.name = name;
+            this.filePath = filePath;
+            this.offset = offset;
+        }
+
+        @Override
+        public Path getFilePath() {
+            return filePath;
+        }
+
+        @Override
+        public long getNextReadOffset() {
+            return offset;
+        }
+
+        @Override
+        public void run() {
+            finishedReads.add(name);
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network;
 
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
@@ -25,6 +26,7 @@ import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartition
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.EnvironmentInformation;
 import org.apache.flink.util.concurrent.Executors;
 
@@ -58,6 +60,8 @@ public class NettyShuffleEnvironmentBuilder {
 
     private int sortShuffleMinParallelism = Integer.MAX_VALUE;
 
+    private int sortShuffleMaxConcurrentReadsPerDisk = Integer.MAX_VALUE;
+
     private long batchShuffleReadMemoryBytes = 64 * DEFAULT_NETWORK_BUFFER_SIZE;
 
     private int maxBuffersPerChannel = Integer.MAX_VALUE;
@@ -66,6 +70,9 @@ public class NettyShuffleEnvironmentBuilder {
 
     private String compressionCodec = "LZ4";
 
+    private BufferDebloatConfiguration debloatConfiguration =
+            BufferDebloatConfiguration.fromConfiguration(new Configuration());
+
     private ResourceID taskManagerLocation = ResourceID.generate();
 
     private NettyConfig nettyConfig;
@@ -132,6 +139,12 @@ public class NettyShuffleEnvironmentBuilder {
         return this;
     }
 
+    public NettyShuffleEnvironmentBuilder setSortShuffleMaxConcurrentReadsPerDisk(
+            int sortShuffleMaxConcurrentReadsPerDisk) {
+        this.sortShuffleMaxConcurrentReadsPerDisk = sortShuffleMaxConcurrentReadsPerDisk;
+        return this;
+    }
+
     public NettyShuffleEnvironmentBuilder setBatchShuffleReadMemoryBytes(
             long batchShuffleReadMemoryBytes) {
         this.batchShuffleReadMemoryBytes = batchShuffleReadMemoryBytes;
@@ -149,6 +162,12 @@ public class NettyShuffleEnvironmentBuilder {
         return this;
     }
 
+    public NettyShuffleEnvironmentBuilder setDebloatConfiguration(
+            BufferDebloatConfiguration debloatConfiguration) {
+        this.debloatConfiguration = debloatConfiguration;
+        return this;
+    }
+
     public NettyShuffleEnvironmentBuilder setNettyConfig(NettyConfig nettyConfig) {
         this.nettyConfig = nettyConfig;
         return this;
@@ -189,7 +208,9 @@ public class NettyShuffleEnvironmentBuilder {
                         maxBuffersPerChannel,
                         batchShuffleReadMemoryBytes,
                         sortShuffleMinBuffers,
-                        sortShuffleMinParallelism),
+                        sortShuffleMinParallelism,
+                        sortShuffleMaxConcurrentReadsPerDisk,
+                        debloatConfiguration),
                 taskManagerLocation,
                 new TaskEventDispatcher(),
                 resultPartitionManager,
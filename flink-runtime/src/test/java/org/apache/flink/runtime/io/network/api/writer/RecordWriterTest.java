@@ -40,6 +40,7 @@ import org.apache.flink.runtime.io.network.partition.NoOpBufferAvailablityListen
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionBuilder;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.util.DeserializationUtils;
@@ -58,12 +59,15 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import static org.apache.flink.runtime.io.network.partition.PartitionTestUtils.createPartition;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /** Tests for the {@link RecordWriter}. */
@@ -292,6 +296,62 @@ public class RecordWriterTest {
         }
     }
 
+    /**
+     * Tests that records emitted as a batch via {@link RecordWriter#emit(Iterable)} end up in the
+     * same buffers as records emitted one by one.
+     */
+    @Test
+    public void testEmitRecordBatch() throws Exception {
+        final int numberOfChannels = 3;
+        final int bufferSize = 32;
+        final int numValues = 30;
+        final int batchSize = 7;
+
+        // records of 12 bytes including the length, which span the buffers of 32 bytes
+        final List<SerializationTestType> records = new ArrayList<>();
+        for (SerializationTestType record :
+                Util.randomRecords(numValues, SerializationTestTypeFactory.LONG)) {
+            records.add(record);
+        }
+
+        final ResultPartition expectedPartition =
+                createResultPartition(bufferSize, numberOfChannels);
+        final RecordWriter<SerializationTestType> expectedWriter =
+                createRecordWriter(expectedPartition);
+        for (SerializationTestType record : records) {
+            expectedWriter.emit(record);
+        }
+        expectedPartition.finish();
+
+        final ResultPartition partition = createResultPartition(bufferSize, numberOfChannels);
+        final RecordWriter<SerializationTestType> writer = createRecordWriter(partition);
+        for (int i = 0; i < numValues; i += batchSize) {
+            writer.emit(records.subList(i, Math.min(i + batchSize, numValues)));
+        }
+        partition.finish();
+
+        for (int i = 0; i < numberOfChannels; i++) {
+            assertEquals(
+                    expectedPartition.getNumberOfQueuedBuffers(i),
+                    partition.getNumberOfQueuedBuffers(i));
+            ResultSubpartitionView expectedView =
+                    expectedPartition.createSubpartitionView(
+                            i, new NoOpBufferAvailablityListener());
+            ResultSubpartitionView view =
+                    partition.createSubpartitionView(i, new NoOpBufferAvailablityListener());
+            ResultSubpartition.BufferAndBacklog expected;
+            while ((expected = expectedView.getNextBuffer()) != null) {
+                Buffer actualBuffer = view.getNextBuffer().buffer();
+                assertEquals(
+                        expected.buffer().getNioBufferReadable(),
+                        actualBuffer.getNioBufferReadable());
+                expected.buffer().recycleBuffer();
+                actualBuffer.recycleBuffer();
+            }
+            assertNull(view.getNextBuffer());
+        }
+    }
+
     /**
      * Tests that the RecordWriter is available iif the respective LocalBufferPool has at-least one
      * available buffer.
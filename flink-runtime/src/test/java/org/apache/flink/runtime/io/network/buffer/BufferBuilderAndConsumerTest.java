@@ -227,6 +227,25 @@ public class BufferBuilderAndConsumerTest {
         assertEquals(0, bufferBuilder.getWritableBytes());
     }
 
+    @Test
+    public void testTrim() {
+        BufferBuilder bufferBuilder = createBufferBuilder();
+        BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+
+        bufferBuilder.trim(3 * Integer.BYTES);
+        assertEquals(3 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+        assertEquals(3 * Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(1, 2, 3, 4)));
+        assertTrue(bufferBuilder.isFull());
+
+        // the builder can not be trimmed below the written data or grow beyond its segment
+        bufferBuilder.trim(Integer.BYTES);
+        assertEquals(3 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+        bufferBuilder.trim(2 * BUFFER_SIZE);
+        assertEquals(BUFFER_SIZE, bufferBuilder.getMaxCapacity());
+
+        assertContent(bufferConsumer, 1, 2, 3);
+    }
+
     @Test
     public void recycleWithoutConsumer() {
         // given: Recycler with the counter of recycle invocation.
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.apache.flink.runtime.io.network.netty.AdaptiveBufferCompressor.MAX_BUFFERS_TO_SKIP;
+import static org.apache.flink.runtime.io.network.netty.AdaptiveBufferCompressor.MAX_POOLED_SEGMENTS;
+import static org.apache.flink.runtime.io.network.netty.AdaptiveBufferCompressor.MIN_BUFFERS_TO_SKIP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link AdaptiveBufferCompressor}. */
+public class AdaptiveBufferCompressorTest extends TestLogger {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final String CODEC = "LZ4";
+
+    private final Random random = new Random(42);
+
+    /** Tests that compressible buffers are compressed into separate buffers. */
+    @Test
+    public void testCompressCompressibleBuffers() {
+        AdaptiveBufferCompressor compressor =
+                new AdaptiveBufferCompressor(new BufferCompressor(BUFFER_SIZE, CODEC));
+        BufferDecompressor decompressor = new BufferDecompressor(BUFFER_SIZE, CODEC);
+
+        for (int i = 0; i < 10; i++) {
+            Buffer buffer = createBuffer(true);
+            Buffer expected = createBuffer(true);
+
+            Buffer compressed = compressor.compressIfBeneficial(buffer);
+            assertTrue(compressed.isCompressed());
+            assertTrue(compressed.readableBytes() < BUFFER_SIZE / 2);
+            // the original buffer is recycled and its memory is not touched
+            assertTrue(buffer.isRecycled());
+            assertEquals(0, compressor.getNumBuffersToSkip());
+
+            Buffer decompressed = decompressor.decompressToIntermediateBuffer(compressed);
+            assertEquals(expected.getNioBufferReadable(), decompressed.getNioBufferReadable());
+            decompressed.recycleBuffer();
+            compressed.recycleBuffer();
+            expected.recycleBuffer();
+        }
+    }
+
+    /**
+     * Tests that compression is paused for incompressible buffers, with growing pauses until it
+     * pays off again.
+     */
+    @Test
+    public void testPauseCompressionForIncompressibleBuffers() {
+        AdaptiveBufferCompressor compressor =
+                new AdaptiveBufferCompressor(new BufferCompressor(BUFFER_SIZE, CODEC));
+
+        int expectedBuffersToSkip = MIN_BUFFERS_TO_SKIP;
+        for (int probe = 0; probe < 10; probe++) {
+            Buffer incompressible = createBuffer(false);
+            assertSame(incompressible, compressor.compressIfBeneficial(incompressible));
+            incompressible.recycleBuffer();
+            assertEquals(expectedBuffersToSkip, compressor.getNumBuffersToSkip());
+
+            // compressible buffers are not compressed during the pause
+            for (int i = 0; i < expectedBuffersToSkip; i++) {
+                assertFalse(compressAndRecycle(compressor, true));
+            }
+            expectedBuffersToSkip = Math.min(2 * expectedBuffersToSkip, MAX_BUFFERS_TO_SKIP);
+        }
+
+        // compressible data resets the pauses
+        assertTrue(compressAndRecycle(compressor, true));
+        assertFalse(compressAndRecycle(compressor, false));
+        assertEquals(MIN_BUFFERS_TO_SKIP, compressor.getNumBuffersToSkip());
+    }
+
+    /** Tests that the segments of recycled compressed buffers are reused. */
+    @Test
+    public void testReuseSegmentsOfRecycledBuffers() {
+        AdaptiveBufferCompressor compressor =
+                new AdaptiveBufferCompressor(new BufferCompressor(BUFFER_SIZE, CODEC));
+
+        // buffers which are still in flight do not share their segments
+        List<Buffer> inFlight = new ArrayList<>();
+        Set<MemorySegment> segments = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < MAX_POOLED_SEGMENTS + 1; i++) {
+            Buffer compressed = compressor.compressIfBeneficial(createBuffer(true));
+            assertTrue(compressed.isCompressed());
+            assertTrue(segments.add(compressed.getMemorySegment()));
+            inFlight.add(compressed);
+        }
+        for (Buffer buffer : inFlight) {
+            buffer.recycleBuffer();
+        }
+
+        // the pool keeps up to MAX_POOLED_SEGMENTS segments
+        for (int i = 0; i < MAX_POOLED_SEGMENTS; i++) {
+            Buffer compressed = compressor.compressIfBeneficial(createBuffer(true));
+            assertTrue(segments.remove(compressed.getMemorySegment()));
+        }
+        Buffer compressed = compressor.compressIfBeneficial(createBuffer(true));
+        assertFalse(segments.contains(compressed.getMemorySegment()));
+    }
+
+    /** Tests that events and empty buffers are never compressed. */
+    @Test
+    public void testSkipEventsAndEmptyBuffers() {
+        AdaptiveBufferCompressor compressor =
+                new AdaptiveBufferCompressor(new BufferCompressor(BUFFER_SIZE, CODEC));
+
+        Buffer event =
+                new NetworkBuffer(
+                        MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+                        FreeingBufferRecycler.INSTANCE,
+                        Buffer.DataType.EVENT_BUFFER,
+                        BUFFER_SIZE);
+        assertSame(event, compressor.compressIfBeneficial(event));
+        event.recycleBuffer();
+
+        Buffer empty =
+                new NetworkBuffer(
+                        MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+                        FreeingBufferRecycler.INSTANCE);
+        assertSame(empty, compressor.compressIfBeneficial(empty));
+        empty.recycleBuffer();
+
+        assertEquals(0, compressor.getNumBuffersToSkip());
+    }
+
+    private boolean compressAndRecycle(AdaptiveBufferCompressor compressor, boolean compressible) {
+        Buffer buffer = compressor.compressIfBeneficial(createBuffer(compressible));
+        boolean isCompressed = buffer.isCompressed();
+        buffer.recycleBuffer();
+        return isCompressed;
+    }
+
+    private Buffer createBuffer(boolean compressible) {
+        NetworkBuffer buffer =
+                new NetworkBuffer(
+                        MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+                        FreeingBufferRecycler.INSTANCE);
+        for (int i = 0; i < BUFFER_SIZE / 4; i++) {
+            buffer.writeInt(compressible ? i % 16 : random.nextInt());
+        }
+        return buffer;
+    }
+}
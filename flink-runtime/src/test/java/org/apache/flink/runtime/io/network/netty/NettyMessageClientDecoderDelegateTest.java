@@ -20,8 +20,11 @@ package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.TestingPartitionRequestClient;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -33,6 +36,7 @@ import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.TestLogger;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 
 import org.junit.After;
@@ -43,9 +47,11 @@ import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 import static org.apache.flink.runtime.io.network.netty.NettyTestUtil.verifyBufferResponseHeader;
@@ -62,25 +68,28 @@ public class NettyMessageClientDecoderDelegateTest extends TestLogger {
 
     private static final NettyBufferPool ALLOCATOR = new NettyBufferPool(1);
 
+    private CreditBasedPartitionRequestClientHandler handler;
+
     private EmbeddedChannel channel;
 
     private NetworkBufferPool networkBufferPool;
 
     private SingleInputGate inputGate;
 
+    private RemoteInputChannel inputChannel;
+
     private InputChannelID inputChannelId;
 
     private InputChannelID releasedInputChannelId;
 
     @Before
     public void setup() throws IOException, InterruptedException {
-        CreditBasedPartitionRequestClientHandler handler =
-                new CreditBasedPartitionRequestClientHandler();
+        handler = new CreditBasedPartitionRequestClientHandler();
         networkBufferPool = new NetworkBufferPool(NUMBER_OF_BUFFER_RESPONSES, BUFFER_SIZE);
         channel = new EmbeddedChannel(new NettyMessageClientDecoderDelegate(handler));
 
         inputGate = createSingleInputGate(1, networkBufferPool);
-        RemoteInputChannel inputChannel =
+        inputChannel =
                 createRemoteInputChannel(
                         inputGate, new TestingPartitionRequestClient(), NUMBER_OF_BUFFER_RESPONSES);
         inputGate.setInputChannels(inputChannel);
@@ -146,6 +155,71 @@ public class NettyMessageClientDecoderDelegateTest extends TestLogger {
         testNettyMessageClientDecoding(false, false, true);
     }
 
+    /**
+     * Verifies that the client side decoder decompresses compressed data buffers into the buffers
+     * of the input channels if it has a decompressor.
+     */
+    @Test
+    public void testClientMessageDecodeWithCompressedBuffers() throws Exception {
+        channel.close();
+        channel =
+                new EmbeddedChannel(
+                        new NettyMessageClientDecoderDelegate(
+                                handler, new BufferDecompressor(BUFFER_SIZE, "LZ4")));
+
+        testCompressedBufferDecoding();
+    }
+
+    /**
+     * Verifies that the client decompresses the buffers of producers which compress their pipelined
+     * partitions, even if the pipelined shuffle compression is disabled for the consumer.
+     */
+    @Test
+    public void testClientDecompressesWithoutLocalPipelinedShuffleCompression() throws Exception {
+        ChannelHandler[] handlers =
+                new NettyProtocol(null, null, "LZ4", BUFFER_SIZE, false).getClientChannelHandlers();
+        ((NetworkClientHandler) handlers[2]).addInputChannel(inputChannel);
+        channel.close();
+        channel = new EmbeddedChannel(handlers[1]);
+
+        testCompressedBufferDecoding();
+    }
+
+    private void testCompressedBufferDecoding() throws Exception {
+        Buffer expectedBuffer = createCompressibleDataBuffer();
+        Buffer compressedBuffer =
+                new AdaptiveBufferCompressor(new BufferCompressor(BUFFER_SIZE, "LZ4"))
+                        .compressIfBeneficial(createCompressibleDataBuffer());
+        assertTrue(compressedBuffer.isCompressed());
+
+        ByteBuf[] encodedMessages = null;
+        List<NettyMessage> decodedMessages = null;
+        try {
+            encodedMessages =
+                    encodeMessages(
+                            Collections.singletonList(
+                                    new BufferResponse(compressedBuffer, 1, inputChannelId, 1)));
+            decodedMessages =
+                    decodeMessages(channel, partitionBuffer(encodedMessages[0], BUFFER_SIZE / 8));
+
+            assertEquals(1, decodedMessages.size());
+            BufferResponse decodedMessage = (BufferResponse) decodedMessages.get(0);
+            assertFalse(decodedMessage.isCompressed);
+            assertEquals(BUFFER_SIZE, decodedMessage.bufferSize);
+            assertFalse(decodedMessage.getBuffer().isCompressed());
+            assertEquals(expectedBuffer, decodedMessage.getBuffer());
+        } finally {
+            expectedBuffer.recycleBuffer();
+            releaseBuffers(encodedMessages);
+
+            if (decodedMessages != null) {
+                for (NettyMessage nettyMessage : decodedMessages) {
+                    ((BufferResponse) nettyMessage).releaseBuffer();
+                }
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------------------------------------------------
 
     private void testNettyMessageClientDecoding(
@@ -247,6 +321,16 @@ public class NettyMessageClientDecoderDelegateTest extends TestLogger {
         return buffer;
     }
 
+    private Buffer createCompressibleDataBuffer() {
+        MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE);
+        NetworkBuffer buffer = new NetworkBuffer(segment, FreeingBufferRecycler.INSTANCE);
+        for (int i = 0; i < BUFFER_SIZE / 4; ++i) {
+            buffer.writeInt(i % 8);
+        }
+
+        return buffer;
+    }
+
     private ByteBuf[] encodeMessages(List<BufferResponse> messages) throws Exception {
         ByteBuf[] encodedMessages = new ByteBuf[messages.size()];
         for (int i = 0; i < messages.size(); ++i) {
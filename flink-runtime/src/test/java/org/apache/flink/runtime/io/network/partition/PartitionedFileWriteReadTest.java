@@ -170,6 +170,62 @@ public class PartitionedFileWriteReadTest {
         IOUtils.closeAllQuietly(dataFileChannel, indexFileChannel);
     }
 
+    @Test
+    public void testReadFinishedRegionsWhileWriting() throws Exception {
+        int numRegions = 30;
+        int numSubpartitions = 5;
+        int bufferSize = 1024;
+        Random random = new Random(1111);
+
+        Queue<Buffer>[] subpartitionBuffers = new ArrayDeque[numSubpartitions];
+        for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+            subpartitionBuffers[subpartition] = new ArrayDeque<>();
+        }
+
+        PartitionedFileWriter fileWriter = createPartitionedFileWriter(numSubpartitions);
+        PartitionedFile partitionedFile = fileWriter.getFinishedRegions();
+        assertEquals(0, partitionedFile.getNumRegions());
+
+        FileChannel dataFileChannel = openFileChannel(partitionedFile.getDataFilePath());
+        FileChannel indexFileChannel = openFileChannel(partitionedFile.getIndexFilePath());
+        PartitionedFileReader[] fileReaders = new PartitionedFileReader[numSubpartitions];
+        for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+            fileReaders[subpartition] =
+                    new PartitionedFileReader(
+                            partitionedFile, subpartition, dataFileChannel, indexFileChannel);
+        }
+
+        // the index entries of all regions exceed the index buffer, so both the persisted and the
+        // flushed index entries are read
+        for (int region = 0; region < numRegions; ++region) {
+            fileWriter.startNewRegion(false);
+            for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+                Buffer buffer = createBuffer(random, bufferSize);
+                subpartitionBuffers[subpartition].add(buffer);
+                fileWriter.writeBuffers(getBufferWithChannels(buffer, subpartition));
+            }
+
+            partitionedFile =
+                    region < numRegions - 1 ? fileWriter.getFinishedRegions() : fileWriter.finish();
+            assertEquals(region + 1, partitionedFile.getNumRegions());
+
+            for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+                PartitionedFileReader fileReader = fileReaders[subpartition];
+                fileReader.updatePartitionedFile(partitionedFile);
+                while (fileReader.hasRemaining()) {
+                    MemorySegment readBuffer =
+                            MemorySegmentFactory.allocateUnpooledSegment(bufferSize);
+                    Buffer buffer =
+                            checkNotNull(fileReader.readCurrentRegion(readBuffer, (buf) -> {}));
+                    assertBufferEquals(
+                            checkNotNull(subpartitionBuffers[subpartition].poll()), buffer);
+                }
+                assertTrue(subpartitionBuffers[subpartition].isEmpty());
+            }
+        }
+        IOUtils.closeAllQuietly(dataFileChannel, indexFileChannel);
+    }
+
     private void assertBufferEquals(Buffer expected, Buffer actual) {
         assertEquals(expected.getDataType(), actual.getDataType());
         assertEquals(expected.getNioBufferReadable(), actual.getNioBufferReadable());
@@ -82,6 +82,12 @@ public class ResultPartitionFactoryTest extends TestLogger {
         assertTrue(resultPartition instanceof SortMergeResultPartition);
     }
 
+    @Test
+    public void testSortMergePartitionCreatedForHybridPartition() {
+        ResultPartition resultPartition = createResultPartition(ResultPartitionType.HYBRID);
+        assertTrue(resultPartition instanceof SortMergeResultPartition);
+    }
+
     @Test
     public void testNoReleaseOnConsumptionForBoundedBlockingPartition() {
         final ResultPartition resultPartition = createResultPartition(ResultPartitionType.BLOCKING);
@@ -607,6 +607,53 @@ public class ResultPartitionTest {
         }
     }
 
+    @Test
+    public void testEmitRecordsWithRecordSpanningMultipleBuffers() throws Exception {
+        BufferWritingResultPartition bufferWritingResultPartition =
+                createResultPartition(ResultPartitionType.PIPELINED);
+        PipelinedSubpartition pipelinedSubpartition =
+                (PipelinedSubpartition) bufferWritingResultPartition.subpartitions[0];
+        int partialLength = bufferSize / 3;
+
+        // three length prefixed records of length partialLength, bufferSize and 8 bytes
+        ByteBuffer records = ByteBuffer.allocate(partialLength + bufferSize + 8);
+        records.putInt(0, partialLength - 4);
+        records.putInt(partialLength, bufferSize - 4);
+        records.putInt(partialLength + bufferSize, 4);
+
+        try {
+            bufferWritingResultPartition.emitRecords(records, 0);
+        } finally {
+            assertFalse(records.hasRemaining());
+            assertEquals(2, pipelinedSubpartition.getCurrentNumberOfBuffers());
+            assertEquals(0, pipelinedSubpartition.getNextBuffer().getPartialRecordLength());
+            // only the rest of the second record is partial, the third one starts in the buffer
+            assertEquals(
+                    partialLength, pipelinedSubpartition.getNextBuffer().getPartialRecordLength());
+        }
+    }
+
+    @Test
+    public void testNewBuffersFitBufferSizeOfSubpartition() throws Exception {
+        BufferWritingResultPartition bufferWritingResultPartition =
+                createResultPartition(ResultPartitionType.PIPELINED);
+        PipelinedSubpartition subpartition0 =
+                (PipelinedSubpartition) bufferWritingResultPartition.subpartitions[0];
+        PipelinedSubpartition subpartition1 =
+                (PipelinedSubpartition) bufferWritingResultPartition.subpartitions[1];
+        subpartition0.bufferSize(bufferSize / 4);
+
+        bufferWritingResultPartition.emitRecord(ByteBuffer.allocate(bufferSize / 2), 0);
+        bufferWritingResultPartition.emitRecord(ByteBuffer.allocate(bufferSize / 2), 1);
+        assertEquals(2, subpartition0.getCurrentNumberOfBuffers());
+        assertEquals(1, subpartition1.getCurrentNumberOfBuffers());
+
+        // the broadcast buffers fit the smallest buffer size of all subpartitions
+        bufferWritingResultPartition.broadcastRecord(ByteBuffer.allocate(bufferSize / 2));
+        assertEquals(4, subpartition0.getCurrentNumberOfBuffers());
+        assertEquals(3, subpartition1.getCurrentNumberOfBuffers());
+    }
+
     @Test
     public void testBroadcastRecordWithRecordSpanningMultipleBuffers() throws Exception {
         BufferWritingResultPartition bufferWritingResultPartition =
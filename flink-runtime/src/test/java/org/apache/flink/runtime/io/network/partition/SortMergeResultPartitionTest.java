@@ -410,6 +410,50 @@ public class SortMergeResultPartitionTest extends TestLogger {
         }
     }
 
+    @Test
+    public void testReadUnfinishedHybridPartition() throws Exception {
+        BufferPool bufferPool = globalPool.createBufferPool(10, 10);
+        SortMergeResultPartition partition =
+                createSortMergedPartition(
+                        2, bufferPool, readBufferPool, ResultPartitionType.HYBRID);
+        ResultSubpartitionView view = partition.createSubpartitionView(0, listener);
+
+        partition.emitRecord(ByteBuffer.allocate(bufferSize), 0);
+        partition.emitRecord(ByteBuffer.allocate(bufferSize), 1);
+        partition.flushAll();
+
+        // the spilled data can be read before the partition is finished
+        Buffer buffer = readNextBuffer(view);
+        assertTrue(buffer.isBuffer());
+        int numBytesRead = buffer.readableBytes();
+        buffer.recycleBuffer();
+
+        partition.emitRecord(ByteBuffer.allocate(bufferSize), 0);
+        partition.finish();
+
+        while ((buffer = readNextBuffer(view)).isBuffer()) {
+            numBytesRead += buffer.readableBytes();
+            buffer.recycleBuffer();
+        }
+        assertEquals(
+                EndOfPartitionEvent.INSTANCE,
+                EventSerializer.fromBuffer(buffer, getClass().getClassLoader()));
+        buffer.recycleBuffer();
+        assertEquals(2 * bufferSize, numBytesRead);
+
+        view.releaseAllResources();
+        partition.close();
+        partition.release();
+    }
+
+    private Buffer readNextBuffer(ResultSubpartitionView view) throws Exception {
+        ResultSubpartition.BufferAndBacklog bufferAndBacklog;
+        while ((bufferAndBacklog = view.getNextBuffer()) == null) {
+            listener.waitForData();
+        }
+        return bufferAndBacklog.buffer();
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testReadReleasedPartition() throws Exception {
         BufferPool bufferPool = globalPool.createBufferPool(10, 10);
@@ -431,12 +475,22 @@ public class SortMergeResultPartitionTest extends TestLogger {
     private SortMergeResultPartition createSortMergedPartition(
             int numSubpartitions, BufferPool bufferPool, BatchShuffleReadBufferPool readBufferPool)
             throws IOException {
+        return createSortMergedPartition(
+                numSubpartitions, bufferPool, readBufferPool, ResultPartitionType.BLOCKING);
+    }
+
+    private SortMergeResultPartition createSortMergedPartition(
+            int numSubpartitions,
+            BufferPool bufferPool,
+            BatchShuffleReadBufferPool readBufferPool,
+            ResultPartitionType partitionType)
+            throws IOException {
         SortMergeResultPartition sortMergedResultPartition =
                 new SortMergeResultPartition(
                         "SortMergedResultPartitionTest",
                         0,
                         new ResultPartitionID(),
-                        ResultPartitionType.BLOCKING,
+                        partitionType,
                         numSubpartitions,
                         numSubpartitions,
                         readBufferPool,
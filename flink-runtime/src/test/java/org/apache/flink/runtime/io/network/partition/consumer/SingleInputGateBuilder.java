@@ -28,6 +28,9 @@ import org.apache.flink.runtime.io.network.partition.PartitionProducerStateProvi
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
+import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import javax.annotation.Nullable;
@@ -63,6 +66,11 @@ public class SingleInputGateBuilder {
 
     private ChannelStateWriter channelStateWriter = ChannelStateWriter.NO_OP;
 
+    private ThroughputCalculator throughputCalculator =
+            new ThroughputCalculator(SystemClock.getInstance());
+
+    @Nullable private BufferDebloater bufferDebloater = null;
+
     @Nullable
     private BiFunction<InputChannelBuilder, SingleInputGate, InputChannel> channelFactory = null;
 
@@ -117,6 +125,17 @@ public class SingleInputGateBuilder {
         return this;
     }
 
+    public SingleInputGateBuilder setThroughputCalculator(
+            ThroughputCalculator throughputCalculator) {
+        this.throughputCalculator = throughputCalculator;
+        return this;
+    }
+
+    public SingleInputGateBuilder setBufferDebloater(BufferDebloater bufferDebloater) {
+        this.bufferDebloater = bufferDebloater;
+        return this;
+    }
+
     public SingleInputGateBuilder setSegmentProvider(MemorySegmentProvider segmentProvider) {
         this.segmentProvider = segmentProvider;
         return this;
@@ -147,7 +166,9 @@ public class SingleInputGateBuilder {
                         bufferPoolFactory,
                         bufferDecompressor,
                         segmentProvider,
-                        bufferSize);
+                        bufferSize,
+                        throughputCalculator,
+                        bufferDebloater);
         if (channelFactory != null) {
             gate.setInputChannels(
                     IntStream.range(0, numberOfChannels)
@@ -59,6 +59,10 @@ import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.UnknownShuffleDescriptor;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
+import org.apache.flink.util.clock.ManualClock;
 
 import org.apache.flink.shaded.guava18.com.google.common.io.Closer;
 
@@ -67,6 +71,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -242,6 +247,52 @@ public class SingleInputGateTest extends InputGateTestBase {
         }
     }
 
+    /**
+     * Tests that the buffer size calculated from the throughput and the buffers in use is announced
+     * to all channels.
+     */
+    @Test
+    public void testAnnounceBufferSizeOnDebloating() throws Exception {
+        ManualClock clock = new ManualClock();
+        final SingleInputGate inputGate =
+                new SingleInputGateBuilder()
+                        .setNumberOfChannels(2)
+                        .setThroughputCalculator(new ThroughputCalculator(clock))
+                        .setBufferDebloater(new BufferDebloater(createDebloatConfiguration()))
+                        .build();
+        final TestInputChannel[] inputChannels =
+                new TestInputChannel[] {
+                    new TestInputChannel(inputGate, 0), new TestInputChannel(inputGate, 1)
+                };
+        inputGate.setInputChannels(inputChannels);
+
+        inputChannels[0].read(createBuffer(4096, 2000), Buffer.DataType.NONE);
+        inputChannels[1].read(createBuffer(4096, 2000), Buffer.DataType.NONE);
+        inputGate.notifyChannelNonEmpty(inputChannels[0]);
+        inputGate.notifyChannelNonEmpty(inputChannels[1]);
+
+        // 4000 bytes are consumed within one second
+        assertTrue(inputGate.pollNext().isPresent());
+        clock.advanceTime(Duration.ofSeconds(1));
+        assertTrue(inputGate.pollNext().isPresent());
+
+        // the data of one second is spread over 4 buffers in use
+        for (TestInputChannel inputChannel : inputChannels) {
+            inputChannel.readBuffer();
+            inputChannel.readBuffer();
+        }
+        inputGate.triggerDebloating();
+
+        for (TestInputChannel inputChannel : inputChannels) {
+            assertEquals(1000, inputChannel.getAnnouncedBufferSize());
+        }
+    }
+
+    private static BufferDebloatConfiguration createDebloatConfiguration() {
+        return new BufferDebloatConfiguration(
+                true, Duration.ofSeconds(1), Duration.ofMillis(200), 1, 25, 64, 4096);
+    }
+
     /**
      * Tests that the compressed buffer will be decompressed after calling {@link
      * SingleInputGate#getNext()}.
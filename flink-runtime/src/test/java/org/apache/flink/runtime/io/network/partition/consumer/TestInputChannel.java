@@ -60,6 +60,8 @@ public class TestInputChannel extends InputChannel {
 
     private int sequenceNumber;
 
+    private int announcedBufferSize;
+
     public TestInputChannel(SingleInputGate inputGate, int channelIndex) {
         this(inputGate, channelIndex, true, false);
     }
@@ -196,6 +198,20 @@ public class TestInputChannel extends InputChannel {
         throw new UnsupportedEncodingException();
     }
 
+    @Override
+    public void announceBufferSize(int newBufferSize) {
+        announcedBufferSize = newBufferSize;
+    }
+
+    @Override
+    public int getBuffersInUseCount() {
+        return buffers.size();
+    }
+
+    public int getAnnouncedBufferSize() {
+        return announcedBufferSize;
+    }
+
     @Override
     protected void notifyChannelNonEmpty() {
         inputGate.notifyChannelNonEmpty(this);
@@ -210,6 +210,40 @@ public class PipelinedRegionSchedulingStrategyTest extends TestLogger {
         assertLatestScheduledVerticesAreEqualTo(expectedScheduledVertices);
     }
 
+    @Test
+    public void testSchedulingConsumersOfRunningHybridResultPartitionProducers() {
+        final TestingSchedulingTopology topology = new TestingSchedulingTopology();
+
+        final List<TestingSchedulingExecutionVertex> producer =
+                topology.addExecutionVertices().withParallelism(2).finish();
+        final List<TestingSchedulingExecutionVertex> consumer =
+                topology.addExecutionVertices().withParallelism(2).finish();
+
+        topology.connectAllToAll(producer, consumer)
+                .withResultPartitionState(ResultPartitionState.CREATED)
+                .withResultPartitionType(ResultPartitionType.HYBRID)
+                .finish();
+
+        final PipelinedRegionSchedulingStrategy schedulingStrategy = startScheduling(topology);
+
+        producer.get(0).setState(ExecutionState.RUNNING);
+        schedulingStrategy.onExecutionStateChange(producer.get(0).getId(), ExecutionState.RUNNING);
+
+        // the consumers are not scheduled before all producers are running
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(2));
+
+        producer.get(1).setState(ExecutionState.RUNNING);
+        schedulingStrategy.onExecutionStateChange(producer.get(1).getId(), ExecutionState.RUNNING);
+
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(4));
+
+        final List<List<TestingSchedulingExecutionVertex>> expectedScheduledVertices =
+                new ArrayList<>();
+        expectedScheduledVertices.add(Collections.singletonList(consumer.get(0)));
+        expectedScheduledVertices.add(Collections.singletonList(consumer.get(1)));
+        assertLatestScheduledVerticesAreEqualTo(expectedScheduledVertices);
+    }
+
     @Test
     public void testComputingCrossRegionConsumedPartitionGroupsCorrectly() throws Exception {
         final JobVertex v1 = createJobVertex("v1", 4);
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.TestingStreamStateHandle;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle.ChangelogStateBackendHandleImpl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the registration of {@link ChangelogStateBackendHandleImpl} materialized state. */
+public class ChangelogStateBackendHandleTest {
+
+    private static final KeyGroupRange KEY_GROUP_RANGE = KeyGroupRange.of(0, 3);
+
+    @Test
+    public void testMaterializedStateIsDiscardedWithTheLastCheckpoint() throws Exception {
+        TestingStreamStateHandle stream = new TestingStreamStateHandle();
+        KeyedStateHandle materialized =
+                new KeyGroupsStateHandle(new KeyGroupRangeOffsets(KEY_GROUP_RANGE), stream);
+
+        SharedStateRegistry registry = new SharedStateRegistry();
+        ChangelogStateBackendHandle first = checkpoint(materialized);
+        ChangelogStateBackendHandle second = checkpoint(materialized);
+        registry.registerAll(Arrays.asList(first, second));
+
+        first.discardState();
+        assertFalse(stream.isDisposed());
+
+        second.discardState();
+        assertTrue(stream.isDisposed());
+    }
+
+    @Test
+    public void testIncrementalMaterializedStateIsDiscardedFileByFile() throws Exception {
+        UUID backendId = UUID.randomUUID();
+        StateHandleID reusedFileId = new StateHandleID("reused.sst");
+        TestingStreamStateHandle reusedFile = new TestingStreamStateHandle();
+        TestingStreamStateHandle privateFile = new TestingStreamStateHandle();
+        TestingStreamStateHandle meta = new TestingStreamStateHandle();
+        Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+        sharedState.put(reusedFileId, reusedFile);
+        KeyedStateHandle materialized =
+                new IncrementalRemoteKeyedStateHandle(
+                        backendId,
+                        KEY_GROUP_RANGE,
+                        1L,
+                        sharedState,
+                        Collections.singletonMap(new StateHandleID("OPTIONS"), privateFile),
+                        meta);
+
+        // the next materialization re-uses a file of the previous one
+        TestingStreamStateHandle newFile = new TestingStreamStateHandle();
+        TestingStreamStateHandle newMeta = new TestingStreamStateHandle();
+        Map<StateHandleID, StreamStateHandle> nextSharedState = new HashMap<>();
+        nextSharedState.put(reusedFileId, new PlaceholderStreamStateHandle());
+        nextSharedState.put(new StateHandleID("new.sst"), newFile);
+        IncrementalRemoteKeyedStateHandle nextMaterialized =
+                new IncrementalRemoteKeyedStateHandle(
+                        backendId,
+                        KEY_GROUP_RANGE,
+                        5L,
+                        nextSharedState,
+                        Collections.emptyMap(),
+                        newMeta);
+
+        SharedStateRegistry registry = new SharedStateRegistry();
+        ChangelogStateBackendHandle first = checkpoint(materialized);
+        ChangelogStateBackendHandle second = checkpoint(materialized);
+        ChangelogStateBackendHandle third = checkpoint(nextMaterialized);
+        registry.registerAll(Arrays.asList(first, second, third));
+        assertSame(reusedFile, nextMaterialized.getSharedState().get(reusedFileId));
+
+        first.discardState();
+        assertFalse(meta.isDisposed());
+        assertFalse(privateFile.isDisposed());
+
+        second.discardState();
+        assertTrue(meta.isDisposed());
+        assertTrue(privateFile.isDisposed());
+        assertFalse(reusedFile.isDisposed());
+
+        third.discardState();
+        assertTrue(reusedFile.isDisposed());
+        assertTrue(newFile.isDisposed());
+        assertTrue(newMeta.isDisposed());
+    }
+
+    @Test
+    public void testUnregisteredHandleKeepsMaterializedState() throws Exception {
+        TestingStreamStateHandle stream = new TestingStreamStateHandle();
+        KeyedStateHandle materialized =
+                new KeyGroupsStateHandle(new KeyGroupRangeOffsets(KEY_GROUP_RANGE), stream);
+
+        // e.g. an aborted checkpoint, which was never registered
+        ChangelogStateBackendHandle aborted = checkpoint(materialized);
+        aborted.discardState();
+        // the backend discards it if no other checkpoint uses it
+        assertFalse(stream.isDisposed());
+
+        SharedStateRegistry registry = new SharedStateRegistry();
+        ChangelogStateBackendHandle completed = checkpoint(materialized);
+        registry.registerAll(Collections.singletonList(completed));
+        completed.discardState();
+        assertTrue(stream.isDisposed());
+    }
+
+    private static ChangelogStateBackendHandle checkpoint(KeyedStateHandle materialized) {
+        return new ChangelogStateBackendHandleImpl(
+                Collections.singletonList(materialized), Collections.emptyList(), KEY_GROUP_RANGE);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.core.testutils.ManuallyTriggeredScheduledExecutorService;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.fs.StateChangeUploader.UploadTask;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** {@link BatchingStateChangeUploader} test. */
+public class BatchingStateChangeUploaderTest {
+
+    private static final long PERSIST_DELAY_MS = 10L;
+
+    private static final long SIZE_THRESHOLD_BYTES = 100L;
+
+    private final ManuallyTriggeredScheduledExecutorService scheduler =
+            new ManuallyTriggeredScheduledExecutorService();
+
+    @Test
+    public void testUploadsAreBatchedUntilTheDelayPassed() throws Exception {
+        TestingUploader delegate = new TestingUploader(0);
+        try (BatchingStateChangeUploader uploader = createUploader(delegate, 3)) {
+            UploadTask first = task(10);
+            UploadTask second = task(10);
+            uploader.upload(Collections.singletonList(first));
+            uploader.upload(Collections.singletonList(second));
+            assertTrue(delegate.uploaded.isEmpty());
+
+            scheduler.triggerNonPeriodicScheduledTasks();
+
+            assertEquals(1, delegate.uploaded.size());
+            assertEquals(2, delegate.uploaded.get(0).size());
+            assertTrue(first.getResult().isDone());
+            assertTrue(second.getResult().isDone());
+        }
+    }
+
+    @Test
+    public void testUploadsExceedingTheSizeThresholdAreNotDelayed() throws Exception {
+        TestingUploader delegate = new TestingUploader(0);
+        try (BatchingStateChangeUploader uploader = createUploader(delegate, 3)) {
+            uploader.upload(Collections.singletonList(task(10)));
+            uploader.upload(Collections.singletonList(task(SIZE_THRESHOLD_BYTES)));
+
+            scheduler.triggerAll();
+
+            assertEquals(1, delegate.uploaded.size());
+            assertEquals(2, delegate.uploaded.get(0).size());
+        }
+    }
+
+    @Test
+    public void testFailedUploadsAreRetried() throws Exception {
+        TestingUploader delegate = new TestingUploader(2);
+        try (BatchingStateChangeUploader uploader = createUploader(delegate, 3)) {
+            UploadTask task = task(10);
+            uploader.upload(Collections.singletonList(task));
+
+            scheduler.triggerNonPeriodicScheduledTask();
+            assertFalse(task.getResult().isDone());
+            scheduler.triggerNonPeriodicScheduledTask();
+            assertFalse(task.getResult().isDone());
+            scheduler.triggerNonPeriodicScheduledTask();
+
+            assertEquals(1, delegate.uploaded.size());
+            assertEquals(3, delegate.attempts);
+            assertFalse(task.getResult().isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testUploadFailsAfterTheMaximumNumberOfAttempts() throws Exception {
+        TestingUploader delegate = new TestingUploader(2);
+        try (BatchingStateChangeUploader uploader = createUploader(delegate, 2)) {
+            UploadTask task = task(10);
+            uploader.upload(Collections.singletonList(task));
+
+            scheduler.triggerNonPeriodicScheduledTask();
+            scheduler.triggerNonPeriodicScheduledTask();
+
+            assertTrue(delegate.uploaded.isEmpty());
+            assertEquals(2, delegate.attempts);
+            assertTrue(task.getResult().isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void testPendingUploadsFailOnClose() throws Exception {
+        TestingUploader delegate = new TestingUploader(0);
+        BatchingStateChangeUploader uploader = createUploader(delegate, 3);
+        UploadTask task = task(10);
+        uploader.upload(Collections.singletonList(task));
+
+        uploader.close();
+
+        assertTrue(task.getResult().isCompletedExceptionally());
+        assertTrue(delegate.closed);
+    }
+
+    @Test
+    public void testRetriedUploadsFailOnClose() throws Exception {
+        TestingUploader delegate = new TestingUploader(1);
+        BatchingStateChangeUploader uploader = createUploader(delegate, 3);
+        UploadTask task = task(10);
+        uploader.upload(Collections.singletonList(task));
+        scheduler.triggerNonPeriodicScheduledTask();
+        assertFalse(task.getResult().isDone());
+
+        uploader.close();
+
+        assertTrue(task.getResult().isCompletedExceptionally());
+        assertEquals(1, delegate.attempts);
+        assertTrue(delegate.closed);
+    }
+
+    private BatchingStateChangeUploader createUploader(StateChangeUploader delegate, int attempts) {
+        return new BatchingStateChangeUploader(
+                delegate, scheduler, PERSIST_DELAY_MS, SIZE_THRESHOLD_BYTES, attempts, 1L);
+    }
+
+    private static UploadTask task(long size) {
+        StateChange change = new StateChange(0, new byte[(int) size]);
+        return new UploadTask(
+                Collections.singletonList(
+                        new StateChangeSet(
+                                SequenceNumber.of(0L), Collections.singletonList(change), size)));
+    }
+
+    /** Completes the uploaded tasks after failing the given number of attempts. */
+    private static final class TestingUploader implements StateChangeUploader {
+
+        private final List<Collection<UploadTask>> uploaded = new ArrayList<>();
+
+        private int failures;
+
+        private int attempts;
+
+        private boolean closed;
+
+        private TestingUploader(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void upload(Collection<UploadTask> tasks) throws IOException {
+            attempts++;
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Test upload failure");
+            }
+            uploaded.add(tasks);
+            for (UploadTask task : tasks) {
+                List<UploadResult> results = new ArrayList<>();
+                for (StateChangeSet changeSet : task.getChangeSets()) {
+                    results.add(
+                            new UploadResult(
+                                    new ByteStreamStateHandle("test", new byte[0]),
+                                    0L,
+                                    changeSet.getSize()));
+                }
+                task.complete(results);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
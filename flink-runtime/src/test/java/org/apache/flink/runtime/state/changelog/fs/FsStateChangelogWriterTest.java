@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.fs.StateChangeUploader.UploadTask;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** {@link FsStateChangelogWriter} test. */
+public class FsStateChangelogWriterTest {
+
+    private final List<UploadTask> uploads = new ArrayList<>();
+
+    @Test
+    public void testChangesAreUploadedPreEmptively() throws Exception {
+        FsStateChangelogWriter writer = createWriter(10);
+        writer.append(0, new byte[5]);
+        assertTrue(uploads.isEmpty());
+
+        writer.append(0, new byte[5]);
+        assertEquals(1, uploads.size());
+
+        // the pre-emptively uploaded changes are not uploaded again
+        CompletableFuture<ChangelogStateHandleStreamImpl> persisted =
+                writer.persist(writer.initialSequenceNumber());
+        assertEquals(1, uploads.size());
+        completeUploads();
+        assertEquals(10, persisted.get().getStateSize());
+    }
+
+    @Test
+    public void testTruncatedChangesAreNotPersisted() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(0, new byte[5]);
+        writer.persist(writer.initialSequenceNumber());
+        writer.append(0, new byte[7]);
+
+        writer.truncate(writer.lastAppendedSequenceNumber());
+        CompletableFuture<ChangelogStateHandleStreamImpl> persisted =
+                writer.persist(writer.initialSequenceNumber());
+        completeUploads();
+
+        assertEquals(7, persisted.get().getStateSize());
+    }
+
+    @Test
+    public void testFailedUploadsAreRetriedByTheNextPersist() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(0, new byte[5]);
+        CompletableFuture<ChangelogStateHandleStreamImpl> failed =
+                writer.persist(writer.initialSequenceNumber());
+        uploads.remove(0).fail(new Exception("Test upload failure"));
+        assertTrue(failed.isCompletedExceptionally());
+
+        writer.append(0, new byte[7]);
+        CompletableFuture<ChangelogStateHandleStreamImpl> persisted =
+                writer.persist(writer.initialSequenceNumber());
+        assertEquals(1, uploads.size());
+        assertEquals(2, uploads.get(0).getChangeSets().size());
+        completeUploads();
+
+        assertFalse(persisted.isCompletedExceptionally());
+        assertEquals(12, persisted.get().getStateSize());
+    }
+
+    private FsStateChangelogWriter createWriter(long preEmptivePersistThresholdInBytes) {
+        return new FsStateChangelogWriter(
+                UUID.randomUUID(),
+                KeyGroupRange.of(0, 0),
+                new StateChangeUploader() {
+                    @Override
+                    public void upload(Collection<UploadTask> tasks) {
+                        uploads.addAll(tasks);
+                    }
+
+                    @Override
+                    public void close() {}
+                },
+                preEmptivePersistThresholdInBytes);
+    }
+
+    private void completeUploads() {
+        for (UploadTask task : uploads) {
+            List<UploadResult> results = new ArrayList<>();
+            for (StateChangeSet changeSet : task.getChangeSets()) {
+                results.add(
+                        new UploadResult(
+                                new ByteStreamStateHandle("test", new byte[0]),
+                                0L,
+                                changeSet.getSize()));
+            }
+            task.complete(results);
+        }
+        uploads.clear();
+    }
+}
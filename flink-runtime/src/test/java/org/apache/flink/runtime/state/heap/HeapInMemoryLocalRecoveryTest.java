@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.LocalRecoveryDirectoryProviderImpl;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.concurrent.FutureUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+
+/** Tests for restoring a {@link HeapKeyedStateBackend} from a snapshot retained in memory. */
+public class HeapInMemoryLocalRecoveryTest {
+
+    private static final KeyGroupRange KEY_GROUP_RANGE = new KeyGroupRange(0, 15);
+
+    private static final ValueStateDescriptor<Integer> VALUE_STATE =
+            new ValueStateDescriptor<>("value", IntSerializer.INSTANCE);
+
+    private static final ListStateDescriptor<Integer> LIST_STATE =
+            new ListStateDescriptor<>("list", IntSerializer.INSTANCE);
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LocalRecoveryDirectoryProviderImpl directoryProvider;
+
+    @Before
+    public void setup() throws Exception {
+        directoryProvider =
+                new LocalRecoveryDirectoryProviderImpl(
+                        temporaryFolder.newFolder(), new JobID(), new JobVertexID(), 0);
+    }
+
+    @Test
+    public void testRestoreFromInMemorySnapshot() throws Exception {
+        KeyedStateHandle localState;
+        HeapKeyedStateBackend<String> backend = createBackend(true, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            update(backend, "b", 2, 2);
+            localState = snapshot(backend).getTaskLocalSnapshot();
+            assertTrue(localState instanceof InMemoryKeyGroupsStateHandle);
+
+            // modifications after the snapshot must not be visible in the retained snapshot
+            update(backend, "a", 10, 10);
+            update(backend, "c", 3, 3);
+        } finally {
+            backend.dispose();
+        }
+
+        backend = createBackend(true, Collections.singletonList(localState));
+        try {
+            assertState(backend, "a", 1, 1);
+            assertState(backend, "b", 2, 2);
+            assertState(backend, "c", null);
+            assertNull(
+                    ((InMemoryKeyGroupsStateHandle) localState)
+                            .takeSnapshot(getClass().getClassLoader()));
+
+            // the restored backend owns the state objects of the snapshot
+            update(backend, "a", 20, 20);
+        } finally {
+            backend.dispose();
+        }
+
+        // the snapshot can be taken over only once, later restores read the local state stream
+        backend = createBackend(true, Collections.singletonList(localState));
+        try {
+            assertState(backend, "a", 1, 1);
+            assertState(backend, "b", 2, 2);
+        } finally {
+            backend.dispose();
+            localState.discardState();
+        }
+    }
+
+    @Test
+    public void testDiscardReleasesInMemorySnapshot() throws Exception {
+        HeapKeyedStateBackend<String> backend = createBackend(true, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            SnapshotResult<KeyedStateHandle> result = snapshot(backend);
+            InMemoryKeyGroupsStateHandle localState =
+                    (InMemoryKeyGroupsStateHandle) result.getTaskLocalSnapshot();
+
+            result.discardState();
+
+            assertNull(localState.takeSnapshot(getClass().getClassLoader()));
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testSnapshotIsNotTakenOverWithOtherClassLoader() throws Exception {
+        HeapKeyedStateBackend<String> backend = createBackend(true, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            InMemoryKeyGroupsStateHandle localState =
+                    (InMemoryKeyGroupsStateHandle) snapshot(backend).getTaskLocalSnapshot();
+
+            assertNull(localState.takeSnapshot(new ClassLoader() {}));
+            assertNotNull(localState.takeSnapshot(getClass().getClassLoader()));
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testSnapshotIsNotRetainedByDefault() throws Exception {
+        HeapKeyedStateBackend<String> backend = createBackend(false, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            KeyedStateHandle localState = snapshot(backend).getTaskLocalSnapshot();
+
+            assertTrue(localState instanceof KeyGroupsStateHandle);
+            assertFalse(localState instanceof InMemoryKeyGroupsStateHandle);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    private HeapKeyedStateBackend<String> createBackend(
+            boolean keepHeapStateInMemory, Collection<KeyedStateHandle> stateHandles)
+            throws Exception {
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        int numKeyGroups = KEY_GROUP_RANGE.getNumberOfKeyGroups();
+        return new HeapKeyedStateBackendBuilder<>(
+                        mock(TaskKvStateRegistry.class),
+                        StringSerializer.INSTANCE,
+                        getClass().getClassLoader(),
+                        numKeyGroups,
+                        KEY_GROUP_RANGE,
+                        executionConfig,
+                        TtlTimeProvider.DEFAULT,
+                        LatencyTrackingStateConfig.disabled(),
+                        stateHandles,
+                        AbstractStateBackend.getCompressionDecorator(executionConfig),
+                        new LocalRecoveryConfig(true, directoryProvider, keepHeapStateInMemory),
+                        new HeapPriorityQueueSetFactory(KEY_GROUP_RANGE, numKeyGroups, 128),
+                        true,
+                        new CloseableRegistry())
+                .build();
+    }
+
+    private static SnapshotResult<KeyedStateHandle> snapshot(HeapKeyedStateBackend<String> backend)
+            throws Exception {
+        return FutureUtils.runIfNotDoneAndGet(
+                backend.snapshot(
+                        1L,
+                        0L,
+                        new MemCheckpointStreamFactory(4 * 1024 * 1024),
+                        CheckpointOptions.forCheckpointWithDefaultLocation()));
+    }
+
+    private static void update(
+            HeapKeyedStateBackend<String> backend, String key, int value, int element)
+            throws Exception {
+        backend.setCurrentKey(key);
+        backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, VALUE_STATE)
+                .update(value);
+        backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, LIST_STATE)
+                .add(element);
+    }
+
+    private static void assertState(
+            HeapKeyedStateBackend<String> backend, String key, Integer value, Integer... elements)
+            throws Exception {
+        backend.setCurrentKey(key);
+        ValueState<Integer> valueState =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, VALUE_STATE);
+        ListState<Integer> listState =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, LIST_STATE);
+        assertEquals(value, valueState.value());
+        if (elements.length == 0) {
+            assertNull(listState.get());
+        } else {
+            assertEquals(Arrays.asList(elements), listState.get());
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.concurrent.FutureUtils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/** Tests for incremental checkpoints of the {@link HeapKeyedStateBackend}. */
+public class HeapIncrementalCheckpointTest {
+
+    private static final KeyGroupRange KEY_GROUP_RANGE = new KeyGroupRange(0, 15);
+
+    private static final ValueStateDescriptor<Integer> VALUE_STATE =
+            new ValueStateDescriptor<>("value", IntSerializer.INSTANCE);
+
+    private static final ListStateDescriptor<Integer> LIST_STATE =
+            new ListStateDescriptor<>("list", IntSerializer.INSTANCE);
+
+    private final SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+    @After
+    public void tearDown() {
+        sharedStateRegistry.close();
+    }
+
+    @Test
+    public void testOnlyChangedKeyGroupsAreWritten() throws Exception {
+        assertNotEquals(keyGroupOf("a"), keyGroupOf("b"));
+
+        IncrementalRemoteKeyedStateHandle checkpoint;
+        long baseFileSize;
+        HeapKeyedStateBackend<String> backend = createBackend(10, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            update(backend, "b", 2, 2);
+            IncrementalRemoteKeyedStateHandle base = checkpoint(backend, 1L);
+            assertEquals(Collections.singleton(fileOf(1L)), base.getSharedState().keySet());
+            baseFileSize = base.getSharedState().get(fileOf(1L)).getStateSize();
+            complete(backend, base);
+
+            update(backend, "a", 10, 10);
+            checkpoint = checkpoint(backend, 2L);
+        } finally {
+            backend.dispose();
+        }
+
+        Map<StateHandleID, StreamStateHandle> sharedState = checkpoint.getSharedState();
+        assertEquals(new HashSet<>(Arrays.asList(fileOf(1L), fileOf(2L))), sharedState.keySet());
+        assertTrue(sharedState.get(fileOf(1L)) instanceof PlaceholderStreamStateHandle);
+        // the delta file only contains the key group of the changed key
+        assertTrue(sharedState.get(fileOf(2L)).getStateSize() < baseFileSize);
+
+        checkpoint.registerSharedStates(sharedStateRegistry);
+        backend = createBackend(10, Collections.singletonList(checkpoint));
+        try {
+            assertState(backend, "a", 10, 1, 10);
+            assertState(backend, "b", 2, 2);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testUnchangedStateWritesNoDeltaFile() throws Exception {
+        IncrementalRemoteKeyedStateHandle checkpoint;
+        HeapKeyedStateBackend<String> backend = createBackend(10, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            complete(backend, checkpoint(backend, 1L));
+
+            checkpoint = checkpoint(backend, 2L);
+        } finally {
+            backend.dispose();
+        }
+
+        assertEquals(Collections.singleton(fileOf(1L)), checkpoint.getSharedState().keySet());
+
+        checkpoint.registerSharedStates(sharedStateRegistry);
+        backend = createBackend(10, Collections.singletonList(checkpoint));
+        try {
+            assertState(backend, "a", 1, 1);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testUncompletedCheckpointIsNoBase() throws Exception {
+        HeapKeyedStateBackend<String> backend = createBackend(10, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            update(backend, "b", 2, 2);
+            checkpoint(backend, 1L);
+            checkpoint(backend, 2L);
+            backend.notifyCheckpointAborted(2L);
+            update(backend, "a", 10, 10);
+
+            IncrementalRemoteKeyedStateHandle checkpoint = checkpoint(backend, 3L);
+
+            assertEquals(Collections.singleton(fileOf(3L)), checkpoint.getSharedState().keySet());
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testFullBaseIsWrittenAfterMaxDeltaFiles() throws Exception {
+        assertNotEquals(keyGroupOf("a"), keyGroupOf("b"));
+
+        IncrementalRemoteKeyedStateHandle checkpoint;
+        HeapKeyedStateBackend<String> backend = createBackend(1, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            update(backend, "b", 2, 2);
+            complete(backend, checkpoint(backend, 1L));
+
+            update(backend, "a", 10, 10);
+            checkpoint = checkpoint(backend, 2L);
+            assertEquals(
+                    new HashSet<>(Arrays.asList(fileOf(1L), fileOf(2L))),
+                    checkpoint.getSharedState().keySet());
+            complete(backend, checkpoint);
+
+            // the unchanged state is spread over two files, more than the one delta file allowed
+            update(backend, "b", 20, 20);
+            checkpoint = checkpoint(backend, 3L);
+        } finally {
+            backend.dispose();
+        }
+
+        assertEquals(Collections.singleton(fileOf(3L)), checkpoint.getSharedState().keySet());
+
+        checkpoint.registerSharedStates(sharedStateRegistry);
+        backend = createBackend(1, Collections.singletonList(checkpoint));
+        try {
+            assertState(backend, "a", 10, 1, 10);
+            assertState(backend, "b", 20, 2, 20);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testRestoreKeyGroupsOfSmallerRange() throws Exception {
+        IncrementalRemoteKeyedStateHandle checkpoint;
+        HeapKeyedStateBackend<String> backend = createBackend(10, Collections.emptyList());
+        try {
+            for (int i = 0; i < 20; i++) {
+                update(backend, String.valueOf(i), i, i);
+            }
+            checkpoint = checkpoint(backend, 1L);
+        } finally {
+            backend.dispose();
+        }
+
+        KeyGroupRange keyGroupRange = new KeyGroupRange(0, 7);
+        checkpoint.registerSharedStates(sharedStateRegistry);
+        backend =
+                createBackend(
+                        keyGroupRange,
+                        10,
+                        Collections.singletonList(checkpoint.getIntersection(keyGroupRange)));
+        try {
+            for (int i = 0; i < 20; i++) {
+                String key = String.valueOf(i);
+                if (keyGroupRange.contains(keyGroupOf(key))) {
+                    assertState(backend, key, i, i);
+                }
+            }
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testSavepointIsWrittenInFull() throws Exception {
+        HeapKeyedStateBackend<String> backend = createBackend(10, Collections.emptyList());
+        try {
+            update(backend, "a", 1, 1);
+            KeyedStateHandle savepoint =
+                    snapshot(
+                                    backend,
+                                    1L,
+                                    new CheckpointOptions(
+                                            CheckpointType.SAVEPOINT,
+                                            CheckpointStorageLocationReference.getDefault()))
+                            .getJobManagerOwnedSnapshot();
+
+            assertTrue(savepoint instanceof KeyGroupsStateHandle);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    private HeapKeyedStateBackend<String> createBackend(
+            int maxDeltaFiles, Collection<KeyedStateHandle> stateHandles) throws Exception {
+        return createBackend(KEY_GROUP_RANGE, maxDeltaFiles, stateHandles);
+    }
+
+    private HeapKeyedStateBackend<String> createBackend(
+            KeyGroupRange keyGroupRange,
+            int maxDeltaFiles,
+            Collection<KeyedStateHandle> stateHandles)
+            throws Exception {
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        int numKeyGroups = KEY_GROUP_RANGE.getNumberOfKeyGroups();
+        return new HeapKeyedStateBackendBuilder<>(
+                        mock(TaskKvStateRegistry.class),
+                        StringSerializer.INSTANCE,
+                        getClass().getClassLoader(),
+                        numKeyGroups,
+                        keyGroupRange,
+                        executionConfig,
+                        TtlTimeProvider.DEFAULT,
+                        LatencyTrackingStateConfig.disabled(),
+                        stateHandles,
+                        AbstractStateBackend.getCompressionDecorator(executionConfig),
+                        TestLocalRecoveryConfig.disabled(),
+                        new HeapPriorityQueueSetFactory(keyGroupRange, numKeyGroups, 128),
+                        true,
+                        new CloseableRegistry())
+                .setIncrementalCheckpoints(true, maxDeltaFiles)
+                .build();
+    }
+
+    private static IncrementalRemoteKeyedStateHandle checkpoint(
+            HeapKeyedStateBackend<String> backend, long checkpointId) throws Exception {
+        KeyedStateHandle stateHandle =
+                snapshot(
+                                backend,
+                                checkpointId,
+                                CheckpointOptions.forCheckpointWithDefaultLocation())
+                        .getJobManagerOwnedSnapshot();
+        assertTrue(stateHandle instanceof IncrementalRemoteKeyedStateHandle);
+        return (IncrementalRemoteKeyedStateHandle) stateHandle;
+    }
+
+    private static SnapshotResult<KeyedStateHandle> snapshot(
+            HeapKeyedStateBackend<String> backend,
+            long checkpointId,
+            CheckpointOptions checkpointOptions)
+            throws Exception {
+        return FutureUtils.runIfNotDoneAndGet(
+                backend.snapshot(
+                        checkpointId,
+                        0L,
+                        new MemCheckpointStreamFactory(4 * 1024 * 1024),
+                        checkpointOptions));
+    }
+
+    /** Registers the checkpoint like the checkpoint coordinator and notifies the backend. */
+    private void complete(
+            HeapKeyedStateBackend<String> backend, IncrementalRemoteKeyedStateHandle checkpoint)
+            throws Exception {
+        checkpoint.registerSharedStates(sharedStateRegistry);
+        backend.notifyCheckpointComplete(checkpoint.getCheckpointId());
+    }
+
+    private static StateHandleID fileOf(long checkpointId) {
+        return new StateHandleID("chk-" + checkpointId);
+    }
+
+    private static int keyGroupOf(String key) {
+        return KeyGroupRangeAssignment.assignToKeyGroup(
+                key, KEY_GROUP_RANGE.getNumberOfKeyGroups());
+    }
+
+    private static void update(
+            HeapKeyedStateBackend<String> backend, String key, int value, int element)
+            throws Exception {
+        backend.setCurrentKey(key);
+        backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, VALUE_STATE)
+                .update(value);
+        backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, LIST_STATE)
+                .add(element);
+    }
+
+    private static void assertState(
+            HeapKeyedStateBackend<String> backend, String key, Integer value, Integer... elements)
+            throws Exception {
+        backend.setCurrentKey(key);
+        ValueState<Integer> valueState =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, VALUE_STATE);
+        ListState<Integer> listState =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, LIST_STATE);
+        assertEquals(value, valueState.value());
+        assertEquals(Arrays.asList(elements), listState.get());
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.memory.MemoryManagerBuilder;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/** Test for {@link OffHeapStateMap}. */
+public class OffHeapStateMapTest {
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final int NUMBER_OF_PAGES = 1024;
+
+    private MemoryManager memoryManager;
+
+    private OffHeapStateMemoryPool memoryPool;
+
+    @Before
+    public void setUp() {
+        memoryManager =
+                MemoryManagerBuilder.newBuilder()
+                        .setMemorySize((long) NUMBER_OF_PAGES * PAGE_SIZE)
+                        .setPageSize(PAGE_SIZE)
+                        .build();
+        memoryPool = new OffHeapStateMemoryPool(memoryManager, (long) NUMBER_OF_PAGES * PAGE_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        memoryPool.close();
+        Assert.assertTrue(memoryManager.verifyEmpty());
+        memoryManager.shutdown();
+    }
+
+    /** This tests the basic map operations against a reference map. */
+    @Test
+    public void testPutGetRemove() {
+        OffHeapStateMap<Integer, Integer, String> stateMap = createStateMap();
+        Map<Integer, String> referenceMap = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(1000);
+            int namespace = key % 3;
+            int operation = random.nextInt(4);
+            if (operation == 0) {
+                Assert.assertEquals(
+                        referenceMap.remove(key), stateMap.removeAndGetOld(key, namespace));
+            } else if (operation == 1) {
+                // null states are valid values of the map
+                referenceMap.put(key, null);
+                stateMap.put(key, namespace, null);
+            } else {
+                String state = StringUtils.getRandomString(random, 0, 64);
+                Assert.assertEquals(
+                        referenceMap.put(key, state), stateMap.putAndGetOld(key, namespace, state));
+            }
+            Assert.assertEquals(referenceMap.size(), stateMap.size());
+        }
+
+        for (int key = 0; key < 1000; key++) {
+            Assert.assertEquals(referenceMap.containsKey(key), stateMap.containsKey(key, key % 3));
+            Assert.assertEquals(referenceMap.get(key), stateMap.get(key, key % 3));
+            Assert.assertNull(stateMap.get(key, key % 3 + 1));
+        }
+
+        int numberOfEntries = 0;
+        for (StateEntry<Integer, Integer, String> entry : stateMap) {
+            Assert.assertEquals(referenceMap.get(entry.getKey()), entry.getState());
+            numberOfEntries++;
+        }
+        Assert.assertEquals(referenceMap.size(), numberOfEntries);
+    }
+
+    /** This tests that overwritten records are compacted and all pages are released when empty. */
+    @Test
+    public void testCompactionReleasesPages() {
+        OffHeapStateMap<Integer, Integer, String> stateMap = createStateMap();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            stateMap.put(i % 100, 0, StringUtils.getRandomString(random, 10, 20));
+        }
+        // 100 records of less than 100 bytes each must not use more than a few pages
+        Assert.assertTrue(stateMap.getNumberOfPages() <= 5);
+
+        for (int key = 0; key < 100; key++) {
+            stateMap.remove(key, 0);
+        }
+        Assert.assertEquals(0, stateMap.size());
+        Assert.assertEquals(0, stateMap.getNumberOfPages());
+        Assert.assertEquals(0L, stateMap.getLiveBytes());
+        Assert.assertEquals(
+                memoryPool.getNumberOfAllocatedPages(), memoryPool.getNumberOfFreePages());
+    }
+
+    /** This tests that a snapshot is not affected by later modifications of the map. */
+    @Test
+    public void testSnapshotIsolation() {
+        OffHeapStateMap<Integer, Integer, String> stateMap = createStateMap();
+        for (int key = 0; key < 100; key++) {
+            stateMap.put(key, 0, "v" + key);
+        }
+
+        OffHeapStateMapSnapshot<Integer, Integer, String> snapshot = stateMap.stateSnapshot();
+        Assert.assertEquals(1, stateMap.getNumberOfActiveSnapshots());
+
+        // overwrite and remove enough records to trigger compactions and page releases
+        for (int i = 0; i < 10_000; i++) {
+            stateMap.put(i % 50, 0, "updated-" + i);
+        }
+        for (int key = 50; key < 100; key++) {
+            stateMap.remove(key, 0);
+        }
+
+        Map<Integer, String> snapshotEntries = new HashMap<>();
+        Iterator<StateEntry<Integer, Integer, String>> iterator =
+                snapshot.getIterator(
+                        IntSerializer.INSTANCE,
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE,
+                        null);
+        while (iterator.hasNext()) {
+            StateEntry<Integer, Integer, String> entry = iterator.next();
+            snapshotEntries.put(entry.getKey(), entry.getState());
+        }
+        Assert.assertEquals(100, snapshotEntries.size());
+        for (int key = 0; key < 100; key++) {
+            Assert.assertEquals("v" + key, snapshotEntries.get(key));
+        }
+
+        snapshot.release();
+        Assert.assertTrue(snapshot.isReleased());
+        Assert.assertEquals(0, stateMap.getNumberOfActiveSnapshots());
+        Assert.assertEquals("updated-9999", stateMap.get(49, 0));
+    }
+
+    /** This tests that the raw bytes written by a snapshot can be read with the serializers. */
+    @Test
+    public void testWriteStateRoundTrip() throws IOException {
+        OffHeapStateMap<Integer, Integer, String> stateMap = createStateMap();
+        Map<Integer, String> referenceMap = new HashMap<>();
+        Random random = new Random(42);
+        for (int key = 0; key < 200; key++) {
+            // states larger than a page exercise records spanning multiple pages
+            String state = key % 50 == 0 ? null : StringUtils.getRandomString(random, 0, PAGE_SIZE);
+            stateMap.put(key, 7, state);
+            referenceMap.put(key, state);
+        }
+
+        OffHeapStateMapSnapshot<Integer, Integer, String> snapshot = stateMap.stateSnapshot();
+        ByteArrayOutputStreamWithPos outputStream = new ByteArrayOutputStreamWithPos();
+        snapshot.writeState(
+                IntSerializer.INSTANCE,
+                IntSerializer.INSTANCE,
+                StringSerializer.INSTANCE,
+                new DataOutputViewStreamWrapper(outputStream),
+                null);
+        snapshot.release();
+
+        DataInputDeserializer inputView =
+                new DataInputDeserializer(outputStream.getBuf(), 0, outputStream.getPosition());
+        int numberOfEntries = inputView.readInt();
+        Assert.assertEquals(referenceMap.size(), numberOfEntries);
+        for (int i = 0; i < numberOfEntries; i++) {
+            Assert.assertEquals(7, (int) IntSerializer.INSTANCE.deserialize(inputView));
+            Integer key = IntSerializer.INSTANCE.deserialize(inputView);
+            Assert.assertEquals(
+                    referenceMap.get(key), StringSerializer.INSTANCE.deserialize(inputView));
+        }
+        Assert.assertEquals(0, inputView.available());
+    }
+
+    /** This tests that the map fails once the memory budget of the pool is exhausted. */
+    @Test(expected = FlinkRuntimeException.class)
+    public void testMemoryBudgetExceeded() {
+        memoryPool.close();
+        memoryPool = new OffHeapStateMemoryPool(memoryManager, 4L * PAGE_SIZE);
+        OffHeapStateMap<Integer, Integer, String> stateMap = createStateMap();
+        Random random = new Random(42);
+        for (int key = 0; key < 100_000; key++) {
+            stateMap.put(key, 0, StringUtils.getRandomString(random, 100, 200));
+        }
+    }
+
+    private OffHeapStateMap<Integer, Integer, String> createStateMap() {
+        RegisteredKeyValueStateBackendMetaInfo<Integer, String> metaInfo =
+                new RegisteredKeyValueStateBackendMetaInfo<>(
+                        StateDescriptor.Type.VALUE,
+                        "test",
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE);
+        OffHeapStateTable<Integer, Integer, String> stateTable =
+                new OffHeapStateTable<>(
+                        new MockInternalKeyContext<>(),
+                        metaInfo,
+                        IntSerializer.INSTANCE,
+                        memoryPool);
+        return (OffHeapStateMap<Integer, Integer, String>) stateTable.getMapForKeyGroup(0);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.OptionalInt;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link BufferDebloater}. */
+public class BufferDebloaterTest extends TestLogger {
+
+    private static final int MIN_BUFFER_SIZE = 100;
+
+    private static final int MAX_BUFFER_SIZE = 1000;
+
+    @Test
+    public void testBufferSizeHoldsTargetTimeOfData() {
+        BufferDebloater debloater =
+                new BufferDebloater(1000, MIN_BUFFER_SIZE, MAX_BUFFER_SIZE, 25, 1);
+
+        // 4000 bytes can be consumed in the target time, spread over 10 buffers
+        assertEquals(OptionalInt.of(400), debloater.recalculateBufferSize(4000, 10));
+
+        // the change of 10% is below the threshold
+        assertEquals(OptionalInt.empty(), debloater.recalculateBufferSize(4400, 10));
+        assertEquals(400, debloater.getLastAnnouncedBufferSize());
+
+        assertEquals(OptionalInt.of(200), debloater.recalculateBufferSize(4000, 20));
+    }
+
+    @Test
+    public void testBufferSizeIsBounded() {
+        BufferDebloater debloater =
+                new BufferDebloater(1000, MIN_BUFFER_SIZE, MAX_BUFFER_SIZE, 25, 1);
+
+        assertEquals(OptionalInt.of(120), debloater.recalculateBufferSize(1200, 10));
+        // the bounds are announced even if the change is below the threshold
+        assertEquals(OptionalInt.of(MIN_BUFFER_SIZE), debloater.recalculateBufferSize(10, 10));
+        assertEquals(OptionalInt.empty(), debloater.recalculateBufferSize(0, 0));
+
+        assertEquals(
+                OptionalInt.of(MAX_BUFFER_SIZE), debloater.recalculateBufferSize(1_000_000, 5));
+    }
+
+    @Test
+    public void testBufferSizeIsSmoothed() {
+        // 3 samples give new sizes a weight of 0.5
+        BufferDebloater debloater =
+                new BufferDebloater(1000, MIN_BUFFER_SIZE, MAX_BUFFER_SIZE, 25, 3);
+
+        assertEquals(OptionalInt.of(600), debloater.recalculateBufferSize(2000, 10));
+        assertEquals(OptionalInt.of(400), debloater.recalculateBufferSize(2000, 10));
+        assertEquals(OptionalInt.of(300), debloater.recalculateBufferSize(2000, 10));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link ThroughputCalculator}. */
+public class ThroughputCalculatorTest extends TestLogger {
+
+    @Test
+    public void testThroughputOfMeasuredTime() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(1000);
+        clock.advanceTime(Duration.ofSeconds(1));
+        throughputCalculator.incomingDataSize(1000);
+
+        assertEquals(2000, throughputCalculator.calculateThroughput());
+    }
+
+    @Test
+    public void testPausedTimeIsNotMeasured() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(500);
+        clock.advanceTime(Duration.ofMillis(500));
+        throughputCalculator.pauseMeasurement();
+
+        clock.advanceTime(Duration.ofSeconds(10));
+
+        // new data resumes the measurement
+        throughputCalculator.incomingDataSize(500);
+        clock.advanceTime(Duration.ofMillis(500));
+
+        assertEquals(1000, throughputCalculator.calculateThroughput());
+    }
+
+    @Test
+    public void testLastThroughputIsKeptWithoutMeasurement() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(3000);
+        clock.advanceTime(Duration.ofSeconds(1));
+        throughputCalculator.pauseMeasurement();
+        assertEquals(3000, throughputCalculator.calculateThroughput());
+
+        clock.advanceTime(Duration.ofSeconds(1));
+        assertEquals(3000, throughputCalculator.calculateThroughput());
+
+        // a measured time without data means no throughput
+        throughputCalculator.resumeMeasurement();
+        clock.advanceTime(Duration.ofSeconds(1));
+        assertEquals(0, throughputCalculator.calculateThroughput());
+    }
+}
@@ -49,6 +49,11 @@ abstract class AbstractChangelogState<K, N, V, S extends InternalKvState<K, N, V
         return delegatedState;
     }
 
+    @Override
+    public void resetWritingMetaFlag() {
+        changeLogger.resetWritingMetaFlag();
+    }
+
     @Override
     public TypeSerializer<K> getKeySerializer() {
         return delegatedState.getKeySerializer();
@@ -141,6 +141,11 @@ abstract class AbstractStateChangeLogger<Key, Value, Ns> implements StateChangeL
                 keyContext.getCurrentKeyGroupIndex(), serialize(op, ns, dataWriter));
     }
 
+    @Override
+    public void resetWritingMetaFlag() {
+        metaDataWritten = false;
+    }
+
     private void logMetaIfNeeded() throws IOException {
         if (!metaDataWritten) {
             // todo: add StateChangelogWriter.append() version without a keygroup
@@ -31,6 +31,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.Keyed;
@@ -58,23 +59,33 @@ import org.apache.flink.runtime.state.ttl.TtlStateFactory;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.state.changelog.restore.FunctionDelegationHelper;
 import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.clock.Clock;
+import org.apache.flink.util.clock.SystemClock;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.apache.flink.util.concurrent.FutureUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -87,6 +98,13 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * A {@link KeyedStateBackend} that keeps state on the underlying delegated keyed state backend as
  * well as on the state change log.
  *
+ * <p>The state of the delegated backend is periodically materialized, i.e. snapshotted in the
+ * background, after which the state change log is truncated up to the materialization. Checkpoints
+ * consist of the last materialized state and the state changes since then. As the synchronous part
+ * of the snapshot of the delegated backend must run in the task thread, a materialization is
+ * started by the first checkpoint after the materialization interval elapsed and its result is
+ * applied by the first checkpoint after it completed.
+ *
  * @param <K> The key by which state is keyed.
  */
 @Internal
@@ -151,13 +169,17 @@ public class ChangelogKeyedStateBackend<K>
     private final FunctionDelegationHelper functionDelegationHelper =
             new FunctionDelegationHelper();
 
-    /** Updated initially on restore and later upon materialization (in FLINK-21357). */
-    @GuardedBy("materialized")
-    private final List<KeyedStateHandle> materialized = new ArrayList<>();
+    /**
+     * Updated initially on restore and later upon materialization. The list is immutable and only
+     * replaced by the task thread.
+     */
+    private List<KeyedStateHandle> materialized = Collections.emptyList();
 
-    /** Updated initially on restore and later cleared upon materialization (in FLINK-21357). */
-    @GuardedBy("materialized")
-    private final List<ChangelogStateHandle> restoredNonMaterialized = new ArrayList<>();
+    /**
+     * Updated initially on restore and later cleared upon materialization. The list is immutable
+     * and only replaced by the task thread.
+     */
+    private List<ChangelogStateHandle> restoredNonMaterialized = Collections.emptyList();
 
     /**
      * {@link SequenceNumber} denoting last upload range <b>start</b>, inclusive. Updated to {@link
@@ -175,21 +197,67 @@ public class ChangelogKeyedStateBackend<K>
      */
     @Nullable private SequenceNumber lastUploadedTo;
     /**
-     * The {@link SequenceNumber} up to which the state is materialized, exclusive. The log should
-     * be truncated accordingly.
-     *
-     * <p>WARN: currently not updated - to be changed in FLINK-21357.
-     *
-     * <p>WARN: this value needs to be updated for benchmarking, e.g. in notifyCheckpointComplete.
+     * The {@link SequenceNumber} up to which the state is materialized, exclusive. The log is
+     * truncated accordingly.
+     */
+    private SequenceNumber materializedTo;
+
+    private final long materializationIntervalMillis;
+
+    /** The clock to measure the materialization interval with. */
+    private final Clock clock;
+
+    /** The time at which the last materialization was started or skipped. */
+    private long lastMaterializationMillis;
+
+    /** The materialization in progress, or null. */
+    @Nullable private Materialization pendingMaterialization;
+
+    /** The executor of the asynchronous part of materializations, created on first use. */
+    @Nullable private ExecutorService materializationExecutor;
+
+    /** The identifier of the {@link #materialized} state, or -1 if it was restored. */
+    private long materializationId = -1L;
+
+    /** The identifier of the last materialization confirmed to the delegated backend. */
+    private long lastConfirmedMaterializationId = -1L;
+
+    /** The identifiers of the materializations used by the pending checkpoints. */
+    private final NavigableMap<Long, Long> materializationIdByCheckpointId = new TreeMap<>();
+
+    /**
+     * The materializations of this backend which no completed checkpoint might have used, by their
+     * identifiers. The JobManager only discards materialized state through the {@link
+     * org.apache.flink.runtime.state.SharedStateRegistry}, i.e. not if all checkpoints using it
+     * were aborted, so such state is discarded here once no checkpoint can use it anymore.
      */
-    private final SequenceNumber materializedTo;
+    private final Map<Long, KeyedStateHandle> unconfirmedMaterializations = new HashMap<>();
 
     public ChangelogKeyedStateBackend(
             AbstractKeyedStateBackend<K> keyedStateBackend,
             ExecutionConfig executionConfig,
             TtlTimeProvider ttlTimeProvider,
             StateChangelogWriter<ChangelogStateHandle> stateChangelogWriter,
-            Collection<ChangelogStateBackendHandle> initialState) {
+            Collection<ChangelogStateBackendHandle> initialState,
+            long materializationIntervalMillis) {
+        this(
+                keyedStateBackend,
+                executionConfig,
+                ttlTimeProvider,
+                stateChangelogWriter,
+                initialState,
+                materializationIntervalMillis,
+                SystemClock.getInstance());
+    }
+
+    public ChangelogKeyedStateBackend(
+            AbstractKeyedStateBackend<K> keyedStateBackend,
+            ExecutionConfig executionConfig,
+            TtlTimeProvider ttlTimeProvider,
+            StateChangelogWriter<ChangelogStateHandle> stateChangelogWriter,
+            Collection<ChangelogStateBackendHandle> initialState,
+            long materializationIntervalMillis,
+            Clock clock) {
         this.keyedStateBackend = keyedStateBackend;
         this.executionConfig = executionConfig;
         this.ttlTimeProvider = ttlTimeProvider;
@@ -197,6 +265,9 @@ public class ChangelogKeyedStateBackend<K>
         this.priorityQueueStatesByName = new HashMap<>();
         this.stateChangelogWriter = stateChangelogWriter;
         this.materializedTo = stateChangelogWriter.initialSequenceNumber();
+        this.materializationIntervalMillis = materializationIntervalMillis;
+        this.clock = checkNotNull(clock);
+        this.lastMaterializationMillis = clock.absoluteTimeMillis();
         this.changelogStates = new HashMap<>();
         this.completeRestore(initialState);
     }
@@ -209,6 +280,7 @@ public class ChangelogKeyedStateBackend<K>
 
     @Override
     public void close() throws IOException {
+        stopMaterialization();
         keyedStateBackend.close();
     }
 
@@ -239,6 +311,7 @@ public class ChangelogKeyedStateBackend<K>
 
     @Override
     public void dispose() {
+        stopMaterialization();
         keyedStateBackend.dispose();
         lastName = null;
         lastState = null;
@@ -318,38 +391,219 @@ public class ChangelogKeyedStateBackend<K>
         // the previous results either here in the backend or in the writer. However,
         // materialization may truncate only a part of the previous result and the backend would
         // have to split it somehow for the former option, so the latter is used.
+        completeMaterialization();
+        if (!checkpointOptions.getCheckpointType().isSavepoint()) {
+            startMaterializationIfDue(checkpointId, streamFactory);
+        }
+
         lastCheckpointId = checkpointId;
         lastUploadedFrom = materializedTo;
         lastUploadedTo = stateChangelogWriter.lastAppendedSequenceNumber().next();
+        if (materializationId >= 0) {
+            materializationIdByCheckpointId.put(checkpointId, materializationId);
+        }
 
         LOG.debug(
                 "snapshot for checkpoint {}, change range: {}..{}",
                 checkpointId,
                 lastUploadedFrom,
                 lastUploadedTo);
+        // the persist future may be completed by the writer thread, after the next
+        // materialization has been applied, so the current lists are passed on
+        List<KeyedStateHandle> materializedState = materialized;
+        List<ChangelogStateHandle> restoredChanges = restoredNonMaterialized;
         return toRunnableFuture(
                 stateChangelogWriter
                         .persist(lastUploadedFrom)
-                        .thenApply(this::buildSnapshotResult));
-    }
-
-    private SnapshotResult<KeyedStateHandle> buildSnapshotResult(ChangelogStateHandle delta) {
-        // Can be called by either task thread during the sync checkpoint phase (if persist future
-        // was already completed); or by the writer thread otherwise. So need to synchronize.
-        // todo: revisit after FLINK-21357 - use mailbox action?
-        synchronized (materialized) {
-            // collections don't change once started and handles are immutable
-            List<ChangelogStateHandle> prevDeltaCopy = new ArrayList<>(restoredNonMaterialized);
-            if (delta != null && delta.getStateSize() > 0) {
-                prevDeltaCopy.add(delta);
+                        .thenApply(
+                                delta ->
+                                        buildSnapshotResult(
+                                                materializedState, restoredChanges, delta)));
+    }
+
+    private SnapshotResult<KeyedStateHandle> buildSnapshotResult(
+            List<KeyedStateHandle> materializedState,
+            List<ChangelogStateHandle> restoredChanges,
+            ChangelogStateHandle delta) {
+        List<ChangelogStateHandle> prevDeltaCopy = new ArrayList<>(restoredChanges);
+        if (delta != null && delta.getStateSize() > 0) {
+            prevDeltaCopy.add(delta);
+        }
+        if (prevDeltaCopy.isEmpty() && materializedState.isEmpty()) {
+            return SnapshotResult.empty();
+        } else {
+            return SnapshotResult.of(
+                    new ChangelogStateBackendHandleImpl(
+                            materializedState, prevDeltaCopy, getKeyGroupRange()));
+        }
+    }
+
+    // -------------------- Materialization --------------------------------
+
+    /**
+     * Starts a materialization if the interval elapsed and there are changes since the last one.
+     * The snapshot is written to the shared state of the checkpoint storage, as it is used by the
+     * checkpoints up to the next materialization.
+     *
+     * <p>The materialization is identified by the ID of the checkpoint which started it. Checkpoint
+     * IDs keep increasing across restores, so the delegated backend never sees an ID again which it
+     * used before a restore, e.g. as the ID of its last completed incremental snapshot.
+     */
+    private void startMaterializationIfDue(long checkpointId, CheckpointStreamFactory streamFactory)
+            throws Exception {
+        long now = clock.absoluteTimeMillis();
+        if (pendingMaterialization != null
+                || now - lastMaterializationMillis < materializationIntervalMillis) {
+            return;
+        }
+        lastMaterializationMillis = now;
+
+        SequenceNumber upTo = stateChangelogWriter.lastAppendedSequenceNumber().next();
+        if (upTo.equals(materializedTo) && restoredNonMaterialized.isEmpty()) {
+            LOG.debug("skip materialization, no state changes since {}", materializedTo);
+            return;
+        }
+
+        long id = checkpointId;
+        LOG.info("start materialization {} up to {}", id, upTo);
+        // the metadata logged so far is truncated with the materialized changes, but the
+        // changes after the materialization still need it on recovery
+        for (ChangelogState changelogState : changelogStates.values()) {
+            changelogState.resetWritingMetaFlag();
+        }
+        for (ChangelogKeyGroupedPriorityQueue<?> queue : priorityQueueStatesByName.values()) {
+            queue.resetWritingMetaFlag();
+        }
+        RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                keyedStateBackend.snapshot(
+                        id,
+                        now,
+                        scope ->
+                                streamFactory.createCheckpointStateOutputStream(
+                                        CheckpointedStateScope.SHARED),
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+        if (materializationExecutor == null) {
+            materializationExecutor =
+                    Executors.newSingleThreadExecutor(
+                            new ExecutorThreadFactory("changelog-materialization"));
+        }
+        pendingMaterialization =
+                new Materialization(
+                        id,
+                        upTo,
+                        snapshot,
+                        CompletableFuture.supplyAsync(
+                                () -> {
+                                    try {
+                                        return FutureUtils.runIfNotDoneAndGet(snapshot);
+                                    } catch (Exception e) {
+                                        throw new CompletionException(e);
+                                    }
+                                },
+                                materializationExecutor));
+    }
+
+    /** Applies the result of the pending materialization if it completed. */
+    private void completeMaterialization() {
+        if (pendingMaterialization == null || !pendingMaterialization.result.isDone()) {
+            return;
+        }
+        Materialization completed = pendingMaterialization;
+        pendingMaterialization = null;
+
+        SnapshotResult<KeyedStateHandle> result;
+        try {
+            result = completed.result.get();
+        } catch (Exception e) {
+            LOG.warn(
+                    "materialization {} failed, it is retried after {} ms",
+                    completed.id,
+                    materializationIntervalMillis,
+                    e);
+            return;
+        }
+        KeyedStateHandle localHandle = result.getTaskLocalSnapshot();
+        if (localHandle != null) {
+            // materialized state is not reported as task-local state
+            try {
+                localHandle.discardState();
+            } catch (Exception e) {
+                LOG.warn("failed to discard local state of materialization {}", completed.id, e);
             }
-            if (prevDeltaCopy.isEmpty() && materialized.isEmpty()) {
-                return SnapshotResult.empty();
-            } else {
-                return SnapshotResult.of(
-                        new ChangelogStateBackendHandleImpl(
-                                materialized, prevDeltaCopy, getKeyGroupRange()));
+        }
+        KeyedStateHandle handle = result.getJobManagerOwnedSnapshot();
+        materialized = handle == null ? Collections.emptyList() : Collections.singletonList(handle);
+        restoredNonMaterialized = Collections.emptyList();
+        materializedTo = completed.upTo;
+        materializationId = completed.id;
+        if (handle != null) {
+            unconfirmedMaterializations.put(completed.id, handle);
+        }
+        // the pending checkpoints already hold their state changes
+        stateChangelogWriter.truncate(materializedTo);
+        LOG.info("complete materialization {} up to {}", completed.id, materializedTo);
+        discardUnusedMaterializations();
+    }
+
+    /**
+     * Discards the materializations which were replaced by a newer one and whose checkpoints were
+     * all aborted. Materializations used by a checkpoint which might have completed are kept, as
+     * they are discarded by the JobManager.
+     */
+    private void discardUnusedMaterializations() {
+        if (materializationExecutor == null) {
+            // no materialization was started or the backend is closed
+            return;
+        }
+        Iterator<Map.Entry<Long, KeyedStateHandle>> iterator =
+                unconfirmedMaterializations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, KeyedStateHandle> entry = iterator.next();
+            long id = entry.getKey();
+            if (id == materializationId || materializationIdByCheckpointId.containsValue(id)) {
+                continue;
             }
+            iterator.remove();
+            LOG.info("discard materialization {}, which was only used by aborted checkpoints", id);
+            KeyedStateHandle handle = entry.getValue();
+            materializationExecutor.execute(
+                    () -> {
+                        try {
+                            handle.discardState();
+                        } catch (Exception e) {
+                            LOG.warn("failed to discard materialization {}", id, e);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Returns the future of the pending materialization, which completes once it can be applied by
+     * the next checkpoint, or a completed future if there is none.
+     */
+    @VisibleForTesting
+    CompletableFuture<?> getPendingMaterialization() {
+        return pendingMaterialization == null
+                ? CompletableFuture.completedFuture(null)
+                : pendingMaterialization.result;
+    }
+
+    private void stopMaterialization() {
+        if (pendingMaterialization != null) {
+            pendingMaterialization.snapshot.cancel(true);
+            pendingMaterialization.result.thenAccept(
+                    result -> {
+                        try {
+                            result.discardState();
+                        } catch (Exception e) {
+                            LOG.warn("failed to discard unused materialization", e);
+                        }
+                    });
+            pendingMaterialization = null;
+        }
+        if (materializationExecutor != null) {
+            materializationExecutor.shutdownNow();
+            materializationExecutor = null;
         }
     }
 
@@ -408,7 +662,21 @@ public class ChangelogKeyedStateBackend<K>
             // This might change if the log ownership changes (the method won't likely be needed).
             stateChangelogWriter.confirm(lastUploadedFrom, lastUploadedTo);
         }
-        keyedStateBackend.notifyCheckpointComplete(checkpointId);
+        // The delegated backend only takes snapshots for materializations. Notify it about the
+        // materialization used by the checkpoint, so that e.g. incremental snapshots can re-use it.
+        Long usedMaterializationId = materializationIdByCheckpointId.remove(checkpointId);
+        if (usedMaterializationId != null) {
+            unconfirmedMaterializations.remove(usedMaterializationId);
+            if (usedMaterializationId > lastConfirmedMaterializationId) {
+                keyedStateBackend.notifyCheckpointComplete(usedMaterializationId);
+                lastConfirmedMaterializationId = usedMaterializationId;
+            }
+        }
+        // the notifications about older checkpoints might have been lost, so their
+        // materializations might be used by completed checkpoints, too
+        Map<Long, Long> subsumed = materializationIdByCheckpointId.headMap(checkpointId, true);
+        subsumed.values().forEach(unconfirmedMaterializations::remove);
+        subsumed.clear();
     }
 
     @Override
@@ -421,6 +689,9 @@ public class ChangelogKeyedStateBackend<K>
             stateChangelogWriter.reset(lastUploadedFrom, lastUploadedTo);
         }
         keyedStateBackend.notifyCheckpointAborted(checkpointId);
+        // the materialization may still be used by other checkpoints
+        materializationIdByCheckpointId.remove(checkpointId);
+        discardUnusedMaterializations();
     }
 
     // -------- Methods not simply delegating to wrapped state backend ---------
@@ -506,16 +777,16 @@ public class ChangelogKeyedStateBackend<K>
     }
 
     private void completeRestore(Collection<ChangelogStateBackendHandle> stateHandles) {
-        if (!stateHandles.isEmpty()) {
-            synchronized (materialized) { // ensure visibility
-                for (ChangelogStateBackendHandle h : stateHandles) {
-                    if (h != null) {
-                        materialized.addAll(h.getMaterializedStateHandles());
-                        restoredNonMaterialized.addAll(h.getNonMaterializedStateHandles());
-                    }
-                }
+        List<KeyedStateHandle> restoredMaterialized = new ArrayList<>();
+        List<ChangelogStateHandle> restoredChanges = new ArrayList<>();
+        for (ChangelogStateBackendHandle h : stateHandles) {
+            if (h != null) {
+                restoredMaterialized.addAll(h.getMaterializedStateHandles());
+                restoredChanges.addAll(h.getNonMaterializedStateHandles());
             }
         }
+        materialized = Collections.unmodifiableList(restoredMaterialized);
+        restoredNonMaterialized = Collections.unmodifiableList(restoredChanges);
         changelogStates.clear();
     }
 
@@ -524,6 +795,25 @@ public class ChangelogKeyedStateBackend<K>
         return keyedStateBackend.getDelegatedKeyedStateBackend(recursive);
     }
 
+    /** A materialization of the delegated backend, up to a {@link SequenceNumber}, exclusive. */
+    private static final class Materialization {
+        private final long id;
+        private final SequenceNumber upTo;
+        private final RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot;
+        private final CompletableFuture<SnapshotResult<KeyedStateHandle>> result;
+
+        private Materialization(
+                long id,
+                SequenceNumber upTo,
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot,
+                CompletableFuture<SnapshotResult<KeyedStateHandle>> result) {
+            this.id = id;
+            this.upTo = upTo;
+            this.snapshot = snapshot;
+            this.result = result;
+        }
+    }
+
     // Factory function interface
     private interface StateFactory {
         <K, N, SV, S extends State, IS extends S> IS create(
@@ -27,4 +27,7 @@ import org.apache.flink.state.changelog.restore.StateChangeApplier;
 @Internal
 public interface ChangelogState {
     StateChangeApplier getChangeApplier(ChangelogApplierFactory factory);
+
+    /** See {@link StateChangeLogger#resetWritingMetaFlag()}. */
+    void resetWritingMetaFlag();
 }
@@ -19,8 +19,10 @@
 package org.apache.flink.state.changelog;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.core.fs.CloseableRegistry;
@@ -43,12 +45,16 @@ import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.state.changelog.restore.ChangelogBackendRestoreOperation;
 import org.apache.flink.state.changelog.restore.ChangelogBackendRestoreOperation.BaseBackendBuilder;
 import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.clock.Clock;
+import org.apache.flink.util.clock.SystemClock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -69,6 +75,15 @@ public class ChangelogStateBackend implements DelegatingStateBackend, Configurab
 
     private final StateBackend delegatedStateBackend;
 
+    /**
+     * The interval to materialize the delegated state, or null to use the {@link
+     * CheckpointingOptions#PERIODIC_MATERIALIZATION_INTERVAL} of the TaskManager.
+     */
+    @Nullable private final Duration materializationInterval;
+
+    /** The clock of the materialization interval, or null to use the {@link SystemClock}. */
+    @Nullable private final transient Clock clock;
+
     /**
      * Delegate a state backend by a ChangelogStateBackend.
      *
@@ -77,7 +92,22 @@ public class ChangelogStateBackend implements DelegatingStateBackend, Configurab
      * @param stateBackend the delegated state backend.
      */
     ChangelogStateBackend(StateBackend stateBackend) {
+        this(stateBackend, null);
+    }
+
+    @VisibleForTesting
+    ChangelogStateBackend(StateBackend stateBackend, @Nullable Duration materializationInterval) {
+        this(stateBackend, materializationInterval, null);
+    }
+
+    @VisibleForTesting
+    ChangelogStateBackend(
+            StateBackend stateBackend,
+            @Nullable Duration materializationInterval,
+            @Nullable Clock clock) {
         this.delegatedStateBackend = Preconditions.checkNotNull(stateBackend);
+        this.materializationInterval = materializationInterval;
+        this.clock = clock;
 
         Preconditions.checkArgument(
                 !(stateBackend instanceof DelegatingStateBackend),
@@ -190,7 +220,9 @@ public class ChangelogStateBackend implements DelegatingStateBackend, Configurab
         if (delegatedStateBackend instanceof ConfigurableStateBackend) {
             return new ChangelogStateBackend(
                     ((ConfigurableStateBackend) delegatedStateBackend)
-                            .configure(config, classLoader));
+                            .configure(config, classLoader),
+                    materializationInterval,
+                    clock);
         }
 
         return this;
@@ -210,6 +242,12 @@ public class ChangelogStateBackend implements DelegatingStateBackend, Configurab
                         env.getTaskStateManager().getStateChangelogStorage(),
                         "Changelog storage is null when creating and restoring"
                                 + " the ChangelogKeyedStateBackend.");
+        Duration interval =
+                materializationInterval != null
+                        ? materializationInterval
+                        : env.getTaskManagerInfo()
+                                .getConfiguration()
+                                .get(CheckpointingOptions.PERIODIC_MATERIALIZATION_INTERVAL);
         return ChangelogBackendRestoreOperation.restore(
                 changelogStorage.createReader(),
                 env.getUserCodeClassLoader().asClassLoader(),
@@ -221,7 +259,9 @@ public class ChangelogStateBackend implements DelegatingStateBackend, Configurab
                                 env.getExecutionConfig(),
                                 ttlTimeProvider,
                                 changelogStorage.createWriter(operatorIdentifier, keyGroupRange),
-                                baseState));
+                                baseState,
+                                interval.toMillis(),
+                                clock != null ? clock : SystemClock.getInstance()));
     }
 
     private Collection<ChangelogStateBackendHandle> castHandles(
@@ -69,4 +69,10 @@ interface StateChangeLogger<Value, Namespace> {
     void valueElementRemoved(
             ThrowingConsumer<DataOutputViewStreamWrapper, IOException> dataSerializer, Namespace ns)
             throws IOException;
+
+    /**
+     * Makes the next change log the state metadata again, e.g. because the previously logged
+     * metadata is going to be truncated.
+     */
+    void resetWritingMetaFlag();
 }
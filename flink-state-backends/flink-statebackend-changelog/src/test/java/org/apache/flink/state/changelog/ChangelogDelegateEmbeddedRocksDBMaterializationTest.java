@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.CheckpointListener;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.contrib.streaming.state.EmbeddedRocksDBStateBackend;
+import org.apache.flink.contrib.streaming.state.EmbeddedRocksDBStateBackendTest;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.util.IOUtils;
+
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ChangelogStateBackend} delegating {@link EmbeddedRocksDBStateBackend}, which
+ * materializes the delegated state on every checkpoint.
+ */
+public class ChangelogDelegateEmbeddedRocksDBMaterializationTest
+        extends EmbeddedRocksDBStateBackendTest {
+
+    private final ValueStateDescriptor<String> kvId =
+            new ValueStateDescriptor<>("id", String.class);
+
+    private long nextCheckpointId;
+
+    /** The files of the last materialization which re-use files of previous ones. */
+    private final Set<StateHandleID> reusedFiles = new HashSet<>();
+
+    /** The last snapshot taken by {@link #materialize} or {@link #checkpoint}. */
+    private ChangelogStateBackendHandle lastSnapshot;
+
+    @Override
+    protected boolean snapshotUsesStreamFactory() {
+        return false;
+    }
+
+    @Override
+    protected boolean supportsMetaInfoVerification() {
+        return false;
+    }
+
+    /**
+     * Unlike the inherited test, the snapshots are changelog handles. They register the shared
+     * files of their materialization on every checkpoint using it, and unregister them on discard.
+     */
+    @Test
+    @Override
+    public void testSharedIncrementalStateDeRegistration() throws Exception {
+        assumeTrue(enableIncrementalCheckpointing);
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = spy(new SharedStateRegistry());
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            Queue<ChangelogStateBackendHandle> previousSnapshots = new LinkedList<>();
+            IncrementalRemoteKeyedStateHandle materialization = null;
+            for (int i = 0; i < 3; i++) {
+                update(backend, i, "Hello-" + i);
+                reset(sharedStateRegistry);
+                materialization =
+                        materialize(backend, streamFactory, sharedStateRegistry, materialization);
+                for (StateHandleID id : materialization.getSharedState().keySet()) {
+                    // also registered by the checkpoint starting the materialization, if reused
+                    verify(sharedStateRegistry, atLeastOnce())
+                            .registerReference(
+                                    eq(
+                                            materialization
+                                                    .createSharedStateRegistryKeyFromFileName(id)),
+                                    any(StreamStateHandle.class));
+                }
+                previousSnapshots.add(lastSnapshot);
+            }
+
+            for (ChangelogStateBackendHandle snapshot : previousSnapshots) {
+                IncrementalRemoteKeyedStateHandle removed =
+                        (IncrementalRemoteKeyedStateHandle)
+                                snapshot.getMaterializedStateHandles().get(0);
+                reset(sharedStateRegistry);
+                snapshot.discardState();
+                for (StateHandleID id : removed.getSharedState().keySet()) {
+                    verify(sharedStateRegistry)
+                            .unregisterReference(
+                                    removed.createSharedStateRegistryKeyFromFileName(id));
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Override
+    protected <K> CheckpointableKeyedStateBackend<K> createKeyedBackend(
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            Environment env)
+            throws Exception {
+
+        return ChangelogStateBackendTestUtils.createKeyedBackend(
+                getStateBackend(), keySerializer, numberOfKeyGroups, keyGroupRange, env);
+    }
+
+    @Override
+    protected ConfigurableStateBackend getStateBackend() throws IOException {
+        return new ChangelogStateBackend(super.getStateBackend(), Duration.ZERO);
+    }
+
+    @Test
+    public void testMaterializationAfterRestoreReusesUploadedFiles() throws Exception {
+        assumeTrue(enableIncrementalCheckpointing);
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        IncrementalRemoteKeyedStateHandle restoredMaterialization;
+        try {
+            update(backend, 1, "1");
+            restoredMaterialization =
+                    materialize(backend, streamFactory, sharedStateRegistry, null);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, lastSnapshot);
+        try {
+            update(backend, 2, "2");
+            IncrementalRemoteKeyedStateHandle first =
+                    materialize(
+                            backend, streamFactory, sharedStateRegistry, restoredMaterialization);
+            assertTrue(first.getCheckpointId() > restoredMaterialization.getCheckpointId());
+
+            // the first materialization after the restore was confirmed to the delegated
+            // backend, so the next one re-uses its files
+            update(backend, 3, "3");
+            IncrementalRemoteKeyedStateHandle second =
+                    materialize(backend, streamFactory, sharedStateRegistry, first);
+            assertTrue(second.getCheckpointId() > first.getCheckpointId());
+            assertTrue(reusedFiles.containsAll(first.getSharedState().keySet()));
+
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            assertEquals("1", state.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    private void update(CheckpointableKeyedStateBackend<Integer> backend, int key, String value)
+            throws Exception {
+        ValueState<String> state =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+        backend.setCurrentKey(key);
+        state.update(value);
+    }
+
+    /**
+     * Takes and completes two checkpoints: the first one starts a materialization, which the second
+     * one uses. Returns the new materialization.
+     */
+    private IncrementalRemoteKeyedStateHandle materialize(
+            CheckpointableKeyedStateBackend<Integer> backend,
+            CheckpointStreamFactory streamFactory,
+            SharedStateRegistry sharedStateRegistry,
+            @Nullable KeyedStateHandle previous)
+            throws Exception {
+        checkpoint(backend, streamFactory, sharedStateRegistry);
+        ((ChangelogKeyedStateBackend<?>) backend)
+                .getPendingMaterialization()
+                .get(1L, TimeUnit.MINUTES);
+        long checkpointId = nextCheckpointId++;
+        lastSnapshot = snapshot(backend, checkpointId, streamFactory);
+
+        List<KeyedStateHandle> materialized = lastSnapshot.getMaterializedStateHandles();
+        assertEquals(1, materialized.size());
+        assertNotSame(previous, materialized.get(0));
+        IncrementalRemoteKeyedStateHandle materialization =
+                (IncrementalRemoteKeyedStateHandle) materialized.get(0);
+        // placeholders are replaced when the snapshot is registered
+        reusedFiles.clear();
+        for (Map.Entry<StateHandleID, StreamStateHandle> file :
+                materialization.getSharedState().entrySet()) {
+            if (file.getValue() instanceof PlaceholderStreamStateHandle) {
+                reusedFiles.add(file.getKey());
+            }
+        }
+
+        lastSnapshot.registerSharedStates(sharedStateRegistry);
+        ((CheckpointListener) backend).notifyCheckpointComplete(checkpointId);
+        return materialization;
+    }
+
+    private void checkpoint(
+            CheckpointableKeyedStateBackend<Integer> backend,
+            CheckpointStreamFactory streamFactory,
+            SharedStateRegistry sharedStateRegistry)
+            throws Exception {
+        long checkpointId = nextCheckpointId++;
+        lastSnapshot = snapshot(backend, checkpointId, streamFactory);
+        if (lastSnapshot != null) {
+            lastSnapshot.registerSharedStates(sharedStateRegistry);
+        }
+        ((CheckpointListener) backend).notifyCheckpointComplete(checkpointId);
+    }
+
+    @Nullable
+    private static ChangelogStateBackendHandle snapshot(
+            CheckpointableKeyedStateBackend<Integer> backend,
+            long checkpointId,
+            CheckpointStreamFactory streamFactory)
+            throws Exception {
+        RunnableFuture<SnapshotResult<KeyedStateHandle>> future =
+                backend.snapshot(
+                        checkpointId,
+                        0L,
+                        streamFactory,
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+        future.run();
+        return (ChangelogStateBackendHandle) future.get().getJobManagerOwnedSnapshot();
+    }
+}
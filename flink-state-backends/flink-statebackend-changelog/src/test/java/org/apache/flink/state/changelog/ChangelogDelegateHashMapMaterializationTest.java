@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.CheckpointListener;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.fs.local.LocalFileSystem;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.HashMapStateBackendTest;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ChangelogStateBackend} delegating {@link HashMapStateBackendTest}, which
+ * materializes the delegated state on every checkpoint.
+ */
+public class ChangelogDelegateHashMapMaterializationTest extends HashMapStateBackendTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    private Duration materializationInterval = Duration.ZERO;
+
+    @Override
+    protected boolean snapshotUsesStreamFactory() {
+        return false;
+    }
+
+    @Override
+    protected boolean supportsMetaInfoVerification() {
+        return false;
+    }
+
+    @Override
+    protected <K> CheckpointableKeyedStateBackend<K> createKeyedBackend(
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            Environment env)
+            throws Exception {
+
+        return ChangelogStateBackendTestUtils.createKeyedBackend(
+                getStateBackend(), keySerializer, numberOfKeyGroups, keyGroupRange, env);
+    }
+
+    @Override
+    protected ConfigurableStateBackend getStateBackend() {
+        return new ChangelogStateBackend(super.getStateBackend(), materializationInterval, clock);
+    }
+
+    @Test
+    public void testMaterializationTruncatesChangelog() throws Exception {
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        ChangelogStateBackendHandle snapshot;
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            state.update("1");
+
+            // the first checkpoint starts the materialization, which is used by the first
+            // checkpoint after it completed
+            snapshot = snapshot(backend, 0L, streamFactory, sharedStateRegistry);
+            assertTrue(snapshot.getMaterializedStateHandles().isEmpty());
+            awaitMaterialization(backend);
+            snapshot = snapshot(backend, 1L, streamFactory, sharedStateRegistry);
+
+            assertFalse(snapshot.getMaterializedStateHandles().isEmpty());
+            assertTrue(snapshot.getNonMaterializedStateHandles().isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            assertEquals("1", state.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testChangesAfterMaterializationAreRestored() throws Exception {
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        ChangelogStateBackendHandle snapshot;
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            state.update("1");
+
+            snapshot(backend, 0L, streamFactory, sharedStateRegistry);
+            awaitMaterialization(backend);
+            snapshot(backend, 1L, streamFactory, sharedStateRegistry);
+
+            // the changes after the materialization are only in the changelog, which must still
+            // contain the meta data of the state
+            backend.setCurrentKey(1);
+            state.update("2");
+            backend.setCurrentKey(2);
+            state.update("3");
+            snapshot = snapshot(backend, 2L, streamFactory, sharedStateRegistry);
+
+            assertFalse(snapshot.getMaterializedStateHandles().isEmpty());
+            assertFalse(snapshot.getNonMaterializedStateHandles().isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            assertEquals("2", state.value());
+            backend.setCurrentKey(2);
+            assertEquals("3", state.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testMaterializationInterval() throws Exception {
+        materializationInterval = Duration.ofMinutes(1L);
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            backend.setCurrentKey(1);
+            state.update("1");
+
+            clock.advanceTime(Duration.ofSeconds(59L));
+            snapshot(backend, 0L, streamFactory, sharedStateRegistry);
+            awaitMaterialization(backend);
+            ChangelogStateBackendHandle snapshot =
+                    snapshot(backend, 1L, streamFactory, sharedStateRegistry);
+            assertTrue(snapshot.getMaterializedStateHandles().isEmpty());
+
+            clock.advanceTime(Duration.ofSeconds(1L));
+            snapshot(backend, 2L, streamFactory, sharedStateRegistry);
+            awaitMaterialization(backend);
+            snapshot = snapshot(backend, 3L, streamFactory, sharedStateRegistry);
+            assertFalse(snapshot.getMaterializedStateHandles().isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testMaterializationOnlyUsedByAbortedCheckpointsIsDiscarded() throws Exception {
+        // writes all materialized state to files
+        File checkpointDir = TEMP_FOLDER.newFolder();
+        CheckpointStreamFactory streamFactory =
+                new FsCheckpointStreamFactory(
+                        LocalFileSystem.getSharedInstance(),
+                        Path.fromLocalFile(checkpointDir),
+                        Path.fromLocalFile(checkpointDir),
+                        0,
+                        4096);
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            CheckpointListener listener = (CheckpointListener) backend;
+            backend.setCurrentKey(1);
+
+            state.update("1");
+            snapshot(backend, 0L, streamFactory, sharedStateRegistry);
+            awaitMaterialization(backend);
+            state.update("2");
+            File aborted =
+                    getMaterializedFile(snapshot(backend, 1L, streamFactory, sharedStateRegistry));
+            listener.notifyCheckpointAborted(0L);
+            listener.notifyCheckpointAborted(1L);
+            // the materialization is still used by the next checkpoints
+            assertTrue(aborted.exists());
+
+            awaitMaterialization(backend);
+            state.update("3");
+            File completed =
+                    getMaterializedFile(snapshot(backend, 2L, streamFactory, sharedStateRegistry));
+            listener.notifyCheckpointComplete(2L);
+            // the discard runs before the materialization started by the last checkpoint
+            awaitMaterialization(backend);
+            assertFalse(aborted.exists());
+
+            snapshot(backend, 3L, streamFactory, sharedStateRegistry);
+            assertTrue(completed.exists());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    private static File getMaterializedFile(ChangelogStateBackendHandle snapshot) {
+        KeyGroupsStateHandle materialized =
+                (KeyGroupsStateHandle) snapshot.getMaterializedStateHandles().get(0);
+        return new File(
+                ((FileStateHandle) materialized.getDelegateStateHandle()).getFilePath().getPath());
+    }
+
+    private static void awaitMaterialization(CheckpointableKeyedStateBackend<?> backend)
+            throws Exception {
+        ((ChangelogKeyedStateBackend<?>) backend)
+                .getPendingMaterialization()
+                .get(1L, TimeUnit.MINUTES);
+    }
+
+    private ChangelogStateBackendHandle snapshot(
+            CheckpointableKeyedStateBackend<Integer> backend,
+            long checkpointId,
+            CheckpointStreamFactory streamFactory,
+            SharedStateRegistry sharedStateRegistry)
+            throws Exception {
+        return (ChangelogStateBackendHandle)
+                runSnapshot(
+                        backend.snapshot(
+                                checkpointId,
+                                0L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation()),
+                        sharedStateRegistry);
+    }
+}
@@ -122,6 +122,9 @@ class TestChangeLoggerKv<State> implements KvStateChangeLogger<State, String> {
         stateMerged = true;
     }
 
+    @Override
+    public void resetWritingMetaFlag() {}
+
     public boolean anythingChanged() {
         return stateUpdated
                 || stateUpdatedInternal
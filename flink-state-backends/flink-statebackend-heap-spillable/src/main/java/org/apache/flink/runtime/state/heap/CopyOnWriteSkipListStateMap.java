@@ -1305,6 +1305,11 @@ public final class CopyOnWriteSkipListStateMap<K, N, S> extends StateMap<K, N, S
         return closed.get();
     }
 
+    /** Returns whether a snapshot of this map was taken and not released yet. */
+    boolean hasRunningSnapshots() {
+        return resourceGuard.getLeaseCount() > 0;
+    }
+
     @Override
     public void close() {
         if (!closed.compareAndSet(false, true)) {
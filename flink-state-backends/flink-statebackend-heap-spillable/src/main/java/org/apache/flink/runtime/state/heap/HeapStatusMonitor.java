@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monitors the usage of the JVM heap. The usage is measured right after garbage collections, so
+ * that it reflects the live objects rather than the garbage which was not collected yet.
+ */
+class HeapStatusMonitor {
+
+    /** The heap memory pools which report their usage after garbage collections. */
+    private final List<MemoryPoolMXBean> heapMemoryPools;
+
+    private final List<GarbageCollectorMXBean> garbageCollectors;
+
+    HeapStatusMonitor() {
+        this.heapMemoryPools = new ArrayList<>();
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP
+                    && memoryPool.getCollectionUsage() != null) {
+                heapMemoryPools.add(memoryPool);
+            }
+        }
+        this.garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    /** Returns the total number of garbage collections so far. */
+    long getGarbageCollectionCount() {
+        long count = 0L;
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+            // -1 if undefined for the collector
+            count += Math.max(0L, garbageCollector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /** Returns the ratio of the maximum heap which was used after the last garbage collection. */
+    double getHeapUsageRatio() {
+        long maxHeapSize = Runtime.getRuntime().maxMemory();
+        if (heapMemoryPools.isEmpty()) {
+            return (double) (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory())
+                    / maxHeapSize;
+        }
+
+        long usedAfterGc = 0L;
+        for (MemoryPoolMXBean memoryPool : heapMemoryPools) {
+            MemoryUsage collectionUsage = memoryPool.getCollectionUsage();
+            if (collectionUsage != null) {
+                usedAfterGc += collectionUsage.getUsed();
+            }
+        }
+        return (double) usedAfterGc / maxHeapSize;
+    }
+}
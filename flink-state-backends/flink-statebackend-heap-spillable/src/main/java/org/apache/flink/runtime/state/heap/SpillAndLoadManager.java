@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.state.heap.space.Allocator;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Decides when the state of the {@link SpillableStateTable SpillableStateTables} of one backend is
+ * spilled to disk.
+ *
+ * <p>The tables report every state access to the manager, which checks the heap usage after a
+ * configured number of accesses. If the heap usage after the last garbage collection exceeds the
+ * threshold, the least accessed key groups of each table are moved from the heap into {@link
+ * CopyOnWriteSkipListStateMap CopyOnWriteSkipListStateMaps} whose space is allocated from disk.
+ * Spilled key groups are loaded back onto the heap by the tables when they are accessed.
+ *
+ * <p>All methods except {@link #close()} must be called by the task thread.
+ */
+class SpillAndLoadManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillAndLoadManager.class);
+
+    private final HeapStatusMonitor heapStatusMonitor;
+
+    /** The allocator for the space of the spilled state maps. */
+    private final Allocator spaceAllocator;
+
+    private final double heapUsageThreshold;
+
+    private final double spillRatio;
+
+    private final int checkInterval;
+
+    private final List<SpillableStateTable<?, ?, ?>> stateTables;
+
+    /** Spilled state maps which were loaded back, but may still be read by snapshots. */
+    private final List<CopyOnWriteSkipListStateMap<?, ?, ?>> retiredStateMaps;
+
+    private int accessesSinceLastCheck;
+
+    /** The garbage collection count when key groups were spilled the last time. */
+    private long garbageCollectionCountOfLastSpill;
+
+    SpillAndLoadManager(
+            HeapStatusMonitor heapStatusMonitor,
+            Allocator spaceAllocator,
+            double heapUsageThreshold,
+            double spillRatio,
+            int checkInterval) {
+        Preconditions.checkArgument(
+                heapUsageThreshold > 0 && heapUsageThreshold <= 1,
+                "The heap usage threshold must be in (0, 1], but is %s.",
+                heapUsageThreshold);
+        Preconditions.checkArgument(
+                spillRatio > 0 && spillRatio <= 1,
+                "The spill ratio must be in (0, 1], but is %s.",
+                spillRatio);
+        Preconditions.checkArgument(
+                checkInterval > 0,
+                "The check interval must be positive, but is %s.",
+                checkInterval);
+        this.heapStatusMonitor = Preconditions.checkNotNull(heapStatusMonitor);
+        this.spaceAllocator = Preconditions.checkNotNull(spaceAllocator);
+        this.heapUsageThreshold = heapUsageThreshold;
+        this.spillRatio = spillRatio;
+        this.checkInterval = checkInterval;
+        this.stateTables = new ArrayList<>();
+        this.retiredStateMaps = new ArrayList<>();
+        this.accessesSinceLastCheck = 0;
+        this.garbageCollectionCountOfLastSpill = -1L;
+    }
+
+    Allocator getSpaceAllocator() {
+        return spaceAllocator;
+    }
+
+    void registerStateTable(SpillableStateTable<?, ?, ?> stateTable) {
+        stateTables.add(stateTable);
+    }
+
+    /** Called by the tables before each state access. */
+    void onStateAccess() {
+        if (++accessesSinceLastCheck >= checkInterval) {
+            accessesSinceLastCheck = 0;
+            checkHeapUsage();
+        }
+    }
+
+    /**
+     * Hands over a spilled state map which was loaded back onto the heap. The map is closed as soon
+     * as no snapshot reads it anymore.
+     */
+    void retireStateMap(CopyOnWriteSkipListStateMap<?, ?, ?> stateMap) {
+        if (stateMap.hasRunningSnapshots()) {
+            retiredStateMaps.add(stateMap);
+        } else {
+            stateMap.close();
+        }
+    }
+
+    @VisibleForTesting
+    void checkHeapUsage() {
+        closeRetiredStateMaps();
+
+        // the heap usage only changes with a garbage collection, so we do not spill again
+        // before the effect of the last spilling was measured
+        long garbageCollectionCount = heapStatusMonitor.getGarbageCollectionCount();
+        if (garbageCollectionCount != garbageCollectionCountOfLastSpill) {
+            double heapUsageRatio = heapStatusMonitor.getHeapUsageRatio();
+            if (heapUsageRatio > heapUsageThreshold) {
+                LOG.debug(
+                        "Heap usage {} exceeds the threshold {}, spilling key groups to disk.",
+                        heapUsageRatio,
+                        heapUsageThreshold);
+                spillColdKeyGroups();
+                garbageCollectionCountOfLastSpill = garbageCollectionCount;
+            }
+        }
+
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            stateTable.decayAccessCounts();
+        }
+    }
+
+    private void spillColdKeyGroups() {
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            List<Integer> candidates = stateTable.getSpillCandidates();
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            candidates.sort(Comparator.comparingInt(stateTable::getAccessCount));
+            int numberOfKeyGroupsToSpill =
+                    (int) Math.max(1L, Math.round(candidates.size() * spillRatio));
+            for (int i = 0; i < numberOfKeyGroupsToSpill; i++) {
+                if (!stateTable.spillKeyGroup(candidates.get(i))) {
+                    // no space left on disk, give up for now
+                    return;
+                }
+            }
+        }
+    }
+
+    private void closeRetiredStateMaps() {
+        Iterator<CopyOnWriteSkipListStateMap<?, ?, ?>> iterator = retiredStateMaps.iterator();
+        while (iterator.hasNext()) {
+            CopyOnWriteSkipListStateMap<?, ?, ?> stateMap = iterator.next();
+            if (!stateMap.hasRunningSnapshots()) {
+                stateMap.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Closes all spilled state maps and the allocator. This waits for running snapshots of the
+     * spilled state maps, because their space is unmapped afterwards.
+     */
+    @Override
+    public void close() {
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            stateTable.closeSpilledStateMaps();
+        }
+        stateTables.clear();
+        for (CopyOnWriteSkipListStateMap<?, ?, ?> stateMap : retiredStateMaps) {
+            stateMap.close();
+        }
+        retiredStateMaps.clear();
+        IOUtils.closeQuietly(spaceAllocator);
+    }
+}
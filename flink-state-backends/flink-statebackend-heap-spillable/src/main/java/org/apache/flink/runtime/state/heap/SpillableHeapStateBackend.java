@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.Experimental;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.DefaultOperatorStateBackendBuilder;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.OperatorStateBackend;
+import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.heap.space.MmapAllocator;
+import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A state backend which holds the working state on the JVM heap like the {@link
+ * org.apache.flink.runtime.state.hashmap.HashMapStateBackend}, but spills the state of cold key
+ * groups to memory-mapped files on local disk when the heap usage after garbage collections exceeds
+ * {@link SpillableOptions#HEAP_USAGE_THRESHOLD}. Spilled key groups are loaded back onto the heap
+ * when they are accessed, so hot keys are served with heap latency while the state may grow beyond
+ * the size of the heap.
+ *
+ * <p>The files are placed in the temporary directories of the TaskManager. Snapshots are always
+ * asynchronous and use the same format as the {@link
+ * org.apache.flink.runtime.state.hashmap.HashMapStateBackend}, so both backends can restore each
+ * other's checkpoints and savepoints.
+ */
+@Experimental
+public class SpillableHeapStateBackend extends AbstractStateBackend
+        implements ConfigurableStateBackend {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double UNDEFINED_RATIO = -1.0;
+
+    private static final int UNDEFINED_CHECK_INTERVAL = -1;
+
+    /** The heap usage ratio above which key groups are spilled, or -1 if not configured. */
+    private double heapUsageThreshold = UNDEFINED_RATIO;
+
+    /** The ratio of key groups on the heap which are spilled at once, or -1 if not configured. */
+    private double spillRatio = UNDEFINED_RATIO;
+
+    /** The number of state accesses between heap checks, or -1 if not configured. */
+    private int checkInterval = UNDEFINED_CHECK_INTERVAL;
+
+    /** The size of the spill files, or null if not configured. */
+    @Nullable private MemorySize chunkSize;
+
+    // -----------------------------------------------------------------------
+
+    /** Creates a new state backend. */
+    public SpillableHeapStateBackend() {}
+
+    private SpillableHeapStateBackend(SpillableHeapStateBackend original, ReadableConfig config) {
+        // configure latency tracking
+        latencyTrackingConfigBuilder = original.latencyTrackingConfigBuilder.configure(config);
+
+        this.heapUsageThreshold =
+                original.heapUsageThreshold == UNDEFINED_RATIO
+                        ? config.get(SpillableOptions.HEAP_USAGE_THRESHOLD)
+                        : original.heapUsageThreshold;
+        this.spillRatio =
+                original.spillRatio == UNDEFINED_RATIO
+                        ? config.get(SpillableOptions.SPILL_RATIO)
+                        : original.spillRatio;
+        this.checkInterval =
+                original.checkInterval == UNDEFINED_CHECK_INTERVAL
+                        ? config.get(SpillableOptions.CHECK_INTERVAL)
+                        : original.checkInterval;
+        this.chunkSize =
+                original.chunkSize == null
+                        ? config.get(SpillableOptions.CHUNK_SIZE)
+                        : original.chunkSize;
+        checkChunkSize(chunkSize);
+    }
+
+    @Override
+    public SpillableHeapStateBackend configure(ReadableConfig config, ClassLoader classLoader)
+            throws IllegalConfigurationException {
+        return new SpillableHeapStateBackend(this, config);
+    }
+
+    // -----------------------------------------------------------------------
+    //  Parameters
+    // -----------------------------------------------------------------------
+
+    /** Sets the ratio of the JVM heap above which the state of cold key groups is spilled. */
+    public void setHeapUsageThreshold(double heapUsageThreshold) {
+        Preconditions.checkArgument(
+                heapUsageThreshold > 0 && heapUsageThreshold <= 1,
+                "The heap usage threshold must be in (0, 1].");
+        this.heapUsageThreshold = heapUsageThreshold;
+    }
+
+    public double getHeapUsageThreshold() {
+        return heapUsageThreshold == UNDEFINED_RATIO
+                ? SpillableOptions.HEAP_USAGE_THRESHOLD.defaultValue()
+                : heapUsageThreshold;
+    }
+
+    /** Sets the ratio of the key groups on the heap which are spilled at once. */
+    public void setSpillRatio(double spillRatio) {
+        Preconditions.checkArgument(
+                spillRatio > 0 && spillRatio <= 1, "The spill ratio must be in (0, 1].");
+        this.spillRatio = spillRatio;
+    }
+
+    public double getSpillRatio() {
+        return spillRatio == UNDEFINED_RATIO
+                ? SpillableOptions.SPILL_RATIO.defaultValue()
+                : spillRatio;
+    }
+
+    public int getCheckInterval() {
+        return checkInterval == UNDEFINED_CHECK_INTERVAL
+                ? SpillableOptions.CHECK_INTERVAL.defaultValue()
+                : checkInterval;
+    }
+
+    public MemorySize getChunkSize() {
+        return chunkSize == null ? SpillableOptions.CHUNK_SIZE.defaultValue() : chunkSize;
+    }
+
+    private static void checkChunkSize(MemorySize chunkSize) {
+        if (chunkSize.getBytes() > Integer.MAX_VALUE
+                || !MathUtils.isPowerOf2(chunkSize.getBytes())) {
+            throw new IllegalConfigurationException(
+                    "The chunk size of the spillable heap state backend must be a power of two "
+                            + "of at most 1 gb, but is "
+                            + chunkSize.toHumanReadableString());
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    //  State holding data structures
+    // -----------------------------------------------------------------------
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws IOException {
+
+        LocalRecoveryConfig localRecoveryConfig =
+                env.getTaskStateManager().createLocalRecoveryConfig();
+        HeapPriorityQueueSetFactory priorityQueueSetFactory =
+                new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+        LatencyTrackingStateConfig latencyTrackingStateConfig =
+                latencyTrackingConfigBuilder.setMetricGroup(metricGroup).build();
+
+        SpillAndLoadManager spillAndLoadManager =
+                new SpillAndLoadManager(
+                        new HeapStatusMonitor(),
+                        new MmapAllocator(
+                                getSpillDirectory(env, jobID, operatorIdentifier),
+                                (int) getChunkSize().getBytes()),
+                        getHeapUsageThreshold(),
+                        getSpillRatio(),
+                        getCheckInterval());
+
+        return new HeapKeyedStateBackendBuilder<>(
+                        kvStateRegistry,
+                        keySerializer,
+                        env.getUserCodeClassLoader().asClassLoader(),
+                        numberOfKeyGroups,
+                        keyGroupRange,
+                        env.getExecutionConfig(),
+                        ttlTimeProvider,
+                        latencyTrackingStateConfig,
+                        stateHandles,
+                        getCompressionDecorator(env.getExecutionConfig()),
+                        localRecoveryConfig,
+                        priorityQueueSetFactory,
+                        true,
+                        cancelStreamRegistry)
+                .setStateTableFactory(new SpillableStateTableFactory<>(spillAndLoadManager))
+                .registerBackendResource(spillAndLoadManager)
+                .build();
+    }
+
+    @Override
+    public OperatorStateBackend createOperatorStateBackend(
+            Environment env,
+            String operatorIdentifier,
+            @Nonnull Collection<OperatorStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws BackendBuildingException {
+
+        return new DefaultOperatorStateBackendBuilder(
+                        env.getUserCodeClassLoader().asClassLoader(),
+                        env.getExecutionConfig(),
+                        true,
+                        stateHandles,
+                        cancelStreamRegistry)
+                .build();
+    }
+
+    private static File getSpillDirectory(Environment env, JobID jobID, String operatorIdentifier) {
+        File[] tmpDirectories = env.getIOManager().getSpillingDirectories();
+        File tmpDirectory =
+                tmpDirectories[ThreadLocalRandom.current().nextInt(tmpDirectories.length)];
+        String fileCompatibleIdentifier = operatorIdentifier.replaceAll("[^a-zA-Z0-9\\-]", "_");
+        return new File(
+                tmpDirectory,
+                "spillable-state_job_"
+                        + jobID
+                        + "_op_"
+                        + fileCompatibleIdentifier
+                        + "_uuid_"
+                        + UUID.randomUUID());
+    }
+}
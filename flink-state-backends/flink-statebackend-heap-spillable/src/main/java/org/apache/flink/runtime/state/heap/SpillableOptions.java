@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+/** Configuration options for the {@link SpillableHeapStateBackend}. */
+public class SpillableOptions {
+
+    /** The ratio of the JVM heap above which cold key groups are spilled to disk. */
+    public static final ConfigOption<Double> HEAP_USAGE_THRESHOLD =
+            ConfigOptions.key("state.backend.spillable.heap-usage-threshold")
+                    .doubleType()
+                    .defaultValue(0.7)
+                    .withDescription(
+                            "The ratio of the maximum JVM heap which may be occupied after a garbage "
+                                    + "collection before the spillable heap state backend spills "
+                                    + "the state of cold key groups to disk.");
+
+    /** The ratio of the key groups on the JVM heap which are spilled at once. */
+    public static final ConfigOption<Double> SPILL_RATIO =
+            ConfigOptions.key("state.backend.spillable.spill-ratio")
+                    .doubleType()
+                    .defaultValue(0.2)
+                    .withDescription(
+                            "The ratio of the non-empty key groups on the JVM heap of a state which "
+                                    + "are spilled to disk when the heap usage exceeds the "
+                                    + "threshold. The least accessed key groups are spilled first.");
+
+    /** The number of state accesses between two checks of the heap usage. */
+    public static final ConfigOption<Integer> CHECK_INTERVAL =
+            ConfigOptions.key("state.backend.spillable.check-interval")
+                    .intType()
+                    .defaultValue(10000)
+                    .withDescription(
+                            "The number of state accesses after which the spillable heap state "
+                                    + "backend checks the heap usage. Key groups are spilled at "
+                                    + "most once per garbage collection.");
+
+    /** The size of the memory-mapped files into which the state is spilled. */
+    public static final ConfigOption<MemorySize> CHUNK_SIZE =
+            ConfigOptions.key("state.backend.spillable.chunk-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("64mb"))
+                    .withDescription(
+                            "The size of the memory-mapped files into which the spillable heap "
+                                    + "state backend spills state. The size must be a power of two.");
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_LOGICAL_REMOVED_KEYS_RATIO;
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME;
+
+/**
+ * This implementation of {@link StateTable} keeps the state of each key group either on the heap in
+ * a {@link CopyOnWriteStateMap}, or spilled to disk in a {@link CopyOnWriteSkipListStateMap}. The
+ * {@link SpillAndLoadManager} decides which key groups are spilled, and a spilled key group is
+ * loaded back onto the heap when its state is accessed. The state objects handed out by this table
+ * are therefore always heap objects, which list and map states may modify in place.
+ *
+ * <p>Spilling never moves the key group of the current key, whose state objects may still be in use
+ * by the caller.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+public class SpillableStateTable<K, N, S> extends StateTable<K, N, S> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillableStateTable.class);
+
+    private final SpillAndLoadManager spillAndLoadManager;
+
+    /** The number of accesses of each key group, decayed at each check of the manager. */
+    private final int[] accessCounts;
+
+    SpillableStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer,
+            SpillAndLoadManager spillAndLoadManager) {
+        super(keyContext, metaInfo, keySerializer);
+        this.spillAndLoadManager = spillAndLoadManager;
+        this.accessCounts = new int[keyGroupedStateMaps.length];
+        spillAndLoadManager.registerStateTable(this);
+    }
+
+    @Override
+    protected CopyOnWriteStateMap<K, N, S> createStateMap() {
+        return new CopyOnWriteStateMap<>(getStateSerializer());
+    }
+
+    @Override
+    public StateMap<K, N, S> getMapForKeyGroup(int keyGroupIndex) {
+        // spilling happens before the map is resolved, so the returned map stays valid
+        spillAndLoadManager.onStateAccess();
+
+        final int pos = keyGroupIndex - keyGroupOffset;
+        if (pos < 0 || pos >= keyGroupedStateMaps.length) {
+            return null;
+        }
+        accessCounts[pos]++;
+        if (isSpilled(pos)) {
+            loadKeyGroup(pos);
+        }
+        return keyGroupedStateMaps[pos];
+    }
+
+    @Override
+    public void migrateStateSerializer(TypeSerializer<S> previousStateSerializer) {
+        // spilled maps are serialized with the previous serializer, so we bring them back to
+        // the heap and spill them with the new serializer if necessary
+        for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+            if (isSpilled(pos)) {
+                loadKeyGroup(pos);
+            }
+        }
+    }
+
+    // Spilling and loading -----------------------------------------------------------------------
+
+    /** Returns the positions of the key groups on the heap which may be spilled. */
+    List<Integer> getSpillCandidates() {
+        int currentPos = keyContext.getCurrentKeyGroupIndex() - keyGroupOffset;
+        List<Integer> candidates = new ArrayList<>();
+        for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+            if (pos != currentPos && !isSpilled(pos) && keyGroupedStateMaps[pos].size() > 0) {
+                candidates.add(pos);
+            }
+        }
+        return candidates;
+    }
+
+    int getAccessCount(int pos) {
+        return accessCounts[pos];
+    }
+
+    void decayAccessCounts() {
+        for (int pos = 0; pos < accessCounts.length; pos++) {
+            accessCounts[pos] >>>= 1;
+        }
+    }
+
+    /**
+     * Moves the state of the key group at the given position from the heap to disk.
+     *
+     * @return false if the state could not be spilled because the disk space is exhausted.
+     */
+    boolean spillKeyGroup(int pos) {
+        StateMap<K, N, S> heapStateMap = keyGroupedStateMaps[pos];
+        CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap =
+                new CopyOnWriteSkipListStateMap<>(
+                        getKeySerializer(),
+                        getNamespaceSerializer(),
+                        getStateSerializer(),
+                        spillAndLoadManager.getSpaceAllocator(),
+                        DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME,
+                        DEFAULT_LOGICAL_REMOVED_KEYS_RATIO);
+        try {
+            for (StateEntry<K, N, S> entry : heapStateMap) {
+                spilledStateMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+            }
+        } catch (FlinkRuntimeException e) {
+            LOG.warn(
+                    "Failed to spill key group {} of state {}, keeping it on the heap.",
+                    pos + keyGroupOffset,
+                    metaInfo.getName(),
+                    e);
+            spilledStateMap.close();
+            return false;
+        }
+        keyGroupedStateMaps[pos] = spilledStateMap;
+        return true;
+    }
+
+    /** Moves the state of the spilled key group at the given position back onto the heap. */
+    private void loadKeyGroup(int pos) {
+        CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap =
+                (CopyOnWriteSkipListStateMap<K, N, S>) keyGroupedStateMaps[pos];
+        CopyOnWriteStateMap<K, N, S> heapStateMap = createStateMap();
+        for (StateEntry<K, N, S> entry : spilledStateMap) {
+            heapStateMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+        }
+        keyGroupedStateMaps[pos] = heapStateMap;
+        spillAndLoadManager.retireStateMap(spilledStateMap);
+    }
+
+    private boolean isSpilled(int pos) {
+        return keyGroupedStateMaps[pos] instanceof CopyOnWriteSkipListStateMap;
+    }
+
+    /** Closes the spilled state maps, waiting for their running snapshots. */
+    void closeSpilledStateMaps() {
+        for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+            if (isSpilled(pos)) {
+                ((CopyOnWriteSkipListStateMap<K, N, S>) keyGroupedStateMaps[pos]).close();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getNumberOfSpilledKeyGroups() {
+        int numberOfSpilledKeyGroups = 0;
+        for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+            if (isSpilled(pos)) {
+                numberOfSpilledKeyGroups++;
+            }
+        }
+        return numberOfSpilledKeyGroups;
+    }
+
+    // Snapshotting ----------------------------------------------------------------------------
+
+    @Override
+    public SpillableStateTableSnapshot<K, N, S> stateSnapshot() {
+        return new SpillableStateTableSnapshot<>(
+                this,
+                getKeySerializer().duplicate(),
+                getNamespaceSerializer().duplicate(),
+                getStateSerializer().duplicate(),
+                getMetaInfo()
+                        .getStateSnapshotTransformFactory()
+                        .createForDeserializedState()
+                        .orElse(null));
+    }
+
+    List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> getStateMapSnapshotList() {
+        List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> snapshotList =
+                new ArrayList<>(keyGroupedStateMaps.length);
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            snapshotList.add(stateMap.stateSnapshot());
+        }
+        return snapshotList;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.FileUtils;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_BITS;
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_MARK;
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * Implementation of {@link Allocator} which allocates space from memory-mapped files in a local
+ * directory, so that the allocated space is backed by disk instead of the JVM heap.
+ *
+ * <p>Allocations are rounded up to a power of two, and each chunk serves allocations of one size
+ * only. Allocations larger than the chunk size get a dedicated chunk. A chunk is unmapped and its
+ * file is deleted once all of its space was freed, except for the last chunk of each size.
+ *
+ * <p>Space may be freed by the threads of asynchronous snapshots, so this class is thread-safe.
+ */
+public class MmapAllocator implements Allocator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MmapAllocator.class);
+
+    /** The smallest unit of allocation. */
+    static final int MIN_SLOT_SIZE = 32;
+
+    private static final int MIN_SLOT_SIZE_BITS = MathUtils.log2strict(MIN_SLOT_SIZE);
+
+    /** Directory of the files of the chunks. */
+    private final File directory;
+
+    /** Size of the chunks for allocations up to this size. */
+    private final int chunkSize;
+
+    /** Chunks indexed by their id. Read without lock, replaced on growth. */
+    private volatile MmapChunk[] chunks;
+
+    /** Chunks with free slots, indexed by the binary logarithm of their slot size. */
+    @GuardedBy("this")
+    private final ArrayDeque<MmapChunk>[] availableChunks;
+
+    /** Ids of released chunks, which are reused by new chunks. */
+    @GuardedBy("this")
+    private final ArrayDeque<Integer> freeChunkIds;
+
+    @GuardedBy("this")
+    private int nextChunkId;
+
+    /** The total size of all chunks in bytes. */
+    @GuardedBy("this")
+    private long totalSpaceSize;
+
+    @GuardedBy("this")
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public MmapAllocator(File directory, int chunkSize) throws IOException {
+        Preconditions.checkArgument(
+                MathUtils.isPowerOf2(chunkSize) && chunkSize >= MIN_SLOT_SIZE,
+                "Chunk size must be a power of two of at least %s bytes, but is %s.",
+                MIN_SLOT_SIZE,
+                chunkSize);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create the spill directory " + directory);
+        }
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.chunks = new MmapChunk[16];
+        this.availableChunks =
+                new ArrayDeque[MathUtils.log2strict(chunkSize) - MIN_SLOT_SIZE_BITS + 1];
+        for (int i = 0; i < availableChunks.length; i++) {
+            availableChunks[i] = new ArrayDeque<>();
+        }
+        this.freeChunkIds = new ArrayDeque<>();
+        this.nextChunkId = 0;
+        this.totalSpaceSize = 0L;
+        this.closed = false;
+    }
+
+    @Override
+    public synchronized long allocate(int size) throws Exception {
+        Preconditions.checkState(!closed, "The allocator is already closed.");
+        Preconditions.checkArgument(size > 0, "Can't allocate %s bytes.", size);
+
+        if (size > chunkSize) {
+            MmapChunk chunk = createChunk(size, size);
+            return toAddress(chunk, chunk.allocate(size));
+        }
+
+        int slotSize = Math.max(MIN_SLOT_SIZE, MathUtils.roundUpToPowerOfTwo(size));
+        ArrayDeque<MmapChunk> chunksOfSlotSize = availableChunks[getSlotSizeIndex(slotSize)];
+        MmapChunk chunk = chunksOfSlotSize.peek();
+        if (chunk == null) {
+            chunk = createChunk(chunkSize, slotSize);
+            chunk.setAvailable(true);
+            chunksOfSlotSize.push(chunk);
+        }
+
+        int offset = chunk.allocate(size);
+        if (!chunk.hasFreeSlots()) {
+            chunksOfSlotSize.poll();
+            chunk.setAvailable(false);
+        }
+        return toAddress(chunk, offset);
+    }
+
+    @Override
+    public synchronized void free(long address) {
+        if (closed) {
+            return;
+        }
+
+        MmapChunk chunk = getChunkById(SpaceUtils.getChunkIdByAddress(address));
+        chunk.free(SpaceUtils.getChunkOffsetByAddress(address));
+
+        if (chunk.getChunkCapacity() > chunkSize) {
+            // dedicated chunk of a large allocation
+            releaseChunk(chunk);
+            return;
+        }
+
+        ArrayDeque<MmapChunk> chunksOfSlotSize =
+                availableChunks[getSlotSizeIndex(chunk.getSlotSize())];
+        if (chunk.isEmpty() && chunksOfSlotSize.size() > 1) {
+            if (chunk.isAvailable()) {
+                chunksOfSlotSize.remove(chunk);
+            }
+            releaseChunk(chunk);
+        } else if (!chunk.isAvailable()) {
+            chunk.setAvailable(true);
+            chunksOfSlotSize.push(chunk);
+        }
+    }
+
+    @Override
+    public MmapChunk getChunkById(int chunkId) {
+        MmapChunk[] currentChunks = chunks;
+        MmapChunk chunk = chunkId < currentChunks.length ? currentChunks[chunkId] : null;
+        Preconditions.checkNotNull(chunk, "chunk %s does not exist.", chunkId);
+        return chunk;
+    }
+
+    /** Returns the total size of the chunks in bytes, which is the size of the spilled files. */
+    public synchronized long getTotalSpaceSize() {
+        return totalSpaceSize;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (MmapChunk chunk : chunks) {
+            if (chunk != null) {
+                try {
+                    chunk.release();
+                } catch (IOException e) {
+                    LOG.warn("Failed to release chunk {}.", chunk.getChunkId(), e);
+                }
+            }
+        }
+        chunks = new MmapChunk[0];
+        for (ArrayDeque<MmapChunk> chunksOfSlotSize : availableChunks) {
+            chunksOfSlotSize.clear();
+        }
+        totalSpaceSize = 0L;
+        FileUtils.deleteDirectoryQuietly(directory);
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfChunks() {
+        int numberOfChunks = 0;
+        for (MmapChunk chunk : chunks) {
+            if (chunk != null) {
+                numberOfChunks++;
+            }
+        }
+        return numberOfChunks;
+    }
+
+    // ------------------------------------------------------------------------
+
+    @GuardedBy("this")
+    private MmapChunk createChunk(int capacity, int slotSize) throws IOException {
+        Integer freeChunkId = freeChunkIds.poll();
+        int chunkId = freeChunkId != null ? freeChunkId : nextChunkId++;
+        MmapChunk chunk =
+                MmapChunk.create(
+                        chunkId,
+                        capacity,
+                        slotSize,
+                        new File(directory, "chunk-" + chunkId).toPath());
+
+        MmapChunk[] currentChunks = chunks;
+        if (chunkId >= currentChunks.length) {
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
+        }
+        currentChunks[chunkId] = chunk;
+        // publish the chunk to readers of getChunkById
+        chunks = currentChunks;
+        totalSpaceSize += capacity;
+        return chunk;
+    }
+
+    @GuardedBy("this")
+    private void releaseChunk(MmapChunk chunk) {
+        MmapChunk[] currentChunks = chunks;
+        currentChunks[chunk.getChunkId()] = null;
+        chunks = currentChunks;
+        freeChunkIds.push(chunk.getChunkId());
+        totalSpaceSize -= chunk.getChunkCapacity();
+        try {
+            chunk.release();
+        } catch (IOException e) {
+            LOG.warn("Failed to release chunk {}.", chunk.getChunkId(), e);
+        }
+    }
+
+    private static int getSlotSizeIndex(int slotSize) {
+        return MathUtils.log2strict(slotSize) - MIN_SLOT_SIZE_BITS;
+    }
+
+    private static long toAddress(MmapChunk chunk, int offset) {
+        Preconditions.checkState(
+                offset != NO_SPACE, "Chunk %s has no free space.", chunk.getChunkId());
+        return ((chunk.getChunkId() & FOUR_BYTES_MARK) << FOUR_BYTES_BITS)
+                | (offset & FOUR_BYTES_MARK);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.util.Preconditions;
+
+import org.apache.flink.shaded.netty4.io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * A {@link Chunk} backed by a memory-mapped file. The chunk is divided into slots of the same size,
+ * and each allocation takes one slot. Freed slots are reused by later allocations.
+ *
+ * <p>This class is not thread-safe, the {@link MmapAllocator} synchronizes the access.
+ */
+final class MmapChunk implements Chunk {
+
+    private final int chunkId;
+
+    private final int capacity;
+
+    private final int slotSize;
+
+    /** The file which backs this chunk. */
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private final MemorySegment segment;
+
+    /** Offsets of freed slots, which are reused before new slots are taken. */
+    private int[] freeSlots;
+
+    private int numberOfFreeSlots;
+
+    /** Offset of the first slot which was never allocated. */
+    private int nextSlotOffset;
+
+    private int numberOfUsedSlots;
+
+    /** Whether the allocator considers this chunk for allocations of its slot size. */
+    private boolean available;
+
+    private MmapChunk(int chunkId, int capacity, int slotSize, Path file, MappedByteBuffer buffer) {
+        this.chunkId = chunkId;
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+        this.file = file;
+        this.buffer = buffer;
+        this.segment = MemorySegmentFactory.wrapOffHeapMemory(buffer);
+        this.freeSlots = new int[16];
+        this.numberOfFreeSlots = 0;
+        this.nextSlotOffset = 0;
+        this.numberOfUsedSlots = 0;
+        this.available = false;
+    }
+
+    /**
+     * Creates a chunk of the given capacity, which is backed by a new file with the given path.
+     *
+     * @param chunkId id of the chunk.
+     * @param capacity size of the chunk in bytes.
+     * @param slotSize size of the slots of the chunk in bytes.
+     * @param file path of the file to create.
+     * @throws IOException if the file can not be created or mapped.
+     */
+    static MmapChunk create(int chunkId, int capacity, int slotSize, Path file) throws IOException {
+        Preconditions.checkArgument(
+                slotSize > 0 && slotSize <= capacity,
+                "Slot size %s must be positive and not larger than the capacity %s.",
+                slotSize,
+                capacity);
+        try (FileChannel fileChannel =
+                FileChannel.open(
+                        file,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new MmapChunk(chunkId, capacity, slotSize, file, buffer);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public int allocate(int len) {
+        Preconditions.checkArgument(
+                len <= slotSize, "Can't allocate %s bytes from slots of %s bytes.", len, slotSize);
+        int offset;
+        if (numberOfFreeSlots > 0) {
+            offset = freeSlots[--numberOfFreeSlots];
+        } else if (nextSlotOffset <= capacity - slotSize) {
+            offset = nextSlotOffset;
+            nextSlotOffset += slotSize;
+        } else {
+            return NO_SPACE;
+        }
+        numberOfUsedSlots++;
+        return offset;
+    }
+
+    @Override
+    public void free(int interChunkOffset) {
+        if (numberOfFreeSlots == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[numberOfFreeSlots++] = interChunkOffset;
+        numberOfUsedSlots--;
+    }
+
+    @Override
+    public int getChunkId() {
+        return chunkId;
+    }
+
+    @Override
+    public int getChunkCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public MemorySegment getMemorySegment(int chunkOffset) {
+        return segment;
+    }
+
+    @Override
+    public int getOffsetInSegment(int offsetInChunk) {
+        return offsetInChunk;
+    }
+
+    int getSlotSize() {
+        return slotSize;
+    }
+
+    /** Returns whether another slot can be allocated from this chunk. */
+    boolean hasFreeSlots() {
+        return numberOfFreeSlots > 0 || nextSlotOffset <= capacity - slotSize;
+    }
+
+    /** Returns whether no slot of this chunk is allocated. */
+    boolean isEmpty() {
+        return numberOfUsedSlots == 0;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /**
+     * Unmaps the chunk and deletes its file. After calling this method, access to the memory of
+     * this chunk will cause a segmentation fault.
+     */
+    void release() throws IOException {
+        segment.free();
+        PlatformDependent.freeDirectBuffer(buffer);
+        // the file can only be deleted on all platforms after it was unmapped
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
+import org.apache.flink.runtime.state.heap.space.MmapAllocator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link SpillableStateTable} and {@link SpillAndLoadManager}. */
+public class SpillableStateTableTest extends TestLogger {
+
+    private static final int NUMBER_OF_KEY_GROUPS = 16;
+
+    private static final int NUMBER_OF_KEYS = 1000;
+
+    @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private TestHeapStatusMonitor heapStatusMonitor;
+
+    private MmapAllocator allocator;
+
+    private SpillAndLoadManager spillAndLoadManager;
+
+    private MockInternalKeyContext<Integer> keyContext;
+
+    private RegisteredKeyValueStateBackendMetaInfo<Integer, String> metaInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        heapStatusMonitor = new TestHeapStatusMonitor();
+        allocator = new MmapAllocator(tmp.newFolder(), 64 * 1024);
+        spillAndLoadManager =
+                new SpillAndLoadManager(heapStatusMonitor, allocator, 0.5, 0.5, 1000000);
+        keyContext =
+                new MockInternalKeyContext<>(0, NUMBER_OF_KEY_GROUPS - 1, NUMBER_OF_KEY_GROUPS);
+        metaInfo =
+                new RegisteredKeyValueStateBackendMetaInfo<>(
+                        StateDescriptor.Type.VALUE,
+                        "test",
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE);
+    }
+
+    @After
+    public void tearDown() {
+        spillAndLoadManager.close();
+    }
+
+    /** Test that cold key groups are only spilled when the heap usage exceeds the threshold. */
+    @Test
+    public void testSpillOnHighHeapUsage() {
+        SpillableStateTable<Integer, Integer, String> table = createFilledStateTable();
+
+        heapStatusMonitor.heapUsageRatio = 0.3;
+        heapStatusMonitor.garbageCollectionCount++;
+        spillAndLoadManager.checkHeapUsage();
+        assertEquals(0, table.getNumberOfSpilledKeyGroups());
+
+        heapStatusMonitor.heapUsageRatio = 0.9;
+        heapStatusMonitor.garbageCollectionCount++;
+        spillAndLoadManager.checkHeapUsage();
+        // half of the key groups, except the one of the current key
+        assertEquals(8, table.getNumberOfSpilledKeyGroups());
+        assertTrue(allocator.getTotalSpaceSize() > 0);
+
+        // no new garbage collection, so the effect of the last spill is not known yet
+        spillAndLoadManager.checkHeapUsage();
+        assertEquals(8, table.getNumberOfSpilledKeyGroups());
+
+        heapStatusMonitor.garbageCollectionCount++;
+        spillAndLoadManager.checkHeapUsage();
+        assertEquals(12, table.getNumberOfSpilledKeyGroups());
+
+        verifyContent(table);
+    }
+
+    /** Test that accessing a spilled key group loads it back onto the heap. */
+    @Test
+    public void testLoadOnAccess() {
+        SpillableStateTable<Integer, Integer, String> table = createFilledStateTable();
+        for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+            assertTrue(table.spillKeyGroup(pos));
+        }
+        assertEquals(NUMBER_OF_KEY_GROUPS, table.getNumberOfSpilledKeyGroups());
+
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            keyContext.setCurrentKeyAndKeyGroup(key);
+            table.put(key % 3, String.valueOf(key + 1));
+        }
+        assertEquals(0, table.getNumberOfSpilledKeyGroups());
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            assertEquals(String.valueOf(key + 1), table.get(key, key % 3));
+        }
+    }
+
+    /** Test snapshots of a table with both heap and spilled key groups. */
+    @Test
+    public void testSnapshotWithSpilledKeyGroups() throws Exception {
+        SpillableStateTable<Integer, Integer, String> table = createFilledStateTable();
+        for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos += 2) {
+            assertTrue(table.spillKeyGroup(pos));
+        }
+
+        SpillableStateTableSnapshot<Integer, Integer, String> snapshot = table.stateSnapshot();
+
+        // loading the spilled key groups back must not affect the running snapshot
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            keyContext.setCurrentKeyAndKeyGroup(key);
+            table.remove(key % 3);
+        }
+        assertEquals(0, table.getNumberOfSpilledKeyGroups());
+        assertEquals(0, table.size());
+
+        SpillableStateTable<Integer, Integer, String> restoredTable =
+                new SpillableStateTable<>(
+                        keyContext, metaInfo, IntSerializer.INSTANCE, spillAndLoadManager);
+        restoreStateTableFromSnapshot(restoredTable, snapshot);
+        snapshot.release();
+
+        verifyContent(restoredTable);
+    }
+
+    private SpillableStateTable<Integer, Integer, String> createFilledStateTable() {
+        SpillableStateTable<Integer, Integer, String> table =
+                new SpillableStateTable<>(
+                        keyContext, metaInfo, IntSerializer.INSTANCE, spillAndLoadManager);
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            keyContext.setCurrentKeyAndKeyGroup(key);
+            table.put(key % 3, String.valueOf(key));
+        }
+        keyContext.setCurrentKeyAndKeyGroup(0);
+        return table;
+    }
+
+    private static void verifyContent(SpillableStateTable<Integer, Integer, String> table) {
+        assertEquals(NUMBER_OF_KEYS, table.size());
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            assertEquals(String.valueOf(key), table.get(key, key % 3));
+        }
+    }
+
+    private void restoreStateTableFromSnapshot(
+            StateTable<Integer, Integer, String> stateTable, StateSnapshot snapshot)
+            throws Exception {
+        ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos(1024 * 1024);
+        DataOutputViewStreamWrapper dov = new DataOutputViewStreamWrapper(out);
+        StateSnapshot.StateKeyGroupWriter keyGroupPartitionedSnapshot =
+                snapshot.getKeyGroupWriter();
+        for (Integer keyGroup : keyContext.getKeyGroupRange()) {
+            keyGroupPartitionedSnapshot.writeStateInKeyGroup(dov, keyGroup);
+        }
+
+        DataInputViewStreamWrapper div =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(out.getBuf()));
+        StateSnapshotKeyGroupReader keyGroupReader =
+                StateTableByKeyGroupReaders.readerForVersion(
+                        stateTable, KeyedBackendSerializationProxy.VERSION);
+        for (Integer keyGroup : keyContext.getKeyGroupRange()) {
+            keyGroupReader.readMappingsInKeyGroup(div, keyGroup);
+        }
+    }
+
+    /** A {@link HeapStatusMonitor} which reports the heap status set by the test. */
+    private static class TestHeapStatusMonitor extends HeapStatusMonitor {
+
+        private long garbageCollectionCount;
+
+        private double heapUsageRatio;
+
+        @Override
+        long getGarbageCollectionCount() {
+            return garbageCollectionCount;
+        }
+
+        @Override
+        double getHeapUsageRatio() {
+            return heapUsageRatio;
+        }
+    }
+}
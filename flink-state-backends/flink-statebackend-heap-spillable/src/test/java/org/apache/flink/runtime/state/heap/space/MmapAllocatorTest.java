@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link MmapAllocator}. */
+public class MmapAllocatorTest extends TestLogger {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private File directory;
+
+    private MmapAllocator allocator;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(tmp.getRoot(), "spill");
+        allocator = new MmapAllocator(directory, CHUNK_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        allocator.close();
+    }
+
+    /** Test that allocated spaces do not overlap and keep their content. */
+    @Test
+    public void testAllocateAndWrite() throws Exception {
+        List<Long> addresses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long address = allocator.allocate(8 + i % 100);
+            writeLong(address, i);
+            addresses.add(address);
+        }
+        for (int i = 0; i < addresses.size(); i++) {
+            assertEquals(i, readLong(addresses.get(i)));
+        }
+        assertTrue(allocator.getTotalSpaceSize() > 0);
+    }
+
+    /** Test that freed space is reused and empty chunks are released. */
+    @Test
+    public void testFreeAndReuse() throws Exception {
+        List<Long> addresses = new ArrayList<>();
+        // 10 chunks of 32 byte slots
+        for (int i = 0; i < 10 * CHUNK_SIZE / 32; i++) {
+            addresses.add(allocator.allocate(32));
+        }
+        assertEquals(10, allocator.getNumberOfChunks());
+
+        for (long address : addresses) {
+            allocator.free(address);
+        }
+        // the last chunk of a slot size is kept
+        assertEquals(1, allocator.getNumberOfChunks());
+        assertEquals(CHUNK_SIZE, allocator.getTotalSpaceSize());
+
+        long address = allocator.allocate(20);
+        assertEquals(1, allocator.getNumberOfChunks());
+        allocator.free(address);
+    }
+
+    /** Test that allocations larger than the chunk size get a dedicated chunk. */
+    @Test
+    public void testLargeAllocation() throws Exception {
+        long address = allocator.allocate(3 * CHUNK_SIZE + 5);
+        assertEquals(3 * CHUNK_SIZE + 5, allocator.getTotalSpaceSize());
+        writeLong(address, 42L);
+        assertEquals(42L, readLong(address));
+
+        allocator.free(address);
+        assertEquals(0, allocator.getNumberOfChunks());
+        assertEquals(0L, allocator.getTotalSpaceSize());
+    }
+
+    /** Test that closing the allocator deletes all files. */
+    @Test
+    public void testClose() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            allocator.allocate(1000);
+        }
+        assertTrue(directory.list().length > 0);
+
+        allocator.close();
+        assertFalse(directory.exists());
+    }
+
+    private void writeLong(long address, long value) {
+        Chunk chunk = allocator.getChunkById(SpaceUtils.getChunkIdByAddress(address));
+        int offsetInChunk = SpaceUtils.getChunkOffsetByAddress(address);
+        MemorySegment segment = chunk.getMemorySegment(offsetInChunk);
+        segment.putLong(chunk.getOffsetInSegment(offsetInChunk), value);
+    }
+
+    private long readLong(long address) {
+        Chunk chunk = allocator.getChunkById(SpaceUtils.getChunkIdByAddress(address));
+        int offsetInChunk = SpaceUtils.getChunkOffsetByAddress(address);
+        MemorySegment segment = chunk.getMemorySegment(offsetInChunk);
+        return segment.getLong(chunk.getOffsetInSegment(offsetInChunk));
+    }
+}
@@ -71,7 +71,10 @@ import java.util.Random;
 import java.util.UUID;
 
 import static org.apache.flink.contrib.streaming.state.RocksDBConfigurableOptions.WRITE_BATCH_SIZE;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_CHUNK_SIZE;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_RATE_LIMIT;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.RESCALING_USE_SST_INGESTION;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.TIMER_SERVICE_FACTORY;
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -111,6 +114,10 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
 
     private static final long UNDEFINED_WRITE_BATCH_SIZE = -1;
 
+    private static final long UNDEFINED_TRANSFER_CHUNK_SIZE = -1;
+
+    private static final long UNDEFINED_TRANSFER_RATE_LIMIT = -1;
+
     // ------------------------------------------------------------------------
 
     // -- configuration values, set in the application / configuration
@@ -134,6 +141,15 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
     /** Thread number used to transfer (download and upload) state, default value: 1. */
     private int numberOfTransferThreads;
 
+    /** Size of the chunks in which large files are uploaded, 0 if files are not split. */
+    private long transferChunkSize;
+
+    /** Upload bandwidth of all backends of a TaskManager in bytes per second, 0 if unlimited. */
+    private long transferRateLimit;
+
+    /** This determines if restoring with rescaling ingests SST files. */
+    private TernaryBoolean useSstIngestionForRescaling;
+
     /** The configuration for memory settings (pool sizes, etc.). */
     private final RocksDBMemoryConfiguration memoryConfiguration;
 
@@ -187,6 +203,9 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
     public EmbeddedRocksDBStateBackend(TernaryBoolean enableIncrementalCheckpointing) {
         this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
         this.numberOfTransferThreads = UNDEFINED_NUMBER_OF_TRANSFER_THREADS;
+        this.transferChunkSize = UNDEFINED_TRANSFER_CHUNK_SIZE;
+        this.transferRateLimit = UNDEFINED_TRANSFER_RATE_LIMIT;
+        this.useSstIngestionForRescaling = TernaryBoolean.UNDEFINED;
         this.defaultMetricOptions = new RocksDBNativeMetricOptions();
         this.memoryConfiguration = new RocksDBMemoryConfiguration();
         this.writeBatchSize = UNDEFINED_WRITE_BATCH_SIZE;
@@ -212,6 +231,22 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
             this.numberOfTransferThreads = original.numberOfTransferThreads;
         }
 
+        if (original.transferChunkSize == UNDEFINED_TRANSFER_CHUNK_SIZE) {
+            this.transferChunkSize = config.get(CHECKPOINT_TRANSFER_CHUNK_SIZE).getBytes();
+        } else {
+            this.transferChunkSize = original.transferChunkSize;
+        }
+
+        if (original.transferRateLimit == UNDEFINED_TRANSFER_RATE_LIMIT) {
+            this.transferRateLimit = config.get(CHECKPOINT_TRANSFER_RATE_LIMIT).getBytes();
+        } else {
+            this.transferRateLimit = original.transferRateLimit;
+        }
+
+        this.useSstIngestionForRescaling =
+                original.useSstIngestionForRescaling.resolveUndefined(
+                        config.get(RESCALING_USE_SST_INGESTION));
+
         if (original.writeBatchSize == UNDEFINED_WRITE_BATCH_SIZE) {
             this.writeBatchSize = config.get(WRITE_BATCH_SIZE).getBytes();
         } else {
@@ -459,6 +494,9 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
                                 cancelStreamRegistry)
                         .setEnableIncrementalCheckpointing(isIncrementalCheckpointsEnabled())
                         .setNumberOfTransferingThreads(getNumberOfTransferThreads())
+                        .setTransferChunkSize(getTransferChunkSize())
+                        .setTransferRateLimit(getTransferRateLimit())
+                        .setUseSstIngestionForRescaling(isSstIngestionForRescalingEnabled())
                         .setNativeMetricOptions(
                                 resourceContainer.getMemoryWatcherOptions(defaultMetricOptions))
                         .setWriteBatchSize(getWriteBatchSize());
@@ -657,6 +695,21 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
                 CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
     }
 
+    /** Gets whether restoring with rescaling ingests SST files instead of writing records. */
+    public boolean isSstIngestionForRescalingEnabled() {
+        return useSstIngestionForRescaling.getOrDefault(RESCALING_USE_SST_INGESTION.defaultValue());
+    }
+
+    /**
+     * Sets whether restoring with rescaling writes the restored state into SST files which are
+     * ingested into RocksDB, instead of writing the records one by one.
+     *
+     * @param useSstIngestionForRescaling True to ingest SST files when rescaling.
+     */
+    public void setUseSstIngestionForRescaling(boolean useSstIngestionForRescaling) {
+        this.useSstIngestionForRescaling = TernaryBoolean.fromBoolean(useSstIngestionForRescaling);
+    }
+
     /**
      * Gets the type of the priority queue state. It will fallback to the default value, if it is
      * not explicitly set.
@@ -764,6 +817,42 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
         this.numberOfTransferThreads = numberOfTransferThreads;
     }
 
+    /** Gets the size of the chunks in which large files are uploaded while snapshotting. */
+    public long getTransferChunkSize() {
+        return transferChunkSize == UNDEFINED_TRANSFER_CHUNK_SIZE
+                ? CHECKPOINT_TRANSFER_CHUNK_SIZE.defaultValue().getBytes()
+                : transferChunkSize;
+    }
+
+    /**
+     * Sets the size of the chunks in which large files are uploaded in parallel while snapshotting,
+     * 0 uploads each file as a whole.
+     *
+     * @param transferChunkSize The size of the chunks in bytes.
+     */
+    public void setTransferChunkSize(long transferChunkSize) {
+        checkArgument(transferChunkSize >= 0, "Transfer chunk size must not be negative.");
+        this.transferChunkSize = transferChunkSize;
+    }
+
+    /** Gets the maximum upload bandwidth of all backends of a TaskManager in bytes per second. */
+    public long getTransferRateLimit() {
+        return transferRateLimit == UNDEFINED_TRANSFER_RATE_LIMIT
+                ? CHECKPOINT_TRANSFER_RATE_LIMIT.defaultValue().getBytes()
+                : transferRateLimit;
+    }
+
+    /**
+     * Sets the maximum number of bytes per second which all backends of a TaskManager upload while
+     * snapshotting, 0 does not limit the bandwidth.
+     *
+     * @param transferRateLimit The upload bandwidth in bytes per second.
+     */
+    public void setTransferRateLimit(long transferRateLimit) {
+        checkArgument(transferRateLimit >= 0, "Transfer rate limit must not be negative.");
+        this.transferRateLimit = transferRateLimit;
+    }
+
     /** Gets the max batch size will be used in {@link RocksDBWriteBatchWrapper}. */
     public long getWriteBatchSize() {
         return writeBatchSize == UNDEFINED_WRITE_BATCH_SIZE
@@ -810,6 +899,12 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
                 + enableIncrementalCheckpointing
                 + ", numberOfTransferThreads="
                 + numberOfTransferThreads
+                + ", transferChunkSize="
+                + transferChunkSize
+                + ", transferRateLimit="
+                + transferRateLimit
+                + ", useSstIngestionForRescaling="
+                + useSstIngestionForRescaling
                 + ", writeBatchSize="
                 + writeBatchSize
                 + '}';
@@ -115,6 +115,9 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 
     private RocksDBNativeMetricOptions nativeMetricOptions;
     private int numberOfTransferingThreads;
+    private long transferChunkSize;
+    private long transferRateLimit;
+    private boolean useSstIngestionForRescaling;
     private long writeBatchSize =
             RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes();
 
@@ -168,6 +171,12 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         this.nativeMetricOptions = new RocksDBNativeMetricOptions();
         this.numberOfTransferingThreads =
                 RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM.defaultValue();
+        this.transferChunkSize =
+                RocksDBOptions.CHECKPOINT_TRANSFER_CHUNK_SIZE.defaultValue().getBytes();
+        this.transferRateLimit =
+                RocksDBOptions.CHECKPOINT_TRANSFER_RATE_LIMIT.defaultValue().getBytes();
+        this.useSstIngestionForRescaling =
+                RocksDBOptions.RESCALING_USE_SST_INGESTION.defaultValue();
     }
 
     @VisibleForTesting
@@ -236,6 +245,24 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         return this;
     }
 
+    RocksDBKeyedStateBackendBuilder<K> setTransferChunkSize(long transferChunkSize) {
+        checkArgument(transferChunkSize >= 0, "Transfer chunk size should be non negative.");
+        this.transferChunkSize = transferChunkSize;
+        return this;
+    }
+
+    RocksDBKeyedStateBackendBuilder<K> setTransferRateLimit(long transferRateLimit) {
+        checkArgument(transferRateLimit >= 0, "Transfer rate limit should be non negative.");
+        this.transferRateLimit = transferRateLimit;
+        return this;
+    }
+
+    RocksDBKeyedStateBackendBuilder<K> setUseSstIngestionForRescaling(
+            boolean useSstIngestionForRescaling) {
+        this.useSstIngestionForRescaling = useSstIngestionForRescaling;
+        return this;
+    }
+
     RocksDBKeyedStateBackendBuilder<K> setWriteBatchSize(long writeBatchSize) {
         checkArgument(writeBatchSize >= 0, "Write batch size should be non negative.");
         this.writeBatchSize = writeBatchSize;
@@ -463,7 +490,8 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
                     restoreStateHandles,
                     ttlCompactFiltersManager,
                     writeBatchSize,
-                    optionsContainer.getWriteBufferManagerCapacity());
+                    optionsContainer.getWriteBufferManagerCapacity(),
+                    useSstIngestionForRescaling);
         } else if (priorityQueueStateType
                 == EmbeddedRocksDBStateBackend.PriorityQueueStateType.HEAP) {
             return new RocksDBHeapTimersFullRestoreOperation<>(
@@ -515,7 +543,13 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         if (enableIncrementalCheckpointing) {
             RocksDBStateUploader stateUploader =
                     injectRocksDBStateUploader == null
-                            ? new RocksDBStateUploader(numberOfTransferingThreads)
+                            ? new RocksDBStateUploader(
+                                    numberOfTransferingThreads,
+                                    transferChunkSize,
+                                    transferRateLimit > 0
+                                            ? RocksDBTransferRateLimiter.getShared(
+                                                    transferRateLimit)
+                                            : null)
                             : injectRocksDBStateUploader;
             checkpointSnapshotStrategy =
                     new RocksIncrementalSnapshotStrategy<>(
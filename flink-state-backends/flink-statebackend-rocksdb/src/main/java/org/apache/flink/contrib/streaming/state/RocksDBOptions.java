@@ -67,6 +67,39 @@ public class RocksDBOptions {
                     .withDescription(
                             "The number of threads (per stateful operator) used to transfer (download and upload) files in RocksDBStateBackend.");
 
+    /** The size of the chunks in which large files are uploaded in parallel. */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<MemorySize> CHECKPOINT_TRANSFER_CHUNK_SIZE =
+            ConfigOptions.key("state.backend.rocksdb.checkpoint.transfer.chunk-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "If positive, files larger than this size are split into chunks of this size, which are uploaded "
+                                    + "in parallel by the transfer threads and stored as separate objects in the checkpoint storage. "
+                                    + "The default '0' uploads each file as a single object by a single thread.");
+
+    /** The maximum upload bandwidth of all RocksDB state backends of a TaskManager. */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<MemorySize> CHECKPOINT_TRANSFER_RATE_LIMIT =
+            ConfigOptions.key("state.backend.rocksdb.checkpoint.transfer.rate-limit")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "The maximum number of bytes per second which all RocksDBStateBackends of a TaskManager upload to "
+                                    + "the checkpoint storage in total. The default '0' does not limit the bandwidth.");
+
+    /** Whether to ingest SST files instead of writing records one by one when rescaling. */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<Boolean> RESCALING_USE_SST_INGESTION =
+            ConfigOptions.key("state.backend.rocksdb.rescaling.use-sst-ingestion")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "If true, the state which is restored from other instances during rescaling is written into SST "
+                                    + "files which are ingested into RocksDB, instead of being written record by record. This "
+                                    + "avoids the memtable, the write-ahead log and the compactions for the restored records "
+                                    + "and makes restoring with rescaling significantly faster for large state.");
+
     /** The predefined settings for RocksDB DBOptions and ColumnFamilyOptions by Flink community. */
     @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
     public static final ConfigOption<String> PREDEFINED_OPTIONS =
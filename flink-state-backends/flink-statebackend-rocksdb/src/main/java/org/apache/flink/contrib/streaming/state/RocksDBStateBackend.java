@@ -541,6 +541,51 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
         setNumberOfTransferThreads(numberOfTransferingThreads);
     }
 
+    /** Gets whether restoring with rescaling ingests SST files instead of writing records. */
+    public boolean isSstIngestionForRescalingEnabled() {
+        return rocksDBStateBackend.isSstIngestionForRescalingEnabled();
+    }
+
+    /**
+     * Sets whether restoring with rescaling writes the restored state into SST files which are
+     * ingested into RocksDB, instead of writing the records one by one.
+     *
+     * @param useSstIngestionForRescaling True to ingest SST files when rescaling.
+     */
+    public void setUseSstIngestionForRescaling(boolean useSstIngestionForRescaling) {
+        rocksDBStateBackend.setUseSstIngestionForRescaling(useSstIngestionForRescaling);
+    }
+
+    /** Gets the size of the chunks in which large files are uploaded while snapshotting. */
+    public long getTransferChunkSize() {
+        return rocksDBStateBackend.getTransferChunkSize();
+    }
+
+    /**
+     * Sets the size of the chunks in which large files are uploaded in parallel while snapshotting,
+     * 0 uploads each file as a whole.
+     *
+     * @param transferChunkSize The size of the chunks in bytes.
+     */
+    public void setTransferChunkSize(long transferChunkSize) {
+        rocksDBStateBackend.setTransferChunkSize(transferChunkSize);
+    }
+
+    /** Gets the maximum upload bandwidth of all backends of a TaskManager in bytes per second. */
+    public long getTransferRateLimit() {
+        return rocksDBStateBackend.getTransferRateLimit();
+    }
+
+    /**
+     * Sets the maximum number of bytes per second which all backends of a TaskManager upload while
+     * snapshotting, 0 does not limit the bandwidth.
+     *
+     * @param transferRateLimit The upload bandwidth in bytes per second.
+     */
+    public void setTransferRateLimit(long transferRateLimit) {
+        rocksDBStateBackend.setTransferRateLimit(transferRateLimit);
+    }
+
     /** Gets the max batch size will be used in {@link RocksDBWriteBatchWrapper}. */
     public long getWriteBatchSize() {
         return rocksDBStateBackend.getWriteBatchSize();
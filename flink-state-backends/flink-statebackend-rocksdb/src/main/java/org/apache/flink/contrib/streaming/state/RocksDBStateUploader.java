@@ -21,32 +21,72 @@ package org.apache.flink.contrib.streaming.state;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.MultiStreamStateHandle;
 import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.concurrent.FutureUtils;
 import org.apache.flink.util.function.CheckedSupplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 
-/** Help class for uploading RocksDB state files. */
+/**
+ * Help class for uploading RocksDB state files.
+ *
+ * <p>The files are uploaded largest first, so that a single large file does not start last and
+ * delay the end of the whole upload. If a chunk size is configured, files larger than the chunk
+ * size are split into chunks which are uploaded in parallel and combined into a {@link
+ * MultiStreamStateHandle}.
+ */
 public class RocksDBStateUploader extends RocksDBStateDataTransfer {
+    private static final Logger LOG = LoggerFactory.getLogger(RocksDBStateUploader.class);
+
     private static final int READ_BUFFER_SIZE = 16 * 1024;
 
+    /** The size of the chunks of large files, or 0 if files are not split. */
+    private final long chunkSize;
+
+    /** The limiter of the upload bandwidth, or null if the bandwidth is not limited. */
+    @Nullable private final RocksDBTransferRateLimiter rateLimiter;
+
     public RocksDBStateUploader(int numberOfSnapshottingThreads) {
+        this(numberOfSnapshottingThreads, 0L, null);
+    }
+
+    RocksDBStateUploader(
+            int numberOfSnapshottingThreads,
+            long chunkSize,
+            @Nullable RocksDBTransferRateLimiter rateLimiter) {
         super(numberOfSnapshottingThreads);
+        Preconditions.checkArgument(chunkSize >= 0, "The chunk size must not be negative.");
+        this.chunkSize = chunkSize;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
@@ -90,26 +130,100 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
     private Map<StateHandleID, CompletableFuture<StreamStateHandle>> createUploadFutures(
             Map<StateHandleID, Path> files,
             CheckpointStreamFactory checkpointStreamFactory,
-            CloseableRegistry closeableRegistry) {
+            CloseableRegistry closeableRegistry)
+            throws IOException {
+        Map<StateHandleID, Long> fileSizes = new HashMap<>(files.size());
+        for (Map.Entry<StateHandleID, Path> entry : files.entrySet()) {
+            fileSizes.put(entry.getKey(), Files.size(entry.getValue()));
+        }
+        List<Map.Entry<StateHandleID, Path>> sortedFiles = new ArrayList<>(files.entrySet());
+        sortedFiles.sort(
+                Comparator.comparing(
+                        (Map.Entry<StateHandleID, Path> entry) -> fileSizes.get(entry.getKey()),
+                        Comparator.reverseOrder()));
+
         Map<StateHandleID, CompletableFuture<StreamStateHandle>> futures =
                 new HashMap<>(files.size());
 
-        for (Map.Entry<StateHandleID, Path> entry : files.entrySet()) {
-            final Supplier<StreamStateHandle> supplier =
-                    CheckedSupplier.unchecked(
-                            () ->
-                                    uploadLocalFileToCheckpointFs(
-                                            entry.getValue(),
-                                            checkpointStreamFactory,
-                                            closeableRegistry));
-            futures.put(entry.getKey(), CompletableFuture.supplyAsync(supplier, executorService));
+        for (Map.Entry<StateHandleID, Path> entry : sortedFiles) {
+            long fileSize = fileSizes.get(entry.getKey());
+            if (chunkSize > 0 && fileSize > chunkSize) {
+                futures.put(
+                        entry.getKey(),
+                        createChunkedUploadFuture(
+                                entry.getValue(),
+                                fileSize,
+                                checkpointStreamFactory,
+                                closeableRegistry));
+            } else {
+                futures.put(
+                        entry.getKey(),
+                        createUploadFuture(
+                                entry.getValue(),
+                                0L,
+                                fileSize,
+                                checkpointStreamFactory,
+                                closeableRegistry));
+            }
         }
 
         return futures;
     }
 
+    private CompletableFuture<StreamStateHandle> createChunkedUploadFuture(
+            Path filePath,
+            long fileSize,
+            CheckpointStreamFactory checkpointStreamFactory,
+            CloseableRegistry closeableRegistry) {
+        List<CompletableFuture<StreamStateHandle>> chunkFutures = new ArrayList<>();
+        for (long offset = 0L; offset < fileSize; offset += chunkSize) {
+            chunkFutures.add(
+                    createUploadFuture(
+                            filePath,
+                            offset,
+                            Math.min(chunkSize, fileSize - offset),
+                            checkpointStreamFactory,
+                            closeableRegistry));
+        }
+        return FutureUtils.combineAll(chunkFutures).thenApply(RocksDBStateUploader::combineChunks);
+    }
+
+    private CompletableFuture<StreamStateHandle> createUploadFuture(
+            Path filePath,
+            long offset,
+            long length,
+            CheckpointStreamFactory checkpointStreamFactory,
+            CloseableRegistry closeableRegistry) {
+        final Supplier<StreamStateHandle> supplier =
+                CheckedSupplier.unchecked(
+                        () ->
+                                uploadLocalFileToCheckpointFs(
+                                        filePath,
+                                        offset,
+                                        length,
+                                        checkpointStreamFactory,
+                                        closeableRegistry));
+        return CompletableFuture.supplyAsync(supplier, executorService);
+    }
+
+    @Nullable
+    private static StreamStateHandle combineChunks(Collection<StreamStateHandle> chunks) {
+        if (chunks.contains(null)) {
+            // the upload was cancelled, so the chunks are not part of the checkpoint
+            try {
+                StateUtil.bestEffortDiscardAllStateObjects(chunks);
+            } catch (Exception e) {
+                LOG.warn("Could not discard the uploaded chunks of a cancelled upload.", e);
+            }
+            return null;
+        }
+        return new MultiStreamStateHandle(new ArrayList<>(chunks));
+    }
+
     private StreamStateHandle uploadLocalFileToCheckpointFs(
             Path filePath,
+            long offset,
+            long length,
             CheckpointStreamFactory checkpointStreamFactory,
             CloseableRegistry closeableRegistry)
             throws IOException {
@@ -120,22 +234,29 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
         try {
             final byte[] buffer = new byte[READ_BUFFER_SIZE];
 
-            inputStream = Files.newInputStream(filePath);
+            SeekableByteChannel channel = Files.newByteChannel(filePath);
+            inputStream = Channels.newInputStream(channel);
             closeableRegistry.registerCloseable(inputStream);
+            channel.position(offset);
 
             outputStream =
                     checkpointStreamFactory.createCheckpointStateOutputStream(
                             CheckpointedStateScope.SHARED);
             closeableRegistry.registerCloseable(outputStream);
 
-            while (true) {
-                int numBytes = inputStream.read(buffer);
+            long remaining = length;
+            while (remaining > 0) {
+                int numBytes =
+                        inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
 
                 if (numBytes == -1) {
-                    break;
+                    throw new EOFException(
+                            "File " + filePath + " ended before " + (offset + length) + " bytes.");
                 }
 
+                acquireBandwidth(numBytes);
                 outputStream.write(buffer, 0, numBytes);
+                remaining -= numBytes;
             }
 
             StreamStateHandle result = null;
@@ -156,4 +277,15 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
             }
         }
     }
+
+    private void acquireBandwidth(int numBytes) throws InterruptedIOException {
+        if (rateLimiter != null) {
+            try {
+                rateLimiter.acquire(numBytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for bandwidth.");
+            }
+        }
+    }
 }
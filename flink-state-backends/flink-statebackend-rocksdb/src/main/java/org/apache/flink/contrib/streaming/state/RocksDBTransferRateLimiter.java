@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the bandwidth of the files uploaded by {@link RocksDBStateUploader RocksDBStateUploaders}.
+ *
+ * <p>The limiter returned by {@link #getShared(long)} is shared by all RocksDB state backends which
+ * are loaded by the same class loader, which means that the rate bounds the upload bandwidth of the
+ * whole TaskManager when Flink is deployed with the RocksDB state backend in its lib folder. If the
+ * backends configure different rates, the rate configured last applies.
+ */
+class RocksDBTransferRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @GuardedBy("RocksDBTransferRateLimiter.class")
+    private static RocksDBTransferRateLimiter sharedInstance;
+
+    @GuardedBy("this")
+    private long bytesPerSecond;
+
+    /** The time at which the bandwidth used by previous acquisitions is available again. */
+    @GuardedBy("this")
+    private long nextFreeNanos;
+
+    @VisibleForTesting
+    RocksDBTransferRateLimiter(long bytesPerSecond) {
+        setRate(bytesPerSecond);
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /** Returns the limiter which is shared in this JVM, updated to the given rate. */
+    static synchronized RocksDBTransferRateLimiter getShared(long bytesPerSecond) {
+        if (sharedInstance == null) {
+            sharedInstance = new RocksDBTransferRateLimiter(bytesPerSecond);
+        } else {
+            sharedInstance.setRate(bytesPerSecond);
+        }
+        return sharedInstance;
+    }
+
+    synchronized void setRate(long bytesPerSecond) {
+        Preconditions.checkArgument(
+                bytesPerSecond > 0,
+                "The transfer rate must be positive, but is %s.",
+                bytesPerSecond);
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Blocks until the given number of bytes may be transferred without exceeding the rate. Bytes
+     * which were not used while the limiter was idle do not accumulate, so there are no bursts
+     * above the rate.
+     */
+    void acquire(int numBytes) throws InterruptedException {
+        final long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long startNanos = Math.max(now, nextFreeNanos);
+            nextFreeNanos = startNanos + numBytes * NANOS_PER_SECOND / bytesPerSecond;
+            waitNanos = startNanos - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -54,9 +54,13 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +70,7 @@ import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -100,6 +105,7 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
     private long lastCompletedCheckpointId;
     private UUID backendUID;
     private final long writeBatchSize;
+    private final boolean useSstIngestionForRescaling;
 
     private boolean isKeySerializerCompatibilityChecked;
 
@@ -121,7 +127,8 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
             @Nonnull Collection<KeyedStateHandle> restoreStateHandles,
             @Nonnull RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
             @Nonnegative long writeBatchSize,
-            Long writeBufferManagerCapacity) {
+            Long writeBufferManagerCapacity,
+            boolean useSstIngestionForRescaling) {
         this.rocksHandle =
                 new RocksDBHandle(
                         kvStateInformation,
@@ -137,6 +144,7 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
         this.lastCompletedCheckpointId = -1L;
         this.backendUID = UUID.randomUUID();
         this.writeBatchSize = writeBatchSize;
+        this.useSstIngestionForRescaling = useSstIngestionForRescaling;
         this.restoreStateHandles = restoreStateHandles;
         this.cancelStreamRegistry = cancelStreamRegistry;
         this.keyGroupRange = keyGroupRange;
@@ -277,7 +285,9 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
     /**
      * Recovery from multi incremental states with rescaling. For rescaling, this method creates a
      * temporary RocksDB instance for a key-groups shard. All contents from the temporary instance
-     * are copied into the real restore instance and then the temporary instance is discarded.
+     * are copied into the real restore instance and then the temporary instance is discarded. The
+     * contents are either written record by record, or written into SST files which are ingested
+     * into the real restore instance, see {@link #ingestKeyGroups}.
      */
     private void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles)
             throws Exception {
@@ -318,6 +328,13 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
                             .getAbsoluteFile()
                             .toPath()
                             .resolve(UUID.randomUUID().toString());
+            // the SST files must not be written into the directory of the temporary instance,
+            // because RocksDB deletes files there which do not belong to the instance
+            Path temporaryIngestionPath =
+                    instanceBasePath
+                            .getAbsoluteFile()
+                            .toPath()
+                            .resolve(UUID.randomUUID().toString());
             try (RestoredDBInstance tmpRestoreDBInfo =
                             restoreDBInstanceFromStateHandle(
                                     (IncrementalRemoteKeyedStateHandle) rawStateHandle,
@@ -341,35 +358,133 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
                                             null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i))
                                     .columnFamilyHandle;
 
-                    try (RocksIteratorWrapper iterator =
-                            RocksDBOperationUtils.getRocksIterator(
-                                    tmpRestoreDBInfo.db,
-                                    tmpColumnFamilyHandle,
-                                    tmpRestoreDBInfo.readOptions)) {
-
-                        iterator.seek(startKeyGroupPrefixBytes);
-
-                        while (iterator.isValid()) {
-
-                            if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
-                                    iterator.key(), stopKeyGroupPrefixBytes)) {
-                                writeBatchWrapper.put(
-                                        targetColumnFamilyHandle, iterator.key(), iterator.value());
-                            } else {
-                                // Since the iterator will visit the record according to the sorted
-                                // order,
-                                // we can just break here.
-                                break;
+                    if (useSstIngestionForRescaling) {
+                        ingestKeyGroups(
+                                tmpRestoreDBInfo,
+                                tmpColumnFamilyHandle,
+                                targetColumnFamilyHandle,
+                                tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i).getName(),
+                                startKeyGroupPrefixBytes,
+                                stopKeyGroupPrefixBytes,
+                                temporaryIngestionPath);
+                    } else {
+                        try (RocksIteratorWrapper iterator =
+                                RocksDBOperationUtils.getRocksIterator(
+                                        tmpRestoreDBInfo.db,
+                                        tmpColumnFamilyHandle,
+                                        tmpRestoreDBInfo.readOptions)) {
+
+                            iterator.seek(startKeyGroupPrefixBytes);
+
+                            while (iterator.isValid()) {
+
+                                if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
+                                        iterator.key(), stopKeyGroupPrefixBytes)) {
+                                    writeBatchWrapper.put(
+                                            targetColumnFamilyHandle,
+                                            iterator.key(),
+                                            iterator.value());
+                                } else {
+                                    // Since the iterator will visit the record according to the
+                                    // sorted order, we can just break here.
+                                    break;
+                                }
+
+                                iterator.next();
                             }
-
-                            iterator.next();
-                        }
-                    } // releases native iterator resources
+                        } // releases native iterator resources
+                    }
                 }
                 logger.info(
                         "Finished restoring from state handle: {} with rescaling.", rawStateHandle);
             } finally {
                 cleanUpPathQuietly(temporaryRestoreInstancePath);
+                cleanUpPathQuietly(temporaryIngestionPath);
+            }
+        }
+    }
+
+    /**
+     * Writes the records of the given key-groups from a column family of the temporary instance
+     * into SST files and ingests them into the target column family of the real restore instance.
+     * Ingested files are placed into the lowest level of the LSM tree which does not contain
+     * overlapping keys, so the records skip the memtable, the write-ahead log and the compactions
+     * which they would pass through when written one by one. Because the key-groups of different
+     * state handles do not overlap, the files usually go directly into the bottom level.
+     */
+    private void ingestKeyGroups(
+            RestoredDBInstance tmpRestoreDBInfo,
+            ColumnFamilyHandle tmpColumnFamilyHandle,
+            ColumnFamilyHandle targetColumnFamilyHandle,
+            String stateName,
+            byte[] startKeyGroupPrefixBytes,
+            byte[] stopKeyGroupPrefixBytes,
+            Path ingestionPath)
+            throws IOException, RocksDBException {
+
+        List<String> sstFiles = new ArrayList<>();
+
+        try (ColumnFamilyOptions columnFamilyOptions =
+                        RocksDBOperationUtils.createColumnFamilyOptions(
+                                this.rocksHandle.getColumnFamilyOptionsFactory(), stateName);
+                Options options =
+                        new Options(this.rocksHandle.getDbOptions(), columnFamilyOptions);
+                EnvOptions envOptions = new EnvOptions();
+                RocksIteratorWrapper iterator =
+                        RocksDBOperationUtils.getRocksIterator(
+                                tmpRestoreDBInfo.db,
+                                tmpColumnFamilyHandle,
+                                tmpRestoreDBInfo.readOptions)) {
+
+            Files.createDirectories(ingestionPath);
+            long targetFileSize = columnFamilyOptions.targetFileSizeBase();
+
+            SstFileWriter sstFileWriter = null;
+            long sstFileSize = 0L;
+            try {
+                iterator.seek(startKeyGroupPrefixBytes);
+
+                while (iterator.isValid()
+                        && RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
+                                iterator.key(), stopKeyGroupPrefixBytes)) {
+
+                    if (sstFileWriter == null) {
+                        String sstFile =
+                                ingestionPath.resolve(UUID.randomUUID() + ".sst").toString();
+                        sstFileWriter = new SstFileWriter(envOptions, options);
+                        sstFileWriter.open(sstFile);
+                        sstFiles.add(sstFile);
+                        sstFileSize = 0L;
+                    }
+
+                    byte[] key = iterator.key();
+                    byte[] value = iterator.value();
+                    sstFileWriter.put(key, value);
+                    sstFileSize += key.length + value.length;
+
+                    if (sstFileSize >= targetFileSize) {
+                        sstFileWriter.finish();
+                        sstFileWriter.close();
+                        sstFileWriter = null;
+                    }
+
+                    iterator.next();
+                }
+
+                if (sstFileWriter != null) {
+                    sstFileWriter.finish();
+                }
+            } finally {
+                IOUtils.closeQuietly(sstFileWriter);
+            }
+        }
+
+        if (!sstFiles.isEmpty()) {
+            try (IngestExternalFileOptions ingestOptions =
+                    new IngestExternalFileOptions().setMoveFiles(true)) {
+                this.rocksHandle
+                        .getDb()
+                        .ingestExternalFile(targetColumnFamilyHandle, sstFiles, ingestOptions);
             }
         }
     }
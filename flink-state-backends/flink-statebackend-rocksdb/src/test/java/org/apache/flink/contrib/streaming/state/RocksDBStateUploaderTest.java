@@ -23,6 +23,7 @@ import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.MultiStreamStateHandle;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
@@ -45,9 +46,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /** Test class for {@link RocksDBStateUploader}. */
@@ -119,6 +122,79 @@ public class RocksDBStateUploaderTest extends TestLogger {
         }
     }
 
+    /** Test that files larger than the chunk size are uploaded in chunks. */
+    @Test
+    public void testChunkedUploadCorrectly() throws Exception {
+        FsCheckpointStreamFactory checkpointStreamFactory = createFsCheckpointStreamFactory();
+
+        String localFolder = "local";
+        temporaryFolder.newFolder(localFolder);
+
+        int sstFileCount = 6;
+        Map<StateHandleID, Path> sstFilePaths =
+                generateRandomSstFiles(localFolder, sstFileCount, 1024);
+
+        int chunkSize = 64 * 1024;
+        try (RocksDBStateUploader rocksDBStateUploader =
+                new RocksDBStateUploader(5, chunkSize, null)) {
+            Map<StateHandleID, StreamStateHandle> sstFiles =
+                    rocksDBStateUploader.uploadFilesToCheckpointFs(
+                            sstFilePaths, checkpointStreamFactory, new CloseableRegistry());
+
+            for (Map.Entry<StateHandleID, Path> entry : sstFilePaths.entrySet()) {
+                StreamStateHandle handle = sstFiles.get(entry.getKey());
+                long fileSize = Files.size(entry.getValue());
+                assertEquals(fileSize, handle.getStateSize());
+                if (fileSize > chunkSize) {
+                    assertTrue(handle instanceof MultiStreamStateHandle);
+                    assertEquals(
+                            (fileSize + chunkSize - 1) / chunkSize,
+                            ((MultiStreamStateHandle) handle).getStateHandles().size());
+                }
+                assertStateContentEqual(entry.getValue(), handle.openInputStream());
+            }
+        }
+    }
+
+    /** Test that the upload does not exceed the bandwidth of the rate limiter. */
+    @Test
+    public void testRateLimitedUpload() throws Exception {
+        FsCheckpointStreamFactory checkpointStreamFactory = createFsCheckpointStreamFactory();
+
+        File file = temporaryFolder.newFile(String.valueOf(UUID.randomUUID()));
+        generateRandomFileContent(file.getPath(), 400 * 1024);
+        Map<StateHandleID, Path> filePaths = new HashMap<>(1);
+        filePaths.put(new StateHandleID("mockHandleID"), file.toPath());
+
+        long startNanos = System.nanoTime();
+        try (RocksDBStateUploader rocksDBStateUploader =
+                new RocksDBStateUploader(
+                        5, 100 * 1024, new RocksDBTransferRateLimiter(1024 * 1024))) {
+            Map<StateHandleID, StreamStateHandle> handles =
+                    rocksDBStateUploader.uploadFilesToCheckpointFs(
+                            filePaths, checkpointStreamFactory, new CloseableRegistry());
+            assertStateContentEqual(
+                    file.toPath(),
+                    handles.get(new StateHandleID("mockHandleID")).openInputStream());
+        }
+        // the first buffer is uploaded without waiting
+        long minimumMillis = (400 - 16) * 1000L / 1024;
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) >= minimumMillis);
+    }
+
+    private FsCheckpointStreamFactory createFsCheckpointStreamFactory() throws IOException {
+        org.apache.flink.core.fs.Path checkpointPrivateDirectory =
+                org.apache.flink.core.fs.Path.fromLocalFile(temporaryFolder.newFolder("private"));
+        org.apache.flink.core.fs.Path checkpointSharedDirectory =
+                org.apache.flink.core.fs.Path.fromLocalFile(temporaryFolder.newFolder("shared"));
+        return new FsCheckpointStreamFactory(
+                checkpointPrivateDirectory.getFileSystem(),
+                checkpointPrivateDirectory,
+                checkpointSharedDirectory,
+                1024,
+                4096);
+    }
+
     private CheckpointStreamFactory.CheckpointStateOutputStream
             createFailingCheckpointStateOutputStream(IOException failureException) {
         return new CheckpointStreamFactory.CheckpointStateOutputStream() {
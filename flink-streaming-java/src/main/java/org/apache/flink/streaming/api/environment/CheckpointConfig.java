@@ -105,6 +105,10 @@ public class CheckpointConfig implements java.io.Serializable {
     /** Flag to enable approximate local recovery. */
     private boolean approximateLocalRecovery;
 
+    /** Flag to write the checkpoint metadata in the sharded format. */
+    private boolean shardedMetadataEnabled =
+            ExecutionCheckpointingOptions.SHARDED_METADATA.defaultValue();
+
     /** Cleanup behaviour for persistent checkpoints. */
     private ExternalizedCheckpointCleanup externalizedCheckpointCleanup;
 
@@ -152,6 +156,7 @@ public class CheckpointConfig implements java.io.Serializable {
         this.unalignedCheckpointsEnabled = checkpointConfig.isUnalignedCheckpointsEnabled();
         this.alignedCheckpointTimeout = checkpointConfig.alignedCheckpointTimeout;
         this.approximateLocalRecovery = checkpointConfig.isApproximateLocalRecoveryEnabled();
+        this.shardedMetadataEnabled = checkpointConfig.isShardedMetadataEnabled();
         this.externalizedCheckpointCleanup = checkpointConfig.externalizedCheckpointCleanup;
         this.forceCheckpointing = checkpointConfig.forceCheckpointing;
         this.forceUnalignedCheckpoints = checkpointConfig.forceUnalignedCheckpoints;
@@ -623,6 +628,31 @@ public class CheckpointConfig implements java.io.Serializable {
         approximateLocalRecovery = enabled;
     }
 
+    /**
+     * Returns whether the checkpoint metadata is written in the sharded format.
+     *
+     * @return <code>true</code> if the checkpoint metadata is written in the sharded format.
+     */
+    @PublicEvolving
+    public boolean isShardedMetadataEnabled() {
+        return shardedMetadataEnabled;
+    }
+
+    /**
+     * Enables writing the checkpoint metadata in the sharded format, which serializes and
+     * deserializes the states of the subtasks in parallel.
+     *
+     * <p>Checkpoints and savepoints written in this format cannot be restored by Flink versions
+     * before 1.14.
+     *
+     * @param enabled Flag to indicate whether the checkpoint metadata is written in the sharded
+     *     format.
+     */
+    @PublicEvolving
+    public void enableShardedMetadata(boolean enabled) {
+        shardedMetadataEnabled = enabled;
+    }
+
     /**
      * Returns the cleanup behaviour for externalized checkpoints.
      *
@@ -821,5 +851,8 @@ public class CheckpointConfig implements java.io.Serializable {
         configuration
                 .getOptional(ExecutionCheckpointingOptions.FORCE_UNALIGNED)
                 .ifPresent(this::setForceUnalignedCheckpoints);
+        configuration
+                .getOptional(ExecutionCheckpointingOptions.SHARDED_METADATA)
+                .ifPresent(this::enableShardedMetadata);
     }
 }
@@ -238,4 +238,22 @@ public class ExecutionCheckpointingOptions {
                                                     + "the specific checkpoint without in-flight data.")
                                     .linebreak()
                                     .build());
+
+    public static final ConfigOption<Boolean> SHARDED_METADATA =
+            ConfigOptions.key("execution.checkpointing.sharded-metadata")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            Description.builder()
+                                    .text(
+                                            "Whether the checkpoint metadata is written in the sharded format version 4, "
+                                                    + "which serializes and deserializes the states of the subtasks in "
+                                                    + "parallel. This reduces the time to complete and restore checkpoints "
+                                                    + "of jobs with many operators or a high parallelism.")
+                                    .linebreak()
+                                    .linebreak()
+                                    .text(
+                                            "Checkpoints and savepoints written in this format cannot be restored by "
+                                                    + "Flink versions before 1.14.")
+                                    .build());
 }
@@ -49,5 +49,8 @@ public enum GlobalDataExchangeMode {
     ALL_EDGES_PIPELINED,
 
     /** Set all job edges {@link ResultPartitionType#PIPELINED_APPROXIMATE}. */
-    ALL_EDGES_PIPELINED_APPROXIMATE
+    ALL_EDGES_PIPELINED_APPROXIMATE,
+
+    /** Set all job edges {@link ResultPartitionType#HYBRID}. */
+    ALL_EDGES_HYBRID
 }
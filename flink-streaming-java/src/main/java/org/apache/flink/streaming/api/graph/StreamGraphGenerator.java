@@ -40,6 +40,7 @@ import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.environment.CheckpointConfig;
+import org.apache.flink.streaming.api.operators.InternalTimeServiceManagerImpl;
 import org.apache.flink.streaming.api.operators.sorted.state.BatchExecutionCheckpointStorage;
 import org.apache.flink.streaming.api.operators.sorted.state.BatchExecutionInternalTimeServiceManager;
 import org.apache.flink.streaming.api.operators.sorted.state.BatchExecutionStateBackend;
@@ -370,6 +371,11 @@ public class StreamGraphGenerator {
             graph.setCheckpointStorage(checkpointStorage);
             graph.setSavepointDirectory(savepointDir);
 
+            if (configuration.get(ExecutionOptions.PACKED_TIMERS)) {
+                graph.setTimerServiceProvider(
+                        new InternalTimeServiceManagerImpl.PackedTimersProvider());
+            }
+
             if (checkpointConfig.isApproximateLocalRecoveryEnabled()) {
                 checkApproximateLocalRecoveryCompatibility();
                 graph.setGlobalDataExchangeMode(
@@ -20,6 +20,8 @@ package org.apache.flink.streaming.api.operators;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
 import org.apache.flink.runtime.state.KeyGroupStatePartitionStreamProvider;
 import org.apache.flink.runtime.state.KeyedStateCheckpointOutputStream;
@@ -65,6 +67,14 @@ public interface InternalTimeServiceManager<K> {
             KeyedStateCheckpointOutputStream stateCheckpointOutputStream, String operatorName)
             throws Exception;
 
+    /**
+     * Whether the timers are not held by the keyed state backend and must always be written to raw
+     * keyed state by {@link #snapshotToRawKeyedState}.
+     */
+    default boolean requiresRawKeyedStateSnapshots() {
+        return false;
+    }
+
     /**
      * A provider pattern for creating an instance of a {@link InternalTimeServiceManager}. Allows
      * substituting the manager that will be used at the runtime.
@@ -78,5 +88,13 @@ public interface InternalTimeServiceManager<K> {
                 ProcessingTimeService processingTimeService,
                 Iterable<KeyGroupStatePartitionStreamProvider> rawKeyedStates)
                 throws Exception;
+
+        /**
+         * Checks that the TaskManager provides the resources which the created managers require,
+         * before any manager is created for a task.
+         *
+         * @throws IllegalConfigurationException if the required resources are not configured.
+         */
+        default void checkTaskManagerConfiguration(Configuration taskManagerConfiguration) {}
     }
 }
@@ -21,15 +21,24 @@ package org.apache.flink.streaming.api.operators;
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.ExecutionOptions;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
+import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupStatePartitionStreamProvider;
 import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.KeyGroupsList;
 import org.apache.flink.runtime.state.KeyedStateCheckpointOutputStream;
+import org.apache.flink.runtime.state.PriorityComparator;
 import org.apache.flink.runtime.state.PriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.KeyGroupPartitionedPriorityQueue;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.Preconditions;
@@ -73,16 +82,24 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
 
     private final Map<String, InternalTimerServiceImpl<K, ?>> timerServices;
 
+    /**
+     * The total number of key-groups if the timers are kept in {@link PackedTimerPriorityQueueSet}s
+     * instead of the queues of the keyed state backend, or -1.
+     */
+    private final int numberOfKeyGroupsForPackedTimers;
+
     private InternalTimeServiceManagerImpl(
             KeyGroupRange localKeyGroupRange,
             KeyContext keyContext,
             PriorityQueueSetFactory priorityQueueSetFactory,
-            ProcessingTimeService processingTimeService) {
+            ProcessingTimeService processingTimeService,
+            int numberOfKeyGroupsForPackedTimers) {
 
         this.localKeyGroupRange = Preconditions.checkNotNull(localKeyGroupRange);
         this.priorityQueueSetFactory = Preconditions.checkNotNull(priorityQueueSetFactory);
         this.keyContext = Preconditions.checkNotNull(keyContext);
         this.processingTimeService = Preconditions.checkNotNull(processingTimeService);
+        this.numberOfKeyGroupsForPackedTimers = numberOfKeyGroupsForPackedTimers;
 
         this.timerServices = new HashMap<>();
     }
@@ -99,11 +116,109 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
             ProcessingTimeService processingTimeService,
             Iterable<KeyGroupStatePartitionStreamProvider> rawKeyedStates)
             throws Exception {
+        return create(
+                keyedStateBackend,
+                userClassloader,
+                keyContext,
+                processingTimeService,
+                rawKeyedStates,
+                -1);
+    }
+
+    /**
+     * A factory method for creating an {@link InternalTimeServiceManagerImpl} which keeps all
+     * timers in {@link PackedTimerPriorityQueueSet}s in off-heap memory instead of the queues of
+     * the keyed state backend. The timers are checkpointed to raw keyed state, and timers restored
+     * by the keyed state backend are moved to the packed queues.
+     *
+     * <p>Falls back to the queues of the keyed state backend if the number of key-groups is not
+     * known for the backend.
+     */
+    public static <K> InternalTimeServiceManagerImpl<K> createWithPackedTimers(
+            CheckpointableKeyedStateBackend<K> keyedStateBackend,
+            ClassLoader userClassloader,
+            KeyContext keyContext,
+            ProcessingTimeService processingTimeService,
+            Iterable<KeyGroupStatePartitionStreamProvider> rawKeyedStates)
+            throws Exception {
+        int numberOfKeyGroups = -1;
+        if (keyedStateBackend instanceof AbstractKeyedStateBackend) {
+            numberOfKeyGroups =
+                    ((AbstractKeyedStateBackend<K>) keyedStateBackend).getNumberOfKeyGroups();
+        } else {
+            LOG.info(
+                    "Packed timers are not supported for {}, the timers are kept by the state backend.",
+                    keyedStateBackend.getClass().getSimpleName());
+        }
+
+        return create(
+                keyedStateBackend,
+                userClassloader,
+                keyContext,
+                processingTimeService,
+                rawKeyedStates,
+                numberOfKeyGroups);
+    }
+
+    /**
+     * The {@link InternalTimeServiceManager.Provider} of {@link #createWithPackedTimers}. The
+     * packed queues allocate their memory outside of the managed memory, so it requires that task
+     * off-heap memory is configured for the TaskManager.
+     */
+    public static final class PackedTimersProvider implements InternalTimeServiceManager.Provider {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public <K> InternalTimeServiceManager<K> create(
+                CheckpointableKeyedStateBackend<K> keyedStatedBackend,
+                ClassLoader userClassloader,
+                KeyContext keyContext,
+                ProcessingTimeService processingTimeService,
+                Iterable<KeyGroupStatePartitionStreamProvider> rawKeyedStates)
+                throws Exception {
+            return createWithPackedTimers(
+                    keyedStatedBackend,
+                    userClassloader,
+                    keyContext,
+                    processingTimeService,
+                    rawKeyedStates);
+        }
+
+        @Override
+        public void checkTaskManagerConfiguration(Configuration taskManagerConfiguration) {
+            final MemorySize taskOffHeapMemory =
+                    taskManagerConfiguration.get(TaskManagerOptions.TASK_OFF_HEAP_MEMORY);
+            if (taskOffHeapMemory.getBytes() == 0L) {
+                throw new IllegalConfigurationException(
+                        String.format(
+                                "%s keeps timers in task off-heap memory, but %s is not configured. "
+                                        + "Configure %s for the expected size of the timers, or disable %s.",
+                                ExecutionOptions.PACKED_TIMERS.key(),
+                                TaskManagerOptions.TASK_OFF_HEAP_MEMORY.key(),
+                                TaskManagerOptions.TASK_OFF_HEAP_MEMORY.key(),
+                                ExecutionOptions.PACKED_TIMERS.key()));
+            }
+        }
+    }
+
+    private static <K> InternalTimeServiceManagerImpl<K> create(
+            CheckpointableKeyedStateBackend<K> keyedStateBackend,
+            ClassLoader userClassloader,
+            KeyContext keyContext,
+            ProcessingTimeService processingTimeService,
+            Iterable<KeyGroupStatePartitionStreamProvider> rawKeyedStates,
+            int numberOfKeyGroupsForPackedTimers)
+            throws Exception {
         final KeyGroupRange keyGroupRange = keyedStateBackend.getKeyGroupRange();
 
         final InternalTimeServiceManagerImpl<K> timeServiceManager =
                 new InternalTimeServiceManagerImpl<>(
-                        keyGroupRange, keyContext, keyedStateBackend, processingTimeService);
+                        keyGroupRange,
+                        keyContext,
+                        keyedStateBackend,
+                        processingTimeService,
+                        numberOfKeyGroupsForPackedTimers);
 
         // and then initialize the timer services
         for (KeyGroupStatePartitionStreamProvider streamProvider : rawKeyedStates) {
@@ -171,7 +286,30 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
     private <N>
             KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> createTimerPriorityQueue(
                     String name, TimerSerializer<K, N> timerSerializer) {
-        return priorityQueueSetFactory.create(name, timerSerializer);
+        final KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> backendQueue =
+                priorityQueueSetFactory.create(name, timerSerializer);
+        if (numberOfKeyGroupsForPackedTimers < 0) {
+            return backendQueue;
+        }
+
+        final KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> packedQueue =
+                new KeyGroupPartitionedPriorityQueue<
+                        TimerHeapInternalTimer<K, N>, PackedTimerPriorityQueueSet<K, N>>(
+                        KeyExtractorFunction.forKeyedObjects(),
+                        PriorityComparator.forPriorityComparableObjects(),
+                        (keyGroupId, numKeyGroups, keyExtractor, elementPriorityComparator) ->
+                                new PackedTimerPriorityQueueSet<>(
+                                        timerSerializer.getKeySerializer(),
+                                        timerSerializer.getNamespaceSerializer()),
+                        localKeyGroupRange,
+                        numberOfKeyGroupsForPackedTimers);
+
+        // take over the timers restored by the state backend, e.g. after enabling packed timers
+        TimerHeapInternalTimer<K, N> restoredTimer;
+        while ((restoredTimer = backendQueue.poll()) != null) {
+            packedQueue.add(restoredTimer);
+        }
+        return packedQueue;
     }
 
     @Override
@@ -183,6 +321,11 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
 
     //////////////////				Fault Tolerance Methods				///////////////////
 
+    @Override
+    public boolean requiresRawKeyedStateSnapshots() {
+        return numberOfKeyGroupsForPackedTimers >= 0;
+    }
+
     @Override
     public void snapshotToRawKeyedState(KeyedStateCheckpointOutputStream out, String operatorName)
             throws Exception {
@@ -0,0 +1,573 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.state.InternalPriorityQueue;
+import org.apache.flink.runtime.state.heap.HeapPriorityQueueElement;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue with set semantics for the timers of a single key-group. Unlike {@link
+ * org.apache.flink.runtime.state.heap.HeapPriorityQueueSet}, it does not keep one {@link
+ * TimerHeapInternalTimer} object and one hash map entry per timer, but packs the timers into
+ * off-heap memory:
+ *
+ * <ul>
+ *   <li>a binary min-heap of (timestamp, entry id) slots, ordered by the primitive timestamps,
+ *   <li>a dense array of entries pointing to the serialized key and namespace of every timer,
+ *   <li>an arena with the serialized keys and namespaces, compacted when it runs out of space.
+ * </ul>
+ *
+ * <p>Duplicate timers are detected with an open addressing hash index of entry ids. Timer objects
+ * are only created when timers are read, the head timer is cached so that the usual sequence of
+ * {@link #peek()} and {@link #poll()} deserializes it only once.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <K> type of the timer keys.
+ * @param <N> type of the timer namespaces.
+ */
+@Internal
+public class PackedTimerPriorityQueueSet<K, N>
+        implements InternalPriorityQueue<TimerHeapInternalTimer<K, N>>, HeapPriorityQueueElement {
+
+    /** Bytes of a heap slot: the timestamp and the id of the timer entry. */
+    private static final int HEAP_SLOT_SIZE = 12;
+
+    /** Bytes of an entry: offset, length and hash of the serialized timer and the heap index. */
+    private static final int ENTRY_SIZE = 16;
+
+    private static final int ENTRY_DATA_OFFSET = 0;
+
+    private static final int ENTRY_DATA_LENGTH = 4;
+
+    private static final int ENTRY_HASH = 8;
+
+    private static final int ENTRY_HEAP_INDEX = 12;
+
+    private static final int EMPTY_BUCKET = -1;
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private static final int MINIMUM_DATA_CAPACITY = 1024;
+
+    /** Maximum size of a single memory segment, which is the limit of a Java array. */
+    private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int MAX_CAPACITY = MAX_SEGMENT_SIZE / ENTRY_SIZE;
+
+    private final TypeSerializer<K> keySerializer;
+
+    private final TypeSerializer<N> namespaceSerializer;
+
+    private final DataOutputSerializer serializationBuffer = new DataOutputSerializer(64);
+
+    private final DataInputDeserializer deserializationBuffer = new DataInputDeserializer();
+
+    /** Segment wrapping the current array of {@link #serializationBuffer}. */
+    private MemorySegment serializationSegment;
+
+    private byte[] deserializationArray = new byte[64];
+
+    /** The min-heap of timestamps and entry ids. */
+    private MemorySegment heap;
+
+    /** The entries of all timers, indexed by the dense entry ids. */
+    private MemorySegment entries;
+
+    /** The serialized keys and namespaces of all timers, including removed ones. */
+    private MemorySegment data;
+
+    /** The hash index of entry ids, {@link #EMPTY_BUCKET} marks empty buckets. */
+    private int[] buckets;
+
+    /** The maximum number of timers which fit into the current heap and entries. */
+    private int capacity;
+
+    /** The number of timers in this queue. */
+    private int size;
+
+    /** The number of used bytes in {@link #data}. */
+    private int dataSize;
+
+    /** The number of bytes in {@link #data} which belong to removed timers. */
+    private int garbageSize;
+
+    /** The deserialized head timer, or null if it has not been read yet. */
+    @Nullable private TimerHeapInternalTimer<K, N> cachedHead;
+
+    /** The index of this queue in the heap of the key-grouped queues. */
+    private int internalIndex;
+
+    public PackedTimerPriorityQueueSet(
+            TypeSerializer<K> keySerializer, TypeSerializer<N> namespaceSerializer) {
+        this.keySerializer = keySerializer;
+        this.namespaceSerializer = namespaceSerializer;
+        this.capacity = MINIMUM_CAPACITY;
+        this.heap = allocate(MINIMUM_CAPACITY * HEAP_SLOT_SIZE);
+        this.entries = allocate(MINIMUM_CAPACITY * ENTRY_SIZE);
+        this.data = allocate(MINIMUM_DATA_CAPACITY);
+        this.buckets = new int[2 * MINIMUM_CAPACITY];
+        Arrays.fill(buckets, EMPTY_BUCKET);
+        this.internalIndex = NOT_CONTAINED;
+    }
+
+    @Nullable
+    @Override
+    public TimerHeapInternalTimer<K, N> poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        TimerHeapInternalTimer<K, N> head = peek();
+        removeAtHeapIndex(0);
+        return head;
+    }
+
+    @Nullable
+    @Override
+    public TimerHeapInternalTimer<K, N> peek() {
+        if (size == 0) {
+            return null;
+        }
+
+        if (cachedHead == null) {
+            cachedHead = readTimer(getHeapEntry(0), getHeapTimestamp(0));
+        }
+        return cachedHead;
+    }
+
+    @Override
+    public boolean add(@Nonnull TimerHeapInternalTimer<K, N> toAdd) {
+        ensureCapacity(size + 1);
+
+        long timestamp = toAdd.getTimestamp();
+        int length = serialize(toAdd);
+        int hash = hash(timestamp, length);
+        int bucket = findBucket(timestamp, length, hash);
+        if (buckets[bucket] != EMPTY_BUCKET) {
+            return false;
+        }
+
+        reserveData(length);
+        data.put(dataSize, serializationBuffer.getSharedBuffer(), 0, length);
+
+        int entry = size++;
+        int entryOffset = entry * ENTRY_SIZE;
+        entries.putInt(entryOffset + ENTRY_DATA_OFFSET, dataSize);
+        entries.putInt(entryOffset + ENTRY_DATA_LENGTH, length);
+        entries.putInt(entryOffset + ENTRY_HASH, hash);
+        dataSize += length;
+        buckets[bucket] = entry;
+
+        // the heap has as many slots as there are entries
+        siftUp(entry, timestamp, entry);
+        return getHeapIndex(entry) == 0;
+    }
+
+    @Override
+    public boolean remove(@Nonnull TimerHeapInternalTimer<K, N> toRemove) {
+        long timestamp = toRemove.getTimestamp();
+        int length = serialize(toRemove);
+        int entry = buckets[findBucket(timestamp, length, hash(timestamp, length))];
+        if (entry == EMPTY_BUCKET) {
+            return false;
+        }
+
+        int heapIndex = getHeapIndex(entry);
+        removeAtHeapIndex(heapIndex);
+        return heapIndex == 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addAll(@Nullable Collection<? extends TimerHeapInternalTimer<K, N>> toAdd) {
+        if (toAdd == null) {
+            return;
+        }
+
+        ensureCapacity(size + toAdd.size());
+        for (TimerHeapInternalTimer<K, N> timer : toAdd) {
+            add(timer);
+        }
+    }
+
+    /** Iterates over all timers without any order, the queue must not be modified meanwhile. */
+    @Nonnull
+    @Override
+    public CloseableIterator<TimerHeapInternalTimer<K, N>> iterator() {
+        return CloseableIterator.adapterForIterator(
+                new Iterator<TimerHeapInternalTimer<K, N>>() {
+                    private int entry;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entry < size;
+                    }
+
+                    @Override
+                    public TimerHeapInternalTimer<K, N> next() {
+                        if (entry >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int current = entry++;
+                        return readTimer(current, getHeapTimestamp(getHeapIndex(current)));
+                    }
+                });
+    }
+
+    @Override
+    public int getInternalIndex() {
+        return internalIndex;
+    }
+
+    @Override
+    public void setInternalIndex(int newIndex) {
+        this.internalIndex = newIndex;
+    }
+
+    // ------------------------------------------------------------------------
+    //  heap
+    // ------------------------------------------------------------------------
+
+    private void removeAtHeapIndex(int heapIndex) {
+        int entry = getHeapEntry(heapIndex);
+        int lastHeapIndex = size - 1;
+
+        if (heapIndex == 0) {
+            cachedHead = null;
+        }
+
+        if (heapIndex != lastHeapIndex) {
+            long lastTimestamp = getHeapTimestamp(lastHeapIndex);
+            int lastEntry = getHeapEntry(lastHeapIndex);
+            if (heapIndex > 0 && getHeapTimestamp((heapIndex - 1) >>> 1) > lastTimestamp) {
+                siftUp(heapIndex, lastTimestamp, lastEntry);
+            } else {
+                siftDown(heapIndex, lastTimestamp, lastEntry, lastHeapIndex);
+            }
+        }
+
+        removeEntry(entry);
+    }
+
+    /** Moves the given timer from the given heap index up to its position. */
+    private void siftUp(int heapIndex, long timestamp, int entry) {
+        while (heapIndex > 0) {
+            int parentIndex = (heapIndex - 1) >>> 1;
+            long parentTimestamp = getHeapTimestamp(parentIndex);
+            if (parentTimestamp <= timestamp) {
+                break;
+            }
+            setHeapSlot(heapIndex, parentTimestamp, getHeapEntry(parentIndex));
+            heapIndex = parentIndex;
+        }
+        setHeapSlot(heapIndex, timestamp, entry);
+    }
+
+    /** Moves the given timer from the given heap index down to its position. */
+    private void siftDown(int heapIndex, long timestamp, int entry, int heapSize) {
+        int halfSize = heapSize >>> 1;
+        while (heapIndex < halfSize) {
+            int childIndex = 2 * heapIndex + 1;
+            long childTimestamp = getHeapTimestamp(childIndex);
+            int rightIndex = childIndex + 1;
+            if (rightIndex < heapSize) {
+                long rightTimestamp = getHeapTimestamp(rightIndex);
+                if (rightTimestamp < childTimestamp) {
+                    childIndex = rightIndex;
+                    childTimestamp = rightTimestamp;
+                }
+            }
+            if (timestamp <= childTimestamp) {
+                break;
+            }
+            setHeapSlot(heapIndex, childTimestamp, getHeapEntry(childIndex));
+            heapIndex = childIndex;
+        }
+        setHeapSlot(heapIndex, timestamp, entry);
+    }
+
+    private void setHeapSlot(int heapIndex, long timestamp, int entry) {
+        if (heapIndex == 0) {
+            cachedHead = null;
+        }
+
+        int slotOffset = heapIndex * HEAP_SLOT_SIZE;
+        heap.putLong(slotOffset, timestamp);
+        heap.putInt(slotOffset + Long.BYTES, entry);
+        entries.putInt(entry * ENTRY_SIZE + ENTRY_HEAP_INDEX, heapIndex);
+    }
+
+    private long getHeapTimestamp(int heapIndex) {
+        return heap.getLong(heapIndex * HEAP_SLOT_SIZE);
+    }
+
+    private int getHeapEntry(int heapIndex) {
+        return heap.getInt(heapIndex * HEAP_SLOT_SIZE + Long.BYTES);
+    }
+
+    // ------------------------------------------------------------------------
+    //  entries and hash index
+    // ------------------------------------------------------------------------
+
+    /**
+     * Removes the given entry, whose heap slot has already been reused. The last entry is moved to
+     * the freed id to keep the entries dense.
+     */
+    private void removeEntry(int entry) {
+        removeFromBuckets(entry);
+        garbageSize += getDataLength(entry);
+
+        int lastEntry = --size;
+        if (entry != lastEntry) {
+            int lastBucket = findBucketOfEntry(lastEntry);
+            entries.copyTo(lastEntry * ENTRY_SIZE, entries, entry * ENTRY_SIZE, ENTRY_SIZE);
+            heap.putInt(getHeapIndex(entry) * HEAP_SLOT_SIZE + Long.BYTES, entry);
+            buckets[lastBucket] = entry;
+        }
+    }
+
+    /**
+     * Returns the bucket which contains the entry of the serialized timer in the serialization
+     * buffer, or the empty bucket where it should be inserted.
+     */
+    private int findBucket(long timestamp, int length, int hash) {
+        int mask = buckets.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int entry = buckets[bucket];
+            if (entry == EMPTY_BUCKET
+                    || (getHash(entry) == hash
+                            && getDataLength(entry) == length
+                            && getHeapTimestamp(getHeapIndex(entry)) == timestamp
+                            && data.equalTo(
+                                    getSerializationSegment(), getDataOffset(entry), 0, length))) {
+                return bucket;
+            }
+        }
+    }
+
+    private int findBucketOfEntry(int entry) {
+        int mask = buckets.length - 1;
+        int bucket = getHash(entry) & mask;
+        while (buckets[bucket] != entry) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /** Removes the entry from the hash index and shifts back the following entries if needed. */
+    private void removeFromBuckets(int entry) {
+        int mask = buckets.length - 1;
+        int freeBucket = findBucketOfEntry(entry);
+        buckets[freeBucket] = EMPTY_BUCKET;
+
+        for (int bucket = (freeBucket + 1) & mask;
+                buckets[bucket] != EMPTY_BUCKET;
+                bucket = (bucket + 1) & mask) {
+            int homeBucket = getHash(buckets[bucket]) & mask;
+            // the entry may move to the free bucket if its home is not between the two buckets
+            boolean isHomeBetween =
+                    freeBucket <= bucket
+                            ? freeBucket < homeBucket && homeBucket <= bucket
+                            : freeBucket < homeBucket || homeBucket <= bucket;
+            if (!isHomeBetween) {
+                buckets[freeBucket] = buckets[bucket];
+                buckets[bucket] = EMPTY_BUCKET;
+                freeBucket = bucket;
+            }
+        }
+    }
+
+    private int getDataOffset(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + ENTRY_DATA_OFFSET);
+    }
+
+    private int getDataLength(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + ENTRY_DATA_LENGTH);
+    }
+
+    private int getHash(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + ENTRY_HASH);
+    }
+
+    private int getHeapIndex(int entry) {
+        return entries.getInt(entry * ENTRY_SIZE + ENTRY_HEAP_INDEX);
+    }
+
+    // ------------------------------------------------------------------------
+    //  memory management
+    // ------------------------------------------------------------------------
+
+    private void ensureCapacity(int requiredCapacity) {
+        if (requiredCapacity <= capacity) {
+            return;
+        }
+
+        if (requiredCapacity > MAX_CAPACITY) {
+            throw new FlinkRuntimeException(
+                    "Too many timers in a single key-group: " + requiredCapacity);
+        }
+
+        long grownCapacity = capacity;
+        while (grownCapacity < requiredCapacity) {
+            grownCapacity *= 2;
+        }
+        int newCapacity = (int) Math.min(grownCapacity, MAX_CAPACITY);
+
+        heap = copyToNewSegment(heap, newCapacity * HEAP_SLOT_SIZE, size * HEAP_SLOT_SIZE);
+        entries = copyToNewSegment(entries, newCapacity * ENTRY_SIZE, size * ENTRY_SIZE);
+        capacity = newCapacity;
+
+        // keep the load factor of the hash index at most 0.5
+        buckets = new int[Integer.highestOneBit(newCapacity - 1) << 2];
+        Arrays.fill(buckets, EMPTY_BUCKET);
+        int mask = buckets.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int bucket = getHash(entry) & mask;
+            while (buckets[bucket] != EMPTY_BUCKET) {
+                bucket = (bucket + 1) & mask;
+            }
+            buckets[bucket] = entry;
+        }
+    }
+
+    /** Makes room for the given number of bytes in the data arena, compacting it if needed. */
+    private void reserveData(int length) {
+        if ((long) dataSize + length <= data.size()) {
+            return;
+        }
+
+        long requiredSize = (long) dataSize - garbageSize + length;
+        if (requiredSize > MAX_SEGMENT_SIZE) {
+            throw new FlinkRuntimeException(
+                    "Too much timer data in a single key-group: " + requiredSize + " bytes.");
+        }
+
+        // grow the arena if it would be more than half full after compaction
+        long newDataCapacity = data.size();
+        while (newDataCapacity < 2 * requiredSize && newDataCapacity < MAX_SEGMENT_SIZE) {
+            newDataCapacity = Math.min(2 * newDataCapacity, MAX_SEGMENT_SIZE);
+        }
+
+        MemorySegment newData = allocate((int) newDataCapacity);
+        int newDataSize = 0;
+        for (int entry = 0; entry < size; entry++) {
+            int entryLength = getDataLength(entry);
+            data.copyTo(getDataOffset(entry), newData, newDataSize, entryLength);
+            entries.putInt(entry * ENTRY_SIZE + ENTRY_DATA_OFFSET, newDataSize);
+            newDataSize += entryLength;
+        }
+
+        data.free();
+        data = newData;
+        dataSize = newDataSize;
+        garbageSize = 0;
+    }
+
+    private static MemorySegment copyToNewSegment(
+            MemorySegment segment, int newSize, int numBytesToCopy) {
+        MemorySegment newSegment = allocate(newSize);
+        segment.copyTo(0, newSegment, 0, numBytesToCopy);
+        segment.free();
+        return newSegment;
+    }
+
+    private static MemorySegment allocate(int size) {
+        // direct memory, which is accounted as task off-heap memory, see
+        // InternalTimeServiceManagerImpl.PackedTimersProvider
+        return MemorySegmentFactory.allocateUnpooledOffHeapMemory(size);
+    }
+
+    // ------------------------------------------------------------------------
+    //  serialization
+    // ------------------------------------------------------------------------
+
+    /** Serializes key and namespace of the timer to the serialization buffer. */
+    private int serialize(TimerHeapInternalTimer<K, N> timer) {
+        serializationBuffer.clear();
+        try {
+            keySerializer.serialize(timer.getKey(), serializationBuffer);
+            namespaceSerializer.serialize(timer.getNamespace(), serializationBuffer);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Error while serializing the timer.", e);
+        }
+        return serializationBuffer.length();
+    }
+
+    private int hash(long timestamp, int length) {
+        byte[] bytes = serializationBuffer.getSharedBuffer();
+        int hash = Long.hashCode(timestamp);
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return MathUtils.murmurHash(hash);
+    }
+
+    private MemorySegment getSerializationSegment() {
+        byte[] bytes = serializationBuffer.getSharedBuffer();
+        if (serializationSegment == null || serializationSegment.getArray() != bytes) {
+            serializationSegment = MemorySegmentFactory.wrap(bytes);
+        }
+        return serializationSegment;
+    }
+
+    private TimerHeapInternalTimer<K, N> readTimer(int entry, long timestamp) {
+        int length = getDataLength(entry);
+        if (deserializationArray.length < length) {
+            deserializationArray = new byte[Math.max(length, 2 * deserializationArray.length)];
+        }
+        data.get(getDataOffset(entry), deserializationArray, 0, length);
+        deserializationBuffer.setBuffer(deserializationArray, 0, length);
+        try {
+            return new TimerHeapInternalTimer<>(
+                    timestamp,
+                    keySerializer.deserialize(deserializationBuffer),
+                    namespaceSerializer.deserialize(deserializationBuffer));
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Error while deserializing the timer.", e);
+        }
+    }
+}
@@ -202,10 +202,11 @@ public class StreamOperatorStateHandler {
                 final InternalTimeServiceManager<?> manager = timeServiceManager.get();
 
                 boolean requiresLegacyRawKeyedStateSnapshots =
-                        keyedStateBackend instanceof AbstractKeyedStateBackend
-                                && ((AbstractKeyedStateBackend<?>) keyedStateBackend)
-                                        .requiresLegacySynchronousTimerSnapshots(
-                                                checkpointOptions.getCheckpointType());
+                        manager.requiresRawKeyedStateSnapshots()
+                                || keyedStateBackend instanceof AbstractKeyedStateBackend
+                                        && ((AbstractKeyedStateBackend<?>) keyedStateBackend)
+                                                .requiresLegacySynchronousTimerSnapshots(
+                                                        checkpointOptions.getCheckpointType());
 
                 if (requiresLegacyRawKeyedStateSnapshots) {
                     checkState(
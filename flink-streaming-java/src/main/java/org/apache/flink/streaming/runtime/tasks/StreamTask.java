@@ -19,6 +19,8 @@ package org.apache.flink.streaming.runtime.tasks;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.Path;
@@ -522,6 +524,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
     public StreamTaskStateInitializer createStreamTaskStateInitializer() {
         InternalTimeServiceManager.Provider timerServiceProvider =
                 configuration.getTimerServiceProvider(getUserCodeClassLoader());
+        if (timerServiceProvider != null) {
+            timerServiceProvider.checkTaskManagerConfiguration(
+                    getEnvironment().getTaskManagerInfo().getConfiguration());
+        }
         return new StreamTaskStateInitializerImpl(
                 getEnvironment(),
                 stateBackend,
@@ -650,6 +656,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
         // final check to exit early before starting to run
         ensureNotCanceled();
 
+        scheduleBufferDebloater();
+
         // let the task do its work
         runMailboxLoop();
 
@@ -660,6 +668,39 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
         afterInvoke();
     }
 
+    /**
+     * Periodically recalculates the buffer size of the input gates from their throughput, if buffer
+     * debloating is enabled.
+     */
+    private void scheduleBufferDebloater() {
+        Configuration taskManagerConfig = getEnvironment().getTaskManagerInfo().getConfiguration();
+        // without input gates, there is no throughput to adapt the buffer size to
+        if (!taskManagerConfig.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED)
+                || getEnvironment().getAllInputGates().length == 0) {
+            return;
+        }
+
+        registerBufferDebloatTimer(
+                taskManagerConfig
+                        .get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD)
+                        .toMillis());
+    }
+
+    private void registerBufferDebloatTimer(long periodMillis) {
+        systemTimerService.registerTimer(
+                systemTimerService.getCurrentProcessingTime() + periodMillis,
+                timestamp ->
+                        mainMailboxExecutor.execute(
+                                () -> {
+                                    for (IndexedInputGate inputGate :
+                                            getEnvironment().getAllInputGates()) {
+                                        inputGate.triggerDebloating();
+                                    }
+                                    registerBufferDebloatTimer(periodMillis);
+                                },
+                                "Buffer size recalculation"));
+    }
+
     private void runWithCleanUpOnFail(RunnableWithException run) throws Exception {
         try {
             run.run();
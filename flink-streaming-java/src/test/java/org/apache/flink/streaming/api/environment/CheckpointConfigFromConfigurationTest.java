@@ -96,6 +96,11 @@ public class CheckpointConfigFromConfigurationTest {
                         .whenSetFromFile("execution.checkpointing.unaligned", "true")
                         .viaSetter(CheckpointConfig::enableUnalignedCheckpoints)
                         .getterVia(CheckpointConfig::isUnalignedCheckpointsEnabled)
+                        .nonDefaultValue(true),
+                TestSpec.testValue(true)
+                        .whenSetFromFile("execution.checkpointing.sharded-metadata", "true")
+                        .viaSetter(CheckpointConfig::enableShardedMetadata)
+                        .getterVia(CheckpointConfig::isShardedMetadataEnabled)
                         .nonDefaultValue(true));
     }
 
@@ -18,6 +18,10 @@
 
 package org.apache.flink.streaming.api.operators;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.util.TestLogger;
 
 import org.junit.Assert;
@@ -39,4 +43,18 @@ public class InternalTimeServiceManagerImplTest extends TestLogger {
                 expectedTimerStatePrefix + "/event_",
                 InternalTimeServiceManagerImpl.EVENT_TIMER_PREFIX);
     }
+
+    @Test(expected = IllegalConfigurationException.class)
+    public void testPackedTimersRequireTaskOffHeapMemory() {
+        new InternalTimeServiceManagerImpl.PackedTimersProvider()
+                .checkTaskManagerConfiguration(new Configuration());
+    }
+
+    @Test
+    public void testPackedTimersWithTaskOffHeapMemory() {
+        Configuration configuration = new Configuration();
+        configuration.set(TaskManagerOptions.TASK_OFF_HEAP_MEMORY, MemorySize.parse("64m"));
+        new InternalTimeServiceManagerImpl.PackedTimersProvider()
+                .checkTaskManagerConfiguration(configuration);
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link PackedTimerPriorityQueueSet}. */
+public class PackedTimerPriorityQueueSetTest extends TestLogger {
+
+    @Test
+    public void testTimersArePolledInTimestampOrder() {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+
+        assertTrue(queue.add(timer(30, "a", 0)));
+        assertFalse(queue.add(timer(40, "b", 0)));
+        assertTrue(queue.add(timer(10, "c", 1)));
+        assertFalse(queue.add(timer(20, "d", 0)));
+        assertEquals(4, queue.size());
+
+        assertEquals(timer(10, "c", 1), queue.poll());
+        assertEquals(timer(20, "d", 0), queue.poll());
+        assertEquals(timer(30, "a", 0), queue.poll());
+        assertEquals(timer(40, "b", 0), queue.poll());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testDuplicateTimersAreIgnored() {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+
+        assertTrue(queue.add(timer(10, "a", 0)));
+        assertFalse(queue.add(timer(10, "a", 0)));
+        // timers differing in any of timestamp, key or namespace are distinct
+        queue.add(timer(11, "a", 0));
+        queue.add(timer(10, "b", 0));
+        queue.add(timer(10, "a", 1));
+
+        assertEquals(4, queue.size());
+    }
+
+    @Test
+    public void testRemoveReportsHeadChanges() {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+        queue.add(timer(10, "a", 0));
+        queue.add(timer(20, "b", 0));
+        queue.add(timer(30, "c", 0));
+
+        assertFalse(queue.remove(timer(40, "c", 0)));
+        assertFalse(queue.remove(timer(20, "b", 0)));
+        assertFalse(queue.remove(timer(20, "b", 0)));
+        assertTrue(queue.remove(timer(10, "a", 0)));
+
+        assertEquals(1, queue.size());
+        assertEquals(timer(30, "c", 0), queue.peek());
+    }
+
+    @Test
+    public void testHeadIsDeserializedOnce() {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+        queue.add(timer(20, "a", 0));
+
+        TimerHeapInternalTimer<String, Integer> head = queue.peek();
+        assertSame(head, queue.peek());
+        assertSame(head, queue.poll());
+
+        queue.add(timer(20, "a", 0));
+        head = queue.peek();
+        queue.add(timer(10, "b", 0));
+        assertEquals(timer(10, "b", 0), queue.peek());
+        queue.remove(timer(10, "b", 0));
+        assertEquals(head, queue.peek());
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+        Set<TimerHeapInternalTimer<String, Integer>> expected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            TimerHeapInternalTimer<String, Integer> timer = timer(i % 7, "key-" + i, i);
+            queue.add(timer);
+            expected.add(timer);
+        }
+
+        assertEquals(expected, drainIterator(queue));
+    }
+
+    @Test
+    public void testRandomOperations() throws Exception {
+        PackedTimerPriorityQueueSet<String, Integer> queue = createQueue();
+        Set<TimerHeapInternalTimer<String, Integer>> expected = new HashSet<>();
+        Random random = new Random(42L);
+
+        // enough operations to grow the queue and compact the data arena several times
+        for (int i = 0; i < 100_000; i++) {
+            TimerHeapInternalTimer<String, Integer> timer =
+                    timer(random.nextInt(1000), "key-" + random.nextInt(500), random.nextInt(4));
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                TimerHeapInternalTimer<String, Integer> head = queue.peek();
+                boolean headChanged = queue.add(timer);
+                assertEquals(
+                        !expected.contains(timer)
+                                && (head == null || timer.getTimestamp() < head.getTimestamp()),
+                        headChanged);
+                expected.add(timer);
+            } else if (operation < 8) {
+                queue.remove(timer);
+                expected.remove(timer);
+            } else {
+                TimerHeapInternalTimer<String, Integer> polled = queue.poll();
+                if (polled == null) {
+                    assertTrue(expected.isEmpty());
+                } else {
+                    assertTrue(expected.remove(polled));
+                    for (TimerHeapInternalTimer<String, Integer> remaining : expected) {
+                        assertTrue(remaining.getTimestamp() >= polled.getTimestamp());
+                    }
+                }
+            }
+            assertEquals(expected.size(), queue.size());
+        }
+
+        assertEquals(expected, drainIterator(queue));
+
+        long lastTimestamp = Long.MIN_VALUE;
+        TimerHeapInternalTimer<String, Integer> polled;
+        while ((polled = queue.poll()) != null) {
+            assertTrue(polled.getTimestamp() >= lastTimestamp);
+            assertTrue(expected.remove(polled));
+            lastTimestamp = polled.getTimestamp();
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    private static Set<TimerHeapInternalTimer<String, Integer>> drainIterator(
+            PackedTimerPriorityQueueSet<String, Integer> queue) throws Exception {
+        List<TimerHeapInternalTimer<String, Integer>> timers = new ArrayList<>();
+        try (CloseableIterator<TimerHeapInternalTimer<String, Integer>> iterator =
+                queue.iterator()) {
+            iterator.forEachRemaining(timers::add);
+        }
+        assertEquals(queue.size(), timers.size());
+        return new HashSet<>(timers);
+    }
+
+    private static PackedTimerPriorityQueueSet<String, Integer> createQueue() {
+        return new PackedTimerPriorityQueueSet<>(StringSerializer.INSTANCE, IntSerializer.INSTANCE);
+    }
+
+    private static TimerHeapInternalTimer<String, Integer> timer(
+            long timestamp, String key, int namespace) {
+        return new TimerHeapInternalTimer<>(timestamp, key, namespace);
+    }
+}
@@ -55,6 +55,33 @@ public class ExecutionConfigOptions {
                                     + "NOTE: Cleaning up state requires additional overhead for bookkeeping. "
                                     + "Default value is 0, which means that it will never clean up state.");
 
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<Boolean> TABLE_EXEC_JOIN_COMPACT_STATE_ENABLED =
+            key("table.exec.join.compact-state.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether a regular streaming join stores all records of a join key "
+                                    + "in a single compact state value instead of a state entry per record, "
+                                    + "if the join key does not contain a unique key of the input. "
+                                    + "This reads the records of a join key with a single state access, "
+                                    + "which is faster for the RocksDB state backend. "
+                                    + "NOTE: The compact state is not compatible with the state of "
+                                    + "a job which ran without it.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<Integer> TABLE_EXEC_JOIN_COMPACT_STATE_CACHE_SIZE =
+            key("table.exec.join.compact-state.cache-size")
+                    .intType()
+                    .defaultValue(1000)
+                    .withDescription(
+                            "The number of most recently used join keys per join input whose "
+                                    + "records are cached in memory if '"
+                                    + "table.exec.join.compact-state.enabled"
+                                    + "' is true. The changes of cached join keys are written "
+                                    + "to the state when they are evicted or on checkpoints. "
+                                    + "The value must be at least 1.");
+
     // ------------------------------------------------------------------------
     //  Source Options
     // ------------------------------------------------------------------------
@@ -283,6 +310,68 @@ public class ExecutionConfigOptions {
                     .withDescription(
                             "The async timeout for the asynchronous operation to complete.");
 
+    // ------------------------------------------------------------------------
+    //  Lookup Cache Options
+    // ------------------------------------------------------------------------
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH_STREAMING)
+    public static final ConfigOption<MemorySize> TABLE_EXEC_LOOKUP_CACHE_MAX_SIZE =
+            key("table.exec.lookup.cache.max-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "The maximum size of the results of lookup joins cached in every "
+                                    + "TaskManager. The cache is shared by all parallel instances of "
+                                    + "a lookup join of a job which run in the same TaskManager and "
+                                    + "is independent from the caching of the connector. The default "
+                                    + "value 0 disables the cache.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH_STREAMING)
+    public static final ConfigOption<LookupCacheEviction> TABLE_EXEC_LOOKUP_CACHE_EVICTION =
+            key("table.exec.lookup.cache.eviction")
+                    .enumType(LookupCacheEviction.class)
+                    .defaultValue(LookupCacheEviction.LRU)
+                    .withDescription(
+                            "The policy to evict cached lookup results when the cache exceeds "
+                                    + "its maximum size. 'LRU' evicts the least recently used "
+                                    + "results, 'LFU' the least frequently used ones.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH_STREAMING)
+    public static final ConfigOption<Duration> TABLE_EXEC_LOOKUP_CACHE_TTL =
+            key("table.exec.lookup.cache.ttl")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(10))
+                    .withDescription(
+                            "The time after which cached lookup results expire and are looked "
+                                    + "up again.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH_STREAMING)
+    public static final ConfigOption<Duration> TABLE_EXEC_LOOKUP_CACHE_REFRESH_AFTER =
+            key("table.exec.lookup.cache.refresh-after")
+                    .durationType()
+                    .noDefaultValue()
+                    .withDescription(
+                            "The time after which cached lookup results are refreshed ahead of "
+                                    + "their expiration. Cached results older than this time are "
+                                    + "still used, while an asynchronous lookup of the key updates "
+                                    + "the cache in the background. It only applies to asynchronous "
+                                    + "lookup functions and should be smaller than "
+                                    + "'table.exec.lookup.cache.ttl'.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH_STREAMING)
+    public static final ConfigOption<Duration> TABLE_EXEC_LOOKUP_CACHE_RELOAD_INTERVAL =
+            key("table.exec.lookup.cache.reload-interval")
+                    .durationType()
+                    .noDefaultValue()
+                    .withDescription(
+                            "If set, the whole table is loaded into the lookup cache when the "
+                                    + "lookup join starts and reloaded with this interval. If the "
+                                    + "table fits into the cache, keys which are not cached are not "
+                                    + "looked up at all, otherwise the cache is only preloaded with "
+                                    + "a part of the table. It only applies to lookup functions "
+                                    + "which implement 'org.apache.flink.table.runtime.operators."
+                                    + "join.lookup.LookupSnapshotLoader' and lookup joins without "
+                                    + "constant lookup keys.");
+
     // ------------------------------------------------------------------------
     //  MiniBatch Options
     // ------------------------------------------------------------------------
@@ -322,6 +411,48 @@ public class ExecutionConfigOptions {
                                     + TABLE_EXEC_MINIBATCH_ENABLED.key()
                                     + " is set true, its value must be positive.");
 
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<MemorySize> TABLE_EXEC_MINIBATCH_LOCAL_AGG_BUFFER_MEMORY =
+            key("table.exec.mini-batch.local-agg.buffer-memory")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "The managed memory in which the local aggregation of a two-phase "
+                                    + "aggregation buffers the keys and accumulators of a MiniBatch in "
+                                    + "binary format instead of as Java objects on the heap. The MiniBatch "
+                                    + "is finished when the memory is exhausted instead of after "
+                                    + "'table.exec.mini-batch.size' records. This requires that all "
+                                    + "accumulators have a fixed length, otherwise the records are "
+                                    + "buffered on the heap. Default value is 0, which means the records "
+                                    + "are always buffered on the heap.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<Double> TABLE_EXEC_MINIBATCH_LOCAL_AGG_MIN_REDUCTION_RATIO =
+            key("table.exec.mini-batch.local-agg.min-reduction-ratio")
+                    .doubleType()
+                    .defaultValue(0.0)
+                    .withDescription(
+                            "The minimum fraction of input records which the local aggregation of a "
+                                    + "two-phase aggregation combines with another record of the same key "
+                                    + "in a MiniBatch. While the observed fraction is below the minimum, "
+                                    + "e.g. because the keys are nearly unique, the local aggregation "
+                                    + "passes the records through to the global aggregation one by one "
+                                    + "instead of buffering them, and probes the buffering again after '"
+                                    + "table.exec.mini-batch.local-agg.pass-through-records"
+                                    + "' records. The value must be between 0 and 1. "
+                                    + "Default value is 0, which means the local aggregation always buffers records.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<Long> TABLE_EXEC_MINIBATCH_LOCAL_AGG_PASS_THROUGH_RECORDS =
+            key("table.exec.mini-batch.local-agg.pass-through-records")
+                    .longType()
+                    .defaultValue(100_000L)
+                    .withDescription(
+                            "The number of records which the local aggregation passes through before "
+                                    + "it probes the buffering of records again, if '"
+                                    + "table.exec.mini-batch.local-agg.min-reduction-ratio"
+                                    + "' is positive.");
+
     // ------------------------------------------------------------------------
     //  Other Exec Options
     // ------------------------------------------------------------------------
@@ -360,6 +491,10 @@ public class ExecutionConfigOptions {
                                             text(
                                                     "%s: All edges will use pipelined shuffle.",
                                                     code("ALL_EDGES_PIPELINED")),
+                                            text(
+                                                    "%s: All edges will use hybrid shuffle, which is a blocking shuffle whose "
+                                                            + "data can be consumed while being produced.",
+                                                    code("ALL_EDGES_HYBRID")),
                                             text(
                                                     "%s: the same as %s. Deprecated.",
                                                     code("batch"), code("ALL_EDGES_BLOCKING")),
@@ -383,6 +518,16 @@ public class ExecutionConfigOptions {
         DROP
     }
 
+    /** Eviction policy of the lookup join cache. */
+    public enum LookupCacheEviction {
+
+        /** Evicts the least recently used lookup results. */
+        LRU,
+
+        /** Evicts the least frequently used lookup results. */
+        LFU
+    }
+
     /** Upsert materialize strategy before sink. */
     public enum UpsertMaterialize {
 
@@ -21,6 +21,7 @@ package org.apache.flink.table.api.config;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.docs.Documentation;
 import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.MemorySize;
 
 import static org.apache.flink.configuration.ConfigOptions.key;
 
@@ -114,4 +115,47 @@ public class OptimizerConfigOptions {
                     .withDescription(
                             "When it is true, the optimizer will merge the operators with pipelined shuffling "
                                     + "into a multiple input operator to reduce shuffling and improve performance. Default value is true.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.STREAMING)
+    public static final ConfigOption<Boolean> TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED =
+            key("table.optimizer.window-agg.merge-enabled")
+                    .defaultValue(false)
+                    .withDescription(
+                            "When it is true, the optimizer will merge the window aggregations of a UNION ALL "
+                                    + "which only differ in the size or slide of their tumbling or hopping windows "
+                                    + "into one operator, which keeps one copy of the aggregated slices for all "
+                                    + "windows. The window aggregations must have the same input, time attribute, "
+                                    + "grouping keys and aggregate functions, and the windows must not have an offset. "
+                                    + "Default value is false.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH)
+    public static final ConfigOption<Boolean> TABLE_OPTIMIZER_RUNTIME_FILTER_ENABLED =
+            key("table.optimizer.runtime-filter.enabled")
+                    .defaultValue(false)
+                    .withDescription(
+                            "When it is true, the optimizer will build a bloom filter from the join keys of the "
+                                    + "build side of a shuffled hash join at runtime and apply it to the probe side "
+                                    + "before the probe side is shuffled. Only joins which drop the probe side rows "
+                                    + "without match are filtered.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH)
+    public static final ConfigOption<MemorySize>
+            TABLE_OPTIMIZER_RUNTIME_FILTER_MAX_BUILD_DATA_SIZE =
+                    key("table.optimizer.runtime-filter.max-build-data-size")
+                            .memoryType()
+                            .defaultValue(MemorySize.parse("150m"))
+                            .withDescription(
+                                    "The maximum estimated data size of the build side of a hash join to build a "
+                                            + "runtime filter from. The filter is not applied at runtime if the actual "
+                                            + "build side has many more rows than estimated.");
+
+    @Documentation.TableOption(execMode = Documentation.ExecMode.BATCH)
+    public static final ConfigOption<MemorySize>
+            TABLE_OPTIMIZER_RUNTIME_FILTER_MIN_PROBE_DATA_SIZE =
+                    key("table.optimizer.runtime-filter.min-probe-data-size")
+                            .memoryType()
+                            .defaultValue(MemorySize.parse("10g"))
+                            .withDescription(
+                                    "The minimum estimated data size of the probe side of a hash join to apply a "
+                                            + "runtime filter to.");
 }
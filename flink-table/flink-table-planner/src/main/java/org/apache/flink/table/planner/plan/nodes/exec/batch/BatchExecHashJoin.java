@@ -81,6 +81,30 @@ public class BatchExecHashJoin extends ExecNodeBase<RowData>
         this.tryDistinctBuildRow = tryDistinctBuildRow;
     }
 
+    public JoinSpec getJoinSpec() {
+        return joinSpec;
+    }
+
+    public boolean isLeftBuild() {
+        return leftIsBuild;
+    }
+
+    public int getEstimatedLeftAvgRowSize() {
+        return estimatedLeftAvgRowSize;
+    }
+
+    public int getEstimatedRightAvgRowSize() {
+        return estimatedRightAvgRowSize;
+    }
+
+    public long getEstimatedLeftRowCount() {
+        return estimatedLeftRowCount;
+    }
+
+    public long getEstimatedRightRowCount() {
+        return estimatedRightRowCount;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected Transformation<RowData> translateToPlanInternal(PlannerBase planner) {
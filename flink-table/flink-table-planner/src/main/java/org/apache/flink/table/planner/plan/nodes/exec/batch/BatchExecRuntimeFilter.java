@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.nodes.exec.batch;
+
+import org.apache.flink.api.dag.Transformation;
+import org.apache.flink.streaming.api.operators.SimpleOperatorFactory;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.planner.codegen.CodeGeneratorContext;
+import org.apache.flink.table.planner.codegen.ProjectionCodeGenerator;
+import org.apache.flink.table.planner.delegation.PlannerBase;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNode;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNodeBase;
+import org.apache.flink.table.planner.plan.nodes.exec.InputProperty;
+import org.apache.flink.table.planner.plan.nodes.exec.SingleTransformationTranslator;
+import org.apache.flink.table.planner.plan.nodes.exec.utils.ExecNodeUtil;
+import org.apache.flink.table.runtime.generated.GeneratedProjection;
+import org.apache.flink.table.runtime.operators.runtimefilter.RuntimeFilterOperator;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.util.Arrays;
+
+/**
+ * Batch {@link ExecNode} which drops the probe side rows of a hash join whose join keys are not
+ * contained in the runtime filter of the build side, see {@link RuntimeFilterOperator}.
+ *
+ * <p>The first input is the broadcast runtime filter, the second input the probe side rows.
+ */
+public class BatchExecRuntimeFilter extends ExecNodeBase<RowData>
+        implements BatchExecNode<RowData>, SingleTransformationTranslator<RowData> {
+
+    private final int[] probeKeys;
+    private final RowType keyType;
+    private final int expectedEntries;
+
+    public BatchExecRuntimeFilter(
+            int[] probeKeys,
+            RowType keyType,
+            int expectedEntries,
+            InputProperty filterInputProperty,
+            InputProperty probeInputProperty,
+            RowType outputType,
+            String description) {
+        super(Arrays.asList(filterInputProperty, probeInputProperty), outputType, description);
+        this.probeKeys = probeKeys;
+        this.keyType = keyType;
+        this.expectedEntries = expectedEntries;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Transformation<RowData> translateToPlanInternal(PlannerBase planner) {
+        Transformation<RowData> filterTransform =
+                (Transformation<RowData>) getInputEdges().get(0).translateToPlan(planner);
+        ExecEdge probeInputEdge = getInputEdges().get(1);
+        Transformation<RowData> probeTransform =
+                (Transformation<RowData>) probeInputEdge.translateToPlan(planner);
+
+        GeneratedProjection probeProjection =
+                ProjectionCodeGenerator.generateProjection(
+                        new CodeGeneratorContext(planner.getTableConfig()),
+                        "RuntimeFilterProbeProjection",
+                        (RowType) probeInputEdge.getOutputType(),
+                        keyType,
+                        probeKeys);
+        RuntimeFilterOperator operator =
+                new RuntimeFilterOperator(probeProjection, expectedEntries);
+
+        return ExecNodeUtil.createTwoInputTransformation(
+                filterTransform,
+                probeTransform,
+                getDescription(),
+                SimpleOperatorFactory.of(operator),
+                InternalTypeInfo.of(getOutputType()),
+                probeTransform.getParallelism(),
+                0);
+    }
+}
@@ -65,8 +65,10 @@ import org.apache.flink.table.runtime.generated.GeneratedResultFuture;
 import org.apache.flink.table.runtime.operators.join.FlinkJoinType;
 import org.apache.flink.table.runtime.operators.join.lookup.AsyncLookupJoinRunner;
 import org.apache.flink.table.runtime.operators.join.lookup.AsyncLookupJoinWithCalcRunner;
+import org.apache.flink.table.runtime.operators.join.lookup.LookupCacheSpec;
 import org.apache.flink.table.runtime.operators.join.lookup.LookupJoinRunner;
 import org.apache.flink.table.runtime.operators.join.lookup.LookupJoinWithCalcRunner;
+import org.apache.flink.table.runtime.operators.join.lookup.LookupSnapshotLoader;
 import org.apache.flink.table.runtime.types.PlannerTypeUtils;
 import org.apache.flink.table.runtime.types.TypeInfoDataTypeConverter;
 import org.apache.flink.table.runtime.typeutils.InternalSerializers;
@@ -89,11 +91,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nullable;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -232,6 +237,12 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
         }
 
         boolean isLeftOuterJoin = joinType == FlinkJoinType.LEFT;
+        LookupCacheSpec cacheSpec =
+                createLookupCacheSpec(
+                        temporalTable,
+                        planner.getTableConfig(),
+                        userDefinedFunction,
+                        tableSourceRowType);
         StreamOperatorFactory<RowData> operatorFactory;
         if (isAsyncEnabled) {
             operatorFactory =
@@ -244,7 +255,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             inputRowType,
                             tableSourceRowType,
                             resultRowType,
-                            isLeftOuterJoin);
+                            isLeftOuterJoin,
+                            cacheSpec);
         } else {
             operatorFactory =
                     createSyncLookupJoin(
@@ -257,7 +269,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             tableSourceRowType,
                             resultRowType,
                             isLeftOuterJoin,
-                            planner.getExecEnv().getConfig().isObjectReuseEnabled());
+                            planner.getExecEnv().getConfig().isObjectReuseEnabled(),
+                            cacheSpec);
         }
 
         Transformation<RowData> inputTransformation =
@@ -314,7 +327,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
             RowType inputRowType,
             RowType tableSourceRowType,
             RowType resultRowType,
-            boolean isLeftOuterJoin) {
+            boolean isLeftOuterJoin,
+            @Nullable LookupCacheSpec cacheSpec) {
 
         int asyncBufferCapacity =
                 config.getConfiguration()
@@ -373,7 +387,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             generatedResultFuture,
                             InternalSerializers.create(rightRowType),
                             isLeftOuterJoin,
-                            asyncBufferCapacity);
+                            asyncBufferCapacity,
+                            cacheSpec);
         } else {
             // right type is the same as table source row type, because no calc after temporal table
             asyncFunc =
@@ -383,7 +398,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             generatedResultFuture,
                             InternalSerializers.create(rightRowType),
                             isLeftOuterJoin,
-                            asyncBufferCapacity);
+                            asyncBufferCapacity,
+                            cacheSpec);
         }
 
         // force ORDERED output mode currently, optimize it to UNORDERED
@@ -402,7 +418,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
             RowType tableSourceRowType,
             RowType resultRowType,
             boolean isLeftOuterJoin,
-            boolean isObjectReuseEnabled) {
+            boolean isObjectReuseEnabled,
+            @Nullable LookupCacheSpec cacheSpec) {
 
         DataTypeFactory dataTypeFactory =
                 ShortcutUtils.unwrapContext(relBuilder).getCatalogManager().getDataTypeFactory();
@@ -453,7 +470,8 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             generatedCalc,
                             generatedCollector,
                             isLeftOuterJoin,
-                            rightRowType.getFieldCount());
+                            rightRowType.getFieldCount(),
+                            cacheSpec);
         } else {
             // right type is the same as table source row type, because no calc after temporal table
             processFunc =
@@ -461,11 +479,106 @@ public abstract class CommonExecLookupJoin extends ExecNodeBase<RowData>
                             generatedFetcher,
                             generatedCollector,
                             isLeftOuterJoin,
-                            rightRowType.getFieldCount());
+                            rightRowType.getFieldCount(),
+                            cacheSpec);
         }
         return SimpleOperatorFactory.of(new ProcessOperator<>(processFunc));
     }
 
+    /**
+     * Creates the spec of the runtime lookup cache, or returns null if the cache is disabled. The
+     * cache is shared by all lookup joins of the job on the same table with the same lookup keys.
+     */
+    @Nullable
+    private LookupCacheSpec createLookupCacheSpec(
+            RelOptTable temporalTable,
+            TableConfig config,
+            UserDefinedFunction lookupFunction,
+            RowType tableSourceRowType) {
+        long maxSizeInBytes =
+                config.getConfiguration()
+                        .get(ExecutionConfigOptions.TABLE_EXEC_LOOKUP_CACHE_MAX_SIZE)
+                        .getBytes();
+        if (maxSizeInBytes == 0) {
+            return null;
+        }
+
+        List<Integer> inputKeyFields = new ArrayList<>();
+        List<Integer> tableKeyFields = new ArrayList<>();
+        List<String> constantKeys = new ArrayList<>();
+        for (int tableField : LookupJoinUtil.getOrderedLookupKeys(lookupKeys.keySet())) {
+            LookupJoinUtil.LookupKey lookupKey = lookupKeys.get(tableField);
+            if (lookupKey instanceof LookupJoinUtil.FieldRefLookupKey) {
+                inputKeyFields.add(((LookupJoinUtil.FieldRefLookupKey) lookupKey).index);
+                tableKeyFields.add(tableField);
+            } else {
+                constantKeys.add(
+                        tableField + "=" + ((LookupJoinUtil.ConstantLookupKey) lookupKey).literal);
+            }
+        }
+        RowType keyType =
+                RowType.of(
+                        tableKeyFields.stream()
+                                .map(tableSourceRowType::getTypeAt)
+                                .toArray(LogicalType[]::new));
+
+        // the constant lookup keys are part of the identifier, the cache keys are fields only
+        String identifier =
+                String.format(
+                        "%s%s, keys=%s, constants=%s",
+                        StringUtils.join(temporalTable.getQualifiedName(), "."),
+                        tableSourceRowType.asSummaryString(),
+                        tableKeyFields,
+                        constantKeys);
+
+        Duration refreshAfter =
+                config.getConfiguration()
+                        .get(ExecutionConfigOptions.TABLE_EXEC_LOOKUP_CACHE_REFRESH_AFTER);
+        Duration reloadInterval =
+                config.getConfiguration()
+                        .get(ExecutionConfigOptions.TABLE_EXEC_LOOKUP_CACHE_RELOAD_INTERVAL);
+        // the rows of a snapshot can only be assigned to lookup keys without constants
+        boolean isPreloaded =
+                reloadInterval != null
+                        && lookupFunction instanceof LookupSnapshotLoader
+                        && constantKeys.isEmpty();
+
+        return new LookupCacheSpec(
+                identifier,
+                inputKeyFields.stream().mapToInt(Integer::intValue).toArray(),
+                tableKeyFields.stream().mapToInt(Integer::intValue).toArray(),
+                keyType,
+                containsPrimaryKey(temporalTable, tableSourceRowType, tableKeyFields),
+                tableSourceRowType,
+                maxSizeInBytes,
+                config.getConfiguration()
+                        .get(ExecutionConfigOptions.TABLE_EXEC_LOOKUP_CACHE_EVICTION),
+                config.getConfiguration()
+                        .get(ExecutionConfigOptions.TABLE_EXEC_LOOKUP_CACHE_TTL)
+                        .toMillis(),
+                refreshAfter == null ? 0 : refreshAfter.toMillis(),
+                isPreloaded ? reloadInterval.toMillis() : 0,
+                isPreloaded ? lookupFunction : null);
+    }
+
+    /** Whether the given table fields contain the primary key of the table. */
+    private static boolean containsPrimaryKey(
+            RelOptTable temporalTable, RowType tableSourceRowType, List<Integer> tableFields) {
+        if (!(temporalTable instanceof TableSourceTable)) {
+            return false;
+        }
+        List<String> fieldNames =
+                tableFields.stream()
+                        .map(tableSourceRowType.getFieldNames()::get)
+                        .collect(Collectors.toList());
+        return ((TableSourceTable) temporalTable)
+                .catalogTable()
+                .getResolvedSchema()
+                .getPrimaryKey()
+                .map(primaryKey -> fieldNames.containsAll(primaryKey.getColumns()))
+                .orElse(false);
+    }
+
     // ----------------------------------------------------------------------------------------
     //                                       Validation
     // ----------------------------------------------------------------------------------------
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.nodes.exec.processor;
+
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.api.config.OptimizerConfigOptions;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNode;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNodeGraph;
+import org.apache.flink.table.planner.plan.nodes.exec.InputProperty;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecExchange;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecGlobalRuntimeFilterBuilder;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecHashJoin;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecLocalRuntimeFilterBuilder;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecNode;
+import org.apache.flink.table.planner.plan.nodes.exec.batch.BatchExecRuntimeFilter;
+import org.apache.flink.table.planner.plan.nodes.exec.spec.JoinSpec;
+import org.apache.flink.table.planner.plan.nodes.exec.visitor.AbstractExecNodeExactlyOnceVisitor;
+import org.apache.flink.table.runtime.operators.join.FlinkJoinType;
+import org.apache.flink.table.runtime.operators.join.HashJoinType;
+import org.apache.flink.table.types.logical.BigIntType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarBinaryType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link ExecNodeGraphProcessor} which pushes runtime filters into the probe side of shuffled
+ * {@link BatchExecHashJoin}s.
+ *
+ * <p>The join keys of the build side rows are collected into a bloom filter by a {@link
+ * BatchExecLocalRuntimeFilterBuilder} per parallel instance, the filters are merged by a single
+ * {@link BatchExecGlobalRuntimeFilterBuilder} and broadcast to a {@link BatchExecRuntimeFilter}
+ * which drops the probe side rows before they are shuffled to the join:
+ *
+ * <pre>
+ *       HashJoin                           HashJoin
+ *       /     \                            /      \
+ *  Exchange  Exchange                Exchange    Exchange
+ *     |         |          =>           |           |
+ *   Build     Probe                     |     RuntimeFilter
+ *                                       |      /         \
+ *                                       | Exchange(broadcast) \
+ *                                       |     |              Probe
+ *                                       | GlobalBuilder
+ *                                       |     |
+ *                                       | Exchange(single)
+ *                                       |     |
+ *                                       | LocalBuilder
+ *                                       \     |
+ *                                         Build
+ * </pre>
+ *
+ * <p>A runtime filter is only created if the build side is estimated to be small and the probe side
+ * to be large, and if the join drops the probe side rows without match.
+ *
+ * <p>NOTE: This processor can be only applied on {@link BatchExecNode} DAG and must run before the
+ * {@link DeadlockBreakupProcessor}, which resolves the input priority conflicts of the filters.
+ */
+public class RuntimeFilterProcessor implements ExecNodeGraphProcessor {
+
+    /** The maximum number of entries of a runtime filter, which is about 6 MB large. */
+    private static final int MAX_EXPECTED_ENTRIES = 1 << 23;
+
+    /** The factor of the estimated build rows after which a runtime filter is not applied. */
+    private static final int MAX_ENTRIES_FACTOR = 4;
+
+    private static final RowType FILTER_TYPE =
+            RowType.of(
+                    new LogicalType[] {
+                        new BigIntType(false), new VarBinaryType(VarBinaryType.MAX_LENGTH)
+                    },
+                    new String[] {"num_rows", "filter"});
+
+    @Override
+    public ExecNodeGraph process(ExecNodeGraph execGraph, ProcessorContext context) {
+        if (!execGraph.getRootNodes().stream().allMatch(r -> r instanceof BatchExecNode)) {
+            throw new TableException("Only BatchExecNode DAG are supported now.");
+        }
+
+        ReadableConfig config = context.getPlanner().getTableConfig().getConfiguration();
+        long maxBuildDataSize =
+                config.get(
+                                OptimizerConfigOptions
+                                        .TABLE_OPTIMIZER_RUNTIME_FILTER_MAX_BUILD_DATA_SIZE)
+                        .getBytes();
+        long minProbeDataSize =
+                config.get(
+                                OptimizerConfigOptions
+                                        .TABLE_OPTIMIZER_RUNTIME_FILTER_MIN_PROBE_DATA_SIZE)
+                        .getBytes();
+
+        Map<ExecNode<?>, Integer> numConsumers = new HashMap<>();
+        List<BatchExecHashJoin> joins = new ArrayList<>();
+        AbstractExecNodeExactlyOnceVisitor visitor =
+                new AbstractExecNodeExactlyOnceVisitor() {
+                    @Override
+                    protected void visitNode(ExecNode<?> node) {
+                        if (node instanceof BatchExecHashJoin) {
+                            joins.add((BatchExecHashJoin) node);
+                        }
+                        for (ExecEdge inputEdge : node.getInputEdges()) {
+                            numConsumers.merge(inputEdge.getSource(), 1, Integer::sum);
+                        }
+                        visitInputs(node);
+                    }
+                };
+        execGraph.getRootNodes().forEach(r -> r.accept(visitor));
+
+        for (BatchExecHashJoin join : joins) {
+            tryPushDownRuntimeFilter(join, numConsumers, maxBuildDataSize, minProbeDataSize);
+        }
+        return execGraph;
+    }
+
+    private static void tryPushDownRuntimeFilter(
+            BatchExecHashJoin join,
+            Map<ExecNode<?>, Integer> numConsumers,
+            long maxBuildDataSize,
+            long minProbeDataSize) {
+        if (!dropsUnmatchedProbeRows(join)) {
+            return;
+        }
+
+        boolean leftIsBuild = join.isLeftBuild();
+        long buildRowCount =
+                leftIsBuild ? join.getEstimatedLeftRowCount() : join.getEstimatedRightRowCount();
+        double buildDataSize =
+                (double) buildRowCount
+                        * (leftIsBuild
+                                ? join.getEstimatedLeftAvgRowSize()
+                                : join.getEstimatedRightAvgRowSize());
+        double probeDataSize =
+                leftIsBuild
+                        ? (double) join.getEstimatedRightRowCount()
+                                * join.getEstimatedRightAvgRowSize()
+                        : (double) join.getEstimatedLeftRowCount()
+                                * join.getEstimatedLeftAvgRowSize();
+        if (buildRowCount > MAX_EXPECTED_ENTRIES
+                || buildDataSize > maxBuildDataSize
+                || probeDataSize < minProbeDataSize) {
+            return;
+        }
+
+        // the filter is applied before the shuffle of the probe side, which must not be reused
+        int probeInput = leftIsBuild ? 1 : 0;
+        ExecNode<?> probeNode = join.getInputEdges().get(probeInput).getSource();
+        if (!(probeNode instanceof BatchExecExchange)
+                || numConsumers.getOrDefault(probeNode, 0) != 1) {
+            return;
+        }
+        BatchExecExchange probeExchange = (BatchExecExchange) probeNode;
+        if (probeExchange.getInputProperties().get(0).getRequiredDistribution().getType()
+                != InputProperty.DistributionType.HASH) {
+            return;
+        }
+
+        // the filter is built before the shuffle of the build side to not shuffle it twice
+        ExecNode<?> buildNode = join.getInputEdges().get(1 - probeInput).getSource();
+        if (buildNode instanceof BatchExecExchange) {
+            buildNode = buildNode.getInputEdges().get(0).getSource();
+        }
+
+        JoinSpec joinSpec = join.getJoinSpec();
+        int[] buildKeys = leftIsBuild ? joinSpec.getLeftKeys() : joinSpec.getRightKeys();
+        int[] probeKeys = leftIsBuild ? joinSpec.getRightKeys() : joinSpec.getLeftKeys();
+        // the key type of the join, see BatchExecHashJoin
+        RowType leftType = (RowType) join.getInputEdges().get(0).getOutputType();
+        RowType keyType =
+                RowType.of(
+                        IntStream.of(joinSpec.getLeftKeys())
+                                .mapToObj(leftType::getTypeAt)
+                                .toArray(LogicalType[]::new));
+        int expectedEntries = (int) Math.max(buildRowCount, 1);
+        int maxEntries = expectedEntries * MAX_ENTRIES_FACTOR;
+
+        ExecNode<?> probeInputNode = probeExchange.getInputEdges().get(0).getSource();
+        String keys = getFieldNames((RowType) probeInputNode.getOutputType(), probeKeys);
+
+        BatchExecLocalRuntimeFilterBuilder localBuilder =
+                new BatchExecLocalRuntimeFilterBuilder(
+                        buildKeys,
+                        keyType,
+                        expectedEntries,
+                        maxEntries,
+                        InputProperty.builder()
+                                .requiredDistribution(InputProperty.ANY_DISTRIBUTION)
+                                .damBehavior(InputProperty.DamBehavior.END_INPUT)
+                                .build(),
+                        FILTER_TYPE,
+                        "LocalRuntimeFilterBuilder(keys=["
+                                + getFieldNames((RowType) buildNode.getOutputType(), buildKeys)
+                                + "])");
+        connect(buildNode, localBuilder);
+
+        BatchExecExchange singletonExchange =
+                createExchange(localBuilder, InputProperty.SINGLETON_DISTRIBUTION);
+        BatchExecGlobalRuntimeFilterBuilder globalBuilder =
+                new BatchExecGlobalRuntimeFilterBuilder(
+                        expectedEntries,
+                        maxEntries,
+                        InputProperty.builder()
+                                .requiredDistribution(InputProperty.SINGLETON_DISTRIBUTION)
+                                .damBehavior(InputProperty.DamBehavior.END_INPUT)
+                                .build(),
+                        FILTER_TYPE,
+                        "GlobalRuntimeFilterBuilder(keys=[" + keys + "])");
+        connect(singletonExchange, globalBuilder);
+
+        BatchExecExchange broadcastExchange =
+                createExchange(globalBuilder, InputProperty.BROADCAST_DISTRIBUTION);
+        BatchExecRuntimeFilter runtimeFilter =
+                new BatchExecRuntimeFilter(
+                        probeKeys,
+                        keyType,
+                        expectedEntries,
+                        InputProperty.builder()
+                                .requiredDistribution(InputProperty.BROADCAST_DISTRIBUTION)
+                                .damBehavior(InputProperty.DamBehavior.END_INPUT)
+                                .priority(0)
+                                .build(),
+                        InputProperty.builder()
+                                .requiredDistribution(InputProperty.ANY_DISTRIBUTION)
+                                .priority(1)
+                                .build(),
+                        (RowType) probeInputNode.getOutputType(),
+                        "RuntimeFilter(keys=[" + keys + "])");
+        runtimeFilter.setInputEdges(
+                Arrays.asList(
+                        ExecEdge.builder().source(broadcastExchange).target(runtimeFilter).build(),
+                        ExecEdge.builder().source(probeInputNode).target(runtimeFilter).build()));
+
+        probeExchange.replaceInputEdge(
+                0, ExecEdge.builder().source(runtimeFilter).target(probeExchange).build());
+    }
+
+    /** Whether the probe side rows without a matching build side row are not part of the result. */
+    private static boolean dropsUnmatchedProbeRows(BatchExecHashJoin join) {
+        FlinkJoinType joinType = join.getJoinSpec().getJoinType();
+        HashJoinType hashJoinType =
+                HashJoinType.of(
+                        join.isLeftBuild(),
+                        joinType.isLeftOuter(),
+                        joinType.isRightOuter(),
+                        joinType == FlinkJoinType.SEMI,
+                        joinType == FlinkJoinType.ANTI);
+        switch (hashJoinType) {
+            case INNER:
+            case BUILD_OUTER:
+            case SEMI:
+            case BUILD_LEFT_SEMI:
+            case BUILD_LEFT_ANTI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static BatchExecExchange createExchange(
+            ExecNode<?> input, InputProperty.RequiredDistribution requiredDistribution) {
+        BatchExecExchange exchange =
+                new BatchExecExchange(
+                        InputProperty.builder().requiredDistribution(requiredDistribution).build(),
+                        (RowType) input.getOutputType(),
+                        "Exchange");
+        connect(input, exchange);
+        return exchange;
+    }
+
+    private static void connect(ExecNode<?> input, ExecNode<?> node) {
+        node.setInputEdges(
+                Collections.singletonList(ExecEdge.builder().source(input).target(node).build()));
+    }
+
+    private static String getFieldNames(RowType rowType, int[] fields) {
+        return IntStream.of(fields)
+                .mapToObj(i -> rowType.getFieldNames().get(i))
+                .collect(Collectors.joining(", "));
+    }
+}
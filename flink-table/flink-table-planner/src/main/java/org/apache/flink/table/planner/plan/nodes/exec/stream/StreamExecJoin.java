@@ -22,6 +22,8 @@ package org.apache.flink.table.planner.plan.nodes.exec.stream;
 import org.apache.flink.api.dag.Transformation;
 import org.apache.flink.streaming.api.transformations.TwoInputTransformation;
 import org.apache.flink.table.api.TableConfig;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.api.config.ExecutionConfigOptions;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.planner.delegation.PlannerBase;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
@@ -138,6 +140,24 @@ public class StreamExecJoin extends ExecNodeBase<RowData>
                 JoinUtil.generateConditionFunction(tableConfig, joinSpec, leftType, rightType);
 
         long minRetentionTime = tableConfig.getMinIdleStateRetentionTime();
+        int compactStateCacheSize = 0;
+        if (tableConfig
+                .getConfiguration()
+                .getBoolean(ExecutionConfigOptions.TABLE_EXEC_JOIN_COMPACT_STATE_ENABLED)) {
+            compactStateCacheSize =
+                    tableConfig
+                            .getConfiguration()
+                            .getInteger(
+                                    ExecutionConfigOptions
+                                            .TABLE_EXEC_JOIN_COMPACT_STATE_CACHE_SIZE);
+            if (compactStateCacheSize < 1) {
+                throw new TableException(
+                        ExecutionConfigOptions.TABLE_EXEC_JOIN_COMPACT_STATE_CACHE_SIZE.key()
+                                + " must be at least 1, but is "
+                                + compactStateCacheSize
+                                + ".");
+            }
+        }
 
         AbstractStreamingJoinOperator operator;
         FlinkJoinType joinType = joinSpec.getJoinType();
@@ -151,7 +171,8 @@ public class StreamExecJoin extends ExecNodeBase<RowData>
                             leftInputSpec,
                             rightInputSpec,
                             joinSpec.getFilterNulls(),
-                            minRetentionTime);
+                            minRetentionTime,
+                            compactStateCacheSize);
         } else {
             boolean leftIsOuter = joinType == FlinkJoinType.LEFT || joinType == FlinkJoinType.FULL;
             boolean rightIsOuter =
@@ -166,7 +187,8 @@ public class StreamExecJoin extends ExecNodeBase<RowData>
                             leftIsOuter,
                             rightIsOuter,
                             joinSpec.getFilterNulls(),
-                            minRetentionTime);
+                            minRetentionTime,
+                            compactStateCacheSize);
         }
 
         final RowType returnType = (RowType) getOutputType();
@@ -19,23 +19,32 @@
 package org.apache.flink.table.planner.plan.nodes.exec.stream;
 
 import org.apache.flink.api.dag.Transformation;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.operators.SimpleOperatorFactory;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.api.config.ExecutionConfigOptions;
 import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
 import org.apache.flink.table.planner.codegen.CodeGeneratorContext;
 import org.apache.flink.table.planner.codegen.agg.AggsHandlerCodeGenerator;
 import org.apache.flink.table.planner.delegation.PlannerBase;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecNode;
 import org.apache.flink.table.planner.plan.nodes.exec.InputProperty;
+import org.apache.flink.table.planner.plan.nodes.exec.utils.ExecNodeUtil;
 import org.apache.flink.table.planner.plan.utils.AggregateInfoList;
 import org.apache.flink.table.planner.plan.utils.AggregateUtil;
 import org.apache.flink.table.planner.plan.utils.KeySelectorUtil;
 import org.apache.flink.table.planner.utils.JavaScalaConversionUtil;
 import org.apache.flink.table.runtime.generated.GeneratedAggsHandleFunction;
 import org.apache.flink.table.runtime.keyselector.RowDataKeySelector;
+import org.apache.flink.table.runtime.operators.aggregate.BytesHashMapLocalGroupAggOperator;
 import org.apache.flink.table.runtime.operators.aggregate.MiniBatchLocalGroupAggFunction;
 import org.apache.flink.table.runtime.operators.bundle.MapBundleOperator;
+import org.apache.flink.table.runtime.types.LogicalTypeDataTypeConverter;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.types.logical.LogicalType;
 import org.apache.flink.table.types.logical.RowType;
 
 import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonCreator;
@@ -141,11 +150,58 @@ public class StreamExecLocalGroupAggregate extends StreamExecAggregateBase {
                 KeySelectorUtil.getRowDataSelector(
                         grouping, (InternalTypeInfo<RowData>) inputTransform.getOutputType());
 
+        final Configuration config = planner.getTableConfig().getConfiguration();
+        final double minReductionRatio =
+                config.getDouble(
+                        ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_LOCAL_AGG_MIN_REDUCTION_RATIO);
+        final long passThroughRecords =
+                config.getLong(
+                        ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_LOCAL_AGG_PASS_THROUGH_RECORDS);
+        if (minReductionRatio < 0.0 || minReductionRatio > 1.0) {
+            throw new TableException(
+                    ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_LOCAL_AGG_MIN_REDUCTION_RATIO.key()
+                            + " must be between 0 and 1, but is "
+                            + minReductionRatio
+                            + ".");
+        }
+        if (minReductionRatio > 0.0 && passThroughRecords <= 0) {
+            throw new TableException(
+                    ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_LOCAL_AGG_PASS_THROUGH_RECORDS.key()
+                            + " must be positive, but is "
+                            + passThroughRecords
+                            + ".");
+        }
+
+        final LogicalType[] accTypes =
+                Arrays.stream(aggInfoList.getAccTypes())
+                        .map(LogicalTypeDataTypeConverter::fromDataTypeToLogicalType)
+                        .toArray(LogicalType[]::new);
+        final long bufferMemoryBytes =
+                config.get(ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_LOCAL_AGG_BUFFER_MEMORY)
+                        .getBytes();
+        if (bufferMemoryBytes > 0
+                && grouping.length > 0
+                && Arrays.stream(accTypes).allMatch(BinaryRowData::isInFixedLengthPart)) {
+            // buffer the accumulators in managed memory, the bundle is finished when it is full
+            final BytesHashMapLocalGroupAggOperator operator =
+                    new BytesHashMapLocalGroupAggOperator(
+                            aggsHandler, selector, accTypes, minReductionRatio, passThroughRecords);
+            return ExecNodeUtil.createOneInputTransformation(
+                    inputTransform,
+                    getDescription(),
+                    SimpleOperatorFactory.of(operator),
+                    InternalTypeInfo.of(getOutputType()),
+                    inputTransform.getParallelism(),
+                    bufferMemoryBytes);
+        }
+
         final MapBundleOperator<RowData, RowData, RowData, RowData> operator =
                 new MapBundleOperator<>(
                         aggFunction,
                         AggregateUtil.createMiniBatchTrigger(planner.getTableConfig()),
-                        selector);
+                        selector,
+                        minReductionRatio,
+                        passThroughRecords);
 
         return new OneInputTransformation<>(
                 inputTransform,
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.nodes.exec.stream;
+
+import org.apache.flink.api.dag.Transformation;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.operators.SimpleOperatorFactory;
+import org.apache.flink.streaming.api.transformations.OneInputTransformation;
+import org.apache.flink.table.api.TableConfig;
+import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.planner.codegen.CodeGeneratorContext;
+import org.apache.flink.table.planner.codegen.agg.AggsHandlerCodeGenerator;
+import org.apache.flink.table.planner.delegation.PlannerBase;
+import org.apache.flink.table.planner.plan.logical.HoppingWindowSpec;
+import org.apache.flink.table.planner.plan.logical.TimeAttributeWindowingStrategy;
+import org.apache.flink.table.planner.plan.logical.TumblingWindowSpec;
+import org.apache.flink.table.planner.plan.logical.WindowSpec;
+import org.apache.flink.table.planner.plan.logical.WindowingStrategy;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
+import org.apache.flink.table.planner.plan.nodes.exec.ExecNode;
+import org.apache.flink.table.planner.plan.nodes.exec.InputProperty;
+import org.apache.flink.table.planner.plan.nodes.exec.utils.ExecNodeUtil;
+import org.apache.flink.table.planner.plan.utils.AggregateInfoList;
+import org.apache.flink.table.planner.plan.utils.AggregateUtil;
+import org.apache.flink.table.planner.plan.utils.KeySelectorUtil;
+import org.apache.flink.table.planner.utils.JavaScalaConversionUtil;
+import org.apache.flink.table.runtime.generated.GeneratedNamespaceAggsHandleFunction;
+import org.apache.flink.table.runtime.keyselector.RowDataKeySelector;
+import org.apache.flink.table.runtime.operators.aggregate.window.SlicingWindowAggOperatorBuilder;
+import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigners;
+import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigners.MultiWindowSliceAssigner;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.typeutils.PagedTypeSerializer;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.runtime.util.TimeWindowUtil;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonCreator;
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.apache.calcite.rel.core.AggregateCall;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Stream {@link ExecNode} which aggregates the same input in several tumbling and hopping windows
+ * of different sizes, see {@link MultiWindowSliceAssigner}.
+ *
+ * <p>The output rows contain the grouping keys, the aggregate values, the window start, the window
+ * end and the index of the windowing the window belongs to.
+ */
+public class StreamExecMultiWindowAggregate extends StreamExecWindowAggregateBase {
+
+    public static final String FIELD_NAME_WINDOWINGS = "windowings";
+
+    @JsonProperty(FIELD_NAME_GROUPING)
+    private final int[] grouping;
+
+    @JsonProperty(FIELD_NAME_AGG_CALLS)
+    private final AggregateCall[] aggCalls;
+
+    @JsonProperty(FIELD_NAME_WINDOWINGS)
+    private final WindowingStrategy[] windowings;
+
+    public StreamExecMultiWindowAggregate(
+            int[] grouping,
+            AggregateCall[] aggCalls,
+            WindowingStrategy[] windowings,
+            InputProperty inputProperty,
+            RowType outputType,
+            String description) {
+        this(
+                grouping,
+                aggCalls,
+                windowings,
+                getNewNodeId(),
+                Collections.singletonList(inputProperty),
+                outputType,
+                description);
+    }
+
+    @JsonCreator
+    public StreamExecMultiWindowAggregate(
+            @JsonProperty(FIELD_NAME_GROUPING) int[] grouping,
+            @JsonProperty(FIELD_NAME_AGG_CALLS) AggregateCall[] aggCalls,
+            @JsonProperty(FIELD_NAME_WINDOWINGS) WindowingStrategy[] windowings,
+            @JsonProperty(FIELD_NAME_ID) int id,
+            @JsonProperty(FIELD_NAME_INPUT_PROPERTIES) List<InputProperty> inputProperties,
+            @JsonProperty(FIELD_NAME_OUTPUT_TYPE) RowType outputType,
+            @JsonProperty(FIELD_NAME_DESCRIPTION) String description) {
+        super(id, inputProperties, outputType, description);
+        this.grouping = checkNotNull(grouping);
+        this.aggCalls = checkNotNull(aggCalls);
+        this.windowings = checkNotNull(windowings);
+        checkArgument(windowings.length > 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected Transformation<RowData> translateToPlanInternal(PlannerBase planner) {
+        final ExecEdge inputEdge = getInputEdges().get(0);
+        final Transformation<RowData> inputTransform =
+                (Transformation<RowData>) inputEdge.translateToPlan(planner);
+        final RowType inputRowType = (RowType) inputEdge.getOutputType();
+
+        final TableConfig config = planner.getTableConfig();
+        final ZoneId shiftTimeZone =
+                TimeWindowUtil.getShiftTimeZone(windowings[0].getTimeAttributeType(), config);
+        final MultiWindowSliceAssigner sliceAssigner = createSliceAssigner(shiftTimeZone);
+
+        final AggregateInfoList aggInfoList =
+                AggregateUtil.transformToStreamAggregateInfoList(
+                        inputRowType,
+                        JavaScalaConversionUtil.toScala(Arrays.asList(aggCalls)),
+                        new boolean[aggCalls.length],
+                        false, // needInputCount
+                        true, // isStateBackendDataViews
+                        true); // needDistinctInfo
+
+        // the windows are merged from the slices, and their properties are appended by the
+        // window processor, as windows of different sizes may end at the same time
+        final GeneratedNamespaceAggsHandleFunction<Long> generatedAggsHandler =
+                new AggsHandlerCodeGenerator(
+                                new CodeGeneratorContext(config),
+                                planner.getRelBuilder(),
+                                JavaScalaConversionUtil.toScala(inputRowType.getChildren()),
+                                false) // copyInputField
+                        .needAccumulate()
+                        .needMerge(0, false, null)
+                        .generateNamespaceAggsHandler(
+                                "MultiWindowAggsHandler",
+                                aggInfoList,
+                                JavaScalaConversionUtil.toScala(Collections.emptyList()),
+                                sliceAssigner,
+                                shiftTimeZone);
+
+        final RowDataKeySelector selector =
+                KeySelectorUtil.getRowDataSelector(grouping, InternalTypeInfo.of(inputRowType));
+        final LogicalType[] accTypes = convertToLogicalTypes(aggInfoList.getAccTypes());
+
+        final OneInputStreamOperator<RowData, RowData> windowOperator =
+                SlicingWindowAggOperatorBuilder.builder()
+                        .inputSerializer(new RowDataSerializer(inputRowType))
+                        .shiftTimeZone(shiftTimeZone)
+                        .keySerializer(
+                                (PagedTypeSerializer<RowData>)
+                                        selector.getProducedType().toSerializer())
+                        .assigner(sliceAssigner)
+                        .countStarIndex(aggInfoList.getIndexOfCountStar())
+                        .aggregate(generatedAggsHandler, new RowDataSerializer(accTypes))
+                        .build();
+
+        final OneInputTransformation<RowData, RowData> transform =
+                ExecNodeUtil.createOneInputTransformation(
+                        inputTransform,
+                        getDescription(),
+                        SimpleOperatorFactory.of(windowOperator),
+                        InternalTypeInfo.of(getOutputType()),
+                        inputTransform.getParallelism(),
+                        WINDOW_AGG_MEMORY_RATIO);
+
+        // set KeyType and Selector for state
+        transform.setStateKeySelector(selector);
+        transform.setStateKeyType(selector.getProducedType());
+        return transform;
+    }
+
+    private MultiWindowSliceAssigner createSliceAssigner(ZoneId shiftTimeZone) {
+        final Duration[] sizes = new Duration[windowings.length];
+        final Duration[] slides = new Duration[windowings.length];
+        for (int i = 0; i < windowings.length; i++) {
+            final WindowSpec windowSpec = windowings[i].getWindow();
+            if (windowSpec instanceof TumblingWindowSpec
+                    && ((TumblingWindowSpec) windowSpec).getOffset() == null) {
+                sizes[i] = ((TumblingWindowSpec) windowSpec).getSize();
+                slides[i] = sizes[i];
+            } else if (windowSpec instanceof HoppingWindowSpec
+                    && ((HoppingWindowSpec) windowSpec).getOffset() == null) {
+                sizes[i] = ((HoppingWindowSpec) windowSpec).getSize();
+                slides[i] = ((HoppingWindowSpec) windowSpec).getSlide();
+            } else {
+                throw new TableException(
+                        windowSpec + " is not supported by multiple window aggregation.");
+            }
+        }
+        final int timeAttributeIndex;
+        if (windowings[0].isRowtime()) {
+            timeAttributeIndex =
+                    ((TimeAttributeWindowingStrategy) windowings[0]).getTimeAttributeIndex();
+        } else {
+            timeAttributeIndex = -1;
+        }
+        return SliceAssigners.multiWindows(timeAttributeIndex, shiftTimeZone, sizes, slides);
+    }
+}
@@ -83,6 +83,21 @@ public class StreamExecRank extends ExecNodeBase<RowData>
                             "TopN operator has a cache which caches partial state contents to reduce"
                                     + " state access. Cache size is the number of records in each TopN task.");
 
+    // It is a experimental config, will may be removed later.
+    @Experimental
+    public static final ConfigOption<Integer> TABLE_EXEC_TOPN_SORT_KEY_CHUNK_SIZE =
+            ConfigOptions.key("table.exec.topn.sort-key-chunk-size")
+                    .intType()
+                    .defaultValue(0)
+                    .withDescription(
+                            "TopN operator on an updating input stores the record counts of the sort keys"
+                                    + " of a partition in state. If the value is positive, the counts are"
+                                    + " stored in chunks of at most this number of sort keys, so that an update"
+                                    + " only reads and writes the chunks it touches instead of all counts of"
+                                    + " the partition. Default value is 0, which stores all counts in a single"
+                                    + " state value. NOTE: The chunked state is not compatible with the state"
+                                    + " of a job which ran without it.");
+
     public static final String FIELD_NAME_RANK_TYPE = "rankType";
     public static final String FIELD_NAME_PARTITION_SPEC = "partition";
     public static final String FIELD_NAME_SORT_SPEC = "orderBy";
@@ -264,6 +279,15 @@ public class StreamExecRank extends ExecNodeBase<RowData>
                                     .toArray(LogicalType[]::new));
             GeneratedRecordEqualiser generatedEqualiser =
                     equaliserCodeGen.generateRecordEqualiser("RankValueEqualiser");
+            int sortKeyChunkSize =
+                    tableConfig.getConfiguration().getInteger(TABLE_EXEC_TOPN_SORT_KEY_CHUNK_SIZE);
+            if (sortKeyChunkSize < 0 || sortKeyChunkSize == 1) {
+                throw new TableException(
+                        TABLE_EXEC_TOPN_SORT_KEY_CHUNK_SIZE.key()
+                                + " must be 0 or at least 2, but is "
+                                + sortKeyChunkSize
+                                + ".");
+            }
             ComparableRecordComparator comparator =
                     new ComparableRecordComparator(
                             sortKeyComparator,
@@ -281,7 +305,8 @@ public class StreamExecRank extends ExecNodeBase<RowData>
                             rankRange,
                             generatedEqualiser,
                             generateUpdateBefore,
-                            outputRankNumber);
+                            outputRankNumber,
+                            sortKeyChunkSize);
         } else {
             throw new TableException(
                     String.format("rank strategy:%s is not supported.", rankStrategy));
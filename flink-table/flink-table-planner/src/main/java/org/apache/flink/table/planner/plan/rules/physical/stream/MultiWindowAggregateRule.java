@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.rules.physical.stream;
+
+import org.apache.flink.table.api.config.OptimizerConfigOptions;
+import org.apache.flink.table.planner.expressions.PlannerNamedWindowProperty;
+import org.apache.flink.table.planner.expressions.PlannerWindowEnd;
+import org.apache.flink.table.planner.expressions.PlannerWindowProperty;
+import org.apache.flink.table.planner.expressions.PlannerWindowStart;
+import org.apache.flink.table.planner.plan.logical.HoppingWindowSpec;
+import org.apache.flink.table.planner.plan.logical.TimeAttributeWindowingStrategy;
+import org.apache.flink.table.planner.plan.logical.TumblingWindowSpec;
+import org.apache.flink.table.planner.plan.logical.WindowSpec;
+import org.apache.flink.table.planner.plan.logical.WindowingStrategy;
+import org.apache.flink.table.planner.plan.nodes.physical.stream.StreamPhysicalCalc;
+import org.apache.flink.table.planner.plan.nodes.physical.stream.StreamPhysicalMultiWindowAggregate;
+import org.apache.flink.table.planner.plan.nodes.physical.stream.StreamPhysicalUnion;
+import org.apache.flink.table.planner.plan.nodes.physical.stream.StreamPhysicalWindowAggregate;
+import org.apache.flink.table.planner.plan.utils.AggregateUtil;
+import org.apache.flink.table.planner.utils.JavaScalaConversionUtil;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.hep.HepRelVertex;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexProgram;
+import org.apache.calcite.rex.RexProgramBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.flink.table.planner.utils.ShortcutUtils.unwrapContext;
+
+/**
+ * Rule that merges the {@link StreamPhysicalWindowAggregate}s of a {@link StreamPhysicalUnion} and
+ * its nested unions, optionally followed by the same {@link StreamPhysicalCalc}, into a {@link
+ * StreamPhysicalMultiWindowAggregate} if they only differ in their windows, i.e. they
+ *
+ * <ul>
+ *   <li>have the same input, grouping keys, aggregate calls and window properties,
+ *   <li>apply tumbling or hopping windows without offset on the same time attribute,
+ *   <li>all aggregate functions support merge() method.
+ * </ul>
+ *
+ * <p>The multiple window aggregate keeps one copy of the aggregated slices for all windows instead
+ * of one copy per window aggregation. A {@link StreamPhysicalCalc} restores the output of the
+ * window aggregates from its output. The unions of the window aggregates is the same as the output
+ * of the multiple window aggregate, as every window aggregate produces the windows of one window
+ * size.
+ *
+ * <p>The rule is applied if {@link OptimizerConfigOptions#TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED}
+ * is enabled.
+ */
+public class MultiWindowAggregateRule extends RelOptRule {
+
+    public static final MultiWindowAggregateRule INSTANCE = new MultiWindowAggregateRule();
+
+    private MultiWindowAggregateRule() {
+        super(operand(StreamPhysicalUnion.class, any()), "MultiWindowAggregateRule");
+    }
+
+    @Override
+    public boolean matches(RelOptRuleCall call) {
+        return unwrapContext(call.getPlanner())
+                .getTableConfig()
+                .getConfiguration()
+                .getBoolean(OptimizerConfigOptions.TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED);
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        final StreamPhysicalUnion union = call.rel(0);
+
+        // group the inputs which can be merged by their common parts
+        final Map<String, List<MergeableInput>> groups = new LinkedHashMap<>();
+        final List<RelNode> otherInputs = new ArrayList<>();
+        for (RelNode input : getUnionInputs(union)) {
+            final MergeableInput mergeable = MergeableInput.of(stripHep(input));
+            if (mergeable == null) {
+                otherInputs.add(input);
+            } else {
+                groups.computeIfAbsent(mergeable.digest, k -> new ArrayList<>()).add(mergeable);
+            }
+        }
+
+        final List<RelNode> newInputs = new ArrayList<>();
+        boolean merged = false;
+        for (List<MergeableInput> group : groups.values()) {
+            // duplicated windows must stay separate inputs, as they produce the same rows
+            final List<MergeableInput> distinctWindows = new ArrayList<>();
+            final Set<WindowSpec> windowSpecs = new HashSet<>();
+            for (MergeableInput mergeable : group) {
+                if (windowSpecs.add(mergeable.windowAgg.windowing().getWindow())) {
+                    distinctWindows.add(mergeable);
+                } else {
+                    newInputs.add(mergeable.rel);
+                }
+            }
+            if (distinctWindows.size() > 1) {
+                newInputs.add(merge(distinctWindows));
+                merged = true;
+            } else {
+                newInputs.add(distinctWindows.get(0).rel);
+            }
+        }
+        if (!merged) {
+            return;
+        }
+
+        newInputs.addAll(otherInputs);
+        if (newInputs.size() == 1) {
+            call.transformTo(newInputs.get(0));
+        } else {
+            call.transformTo(union.copy(union.getTraitSet(), newInputs, true));
+        }
+    }
+
+    /** Returns the inputs of the union and of its nested unions, e.g. of UNION ALL chains. */
+    private static List<RelNode> getUnionInputs(StreamPhysicalUnion union) {
+        final List<RelNode> inputs = new ArrayList<>();
+        for (RelNode input : union.getInputs()) {
+            final RelNode stripped = stripHep(input);
+            if (stripped instanceof StreamPhysicalUnion) {
+                inputs.addAll(getUnionInputs((StreamPhysicalUnion) stripped));
+            } else {
+                inputs.add(input);
+            }
+        }
+        return inputs;
+    }
+
+    private RelNode merge(List<MergeableInput> inputs) {
+        final StreamPhysicalWindowAggregate windowAgg = inputs.get(0).windowAgg;
+        final List<WindowingStrategy> windowings = new ArrayList<>();
+        for (MergeableInput input : inputs) {
+            windowings.add(input.windowAgg.windowing());
+        }
+        final StreamPhysicalMultiWindowAggregate multiWindowAgg =
+                new StreamPhysicalMultiWindowAggregate(
+                        windowAgg.getCluster(),
+                        windowAgg.getTraitSet(),
+                        windowAgg.getInput(),
+                        windowAgg.grouping(),
+                        windowAgg.aggCalls(),
+                        JavaScalaConversionUtil.toScala(windowings));
+
+        // restore the output of the window aggregates, the window start and end follow the
+        // grouping keys and aggregate values in the output of the multiple window aggregate
+        final RexBuilder rexBuilder = windowAgg.getCluster().getRexBuilder();
+        final int windowStartIndex = windowAgg.grouping().length + windowAgg.aggCalls().size();
+        final List<RexNode> projects = new ArrayList<>();
+        for (int i = 0; i < windowStartIndex; i++) {
+            projects.add(rexBuilder.makeInputRef(multiWindowAgg, i));
+        }
+        for (PlannerNamedWindowProperty namedProperty :
+                JavaScalaConversionUtil.toJava(windowAgg.namedWindowProperties())) {
+            if (namedProperty.getProperty() instanceof PlannerWindowStart) {
+                projects.add(rexBuilder.makeInputRef(multiWindowAgg, windowStartIndex));
+            } else {
+                projects.add(rexBuilder.makeInputRef(multiWindowAgg, windowStartIndex + 1));
+            }
+        }
+        final RexProgram program =
+                RexProgram.create(
+                        multiWindowAgg.getRowType(),
+                        projects,
+                        null,
+                        windowAgg.getRowType(),
+                        rexBuilder);
+
+        final StreamPhysicalCalc calc = inputs.get(0).calc;
+        if (calc == null) {
+            return new StreamPhysicalCalc(
+                    windowAgg.getCluster(),
+                    windowAgg.getTraitSet(),
+                    multiWindowAgg,
+                    program,
+                    windowAgg.getRowType());
+        } else {
+            return new StreamPhysicalCalc(
+                    calc.getCluster(),
+                    calc.getTraitSet(),
+                    multiWindowAgg,
+                    RexProgramBuilder.mergePrograms(calc.getProgram(), program, rexBuilder),
+                    calc.getRowType());
+        }
+    }
+
+    private static RelNode stripHep(RelNode rel) {
+        if (rel instanceof HepRelVertex) {
+            return ((HepRelVertex) rel).getCurrentRel();
+        }
+        return rel;
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    /** An input of the union which can be merged into a multiple window aggregate. */
+    private static final class MergeableInput {
+
+        /** The input of the union. */
+        private final RelNode rel;
+
+        private final StreamPhysicalWindowAggregate windowAgg;
+
+        /** The calc between union and window aggregate, may be null. */
+        private final StreamPhysicalCalc calc;
+
+        /** Describes everything which must be equal to merge inputs, except the windows. */
+        private final String digest;
+
+        private MergeableInput(
+                RelNode rel,
+                StreamPhysicalWindowAggregate windowAgg,
+                StreamPhysicalCalc calc,
+                String digest) {
+            this.rel = rel;
+            this.windowAgg = windowAgg;
+            this.calc = calc;
+            this.digest = digest;
+        }
+
+        private static MergeableInput of(RelNode rel) {
+            RelNode node = rel;
+            StreamPhysicalCalc calc = null;
+            if (node instanceof StreamPhysicalCalc) {
+                calc = (StreamPhysicalCalc) node;
+                node = stripHep(calc.getInput());
+            }
+            if (!(node instanceof StreamPhysicalWindowAggregate)) {
+                return null;
+            }
+            final StreamPhysicalWindowAggregate windowAgg = (StreamPhysicalWindowAggregate) node;
+            final WindowingStrategy windowing = windowAgg.windowing();
+            if (!(windowing instanceof TimeAttributeWindowingStrategy)
+                    || !isWindowWithoutOffset(windowing.getWindow())
+                    || !AggregateUtil.doAllSupportPartialMerge(
+                            windowAgg.aggInfoList().aggInfos())) {
+                return null;
+            }
+            final List<String> properties = new ArrayList<>();
+            for (PlannerNamedWindowProperty namedProperty :
+                    JavaScalaConversionUtil.toJava(windowAgg.namedWindowProperties())) {
+                final PlannerWindowProperty property = namedProperty.getProperty();
+                // the window time is not supported yet
+                if (!(property instanceof PlannerWindowStart)
+                        && !(property instanceof PlannerWindowEnd)) {
+                    return null;
+                }
+                properties.add(property.getClass().getSimpleName());
+            }
+
+            final String digest =
+                    String.join(
+                            "\n",
+                            RelOptUtil.toString(windowAgg.getInput()),
+                            Arrays.toString(windowAgg.grouping()),
+                            windowAgg.aggCalls().toString(),
+                            properties.toString(),
+                            String.valueOf(
+                                    ((TimeAttributeWindowingStrategy) windowing)
+                                            .getTimeAttributeIndex()),
+                            windowing.getTimeAttributeType().toString(),
+                            calc == null ? "" : calc.getProgram().toString());
+            return new MergeableInput(rel, windowAgg, calc, digest);
+        }
+
+        private static boolean isWindowWithoutOffset(WindowSpec windowSpec) {
+            if (windowSpec instanceof TumblingWindowSpec) {
+                return ((TumblingWindowSpec) windowSpec).getOffset() == null;
+            } else if (windowSpec instanceof HoppingWindowSpec) {
+                return ((HoppingWindowSpec) windowSpec).getOffset() == null;
+            } else {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.nodes.physical.stream
+
+import org.apache.flink.table.planner.calcite.FlinkTypeFactory
+import org.apache.flink.table.planner.plan.logical.WindowingStrategy
+import org.apache.flink.table.planner.plan.nodes.exec.stream.StreamExecMultiWindowAggregate
+import org.apache.flink.table.planner.plan.nodes.exec.{ExecNode, InputProperty}
+import org.apache.flink.table.planner.plan.utils.{AggregateInfoList, AggregateUtil, FlinkRelOptUtil}
+import org.apache.flink.table.planner.plan.utils.RelExplainUtil
+import org.apache.flink.table.planner.plan.utils.WindowUtil.checkEmitConfiguration
+import org.apache.flink.table.types.logical.{IntType, TimestampType}
+
+import org.apache.calcite.plan.{RelOptCluster, RelTraitSet}
+import org.apache.calcite.rel.`type`.RelDataType
+import org.apache.calcite.rel.core.{Aggregate, AggregateCall}
+import org.apache.calcite.rel.{RelNode, RelWriter, SingleRel}
+import org.apache.calcite.util.ImmutableBitSet
+
+import java.util
+import java.util.Collections
+
+import scala.collection.JavaConverters._
+
+/**
+ * Streaming physical node which aggregates the same input, grouping keys and aggregate calls in
+ * several tumbling and hopping windows of different sizes, which share the aggregated slices.
+ *
+ * The output rows contain the grouping keys, the aggregate values, the window start, the window
+ * end and the index of the [[WindowingStrategy]] the window belongs to.
+ *
+ * The node is created by
+ * [[org.apache.flink.table.planner.plan.rules.physical.stream.MultiWindowAggregateRule]] from
+ * the [[StreamPhysicalWindowAggregate]]s of a [[StreamPhysicalUnion]].
+ */
+class StreamPhysicalMultiWindowAggregate(
+    cluster: RelOptCluster,
+    traitSet: RelTraitSet,
+    inputRel: RelNode,
+    val grouping: Array[Int],
+    val aggCalls: Seq[AggregateCall],
+    val windowings: Seq[WindowingStrategy])
+  extends SingleRel(cluster, traitSet, inputRel)
+  with StreamPhysicalRel {
+
+  lazy val aggInfoList: AggregateInfoList = AggregateUtil.transformToStreamAggregateInfoList(
+    FlinkTypeFactory.toLogicalRowType(inputRel.getRowType),
+    aggCalls,
+    new Array[Boolean](aggCalls.size),
+    needInputCount = false,
+    isStateBackendDataViews = true)
+
+  override def requireWatermark: Boolean = windowings.head.isRowtime
+
+  override def deriveRowType(): RelDataType = {
+    val typeFactory = cluster.getTypeFactory.asInstanceOf[FlinkTypeFactory]
+    val groupSet = ImmutableBitSet.of(grouping: _*)
+    val baseType = Aggregate.deriveRowType(
+      typeFactory,
+      inputRel.getRowType,
+      false,
+      groupSet,
+      Collections.singletonList(groupSet),
+      aggCalls.asJava)
+    val windowType = typeFactory.createFieldTypeFromLogicalType(new TimestampType(false, 3))
+    typeFactory.builder
+      .addAll(baseType.getFieldList)
+      .add("window_start", windowType)
+      .add("window_end", windowType)
+      .add("window_index", typeFactory.createFieldTypeFromLogicalType(new IntType(false)))
+      .uniquify()
+      .build()
+  }
+
+  override def explainTerms(pw: RelWriter): RelWriter = {
+    val inputRowType = getInput.getRowType
+    val inputFieldNames = inputRowType.getFieldNames.asScala.toArray
+    super.explainTerms(pw)
+      .itemIf("groupBy", RelExplainUtil.fieldToString(grouping, inputRowType), grouping.nonEmpty)
+      .item("windows", windowings.map(_.toSummaryString(inputFieldNames)).mkString(", "))
+      .item("select", RelExplainUtil.streamWindowAggregationToString(
+        inputRowType,
+        getRowType,
+        aggInfoList,
+        grouping,
+        Seq()))
+  }
+
+  override def copy(
+      traitSet: RelTraitSet,
+      inputs: util.List[RelNode]): RelNode = {
+    new StreamPhysicalMultiWindowAggregate(
+      cluster,
+      traitSet,
+      inputs.get(0),
+      grouping,
+      aggCalls,
+      windowings
+    )
+  }
+
+  override def translateToExecNode(): ExecNode[_] = {
+    checkEmitConfiguration(FlinkRelOptUtil.getTableConfigFromContext(this))
+    new StreamExecMultiWindowAggregate(
+      grouping,
+      aggCalls.toArray,
+      windowings.toArray,
+      InputProperty.DEFAULT,
+      FlinkTypeFactory.toLogicalRowType(getRowType),
+      getRelDetailedDescription
+    )
+  }
+}
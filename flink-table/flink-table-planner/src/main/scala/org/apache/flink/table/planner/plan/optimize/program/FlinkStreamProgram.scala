@@ -216,6 +216,13 @@ object FlinkStreamProgram {
             .setHepMatchOrder(HepMatchOrder.TOP_DOWN)
             .add(FlinkStreamRuleSets.MINI_BATCH_RULES)
             .build(), "mini-batch interval rules")
+        .addProgram(
+          FlinkHepRuleSetProgramBuilder.newBuilder
+            .setHepRulesExecutionType(HEP_RULES_EXECUTION_TYPE.RULE_COLLECTION)
+            // the outermost union of UNION ALL chains must be merged first
+            .setHepMatchOrder(HepMatchOrder.TOP_DOWN)
+            .add(FlinkStreamRuleSets.WINDOW_AGG_MERGE_RULES)
+            .build(), "window aggregate merge")
         .addProgram(
           FlinkHepRuleSetProgramBuilder.newBuilder
             .setHepRulesExecutionType(HEP_RULES_EXECUTION_TYPE.RULE_COLLECTION)
@@ -477,6 +477,14 @@ object FlinkStreamRuleSets {
     MiniBatchIntervalInferRule.INSTANCE
   )
 
+  /**
+    * RuleSet to merge window aggregates of different window sizes, it must be applied before
+    * [[PHYSICAL_REWRITE]] splits the window aggregates into two phases.
+    */
+  val WINDOW_AGG_MERGE_RULES: RuleSet = RuleSets.ofList(
+    MultiWindowAggregateRule.INSTANCE
+  )
+
   /**
     * RuleSet to optimize plans after stream exec execution.
     */
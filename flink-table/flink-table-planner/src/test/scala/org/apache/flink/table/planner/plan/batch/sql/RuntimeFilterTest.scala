@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.batch.sql
+
+import org.apache.flink.api.common.typeinfo.TypeInformation
+import org.apache.flink.table.api.Types
+import org.apache.flink.table.api.config.{ExecutionConfigOptions, OptimizerConfigOptions}
+import org.apache.flink.table.plan.stats.TableStats
+import org.apache.flink.table.planner.plan.stats.FlinkStatistic
+import org.apache.flink.table.planner.utils.TableTestBase
+
+import org.junit.{Before, Test}
+
+/** Tests for [[org.apache.flink.table.planner.plan.nodes.exec.processor.RuntimeFilterProcessor]]. */
+class RuntimeFilterTest extends TableTestBase {
+
+  private val util = batchTestUtil()
+
+  @Before
+  def before(): Unit = {
+    util.addTableSource("fact",
+      Array[TypeInformation[_]](Types.INT, Types.LONG, Types.STRING),
+      Array("a", "b", "c"),
+      FlinkStatistic.builder().tableStats(new TableStats(1000000000L)).build()
+    )
+    util.addTableSource("dim",
+      Array[TypeInformation[_]](Types.INT, Types.STRING),
+      Array("id", "name"),
+      FlinkStatistic.builder().tableStats(new TableStats(1000L)).build()
+    )
+    util.tableEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_ENABLED, true)
+    util.tableEnv.getConfig.getConfiguration.setString(
+      ExecutionConfigOptions.TABLE_EXEC_DISABLED_OPERATORS,
+      "SortMergeJoin, NestedLoopJoin")
+    util.tableEnv.getConfig.getConfiguration.setLong(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_BROADCAST_JOIN_THRESHOLD, -1)
+  }
+
+  @Test
+  def testInnerJoin(): Unit = {
+    util.verifyExecPlan("SELECT * FROM fact, dim WHERE a = id")
+  }
+
+  @Test
+  def testSemiJoin(): Unit = {
+    util.verifyExecPlan("SELECT * FROM fact WHERE a IN (SELECT id FROM dim)")
+  }
+
+  @Test
+  def testRuntimeFilterDisabled(): Unit = {
+    util.tableEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_ENABLED, false)
+    util.verifyExecPlan("SELECT * FROM fact, dim WHERE a = id")
+  }
+
+  @Test
+  def testNoRuntimeFilterForProbeOuterJoin(): Unit = {
+    util.verifyExecPlan("SELECT * FROM fact LEFT JOIN dim ON a = id")
+  }
+
+  @Test
+  def testNoRuntimeFilterForProbeAntiJoin(): Unit = {
+    util.verifyExecPlan(
+      "SELECT * FROM fact WHERE NOT EXISTS (SELECT * FROM dim WHERE a = id)")
+  }
+
+  @Test
+  def testNoRuntimeFilterForReusedProbeExchange(): Unit = {
+    util.tableEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_REUSE_SUB_PLAN_ENABLED, true)
+    val sqlQuery =
+      """
+        |SELECT a, b, name FROM fact, dim WHERE a = id AND name = 'x'
+        |UNION ALL
+        |SELECT a, b, name FROM fact, dim WHERE a = id AND name = 'y'
+      """.stripMargin
+    util.verifyExecPlan(sqlQuery)
+  }
+
+  @Test
+  def testNoRuntimeFilterForLargeBuildSide(): Unit = {
+    util.tableEnv.getConfig.getConfiguration.setString(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_MAX_BUILD_DATA_SIZE.key(), "1kb")
+    util.verifyExecPlan("SELECT * FROM fact, dim WHERE a = id")
+  }
+
+  @Test
+  def testNoRuntimeFilterForSmallProbeSide(): Unit = {
+    util.tableEnv.getConfig.getConfiguration.setString(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_MIN_PROBE_DATA_SIZE.key(), "1tb")
+    util.verifyExecPlan("SELECT * FROM fact, dim WHERE a = id")
+  }
+}
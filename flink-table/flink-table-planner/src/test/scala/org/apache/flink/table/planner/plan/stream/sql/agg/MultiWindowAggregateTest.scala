@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.plan.stream.sql.agg
+
+import org.apache.flink.table.api.config.OptimizerConfigOptions
+import org.apache.flink.table.planner.plan.utils.JavaUserDefinedAggFunctions.{WeightedAvg, WeightedAvgWithMerge}
+import org.apache.flink.table.planner.utils.TableTestBase
+
+import org.junit.{Before, Test}
+
+/**
+ * Tests for merging window aggregates of different window sizes into a multiple window
+ * aggregate, see [[org.apache.flink.table.planner.plan.rules.physical.stream.MultiWindowAggregateRule]].
+ */
+class MultiWindowAggregateTest extends TableTestBase {
+
+  private val util = streamTestUtil()
+
+  @Before
+  def before(): Unit = {
+    util.addTemporarySystemFunction("weightedAvg", classOf[WeightedAvgWithMerge])
+    util.addTemporarySystemFunction("weightedAvgWithoutMerge", classOf[WeightedAvg])
+    util.tableEnv.executeSql(
+      s"""
+         |CREATE TABLE MyTable (
+         |  a INT,
+         |  b BIGINT,
+         |  c STRING NOT NULL,
+         |  d DECIMAL(10, 3),
+         |  e BIGINT,
+         |  rowtime TIMESTAMP(3),
+         |  proctime as PROCTIME(),
+         |  WATERMARK FOR rowtime AS rowtime - INTERVAL '1' SECOND
+         |) with (
+         |  'connector' = 'values'
+         |)
+         |""".stripMargin)
+    util.tableEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED, true)
+  }
+
+  @Test
+  def testMergeTumbleWindows(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*), sum(d)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*), sum(d)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testMergeTumbleAndHopWindows(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*), weightedAvg(b, e)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*), weightedAvg(b, e)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*), weightedAvg(b, e)
+        |FROM TABLE(
+        |  HOP(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '2' MINUTE, INTERVAL '10' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testMergeOnProctime(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(proctime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(proctime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testMergeWithCalc(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_end, cnt FROM (
+        |  SELECT a, window_start, window_end, count(*) AS cnt
+        |  FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |  GROUP BY a, window_start, window_end)
+        |WHERE cnt > 1
+        |UNION ALL
+        |SELECT a, window_end, cnt FROM (
+        |  SELECT a, window_start, window_end, count(*) AS cnt
+        |  FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |  GROUP BY a, window_start, window_end)
+        |WHERE cnt > 1
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testMergeSomeInputs(): Unit = {
+    // only the first two inputs can be merged, the third one has other grouping keys
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT CAST(b AS INT), window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '10' MINUTE))
+        |GROUP BY b, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeIfDisabled(): Unit = {
+    util.tableEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED, false)
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeDifferentGroupingKeys(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT CAST(b AS INT), window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY b, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeDifferentAggCalls(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, sum(b)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeDifferentTimeAttributes(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(proctime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeSameWindows(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeWindowsWithOffset(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(
+        |  TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE, INTERVAL '10' SECOND))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(
+        |  TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE, INTERVAL '10' SECOND))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeCumulateWindows(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(
+        |  CUMULATE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE, INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeAggWithoutMergeMethod(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_end, weightedAvgWithoutMerge(b, e)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end
+        |UNION ALL
+        |SELECT a, window_start, window_end, weightedAvgWithoutMerge(b, e)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+
+  @Test
+  def testNotMergeWindowTime(): Unit = {
+    val sql =
+      """
+        |SELECT a, window_start, window_time, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '1' MINUTE))
+        |GROUP BY a, window_start, window_end, window_time
+        |UNION ALL
+        |SELECT a, window_start, window_time, count(*)
+        |FROM TABLE(TUMBLE(TABLE MyTable, DESCRIPTOR(rowtime), INTERVAL '5' MINUTE))
+        |GROUP BY a, window_start, window_end, window_time
+      """.stripMargin
+    util.verifyRelPlan(sql)
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.runtime.batch.sql.join
+
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo.{INT_TYPE_INFO, LONG_TYPE_INFO, STRING_TYPE_INFO}
+import org.apache.flink.api.java.typeutils.RowTypeInfo
+import org.apache.flink.table.api.config.OptimizerConfigOptions
+import org.apache.flink.table.plan.stats.TableStats
+import org.apache.flink.table.planner.plan.stats.FlinkStatistic
+import org.apache.flink.table.planner.runtime.batch.sql.join.JoinITCaseHelper.disableOtherJoinOpForJoin
+import org.apache.flink.table.planner.runtime.batch.sql.join.JoinType.HashJoin
+import org.apache.flink.table.planner.runtime.utils.BatchTestBase
+import org.apache.flink.table.planner.runtime.utils.BatchTestBase.row
+import org.apache.flink.table.planner.runtime.utils.TestData._
+import org.apache.flink.types.Row
+
+import org.junit.Assert.assertTrue
+import org.junit.{Before, Test}
+
+import scala.collection.Seq
+
+/** Tests the results of hash joins whose probe side is filtered by a runtime filter. */
+class RuntimeFilterITCase extends BatchTestBase {
+
+  private lazy val dimData = Seq(
+    row(2, 2L, "a"),
+    row(4, 3L, "b"),
+    row(4, 3L, "c"),
+    row(11, 6L, "d"),
+    row(30, 1L, "e"),
+    row(null, 999L, "f")
+  )
+
+  @Before
+  override def before(): Unit = {
+    super.before()
+    // the statistics make dim the build side and fact the probe side of the hash joins
+    registerCollection("fact", nullData3, type3, "a, b, c", nullablesOfData3,
+      FlinkStatistic.builder().tableStats(new TableStats(1000000000L)).build())
+    registerCollection("dim", dimData,
+      new RowTypeInfo(INT_TYPE_INFO, LONG_TYPE_INFO, STRING_TYPE_INFO),
+      "id, k, name", Array(true, true, true),
+      FlinkStatistic.builder().tableStats(new TableStats(10L)).build())
+    disableOtherJoinOpForJoin(tEnv, HashJoin)
+    tEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_ENABLED, true)
+    tEnv.getConfig.getConfiguration.setString(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_RUNTIME_FILTER_MIN_PROBE_DATA_SIZE.key(), "1mb")
+  }
+
+  @Test
+  def testInnerJoin(): Unit = {
+    checkRuntimeFilterResult(
+      "SELECT a, c, name FROM fact, dim WHERE a = id",
+      Seq(
+        row(2, "Hello", "a"),
+        row(4, "Hello world, how are you?", "b"),
+        row(4, "Hello world, how are you?", "c"),
+        row(11, "Comment#5", "d")))
+  }
+
+  @Test
+  def testInnerJoinWithMultipleKeys(): Unit = {
+    checkRuntimeFilterResult(
+      "SELECT a, b, name FROM fact, dim WHERE a = id AND b = k",
+      Seq(
+        row(2, 2L, "a"),
+        row(4, 3L, "b"),
+        row(4, 3L, "c")))
+  }
+
+  @Test
+  def testInnerJoinWithFilteredBuildSide(): Unit = {
+    checkRuntimeFilterResult(
+      "SELECT a, name FROM fact, dim WHERE a = id AND name = 'd'",
+      Seq(row(11, "d")))
+  }
+
+  @Test
+  def testInnerJoinWithEmptyBuildSide(): Unit = {
+    checkRuntimeFilterResult(
+      "SELECT a, name FROM fact, dim WHERE a = id AND name = 'x'",
+      Seq())
+  }
+
+  @Test
+  def testSemiJoin(): Unit = {
+    checkRuntimeFilterResult(
+      "SELECT a, b FROM fact WHERE a IN (SELECT id FROM dim)",
+      Seq(row(2, 2L), row(4, 3L), row(11, 5L)))
+  }
+
+  private def checkRuntimeFilterResult(sqlQuery: String, expectedResult: Seq[Row]): Unit = {
+    val plan = tEnv.explainSql(sqlQuery)
+    assertTrue(plan, plan.contains("RuntimeFilter("))
+    checkResult(sqlQuery, expectedResult)
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.planner.runtime.stream.sql
+
+import org.apache.flink.api.common.restartstrategy.RestartStrategies
+import org.apache.flink.api.scala._
+import org.apache.flink.streaming.api.CheckpointingMode
+import org.apache.flink.table.api.bridge.scala._
+import org.apache.flink.table.api.config.OptimizerConfigOptions
+import org.apache.flink.table.planner.factories.TestValuesTableFactory
+import org.apache.flink.table.planner.runtime.utils.StreamingWithStateTestBase.{HEAP_BACKEND, ROCKSDB_BACKEND, StateBackendMode}
+import org.apache.flink.table.planner.runtime.utils.{FailingCollectionSource, StreamingWithStateTestBase, TestData, TestingAppendSink}
+import org.apache.flink.types.Row
+
+import org.junit.Assert.{assertEquals, assertFalse}
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.{Before, Test}
+
+import java.util
+
+import scala.collection.JavaConversions._
+
+/**
+ * Tests that merging window aggregates of different window sizes into a multiple window
+ * aggregate produces the same results as the separate window aggregates.
+ */
+@RunWith(classOf[Parameterized])
+class MultiWindowAggregateITCase(state: StateBackendMode)
+  extends StreamingWithStateTestBase(state) {
+
+  @Before
+  override def before(): Unit = {
+    super.before()
+    // enable checkpoint, we are using failing source to force have a complete checkpoint
+    // and cover restore path
+    env.enableCheckpointing(100, CheckpointingMode.EXACTLY_ONCE)
+    env.setRestartStrategy(RestartStrategies.fixedDelayRestart(1, 0))
+
+    val dataId = TestValuesTableFactory.registerData(TestData.windowDataWithTimestamp)
+    tEnv.executeSql(
+      s"""
+        |CREATE TABLE T1 (
+        | `ts` STRING,
+        | `int` INT,
+        | `double` DOUBLE,
+        | `float` FLOAT,
+        | `bigdec` DECIMAL(10, 2),
+        | `string` STRING,
+        | `name` STRING,
+        | `rowtime` AS TO_TIMESTAMP(`ts`),
+        | WATERMARK for `rowtime` AS `rowtime` - INTERVAL '1' SECOND
+        |) WITH (
+        | 'connector' = 'values',
+        | 'data-id' = '$dataId',
+        | 'failing-source' = 'true'
+        |)
+        |""".stripMargin)
+  }
+
+  @Test
+  def testTumbleAndHopWindows(): Unit = {
+    val sql =
+      """
+        |SELECT `name`, window_start, window_end, COUNT(*), SUM(`bigdec`), MAX(`double`),
+        |  MIN(`float`)
+        |FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '5' SECOND))
+        |GROUP BY `name`, window_start, window_end
+        |UNION ALL
+        |SELECT `name`, window_start, window_end, COUNT(*), SUM(`bigdec`), MAX(`double`),
+        |  MIN(`float`)
+        |FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '10' SECOND))
+        |GROUP BY `name`, window_start, window_end
+        |UNION ALL
+        |SELECT `name`, window_start, window_end, COUNT(*), SUM(`bigdec`), MAX(`double`),
+        |  MIN(`float`)
+        |FROM TABLE(
+        |  HOP(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '5' SECOND, INTERVAL '15' SECOND))
+        |GROUP BY `name`, window_start, window_end
+      """.stripMargin
+    verifyMergedResults(sql)
+  }
+
+  @Test
+  def testWindowsWithCalc(): Unit = {
+    val sql =
+      """
+        |SELECT `name`, window_end, cnt, total FROM (
+        |  SELECT `name`, window_start, window_end, COUNT(*) AS cnt, SUM(`int`) AS total
+        |  FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '5' SECOND))
+        |  GROUP BY `name`, window_start, window_end)
+        |WHERE cnt > 1
+        |UNION ALL
+        |SELECT `name`, window_end, cnt, total FROM (
+        |  SELECT `name`, window_start, window_end, COUNT(*) AS cnt, SUM(`int`) AS total
+        |  FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '20' SECOND))
+        |  GROUP BY `name`, window_start, window_end)
+        |WHERE cnt > 1
+      """.stripMargin
+    verifyMergedResults(sql)
+  }
+
+  @Test
+  def testDuplicatedWindows(): Unit = {
+    val sql =
+      """
+        |SELECT `name`, window_start, window_end, COUNT(*)
+        |FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '5' SECOND))
+        |GROUP BY `name`, window_start, window_end
+        |UNION ALL
+        |SELECT `name`, window_start, window_end, COUNT(*)
+        |FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '5' SECOND))
+        |GROUP BY `name`, window_start, window_end
+        |UNION ALL
+        |SELECT `name`, window_start, window_end, COUNT(*)
+        |FROM TABLE(TUMBLE(TABLE T1, DESCRIPTOR(rowtime), INTERVAL '10' SECOND))
+        |GROUP BY `name`, window_start, window_end
+      """.stripMargin
+    verifyMergedResults(sql)
+  }
+
+  /** Compares the results of the merged window aggregates with the separate ones. */
+  private def verifyMergedResults(sql: String): Unit = {
+    val expected = executeQuery(sql, mergeWindows = false)
+    assertFalse(expected.isEmpty)
+    val actual = executeQuery(sql, mergeWindows = true)
+    assertEquals(expected.sorted.mkString("\n"), actual.sorted.mkString("\n"))
+  }
+
+  private def executeQuery(sql: String, mergeWindows: Boolean): Seq[String] = {
+    tEnv.getConfig.getConfiguration.setBoolean(
+      OptimizerConfigOptions.TABLE_OPTIMIZER_WINDOW_AGG_MERGE_ENABLED, mergeWindows)
+    assertEquals(mergeWindows, tEnv.explainSql(sql).contains("MultiWindowAggregate("))
+
+    FailingCollectionSource.reset()
+    val sink = new TestingAppendSink
+    tEnv.sqlQuery(sql).toAppendStream[Row].addSink(sink)
+    env.execute()
+    sink.getAppendResults
+  }
+}
+
+object MultiWindowAggregateITCase {
+
+  @Parameterized.Parameters(name = "StateBackend={0}")
+  def parameters(): util.Collection[Array[java.lang.Object]] = {
+    Seq[Array[AnyRef]](
+      Array(HEAP_BACKEND),
+      Array(ROCKSDB_BACKEND))
+  }
+}
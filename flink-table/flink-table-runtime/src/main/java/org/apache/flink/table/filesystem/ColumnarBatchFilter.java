@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.filesystem;
+
+import org.apache.flink.table.data.vector.VectorizedColumnBatch;
+
+import java.io.Serializable;
+
+/**
+ * A filter which is evaluated on the column vectors of a {@link VectorizedColumnBatch}, a batch at
+ * a time, before the rows of the batch are returned by a {@link ColumnarRowIterator}.
+ *
+ * <p>The rows of a batch which pass the filter are tracked by a selection vector, which holds the
+ * ids of the selected rows in ascending order. A filter may keep rows which do not match, e.g. if
+ * their values cannot be compared, but it must never drop a row which matches.
+ *
+ * <p>See {@link ColumnarBatchFilters} for creating filters from pushed down expressions.
+ */
+@FunctionalInterface
+public interface ColumnarBatchFilter extends Serializable {
+
+    /**
+     * Removes the rows which do not pass this filter from the selection vector.
+     *
+     * @param batch the batch of rows.
+     * @param selected the ids of the selected rows in ascending order, which are updated in place.
+     * @param numSelected the number of selected rows.
+     * @return the number of selected rows which pass this filter.
+     */
+    int filter(VectorizedColumnBatch batch, int[] selected, int numSelected);
+}
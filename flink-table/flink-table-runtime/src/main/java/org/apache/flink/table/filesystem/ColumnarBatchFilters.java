@@ -0,0 +1,553 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.filesystem;
+
+import org.apache.flink.table.data.vector.BooleanColumnVector;
+import org.apache.flink.table.data.vector.ByteColumnVector;
+import org.apache.flink.table.data.vector.BytesColumnVector;
+import org.apache.flink.table.data.vector.ColumnVector;
+import org.apache.flink.table.data.vector.DoubleColumnVector;
+import org.apache.flink.table.data.vector.FloatColumnVector;
+import org.apache.flink.table.data.vector.IntColumnVector;
+import org.apache.flink.table.data.vector.LongColumnVector;
+import org.apache.flink.table.data.vector.ShortColumnVector;
+import org.apache.flink.table.data.vector.VectorizedColumnBatch;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.Expression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeFamily;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+import org.apache.flink.table.types.logical.RowType;
+
+import javax.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Utilities to convert filters pushed down into a columnar format to {@link ColumnarBatchFilter}s.
+ *
+ * <p>Supported are comparisons of a column with a literal of the same type family, {@code IS [NOT]
+ * NULL}, boolean columns and {@code AND} / {@code OR} of supported filters. Conjuncts which are not
+ * supported are ignored, the pushed down filters are evaluated on the returned rows again anyway.
+ */
+public final class ColumnarBatchFilters {
+
+    /**
+     * Creates a filter for the conjunction of the given filters on the rows of the given type, or
+     * returns empty if none of the filters is supported.
+     */
+    public static Optional<ColumnarBatchFilter> create(
+            List<ResolvedExpression> filters, RowType rowType) {
+        List<ColumnarBatchFilter> conjuncts = new ArrayList<>();
+        for (ResolvedExpression filter : filters) {
+            ColumnarBatchFilter conjunct = convert(filter, rowType);
+            if (conjunct != null) {
+                conjuncts.add(conjunct);
+            }
+        }
+        if (conjuncts.isEmpty()) {
+            return Optional.empty();
+        } else if (conjuncts.size() == 1) {
+            return Optional.of(conjuncts.get(0));
+        } else {
+            return Optional.of(new AndFilter(conjuncts.toArray(new ColumnarBatchFilter[0])));
+        }
+    }
+
+    /** Selects the first {@code numRows} rows and returns the number of selected rows. */
+    public static int selectAll(int[] selected, int numRows) {
+        for (int i = 0; i < numRows; i++) {
+            selected[i] = i;
+        }
+        return numRows;
+    }
+
+    @Nullable
+    private static ColumnarBatchFilter convert(Expression expression, RowType rowType) {
+        if (expression instanceof FieldReferenceExpression) {
+            int column = getColumn((FieldReferenceExpression) expression, rowType);
+            if (column >= 0 && rowType.getTypeAt(column).getTypeRoot() == LogicalTypeRoot.BOOLEAN) {
+                return new ComparisonFilter(
+                        column, ComparisonFilter.BOOLEAN, ComparisonOp.EQUALS, 1, 0, null);
+            }
+            return null;
+        }
+        if (!(expression instanceof CallExpression)) {
+            return null;
+        }
+
+        CallExpression call = (CallExpression) expression;
+        FunctionDefinition function = call.getFunctionDefinition();
+        List<Expression> children = call.getChildren();
+        if (function == BuiltInFunctionDefinitions.AND
+                || function == BuiltInFunctionDefinitions.OR) {
+            ColumnarBatchFilter[] operands = new ColumnarBatchFilter[children.size()];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = convert(children.get(i), rowType);
+                if (operands[i] == null && function == BuiltInFunctionDefinitions.OR) {
+                    return null;
+                }
+            }
+            if (function == BuiltInFunctionDefinitions.OR) {
+                return new OrFilter(operands);
+            }
+            ColumnarBatchFilter[] supported =
+                    Arrays.stream(operands)
+                            .filter(operand -> operand != null)
+                            .toArray(ColumnarBatchFilter[]::new);
+            return supported.length == 0 ? null : new AndFilter(supported);
+        } else if (function == BuiltInFunctionDefinitions.IS_NULL
+                || function == BuiltInFunctionDefinitions.IS_NOT_NULL) {
+            if (children.size() != 1 || !(children.get(0) instanceof FieldReferenceExpression)) {
+                return null;
+            }
+            int column = getColumn((FieldReferenceExpression) children.get(0), rowType);
+            return column < 0
+                    ? null
+                    : new NullFilter(column, function == BuiltInFunctionDefinitions.IS_NULL);
+        }
+
+        ComparisonOp op = ComparisonOp.of(function);
+        if (op == null || children.size() != 2) {
+            return null;
+        }
+        if (children.get(0) instanceof FieldReferenceExpression
+                && children.get(1) instanceof ValueLiteralExpression) {
+            return createComparison(
+                    (FieldReferenceExpression) children.get(0),
+                    op,
+                    (ValueLiteralExpression) children.get(1),
+                    rowType);
+        } else if (children.get(0) instanceof ValueLiteralExpression
+                && children.get(1) instanceof FieldReferenceExpression) {
+            return createComparison(
+                    (FieldReferenceExpression) children.get(1),
+                    op.reverse(),
+                    (ValueLiteralExpression) children.get(0),
+                    rowType);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static ColumnarBatchFilter createComparison(
+            FieldReferenceExpression field,
+            ComparisonOp op,
+            ValueLiteralExpression literal,
+            RowType rowType) {
+        int column = getColumn(field, rowType);
+        if (column < 0) {
+            return null;
+        }
+        LogicalType columnType = rowType.getTypeAt(column);
+        LogicalType literalType = literal.getOutputDataType().getLogicalType();
+        switch (columnType.getTypeRoot()) {
+            case BOOLEAN:
+                return literalType.getTypeRoot() != LogicalTypeRoot.BOOLEAN
+                        ? null
+                        : literal.getValueAs(Boolean.class)
+                                .map(
+                                        v ->
+                                                new ComparisonFilter(
+                                                        column,
+                                                        ComparisonFilter.BOOLEAN,
+                                                        op,
+                                                        v ? 1 : 0,
+                                                        0,
+                                                        null))
+                                .orElse(null);
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+                return !literalType
+                                .getTypeRoot()
+                                .getFamilies()
+                                .contains(LogicalTypeFamily.INTEGER_NUMERIC)
+                        ? null
+                        : literal.getValueAs(Number.class)
+                                .map(
+                                        v ->
+                                                new ComparisonFilter(
+                                                        column,
+                                                        getIntegerKind(columnType),
+                                                        op,
+                                                        v.longValue(),
+                                                        0,
+                                                        null))
+                                .orElse(null);
+            case DATE:
+                return literalType.getTypeRoot() != LogicalTypeRoot.DATE
+                        ? null
+                        : literal.getValueAs(LocalDate.class)
+                                .map(
+                                        v ->
+                                                new ComparisonFilter(
+                                                        column,
+                                                        ComparisonFilter.INT,
+                                                        op,
+                                                        v.toEpochDay(),
+                                                        0,
+                                                        null))
+                                .orElse(null);
+            case FLOAT:
+            case DOUBLE:
+                return literalType.getTypeRoot() != LogicalTypeRoot.FLOAT
+                                && literalType.getTypeRoot() != LogicalTypeRoot.DOUBLE
+                        ? null
+                        : literal.getValueAs(Number.class)
+                                .map(
+                                        v ->
+                                                new ComparisonFilter(
+                                                        column,
+                                                        columnType.getTypeRoot()
+                                                                        == LogicalTypeRoot.FLOAT
+                                                                ? ComparisonFilter.FLOAT
+                                                                : ComparisonFilter.DOUBLE,
+                                                        op,
+                                                        0,
+                                                        v.doubleValue(),
+                                                        null))
+                                .orElse(null);
+            case VARCHAR:
+                return !literalType
+                                .getTypeRoot()
+                                .getFamilies()
+                                .contains(LogicalTypeFamily.CHARACTER_STRING)
+                        ? null
+                        : literal.getValueAs(String.class)
+                                .map(
+                                        v ->
+                                                new ComparisonFilter(
+                                                        column,
+                                                        ComparisonFilter.BYTES,
+                                                        op,
+                                                        0,
+                                                        0,
+                                                        v.getBytes(StandardCharsets.UTF_8)))
+                                .orElse(null);
+            default:
+                return null;
+        }
+    }
+
+    private static int getIntegerKind(LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case TINYINT:
+                return ComparisonFilter.BYTE;
+            case SMALLINT:
+                return ComparisonFilter.SHORT;
+            case INTEGER:
+                return ComparisonFilter.INT;
+            default:
+                return ComparisonFilter.LONG;
+        }
+    }
+
+    /** Returns the column of the field in the row type by name, or -1 if it does not exist. */
+    private static int getColumn(FieldReferenceExpression field, RowType rowType) {
+        return rowType.getFieldNames().indexOf(field.getName());
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    /** The comparison of a column value with a literal. */
+    private enum ComparisonOp {
+        EQUALS,
+        NOT_EQUALS,
+        LESS_THAN,
+        LESS_THAN_OR_EQUAL,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUAL;
+
+        @Nullable
+        static ComparisonOp of(FunctionDefinition function) {
+            if (function == BuiltInFunctionDefinitions.EQUALS) {
+                return EQUALS;
+            } else if (function == BuiltInFunctionDefinitions.NOT_EQUALS) {
+                return NOT_EQUALS;
+            } else if (function == BuiltInFunctionDefinitions.LESS_THAN) {
+                return LESS_THAN;
+            } else if (function == BuiltInFunctionDefinitions.LESS_THAN_OR_EQUAL) {
+                return LESS_THAN_OR_EQUAL;
+            } else if (function == BuiltInFunctionDefinitions.GREATER_THAN) {
+                return GREATER_THAN;
+            } else if (function == BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL) {
+                return GREATER_THAN_OR_EQUAL;
+            }
+            return null;
+        }
+
+        /** Returns the op of the comparison with swapped operands. */
+        ComparisonOp reverse() {
+            switch (this) {
+                case LESS_THAN:
+                    return GREATER_THAN;
+                case LESS_THAN_OR_EQUAL:
+                    return GREATER_THAN_OR_EQUAL;
+                case GREATER_THAN:
+                    return LESS_THAN;
+                case GREATER_THAN_OR_EQUAL:
+                    return LESS_THAN_OR_EQUAL;
+                default:
+                    return this;
+            }
+        }
+
+        /**
+         * Whether the result of the comparison passes, {@link ComparisonFilter#UNORDERED} is the
+         * result of comparisons with NaN, which only pass {@code <>} like in generated code.
+         */
+        boolean accept(int compared) {
+            if (compared == ComparisonFilter.UNORDERED) {
+                return this == NOT_EQUALS;
+            }
+            switch (this) {
+                case EQUALS:
+                    return compared == 0;
+                case NOT_EQUALS:
+                    return compared != 0;
+                case LESS_THAN:
+                    return compared < 0;
+                case LESS_THAN_OR_EQUAL:
+                    return compared <= 0;
+                case GREATER_THAN:
+                    return compared > 0;
+                default:
+                    return compared >= 0;
+            }
+        }
+    }
+
+    /** Compares the non-null values of a column with a literal, null values never pass. */
+    private static final class ComparisonFilter implements ColumnarBatchFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        static final int UNORDERED = Integer.MIN_VALUE;
+
+        static final int BOOLEAN = 0;
+        static final int BYTE = 1;
+        static final int SHORT = 2;
+        static final int INT = 3;
+        static final int LONG = 4;
+        static final int FLOAT = 5;
+        static final int DOUBLE = 6;
+        static final int BYTES = 7;
+
+        private final int column;
+        private final int kind;
+        private final ComparisonOp op;
+        private final long longLiteral;
+        private final double doubleLiteral;
+        @Nullable private final byte[] bytesLiteral;
+
+        private ComparisonFilter(
+                int column,
+                int kind,
+                ComparisonOp op,
+                long longLiteral,
+                double doubleLiteral,
+                @Nullable byte[] bytesLiteral) {
+            this.column = column;
+            this.kind = kind;
+            this.op = op;
+            this.longLiteral = longLiteral;
+            this.doubleLiteral = doubleLiteral;
+            this.bytesLiteral = bytesLiteral;
+        }
+
+        @Override
+        public int filter(VectorizedColumnBatch batch, int[] selected, int numSelected) {
+            ColumnVector vector = batch.columns[column];
+            int n = 0;
+            for (int i = 0; i < numSelected; i++) {
+                int rowId = selected[i];
+                if (!vector.isNullAt(rowId) && op.accept(compare(vector, rowId))) {
+                    selected[n++] = rowId;
+                }
+            }
+            return n;
+        }
+
+        private int compare(ColumnVector vector, int rowId) {
+            switch (kind) {
+                case BOOLEAN:
+                    return Long.compare(
+                            ((BooleanColumnVector) vector).getBoolean(rowId) ? 1 : 0, longLiteral);
+                case BYTE:
+                    return Long.compare(((ByteColumnVector) vector).getByte(rowId), longLiteral);
+                case SHORT:
+                    return Long.compare(((ShortColumnVector) vector).getShort(rowId), longLiteral);
+                case INT:
+                    return Long.compare(((IntColumnVector) vector).getInt(rowId), longLiteral);
+                case LONG:
+                    return Long.compare(((LongColumnVector) vector).getLong(rowId), longLiteral);
+                case FLOAT:
+                    return compare(((FloatColumnVector) vector).getFloat(rowId), doubleLiteral);
+                case DOUBLE:
+                    return compare(((DoubleColumnVector) vector).getDouble(rowId), doubleLiteral);
+                default:
+                    return compare(((BytesColumnVector) vector).getBytes(rowId), bytesLiteral);
+            }
+        }
+
+        private static int compare(double value, double literal) {
+            if (value < literal) {
+                return -1;
+            } else if (value > literal) {
+                return 1;
+            } else if (value == literal) {
+                return 0;
+            } else {
+                return UNORDERED;
+            }
+        }
+
+        /** Compares the bytes of UTF-8 strings like {@code BinaryStringData#compareTo}. */
+        private static int compare(BytesColumnVector.Bytes value, byte[] literal) {
+            int len = Math.min(value.len, literal.length);
+            for (int i = 0; i < len; i++) {
+                int res = (value.data[value.offset + i] & 0xFF) - (literal[i] & 0xFF);
+                if (res != 0) {
+                    return res;
+                }
+            }
+            return value.len - literal.length;
+        }
+    }
+
+    /** Selects the rows whose value of a column is null, or not null. */
+    private static final class NullFilter implements ColumnarBatchFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int column;
+        private final boolean isNull;
+
+        private NullFilter(int column, boolean isNull) {
+            this.column = column;
+            this.isNull = isNull;
+        }
+
+        @Override
+        public int filter(VectorizedColumnBatch batch, int[] selected, int numSelected) {
+            ColumnVector vector = batch.columns[column];
+            int n = 0;
+            for (int i = 0; i < numSelected; i++) {
+                int rowId = selected[i];
+                if (vector.isNullAt(rowId) == isNull) {
+                    selected[n++] = rowId;
+                }
+            }
+            return n;
+        }
+    }
+
+    /** Applies the filters one after another to the remaining selected rows. */
+    private static final class AndFilter implements ColumnarBatchFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnarBatchFilter[] filters;
+
+        private AndFilter(ColumnarBatchFilter[] filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public int filter(VectorizedColumnBatch batch, int[] selected, int numSelected) {
+            for (int i = 0; i < filters.length && numSelected > 0; i++) {
+                numSelected = filters[i].filter(batch, selected, numSelected);
+            }
+            return numSelected;
+        }
+    }
+
+    /**
+     * Applies every filter to the selected rows which did not pass the previous filters and merges
+     * the passing rows.
+     */
+    private static final class OrFilter implements ColumnarBatchFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnarBatchFilter[] filters;
+
+        private OrFilter(ColumnarBatchFilter[] filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public int filter(VectorizedColumnBatch batch, int[] selected, int numSelected) {
+            int[] remaining = Arrays.copyOf(selected, numSelected);
+            int numRemaining = numSelected;
+            int[] passed = new int[numSelected];
+            int numPassed = 0;
+            int[] candidates = new int[numSelected];
+            for (ColumnarBatchFilter filter : filters) {
+                if (numRemaining == 0) {
+                    break;
+                }
+                System.arraycopy(remaining, 0, candidates, 0, numRemaining);
+                int numMatched = filter.filter(batch, candidates, numRemaining);
+
+                // merge the matched rows into the passed rows and remove them from the remaining
+                int[] merged = new int[numPassed + numMatched];
+                int p = 0;
+                int m = 0;
+                int k = 0;
+                while (p < numPassed || m < numMatched) {
+                    if (m == numMatched || (p < numPassed && passed[p] < candidates[m])) {
+                        merged[k++] = passed[p++];
+                    } else {
+                        merged[k++] = candidates[m++];
+                    }
+                }
+                System.arraycopy(merged, 0, passed, 0, k);
+                numPassed = k;
+
+                int r = 0;
+                m = 0;
+                for (int i = 0; i < numRemaining; i++) {
+                    if (m < numMatched && remaining[i] == candidates[m]) {
+                        m++;
+                    } else {
+                        remaining[r++] = remaining[i];
+                    }
+                }
+                numRemaining = r;
+            }
+            System.arraycopy(passed, 0, selected, 0, numPassed);
+            return numPassed;
+        }
+    }
+
+    private ColumnarBatchFilters() {}
+}
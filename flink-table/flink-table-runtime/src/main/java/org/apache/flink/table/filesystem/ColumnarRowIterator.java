@@ -31,6 +31,9 @@ import javax.annotation.Nullable;
 /**
  * A {@link BulkFormat.RecordIterator} that returns {@link RowData}s. The next row is set by {@link
  * ColumnarRowData#setRowId}.
+ *
+ * <p>The iterator can be restricted to the rows of a selection vector, see {@link
+ * ColumnarBatchFilter}. The positions of the returned records still count all rows of the batch.
  */
 public class ColumnarRowIterator extends RecyclableIterator<RowData> {
 
@@ -40,6 +43,12 @@ public class ColumnarRowIterator extends RecyclableIterator<RowData> {
     private int num;
     private int pos;
 
+    /** The ids of the rows to return, or null if all rows are returned. */
+    @Nullable private int[] selected;
+
+    private long offset;
+    private long recordSkipCount;
+
     public ColumnarRowIterator(ColumnarRowData rowData, @Nullable Runnable recycler) {
         super(recycler);
         this.rowData = rowData;
@@ -58,6 +67,28 @@ public class ColumnarRowIterator extends RecyclableIterator<RowData> {
     public void set(final int num, final long offset, final long recordSkipCount) {
         this.num = num;
         this.pos = 0;
+        this.selected = null;
+        this.recordAndPosition.set(null, offset, recordSkipCount);
+    }
+
+    /**
+     * Sets the selected rows of this batch, only these rows are returned.
+     *
+     * @param selected the ids of the selected rows in ascending order.
+     * @param numSelected the number of selected rows.
+     * @param recordSkipCount The number of rows that have been returned before this batch,
+     *     including the rows which have not been selected.
+     */
+    public void setSelected(
+            final int[] selected,
+            final int numSelected,
+            final long offset,
+            final long recordSkipCount) {
+        this.num = numSelected;
+        this.pos = 0;
+        this.selected = selected;
+        this.offset = offset;
+        this.recordSkipCount = recordSkipCount;
         this.recordAndPosition.set(null, offset, recordSkipCount);
     }
 
@@ -65,8 +96,14 @@ public class ColumnarRowIterator extends RecyclableIterator<RowData> {
     @Override
     public RecordAndPosition<RowData> next() {
         if (pos < num) {
-            rowData.setRowId(pos++);
-            recordAndPosition.setNext(rowData);
+            if (selected == null) {
+                rowData.setRowId(pos++);
+                recordAndPosition.setNext(rowData);
+            } else {
+                int rowId = selected[pos++];
+                rowData.setRowId(rowId);
+                recordAndPosition.set(rowData, offset, recordSkipCount + rowId + 1);
+            }
             return recordAndPosition;
         } else {
             return null;
@@ -22,7 +22,9 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.disk.ChannelReaderInputViewIterator;
+import org.apache.flink.runtime.io.disk.SimpleCollectingOutputView;
 import org.apache.flink.runtime.io.disk.iomanager.ChannelReaderInputView;
+import org.apache.flink.runtime.io.disk.iomanager.HeaderlessChannelReaderInputView;
 import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.memory.MemoryManager;
 import org.apache.flink.runtime.operators.util.BitSet;
@@ -55,6 +57,12 @@ import static org.apache.flink.util.Preconditions.checkArgument;
  * <p>The design of this class follows in many parts the design presented in "Hash joins and hash
  * teams in Microsoft SQL Server", by Goetz Graefe et al. In its current state, the implementation
  * lacks features like dynamic role reversal, partition tuning, or histogram guided partitioning.
+ *
+ * <p>A spilled partition which does not fit into memory after {@link #MAX_RECURSION_DEPTH}
+ * recursive partitionings usually contains a few skewed keys, which no hash function can split. If
+ * every build side row can be joined independently of the other build side rows, such a partition
+ * is joined in chunks instead: each chunk of its build side which fits into memory is joined with
+ * the complete probe side of the partition.
  */
 public class BinaryHashTable extends BaseHybridHashTable {
 
@@ -134,6 +142,17 @@ public class BinaryHashTable extends BaseHybridHashTable {
     private BinaryRowData probeKey;
     private RowData probeRow;
 
+    /** The remaining build side of the skewed partition which is joined in chunks, if any. */
+    private HeaderlessChannelReaderInputView skewedBuildSide;
+
+    private BinaryRowChannelInputViewIterator skewedBuildIterator;
+
+    /** The first build side row of the next chunk of the skewed partition. */
+    private BinaryRowData skewedPendingRow;
+
+    /** The probe side of the skewed partition, which is read once per chunk. */
+    private ChannelWithMeta skewedProbeSide;
+
     BinaryRowData reuseBuildRow;
 
     public BinaryHashTable(
@@ -364,10 +383,24 @@ public class BinaryHashTable extends BaseHybridHashTable {
         }
 
         if (this.currentSpilledProbeSide != null) {
-            this.currentSpilledProbeSide.getChannel().closeAndDelete();
+            if (this.skewedBuildIterator != null) {
+                // the probe side is read again for the next chunk of the skewed partition
+                this.currentSpilledProbeSide.getChannel().close();
+            } else {
+                this.currentSpilledProbeSide.getChannel().closeAndDelete();
+            }
             this.currentSpilledProbeSide = null;
         }
 
+        if (this.skewedBuildIterator != null) {
+            this.probeMatchedPhase = true;
+            this.buildIterVisited = false;
+
+            buildNextChunkOfSkewedPartition();
+            openSpilledProbeSide(this.skewedProbeSide);
+            return nextMatching();
+        }
+
         if (this.partitionsPending.isEmpty()) {
             // no more data
             return false;
@@ -403,11 +436,24 @@ public class BinaryHashTable extends BaseHybridHashTable {
         buildTableFromSpilledPartition(p);
 
         // set the probe side
-        ChannelWithMeta channelWithMeta =
-                new ChannelWithMeta(
-                        p.probeSideBuffer.getChannel().getChannelID(),
-                        p.probeSideBuffer.getBlockCount(),
-                        p.probeNumBytesInLastSeg);
+        openSpilledProbeSide(getProbeSideChannel(p));
+
+        // unregister the pending partition
+        this.partitionsPending.remove(0);
+        this.currentRecursionDepth = p.getRecursionLevel() + 1;
+
+        // recursively get the next
+        return nextMatching();
+    }
+
+    private static ChannelWithMeta getProbeSideChannel(BinaryHashPartition p) {
+        return new ChannelWithMeta(
+                p.probeSideBuffer.getChannel().getChannelID(),
+                p.probeSideBuffer.getBlockCount(),
+                p.probeNumBytesInLastSeg);
+    }
+
+    private void openSpilledProbeSide(ChannelWithMeta channelWithMeta) throws IOException {
         this.currentSpilledProbeSide =
                 FileChannelUtil.createInputView(
                         ioManager,
@@ -425,13 +471,6 @@ public class BinaryHashTable extends BaseHybridHashTable {
                         this.binaryProbeSideSerializer);
         this.probeIterator.set(probeReader);
         this.probeIterator.setReuse(binaryProbeSideSerializer.createInstance());
-
-        // unregister the pending partition
-        this.partitionsPending.remove(0);
-        this.currentRecursionDepth = p.getRecursionLevel() + 1;
-
-        // recursively get the next
-        return nextMatching();
     }
 
     private void buildTableFromSpilledPartition(final BinaryHashPartition p) throws IOException {
@@ -440,9 +479,16 @@ public class BinaryHashTable extends BaseHybridHashTable {
         if (nextRecursionLevel == 2) {
             LOG.info("Recursive hash join: partition number is " + p.getPartitionNumber());
         } else if (nextRecursionLevel > MAX_RECURSION_DEPTH) {
-            throw new RuntimeException(
-                    "Hash join exceeded maximum number of recursions, without reducing "
-                            + "partitions enough to be memory resident. Probably cause: Too many duplicate keys.");
+            if (!canJoinInChunks(type)) {
+                throw new RuntimeException(
+                        "Hash join exceeded maximum number of recursions, without reducing "
+                                + "partitions enough to be memory resident. Probably cause: Too many duplicate keys. "
+                                + "The partition cannot be joined in chunks for join type "
+                                + type
+                                + ".");
+            }
+            startChunkedBuild(p, nextRecursionLevel);
+            return;
         }
 
         if (p.getBuildSideBlockCount() > p.getProbeSideBlockCount()) {
@@ -473,14 +519,10 @@ public class BinaryHashTable extends BaseHybridHashTable {
                             internalPool.freePages(), buildSpillRetBufferNumbers, totalNumBuffers));
         }
 
-        long numBuckets =
-                p.getBuildSideRecordCount() / BinaryHashBucketArea.NUM_ENTRIES_PER_BUCKET + 1;
-
         // we need to consider the worst case where everything hashes to one bucket which needs to
         // overflow by the same
         // number of total buckets again. Also, one buffer needs to remain for the probing
-        int maxBucketAreaBuffers =
-                Math.max((int) (2 * (numBuckets / (this.bucketsPerSegmentMask + 1))), 1);
+        int maxBucketAreaBuffers = getNumBucketAreaBuffers(p.getBuildSideRecordCount());
         final long totalBuffersNeeded = maxBucketAreaBuffers + p.getBuildSideBlockCount() + 2;
 
         if (totalBuffersNeeded < totalBuffersAvailable) {
@@ -512,16 +554,7 @@ public class BinaryHashTable extends BaseHybridHashTable {
             this.partitionsBeingBuilt.add(newPart);
 
             // now, index the partition through a hash table
-            final BinaryHashPartition.PartitionIterator pIter = newPart.newPartitionIterator();
-
-            while (pIter.advanceNext()) {
-                final int hashCode =
-                        hash(
-                                buildSideProjection.apply(pIter.getRow()).hashCode(),
-                                nextRecursionLevel);
-                final int pointer = (int) pIter.getPointer();
-                area.insertToBucket(hashCode, pointer, true);
-            }
+            indexInMemoryPartition(newPart, area, nextRecursionLevel);
         } else {
             // go over the complete input and insert every element into the hash table
             // compute in how many splits, we'd need to partition the result
@@ -561,6 +594,132 @@ public class BinaryHashTable extends BaseHybridHashTable {
         }
     }
 
+    private void indexInMemoryPartition(
+            BinaryHashPartition partition, BinaryHashBucketArea area, int recursionLevel)
+            throws IOException {
+        final BinaryHashPartition.PartitionIterator pIter = partition.newPartitionIterator();
+        while (pIter.advanceNext()) {
+            final int hashCode =
+                    hash(buildSideProjection.apply(pIter.getRow()).hashCode(), recursionLevel);
+            final int pointer = (int) pIter.getPointer();
+            area.insertToBucket(hashCode, pointer, true);
+        }
+    }
+
+    /**
+     * Whether the result of joining a build side row only depends on the build side row itself and
+     * the probe side, so that the build side can be split into chunks which are joined separately.
+     */
+    private static boolean canJoinInChunks(HashJoinType type) {
+        return type == HashJoinType.INNER
+                || type == HashJoinType.BUILD_OUTER
+                || type.buildLeftSemiOrAnti();
+    }
+
+    private void startChunkedBuild(BinaryHashPartition p, int recursionLevel) throws IOException {
+        LOG.info(
+                String.format(
+                        "Hash join: Partition(%d) does not fit into memory after %d recursions, "
+                                + "probably because of skewed keys. Join the partition in chunks "
+                                + "of its build side.",
+                        p.getPartitionNumber(), MAX_RECURSION_DEPTH));
+
+        this.skewedBuildSide =
+                createInputView(
+                        p.getBuildSideChannel().getChannelID(),
+                        p.getBuildSideBlockCount(),
+                        p.getLastSegmentLimit());
+        this.skewedBuildIterator =
+                new BinaryRowChannelInputViewIterator(
+                        skewedBuildSide, this.binaryBuildSideSerializer);
+        this.skewedPendingRow =
+                skewedBuildIterator.next(this.binaryBuildSideSerializer.createInstance());
+        this.skewedProbeSide = getProbeSideChannel(p);
+        this.currentRecursionDepth = recursionLevel;
+
+        buildNextChunkOfSkewedPartition();
+    }
+
+    /**
+     * Reads the next chunk of the build side of the skewed partition into memory, as much as fits
+     * into the memory of the table, and indexes it through a hash table.
+     */
+    private void buildNextChunkOfSkewedPartition() throws IOException {
+        ensureNumBuffersReturned(internalPool.freePages() + buildSpillRetBufferNumbers);
+        final int totalBuffersAvailable = internalPool.freePages();
+
+        final List<MemorySegment> partitionBuffers = new ArrayList<>();
+        final SimpleCollectingOutputView out =
+                new SimpleCollectingOutputView(partitionBuffers, internalPool, segmentSize);
+
+        long numRecords = 0;
+        BinaryRowData row = skewedPendingRow;
+        do {
+            // the length of a record is serialized before the record
+            long numBytes = out.getCurrentOffset() + 4 + row.getSizeInBytes();
+            if (numRecords > 0
+                    && getNumBuffersNeeded(numBytes, numRecords + 1) >= totalBuffersAvailable) {
+                break;
+            }
+            binaryBuildSideSerializer.serializeToPages(row, out);
+            numRecords++;
+        } while ((row = skewedBuildIterator.next(row)) != null);
+
+        LOG.info(
+                String.format(
+                        "Build in memory hash table from chunk of skewed partition with %d records",
+                        numRecords));
+
+        BinaryHashBucketArea area =
+                new BinaryHashBucketArea(
+                        this, (int) numRecords, getNumBucketAreaBuffers(numRecords), false);
+        final BinaryHashPartition chunk =
+                new BinaryHashPartition(
+                        area,
+                        this.binaryBuildSideSerializer,
+                        this.binaryProbeSideSerializer,
+                        0,
+                        currentRecursionDepth,
+                        partitionBuffers,
+                        numRecords,
+                        this.segmentSize,
+                        out.getCurrentPositionInSegment());
+        area.setPartition(chunk);
+        this.partitionsBeingBuilt.add(chunk);
+        indexInMemoryPartition(chunk, area, currentRecursionDepth);
+
+        if (row == null) {
+            // this is the last chunk
+            closeSkewedBuildSide();
+        } else {
+            this.skewedPendingRow = row;
+        }
+    }
+
+    /**
+     * The number of buffers needed to build an in memory hash table of the given data, which also
+     * considers the worst case where everything hashes to one bucket which needs to overflow by the
+     * same number of total buckets again.
+     */
+    private int getNumBuffersNeeded(long numBytes, long numRecords) {
+        // a record is never split over two segments, so one more segment may be needed
+        int numDataBuffers = (int) (numBytes >>> segmentSizeBits) + 2;
+        // one buffer needs to remain for the probing
+        return numDataBuffers + getNumBucketAreaBuffers(numRecords) + 2;
+    }
+
+    private int getNumBucketAreaBuffers(long numRecords) {
+        long numBuckets = numRecords / BinaryHashBucketArea.NUM_ENTRIES_PER_BUCKET + 1;
+        return Math.max((int) (2 * (numBuckets / (this.bucketsPerSegmentMask + 1))), 1);
+    }
+
+    private void closeSkewedBuildSide() throws IOException {
+        this.skewedBuildSide.getChannel().closeAndDelete();
+        this.skewedBuildSide = null;
+        this.skewedBuildIterator = null;
+        this.skewedPendingRow = null;
+    }
+
     private void insertIntoTable(final BinaryRowData record, final int hashCode)
             throws IOException {
         BinaryHashPartition p = partitionsBeingBuilt.get(hashCode % partitionsBeingBuilt.size());
@@ -630,6 +789,15 @@ public class BinaryHashTable extends BaseHybridHashTable {
         for (final BinaryHashPartition p : this.partitionsPending) {
             p.clearAllMemory(this.internalPool);
         }
+
+        // clear the remaining build side of the skewed partition
+        if (this.skewedBuildSide != null) {
+            try {
+                closeSkewedBuildSide();
+            } catch (Exception e) {
+                LOG.error("Error during cleanup of the skewed partition.", e);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.table.runtime.operators.aggregate;
+
+import org.apache.flink.core.memory.ManagedMemoryUseCase;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
+import org.apache.flink.streaming.api.operators.ChainingStrategy;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.data.utils.JoinedRowData;
+import org.apache.flink.table.runtime.dataview.PerKeyStateDataViewStore;
+import org.apache.flink.table.runtime.generated.AggsHandleFunction;
+import org.apache.flink.table.runtime.generated.GeneratedAggsHandleFunction;
+import org.apache.flink.table.runtime.keyselector.RowDataKeySelector;
+import org.apache.flink.table.runtime.operators.bundle.MapBundleOperator;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.runtime.util.KeyValueIterator;
+import org.apache.flink.table.runtime.util.StreamRecordCollector;
+import org.apache.flink.table.runtime.util.collections.binary.BytesHashMap;
+import org.apache.flink.table.runtime.util.collections.binary.BytesMap.LookupInfo;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.Collector;
+
+import java.io.EOFException;
+
+import static org.apache.flink.table.data.util.RowDataUtil.isAccumulateMsg;
+import static org.apache.flink.table.runtime.operators.bundle.AbstractMapBundleOperator.REDUCTION_RATIO_SAMPLE_SIZE;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * The operator used for the local groupby (without window) aggregate in miniBatch mode, which
+ * buffers the keys and accumulators of a bundle in a {@link BytesHashMap} in managed memory instead
+ * of a java Map of {@link RowData} objects, and therefore does not put pressure on the garbage
+ * collector.
+ *
+ * <p>The accumulators are updated in place in the map, so all accumulator types must be stored in
+ * the fixed-length part of a {@link BinaryRowData}. The bundle is finished when the managed memory
+ * of the operator is exhausted, and when a watermark, a checkpoint barrier or the end of the input
+ * arrives.
+ *
+ * <p>Like the heap-based {@link MapBundleOperator}, the operator can pass the input rows through
+ * one by one while the bundles do not reduce the number of rows enough, see {@link
+ * #BytesHashMapLocalGroupAggOperator(GeneratedAggsHandleFunction, RowDataKeySelector,
+ * LogicalType[], double, long)}.
+ */
+public class BytesHashMapLocalGroupAggOperator extends AbstractStreamOperator<RowData>
+        implements OneInputStreamOperator<RowData, RowData> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The code generated function used to handle aggregates. */
+    private final GeneratedAggsHandleFunction genAggsHandler;
+
+    /** KeySelector is used to extract the group key of the input rows. */
+    private final RowDataKeySelector keySelector;
+
+    private final LogicalType[] accTypes;
+
+    /** The minimum reduction ratio to keep bundling rows, or 0 to always bundle rows. */
+    private final double minReductionRatio;
+
+    /** The number of rows to pass through before the bundling is probed again. */
+    private final long passThroughElements;
+
+    // ------------------------------------------------------------------------
+
+    /** function used to handle all aggregates. */
+    private transient AggsHandleFunction function;
+
+    /** The map in managed memory to store the keys and accumulators of the bundle. */
+    private transient BytesHashMap bundle;
+
+    /** Serializer to copy the accumulators into the bundle. */
+    private transient RowDataSerializer accSerializer;
+
+    /** Output for stream records. */
+    private transient Collector<RowData> collector;
+
+    /** Reused output row. */
+    private transient JoinedRowData resultRow;
+
+    private transient long numOfElements;
+
+    /** Whether rows are passed through instead of being bundled. */
+    private transient boolean passThrough;
+
+    /** The last measured fraction of rows which are combined in the bundles. */
+    private transient double reductionRatio;
+
+    private transient long numOfSampledElements;
+    private transient long numOfSampledKeys;
+    private transient long numOfPassedThroughElements;
+
+    public BytesHashMapLocalGroupAggOperator(
+            GeneratedAggsHandleFunction genAggsHandler,
+            RowDataKeySelector keySelector,
+            LogicalType[] accTypes) {
+        this(genAggsHandler, keySelector, accTypes, 0.0, 0L);
+    }
+
+    /**
+     * Creates a {@link BytesHashMapLocalGroupAggOperator} which passes rows through one by one
+     * while less than the given fraction of the rows is combined with another row of the same key
+     * in the bundles, and probes the bundling again after the given number of passed through rows.
+     */
+    public BytesHashMapLocalGroupAggOperator(
+            GeneratedAggsHandleFunction genAggsHandler,
+            RowDataKeySelector keySelector,
+            LogicalType[] accTypes,
+            double minReductionRatio,
+            long passThroughElements) {
+        checkArgument(
+                minReductionRatio >= 0.0 && minReductionRatio <= 1.0,
+                "The minimum reduction ratio must be between 0 and 1.");
+        checkArgument(
+                minReductionRatio == 0.0 || passThroughElements > 0,
+                "The number of elements to pass through must be positive.");
+        for (LogicalType accType : accTypes) {
+            checkArgument(
+                    BinaryRowData.isInFixedLengthPart(accType),
+                    "The accumulator type %s cannot be updated in place.",
+                    accType);
+        }
+        this.genAggsHandler = genAggsHandler;
+        this.keySelector = keySelector;
+        this.accTypes = accTypes;
+        this.minReductionRatio = minReductionRatio;
+        this.passThroughElements = passThroughElements;
+        this.chainingStrategy = ChainingStrategy.ALWAYS;
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        function = genAggsHandler.newInstance(getRuntimeContext().getUserCodeClassLoader());
+        function.open(new PerKeyStateDataViewStore(getRuntimeContext()));
+
+        LogicalType[] keyTypes =
+                keySelector.getProducedType().toRowType().getChildren().toArray(new LogicalType[0]);
+        bundle =
+                new BytesHashMap(
+                        getContainingTask(),
+                        getContainingTask().getEnvironment().getMemoryManager(),
+                        computeMemorySize(),
+                        keyTypes,
+                        accTypes);
+        accSerializer = new RowDataSerializer(RowType.of(accTypes));
+        collector = new StreamRecordCollector<>(output);
+        resultRow = new JoinedRowData();
+        numOfElements = 0;
+        passThrough = false;
+        reductionRatio = 0.0;
+        numOfSampledElements = 0;
+        numOfSampledKeys = 0;
+        numOfPassedThroughElements = 0;
+
+        // counter metric to get the size of bundle
+        getRuntimeContext().getMetricGroup().gauge("bundleSize", (Gauge<Long>) () -> numOfElements);
+        getRuntimeContext()
+                .getMetricGroup()
+                .gauge("bundleSizeInBytes", (Gauge<Long>) () -> bundle.getUsedMemoryInBytes());
+        if (minReductionRatio > 0.0) {
+            getRuntimeContext()
+                    .getMetricGroup()
+                    .gauge("bundleReductionRatio", (Gauge<Double>) () -> reductionRatio);
+            getRuntimeContext()
+                    .getMetricGroup()
+                    .gauge("bundlePassThrough", (Gauge<Integer>) () -> passThrough ? 1 : 0);
+        }
+    }
+
+    @Override
+    public void processElement(StreamRecord<RowData> element) throws Exception {
+        RowData input = element.getValue();
+        BinaryRowData key = (BinaryRowData) keySelector.getKey(input);
+        if (passThrough) {
+            passThrough(key, input);
+            return;
+        }
+        LookupInfo<BinaryRowData, BinaryRowData> lookup = bundle.lookup(key);
+        if (lookup.isFound()) {
+            BinaryRowData currentAcc = lookup.getValue();
+            BinaryRowData newAcc = addInput(currentAcc, input);
+            // the accumulators have a fixed length, overwrite them in place
+            newAcc.getSegments()[0].copyTo(
+                    newAcc.getOffset(),
+                    currentAcc.getSegments()[0],
+                    currentAcc.getOffset(),
+                    newAcc.getSizeInBytes());
+        } else {
+            BinaryRowData newAcc = addInput(function.createAccumulators(), input);
+            try {
+                bundle.append(lookup, newAcc);
+            } catch (EOFException e) {
+                // the memory is exhausted, finish the bundle and add the input again
+                if (bundle.getNumKeys() == 0) {
+                    throw e;
+                }
+                finishBundle();
+                bundle.append(bundle.lookup(key), newAcc);
+            }
+        }
+        numOfElements++;
+    }
+
+    private void passThrough(BinaryRowData key, RowData input) throws Exception {
+        resultRow.replace(key, addInput(function.createAccumulators(), input));
+        collector.collect(resultRow);
+
+        if (++numOfPassedThroughElements >= passThroughElements) {
+            // probe whether the rows can be reduced again
+            passThrough = false;
+            numOfPassedThroughElements = 0;
+        }
+    }
+
+    private BinaryRowData addInput(RowData previousAcc, RowData input) throws Exception {
+        function.setAccumulators(previousAcc);
+        if (isAccumulateMsg(input)) {
+            function.accumulate(input);
+        } else {
+            function.retract(input);
+        }
+        return accSerializer.toBinaryRow(function.getAccumulators());
+    }
+
+    private void finishBundle() throws Exception {
+        if (bundle.getNumKeys() > 0) {
+            if (minReductionRatio > 0.0) {
+                updateReductionRatio(numOfElements, bundle.getNumKeys());
+            }
+            KeyValueIterator<BinaryRowData, BinaryRowData> iterator =
+                    bundle.getEntryIterator(false);
+            while (iterator.advanceNext()) {
+                resultRow.replace(iterator.getKey(), iterator.getValue());
+                collector.collect(resultRow);
+            }
+            bundle.reset();
+            numOfElements = 0;
+        }
+    }
+
+    private void updateReductionRatio(long numOfBundleElements, long numOfBundleKeys) {
+        numOfSampledElements += numOfBundleElements;
+        numOfSampledKeys += numOfBundleKeys;
+        if (numOfSampledElements >= REDUCTION_RATIO_SAMPLE_SIZE) {
+            reductionRatio = 1.0 - 1.0 * numOfSampledKeys / numOfSampledElements;
+            if (reductionRatio < minReductionRatio) {
+                LOG.debug(
+                        "Pass through the next {} rows, as the reduction ratio {} of the bundles is below {}.",
+                        passThroughElements,
+                        reductionRatio,
+                        minReductionRatio);
+                passThrough = true;
+            }
+            numOfSampledElements = 0;
+            numOfSampledKeys = 0;
+        }
+    }
+
+    @Override
+    public void processWatermark(Watermark mark) throws Exception {
+        finishBundle();
+        super.processWatermark(mark);
+    }
+
+    @Override
+    public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+        finishBundle();
+    }
+
+    @Override
+    public void finish() throws Exception {
+        finishBundle();
+        super.finish();
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        if (function != null) {
+            function.close();
+        }
+        if (bundle != null) {
+            bundle.free();
+        }
+    }
+
+    /** Compute memory size from memory faction. */
+    private long computeMemorySize() {
+        final Environment environment = getContainingTask().getEnvironment();
+        return environment
+                .getMemoryManager()
+                .computeMemorySize(
+                        getOperatorConfig()
+                                .getManagedMemoryFractionOperatorUseCaseOfSlot(
+                                        ManagedMemoryUseCase.OPERATOR,
+                                        environment.getTaskManagerInfo().getConfiguration(),
+                                        environment.getUserCodeClassLoader().asClassLoader()));
+    }
+}
@@ -24,11 +24,13 @@ import org.apache.flink.table.runtime.operators.aggregate.window.buffers.Records
 import org.apache.flink.table.runtime.operators.aggregate.window.buffers.WindowBuffer;
 import org.apache.flink.table.runtime.operators.aggregate.window.combines.AggCombiner;
 import org.apache.flink.table.runtime.operators.aggregate.window.combines.GlobalAggCombiner;
+import org.apache.flink.table.runtime.operators.aggregate.window.processors.MultiWindowAggProcessor;
 import org.apache.flink.table.runtime.operators.aggregate.window.processors.SliceSharedWindowAggProcessor;
 import org.apache.flink.table.runtime.operators.aggregate.window.processors.SliceUnsharedWindowAggProcessor;
 import org.apache.flink.table.runtime.operators.window.combines.RecordsCombiner;
 import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigner;
 import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigners.HoppingSliceAssigner;
+import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigners.MultiWindowSliceAssigner;
 import org.apache.flink.table.runtime.operators.window.slicing.SliceSharedAssigner;
 import org.apache.flink.table.runtime.operators.window.slicing.SliceUnsharedAssigner;
 import org.apache.flink.table.runtime.operators.window.slicing.SlicingWindowOperator;
@@ -115,7 +117,8 @@ public class SlicingWindowAggOperatorBuilder {
     /**
      * Specify the index position of the COUNT(*) value in the accumulator buffer. This is only
      * required for Hopping windows which uses this to determine whether the window is empty and
-     * then decide whether to register timer for the next window.
+     * then decide whether to register timer for the next window. Multiple windows use it, if
+     * present, to skip windows of which all elements have been retracted.
      *
      * @see HoppingSliceAssigner#nextTriggerWindow(long, Supplier)
      */
@@ -146,7 +149,16 @@ public class SlicingWindowAggOperatorBuilder {
                 new RecordsWindowBuffer.Factory(keySerializer, inputSerializer, combinerFactory);
 
         final SlicingWindowProcessor<Long> windowProcessor;
-        if (assigner instanceof SliceSharedAssigner) {
+        if (assigner instanceof MultiWindowSliceAssigner) {
+            windowProcessor =
+                    new MultiWindowAggProcessor(
+                            generatedAggregateFunction,
+                            bufferFactory,
+                            (MultiWindowSliceAssigner) assigner,
+                            accSerializer,
+                            indexOfCountStart,
+                            shiftTimeZone);
+        } else if (assigner instanceof SliceSharedAssigner) {
             windowProcessor =
                     new SliceSharedWindowAggProcessor(
                             generatedAggregateFunction,
@@ -165,7 +177,7 @@ public class SlicingWindowAggOperatorBuilder {
                             shiftTimeZone);
         } else {
             throw new IllegalArgumentException(
-                    "assigner must be instance of SliceUnsharedAssigner or SliceSharedAssigner.");
+                    "assigner must be instance of SliceUnsharedAssigner, SliceSharedAssigner or MultiWindowSliceAssigner.");
         }
         return new SlicingWindowOperator<>(windowProcessor);
     }
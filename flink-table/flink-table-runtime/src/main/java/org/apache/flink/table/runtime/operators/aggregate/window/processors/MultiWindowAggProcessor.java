@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.table.runtime.operators.aggregate.window.processors;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.data.utils.JoinedRowData;
+import org.apache.flink.table.runtime.generated.GeneratedNamespaceAggsHandleFunction;
+import org.apache.flink.table.runtime.operators.aggregate.window.buffers.WindowBuffer;
+import org.apache.flink.table.runtime.operators.window.slicing.SliceAssigners.MultiWindowSliceAssigner;
+
+import java.time.ZoneId;
+
+import static org.apache.flink.table.runtime.util.TimeWindowUtil.isWindowFired;
+
+/**
+ * An window aggregate processor implementation which works for {@link MultiWindowSliceAssigner},
+ * i.e. several tumbling and hopping window aggregations over the same input and keys, which share
+ * one copy of the slice state. Every window is merged from the slices in memory when it is fired.
+ *
+ * <p>The emitted rows contain the key, the aggregate values and the window start, window end and
+ * the index of the window size, which identifies the window aggregation the row belongs to.
+ */
+public final class MultiWindowAggProcessor extends AbstractWindowAggProcessor {
+    private static final long serialVersionUID = 1L;
+
+    private final MultiWindowSliceAssigner multiWindowAssigner;
+    private final int indexOfCountStar;
+
+    private transient GenericRowData reuseWindowProperties;
+    private transient JoinedRowData reuseAggResult;
+
+    public MultiWindowAggProcessor(
+            GeneratedNamespaceAggsHandleFunction<Long> genAggsHandler,
+            WindowBuffer.Factory bufferFactory,
+            MultiWindowSliceAssigner sliceAssigner,
+            TypeSerializer<RowData> accSerializer,
+            int indexOfCountStar,
+            ZoneId shiftTimeZone) {
+        super(genAggsHandler, bufferFactory, sliceAssigner, accSerializer, shiftTimeZone);
+        this.multiWindowAssigner = sliceAssigner;
+        this.indexOfCountStar = indexOfCountStar;
+    }
+
+    @Override
+    public void open(Context<Long> context) throws Exception {
+        super.open(context);
+        this.reuseWindowProperties = new GenericRowData(3);
+        this.reuseAggResult = new JoinedRowData();
+    }
+
+    @Override
+    public boolean processElement(RowData key, RowData element) throws Exception {
+        boolean isDropped = super.processElement(key, element);
+        if (!isDropped && isEventTime) {
+            long sliceEnd = multiWindowAssigner.assignSliceEnd(element, clockService);
+            if (isWindowFired(sliceEnd, currentProgress, shiftTimeZone)) {
+                // the timer of the late slice has been fired, but some windows of it have not
+                registerWindowTimers(sliceEnd, false);
+            }
+        }
+        return isDropped;
+    }
+
+    @Override
+    protected long sliceStateMergeTarget(long sliceToMerge) {
+        // the slices are merged into the windows in memory
+        return sliceToMerge;
+    }
+
+    @Override
+    public void fireWindow(Long sliceEnd) throws Exception {
+        for (int window = 0; window < multiWindowAssigner.getNumWindows(); window++) {
+            if (multiWindowAssigner.isWindowEnd(window, sliceEnd)) {
+                fireWindow(window, sliceEnd);
+            }
+        }
+        if (windowState.value(sliceEnd) != null) {
+            // the slice is part of following windows of all sizes, which are triggered by the
+            // timers of their window ends, as their slices may not receive any elements
+            registerWindowTimers(sliceEnd, true);
+        }
+    }
+
+    private void fireWindow(int window, long windowEnd) throws Exception {
+        long windowStart = multiWindowAssigner.getWindowStart(window, windowEnd);
+        // null namespace means use heap data views, instead of state data views
+        aggregator.setAccumulators(null, aggregator.createAccumulators());
+        boolean isEmpty = true;
+        for (long slice = windowStart + windowInterval;
+                slice <= windowEnd;
+                slice += windowInterval) {
+            RowData sliceAcc = windowState.value(slice);
+            if (sliceAcc != null) {
+                aggregator.merge(slice, sliceAcc);
+                isEmpty = false;
+            }
+        }
+        if (isEmpty
+                || (indexOfCountStar >= 0
+                        && aggregator.getAccumulators().getLong(indexOfCountStar) == 0)) {
+            // the window timer may have been registered by the slices of other windows
+            return;
+        }
+
+        RowData aggResult = aggregator.getValue(windowEnd);
+        reuseWindowProperties.setField(0, TimestampData.fromEpochMillis(windowStart));
+        reuseWindowProperties.setField(1, TimestampData.fromEpochMillis(windowEnd));
+        reuseWindowProperties.setField(2, window);
+        collect(reuseAggResult.replace(aggResult, reuseWindowProperties));
+    }
+
+    /**
+     * Registers the timers of the unfired windows of all sizes which contain the slice.
+     *
+     * @param isSliceFired whether the timer of the slice is being fired. The windows which end
+     *     after the slice have not been fired then, even if the progress has already passed their
+     *     ends, as the timers are fired in order of their timestamps, e.g. when the watermark jumps
+     *     over several window ends at once.
+     */
+    private void registerWindowTimers(long sliceEnd, boolean isSliceFired) {
+        for (int window = 0; window < multiWindowAssigner.getNumWindows(); window++) {
+            long lastWindowEnd = multiWindowAssigner.getLastWindowEnd(window, sliceEnd);
+            for (long windowEnd = multiWindowAssigner.getFirstWindowEnd(window, sliceEnd);
+                    windowEnd <= lastWindowEnd;
+                    windowEnd += multiWindowAssigner.getWindowSlide(window)) {
+                boolean isFired =
+                        isSliceFired
+                                ? windowEnd <= sliceEnd
+                                : isWindowFired(windowEnd, currentProgress, shiftTimeZone);
+                if (!isFired) {
+                    if (isEventTime) {
+                        windowTimerService.registerEventTimeWindowTimer(windowEnd);
+                    } else {
+                        windowTimerService.registerProcessingTimeWindowTimer(windowEnd);
+                    }
+                }
+            }
+        }
+    }
+}
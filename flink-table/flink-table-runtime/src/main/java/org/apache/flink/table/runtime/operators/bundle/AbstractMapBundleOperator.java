@@ -34,6 +34,7 @@ import org.apache.flink.util.Collector;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
@@ -43,7 +44,11 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * need to access state every key we have, but not every element we processed.
  *
  * <p>NOTES: if all elements we processed have different keys, such operator will only increase
- * memory footprint, and will not have any performance improvement.
+ * memory footprint, and will not have any performance improvement. If a minimum reduction ratio is
+ * configured, the operator therefore measures the fraction of elements which are combined with
+ * another element of the same key in the bundles, and passes elements through one by one while the
+ * ratio is below the minimum. It probes the bundling again after a number of passed through
+ * elements.
  *
  * @param <K> The type of the key in the bundle map
  * @param <V> The type of the value in the bundle map
@@ -55,6 +60,9 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
 
     private static final long serialVersionUID = 5081841938324118594L;
 
+    /** The number of elements from which on the reduction ratio is measured. */
+    public static final int REDUCTION_RATIO_SAMPLE_SIZE = 1000;
+
     /** The map in heap to store elements. */
     private transient Map<K, V> bundle;
 
@@ -69,11 +77,46 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
 
     private transient int numOfElements = 0;
 
+    /** The minimum reduction ratio to keep bundling elements, or 0 to always bundle elements. */
+    private final double minReductionRatio;
+
+    /** The number of elements to pass through before the bundling is probed again. */
+    private final long passThroughElements;
+
+    /** Whether elements are passed through instead of being bundled. */
+    private transient boolean passThrough;
+
+    /** The last measured fraction of elements which are combined in the bundles. */
+    private transient double reductionRatio;
+
+    private transient long numOfSampledElements;
+    private transient long numOfSampledKeys;
+    private transient long numOfPassedThroughElements;
+
+    /** The map of a single passed through element, to finish it with the bundle function. */
+    private transient Map<K, V> passThroughBundle;
+
     AbstractMapBundleOperator(
             MapBundleFunction<K, V, IN, OUT> function, BundleTrigger<IN> bundleTrigger) {
+        this(function, bundleTrigger, 0.0, 0L);
+    }
+
+    AbstractMapBundleOperator(
+            MapBundleFunction<K, V, IN, OUT> function,
+            BundleTrigger<IN> bundleTrigger,
+            double minReductionRatio,
+            long passThroughElements) {
+        checkArgument(
+                minReductionRatio >= 0.0 && minReductionRatio <= 1.0,
+                "The minimum reduction ratio must be between 0 and 1.");
+        checkArgument(
+                minReductionRatio == 0.0 || passThroughElements > 0,
+                "The number of elements to pass through must be positive.");
         chainingStrategy = ChainingStrategy.ALWAYS;
         this.function = checkNotNull(function, "function is null");
         this.bundleTrigger = checkNotNull(bundleTrigger, "bundleTrigger is null");
+        this.minReductionRatio = minReductionRatio;
+        this.passThroughElements = passThroughElements;
     }
 
     @Override
@@ -84,6 +127,12 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
         this.numOfElements = 0;
         this.collector = new StreamRecordCollector<>(output);
         this.bundle = new HashMap<>();
+        this.passThroughBundle = new HashMap<>();
+        this.passThrough = false;
+        this.reductionRatio = 0.0;
+        this.numOfSampledElements = 0;
+        this.numOfSampledKeys = 0;
+        this.numOfPassedThroughElements = 0;
 
         bundleTrigger.registerCallback(this);
         // reset trigger
@@ -107,6 +156,14 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
                                         return 1.0 * numOfElements / numOfKeys;
                                     }
                                 });
+        if (minReductionRatio > 0.0) {
+            getRuntimeContext()
+                    .getMetricGroup()
+                    .gauge("bundleReductionRatio", (Gauge<Double>) () -> reductionRatio);
+            getRuntimeContext()
+                    .getMetricGroup()
+                    .gauge("bundlePassThrough", (Gauge<Integer>) () -> passThrough ? 1 : 0);
+        }
     }
 
     @Override
@@ -114,6 +171,10 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
         // get the key and value for the map bundle
         final IN input = element.getValue();
         final K bundleKey = getKey(input);
+        if (passThrough) {
+            passThrough(bundleKey, input);
+            return;
+        }
         final V bundleValue = bundle.get(bundleKey);
 
         // get a new value after adding this element to bundle
@@ -126,12 +187,27 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
         bundleTrigger.onElement(input);
     }
 
+    private void passThrough(K key, IN input) throws Exception {
+        passThroughBundle.put(key, function.addInput(null, input));
+        function.finishBundle(passThroughBundle, collector);
+        passThroughBundle.clear();
+
+        if (++numOfPassedThroughElements >= passThroughElements) {
+            // probe whether the elements can be reduced again
+            passThrough = false;
+            numOfPassedThroughElements = 0;
+        }
+    }
+
     /** Get the key for current processing element, which will be used as the map bundle's key. */
     protected abstract K getKey(final IN input) throws Exception;
 
     @Override
     public void finishBundle() throws Exception {
         if (bundle != null && !bundle.isEmpty()) {
+            if (minReductionRatio > 0.0) {
+                updateReductionRatio(numOfElements, bundle.size());
+            }
             numOfElements = 0;
             function.finishBundle(bundle, collector);
             bundle.clear();
@@ -139,6 +215,24 @@ public abstract class AbstractMapBundleOperator<K, V, IN, OUT> extends AbstractS
         bundleTrigger.reset();
     }
 
+    private void updateReductionRatio(int numOfBundleElements, int numOfBundleKeys) {
+        numOfSampledElements += numOfBundleElements;
+        numOfSampledKeys += numOfBundleKeys;
+        if (numOfSampledElements >= REDUCTION_RATIO_SAMPLE_SIZE) {
+            reductionRatio = 1.0 - 1.0 * numOfSampledKeys / numOfSampledElements;
+            if (reductionRatio < minReductionRatio) {
+                LOG.debug(
+                        "Pass through the next {} elements, as the reduction ratio {} of the bundles is below {}.",
+                        passThroughElements,
+                        reductionRatio,
+                        minReductionRatio);
+                passThrough = true;
+            }
+            numOfSampledElements = 0;
+            numOfSampledKeys = 0;
+        }
+    }
+
     @Override
     public void processWatermark(Watermark mark) throws Exception {
         finishBundle();
@@ -40,6 +40,21 @@ public class MapBundleOperator<K, V, IN, OUT> extends AbstractMapBundleOperator<
         this.keySelector = keySelector;
     }
 
+    /**
+     * Creates a {@link MapBundleOperator} which passes elements through one by one while less than
+     * the given fraction of the elements is combined with another element of the same key in the
+     * bundles, and probes the bundling again after the given number of passed through elements.
+     */
+    public MapBundleOperator(
+            MapBundleFunction<K, V, IN, OUT> function,
+            BundleTrigger<IN> bundleTrigger,
+            KeySelector<IN, K> keySelector,
+            double minReductionRatio,
+            long passThroughElements) {
+        super(function, bundleTrigger, minReductionRatio, passThroughElements);
+        this.keySelector = keySelector;
+    }
+
     @Override
     protected K getKey(IN input) throws Exception {
         return this.keySelector.getKey(input);
@@ -26,6 +26,7 @@ import org.apache.flink.streaming.api.functions.async.ResultFuture;
 import org.apache.flink.streaming.api.functions.async.RichAsyncFunction;
 import org.apache.flink.table.data.GenericRowData;
 import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
 import org.apache.flink.table.data.conversion.DataStructureConverter;
 import org.apache.flink.table.data.utils.JoinedRowData;
 import org.apache.flink.table.runtime.collector.TableFunctionResultFuture;
@@ -33,6 +34,11 @@ import org.apache.flink.table.runtime.generated.GeneratedFunction;
 import org.apache.flink.table.runtime.generated.GeneratedResultFuture;
 import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -44,13 +50,17 @@ import java.util.concurrent.BlockingQueue;
 public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
     private static final long serialVersionUID = -6664660022391632480L;
 
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLookupJoinRunner.class);
+
     private final GeneratedFunction<AsyncFunction<RowData, Object>> generatedFetcher;
     private final DataStructureConverter<RowData, Object> fetcherConverter;
     private final GeneratedResultFuture<TableFunctionResultFuture<RowData>> generatedResultFuture;
     private final boolean isLeftOuterJoin;
     private final int asyncBufferCapacity;
+    @Nullable private final LookupCacheSpec cacheSpec;
 
     private transient AsyncFunction<RowData, Object> fetcher;
+    private transient LookupCacheAccessor cache;
 
     protected final RowDataSerializer rightRowSerializer;
 
@@ -73,12 +83,31 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
             RowDataSerializer rightRowSerializer,
             boolean isLeftOuterJoin,
             int asyncBufferCapacity) {
+        this(
+                generatedFetcher,
+                fetcherConverter,
+                generatedResultFuture,
+                rightRowSerializer,
+                isLeftOuterJoin,
+                asyncBufferCapacity,
+                null);
+    }
+
+    public AsyncLookupJoinRunner(
+            GeneratedFunction<AsyncFunction<RowData, Object>> generatedFetcher,
+            DataStructureConverter<RowData, Object> fetcherConverter,
+            GeneratedResultFuture<TableFunctionResultFuture<RowData>> generatedResultFuture,
+            RowDataSerializer rightRowSerializer,
+            boolean isLeftOuterJoin,
+            int asyncBufferCapacity,
+            @Nullable LookupCacheSpec cacheSpec) {
         this.generatedFetcher = generatedFetcher;
         this.fetcherConverter = fetcherConverter;
         this.generatedResultFuture = generatedResultFuture;
         this.rightRowSerializer = rightRowSerializer;
         this.isLeftOuterJoin = isLeftOuterJoin;
         this.asyncBufferCapacity = asyncBufferCapacity;
+        this.cacheSpec = cacheSpec;
     }
 
     @Override
@@ -93,6 +122,10 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
 
         fetcherConverter.open(getRuntimeContext().getUserCodeClassLoader());
 
+        if (cacheSpec != null) {
+            this.cache = LookupCacheAccessor.open(cacheSpec, getRuntimeContext());
+        }
+
         // asyncBufferCapacity + 1 as the queue size in order to avoid
         // blocking on the queue when taking a collector.
         this.resultFutureBuffer = new ArrayBlockingQueue<>(asyncBufferCapacity + 1);
@@ -104,7 +137,8 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
                             createFetcherResultFuture(parameters),
                             fetcherConverter,
                             isLeftOuterJoin,
-                            rightRowSerializer.getArity());
+                            rightRowSerializer.getArity(),
+                            cache);
             // add will throw exception immediately if the queue is full which should never happen
             resultFutureBuffer.add(rf);
             allResultFutures.add(rf);
@@ -117,6 +151,21 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
         // the input row is copied when object reuse in AsyncWaitOperator
         outResultFuture.reset(input, resultFuture);
 
+        if (cache != null) {
+            BinaryRowData key = cache.getKey(input);
+            if (key != null) {
+                Collection<RowData> cachedRows = cache.get(key);
+                if (cachedRows != null) {
+                    if (cache.tryStartRefresh(key)) {
+                        fetcher.asyncInvoke(input, new RefreshResultFuture(key.copy()));
+                    }
+                    outResultFuture.completeInternal(cachedRows);
+                    return;
+                }
+                outResultFuture.setCacheKey(key.copy(), System.nanoTime());
+            }
+        }
+
         // fetcher has copied the input field when object reuse is enabled
         fetcher.asyncInvoke(input, outResultFuture);
     }
@@ -141,6 +190,9 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
                 rf.close();
             }
         }
+        if (cache != null) {
+            cache.close();
+        }
     }
 
     @VisibleForTesting
@@ -148,6 +200,51 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
         return allResultFutures;
     }
 
+    private static List<RowData> copyForCache(
+            @Nullable Collection<RowData> rows, RowDataSerializer cacheRowSerializer) {
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        List<RowData> copies = new ArrayList<>(rows.size());
+        for (RowData row : rows) {
+            copies.add(cacheRowSerializer.toBinaryRow(row).copy());
+        }
+        return copies;
+    }
+
+    /**
+     * The {@link RefreshResultFuture} receives the result of a lookup which refreshes a cached
+     * result ahead of its expiration, the result is only put into the cache.
+     */
+    private final class RefreshResultFuture implements ResultFuture<Object> {
+
+        private final BinaryRowData cacheKey;
+
+        private final long lookupStartNanos;
+
+        private RefreshResultFuture(BinaryRowData cacheKey) {
+            this.cacheKey = cacheKey;
+            this.lookupStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void complete(Collection<Object> result) {
+            List<RowData> rows = new ArrayList<>();
+            if (result != null) {
+                for (Object element : result) {
+                    rows.add(fetcherConverter.toInternal(element));
+                }
+            }
+            cache.put(cacheKey, copyForCache(rows, cache.createRowSerializer()), lookupStartNanos);
+        }
+
+        @Override
+        public void completeExceptionally(Throwable error) {
+            LOG.debug("Failed to refresh the cached lookup result of {}.", cacheKey, error);
+            cache.abortRefresh(cacheKey);
+        }
+    }
+
     /**
      * The {@link JoinedRowResultFuture} is used to combine left {@link RowData} and right {@link
      * RowData} into {@link JoinedRowData}.
@@ -175,31 +272,49 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
         private final DelegateResultFuture delegate;
         private final GenericRowData nullRow;
 
+        @Nullable private final LookupCacheAccessor cache;
+        @Nullable private final RowDataSerializer cacheRowSerializer;
+
         private RowData leftRow;
         private ResultFuture<RowData> realOutput;
 
+        /** The key to cache the result of the lookup, or null. */
+        @Nullable private BinaryRowData cacheKey;
+
+        private long lookupStartNanos;
+
         private JoinedRowResultFuture(
                 BlockingQueue<JoinedRowResultFuture> resultFutureBuffer,
                 TableFunctionResultFuture<RowData> joinConditionResultFuture,
                 DataStructureConverter<RowData, Object> resultConverter,
                 boolean isLeftOuterJoin,
-                int rightArity) {
+                int rightArity,
+                @Nullable LookupCacheAccessor cache) {
             this.resultFutureBuffer = resultFutureBuffer;
             this.joinConditionResultFuture = joinConditionResultFuture;
             this.resultConverter = resultConverter;
             this.isLeftOuterJoin = isLeftOuterJoin;
             this.delegate = new DelegateResultFuture();
             this.nullRow = new GenericRowData(rightArity);
+            this.cache = cache;
+            this.cacheRowSerializer = cache == null ? null : cache.createRowSerializer();
         }
 
         public void reset(RowData row, ResultFuture<RowData> realOutput) {
             this.realOutput = realOutput;
             this.leftRow = row;
+            this.cacheKey = null;
             joinConditionResultFuture.setInput(row);
             joinConditionResultFuture.setResultFuture(delegate);
             delegate.reset();
         }
 
+        /** Caches the result of the following lookup for the given key. */
+        public void setCacheKey(BinaryRowData cacheKey, long lookupStartNanos) {
+            this.cacheKey = cacheKey;
+            this.lookupStartNanos = lookupStartNanos;
+        }
+
         @Override
         @SuppressWarnings({"unchecked", "rawtypes"})
         public void complete(Collection<Object> result) {
@@ -213,6 +328,18 @@ public class AsyncLookupJoinRunner extends RichAsyncFunction<RowData, RowData> {
                 }
             }
 
+            if (cacheKey != null) {
+                cache.put(
+                        cacheKey,
+                        copyForCache(rowDataCollection, cacheRowSerializer),
+                        lookupStartNanos);
+            }
+
+            completeInternal(rowDataCollection);
+        }
+
+        /** Completes the lookup with the rows of the table, which are already converted. */
+        public void completeInternal(Collection<RowData> rowDataCollection) {
             // call condition collector first,
             // the filtered result will be routed to the delegateCollector
             try {
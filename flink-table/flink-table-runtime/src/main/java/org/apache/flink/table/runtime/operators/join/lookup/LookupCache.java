@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.table.api.config.ExecutionConfigOptions.LookupCacheEviction;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.functions.UserDefinedFunction;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.util.clock.Clock;
+import org.apache.flink.util.clock.SystemClock;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A cache of lookup join results, shared by all lookup joins of a job in a TaskManager which have
+ * the same {@link LookupCacheSpec#getIdentifier() identifier}. The cache maps the lookup keys to
+ * the rows returned by the lookup function for these keys, both as {@link BinaryRowData}.
+ *
+ * <p>The size of the cache is limited by the binary size of keys and rows, plus an estimated
+ * overhead per entry. Cached results expire after the configured time to live and are evicted in
+ * {@link LookupCacheEviction LRU or LFU} order when the cache is full. Cached results which are
+ * older than the configured refresh time are refreshed ahead of their expiration by the lookup
+ * joins, see {@link #tryStartRefresh(RowData)}.
+ *
+ * <p>If the lookup function is a {@link LookupSnapshotLoader}, the cache can be preloaded with a
+ * snapshot of the whole table and reloaded periodically. If the table fits into the cache, the
+ * cache is <i>complete</i>: keys which are not cached have no rows and are never looked up. If it
+ * does not fit and the lookup keys are unique, the cache is preloaded with a part of the table.
+ *
+ * <p>The cache is partitioned into independently locked segments to reduce the contention between
+ * the lookup joins. This class is thread-safe.
+ */
+public final class LookupCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LookupCache.class);
+
+    /** The number of segments, must be a power of 2. */
+    private static final int NUM_SEGMENTS = 16;
+
+    /** The estimated size of the objects of an entry besides the binary keys and rows. */
+    @VisibleForTesting static final long ENTRY_OVERHEAD_IN_BYTES = 128;
+
+    /** All caches of this JVM by identifier. */
+    @GuardedBy("SHARED_CACHES")
+    private static final Map<String, LookupCache> SHARED_CACHES = new HashMap<>();
+
+    private final String identifier;
+
+    private final LookupCacheSpec spec;
+
+    private final Clock clock;
+
+    /** The current segments, replaced by preloading. */
+    private volatile Segment[] segments;
+
+    @GuardedBy("SHARED_CACHES")
+    private int referenceCount;
+
+    @GuardedBy("this")
+    @Nullable
+    private UserDefinedFunction snapshotLoader;
+
+    @GuardedBy("this")
+    @Nullable
+    private ScheduledExecutorService reloadExecutor;
+
+    @GuardedBy("this")
+    private boolean closed;
+
+    @VisibleForTesting
+    LookupCache(String identifier, LookupCacheSpec spec, Clock clock) {
+        this.identifier = checkNotNull(identifier);
+        this.spec = checkNotNull(spec);
+        this.clock = checkNotNull(clock);
+        this.segments = createSegments(false);
+    }
+
+    /**
+     * Returns the cache with the given identifier, creating it if needed. Every acquired cache has
+     * to be {@link #release() released}.
+     */
+    public static LookupCache acquire(String identifier, LookupCacheSpec spec) {
+        synchronized (SHARED_CACHES) {
+            LookupCache cache =
+                    SHARED_CACHES.computeIfAbsent(
+                            identifier, id -> new LookupCache(id, spec, SystemClock.getInstance()));
+            cache.referenceCount++;
+            return cache;
+        }
+    }
+
+    /** Releases the cache, which is closed after it has been released by all lookup joins. */
+    public void release() throws Exception {
+        synchronized (SHARED_CACHES) {
+            if (--referenceCount > 0) {
+                return;
+            }
+            SHARED_CACHES.remove(identifier);
+        }
+        close();
+    }
+
+    // ------------------------------------------------------------------------
+    //  Access
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns the cached rows of the given lookup key, or null if the key has to be looked up. The
+     * returned collection must not be modified.
+     */
+    @Nullable
+    public Collection<RowData> get(RowData key) {
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            return segment.get(key, clock.absoluteTimeMillis());
+        }
+    }
+
+    /**
+     * Caches the rows returned by the lookup function for the given key, replacing a previously
+     * cached result. The key and the rows must be {@link BinaryRowData}s owned by the cache.
+     */
+    public void put(BinaryRowData key, List<RowData> rows) {
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            segment.put(key, rows, clock.absoluteTimeMillis());
+        }
+    }
+
+    /**
+     * Checks whether the cached result of the given key should be refreshed ahead of its
+     * expiration. Returns true only once per cached result, the caller then has to look up the key
+     * and {@link #put} the result, or {@link #abortRefresh} if the lookup fails.
+     */
+    public boolean tryStartRefresh(RowData key) {
+        if (spec.getRefreshAfterMillis() <= 0) {
+            return false;
+        }
+
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (segment.isComplete
+                    || entry == null
+                    || entry.isRefreshing
+                    || clock.absoluteTimeMillis() - entry.loadTime < spec.getRefreshAfterMillis()) {
+                return false;
+            }
+            entry.isRefreshing = true;
+            return true;
+        }
+    }
+
+    /** Allows to refresh the cached result of the key again after a failed lookup. */
+    public void abortRefresh(RowData key) {
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            if (entry != null) {
+                entry.isRefreshing = false;
+            }
+        }
+    }
+
+    public long getSizeInBytes() {
+        long sizeInBytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                sizeInBytes += segment.sizeInBytes;
+            }
+        }
+        return sizeInBytes;
+    }
+
+    public int getNumEntries() {
+        int numEntries = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                numEntries += segment.entries.size();
+            }
+        }
+        return numEntries;
+    }
+
+    @VisibleForTesting
+    boolean isComplete() {
+        return segments[0].isComplete;
+    }
+
+    private Segment getSegment(RowData key) {
+        Segment[] currentSegments = segments;
+        return currentSegments[getSegmentIndex(key)];
+    }
+
+    private static int getSegmentIndex(RowData key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (NUM_SEGMENTS - 1);
+    }
+
+    private Segment[] createSegments(boolean isComplete) {
+        Segment[] newSegments = new Segment[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            newSegments[i] = new Segment(isComplete);
+        }
+        return newSegments;
+    }
+
+    private static long getSizeInBytes(BinaryRowData key, List<RowData> rows) {
+        long sizeInBytes = ENTRY_OVERHEAD_IN_BYTES + key.getSizeInBytes();
+        for (RowData row : rows) {
+            sizeInBytes += ((BinaryRowData) row).getSizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    // ------------------------------------------------------------------------
+    //  Preloading
+    // ------------------------------------------------------------------------
+
+    /**
+     * Preloads the cache with a snapshot of the table and schedules the periodic reloading, if this
+     * has not been done yet. Blocks until the first snapshot has been loaded.
+     */
+    public void preload(FunctionContext context) throws Exception {
+        UserDefinedFunction loader = spec.getSnapshotLoader();
+        checkState(loader != null, "The lookup cache has no snapshot loader.");
+
+        synchronized (this) {
+            if (closed || snapshotLoader != null) {
+                return;
+            }
+
+            loader.open(context);
+            snapshotLoader = loader;
+            reload((LookupSnapshotLoader) loader);
+
+            long interval = spec.getReloadIntervalMillis();
+            reloadExecutor =
+                    Executors.newSingleThreadScheduledExecutor(
+                            new ExecutorThreadFactory("lookup-cache-reload"));
+            reloadExecutor.scheduleWithFixedDelay(
+                    () -> {
+                        try {
+                            reload((LookupSnapshotLoader) loader);
+                        } catch (Throwable t) {
+                            LOG.warn(
+                                    "Failed to reload the lookup cache {}, keeping the cached rows.",
+                                    identifier,
+                                    t);
+                        }
+                    },
+                    interval,
+                    interval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    void reload(LookupSnapshotLoader loader) throws Exception {
+        long startTime = clock.relativeTimeMillis();
+        RowDataSerializer rowSerializer = new RowDataSerializer(spec.getTableRowType());
+        LookupKeyProjection keyProjection =
+                new LookupKeyProjection(spec.getTableKeyFields(), spec.getKeyType());
+
+        Map<BinaryRowData, List<RowData>> rowsByKey = new HashMap<>();
+        long sizeInBytes = 0;
+        boolean fits = true;
+        for (RowData row : loader.loadAll()) {
+            BinaryRowData key = keyProjection.apply(row);
+            if (key == null) {
+                // rows with null keys are never joined
+                continue;
+            }
+            if (sizeInBytes > spec.getMaxSizeInBytes()) {
+                fits = false;
+                break;
+            }
+
+            BinaryRowData binaryRow = rowSerializer.toBinaryRow(row).copy();
+            List<RowData> rows = rowsByKey.get(key);
+            if (rows == null) {
+                key = key.copy();
+                rows = new ArrayList<>(1);
+                rowsByKey.put(key, rows);
+                sizeInBytes += ENTRY_OVERHEAD_IN_BYTES + key.getSizeInBytes();
+            }
+            rows.add(binaryRow);
+            sizeInBytes += binaryRow.getSizeInBytes();
+        }
+        fits &= sizeInBytes <= spec.getMaxSizeInBytes();
+
+        if (!fits && !spec.hasUniqueKeys()) {
+            LOG.warn(
+                    "The table of lookup cache {} is larger than the cache size of {} bytes and "
+                            + "cannot be preloaded, because a lookup key may have multiple rows.",
+                    identifier,
+                    spec.getMaxSizeInBytes());
+            return;
+        }
+
+        long now = clock.absoluteTimeMillis();
+        Segment[] newSegments = createSegments(fits);
+        for (Map.Entry<BinaryRowData, List<RowData>> entry : rowsByKey.entrySet()) {
+            newSegments[getSegmentIndex(entry.getKey())].put(entry.getKey(), entry.getValue(), now);
+        }
+        segments = newSegments;
+
+        LOG.info(
+                "{} lookup cache {} with {} keys and {} bytes in {} ms.",
+                fits ? "Loaded" : "Partially preloaded",
+                identifier,
+                rowsByKey.size(),
+                sizeInBytes,
+                clock.relativeTimeMillis() - startTime);
+    }
+
+    private void close() throws Exception {
+        ScheduledExecutorService executorToShutdown;
+        UserDefinedFunction loaderToClose;
+        synchronized (this) {
+            closed = true;
+            executorToShutdown = reloadExecutor;
+            loaderToClose = snapshotLoader;
+        }
+
+        if (executorToShutdown != null) {
+            executorToShutdown.shutdownNow();
+            if (!executorToShutdown.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Reloading of the lookup cache {} did not terminate.", identifier);
+            }
+        }
+        if (loaderToClose != null) {
+            loaderToClose.close();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** A part of the cache, all accesses are synchronized on the segment. */
+    private final class Segment {
+
+        private final Map<RowData, Entry> entries = new HashMap<>();
+
+        /** All entries in eviction order, the first entry is evicted first. */
+        private final TreeSet<Entry> evictionOrder;
+
+        /** Whether the segment holds all rows of the table for its keys. */
+        private final boolean isComplete;
+
+        private final long maxSizeInBytes;
+
+        private long sizeInBytes;
+
+        private long accessCounter;
+
+        private Segment(boolean isComplete) {
+            this.isComplete = isComplete;
+            // a complete segment is never evicted, the table has been checked to fit into the cache
+            this.maxSizeInBytes =
+                    isComplete ? Long.MAX_VALUE : spec.getMaxSizeInBytes() / NUM_SEGMENTS;
+
+            Comparator<Entry> recency = Comparator.comparingLong(entry -> entry.lastAccess);
+            this.evictionOrder =
+                    new TreeSet<>(
+                            spec.getEviction() == LookupCacheEviction.LFU
+                                    ? Comparator.<Entry>comparingLong(entry -> entry.frequency)
+                                            .thenComparing(recency)
+                                    : recency);
+        }
+
+        @Nullable
+        private Collection<RowData> get(RowData key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return isComplete ? Collections.emptyList() : null;
+            }
+            if (!isComplete && now - entry.loadTime >= spec.getTtlMillis()) {
+                remove(entry);
+                return null;
+            }
+
+            evictionOrder.remove(entry);
+            entry.frequency++;
+            entry.lastAccess = ++accessCounter;
+            evictionOrder.add(entry);
+            return entry.rows;
+        }
+
+        private void put(BinaryRowData key, List<RowData> rows, long now) {
+            Entry oldEntry = entries.get(key);
+            if (oldEntry != null) {
+                remove(oldEntry);
+            }
+
+            long entrySize = getSizeInBytes(key, rows);
+            if (entrySize > maxSizeInBytes) {
+                return;
+            }
+
+            Entry entry =
+                    new Entry(
+                            key,
+                            Collections.unmodifiableList(rows),
+                            entrySize,
+                            now,
+                            ++accessCounter);
+            entries.put(key, entry);
+            evictionOrder.add(entry);
+            sizeInBytes += entrySize;
+
+            // with LFU, a new entry may be evicted right away if all other entries are used more
+            while (sizeInBytes > maxSizeInBytes) {
+                remove(evictionOrder.first());
+            }
+        }
+
+        private void remove(Entry entry) {
+            entries.remove(entry.key);
+            evictionOrder.remove(entry);
+            sizeInBytes -= entry.sizeInBytes;
+        }
+    }
+
+    /** The cached rows of a key. */
+    private static final class Entry {
+
+        private final BinaryRowData key;
+
+        private final List<RowData> rows;
+
+        private final long sizeInBytes;
+
+        private final long loadTime;
+
+        private long frequency;
+
+        /** The access counter of the segment at the last access, unique within the segment. */
+        private long lastAccess;
+
+        private boolean isRefreshing;
+
+        private Entry(
+                BinaryRowData key,
+                List<RowData> rows,
+                long sizeInBytes,
+                long loadTime,
+                long lastAccess) {
+            this.key = key;
+            this.rows = rows;
+            this.sizeInBytes = sizeInBytes;
+            this.loadTime = loadTime;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The access of a lookup join runner to its shared {@link LookupCache}, which also maintains the
+ * cache metrics of the runner. Only {@link #put}, {@link #abortRefresh} and {@link
+ * #createRowSerializer()} may be called by other threads than the task thread.
+ */
+final class LookupCacheAccessor {
+
+    static final String HITS_METRIC_NAME = "lookupCacheHits";
+
+    static final String MISSES_METRIC_NAME = "lookupCacheMisses";
+
+    static final String LOAD_LATENCY_METRIC_NAME = "lookupCacheLoadLatency";
+
+    static final String SIZE_METRIC_NAME = "lookupCacheSizeInBytes";
+
+    static final String ENTRIES_METRIC_NAME = "lookupCacheEntries";
+
+    private static final int LOAD_LATENCY_WINDOW_SIZE = 128;
+
+    private final LookupCacheSpec spec;
+
+    private final LookupCache cache;
+
+    private final LookupKeyProjection keyProjection;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    /** The latency of lookups in milliseconds, updates are synchronized on the histogram. */
+    private final Histogram loadLatency;
+
+    private LookupCacheAccessor(LookupCacheSpec spec, LookupCache cache, MetricGroup metricGroup) {
+        this.spec = spec;
+        this.cache = cache;
+        this.keyProjection = new LookupKeyProjection(spec.getInputKeyFields(), spec.getKeyType());
+
+        this.hits = metricGroup.counter(HITS_METRIC_NAME);
+        this.misses = metricGroup.counter(MISSES_METRIC_NAME);
+        this.loadLatency =
+                metricGroup.histogram(
+                        LOAD_LATENCY_METRIC_NAME,
+                        new DescriptiveStatisticsHistogram(LOAD_LATENCY_WINDOW_SIZE));
+        metricGroup.gauge(SIZE_METRIC_NAME, (Gauge<Long>) cache::getSizeInBytes);
+        metricGroup.gauge(ENTRIES_METRIC_NAME, (Gauge<Integer>) cache::getNumEntries);
+    }
+
+    /**
+     * Acquires the cache of the given spec, which is shared by all lookup joins of the job in this
+     * TaskManager, and preloads it if needed.
+     */
+    static LookupCacheAccessor open(LookupCacheSpec spec, RuntimeContext context) throws Exception {
+        LookupCache cache =
+                LookupCache.acquire(context.getJobId() + "/" + spec.getIdentifier(), spec);
+        try {
+            if (spec.getSnapshotLoader() != null) {
+                cache.preload(new FunctionContext(context));
+            }
+            return new LookupCacheAccessor(spec, cache, context.getMetricGroup());
+        } catch (Throwable t) {
+            cache.release();
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the lookup key of the input row, or null if the row cannot use the cache. The key is
+     * reused by the next call.
+     */
+    @Nullable
+    BinaryRowData getKey(RowData input) {
+        return keyProjection.apply(input);
+    }
+
+    /** Returns the cached rows of the lookup key, or null if the key has to be looked up. */
+    @Nullable
+    Collection<RowData> get(RowData key) {
+        Collection<RowData> rows = cache.get(key);
+        if (rows == null) {
+            misses.inc();
+        } else {
+            hits.inc();
+        }
+        return rows;
+    }
+
+    /** See {@link LookupCache#tryStartRefresh(RowData)}. */
+    boolean tryStartRefresh(RowData key) {
+        return cache.tryStartRefresh(key);
+    }
+
+    void abortRefresh(RowData key) {
+        cache.abortRefresh(key);
+    }
+
+    /**
+     * Caches the looked up rows of the key.
+     *
+     * @param key the copied lookup key.
+     * @param rows the copied rows, see {@link #createRowSerializer()}.
+     * @param lookupStartNanos the {@link System#nanoTime()} when the lookup started.
+     */
+    void put(BinaryRowData key, List<RowData> rows, long lookupStartNanos) {
+        cache.put(key, rows);
+
+        long latencyMillis = (System.nanoTime() - lookupStartNanos) / 1_000_000;
+        synchronized (loadLatency) {
+            loadLatency.update(latencyMillis);
+        }
+    }
+
+    /**
+     * Creates a serializer to copy looked up rows into {@link BinaryRowData} for the cache. A
+     * serializer must only be used by a single thread.
+     */
+    RowDataSerializer createRowSerializer() {
+        return new RowDataSerializer(spec.getTableRowType());
+    }
+
+    void close() throws Exception {
+        cache.release();
+    }
+}
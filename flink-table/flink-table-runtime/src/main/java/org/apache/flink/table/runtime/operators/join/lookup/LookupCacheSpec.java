@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.table.api.config.ExecutionConfigOptions.LookupCacheEviction;
+import org.apache.flink.table.functions.UserDefinedFunction;
+import org.apache.flink.table.types.logical.RowType;
+
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The specification of the {@link LookupCache} of a lookup join, created by the planner.
+ *
+ * <p>All lookup joins of a job with the same identifier share the cache in a TaskManager, the
+ * identifier must therefore describe the table and the lookup keys, including the values of
+ * constant lookup keys.
+ */
+public class LookupCacheSpec implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String identifier;
+
+    /** The fields of the input rows which are the lookup keys, in order of the lookup keys. */
+    private final int[] inputKeyFields;
+
+    /** The fields of the table rows which are the lookup keys, in order of the lookup keys. */
+    private final int[] tableKeyFields;
+
+    /** The types of the lookup keys. */
+    private final RowType keyType;
+
+    /** Whether every lookup key has at most one row, e.g. because it contains the primary key. */
+    private final boolean uniqueKeys;
+
+    /** The type of the table rows returned by the lookup function. */
+    private final RowType tableRowType;
+
+    private final long maxSizeInBytes;
+
+    private final LookupCacheEviction eviction;
+
+    private final long ttlMillis;
+
+    /** The age after which cached results are refreshed ahead of expiration, or 0. */
+    private final long refreshAfterMillis;
+
+    /** The interval to reload the snapshot of the table, or 0. */
+    private final long reloadIntervalMillis;
+
+    /** The function loading the snapshot of the table, if the cache is preloaded. */
+    @Nullable private final UserDefinedFunction snapshotLoader;
+
+    public LookupCacheSpec(
+            String identifier,
+            int[] inputKeyFields,
+            int[] tableKeyFields,
+            RowType keyType,
+            boolean uniqueKeys,
+            RowType tableRowType,
+            long maxSizeInBytes,
+            LookupCacheEviction eviction,
+            long ttlMillis,
+            long refreshAfterMillis,
+            long reloadIntervalMillis,
+            @Nullable UserDefinedFunction snapshotLoader) {
+        checkArgument(inputKeyFields.length == keyType.getFieldCount());
+        checkArgument(tableKeyFields.length == keyType.getFieldCount());
+        checkArgument(maxSizeInBytes > 0, "The maximum size of the cache must be positive.");
+        checkArgument(ttlMillis > 0, "The time to live of cached results must be positive.");
+        checkArgument(refreshAfterMillis >= 0 && reloadIntervalMillis >= 0);
+        checkArgument(
+                snapshotLoader == null
+                        || (snapshotLoader instanceof LookupSnapshotLoader
+                                && reloadIntervalMillis > 0),
+                "A snapshot loader requires a reload interval.");
+
+        this.identifier = checkNotNull(identifier);
+        this.inputKeyFields = inputKeyFields;
+        this.tableKeyFields = tableKeyFields;
+        this.keyType = checkNotNull(keyType);
+        this.uniqueKeys = uniqueKeys;
+        this.tableRowType = checkNotNull(tableRowType);
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.eviction = checkNotNull(eviction);
+        this.ttlMillis = ttlMillis;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+        this.snapshotLoader = snapshotLoader;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public int[] getInputKeyFields() {
+        return inputKeyFields;
+    }
+
+    public int[] getTableKeyFields() {
+        return tableKeyFields;
+    }
+
+    public RowType getKeyType() {
+        return keyType;
+    }
+
+    public boolean hasUniqueKeys() {
+        return uniqueKeys;
+    }
+
+    public RowType getTableRowType() {
+        return tableRowType;
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    public LookupCacheEviction getEviction() {
+        return eviction;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getRefreshAfterMillis() {
+        return refreshAfterMillis;
+    }
+
+    public long getReloadIntervalMillis() {
+        return reloadIntervalMillis;
+    }
+
+    @Nullable
+    public UserDefinedFunction getSnapshotLoader() {
+        return snapshotLoader;
+    }
+}
@@ -24,12 +24,20 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.streaming.api.functions.ProcessFunction;
 import org.apache.flink.table.data.GenericRowData;
 import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
 import org.apache.flink.table.data.utils.JoinedRowData;
 import org.apache.flink.table.runtime.collector.TableFunctionCollector;
 import org.apache.flink.table.runtime.generated.GeneratedCollector;
 import org.apache.flink.table.runtime.generated.GeneratedFunction;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
 import org.apache.flink.util.Collector;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /** The join runner to lookup the dimension table. */
 public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
     private static final long serialVersionUID = -4521543015709964733L;
@@ -38,21 +46,34 @@ public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
     private final GeneratedCollector<TableFunctionCollector<RowData>> generatedCollector;
     private final boolean isLeftOuterJoin;
     private final int tableFieldsCount;
+    @Nullable private final LookupCacheSpec cacheSpec;
 
     private transient FlatMapFunction<RowData, RowData> fetcher;
     protected transient TableFunctionCollector<RowData> collector;
     private transient GenericRowData nullRow;
     private transient JoinedRowData outRow;
+    private transient LookupCacheAccessor cache;
+    private transient CachingCollector cachingCollector;
 
     public LookupJoinRunner(
             GeneratedFunction<FlatMapFunction<RowData, RowData>> generatedFetcher,
             GeneratedCollector<TableFunctionCollector<RowData>> generatedCollector,
             boolean isLeftOuterJoin,
             int tableFieldsCount) {
+        this(generatedFetcher, generatedCollector, isLeftOuterJoin, tableFieldsCount, null);
+    }
+
+    public LookupJoinRunner(
+            GeneratedFunction<FlatMapFunction<RowData, RowData>> generatedFetcher,
+            GeneratedCollector<TableFunctionCollector<RowData>> generatedCollector,
+            boolean isLeftOuterJoin,
+            int tableFieldsCount,
+            @Nullable LookupCacheSpec cacheSpec) {
         this.generatedFetcher = generatedFetcher;
         this.generatedCollector = generatedCollector;
         this.isLeftOuterJoin = isLeftOuterJoin;
         this.tableFieldsCount = tableFieldsCount;
+        this.cacheSpec = cacheSpec;
     }
 
     @Override
@@ -69,6 +90,11 @@ public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
 
         this.nullRow = new GenericRowData(tableFieldsCount);
         this.outRow = new JoinedRowData();
+
+        if (cacheSpec != null) {
+            this.cache = LookupCacheAccessor.open(cacheSpec, getRuntimeContext());
+            this.cachingCollector = new CachingCollector(cache.createRowSerializer());
+        }
     }
 
     @Override
@@ -77,8 +103,12 @@ public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
         collector.setInput(in);
         collector.reset();
 
-        // fetcher has copied the input field when object reuse is enabled
-        fetcher.flatMap(in, getFetcherCollector());
+        if (cache == null) {
+            // fetcher has copied the input field when object reuse is enabled
+            fetcher.flatMap(in, getFetcherCollector());
+        } else {
+            lookupWithCache(in);
+        }
 
         if (isLeftOuterJoin && !collector.isCollected()) {
             outRow.replace(in, nullRow);
@@ -87,6 +117,28 @@ public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
         }
     }
 
+    private void lookupWithCache(RowData in) throws Exception {
+        BinaryRowData key = cache.getKey(in);
+        if (key == null) {
+            fetcher.flatMap(in, getFetcherCollector());
+            return;
+        }
+
+        Collection<RowData> cachedRows = cache.get(key);
+        if (cachedRows != null) {
+            Collector<RowData> fetcherCollector = getFetcherCollector();
+            for (RowData row : cachedRows) {
+                fetcherCollector.collect(row);
+            }
+            return;
+        }
+
+        long lookupStartNanos = System.nanoTime();
+        cachingCollector.reset(getFetcherCollector());
+        fetcher.flatMap(in, cachingCollector);
+        cache.put(key.copy(), cachingCollector.rows, lookupStartNanos);
+    }
+
     public Collector<RowData> getFetcherCollector() {
         return collector;
     }
@@ -100,5 +152,39 @@ public class LookupJoinRunner extends ProcessFunction<RowData, RowData> {
         if (collector != null) {
             FunctionUtils.closeFunction(collector);
         }
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    /** Forwards the looked up rows and keeps copies of them for the lookup cache. */
+    private static final class CachingCollector implements Collector<RowData> {
+
+        private final RowDataSerializer rowSerializer;
+
+        private Collector<RowData> delegate;
+
+        private List<RowData> rows;
+
+        private CachingCollector(RowDataSerializer rowSerializer) {
+            this.rowSerializer = rowSerializer;
+        }
+
+        private void reset(Collector<RowData> delegate) {
+            this.delegate = delegate;
+            this.rows = new ArrayList<>(1);
+        }
+
+        @Override
+        public void collect(RowData record) {
+            // the function may reuse the record
+            rows.add(rowSerializer.toBinaryRow(record).copy());
+            delegate.collect(record);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
     }
 }
@@ -27,6 +27,8 @@ import org.apache.flink.table.runtime.generated.GeneratedCollector;
 import org.apache.flink.table.runtime.generated.GeneratedFunction;
 import org.apache.flink.util.Collector;
 
+import javax.annotation.Nullable;
+
 /** The join runner with an additional calculate function on the dimension table. */
 public class LookupJoinWithCalcRunner extends LookupJoinRunner {
 
@@ -42,7 +44,23 @@ public class LookupJoinWithCalcRunner extends LookupJoinRunner {
             GeneratedCollector<TableFunctionCollector<RowData>> generatedCollector,
             boolean isLeftOuterJoin,
             int tableFieldsCount) {
-        super(generatedFetcher, generatedCollector, isLeftOuterJoin, tableFieldsCount);
+        this(
+                generatedFetcher,
+                generatedCalc,
+                generatedCollector,
+                isLeftOuterJoin,
+                tableFieldsCount,
+                null);
+    }
+
+    public LookupJoinWithCalcRunner(
+            GeneratedFunction<FlatMapFunction<RowData, RowData>> generatedFetcher,
+            GeneratedFunction<FlatMapFunction<RowData, RowData>> generatedCalc,
+            GeneratedCollector<TableFunctionCollector<RowData>> generatedCollector,
+            boolean isLeftOuterJoin,
+            int tableFieldsCount,
+            @Nullable LookupCacheSpec cacheSpec) {
+        super(generatedFetcher, generatedCollector, isLeftOuterJoin, tableFieldsCount, cacheSpec);
         this.generatedCalc = generatedCalc;
     }
 
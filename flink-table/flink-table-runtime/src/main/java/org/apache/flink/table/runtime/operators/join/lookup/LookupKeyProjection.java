@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.types.logical.RowType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Projects the lookup key fields of input or table rows to a {@link BinaryRowData}, the key of the
+ * {@link LookupCache}. This class is not thread-safe, the returned key is reused.
+ */
+final class LookupKeyProjection {
+
+    private final int[] fields;
+
+    private final RowData.FieldGetter[] fieldGetters;
+
+    private final RowDataSerializer keySerializer;
+
+    private final GenericRowData reuseKey;
+
+    LookupKeyProjection(int[] fields, RowType keyType) {
+        this.fields = fields;
+        this.fieldGetters = new RowData.FieldGetter[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldGetters[i] = RowData.createFieldGetter(keyType.getTypeAt(i), fields[i]);
+        }
+        this.keySerializer = new RowDataSerializer(keyType);
+        this.reuseKey = new GenericRowData(fields.length);
+    }
+
+    /** Returns the key of the row, or null if any key field is null and cannot be joined. */
+    @Nullable
+    BinaryRowData apply(RowData row) {
+        for (int i = 0; i < fields.length; i++) {
+            if (row.isNullAt(fields[i])) {
+                return null;
+            }
+            reuseKey.setField(i, fieldGetters[i].getFieldOrNull(row));
+        }
+        return keySerializer.toBinaryRow(reuseKey);
+    }
+}
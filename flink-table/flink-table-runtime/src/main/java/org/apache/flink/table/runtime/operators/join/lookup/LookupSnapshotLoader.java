@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.functions.AsyncTableFunction;
+import org.apache.flink.table.functions.TableFunction;
+
+/**
+ * An interface for lookup functions ({@link TableFunction} or {@link AsyncTableFunction}) which can
+ * load a snapshot of the whole table, used to preload the lookup cache, see {@link LookupCache}.
+ *
+ * <p>The loading instance is opened before and closed after loading like any other function, but it
+ * is a different instance than the one serving the lookups.
+ */
+public interface LookupSnapshotLoader {
+
+    /**
+     * Loads all rows of the table. The rows have the same internal data structures as the rows
+     * returned by the lookups.
+     */
+    Iterable<RowData> loadAll() throws Exception;
+}
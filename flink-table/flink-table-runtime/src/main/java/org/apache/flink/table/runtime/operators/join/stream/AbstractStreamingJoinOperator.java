@@ -27,9 +27,12 @@ import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.runtime.generated.GeneratedJoinCondition;
 import org.apache.flink.table.runtime.generated.JoinCondition;
 import org.apache.flink.table.runtime.operators.join.JoinConditionWithNullFilters;
+import org.apache.flink.table.runtime.operators.join.stream.state.CompactJoinRecordStateView;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinInputSideSpec;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateView;
+import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateViews;
 import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateView;
+import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateViews;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
 import org.apache.flink.util.IterableIterator;
 
@@ -62,9 +65,17 @@ public abstract class AbstractStreamingJoinOperator extends AbstractStreamOperat
 
     protected final long stateRetentionTime;
 
+    /**
+     * The number of join keys whose records are cached by a {@link CompactJoinRecordStateView}, or
+     * 0 if the records are stored per record.
+     */
+    private final int compactStateCacheSize;
+
     protected transient JoinConditionWithNullFilters joinCondition;
     protected transient TimestampedCollector<RowData> collector;
 
+    private transient List<CompactJoinRecordStateView> compactStateViews;
+
     public AbstractStreamingJoinOperator(
             InternalTypeInfo<RowData> leftType,
             InternalTypeInfo<RowData> rightType,
@@ -72,7 +83,8 @@ public abstract class AbstractStreamingJoinOperator extends AbstractStreamOperat
             JoinInputSideSpec leftInputSideSpec,
             JoinInputSideSpec rightInputSideSpec,
             boolean[] filterNullKeys,
-            long stateRetentionTime) {
+            long stateRetentionTime,
+            int compactStateCacheSize) {
         this.leftType = leftType;
         this.rightType = rightType;
         this.generatedJoinCondition = generatedJoinCondition;
@@ -80,6 +92,7 @@ public abstract class AbstractStreamingJoinOperator extends AbstractStreamOperat
         this.rightInputSideSpec = rightInputSideSpec;
         this.stateRetentionTime = stateRetentionTime;
         this.filterNullKeys = filterNullKeys;
+        this.compactStateCacheSize = compactStateCacheSize;
     }
 
     @Override
@@ -92,6 +105,46 @@ public abstract class AbstractStreamingJoinOperator extends AbstractStreamOperat
         this.joinCondition.open(new Configuration());
 
         this.collector = new TimestampedCollector<>(output);
+        this.compactStateViews = new ArrayList<>();
+    }
+
+    /**
+     * Creates the view to the join state of an input side, which is a {@link
+     * CompactJoinRecordStateView} if the compact state is enabled and the join key does not contain
+     * the unique key.
+     */
+    protected JoinRecordStateView createRecordStateView(
+            String stateName,
+            JoinInputSideSpec inputSideSpec,
+            InternalTypeInfo<RowData> recordType,
+            boolean isOuter) {
+        if (compactStateCacheSize > 0 && !inputSideSpec.joinKeyContainsUniqueKey()) {
+            CompactJoinRecordStateView view =
+                    CompactJoinRecordStateView.create(
+                            getRuntimeContext(),
+                            this,
+                            stateName,
+                            inputSideSpec,
+                            recordType,
+                            stateRetentionTime,
+                            compactStateCacheSize);
+            compactStateViews.add(view);
+            return view;
+        } else if (isOuter) {
+            return OuterJoinRecordStateViews.create(
+                    getRuntimeContext(), stateName, inputSideSpec, recordType, stateRetentionTime);
+        } else {
+            return JoinRecordStateViews.create(
+                    getRuntimeContext(), stateName, inputSideSpec, recordType, stateRetentionTime);
+        }
+    }
+
+    @Override
+    public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+        super.prepareSnapshotPreBarrier(checkpointId);
+        for (CompactJoinRecordStateView view : compactStateViews) {
+            view.flush();
+        }
     }
 
     @Override
@@ -26,9 +26,7 @@ import org.apache.flink.table.data.utils.JoinedRowData;
 import org.apache.flink.table.runtime.generated.GeneratedJoinCondition;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinInputSideSpec;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateView;
-import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateViews;
 import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateView;
-import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateViews;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
 import org.apache.flink.types.RowKind;
 
@@ -61,6 +59,30 @@ public class StreamingJoinOperator extends AbstractStreamingJoinOperator {
             boolean rightIsOuter,
             boolean[] filterNullKeys,
             long stateRetentionTime) {
+        this(
+                leftType,
+                rightType,
+                generatedJoinCondition,
+                leftInputSideSpec,
+                rightInputSideSpec,
+                leftIsOuter,
+                rightIsOuter,
+                filterNullKeys,
+                stateRetentionTime,
+                0);
+    }
+
+    public StreamingJoinOperator(
+            InternalTypeInfo<RowData> leftType,
+            InternalTypeInfo<RowData> rightType,
+            GeneratedJoinCondition generatedJoinCondition,
+            JoinInputSideSpec leftInputSideSpec,
+            JoinInputSideSpec rightInputSideSpec,
+            boolean leftIsOuter,
+            boolean rightIsOuter,
+            boolean[] filterNullKeys,
+            long stateRetentionTime,
+            int compactStateCacheSize) {
         super(
                 leftType,
                 rightType,
@@ -68,7 +90,8 @@ public class StreamingJoinOperator extends AbstractStreamingJoinOperator {
                 leftInputSideSpec,
                 rightInputSideSpec,
                 filterNullKeys,
-                stateRetentionTime);
+                stateRetentionTime,
+                compactStateCacheSize);
         this.leftIsOuter = leftIsOuter;
         this.rightIsOuter = rightIsOuter;
     }
@@ -82,41 +105,10 @@ public class StreamingJoinOperator extends AbstractStreamingJoinOperator {
         this.rightNullRow = new GenericRowData(rightType.toRowSize());
 
         // initialize states
-        if (leftIsOuter) {
-            this.leftRecordStateView =
-                    OuterJoinRecordStateViews.create(
-                            getRuntimeContext(),
-                            "left-records",
-                            leftInputSideSpec,
-                            leftType,
-                            stateRetentionTime);
-        } else {
-            this.leftRecordStateView =
-                    JoinRecordStateViews.create(
-                            getRuntimeContext(),
-                            "left-records",
-                            leftInputSideSpec,
-                            leftType,
-                            stateRetentionTime);
-        }
-
-        if (rightIsOuter) {
-            this.rightRecordStateView =
-                    OuterJoinRecordStateViews.create(
-                            getRuntimeContext(),
-                            "right-records",
-                            rightInputSideSpec,
-                            rightType,
-                            stateRetentionTime);
-        } else {
-            this.rightRecordStateView =
-                    JoinRecordStateViews.create(
-                            getRuntimeContext(),
-                            "right-records",
-                            rightInputSideSpec,
-                            rightType,
-                            stateRetentionTime);
-        }
+        this.leftRecordStateView =
+                createRecordStateView("left-records", leftInputSideSpec, leftType, leftIsOuter);
+        this.rightRecordStateView =
+                createRecordStateView("right-records", rightInputSideSpec, rightType, rightIsOuter);
     }
 
     @Override
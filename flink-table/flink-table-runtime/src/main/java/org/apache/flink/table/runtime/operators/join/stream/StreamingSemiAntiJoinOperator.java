@@ -24,9 +24,7 @@ import org.apache.flink.table.data.util.RowDataUtil;
 import org.apache.flink.table.runtime.generated.GeneratedJoinCondition;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinInputSideSpec;
 import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateView;
-import org.apache.flink.table.runtime.operators.join.stream.state.JoinRecordStateViews;
 import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateView;
-import org.apache.flink.table.runtime.operators.join.stream.state.OuterJoinRecordStateViews;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
 import org.apache.flink.types.RowKind;
 
@@ -52,6 +50,28 @@ public class StreamingSemiAntiJoinOperator extends AbstractStreamingJoinOperator
             JoinInputSideSpec rightInputSideSpec,
             boolean[] filterNullKeys,
             long stateRetentionTime) {
+        this(
+                isAntiJoin,
+                leftType,
+                rightType,
+                generatedJoinCondition,
+                leftInputSideSpec,
+                rightInputSideSpec,
+                filterNullKeys,
+                stateRetentionTime,
+                0);
+    }
+
+    public StreamingSemiAntiJoinOperator(
+            boolean isAntiJoin,
+            InternalTypeInfo<RowData> leftType,
+            InternalTypeInfo<RowData> rightType,
+            GeneratedJoinCondition generatedJoinCondition,
+            JoinInputSideSpec leftInputSideSpec,
+            JoinInputSideSpec rightInputSideSpec,
+            boolean[] filterNullKeys,
+            long stateRetentionTime,
+            int compactStateCacheSize) {
         super(
                 leftType,
                 rightType,
@@ -59,7 +79,8 @@ public class StreamingSemiAntiJoinOperator extends AbstractStreamingJoinOperator
                 leftInputSideSpec,
                 rightInputSideSpec,
                 filterNullKeys,
-                stateRetentionTime);
+                stateRetentionTime,
+                compactStateCacheSize);
         this.isAntiJoin = isAntiJoin;
     }
 
@@ -68,20 +89,13 @@ public class StreamingSemiAntiJoinOperator extends AbstractStreamingJoinOperator
         super.open();
 
         this.leftRecordStateView =
-                OuterJoinRecordStateViews.create(
-                        getRuntimeContext(),
-                        LEFT_RECORDS_STATE_NAME,
-                        leftInputSideSpec,
-                        leftType,
-                        stateRetentionTime);
+                (OuterJoinRecordStateView)
+                        createRecordStateView(
+                                LEFT_RECORDS_STATE_NAME, leftInputSideSpec, leftType, true);
 
         this.rightRecordStateView =
-                JoinRecordStateViews.create(
-                        getRuntimeContext(),
-                        RIGHT_RECORDS_STATE_NAME,
-                        rightInputSideSpec,
-                        rightType,
-                        stateRetentionTime);
+                createRecordStateView(
+                        RIGHT_RECORDS_STATE_NAME, rightInputSideSpec, rightType, false);
     }
 
     /**
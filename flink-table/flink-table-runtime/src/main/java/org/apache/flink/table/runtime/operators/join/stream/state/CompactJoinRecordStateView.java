@@ -0,0 +1,470 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.stream.state;
+
+import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.PrimitiveArrayTypeInfo;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.data.binary.BinarySegmentUtils;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.util.IterableIterator;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.apache.flink.table.runtime.util.StateConfigUtil.createTtlConfig;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A {@link OuterJoinRecordStateView} which stores all records of a join key in a single compact
+ * value instead of a map entry per record, so that a probe reads the records of a join key with a
+ * single state access.
+ *
+ * <p>The value is a serialized block of the distinct records of the join key in {@link
+ * BinaryRowData} format, each with its number of appearances and number of associations. The
+ * records are sorted by the hash code of their identity, i.e. the unique key if the input side has
+ * one and the whole record otherwise, so that a record is found by binary search. The records of a
+ * restored block point into the block and are not deserialized field by field.
+ *
+ * <p>The records of the most recently used join keys are cached in memory and the changes of the
+ * cached join keys are only written to the state when they are evicted from the cache or in {@link
+ * #flush()}, which must be called before every checkpoint. A cached join key is not used anymore
+ * once it was not written for the state retention time, like the state it caches.
+ *
+ * <p>This view is not used if the join key contains the unique key, as the input side has at most
+ * one record per join key in that case.
+ */
+public final class CompactJoinRecordStateView implements OuterJoinRecordStateView {
+
+    private final ValueState<byte[]> recordState;
+    private final KeyContext keyContext;
+    @Nullable private final KeySelector<RowData, RowData> uniqueKeySelector;
+    private final RowDataSerializer recordSerializer;
+    private final int recordArity;
+    private final long retentionTime;
+
+    private final LinkedHashMap<Object, JoinKeyRecords> cache;
+    private final DataOutputSerializer serializationBuffer;
+
+    private CompactJoinRecordStateView(
+            RuntimeContext ctx,
+            KeyContext keyContext,
+            String stateName,
+            InternalTypeInfo<RowData> recordType,
+            @Nullable KeySelector<RowData, RowData> uniqueKeySelector,
+            long retentionTime,
+            int cacheSize) {
+        checkArgument(cacheSize > 0, "The cache must hold at least one join key.");
+        StateTtlConfig ttlConfig = createTtlConfig(retentionTime);
+        ValueStateDescriptor<byte[]> recordStateDesc =
+                new ValueStateDescriptor<>(
+                        stateName, PrimitiveArrayTypeInfo.BYTE_PRIMITIVE_ARRAY_TYPE_INFO);
+        if (ttlConfig.isEnabled()) {
+            recordStateDesc.enableTimeToLive(ttlConfig);
+        }
+        this.recordState = ctx.getState(recordStateDesc);
+        this.keyContext = keyContext;
+        this.uniqueKeySelector = uniqueKeySelector;
+        this.recordSerializer = recordType.toRowSerializer();
+        this.recordArity = recordType.toRowSize();
+        this.retentionTime = retentionTime;
+        this.cache =
+                new LinkedHashMap<Object, JoinKeyRecords>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Object, JoinKeyRecords> eldest) {
+                        if (size() <= cacheSize) {
+                            return false;
+                        }
+                        if (eldest.getValue().dirty) {
+                            writeToState(eldest.getKey(), eldest.getValue());
+                        }
+                        return true;
+                    }
+                };
+        this.serializationBuffer = new DataOutputSerializer(1024);
+    }
+
+    /**
+     * Creates a {@link CompactJoinRecordStateView} for the input side of a join whose join key does
+     * not contain the unique key.
+     *
+     * @param keyContext the join operator, to write the changes of cached join keys.
+     * @param cacheSize the maximum number of join keys whose records are cached.
+     */
+    public static CompactJoinRecordStateView create(
+            RuntimeContext ctx,
+            KeyContext keyContext,
+            String stateName,
+            JoinInputSideSpec inputSideSpec,
+            InternalTypeInfo<RowData> recordType,
+            long retentionTime,
+            int cacheSize) {
+        checkArgument(!inputSideSpec.joinKeyContainsUniqueKey());
+        return new CompactJoinRecordStateView(
+                ctx,
+                keyContext,
+                stateName,
+                recordType,
+                inputSideSpec.hasUniqueKey() ? inputSideSpec.getUniqueKeySelector() : null,
+                retentionTime,
+                cacheSize);
+    }
+
+    @Override
+    public void addRecord(RowData record) throws Exception {
+        addRecord(record, -1);
+    }
+
+    @Override
+    public void addRecord(RowData record, int numOfAssociations) throws Exception {
+        JoinKeyRecords records = getCurrentRecords();
+        BinaryRowData binaryRecord = toBinaryRecord(record);
+        RowData identity = getIdentity(binaryRecord);
+        int index = records.find(identity, identity.hashCode());
+        if (index < 0) {
+            records.insert(-index - 1, new Entry(binaryRecord, identity, numOfAssociations));
+        } else {
+            Entry entry = records.entries.get(index);
+            if (uniqueKeySelector == null) {
+                entry.count++;
+            } else {
+                // a record with the same unique key replaces the previous record
+                entry.record = binaryRecord;
+            }
+            entry.numOfAssociations = numOfAssociations;
+        }
+        records.markDirty();
+    }
+
+    @Override
+    public void updateNumOfAssociations(RowData record, int numOfAssociations) throws Exception {
+        JoinKeyRecords records = getCurrentRecords();
+        RowData identity = getIdentity(recordSerializer.toBinaryRow(record));
+        int index = records.find(identity, identity.hashCode());
+        if (index < 0) {
+            // compatible for state ttl
+            BinaryRowData binaryRecord = toBinaryRecord(record);
+            records.insert(
+                    -index - 1,
+                    new Entry(binaryRecord, getIdentity(binaryRecord), numOfAssociations));
+        } else {
+            Entry entry = records.entries.get(index);
+            if (uniqueKeySelector != null) {
+                entry.record = toBinaryRecord(record);
+            }
+            entry.numOfAssociations = numOfAssociations;
+        }
+        records.markDirty();
+    }
+
+    @Override
+    public void retractRecord(RowData record) throws Exception {
+        JoinKeyRecords records = getCurrentRecords();
+        RowData identity = getIdentity(recordSerializer.toBinaryRow(record));
+        int index = records.find(identity, identity.hashCode());
+        // ignore records which are not found, which means state may be expired
+        if (index >= 0) {
+            Entry entry = records.entries.get(index);
+            if (entry.count > 1) {
+                entry.count--;
+            } else {
+                records.entries.remove(index);
+            }
+            records.markDirty();
+        }
+    }
+
+    @Override
+    public Iterable<RowData> getRecords() throws Exception {
+        List<Entry> entries = getCurrentRecords().entries;
+        return new EntryIterator<RowData>(entries) {
+            @Override
+            RowData get(Entry entry) {
+                return entry.record;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<Tuple2<RowData, Integer>> getRecordsAndNumOfAssociations() throws Exception {
+        List<Entry> entries = getCurrentRecords().entries;
+        return new EntryIterator<Tuple2<RowData, Integer>>(entries) {
+            @Override
+            Tuple2<RowData, Integer> get(Entry entry) {
+                return Tuple2.of(entry.record, entry.numOfAssociations);
+            }
+        };
+    }
+
+    /** Writes the changes of all cached join keys to the state. */
+    public void flush() throws Exception {
+        Object currentKey = keyContext.getCurrentKey();
+        for (Map.Entry<Object, JoinKeyRecords> cached : cache.entrySet()) {
+            if (cached.getValue().dirty) {
+                keyContext.setCurrentKey(cached.getKey());
+                updateState(cached.getValue());
+            }
+        }
+        if (currentKey != null) {
+            keyContext.setCurrentKey(currentKey);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    private JoinKeyRecords getCurrentRecords() throws Exception {
+        Object key = keyContext.getCurrentKey();
+        JoinKeyRecords records = cache.get(key);
+        if (records != null && !records.isExpired(retentionTime)) {
+            return records;
+        }
+        records = JoinKeyRecords.deserialize(recordState.value(), recordArity);
+        if (uniqueKeySelector != null) {
+            for (Entry entry : records.entries) {
+                entry.identity = getIdentity(entry.record);
+            }
+        }
+        cache.put(key, records);
+        return records;
+    }
+
+    private BinaryRowData toBinaryRecord(RowData record) {
+        return recordSerializer.toBinaryRow(record).copy();
+    }
+
+    /** Returns the identity of a record in {@link BinaryRowData} format, see {@link Entry}. */
+    private RowData getIdentity(BinaryRowData record) throws Exception {
+        return uniqueKeySelector == null ? record : uniqueKeySelector.getKey(record);
+    }
+
+    /** Writes the records of a join key which is not the current key. */
+    private void writeToState(Object key, JoinKeyRecords records) {
+        Object currentKey = keyContext.getCurrentKey();
+        keyContext.setCurrentKey(key);
+        try {
+            updateState(records);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to write the join records of " + key, e);
+        } finally {
+            keyContext.setCurrentKey(currentKey);
+        }
+    }
+
+    private void updateState(JoinKeyRecords records) throws Exception {
+        if (records.entries.isEmpty()) {
+            recordState.clear();
+        } else {
+            serializationBuffer.clear();
+            records.serialize(serializationBuffer);
+            recordState.update(serializationBuffer.getCopyOfBuffer());
+        }
+        records.dirty = false;
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    /** A distinct record of a join key. */
+    private static final class Entry {
+
+        private BinaryRowData record;
+
+        /** The unique key of the record, or the record itself if there is no unique key. */
+        private RowData identity;
+
+        private final int hash;
+        private int count;
+        private int numOfAssociations;
+
+        private Entry(BinaryRowData record, RowData identity, int numOfAssociations) {
+            this(record, identity, identity.hashCode(), 1, numOfAssociations);
+        }
+
+        private Entry(
+                BinaryRowData record,
+                RowData identity,
+                int hash,
+                int count,
+                int numOfAssociations) {
+            this.record = record;
+            this.identity = identity;
+            this.hash = hash;
+            this.count = count;
+            this.numOfAssociations = numOfAssociations;
+        }
+    }
+
+    /**
+     * The records of a join key, sorted by the hash code of their identity.
+     *
+     * <p>Serialized format: {@code numEntries, (hash, count, numOfAssociations, size, record
+     * bytes)*}.
+     */
+    private static final class JoinKeyRecords {
+
+        private final List<Entry> entries;
+
+        /** Whether the records have been changed since they have been written to the state. */
+        private boolean dirty;
+
+        /** The time the records have been loaded or changed last. */
+        private long lastUpdateTime;
+
+        private JoinKeyRecords(List<Entry> entries) {
+            this.entries = entries;
+            this.lastUpdateTime = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the index of the entry with the given identity, or {@code -(insertion index) - 1}
+         * if there is no such entry.
+         */
+        private int find(RowData identity, int hash) {
+            int low = 0;
+            int high = entries.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midHash = entries.get(mid).hash;
+                if (midHash < hash) {
+                    low = mid + 1;
+                } else if (midHash > hash) {
+                    high = mid - 1;
+                } else {
+                    // scan the entries with the same hash
+                    int first = mid;
+                    while (first > 0 && entries.get(first - 1).hash == hash) {
+                        first--;
+                    }
+                    int i = first;
+                    for (; i < entries.size() && entries.get(i).hash == hash; i++) {
+                        if (entries.get(i).identity.equals(identity)) {
+                            return i;
+                        }
+                    }
+                    return -i - 1;
+                }
+            }
+            return -low - 1;
+        }
+
+        private void insert(int index, Entry entry) {
+            entries.add(index, entry);
+        }
+
+        private void markDirty() {
+            dirty = true;
+            lastUpdateTime = System.currentTimeMillis();
+        }
+
+        private boolean isExpired(long retentionTime) {
+            return retentionTime > 0
+                    && System.currentTimeMillis() - lastUpdateTime >= retentionTime;
+        }
+
+        private void serialize(DataOutputSerializer out) throws IOException {
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeInt(entry.hash);
+                out.writeInt(entry.count);
+                out.writeInt(entry.numOfAssociations);
+                BinaryRowData record = entry.record;
+                out.writeInt(record.getSizeInBytes());
+                BinarySegmentUtils.copyToView(
+                        record.getSegments(), record.getOffset(), record.getSizeInBytes(), out);
+            }
+        }
+
+        private static JoinKeyRecords deserialize(@Nullable byte[] bytes, int recordArity) {
+            if (bytes == null) {
+                return new JoinKeyRecords(new ArrayList<>());
+            }
+            MemorySegment segment = MemorySegmentFactory.wrap(bytes);
+            int numEntries = segment.getIntBigEndian(0);
+            List<Entry> entries = new ArrayList<>(numEntries);
+            int offset = 4;
+            for (int i = 0; i < numEntries; i++) {
+                int hash = segment.getIntBigEndian(offset);
+                int count = segment.getIntBigEndian(offset + 4);
+                int numOfAssociations = segment.getIntBigEndian(offset + 8);
+                int size = segment.getIntBigEndian(offset + 12);
+                offset += 16;
+                BinaryRowData record = new BinaryRowData(recordArity);
+                record.pointTo(segment, offset, size);
+                offset += size;
+                entries.add(new Entry(record, record, hash, count, numOfAssociations));
+            }
+            return new JoinKeyRecords(entries);
+        }
+    }
+
+    /** Iterates over the records of the entries, repeating each record by its count. */
+    private abstract static class EntryIterator<T> implements IterableIterator<T> {
+
+        private final List<Entry> entries;
+        private int index;
+        private int remainingTimes;
+
+        private EntryIterator(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        abstract T get(Entry entry);
+
+        @Override
+        public boolean hasNext() {
+            return remainingTimes > 0 || index < entries.size();
+        }
+
+        @Override
+        public T next() {
+            if (remainingTimes == 0) {
+                if (index >= entries.size()) {
+                    throw new NoSuchElementException();
+                }
+                remainingTimes = entries.get(index++).count;
+            }
+            remainingTimes--;
+            return get(entries.get(index - 1));
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this;
+        }
+    }
+}
@@ -74,6 +74,12 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
     // a sorted map stores mapping from sort key to records count
     private transient ValueState<SortedMap<RowData, Long>> treeMap;
 
+    // the maximum number of sort keys of a chunk of the record counts, 0 if not chunked
+    private final int sortKeyChunkSize;
+
+    // the record counts of the sort keys in chunks, used instead of treeMap if chunked
+    private transient SortKeyCountChunks sortKeyCountChunks;
+
     // The util to compare two RowData equals to each other.
     private GeneratedRecordEqualiser generatedEqualiser;
     private RecordEqualiser equaliser;
@@ -90,6 +96,35 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
             GeneratedRecordEqualiser generatedEqualiser,
             boolean generateUpdateBefore,
             boolean outputRankNumber) {
+        this(
+                ttlConfig,
+                inputRowType,
+                comparableRecordComparator,
+                sortKeySelector,
+                rankType,
+                rankRange,
+                generatedEqualiser,
+                generateUpdateBefore,
+                outputRankNumber,
+                0);
+    }
+
+    /**
+     * Creates a {@link RetractableTopNFunction} which stores the record counts of the sort keys in
+     * chunks of at most the given number of sort keys if it is positive, see {@link
+     * SortKeyCountChunks}. The state is not compatible with the state of the unchunked counts.
+     */
+    public RetractableTopNFunction(
+            StateTtlConfig ttlConfig,
+            InternalTypeInfo<RowData> inputRowType,
+            ComparableRecordComparator comparableRecordComparator,
+            RowDataKeySelector sortKeySelector,
+            RankType rankType,
+            RankRange rankRange,
+            GeneratedRecordEqualiser generatedEqualiser,
+            boolean generateUpdateBefore,
+            boolean outputRankNumber,
+            int sortKeyChunkSize) {
         super(
                 ttlConfig,
                 inputRowType,
@@ -102,6 +137,7 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
         this.sortKeyType = sortKeySelector.getProducedType();
         this.serializableComparator = comparableRecordComparator;
         this.generatedEqualiser = generatedEqualiser;
+        this.sortKeyChunkSize = sortKeyChunkSize;
     }
 
     @Override
@@ -120,24 +156,61 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
         }
         dataState = getRuntimeContext().getMapState(mapStateDescriptor);
 
-        ValueStateDescriptor<SortedMap<RowData, Long>> valueStateDescriptor =
-                new ValueStateDescriptor<>(
-                        "sorted-map",
-                        new SortedMapTypeInfo<>(
-                                sortKeyType, BasicTypeInfo.LONG_TYPE_INFO, serializableComparator));
-        if (ttlConfig.isEnabled()) {
-            valueStateDescriptor.enableTimeToLive(ttlConfig);
+        if (sortKeyChunkSize > 0) {
+            ValueStateDescriptor<SortedMap<RowData, Integer>> indexStateDescriptor =
+                    new ValueStateDescriptor<>(
+                            "sort-key-chunk-index",
+                            new SortedMapTypeInfo<>(
+                                    sortKeyType,
+                                    BasicTypeInfo.INT_TYPE_INFO,
+                                    serializableComparator));
+            MapStateDescriptor<Integer, SortedMap<RowData, Long>> chunkStateDescriptor =
+                    new MapStateDescriptor<>(
+                            "sort-key-chunks",
+                            BasicTypeInfo.INT_TYPE_INFO,
+                            new SortedMapTypeInfo<>(
+                                    sortKeyType,
+                                    BasicTypeInfo.LONG_TYPE_INFO,
+                                    serializableComparator));
+            if (ttlConfig.isEnabled()) {
+                indexStateDescriptor.enableTimeToLive(ttlConfig);
+                chunkStateDescriptor.enableTimeToLive(ttlConfig);
+            }
+            sortKeyCountChunks =
+                    new SortKeyCountChunks(
+                            getRuntimeContext().getState(indexStateDescriptor),
+                            getRuntimeContext().getMapState(chunkStateDescriptor),
+                            sortKeyComparator,
+                            sortKeyChunkSize,
+                            ttlConfig.isEnabled());
+        } else {
+            ValueStateDescriptor<SortedMap<RowData, Long>> valueStateDescriptor =
+                    new ValueStateDescriptor<>(
+                            "sorted-map",
+                            new SortedMapTypeInfo<>(
+                                    sortKeyType,
+                                    BasicTypeInfo.LONG_TYPE_INFO,
+                                    serializableComparator));
+            if (ttlConfig.isEnabled()) {
+                valueStateDescriptor.enableTimeToLive(ttlConfig);
+            }
+            treeMap = getRuntimeContext().getState(valueStateDescriptor);
         }
-        treeMap = getRuntimeContext().getState(valueStateDescriptor);
     }
 
     @Override
     public void processElement(RowData input, Context ctx, Collector<RowData> out)
             throws Exception {
         initRankEnd(input);
-        SortedMap<RowData, Long> sortedMap = treeMap.value();
-        if (sortedMap == null) {
-            sortedMap = new TreeMap<>(sortKeyComparator);
+        Map<RowData, Long> sortedMap;
+        if (sortKeyCountChunks != null) {
+            sortKeyCountChunks.load();
+            sortedMap = sortKeyCountChunks;
+        } else {
+            sortedMap = treeMap.value();
+            if (sortedMap == null) {
+                sortedMap = new TreeMap<>(sortKeyComparator);
+            }
         }
         RowData sortKey = sortKeySelector.getKey(input);
         boolean isAccumulate = RowDataUtil.isAccumulateMsg(input);
@@ -219,16 +292,17 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
                 }
             }
         }
-        treeMap.update(sortedMap);
+        if (sortKeyCountChunks != null) {
+            sortKeyCountChunks.flush();
+        } else {
+            treeMap.update((SortedMap<RowData, Long>) sortedMap);
+        }
     }
 
     // ------------- ROW_NUMBER-------------------------------
 
     private void emitRecordsWithRowNumber(
-            SortedMap<RowData, Long> sortedMap,
-            RowData sortKey,
-            RowData inputRow,
-            Collector<RowData> out)
+            Map<RowData, Long> sortedMap, RowData sortKey, RowData inputRow, Collector<RowData> out)
             throws Exception {
         Iterator<Map.Entry<RowData, Long>> iterator = sortedMap.entrySet().iterator();
         long currentRank = 0L;
@@ -272,10 +346,7 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
     }
 
     private void emitRecordsWithoutRowNumber(
-            SortedMap<RowData, Long> sortedMap,
-            RowData sortKey,
-            RowData inputRow,
-            Collector<RowData> out)
+            Map<RowData, Long> sortedMap, RowData sortKey, RowData inputRow, Collector<RowData> out)
             throws Exception {
         Iterator<Map.Entry<RowData, Long>> iterator = sortedMap.entrySet().iterator();
         long curRank = 0L;
@@ -331,10 +402,7 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
      * @return true if the input record has been removed from {@link #dataState}.
      */
     private boolean retractRecordWithRowNumber(
-            SortedMap<RowData, Long> sortedMap,
-            RowData sortKey,
-            RowData inputRow,
-            Collector<RowData> out)
+            Map<RowData, Long> sortedMap, RowData sortKey, RowData inputRow, Collector<RowData> out)
             throws Exception {
         Iterator<Map.Entry<RowData, Long>> iterator = sortedMap.entrySet().iterator();
         long currentRank = 0L;
@@ -403,10 +471,7 @@ public class RetractableTopNFunction extends AbstractTopNFunction {
      * @return true if the input record has been removed from {@link #dataState}.
      */
     private boolean retractRecordWithoutRowNumber(
-            SortedMap<RowData, Long> sortedMap,
-            RowData sortKey,
-            RowData inputRow,
-            Collector<RowData> out)
+            Map<RowData, Long> sortedMap, RowData sortKey, RowData inputRow, Collector<RowData> out)
             throws Exception {
         Iterator<Map.Entry<RowData, Long>> iterator = sortedMap.entrySet().iterator();
         long nextRank = 1L; // the next rank number, should be in the rank range
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.rank;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.table.data.RowData;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * The sorted counts of the sort keys of the current partition key of a {@link
+ * RetractableTopNFunction}, stored in chunks of at most a maximum number of sort keys so that an
+ * update only reads and writes the chunks it touches instead of the counts of all sort keys.
+ *
+ * <p>The chunks are stored in a {@link MapState} by chunk id. A small index, stored in a {@link
+ * ValueState}, maps the lower bound of each chunk to its id in sort key order, a lower bound is
+ * never above the sort keys of its chunk. The chunk of a sort key is found by a floor lookup in the
+ * index and the iteration in sort key order loads the chunks lazily, so that ranking the top N
+ * records only reads the chunks which cover the top N ranks. A chunk which exceeds the maximum size
+ * is split into halves and an empty chunk is removed.
+ *
+ * <p>{@link #load()} must be called before the counts of a partition key are accessed and {@link
+ * #flush()} to write the changes to the state.
+ */
+final class SortKeyCountChunks extends AbstractMap<RowData, Long> {
+
+    private final ValueState<SortedMap<RowData, Integer>> indexState;
+    private final MapState<Integer, SortedMap<RowData, Long>> chunkState;
+    private final Comparator<RowData> sortKeyComparator;
+    private final int maxChunkSize;
+
+    /** Whether the state has a TTL, the index is then written whenever a chunk is written. */
+    private final boolean ttlEnabled;
+
+    private final Map<Integer, SortedMap<RowData, Long>> loadedChunks;
+    private final Set<Integer> changedChunks;
+    private final Set<Map.Entry<RowData, Long>> entrySet;
+
+    private TreeMap<RowData, Integer> index;
+    private boolean indexChanged;
+
+    /** Whether the index did not exist, the chunks are then cleared before they are written. */
+    private boolean newIndex;
+
+    SortKeyCountChunks(
+            ValueState<SortedMap<RowData, Integer>> indexState,
+            MapState<Integer, SortedMap<RowData, Long>> chunkState,
+            Comparator<RowData> sortKeyComparator,
+            int maxChunkSize,
+            boolean ttlEnabled) {
+        checkArgument(maxChunkSize > 1, "A chunk must hold at least two sort keys.");
+        this.indexState = indexState;
+        this.chunkState = chunkState;
+        this.sortKeyComparator = sortKeyComparator;
+        this.maxChunkSize = maxChunkSize;
+        this.ttlEnabled = ttlEnabled;
+        this.loadedChunks = new HashMap<>();
+        this.changedChunks = new HashSet<>();
+        this.entrySet = new EntrySet();
+    }
+
+    /** Loads the index of the current partition key. */
+    void load() throws Exception {
+        SortedMap<RowData, Integer> storedIndex = indexState.value();
+        if (storedIndex == null) {
+            index = new TreeMap<>(sortKeyComparator);
+            newIndex = true;
+        } else {
+            // the serializer of the index deserializes a TreeMap
+            index = (TreeMap<RowData, Integer>) storedIndex;
+            newIndex = false;
+        }
+        indexChanged = false;
+        loadedChunks.clear();
+        changedChunks.clear();
+    }
+
+    /** Writes the changed chunks and the index of the current partition key to the state. */
+    void flush() throws Exception {
+        if (changedChunks.isEmpty() && !indexChanged) {
+            return;
+        }
+        if (newIndex) {
+            // removes the chunks of an expired index
+            chunkState.clear();
+        }
+        for (int chunkId : changedChunks) {
+            SortedMap<RowData, Long> chunk = loadedChunks.get(chunkId);
+            if (chunk.isEmpty()) {
+                chunkState.remove(chunkId);
+            } else {
+                chunkState.put(chunkId, chunk);
+            }
+        }
+        if (index.isEmpty()) {
+            indexState.clear();
+        } else if (indexChanged || ttlEnabled) {
+            indexState.update(index);
+        }
+        newIndex = false;
+        indexChanged = false;
+        changedChunks.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Long get(Object key) {
+        Map.Entry<RowData, Integer> indexEntry = findChunk((RowData) key);
+        return indexEntry == null ? null : getChunk(indexEntry.getValue()).get(key);
+    }
+
+    @Override
+    public Long put(RowData key, Long value) {
+        Map.Entry<RowData, Integer> indexEntry = findChunk(key);
+        if (indexEntry == null) {
+            SortedMap<RowData, Long> chunk = new TreeMap<>(sortKeyComparator);
+            chunk.put(key, value);
+            addChunk(key, chunk);
+            return null;
+        }
+        int chunkId = indexEntry.getValue();
+        if (sortKeyComparator.compare(key, indexEntry.getKey()) < 0) {
+            // only the first chunk has a lower bound above the sort key, which is lowered so that
+            // the lower bound of a split chunk is above it
+            index.remove(indexEntry.getKey());
+            index.put(key, chunkId);
+            indexChanged = true;
+        }
+        SortedMap<RowData, Long> chunk = getChunk(chunkId);
+        Long previous = chunk.put(key, value);
+        changedChunks.add(chunkId);
+        if (chunk.size() > maxChunkSize) {
+            splitChunk(chunk);
+        }
+        return previous;
+    }
+
+    @Override
+    public Long remove(Object key) {
+        Map.Entry<RowData, Integer> indexEntry = findChunk((RowData) key);
+        if (indexEntry == null) {
+            return null;
+        }
+        int chunkId = indexEntry.getValue();
+        SortedMap<RowData, Long> chunk = getChunk(chunkId);
+        Long previous = chunk.remove(key);
+        if (previous != null) {
+            changedChunks.add(chunkId);
+            if (chunk.isEmpty()) {
+                index.remove(indexEntry.getKey());
+                indexChanged = true;
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public Set<Map.Entry<RowData, Long>> entrySet() {
+        return entrySet;
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    /** Returns the index entry of the chunk which holds the sort key, or null if it is empty. */
+    private Map.Entry<RowData, Integer> findChunk(RowData sortKey) {
+        Map.Entry<RowData, Integer> indexEntry = index.floorEntry(sortKey);
+        return indexEntry == null ? index.firstEntry() : indexEntry;
+    }
+
+    private SortedMap<RowData, Long> getChunk(int chunkId) {
+        SortedMap<RowData, Long> chunk = loadedChunks.get(chunkId);
+        if (chunk == null) {
+            try {
+                chunk = chunkState.get(chunkId);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load the sort keys of chunk " + chunkId, e);
+            }
+            if (chunk == null) {
+                // the chunk is expired
+                chunk = new TreeMap<>(sortKeyComparator);
+            }
+            loadedChunks.put(chunkId, chunk);
+        }
+        return chunk;
+    }
+
+    private void addChunk(RowData lowerBound, SortedMap<RowData, Long> chunk) {
+        int chunkId = 0;
+        for (int id : index.values()) {
+            chunkId = Math.max(chunkId, id + 1);
+        }
+        loadedChunks.put(chunkId, chunk);
+        changedChunks.add(chunkId);
+        index.put(lowerBound, chunkId);
+        indexChanged = true;
+    }
+
+    /** Moves the upper half of the sort keys of a chunk to a new chunk. */
+    private void splitChunk(SortedMap<RowData, Long> chunk) {
+        Iterator<RowData> keys = chunk.keySet().iterator();
+        for (int i = 0; i < chunk.size() / 2; i++) {
+            keys.next();
+        }
+        SortedMap<RowData, Long> upperHalf = chunk.tailMap(keys.next());
+        SortedMap<RowData, Long> newChunk = new TreeMap<>(upperHalf);
+        upperHalf.clear();
+        addChunk(newChunk.firstKey(), newChunk);
+    }
+
+    /** The entries of all chunks in sort key order, chunks are loaded when they are reached. */
+    private final class EntrySet extends AbstractSet<Map.Entry<RowData, Long>> {
+
+        @Override
+        public Iterator<Map.Entry<RowData, Long>> iterator() {
+            Iterator<Integer> chunkIds = index.values().iterator();
+            return new Iterator<Map.Entry<RowData, Long>>() {
+                private Iterator<Map.Entry<RowData, Long>> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && chunkIds.hasNext()) {
+                        current = getChunk(chunkIds.next()).entrySet().iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public Map.Entry<RowData, Long> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int chunkId : index.values()) {
+                size += getChunk(chunkId).size();
+            }
+            return size;
+        }
+    }
+}
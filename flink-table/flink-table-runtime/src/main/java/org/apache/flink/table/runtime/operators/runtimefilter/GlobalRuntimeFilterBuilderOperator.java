@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.runtimefilter;
+
+import org.apache.flink.streaming.api.operators.BoundedOneInput;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.operators.TableStreamOperator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Merges the runtime filters of all parallel instances of the {@link
+ * LocalRuntimeFilterBuilderOperator} into the runtime filter of the whole build side, which is
+ * broadcast to the {@link RuntimeFilterOperator}s of the probe side. This operator must run with a
+ * parallelism of one.
+ */
+public class GlobalRuntimeFilterBuilderOperator extends TableStreamOperator<RowData>
+        implements OneInputStreamOperator<RowData, RowData>, BoundedOneInput {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int expectedEntries;
+
+    private final int maxEntries;
+
+    @Nullable private transient RuntimeBloomFilter filter;
+
+    private transient boolean filterDropped;
+
+    private transient long numRows;
+
+    public GlobalRuntimeFilterBuilderOperator(int expectedEntries, int maxEntries) {
+        this.expectedEntries = expectedEntries;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        this.filter = null;
+        this.filterDropped = false;
+        this.numRows = 0;
+    }
+
+    @Override
+    public void processElement(StreamRecord<RowData> element) throws Exception {
+        RowData localFilter = element.getValue();
+        numRows += localFilter.getLong(0);
+        if (filterDropped) {
+            return;
+        }
+
+        if (localFilter.isNullAt(1) || numRows > maxEntries) {
+            filterDropped = true;
+            filter = null;
+        } else if (filter == null) {
+            filter = RuntimeBloomFilter.fromBytes(expectedEntries, localFilter.getBinary(1));
+        } else {
+            filter.merge(localFilter.getBinary(1));
+        }
+    }
+
+    @Override
+    public void endInput() throws Exception {
+        if (filter == null && !filterDropped) {
+            // the build side is empty
+            filter = RuntimeBloomFilter.create(expectedEntries);
+        }
+        output.collect(
+                new StreamRecord<>(
+                        GenericRowData.of(numRows, filter == null ? null : filter.toBytes())));
+    }
+}
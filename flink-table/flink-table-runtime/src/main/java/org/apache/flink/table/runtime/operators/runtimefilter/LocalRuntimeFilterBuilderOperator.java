@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.runtimefilter;
+
+import org.apache.flink.streaming.api.operators.BoundedOneInput;
+import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.runtime.generated.GeneratedProjection;
+import org.apache.flink.table.runtime.generated.Projection;
+import org.apache.flink.table.runtime.operators.TableStreamOperator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Builds a runtime filter from the join keys of the build side rows of a hash join in one parallel
+ * instance of the build side. The filters of all instances are merged by the {@link
+ * GlobalRuntimeFilterBuilderOperator}.
+ *
+ * <p>The operator emits a single row when its input ends, which holds the number of build side rows
+ * and the serialized {@link RuntimeBloomFilter}. The filter is null if there are too many build
+ * side rows to filter the probe side efficiently.
+ */
+public class LocalRuntimeFilterBuilderOperator extends TableStreamOperator<RowData>
+        implements OneInputStreamOperator<RowData, RowData>, BoundedOneInput {
+
+    private static final long serialVersionUID = 1L;
+
+    private final GeneratedProjection buildProjectionCode;
+
+    private final int expectedEntries;
+
+    private final int maxEntries;
+
+    private transient Projection<RowData, BinaryRowData> buildProjection;
+
+    @Nullable private transient RuntimeBloomFilter filter;
+
+    private transient long numRows;
+
+    /**
+     * @param buildProjectionCode the projection of the build side rows to the join keys.
+     * @param expectedEntries the estimated number of build side rows of all parallel instances.
+     * @param maxEntries the number of build side rows of all parallel instances above which the
+     *     filter is dropped.
+     */
+    public LocalRuntimeFilterBuilderOperator(
+            GeneratedProjection buildProjectionCode, int expectedEntries, int maxEntries) {
+        this.buildProjectionCode = buildProjectionCode;
+        this.expectedEntries = expectedEntries;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        this.buildProjection = buildProjectionCode.newInstance(getUserCodeClassloader());
+        this.filter = RuntimeBloomFilter.create(expectedEntries);
+        this.numRows = 0;
+    }
+
+    @Override
+    public void processElement(StreamRecord<RowData> element) throws Exception {
+        numRows++;
+        if (filter != null) {
+            if (numRows > maxEntries) {
+                filter = null;
+            } else {
+                filter.addHash(buildProjection.apply(element.getValue()).hashCode());
+            }
+        }
+    }
+
+    @Override
+    public void endInput() throws Exception {
+        output.collect(
+                new StreamRecord<>(
+                        GenericRowData.of(numRows, filter == null ? null : filter.toBytes())));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.runtimefilter;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.operators.util.BloomFilter;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A bloom filter over the hash codes of the join keys of the build side of a hash join, which is
+ * shipped to the probe side as a runtime filter. Filters created with the same number of expected
+ * entries have the same size and hash functions and can be merged.
+ */
+final class RuntimeBloomFilter {
+
+    /** The false positive probability of a filter which holds the expected number of entries. */
+    private static final double FPP = 0.05;
+
+    private final byte[] bits;
+
+    private final BloomFilter filter;
+
+    private RuntimeBloomFilter(int expectedEntries, byte[] bits) {
+        this.bits = bits;
+        this.filter = new BloomFilter(expectedEntries, bits.length);
+        filter.setBitsLocation(MemorySegmentFactory.wrap(bits), 0);
+    }
+
+    static RuntimeBloomFilter create(int expectedEntries) {
+        return new RuntimeBloomFilter(expectedEntries, new byte[getSizeInBytes(expectedEntries)]);
+    }
+
+    static RuntimeBloomFilter fromBytes(int expectedEntries, byte[] bits) {
+        checkArgument(
+                bits.length == getSizeInBytes(expectedEntries),
+                "The filter was created for a different number of expected entries.");
+        return new RuntimeBloomFilter(expectedEntries, bits);
+    }
+
+    static int getSizeInBytes(int expectedEntries) {
+        checkArgument(expectedEntries > 0);
+        long numBits = Math.max(BloomFilter.optimalNumOfBits(expectedEntries, FPP), Long.SIZE);
+        // round up to whole longs
+        return (int) (((numBits + Long.SIZE - 1) / Long.SIZE) * Long.BYTES);
+    }
+
+    void addHash(int hash) {
+        filter.addHash(hash);
+    }
+
+    boolean testHash(int hash) {
+        return filter.testHash(hash);
+    }
+
+    /** Adds all entries of the other filter, which has the same number of expected entries. */
+    void merge(byte[] otherBits) {
+        checkArgument(otherBits.length == bits.length);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= otherBits[i];
+        }
+    }
+
+    byte[] toBytes() {
+        return bits;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.runtimefilter;
+
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.streaming.api.operators.BoundedMultiInput;
+import org.apache.flink.streaming.api.operators.InputSelectable;
+import org.apache.flink.streaming.api.operators.InputSelection;
+import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.runtime.generated.GeneratedProjection;
+import org.apache.flink.table.runtime.generated.Projection;
+import org.apache.flink.table.runtime.operators.TableStreamOperator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Applies the runtime filter of the build side of a hash join to the probe side rows before they
+ * are shuffled to the join. The first input is the broadcast filter of the {@link
+ * GlobalRuntimeFilterBuilderOperator}, the second input are the probe side rows.
+ *
+ * <p>The filter input is read first. Probe side rows which arrive before the filter, e.g. when the
+ * operator is part of a multiple input operator, are forwarded without filtering.
+ */
+public class RuntimeFilterOperator extends TableStreamOperator<RowData>
+        implements TwoInputStreamOperator<RowData, RowData, RowData>,
+                BoundedMultiInput,
+                InputSelectable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String NUM_RECORDS_FILTERED_METRIC_NAME = "numRecordsFilteredByRuntimeFilter";
+
+    private final GeneratedProjection probeProjectionCode;
+
+    private final int expectedEntries;
+
+    private transient Projection<RowData, BinaryRowData> probeProjection;
+
+    @Nullable private transient RuntimeBloomFilter filter;
+
+    private transient boolean filterEnd;
+
+    private transient Counter numRecordsFiltered;
+
+    /**
+     * @param probeProjectionCode the projection of the probe side rows to the join keys, which must
+     *     produce the same binary keys as the projection of the build side.
+     * @param expectedEntries the number of expected entries of the filter.
+     */
+    public RuntimeFilterOperator(GeneratedProjection probeProjectionCode, int expectedEntries) {
+        this.probeProjectionCode = probeProjectionCode;
+        this.expectedEntries = expectedEntries;
+    }
+
+    @Override
+    public void open() throws Exception {
+        super.open();
+        this.probeProjection = probeProjectionCode.newInstance(getUserCodeClassloader());
+        this.filter = null;
+        this.filterEnd = false;
+        this.numRecordsFiltered = getMetricGroup().counter(NUM_RECORDS_FILTERED_METRIC_NAME);
+    }
+
+    @Override
+    public void processElement1(StreamRecord<RowData> element) throws Exception {
+        RowData globalFilter = element.getValue();
+        if (!globalFilter.isNullAt(1)) {
+            filter = RuntimeBloomFilter.fromBytes(expectedEntries, globalFilter.getBinary(1));
+        }
+    }
+
+    @Override
+    public void processElement2(StreamRecord<RowData> element) throws Exception {
+        if (filter == null
+                || filter.testHash(probeProjection.apply(element.getValue()).hashCode())) {
+            output.collect(element);
+        } else {
+            numRecordsFiltered.inc();
+        }
+    }
+
+    @Override
+    public InputSelection nextSelection() {
+        return filterEnd ? InputSelection.SECOND : InputSelection.FIRST;
+    }
+
+    @Override
+    public void endInput(int inputId) throws Exception {
+        if (inputId == 1) {
+            filterEnd = true;
+        }
+    }
+}
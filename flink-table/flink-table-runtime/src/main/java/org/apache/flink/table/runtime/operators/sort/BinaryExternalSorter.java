@@ -240,6 +240,18 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
         final int sortMemPages = (int) (reservedMemorySize / memoryManager.getPageSize());
         final long sortMemory = ((long) sortMemPages) * memoryManager.getPageSize();
 
+        // the read buffers of the merged channels are not taken from the managed memory, so the
+        // fan-in of the merges is limited to the channels which can be read with the sort memory
+        final int maxFanIn =
+                getMaxFanIn(
+                        maxNumFileHandles,
+                        sortMemory,
+                        FileChannelUtil.getInputViewMemorySize(
+                                compressionEnable,
+                                compressionCodecFactory,
+                                compressionBlockSize,
+                                memoryManager.getPageSize()));
+
         // decide how many sort buffers to use
         int numSortBuffers = 1;
         if (reservedMemorySize > 100 * 1024 * 1024L) {
@@ -253,9 +265,10 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
 
         LOG.info(
                 "BinaryExternalSorter with initial memory segments {}, "
-                        + "maxNumFileHandles({}), compressionEnable({}), compressionCodecFactory({}), compressionBlockSize({}).",
+                        + "maxNumFileHandles({}), maxFanIn({}), compressionEnable({}), compressionCodecFactory({}), compressionBlockSize({}).",
                 sortMemPages,
                 maxNumFileHandles,
+                maxFanIn,
                 compressionEnable,
                 compressionEnable ? compressionCodecFactory.getClass() : null,
                 compressionBlockSize);
@@ -310,7 +323,7 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
                 new BinaryExternalMerger(
                         ioManager,
                         memoryManager.getPageSize(),
-                        maxNumFileHandles,
+                        maxFanIn,
                         channelManager,
                         (BinaryRowDataSerializer) serializer.duplicate(),
                         comparator,
@@ -331,8 +344,7 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
                         comparator);
 
         // start the thread that handles merging from second storage
-        this.mergeThread =
-                getMergingThread(exceptionHandler, circularQueues, maxNumFileHandles, merger);
+        this.mergeThread = getMergingThread(exceptionHandler, circularQueues, maxFanIn, merger);
 
         // propagate the context class loader to the spawned threads
         ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
@@ -349,6 +361,16 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
         }
     }
 
+    /**
+     * Returns the maximal number of channels to merge at once, which is the maximal number of file
+     * handles, but at most the number of channels which can be read with the given memory and at
+     * least 2.
+     */
+    static int getMaxFanIn(int maxNumFileHandles, long memorySize, long memoryPerChannel) {
+        long numChannels = memorySize / memoryPerChannel;
+        return (int) Math.max(2, Math.min(maxNumFileHandles, numChannels));
+    }
+
     // ------------------------------------------------------------------------
     //                           Factory Methods
     // ------------------------------------------------------------------------
@@ -489,9 +511,9 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
     private MergingThread getMergingThread(
             ExceptionHandler<IOException> exceptionHandler,
             CircularQueues queues,
-            int maxNumFileHandles,
+            int maxFanIn,
             BinaryExternalMerger merger) {
-        return new MergingThread(exceptionHandler, queues, maxNumFileHandles, merger);
+        return new MergingThread(exceptionHandler, queues, maxFanIn, merger);
     }
 
     public void write(RowData current) throws IOException {
@@ -1083,10 +1105,10 @@ public class BinaryExternalSorter implements Sorter<BinaryRowData> {
         private MergingThread(
                 ExceptionHandler<IOException> exceptionHandler,
                 CircularQueues queues,
-                int maxNumFileHandles,
+                int maxFanIn,
                 BinaryExternalMerger merger) {
             super(exceptionHandler, "SortMerger merging thread", queues);
-            this.maxFanIn = maxNumFileHandles;
+            this.maxFanIn = maxFanIn;
             this.merger = merger;
         }
 
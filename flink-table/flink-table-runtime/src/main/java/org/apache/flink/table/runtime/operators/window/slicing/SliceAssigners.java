@@ -96,6 +96,32 @@ public final class SliceAssigners {
                 rowtimeIndex, shiftTimeZone, maxSize.toMillis(), step.toMillis(), 0);
     }
 
+    /**
+     * Creates a {@link SliceAssigner} that assigns elements to the slices shared by multiple
+     * tumbling and hopping windows, e.g. tumbling windows of 1 minute, 5 minutes and 1 hour.
+     *
+     * @param rowtimeIndex the index of rowtime field in the input row, {@code -1} if based on
+     *     processing time.
+     * @param shiftTimeZone The shift timezone of the window, if the proctime or rowtime type is
+     *     TIMESTAMP_LTZ, the shift timezone is the timezone user configured in TableConfig, other
+     *     cases the timezone is UTC which means never shift when assigning windows.
+     * @param sizes the sizes of the windows.
+     * @param slides the slide intervals of the windows, the slide of a tumbling window is its size.
+     */
+    public static MultiWindowSliceAssigner multiWindows(
+            int rowtimeIndex, ZoneId shiftTimeZone, Duration[] sizes, Duration[] slides) {
+        checkArgument(
+                sizes.length > 0 && sizes.length == slides.length,
+                "Multiple windows require a slide for every window size.");
+        long[] sizeMillis = new long[sizes.length];
+        long[] slideMillis = new long[slides.length];
+        for (int i = 0; i < sizes.length; i++) {
+            sizeMillis[i] = sizes[i].toMillis();
+            slideMillis[i] = slides[i].toMillis();
+        }
+        return new MultiWindowSliceAssigner(rowtimeIndex, shiftTimeZone, sizeMillis, slideMillis);
+    }
+
     /**
      * Creates a {@link SliceAssigner} that assigns elements which has been attached window start
      * and window end timestamp to slices. The assigned slice is equal to the given window.
@@ -381,6 +407,130 @@ public final class SliceAssigners {
         }
     }
 
+    /**
+     * The {@link SliceAssigner} for multiple tumbling and hopping windows, which are all merged
+     * from the same slices. The slice size is the greatest common divisor of all window sizes and
+     * slides.
+     *
+     * <p>As windows of different sizes may end at the same time, a window is identified by its
+     * index and its end timestamp, see {@link #getWindowStart(int, long)}. This assigner is neither
+     * a {@link SliceSharedAssigner} nor a {@link SliceUnsharedAssigner}, the windows are merged
+     * from the slices by the {@code MultiWindowAggProcessor}.
+     */
+    public static final class MultiWindowSliceAssigner extends AbstractSliceAssigner {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] sizes;
+        private final long[] slides;
+        private final long sliceSize;
+        private final long maxSize;
+        private final ReusableListIterable reuseExpiredList = new ReusableListIterable();
+
+        private MultiWindowSliceAssigner(
+                int rowtimeIndex, ZoneId shiftTimeZone, long[] sizes, long[] slides) {
+            super(rowtimeIndex, shiftTimeZone);
+            long sliceSize = 0;
+            long maxSize = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                if (sizes[i] <= 0 || slides[i] <= 0 || sizes[i] % slides[i] != 0) {
+                    throw new IllegalArgumentException(
+                            String.format(
+                                    "Multiple windows require slide > 0 and size > 0 and that the size is an integral multiple of the slide, but got slide %dms and size %dms.",
+                                    slides[i], sizes[i]));
+                }
+                sliceSize =
+                        ArithmeticUtils.gcd(sliceSize, ArithmeticUtils.gcd(sizes[i], slides[i]));
+                maxSize = Math.max(maxSize, sizes[i]);
+            }
+            this.sizes = sizes;
+            this.slides = slides;
+            this.sliceSize = sliceSize;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public long assignSliceEnd(long timestamp) {
+            long start = TimeWindow.getWindowStartWithOffset(timestamp, 0, sliceSize);
+            return start + sliceSize;
+        }
+
+        /** Returns the number of windows. */
+        public int getNumWindows() {
+            return sizes.length;
+        }
+
+        /** Returns whether a window of the given index ends at the given slice end. */
+        public boolean isWindowEnd(int window, long sliceEnd) {
+            return TimeWindow.getWindowStartWithOffset(sliceEnd, 0, slides[window]) == sliceEnd;
+        }
+
+        /** Returns the start timestamp of the window of the given index and end timestamp. */
+        public long getWindowStart(int window, long windowEnd) {
+            return windowEnd - sizes[window];
+        }
+
+        /**
+         * Returns the end timestamp of the first window of the given index containing the slice.
+         */
+        public long getFirstWindowEnd(int window, long sliceEnd) {
+            return TimeWindow.getWindowStartWithOffset(sliceEnd - 1, 0, slides[window])
+                    + slides[window];
+        }
+
+        /** Returns the end timestamp of the last window of the given index containing the slice. */
+        public long getLastWindowEnd(int window, long sliceEnd) {
+            return TimeWindow.getWindowStartWithOffset(
+                    sliceEnd - sliceSize + sizes[window], 0, slides[window]);
+        }
+
+        /** Returns the slide interval of the window of the given index. */
+        public long getWindowSlide(int window) {
+            return slides[window];
+        }
+
+        @Override
+        public long getLastWindowEnd(long sliceEnd) {
+            long lastWindowEnd = Long.MIN_VALUE;
+            for (int i = 0; i < sizes.length; i++) {
+                lastWindowEnd = Math.max(lastWindowEnd, getLastWindowEnd(i, sliceEnd));
+            }
+            return lastWindowEnd;
+        }
+
+        /**
+         * Returns the start timestamp of the largest window which ends at the given timestamp, or
+         * the start of the slice if no window ends at the given timestamp. Use {@link
+         * #getWindowStart(int, long)} for the window of a given index.
+         */
+        @Override
+        public long getWindowStart(long windowEnd) {
+            long windowStart = windowEnd - sliceSize;
+            for (int i = 0; i < sizes.length; i++) {
+                if (isWindowEnd(i, windowEnd)) {
+                    windowStart = Math.min(windowStart, getWindowStart(i, windowEnd));
+                }
+            }
+            return windowStart;
+        }
+
+        @Override
+        public Iterable<Long> expiredSlices(long windowEnd) {
+            // the slices of which the given window is the last window of all sizes
+            reuseExpiredList.clear();
+            for (long sliceEnd = windowEnd; sliceEnd > windowEnd - maxSize; sliceEnd -= sliceSize) {
+                if (getLastWindowEnd(sliceEnd) == windowEnd) {
+                    reuseExpiredList.add(sliceEnd);
+                }
+            }
+            return reuseExpiredList;
+        }
+
+        @Override
+        public long getSliceEndInterval() {
+            return sliceSize;
+        }
+    }
+
     /**
      * The {@link SliceAssigner} for elements have been attached window start and end timestamps.
      */
@@ -595,6 +745,10 @@ public final class SliceAssigners {
             index = 0;
         }
 
+        public void add(Long slice) {
+            values.add(slice);
+        }
+
         @Override
         public Iterator<Long> iterator() {
             index = 0;
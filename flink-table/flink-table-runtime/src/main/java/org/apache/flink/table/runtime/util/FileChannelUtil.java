@@ -79,6 +79,27 @@ public class FileChannelUtil {
         }
     }
 
+    /**
+     * Returns the number of bytes which an input view created by {@link #createInputView} allocates
+     * to read a channel.
+     */
+    public static long getInputViewMemorySize(
+            boolean compressionEnable,
+            BlockCompressionFactory compressionCodecFactory,
+            int compressionBlockSize,
+            int segmentSize) {
+        if (compressionEnable) {
+            // the uncompressed block and two compressed blocks which are read asynchronously
+            int maxCompressedSize =
+                    compressionCodecFactory
+                            .getCompressor()
+                            .getMaxCompressedSize(compressionBlockSize);
+            return compressionBlockSize + 2L * maxCompressedSize;
+        } else {
+            return 2L * segmentSize;
+        }
+    }
+
     public static AbstractChannelWriterOutputView createOutputView(
             IOManager ioManager,
             FileIOChannel.ID channel,
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.filesystem;
+
+import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.data.vector.ColumnVector;
+import org.apache.flink.table.data.vector.VectorizedColumnBatch;
+import org.apache.flink.table.data.vector.heap.HeapBooleanVector;
+import org.apache.flink.table.data.vector.heap.HeapBytesVector;
+import org.apache.flink.table.data.vector.heap.HeapDoubleVector;
+import org.apache.flink.table.data.vector.heap.HeapIntVector;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.DataType;
+import org.apache.flink.table.types.logical.BooleanType;
+import org.apache.flink.table.types.logical.DoubleType;
+import org.apache.flink.table.types.logical.IntType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarCharType;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+/** Tests for {@link ColumnarBatchFilters}. */
+public class ColumnarBatchFiltersTest {
+
+    private static final int NUM_ROWS = 100;
+
+    private static final RowType ROW_TYPE =
+            RowType.of(
+                    new LogicalType[] {
+                        new IntType(),
+                        new DoubleType(),
+                        new VarCharType(VarCharType.MAX_LENGTH),
+                        new BooleanType()
+                    },
+                    new String[] {"i", "d", "s", "b"});
+
+    private static final FieldReferenceExpression I = field("i", DataTypes.INT(), 0);
+    private static final FieldReferenceExpression D = field("d", DataTypes.DOUBLE(), 1);
+    private static final FieldReferenceExpression S = field("s", DataTypes.STRING(), 2);
+    private static final FieldReferenceExpression B = field("b", DataTypes.BOOLEAN(), 3);
+
+    /** Every 10th row is null, the other rows have the values i, i / 2, "i" and i % 3 == 0. */
+    private final VectorizedColumnBatch batch = createBatch();
+
+    @Test
+    public void testComparisons() {
+        assertSelected(
+                IntStream.range(91, NUM_ROWS).filter(i -> i % 10 != 0),
+                call(BuiltInFunctionDefinitions.GREATER_THAN, I, literal(90)));
+        // the literal is the left operand
+        assertSelected(
+                IntStream.range(1, 5),
+                call(BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL, literal(2.0), D));
+        assertSelected(IntStream.of(42), call(BuiltInFunctionDefinitions.EQUALS, S, literal("42")));
+        // strings are compared by their bytes
+        assertSelected(
+                IntStream.range(0, NUM_ROWS)
+                        .filter(i -> i % 10 != 0 && String.valueOf(i).compareTo("9") >= 0),
+                call(BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL, S, literal("9")));
+        assertSelected(
+                IntStream.range(0, NUM_ROWS).filter(i -> i % 10 != 0 && i != 3),
+                call(BuiltInFunctionDefinitions.NOT_EQUALS, I, literal(3)));
+        // a boolean column
+        assertSelected(IntStream.range(0, NUM_ROWS).filter(i -> i % 10 != 0 && i % 3 == 0), B);
+    }
+
+    @Test
+    public void testNulls() {
+        assertSelected(
+                IntStream.range(0, NUM_ROWS).filter(i -> i % 10 == 0),
+                call(BuiltInFunctionDefinitions.IS_NULL, I));
+        assertSelected(
+                IntStream.range(0, NUM_ROWS).filter(i -> i % 10 != 0),
+                call(BuiltInFunctionDefinitions.IS_NOT_NULL, S));
+    }
+
+    @Test
+    public void testAndOr() {
+        ResolvedExpression lessThan5 = call(BuiltInFunctionDefinitions.LESS_THAN, I, literal(5));
+        ResolvedExpression greaterThan95 =
+                call(BuiltInFunctionDefinitions.GREATER_THAN, I, literal(95));
+        ResolvedExpression odd =
+                call(
+                        BuiltInFunctionDefinitions.OR,
+                        call(BuiltInFunctionDefinitions.EQUALS, I, literal(1)),
+                        call(BuiltInFunctionDefinitions.EQUALS, I, literal(3)),
+                        call(BuiltInFunctionDefinitions.EQUALS, I, literal(97)),
+                        call(BuiltInFunctionDefinitions.EQUALS, I, literal(99)));
+
+        assertSelected(
+                IntStream.of(1, 2, 3, 4, 96, 97, 98, 99),
+                call(BuiltInFunctionDefinitions.OR, greaterThan95, lessThan5));
+        assertSelected(
+                IntStream.of(1, 3, 97, 99),
+                call(
+                        BuiltInFunctionDefinitions.AND,
+                        call(BuiltInFunctionDefinitions.OR, lessThan5, greaterThan95),
+                        odd));
+        // the filters of the list are a conjunction
+        ColumnarBatchFilter filter =
+                ColumnarBatchFilters.create(Arrays.asList(lessThan5, odd), ROW_TYPE).get();
+        assertArrayEquals(new int[] {1, 3}, apply(filter));
+    }
+
+    @Test
+    public void testUnsupportedFilters() {
+        ResolvedExpression unsupported =
+                call(
+                        BuiltInFunctionDefinitions.EQUALS,
+                        I,
+                        call(BuiltInFunctionDefinitions.PLUS, I, literal(1)));
+        assertFalse(
+                ColumnarBatchFilters.create(Collections.singletonList(unsupported), ROW_TYPE)
+                        .isPresent());
+        // a literal of another type family
+        assertFalse(
+                ColumnarBatchFilters.create(
+                                Collections.singletonList(
+                                        call(BuiltInFunctionDefinitions.EQUALS, I, literal("1"))),
+                                ROW_TYPE)
+                        .isPresent());
+        // an OR is only supported if all of its operands are supported
+        assertFalse(
+                ColumnarBatchFilters.create(
+                                Collections.singletonList(
+                                        call(
+                                                BuiltInFunctionDefinitions.OR,
+                                                call(
+                                                        BuiltInFunctionDefinitions.EQUALS,
+                                                        I,
+                                                        literal(1)),
+                                                unsupported)),
+                                ROW_TYPE)
+                        .isPresent());
+        // unsupported operands of an AND are ignored
+        assertSelected(
+                IntStream.range(1, 5),
+                call(
+                        BuiltInFunctionDefinitions.AND,
+                        call(BuiltInFunctionDefinitions.LESS_THAN, I, literal(5)),
+                        unsupported));
+    }
+
+    // ------------------------------------------------------------------------------------------
+
+    private void assertSelected(IntStream expected, ResolvedExpression expression) {
+        ColumnarBatchFilter filter =
+                ColumnarBatchFilters.create(Collections.singletonList(expression), ROW_TYPE).get();
+        assertArrayEquals(expected.toArray(), apply(filter));
+    }
+
+    private int[] apply(ColumnarBatchFilter filter) {
+        int[] selected = new int[NUM_ROWS];
+        int numSelected =
+                filter.filter(batch, selected, ColumnarBatchFilters.selectAll(selected, NUM_ROWS));
+        return Arrays.copyOf(selected, numSelected);
+    }
+
+    private static VectorizedColumnBatch createBatch() {
+        HeapIntVector ints = new HeapIntVector(NUM_ROWS);
+        HeapDoubleVector doubles = new HeapDoubleVector(NUM_ROWS);
+        HeapBytesVector strings = new HeapBytesVector(NUM_ROWS);
+        HeapBooleanVector booleans = new HeapBooleanVector(NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            byte[] bytes = String.valueOf(i).getBytes(StandardCharsets.UTF_8);
+            if (i % 10 == 0) {
+                ints.setNullAt(i);
+                doubles.setNullAt(i);
+                strings.setNullAt(i);
+                booleans.setNullAt(i);
+                strings.appendBytes(i, bytes, 0, 0);
+            } else {
+                ints.setInt(i, i);
+                doubles.setDouble(i, i / 2.0);
+                strings.appendBytes(i, bytes, 0, bytes.length);
+                booleans.setBoolean(i, i % 3 == 0);
+            }
+        }
+        VectorizedColumnBatch batch =
+                new VectorizedColumnBatch(new ColumnVector[] {ints, doubles, strings, booleans});
+        batch.setNumRows(NUM_ROWS);
+        return batch;
+    }
+
+    private static FieldReferenceExpression field(String name, DataType type, int index) {
+        return new FieldReferenceExpression(name, type, 0, index);
+    }
+
+    private static ValueLiteralExpression literal(Object value) {
+        return new ValueLiteralExpression(value);
+    }
+
+    private static CallExpression call(FunctionDefinition function, ResolvedExpression... args) {
+        return new CallExpression(function, Arrays.asList(args), DataTypes.BOOLEAN());
+    }
+}
@@ -559,52 +559,66 @@ public class BinaryHashTableTest {
     }
 
     /*
-     * This test is basically identical to the "testSpillingHashJoinWithMassiveCollisions" test, only that the number
-     * of repeated values (causing bucket collisions) are large enough to make sure that their target partition no longer
-     * fits into memory by itself and needs to be repartitioned in the recursion again.
+     * The number of repeated values of a single key is large enough to make sure that their target
+     * partition no longer fits into memory after the maximum number of recursions, so that the
+     * partition is joined in chunks of its build side.
      */
     @Test
-    public void testFailingHashJoinTooManyRecursions() throws IOException {
-        // the following two values are known to have a hash-code collision on the first recursion
-        // level.
-        // we use them to make sure one partition grows over-proportionally large
-        final int repeatedValue1 = 40559;
-        final int repeatedValue2 = 92882;
-        final int repeatedValueCount = 3000000;
+    public void testSkewedPartitionIsJoinedInChunks() throws IOException {
+        final int numKeys = 10000;
+        final int buildValsPerKey = 2;
+        final int probeValsPerKey = 2;
+        final int repeatedValue = 40559;
+        final int repeatedBuildValueCount = 300000;
+        final int repeatedProbeValueCount = 3;
 
-        final int numKeys = 1000000;
-        final int buildValsPerKey = 3;
-        final int probeValsPerKey = 10;
+        MemoryManager memManager =
+                MemoryManagerBuilder.newBuilder().setMemorySize(64 * PAGE_SIZE).build();
+        final BinaryHashTable table =
+                newBinaryHashTable(
+                        this.buildSideSerializer,
+                        this.probeSideSerializer,
+                        new MyProjection(),
+                        new MyProjection(),
+                        memManager,
+                        64 * PAGE_SIZE,
+                        ioManager);
 
-        // create a build input that gives 3 million pairs with 3 values sharing the same key, plus
-        // 400k pairs with two colliding keys
-        MutableObjectIterator<BinaryRowData> build1 =
-                new UniformBinaryRowGenerator(numKeys, buildValsPerKey, false);
-        MutableObjectIterator<BinaryRowData> build2 =
-                new ConstantsKeyValuePairsIterator(repeatedValue1, 17, repeatedValueCount);
-        MutableObjectIterator<BinaryRowData> build3 =
-                new ConstantsKeyValuePairsIterator(repeatedValue2, 23, repeatedValueCount);
-        List<MutableObjectIterator<BinaryRowData>> builds = new ArrayList<>();
-        builds.add(build1);
-        builds.add(build2);
-        builds.add(build3);
-        MutableObjectIterator<BinaryRowData> buildInput = new UnionIterator<>(builds);
+        int numRecordsInJoinResult =
+                join(
+                        table,
+                        skewedInput(
+                                numKeys,
+                                buildValsPerKey,
+                                false,
+                                repeatedValue,
+                                repeatedBuildValueCount),
+                        skewedInput(
+                                numKeys,
+                                probeValsPerKey,
+                                true,
+                                repeatedValue,
+                                repeatedProbeValueCount));
+
+        Assert.assertEquals(
+                "Wrong number of records in join result.",
+                numKeys * buildValsPerKey * probeValsPerKey
+                        + repeatedBuildValueCount * repeatedProbeValueCount,
+                numRecordsInJoinResult);
+
+        table.close();
+        table.free();
+    }
+
+    @Test
+    public void testSkewedPartitionIsJoinedInChunksWithBuildSideOuterJoin() throws IOException {
+        final int numKeys = 10000;
+        final int repeatedValue = 40559;
+        final int repeatedBuildValueCount = 300000;
+        final int repeatedProbeValueCount = 3;
 
-        // create a probe input that gives 10 million pairs with 10 values sharing a key
-        MutableObjectIterator<BinaryRowData> probe1 =
-                new UniformBinaryRowGenerator(numKeys, probeValsPerKey, true);
-        MutableObjectIterator<BinaryRowData> probe2 =
-                new ConstantsKeyValuePairsIterator(repeatedValue1, 17, repeatedValueCount);
-        MutableObjectIterator<BinaryRowData> probe3 =
-                new ConstantsKeyValuePairsIterator(repeatedValue2, 23, repeatedValueCount);
-        List<MutableObjectIterator<BinaryRowData>> probes = new ArrayList<>();
-        probes.add(probe1);
-        probes.add(probe2);
-        probes.add(probe3);
-        MutableObjectIterator<BinaryRowData> probeInput = new UnionIterator<>(probes);
-        // ----------------------------------------------------------------------------------------
         MemoryManager memManager =
-                MemoryManagerBuilder.newBuilder().setMemorySize(896 * PAGE_SIZE).build();
+                MemoryManagerBuilder.newBuilder().setMemorySize(64 * PAGE_SIZE).build();
         final BinaryHashTable table =
                 newBinaryHashTable(
                         this.buildSideSerializer,
@@ -612,11 +626,50 @@ public class BinaryHashTableTest {
                         new MyProjection(),
                         new MyProjection(),
                         memManager,
-                        896 * PAGE_SIZE,
-                        ioManager);
+                        64 * PAGE_SIZE,
+                        ioManager,
+                        HashJoinType.BUILD_OUTER);
+
+        // only half of the build side keys have probe side rows
+        int numRecordsInJoinResult =
+                join(
+                        table,
+                        skewedInput(2 * numKeys, 1, false, repeatedValue, repeatedBuildValueCount),
+                        skewedInput(numKeys, 1, true, repeatedValue, repeatedProbeValueCount),
+                        true);
+
+        Assert.assertEquals(
+                "Wrong number of records in join result.",
+                2 * numKeys + repeatedBuildValueCount * repeatedProbeValueCount,
+                numRecordsInJoinResult);
+
+        table.close();
+        table.free();
+    }
+
+    @Test
+    public void testFailingHashJoinTooManyRecursions() throws IOException {
+        final int repeatedValue = 40559;
+
+        MemoryManager memManager =
+                MemoryManagerBuilder.newBuilder().setMemorySize(64 * PAGE_SIZE).build();
+        // a probe side outer join cannot be joined in chunks of the build side
+        final BinaryHashTable table =
+                newBinaryHashTable(
+                        this.buildSideSerializer,
+                        this.probeSideSerializer,
+                        new MyProjection(),
+                        new MyProjection(),
+                        memManager,
+                        64 * PAGE_SIZE,
+                        ioManager,
+                        HashJoinType.PROBE_OUTER);
 
         try {
-            join(table, buildInput, probeInput);
+            join(
+                    table,
+                    skewedInput(10000, 2, false, repeatedValue, 300000),
+                    skewedInput(10000, 2, true, repeatedValue, 3));
             fail("Hash Join must have failed due to too many recursions.");
         } catch (Exception ex) {
             // expected
@@ -629,6 +682,14 @@ public class BinaryHashTableTest {
         table.free();
     }
 
+    private static MutableObjectIterator<BinaryRowData> skewedInput(
+            int numKeys, int valsPerKey, boolean repeatVals, int repeatedValue, int repeatCount) {
+        List<MutableObjectIterator<BinaryRowData>> inputs = new ArrayList<>();
+        inputs.add(new UniformBinaryRowGenerator(numKeys, valsPerKey, repeatVals));
+        inputs.add(new ConstantsKeyValuePairsIterator(repeatedValue, 17, repeatCount));
+        return new UnionIterator<>(inputs);
+    }
+
     /*
      * Spills build records, so that probe records are also spilled. But only so
      * few probe records are used that some partitions remain empty.
@@ -1124,6 +1185,26 @@ public class BinaryHashTableTest {
             MemoryManager memoryManager,
             long memory,
             IOManager ioManager) {
+        return newBinaryHashTable(
+                buildSideSerializer,
+                probeSideSerializer,
+                buildSideProjection,
+                probeSideProjection,
+                memoryManager,
+                memory,
+                ioManager,
+                HashJoinType.INNER);
+    }
+
+    private BinaryHashTable newBinaryHashTable(
+            BinaryRowDataSerializer buildSideSerializer,
+            BinaryRowDataSerializer probeSideSerializer,
+            Projection<RowData, BinaryRowData> buildSideProjection,
+            Projection<RowData, BinaryRowData> probeSideProjection,
+            MemoryManager memoryManager,
+            long memory,
+            IOManager ioManager,
+            HashJoinType type) {
         return new BinaryHashTable(
                 conf,
                 new Object(),
@@ -1137,7 +1218,7 @@ public class BinaryHashTableTest {
                 24,
                 200000,
                 true,
-                HashJoinType.INNER,
+                type,
                 null,
                 false,
                 new boolean[] {true},
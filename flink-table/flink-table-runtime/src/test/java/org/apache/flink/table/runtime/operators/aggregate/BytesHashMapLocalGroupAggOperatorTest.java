@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.table.runtime.operators.aggregate;
+
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.generated.AggsHandleFunction;
+import org.apache.flink.table.runtime.generated.GeneratedAggsHandleFunction;
+import org.apache.flink.table.runtime.keyselector.RowDataKeySelector;
+import org.apache.flink.table.runtime.operators.over.SumAggsHandleFunction;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.runtime.util.RowDataHarnessAssertor;
+import org.apache.flink.table.types.logical.BigIntType;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.VarCharType;
+import org.apache.flink.table.utils.HandwrittenSelectorUtil;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.flink.table.runtime.operators.bundle.AbstractMapBundleOperator.REDUCTION_RATIO_SAMPLE_SIZE;
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.deleteRecord;
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link BytesHashMapLocalGroupAggOperator}. */
+public class BytesHashMapLocalGroupAggOperatorTest {
+
+    private static final LogicalType[] INPUT_TYPES =
+            new LogicalType[] {new VarCharType(VarCharType.MAX_LENGTH), new BigIntType()};
+
+    private static final LogicalType[] ACC_TYPES = new LogicalType[] {new BigIntType()};
+
+    private final RowDataKeySelector keySelector =
+            HandwrittenSelectorUtil.getRowDataSelector(new int[] {0}, INPUT_TYPES);
+
+    private static final LogicalType[] OUTPUT_TYPES =
+            new LogicalType[] {new VarCharType(VarCharType.MAX_LENGTH), new BigIntType()};
+
+    private final RowDataHarnessAssertor assertor = new RowDataHarnessAssertor(OUTPUT_TYPES);
+
+    @Test
+    public void testAccumulatorsAreUpdatedInPlace() throws Exception {
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness = createTestHarness();
+        testHarness.open();
+
+        testHarness.processElement(insertRecord("a", 1L));
+        testHarness.processElement(insertRecord("b", 2L));
+        testHarness.processElement(insertRecord("a", 3L));
+        testHarness.processElement(deleteRecord("b", 2L));
+        testHarness.processElement(insertRecord("a", 5L));
+        assertTrue(testHarness.getOutput().isEmpty());
+
+        testHarness.processWatermark(new Watermark(1L));
+        List<Object> expected = new ArrayList<>();
+        expected.add(insertRecord("a", 9L));
+        expected.add(insertRecord("b", 0L));
+        expected.add(new Watermark(1L));
+        assertor.assertOutputEqualsSorted("output wrong.", expected, testHarness.getOutput());
+
+        // the bundle is empty after it has been finished
+        testHarness.processElement(insertRecord("a", 1L));
+        testHarness.prepareSnapshotPreBarrier(1L);
+        expected.add(insertRecord("a", 1L));
+        assertor.assertOutputEqualsSorted("output wrong.", expected, testHarness.getOutput());
+        testHarness.close();
+    }
+
+    @Test
+    public void testBundleIsFinishedWhenMemoryIsExhausted() throws Exception {
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness = createTestHarness();
+        testHarness.open();
+
+        int numKeys = 200_000;
+        for (int i = 0; i < numKeys; i++) {
+            testHarness.processElement(insertRecord("key" + i, 1L));
+            testHarness.processElement(insertRecord("key" + i, (long) i));
+        }
+        // the managed memory of the test harness cannot hold all keys
+        int numEmitted = testHarness.getOutput().size();
+        assertTrue(numEmitted > 0 && numEmitted < numKeys);
+
+        testHarness.endInput();
+        testHarness.close();
+
+        Map<String, Long> sums = new HashMap<>();
+        for (RowData row : testHarness.extractOutputValues()) {
+            sums.merge(row.getString(0).toString(), row.getLong(1), Long::sum);
+        }
+        assertEquals(numKeys, sums.size());
+        for (int i = 0; i < numKeys; i++) {
+            assertEquals(Long.valueOf(i + 1L), sums.get("key" + i));
+        }
+    }
+
+    @Test
+    public void testPassThroughWhileRowsAreNotReduced() throws Exception {
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                createTestHarness(
+                        new BytesHashMapLocalGroupAggOperator(
+                                wrapGenerated(new SumAggsHandleFunction(1)),
+                                keySelector,
+                                ACC_TYPES,
+                                0.5,
+                                10));
+        testHarness.open();
+
+        // unique keys are not reduced by the bundles
+        int sampleSize = REDUCTION_RATIO_SAMPLE_SIZE;
+        for (int i = 0; i < sampleSize; i++) {
+            testHarness.processElement(insertRecord("k" + i, 1L));
+        }
+        testHarness.processWatermark(new Watermark(1L));
+        assertEquals(sampleSize + 1, testHarness.getOutput().size());
+        testHarness.getOutput().clear();
+
+        // the next rows are passed through one by one
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            testHarness.processElement(insertRecord("a", (long) i));
+            expected.add(insertRecord("a", (long) i));
+            assertor.assertOutputEquals("output wrong.", expected, testHarness.getOutput());
+        }
+
+        // afterwards the bundling is probed again, repeated keys are reduced
+        testHarness.processElement(insertRecord("a", 1L));
+        testHarness.processElement(insertRecord("a", 2L));
+        assertor.assertOutputEquals("output wrong.", expected, testHarness.getOutput());
+        testHarness.processWatermark(new Watermark(2L));
+        expected.add(insertRecord("a", 3L));
+        expected.add(new Watermark(2L));
+        assertor.assertOutputEquals("output wrong.", expected, testHarness.getOutput());
+        testHarness.close();
+    }
+
+    private OneInputStreamOperatorTestHarness<RowData, RowData> createTestHarness()
+            throws Exception {
+        return createTestHarness(
+                new BytesHashMapLocalGroupAggOperator(
+                        wrapGenerated(new SumAggsHandleFunction(1)), keySelector, ACC_TYPES));
+    }
+
+    private OneInputStreamOperatorTestHarness<RowData, RowData> createTestHarness(
+            BytesHashMapLocalGroupAggOperator operator) throws Exception {
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                new OneInputStreamOperatorTestHarness<>(operator);
+        testHarness.setup(new RowDataSerializer(OUTPUT_TYPES));
+        return testHarness;
+    }
+
+    private static GeneratedAggsHandleFunction wrapGenerated(AggsHandleFunction function) {
+        return new GeneratedAggsHandleFunction("N/A", "N/A", new Object[0]) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public AggsHandleFunction newInstance(ClassLoader classLoader) {
+                return function;
+            }
+        };
+    }
+}
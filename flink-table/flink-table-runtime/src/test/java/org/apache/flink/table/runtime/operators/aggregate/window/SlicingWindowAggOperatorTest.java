@@ -41,6 +41,7 @@ import org.apache.flink.table.types.logical.BigIntType;
 import org.apache.flink.table.types.logical.IntType;
 import org.apache.flink.table.types.logical.LogicalType;
 import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.TimestampType;
 import org.apache.flink.table.types.logical.VarCharType;
 import org.apache.flink.table.utils.HandwrittenSelectorUtil;
 
@@ -52,14 +53,18 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.flink.core.testutils.FlinkMatchers.containsMessage;
 import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
 import static org.apache.flink.table.runtime.util.TimeWindowUtil.toUtcTimestampMills;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -221,6 +226,194 @@ public class SlicingWindowAggOperatorTest {
         testHarness.close();
     }
 
+    @Test
+    public void testEventTimeMultipleWindows() throws Exception {
+        // tumbling windows of 1s and 3s and hopping windows of 2s sliding by 1s
+        final SliceAssigner assigner =
+                SliceAssigners.multiWindows(
+                        2,
+                        shiftTimeZone,
+                        new Duration[] {
+                            Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(2)
+                        },
+                        new Duration[] {
+                            Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(1)
+                        });
+        // the window properties of the function are not used, the processor appends them
+        final SumAndCountAggsFunction aggsFunction =
+                new SumAndCountAggsFunction(
+                        SliceAssigners.tumbling(2, shiftTimeZone, Duration.ofSeconds(1)));
+        SlicingWindowOperator<RowData, ?> operator =
+                SlicingWindowAggOperatorBuilder.builder()
+                        .inputSerializer(INPUT_ROW_SER)
+                        .shiftTimeZone(shiftTimeZone)
+                        .keySerializer(KEY_SER)
+                        .assigner(assigner)
+                        .aggregate(wrapGenerated(aggsFunction), ACC_SER)
+                        .countStarIndex(1)
+                        .build();
+
+        TypeSerializer<RowData> outSerializer =
+                new RowDataSerializer(
+                        new VarCharType(Integer.MAX_VALUE),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new TimestampType(3),
+                        new TimestampType(3),
+                        new IntType());
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                createTestHarness(operator);
+        testHarness.setup(outSerializer);
+        testHarness.open();
+
+        testHarness.processElement(insertRecord("key1", 1, 0L));
+        testHarness.processElement(insertRecord("key1", 1, 999L));
+        testHarness.processElement(insertRecord("key1", 1, 2500L));
+        testHarness.processElement(insertRecord("key2", 1, 1500L));
+
+        testHarness.processWatermark(new Watermark(999));
+        assertThat(
+                multiWindowResults(testHarness),
+                containsInAnyOrder(
+                        window("key1", 2, -1000, 1000, 2), window("key1", 2, 0, 1000, 0)));
+
+        testHarness.processWatermark(new Watermark(1999));
+        assertThat(
+                multiWindowResults(testHarness),
+                containsInAnyOrder(
+                        window("key1", 2, 0, 2000, 2),
+                        window("key2", 1, 1000, 2000, 0),
+                        window("key2", 1, 0, 2000, 2)));
+
+        // late for the windows ending at 1s and 2s, but accumulated into [0s, 3s)
+        testHarness.processElement(insertRecord("key2", 1, 800L));
+
+        // do a snapshot, close and restore again
+        testHarness.prepareSnapshotPreBarrier(0L);
+        OperatorSubtaskState snapshot = testHarness.snapshot(0L, 0);
+        testHarness.close();
+
+        testHarness = createTestHarness(operator);
+        testHarness.setup(outSerializer);
+        testHarness.initializeState(snapshot);
+        testHarness.open();
+
+        testHarness.processWatermark(new Watermark(2999));
+        assertThat(
+                multiWindowResults(testHarness),
+                containsInAnyOrder(
+                        window("key1", 1, 2000, 3000, 0),
+                        window("key1", 3, 0, 3000, 1),
+                        window("key1", 1, 1000, 3000, 2),
+                        window("key2", 2, 0, 3000, 1),
+                        window("key2", 1, 1000, 3000, 2)));
+
+        // late for all windows, should be dropped
+        testHarness.processElement(insertRecord("key2", 1, 500L));
+
+        testHarness.processWatermark(new Watermark(3999));
+        assertThat(
+                multiWindowResults(testHarness),
+                containsInAnyOrder(window("key1", 1, 2000, 4000, 2)));
+
+        testHarness.processWatermark(new Watermark(9999));
+        assertThat(multiWindowResults(testHarness), empty());
+        assertEquals(1, operator.getNumLateRecordsDropped().getCount());
+        testHarness.close();
+    }
+
+    @Test
+    public void testEventTimeMultipleWindowsFiredByOneWatermark() throws Exception {
+        // tumbling windows of 1s and 3s and hopping windows of 2s sliding by 1s
+        final SliceAssigner assigner =
+                SliceAssigners.multiWindows(
+                        2,
+                        shiftTimeZone,
+                        new Duration[] {
+                            Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(2)
+                        },
+                        new Duration[] {
+                            Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(1)
+                        });
+        final SumAndCountAggsFunction aggsFunction =
+                new SumAndCountAggsFunction(
+                        SliceAssigners.tumbling(2, shiftTimeZone, Duration.ofSeconds(1)));
+        SlicingWindowOperator<RowData, ?> operator =
+                SlicingWindowAggOperatorBuilder.builder()
+                        .inputSerializer(INPUT_ROW_SER)
+                        .shiftTimeZone(shiftTimeZone)
+                        .keySerializer(KEY_SER)
+                        .assigner(assigner)
+                        .aggregate(wrapGenerated(aggsFunction), ACC_SER)
+                        .countStarIndex(1)
+                        .build();
+
+        TypeSerializer<RowData> outSerializer =
+                new RowDataSerializer(
+                        new VarCharType(Integer.MAX_VALUE),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new BigIntType(),
+                        new TimestampType(3),
+                        new TimestampType(3),
+                        new IntType());
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                createTestHarness(operator);
+        testHarness.setup(outSerializer);
+        testHarness.open();
+
+        testHarness.processElement(insertRecord("key1", 1, 0L));
+        testHarness.processElement(insertRecord("key1", 1, 999L));
+        testHarness.processElement(insertRecord("key1", 1, 2500L));
+        testHarness.processElement(insertRecord("key2", 1, 1500L));
+
+        // the watermark passes the ends of all windows at once, e.g. at the end of the input,
+        // the windows which end after the last slices must fire nonetheless
+        testHarness.processWatermark(new Watermark(Long.MAX_VALUE));
+        assertThat(
+                multiWindowResults(testHarness),
+                containsInAnyOrder(
+                        window("key1", 2, 0, 1000, 0),
+                        window("key1", 1, 2000, 3000, 0),
+                        window("key1", 3, 0, 3000, 1),
+                        window("key1", 2, -1000, 1000, 2),
+                        window("key1", 2, 0, 2000, 2),
+                        window("key1", 1, 1000, 3000, 2),
+                        window("key1", 1, 2000, 4000, 2),
+                        window("key2", 1, 1000, 2000, 0),
+                        window("key2", 1, 0, 3000, 1),
+                        window("key2", 1, 0, 2000, 2),
+                        window("key2", 1, 1000, 3000, 2)));
+        testHarness.close();
+    }
+
+    /** Returns the windows emitted since the last call, see {@link #window}. */
+    private static List<String> multiWindowResults(
+            OneInputStreamOperatorTestHarness<RowData, RowData> testHarness) {
+        List<String> results = new ArrayList<>();
+        for (RowData row : testHarness.extractOutputValues()) {
+            results.add(
+                    row.getString(0)
+                            + ","
+                            + row.getLong(2)
+                            + ","
+                            + row.getTimestamp(5, 3).getMillisecond()
+                            + ","
+                            + row.getTimestamp(6, 3).getMillisecond()
+                            + ","
+                            + row.getInt(7));
+        }
+        testHarness.getOutput().clear();
+        return results;
+    }
+
+    private String window(String key, long count, long start, long end, int window) {
+        return key + "," + count + "," + localMills(start) + "," + localMills(end) + "," + window;
+    }
+
     @Test
     public void testProcessingTimeHoppingWindows() throws Exception {
         final SliceAssigner assigner =
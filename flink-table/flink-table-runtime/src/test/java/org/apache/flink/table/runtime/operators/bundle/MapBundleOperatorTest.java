@@ -84,6 +84,53 @@ public class MapBundleOperatorTest {
         }
     }
 
+    @Test
+    public void testPassThroughWhileElementsAreNotReduced() throws Exception {
+        TestMapBundleFunction func = new TestMapBundleFunction();
+        int bundleSize = 100;
+        CountBundleTrigger<Tuple2<String, String>> trigger = new CountBundleTrigger<>(bundleSize);
+        KeySelector<Tuple2<String, String>, String> keySelector =
+                (KeySelector<Tuple2<String, String>, String>) value -> value.f0;
+
+        OneInputStreamOperatorTestHarness<Tuple2<String, String>, String> op =
+                new OneInputStreamOperatorTestHarness<>(
+                        new MapBundleOperator<>(func, trigger, keySelector, 0.5, 10));
+        op.open();
+        synchronized (op.getCheckpointLock()) {
+            StreamRecord<Tuple2<String, String>> input = new StreamRecord<>(null);
+
+            // unique keys are not reduced by the bundles
+            int sampleSize = AbstractMapBundleOperator.REDUCTION_RATIO_SAMPLE_SIZE;
+            for (int i = 0; i < sampleSize; i++) {
+                input.replace(new Tuple2<>("k" + i, "v"));
+                op.processElement(input);
+            }
+            int numOfBundles = sampleSize / bundleSize;
+            assertEquals(numOfBundles, func.getFinishCount());
+
+            // the next elements are passed through one by one
+            for (int i = 0; i < 10; i++) {
+                input.replace(new Tuple2<>("p" + i, "v" + i));
+                op.processElement(input);
+                assertEquals(numOfBundles + i + 1, func.getFinishCount());
+                assertThat(Arrays.asList("p" + i + "=v" + i), is(func.getOutputs()));
+            }
+
+            // afterwards the bundling is probed again, repeated keys are reduced
+            for (int i = 0; i < sampleSize; i++) {
+                input.replace(new Tuple2<>("k" + (i % 2), "v"));
+                op.processElement(input);
+            }
+            assertEquals(numOfBundles * 2 + 10, func.getFinishCount());
+            assertEquals(2, func.getOutputs().size());
+
+            input.replace(new Tuple2<>("k0", "v"));
+            op.processElement(input);
+            assertEquals(numOfBundles * 2 + 10, func.getFinishCount());
+            op.close();
+        }
+    }
+
     private static class TestMapBundleFunction
             extends MapBundleFunction<String, String, Tuple2<String, String>, String> {
 
@@ -24,6 +24,7 @@ import org.apache.flink.streaming.api.functions.ProcessFunction;
 import org.apache.flink.streaming.api.operators.ProcessOperator;
 import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
 import org.apache.flink.table.api.DataTypes;
+import org.apache.flink.table.api.config.ExecutionConfigOptions.LookupCacheEviction;
 import org.apache.flink.table.data.GenericRowData;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.data.binary.BinaryStringData;
@@ -31,11 +32,15 @@ import org.apache.flink.table.data.utils.JoinedRowData;
 import org.apache.flink.table.runtime.collector.TableFunctionCollector;
 import org.apache.flink.table.runtime.generated.GeneratedCollectorWrapper;
 import org.apache.flink.table.runtime.generated.GeneratedFunctionWrapper;
+import org.apache.flink.table.runtime.operators.join.lookup.LookupCacheSpec;
 import org.apache.flink.table.runtime.operators.join.lookup.LookupJoinRunner;
 import org.apache.flink.table.runtime.operators.join.lookup.LookupJoinWithCalcRunner;
 import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
 import org.apache.flink.table.runtime.util.RowDataHarnessAssertor;
+import org.apache.flink.table.types.logical.IntType;
 import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarCharType;
 import org.apache.flink.util.Collector;
 
 import org.junit.Test;
@@ -46,9 +51,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.flink.table.data.StringData.fromString;
 import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
+import static org.junit.Assert.assertEquals;
 
 /** Harness tests for {@link LookupJoinRunner} and {@link LookupJoinWithCalcRunner}. */
 public class LookupJoinHarnessTest {
@@ -160,6 +167,57 @@ public class LookupJoinHarnessTest {
         testHarness.close();
     }
 
+    @Test
+    public void testTemporalLeftJoinWithCache() throws Exception {
+        CountingFetcherFunction.numLookups.set(0);
+        LookupCacheSpec cacheSpec =
+                new LookupCacheSpec(
+                        "test",
+                        new int[] {0},
+                        new int[] {0},
+                        RowType.of(new IntType()),
+                        false,
+                        RowType.of(new IntType(), new VarCharType(VarCharType.MAX_LENGTH)),
+                        1 << 20,
+                        LookupCacheEviction.LRU,
+                        60_000L,
+                        0L,
+                        0L,
+                        null);
+        LookupJoinRunner joinRunner =
+                new LookupJoinRunner(
+                        new GeneratedFunctionWrapper<>(new CountingFetcherFunction()),
+                        new GeneratedCollectorWrapper<>(new TestingFetcherCollector()),
+                        true,
+                        2,
+                        cacheSpec);
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                new OneInputStreamOperatorTestHarness<>(
+                        new ProcessOperator<>(joinRunner), inSerializer);
+
+        testHarness.open();
+
+        testHarness.processElement(insertRecord(3, "a"));
+        testHarness.processElement(insertRecord(2, "b"));
+        testHarness.processElement(insertRecord(3, "c"));
+        testHarness.processElement(insertRecord(2, "d"));
+        testHarness.processElement(insertRecord(null, "e"));
+
+        List<Object> expectedOutput = new ArrayList<>();
+        expectedOutput.add(insertRecord(3, "a", 3, "Jark"));
+        expectedOutput.add(insertRecord(3, "a", 3, "Jackson"));
+        expectedOutput.add(insertRecord(2, "b", null, null));
+        expectedOutput.add(insertRecord(3, "c", 3, "Jark"));
+        expectedOutput.add(insertRecord(3, "c", 3, "Jackson"));
+        expectedOutput.add(insertRecord(2, "d", null, null));
+        expectedOutput.add(insertRecord(null, "e", null, null));
+
+        assertor.assertOutputEquals("output wrong.", expectedOutput, testHarness.getOutput());
+        // keys with and without rows are cached, null keys are never cached
+        assertEquals(3, CountingFetcherFunction.numLookups.get());
+        testHarness.close();
+    }
+
     // ---------------------------------------------------------------------------------
 
     @SuppressWarnings("unchecked")
@@ -234,6 +292,26 @@ public class LookupJoinHarnessTest {
         }
     }
 
+    /**
+     * The {@link CountingFetcherFunction} counts the lookups of the {@link TestingFetcherFunction}.
+     */
+    public static final class CountingFetcherFunction implements FlatMapFunction<RowData, RowData> {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final AtomicInteger numLookups = new AtomicInteger();
+
+        private final TestingFetcherFunction fetcher = new TestingFetcherFunction();
+
+        @Override
+        public void flatMap(RowData value, Collector<RowData> out) throws Exception {
+            numLookups.incrementAndGet();
+            if (!value.isNullAt(0)) {
+                fetcher.flatMap(value, out);
+            }
+        }
+    }
+
     /**
      * The {@link TestingFetcherCollector} is a simple implementation of {@link
      * TableFunctionCollector} which combines left and right into a JoinedRowData.
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.lookup;
+
+import org.apache.flink.table.api.config.ExecutionConfigOptions.LookupCacheEviction;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.types.logical.IntType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarCharType;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.table.data.StringData.fromString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link LookupCache}. */
+public class LookupCacheTest {
+
+    private static final RowType KEY_TYPE = RowType.of(new IntType());
+
+    private static final RowType TABLE_ROW_TYPE =
+            RowType.of(new IntType(), new VarCharType(VarCharType.MAX_LENGTH));
+
+    private static final long TTL_MILLIS = 10_000L;
+
+    private final RowDataSerializer keySerializer = new RowDataSerializer(KEY_TYPE);
+
+    private final RowDataSerializer rowSerializer = new RowDataSerializer(TABLE_ROW_TYPE);
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void testGetAndPut() {
+        LookupCache cache = createCache(LookupCacheEviction.LRU, 1 << 20, 0);
+
+        assertNull(cache.get(key(1)));
+        cache.put(key(1), rows(1, "a", "b"));
+        cache.put(key(2), Collections.emptyList());
+
+        assertEquals(rows(1, "a", "b"), cache.get(key(1)));
+        assertEquals(Collections.emptyList(), cache.get(key(2)));
+        assertNull(cache.get(key(3)));
+        assertEquals(2, cache.getNumEntries());
+        assertEquals(
+                2 * LookupCache.ENTRY_OVERHEAD_IN_BYTES
+                        + 2 * key(1).getSizeInBytes()
+                        + sizeOf(rows(1, "a", "b")),
+                cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testCachedRowsExpire() {
+        LookupCache cache = createCache(LookupCacheEviction.LRU, 1 << 20, 0);
+        cache.put(key(1), rows(1, "a"));
+
+        clock.advanceTime(TTL_MILLIS - 1, TimeUnit.MILLISECONDS);
+        assertNotNull(cache.get(key(1)));
+
+        clock.advanceTime(1, TimeUnit.MILLISECONDS);
+        assertNull(cache.get(key(1)));
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRowsAreEvicted() {
+        int numKeys = 1000;
+        LookupCache cache = createCache(LookupCacheEviction.LRU, sizeOfKeys(numKeys) / 2, 0);
+        for (int i = 0; i < numKeys; i++) {
+            cache.put(key(i), rows(i, "value"));
+            // keep the first key recently used
+            assertNotNull(cache.get(key(0)));
+        }
+
+        assertTrue(cache.getSizeInBytes() <= sizeOfKeys(numKeys) / 2);
+        assertNotNull(cache.get(key(0)));
+        assertNotNull(cache.get(key(numKeys - 1)));
+        assertNull(cache.get(key(1)));
+    }
+
+    @Test
+    public void testLeastFrequentlyUsedRowsAreEvicted() {
+        int numKeys = 1000;
+        LookupCache cache = createCache(LookupCacheEviction.LFU, sizeOfKeys(numKeys) / 2, 0);
+        for (int i = 0; i < numKeys; i++) {
+            cache.put(key(i), rows(i, "value"));
+            if (i % 4 == 0) {
+                assertNotNull(cache.get(key(i)));
+            }
+        }
+
+        assertTrue(cache.getSizeInBytes() <= sizeOfKeys(numKeys) / 2);
+        assertNotNull(cache.get(key(0)));
+        assertNotNull(cache.get(key(4)));
+        assertNull(cache.get(key(1)));
+    }
+
+    @Test
+    public void testRefreshAhead() {
+        LookupCache cache = createCache(LookupCacheEviction.LRU, 1 << 20, TTL_MILLIS / 2);
+        cache.put(key(1), rows(1, "a"));
+        assertFalse(cache.tryStartRefresh(key(1)));
+
+        clock.advanceTime(TTL_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertTrue(cache.tryStartRefresh(key(1)));
+        // only one refresh at a time
+        assertFalse(cache.tryStartRefresh(key(1)));
+
+        cache.abortRefresh(key(1));
+        assertTrue(cache.tryStartRefresh(key(1)));
+
+        cache.put(key(1), rows(1, "b"));
+        assertFalse(cache.tryStartRefresh(key(1)));
+        clock.advanceTime(TTL_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertEquals(rows(1, "b"), cache.get(key(1)));
+    }
+
+    @Test
+    public void testPreloadCompleteTable() throws Exception {
+        LookupCache cache = createCache(LookupCacheEviction.LRU, 1 << 20, 0);
+        cache.reload(() -> table(Arrays.asList(1, 1, 2), false));
+
+        assertTrue(cache.isComplete());
+        assertEquals(2, cache.get(key(1)).size());
+        assertEquals(1, cache.get(key(2)).size());
+        // keys which are not in the table have no rows
+        assertEquals(Collections.emptyList(), cache.get(key(3)));
+
+        // the rows of a complete cache do not expire
+        clock.advanceTime(2 * TTL_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, cache.get(key(2)).size());
+    }
+
+    @Test
+    public void testPartialPreloadOfUniqueKeys() throws Exception {
+        int numKeys = 1000;
+        LookupCache cache = createCache(LookupCacheEviction.LRU, sizeOfKeys(numKeys) / 2, 0, true);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < numKeys; i++) {
+            keys.add(i);
+        }
+        cache.reload(() -> table(keys, true));
+
+        // the loading stops when the cache is full
+        assertFalse(cache.isComplete());
+        assertTrue(cache.getNumEntries() > numKeys / 4);
+        assertNull(cache.get(key(numKeys - 1)));
+    }
+
+    @Test
+    public void testTooLargeTableWithoutUniqueKeysIsNotPreloaded() throws Exception {
+        int numKeys = 1000;
+        LookupCache cache = createCache(LookupCacheEviction.LRU, sizeOfKeys(numKeys) / 2, 0);
+        cache.put(key(-1), rows(-1, "a"));
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < numKeys; i++) {
+            keys.add(i);
+        }
+        cache.reload(() -> table(keys, false));
+
+        assertFalse(cache.isComplete());
+        assertNull(cache.get(key(0)));
+        assertNotNull(cache.get(key(-1)));
+    }
+
+    // ------------------------------------------------------------------------
+
+    private LookupCache createCache(
+            LookupCacheEviction eviction, long maxSizeInBytes, long refreshAfterMillis) {
+        return createCache(eviction, maxSizeInBytes, refreshAfterMillis, false);
+    }
+
+    private LookupCache createCache(
+            LookupCacheEviction eviction,
+            long maxSizeInBytes,
+            long refreshAfterMillis,
+            boolean uniqueKeys) {
+        LookupCacheSpec spec =
+                new LookupCacheSpec(
+                        "test",
+                        new int[] {0},
+                        new int[] {0},
+                        KEY_TYPE,
+                        uniqueKeys,
+                        TABLE_ROW_TYPE,
+                        maxSizeInBytes,
+                        eviction,
+                        TTL_MILLIS,
+                        refreshAfterMillis,
+                        0,
+                        null);
+        return new LookupCache("test", spec, clock);
+    }
+
+    private BinaryRowData key(int key) {
+        return keySerializer.toBinaryRow(GenericRowData.of(key)).copy();
+    }
+
+    private List<RowData> rows(int key, String... values) {
+        List<RowData> rows = new ArrayList<>();
+        for (String value : values) {
+            rows.add(rowSerializer.toBinaryRow(GenericRowData.of(key, fromString(value))).copy());
+        }
+        return rows;
+    }
+
+    private static Iterable<RowData> table(List<Integer> keys, boolean addNullKey) {
+        List<RowData> rows = new ArrayList<>();
+        if (addNullKey) {
+            rows.add(GenericRowData.of(null, fromString("null")));
+        }
+        for (int key : keys) {
+            rows.add(GenericRowData.of(key, fromString("value")));
+        }
+        return rows;
+    }
+
+    private long sizeOfKeys(int numKeys) {
+        return numKeys
+                * (LookupCache.ENTRY_OVERHEAD_IN_BYTES
+                        + key(0).getSizeInBytes()
+                        + sizeOf(rows(0, "value")));
+    }
+
+    private static long sizeOf(Collection<RowData> rows) {
+        long size = 0;
+        for (RowData row : rows) {
+            size += ((BinaryRowData) row).getSizeInBytes();
+        }
+        return size;
+    }
+}
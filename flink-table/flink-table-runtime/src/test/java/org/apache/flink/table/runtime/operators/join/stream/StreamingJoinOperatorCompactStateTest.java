@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.join.stream;
+
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.util.KeyedTwoInputStreamOperatorTestHarness;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.generated.GeneratedJoinCondition;
+import org.apache.flink.table.runtime.keyselector.RowDataKeySelector;
+import org.apache.flink.table.runtime.operators.join.stream.state.JoinInputSideSpec;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.util.RowDataHarnessAssertor;
+import org.apache.flink.table.types.logical.BigIntType;
+import org.apache.flink.table.types.logical.VarCharType;
+import org.apache.flink.table.utils.HandwrittenSelectorUtil;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.deleteRecord;
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
+
+/** Harness tests for {@link StreamingJoinOperator} with the compact join state. */
+public class StreamingJoinOperatorCompactStateTest {
+
+    private static final String FUNC_CODE =
+            "public class AlwaysTrueJoinCondition extends org.apache.flink.api.common.functions.AbstractRichFunction "
+                    + "implements org.apache.flink.table.runtime.generated.JoinCondition {\n"
+                    + "\n"
+                    + "    public AlwaysTrueJoinCondition(Object[] reference) {\n"
+                    + "    }\n"
+                    + "\n"
+                    + "    @Override\n"
+                    + "    public boolean apply(org.apache.flink.table.data.RowData in1, org.apache.flink.table.data.RowData in2) {\n"
+                    + "        return true;\n"
+                    + "    }\n"
+                    + "}\n";
+
+    private final InternalTypeInfo<RowData> rowType =
+            InternalTypeInfo.ofFields(new BigIntType(), new VarCharType(VarCharType.MAX_LENGTH));
+
+    private final RowDataKeySelector keySelector =
+            HandwrittenSelectorUtil.getRowDataSelector(new int[] {0}, rowType.toRowFieldTypes());
+
+    private final RowDataHarnessAssertor assertor =
+            new RowDataHarnessAssertor(
+                    InternalTypeInfo.ofFields(
+                                    new BigIntType(),
+                                    new VarCharType(VarCharType.MAX_LENGTH),
+                                    new BigIntType(),
+                                    new VarCharType(VarCharType.MAX_LENGTH))
+                            .toRowFieldTypes());
+
+    @Test
+    public void testLeftOuterJoinWithDuplicatesAndRestore() throws Exception {
+        // a cache of a single join key writes the records of a join key whenever the key changes
+        KeyedTwoInputStreamOperatorTestHarness<RowData, RowData, RowData, RowData> testHarness =
+                createTestHarness(1);
+        testHarness.open();
+
+        testHarness.processElement1(insertRecord(1L, "a"));
+        testHarness.processElement1(insertRecord(2L, "b"));
+        testHarness.processElement1(insertRecord(1L, "a"));
+        testHarness.processElement2(insertRecord(1L, "x"));
+        testHarness.processElement1(deleteRecord(1L, "a"));
+        testHarness.processElement2(deleteRecord(1L, "x"));
+
+        List<Object> expectedOutput = new ArrayList<>();
+        expectedOutput.add(insertRecord(1L, "a", null, null));
+        expectedOutput.add(insertRecord(2L, "b", null, null));
+        expectedOutput.add(insertRecord(1L, "a", null, null));
+        expectedOutput.add(deleteRecord(1L, "a", null, null));
+        expectedOutput.add(deleteRecord(1L, "a", null, null));
+        expectedOutput.add(insertRecord(1L, "a", 1L, "x"));
+        expectedOutput.add(insertRecord(1L, "a", 1L, "x"));
+        expectedOutput.add(deleteRecord(1L, "a", 1L, "x"));
+        expectedOutput.add(deleteRecord(1L, "a", 1L, "x"));
+        expectedOutput.add(insertRecord(1L, "a", null, null));
+        assertor.assertOutputEquals("output wrong.", expectedOutput, testHarness.getOutput());
+
+        testHarness.prepareSnapshotPreBarrier(1L);
+        OperatorSubtaskState snapshot = testHarness.snapshot(1L, 1L);
+        testHarness.close();
+
+        testHarness = createTestHarness(1);
+        testHarness.initializeState(snapshot);
+        testHarness.open();
+
+        testHarness.processElement2(insertRecord(1L, "y"));
+        testHarness.processElement2(insertRecord(2L, "z"));
+
+        expectedOutput.clear();
+        expectedOutput.add(deleteRecord(1L, "a", null, null));
+        expectedOutput.add(insertRecord(1L, "a", 1L, "y"));
+        expectedOutput.add(deleteRecord(2L, "b", null, null));
+        expectedOutput.add(insertRecord(2L, "b", 2L, "z"));
+        assertor.assertOutputEquals("output wrong.", expectedOutput, testHarness.getOutput());
+        testHarness.close();
+    }
+
+    @Test
+    public void testInputWithUniqueKey() throws Exception {
+        KeyedTwoInputStreamOperatorTestHarness<RowData, RowData, RowData, RowData> testHarness =
+                createTestHarness(10);
+        testHarness.open();
+
+        testHarness.processElement2(insertRecord(1L, "x"));
+        // replaces the previous record with the same unique key
+        testHarness.processElement2(insertRecord(1L, "x"));
+        testHarness.processElement2(insertRecord(1L, "y"));
+        testHarness.processElement1(insertRecord(1L, "a"));
+
+        List<Object> expectedOutput = new ArrayList<>();
+        expectedOutput.add(insertRecord(1L, "a", 1L, "x"));
+        expectedOutput.add(insertRecord(1L, "a", 1L, "y"));
+        assertor.assertOutputEqualsSorted("output wrong.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processElement2(deleteRecord(1L, "x"));
+        testHarness.processElement2(deleteRecord(1L, "y"));
+        // checkpoints write the cached records to the state
+        testHarness.prepareSnapshotPreBarrier(1L);
+        OperatorSubtaskState snapshot = testHarness.snapshot(1L, 1L);
+        testHarness.close();
+
+        testHarness = createTestHarness(10);
+        testHarness.initializeState(snapshot);
+        testHarness.open();
+        testHarness.processElement2(insertRecord(1L, "z"));
+
+        expectedOutput.clear();
+        expectedOutput.add(deleteRecord(1L, "a", null, null));
+        expectedOutput.add(insertRecord(1L, "a", 1L, "z"));
+        assertor.assertOutputEquals("output wrong.", expectedOutput, testHarness.getOutput());
+        testHarness.close();
+    }
+
+    private KeyedTwoInputStreamOperatorTestHarness<RowData, RowData, RowData, RowData>
+            createTestHarness(int cacheSize) throws Exception {
+        RowDataKeySelector uniqueKeySelector =
+                HandwrittenSelectorUtil.getRowDataSelector(
+                        new int[] {1}, rowType.toRowFieldTypes());
+        StreamingJoinOperator operator =
+                new StreamingJoinOperator(
+                        rowType,
+                        rowType,
+                        new GeneratedJoinCondition(
+                                "AlwaysTrueJoinCondition", FUNC_CODE, new Object[0]),
+                        JoinInputSideSpec.withoutUniqueKey(),
+                        JoinInputSideSpec.withUniqueKey(
+                                uniqueKeySelector.getProducedType(), uniqueKeySelector),
+                        true,
+                        false,
+                        new boolean[] {true},
+                        0,
+                        cacheSize);
+        return new KeyedTwoInputStreamOperatorTestHarness<>(
+                operator, keySelector, keySelector, keySelector.getProducedType());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.rank;
+
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.table.data.RowData;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.deleteRecord;
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
+
+/** Tests for {@link RetractableTopNFunction} with the sort key counts in chunks. */
+public class ChunkedRetractableTopNFunctionTest extends RetractableTopNFunctionTest {
+
+    @Override
+    protected AbstractTopNFunction createFunction(
+            RankType rankType,
+            RankRange rankRange,
+            boolean generateUpdateBefore,
+            boolean outputRankNumber) {
+        // the smallest chunks split and remove chunks as often as possible
+        return createFunction(rankType, rankRange, generateUpdateBefore, outputRankNumber, 2);
+    }
+
+    private AbstractTopNFunction createFunction(
+            RankType rankType,
+            RankRange rankRange,
+            boolean generateUpdateBefore,
+            boolean outputRankNumber,
+            int sortKeyChunkSize) {
+        return new RetractableTopNFunction(
+                ttlConfig,
+                inputRowType,
+                comparableRecordComparator,
+                sortKeySelector,
+                rankType,
+                rankRange,
+                generatedEqualiser,
+                generateUpdateBefore,
+                outputRankNumber,
+                sortKeyChunkSize);
+    }
+
+    @Test
+    public void testSameOutputAsUnchunkedCounts() throws Exception {
+        OneInputStreamOperatorTestHarness<RowData, RowData> chunkedHarness =
+                createTestHarness(
+                        createFunction(
+                                RankType.ROW_NUMBER, new ConstantRankRange(2, 5), true, true, 3));
+        OneInputStreamOperatorTestHarness<RowData, RowData> unchunkedHarness =
+                createTestHarness(
+                        createFunction(
+                                RankType.ROW_NUMBER, new ConstantRankRange(2, 5), true, true, 0));
+        chunkedHarness.open();
+        unchunkedHarness.open();
+
+        Random random = new Random(42);
+        List<Integer> sortKeys = new ArrayList<>();
+        for (long id = 0; id < 500; id++) {
+            if (!sortKeys.isEmpty() && random.nextInt(3) == 0) {
+                int sortKey = sortKeys.remove(random.nextInt(sortKeys.size()));
+                chunkedHarness.processElement(deleteRecord("book", (long) sortKey, sortKey));
+                unchunkedHarness.processElement(deleteRecord("book", (long) sortKey, sortKey));
+            } else {
+                // few distinct sort keys with many records each and many sort keys with few
+                int sortKey = random.nextBoolean() ? random.nextInt(10) : random.nextInt(1000);
+                sortKeys.add(sortKey);
+                chunkedHarness.processElement(insertRecord("book", (long) sortKey, sortKey));
+                unchunkedHarness.processElement(insertRecord("book", (long) sortKey, sortKey));
+            }
+        }
+
+        assertorWithRowNumber.assertOutputEquals(
+                "output wrong.", unchunkedHarness.getOutput(), chunkedHarness.getOutput());
+        chunkedHarness.close();
+        unchunkedHarness.close();
+    }
+}
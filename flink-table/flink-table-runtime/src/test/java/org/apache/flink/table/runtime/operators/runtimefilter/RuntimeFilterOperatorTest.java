@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.operators.runtimefilter;
+
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.apache.flink.streaming.util.TwoInputStreamOperatorTestHarness;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.generated.GeneratedProjection;
+import org.apache.flink.table.runtime.generated.Projection;
+import org.apache.flink.table.runtime.operators.join.Int2HashJoinOperatorTest.MyProjection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.apache.flink.table.runtime.util.StreamRecordUtils.insertRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LocalRuntimeFilterBuilderOperator}, {@link GlobalRuntimeFilterBuilderOperator}
+ * and {@link RuntimeFilterOperator}.
+ */
+public class RuntimeFilterOperatorTest {
+
+    private static final int NUM_PROBE_KEYS = 1000;
+
+    @Test
+    public void testProbeSideIsFiltered() throws Exception {
+        int expectedEntries = 10;
+        RowData filter =
+                buildFilter(
+                        expectedEntries,
+                        expectedEntries,
+                        Arrays.asList(1, 2, 3),
+                        Arrays.asList(7, 8, 9, 10));
+
+        List<Integer> probeKeys = filterProbeSide(expectedEntries, filter);
+
+        assertTrue(probeKeys.containsAll(Arrays.asList(1, 2, 3, 7, 8, 9, 10)));
+        // the false positive probability is 5%
+        assertTrue(probeKeys.size() < NUM_PROBE_KEYS / 10);
+    }
+
+    @Test
+    public void testEmptyBuildSideFiltersAllRows() throws Exception {
+        int expectedEntries = 10;
+        RowData filter = buildFilter(expectedEntries, expectedEntries, new ArrayList<>());
+
+        assertEquals(0, filter.getLong(0));
+        assertTrue(filterProbeSide(expectedEntries, filter).isEmpty());
+    }
+
+    @Test
+    public void testFilterIsDroppedForTooManyBuildRows() throws Exception {
+        int expectedEntries = 2;
+        // every instance is within the limit, but not the whole build side
+        RowData filter =
+                buildFilter(expectedEntries, 4, Arrays.asList(1, 2, 3), Arrays.asList(4, 5));
+
+        assertEquals(5, filter.getLong(0));
+        assertTrue(filter.isNullAt(1));
+        assertEquals(NUM_PROBE_KEYS, filterProbeSide(expectedEntries, filter).size());
+    }
+
+    @SafeVarargs
+    private static RowData buildFilter(
+            int expectedEntries, int maxEntries, List<Integer>... buildKeysPerInstance)
+            throws Exception {
+        List<RowData> localFilters = new ArrayList<>();
+        for (List<Integer> buildKeys : buildKeysPerInstance) {
+            LocalRuntimeFilterBuilderOperator localBuilder =
+                    new LocalRuntimeFilterBuilderOperator(
+                            keyProjection(), expectedEntries, maxEntries);
+            try (OneInputStreamOperatorTestHarness<RowData, RowData> harness =
+                    new OneInputStreamOperatorTestHarness<>(localBuilder)) {
+                harness.open();
+                for (int key : buildKeys) {
+                    harness.processElement(insertRecord(key, "build"));
+                }
+                localBuilder.endInput();
+                localFilters.addAll(harness.extractOutputValues());
+            }
+        }
+
+        GlobalRuntimeFilterBuilderOperator globalBuilder =
+                new GlobalRuntimeFilterBuilderOperator(expectedEntries, maxEntries);
+        try (OneInputStreamOperatorTestHarness<RowData, RowData> harness =
+                new OneInputStreamOperatorTestHarness<>(globalBuilder)) {
+            harness.open();
+            for (RowData localFilter : localFilters) {
+                harness.processElement(localFilter, 0L);
+            }
+            globalBuilder.endInput();
+            List<RowData> output = harness.extractOutputValues();
+            assertEquals(1, output.size());
+            return output.get(0);
+        }
+    }
+
+    private static List<Integer> filterProbeSide(int expectedEntries, RowData filter)
+            throws Exception {
+        RuntimeFilterOperator operator =
+                new RuntimeFilterOperator(keyProjection(), expectedEntries);
+        try (TwoInputStreamOperatorTestHarness<RowData, RowData, RowData> harness =
+                new TwoInputStreamOperatorTestHarness<>(operator)) {
+            harness.open();
+            harness.processElement1(filter, 0L);
+            operator.endInput(1);
+            for (int key = 0; key < NUM_PROBE_KEYS; key++) {
+                harness.processElement2(insertRecord(key, "probe"));
+            }
+            return harness.extractOutputValues().stream()
+                    .map(row -> row.getInt(0))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static GeneratedProjection keyProjection() {
+        return new GeneratedProjection("", "", new Object[0]) {
+            @Override
+            public Projection newInstance(ClassLoader classLoader) {
+                return new MyProjection();
+            }
+        };
+    }
+}
@@ -367,6 +367,16 @@ public class BinaryExternalSorterTest {
         sorter.close();
     }
 
+    @Test
+    public void testMaxFanInIsBoundedByMemory() {
+        // the file handles are the bound
+        Assert.assertEquals(8, BinaryExternalSorter.getMaxFanIn(8, 1024 * 1024, 1024));
+        // the memory is the bound
+        Assert.assertEquals(16, BinaryExternalSorter.getMaxFanIn(128, 16 * 1024 + 1, 1024));
+        // at least two channels are merged
+        Assert.assertEquals(2, BinaryExternalSorter.getMaxFanIn(128, 1024, 1024));
+    }
+
     @Test
     public void testSpillingRandom() throws Exception {
 
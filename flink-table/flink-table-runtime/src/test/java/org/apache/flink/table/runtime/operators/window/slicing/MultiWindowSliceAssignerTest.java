@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.table.runtime.operators.window.slicing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link SliceAssigners.MultiWindowSliceAssigner}. */
+@RunWith(Parameterized.class)
+public class MultiWindowSliceAssignerTest extends SliceAssignerTestBase {
+
+    @Parameterized.Parameter public ZoneId shiftTimeZone;
+
+    @Parameterized.Parameters(name = "timezone = {0}")
+    public static Collection<ZoneId> parameters() {
+        return Arrays.asList(ZoneId.of("America/Los_Angeles"), ZoneId.of("Asia/Shanghai"));
+    }
+
+    @Test
+    public void testSliceAssignment() {
+        SliceAssigner assigner = createAssigner();
+
+        assertEquals(
+                utcMills("1970-01-01T01:00:00"),
+                assignSliceEnd(assigner, localMills("1970-01-01T00:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T05:00:00"),
+                assignSliceEnd(assigner, localMills("1970-01-01T04:59:59.999")));
+        assertEquals(
+                utcMills("1970-01-01T06:00:00"),
+                assignSliceEnd(assigner, localMills("1970-01-01T05:00:00")));
+    }
+
+    @Test
+    public void testWindowEnds() {
+        SliceAssigners.MultiWindowSliceAssigner assigner = createAssigner();
+
+        assertEquals(2, assigner.getNumWindows());
+        assertTrue(assigner.isWindowEnd(0, utcMills("1970-01-01T05:00:00")));
+        assertFalse(assigner.isWindowEnd(1, utcMills("1970-01-01T05:00:00")));
+        assertTrue(assigner.isWindowEnd(1, utcMills("1970-01-01T06:00:00")));
+
+        assertEquals(
+                utcMills("1970-01-01T01:00:00"),
+                assigner.getFirstWindowEnd(0, utcMills("1970-01-01T01:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T02:00:00"),
+                assigner.getFirstWindowEnd(1, utcMills("1970-01-01T01:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T01:00:00"),
+                assigner.getLastWindowEnd(0, utcMills("1970-01-01T01:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T04:00:00"),
+                assigner.getLastWindowEnd(1, utcMills("1970-01-01T01:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T04:00:00"),
+                assigner.getLastWindowEnd(utcMills("1970-01-01T01:00:00")));
+    }
+
+    @Test
+    public void testGetWindowStart() {
+        SliceAssigners.MultiWindowSliceAssigner assigner = createAssigner();
+
+        assertEquals(
+                utcMills("1970-01-01T04:00:00"),
+                assigner.getWindowStart(0, utcMills("1970-01-01T05:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T02:00:00"),
+                assigner.getWindowStart(1, utcMills("1970-01-01T06:00:00")));
+
+        // the start of the largest window which ends at the timestamp
+        assertEquals(
+                utcMills("1970-01-01T04:00:00"),
+                assigner.getWindowStart(utcMills("1970-01-01T05:00:00")));
+        assertEquals(
+                utcMills("1970-01-01T02:00:00"),
+                assigner.getWindowStart(utcMills("1970-01-01T06:00:00")));
+    }
+
+    @Test
+    public void testExpiredSlices() {
+        SliceAssigner assigner = createAssigner();
+
+        assertEquals(
+                Arrays.asList(utcMills("1970-01-01T02:00:00"), utcMills("1970-01-01T01:00:00")),
+                expiredSlices(assigner, utcMills("1970-01-01T04:00:00")));
+        assertEquals(
+                Arrays.asList(utcMills("1970-01-01T04:00:00"), utcMills("1970-01-01T03:00:00")),
+                expiredSlices(assigner, utcMills("1970-01-01T06:00:00")));
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertErrorMessage(
+                () ->
+                        SliceAssigners.multiWindows(
+                                0,
+                                shiftTimeZone,
+                                new Duration[] {Duration.ofSeconds(5)},
+                                new Duration[] {Duration.ofSeconds(2)}),
+                "Multiple windows require slide > 0 and size > 0 and that the size is an integral multiple of the slide, but got slide 2000ms and size 5000ms.");
+
+        assertErrorMessage(
+                () ->
+                        SliceAssigners.multiWindows(
+                                0,
+                                shiftTimeZone,
+                                new Duration[] {Duration.ofSeconds(5)},
+                                new Duration[0]),
+                "Multiple windows require a slide for every window size.");
+    }
+
+    /** Tumbling windows of 1 hour and hopping windows of 4 hours which slide by 2 hours. */
+    private SliceAssigners.MultiWindowSliceAssigner createAssigner() {
+        return SliceAssigners.multiWindows(
+                0,
+                shiftTimeZone,
+                new Duration[] {Duration.ofHours(1), Duration.ofHours(4)},
+                new Duration[] {Duration.ofHours(1), Duration.ofHours(2)});
+    }
+
+    private long localMills(String timestampStr) {
+        return localMills(timestampStr, shiftTimeZone);
+    }
+}